@@ -35,15 +35,22 @@ import com.apple.foundationdb.tuple.ByteArrayUtil;
 import com.apple.foundationdb.tuple.ByteArrayUtil2;
 import com.apple.foundationdb.tuple.Tuple;
 
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
 import java.util.Objects;
+import java.util.TreeMap;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Function;
 import java.util.zip.CRC32;
 
 import static com.apple.foundationdb.async.AsyncUtil.DONE;
@@ -74,6 +81,11 @@ import static com.apple.foundationdb.async.AsyncUtil.READY_FALSE;
  * The skip-list is stored as key-value pairs within a given subspace, where the key is a tuple of the form <code>[<i>level</i>, <i>key</i>]</code>
  * and the value is the number of elements between this key and the previous key at the same level, encoded as a little-endian long.
  * </p>
+ *
+ * <p>
+ * If the set is {@linkplain Config#isVersioned() versioned}, the key <code>[-1]</code> holds a version that changes
+ * whenever the set changes, which allows lookups to use upper levels kept in a {@link RankedSetLevelCache}.
+ * </p>
  */
 @API(API.Status.UNSTABLE)
 public class RankedSet {
@@ -118,6 +130,8 @@ public class RankedSet {
     protected final Subspace subspace;
     protected final Executor executor;
     protected final Config config;
+    @Nullable
+    protected final RankedSetLevelCache levelCache;
 
     static {
         LEVEL_FAN_VALUES = new int[MAX_LEVELS];
@@ -126,6 +140,7 @@ public class RankedSet {
         }
     }
 
+    private static final int VERSION_LEVEL = -1;
     private static final byte[] EMPTY_ARRAY = { };
     private static final byte[] ZERO_ARRAY = { 0 };
 
@@ -155,17 +170,24 @@ public class RankedSet {
         private final HashFunction hashFunction;
         private final int nlevels;
         private final boolean countDuplicates;
+        private final boolean versioned;
 
         protected Config() {
             this.hashFunction = DEFAULT_HASH_FUNCTION;
             this.nlevels = DEFAULT_LEVELS;
             this.countDuplicates = false;
+            this.versioned = false;
         }
 
         protected Config(HashFunction hashFunction, int nlevels, boolean countDuplicates) {
+            this(hashFunction, nlevels, countDuplicates, false);
+        }
+
+        protected Config(HashFunction hashFunction, int nlevels, boolean countDuplicates, boolean versioned) {
             this.hashFunction = hashFunction;
             this.nlevels = nlevels;
             this.countDuplicates = countDuplicates;
+            this.versioned = versioned;
         }
 
         /**
@@ -192,8 +214,17 @@ public class RankedSet {
             return countDuplicates;
         }
 
+        /**
+         * Get whether a version that changes with every change to the set is maintained.
+         * @return {@code true} if the upper levels of the set can be cached
+         * @see RankedSetLevelCache
+         */
+        public boolean isVersioned() {
+            return versioned;
+        }
+
         public ConfigBuilder toBuilder() {
-            return new ConfigBuilder(hashFunction, nlevels, countDuplicates);
+            return new ConfigBuilder(hashFunction, nlevels, countDuplicates, versioned);
         }
     }
 
@@ -206,14 +237,20 @@ public class RankedSet {
         private HashFunction hashFunction = DEFAULT_HASH_FUNCTION;
         private int nlevels = DEFAULT_LEVELS;
         private boolean countDuplicates = false;
+        private boolean versioned = false;
 
         protected ConfigBuilder() {
         }
 
         protected ConfigBuilder(HashFunction hashFunction, int nlevels, boolean countDuplicates) {
+            this(hashFunction, nlevels, countDuplicates, false);
+        }
+
+        protected ConfigBuilder(HashFunction hashFunction, int nlevels, boolean countDuplicates, boolean versioned) {
             this.hashFunction = hashFunction;
             this.nlevels = nlevels;
             this.countDuplicates = countDuplicates;
+            this.versioned = versioned;
         }
 
         public HashFunction getHashFunction() {
@@ -268,8 +305,26 @@ public class RankedSet {
             return this;
         }
 
+        public boolean isVersioned() {
+            return versioned;
+        }
+
+        /**
+         * Set whether to maintain a version that changes with every change to the set.
+         *
+         * This costs an additional atomic mutation for every change, but is needed for lookups to use a
+         * {@link RankedSetLevelCache}. Changing this from {@code true} to {@code false} for an existing ranked set
+         * can leave stale levels in caches that will be used if it is ever changed back.
+         * @param versioned whether to maintain a version
+         * @return this builder
+         */
+        public ConfigBuilder setVersioned(boolean versioned) {
+            this.versioned = versioned;
+            return this;
+        }
+
         public Config build() {
-            return new Config(hashFunction, nlevels, countDuplicates);
+            return new Config(hashFunction, nlevels, countDuplicates, versioned);
         }
     }
 
@@ -289,9 +344,21 @@ public class RankedSet {
      * @param config configuration to use
      */
     public RankedSet(Subspace subspace, Executor executor, Config config) {
+        this(subspace, executor, config, null);
+    }
+
+    /**
+     * Initialize a new ranked set that can use cached upper levels for lookups.
+     * @param subspace the subspace where the ranked set is stored
+     * @param executor an executor to use when running asynchronous tasks
+     * @param config configuration to use
+     * @param levelCache a cache of upper levels, which is only used if {@code config} is {@linkplain Config#isVersioned() versioned}
+     */
+    public RankedSet(Subspace subspace, Executor executor, Config config, @Nullable RankedSetLevelCache levelCache) {
         this.subspace = subspace;
         this.executor = executor;
         this.config = config;
+        this.levelCache = levelCache;
     }
 
     /**
@@ -387,6 +454,7 @@ public class RankedSet {
                     if (duplicate && !config.isCountDuplicates()) {
                         return READY_FALSE;
                     }
+                    changeVersion(tr);
                     final int nlevels = config.getNLevels();
                     List<CompletableFuture<Void>> futures = new ArrayList<>(nlevels);
                     for (int li = 0; li < nlevels; ++li) {
@@ -460,6 +528,7 @@ public class RankedSet {
                             if (count == null || count <= 0) {
                                 return READY_FALSE;
                             }
+                            changeVersion(tr);
                             // This works even if the current set does not track duplicates but duplicates were added
                             // earlier by one that did.
                             final boolean duplicate = count > 1;
@@ -521,6 +590,7 @@ public class RankedSet {
         Range range = subspace.range();
         return tc.runAsync(tr -> {
             tr.clear(range);
+            changeVersion(tr);
             return initLevels(tr);
         });
     }
@@ -559,6 +629,7 @@ public class RankedSet {
         private int level = config.getNLevels();
         private Subspace levelSubspace;
         private AsyncIterator<KeyValue> asyncIterator = null;
+        private boolean done;
 
         public NthLookup(long rank) {
             this.rank = rank;
@@ -568,8 +639,37 @@ public class RankedSet {
             return key;
         }
 
+        // Do the same as next would for the cached levels, leaving only the lower levels to be read.
+        void skipCachedLevels(@Nonnull RankedSetLevelCache.Levels levels) {
+            while (level > levels.getLowestLevel()) {
+                level--;
+                boolean descend = false;
+                for (Map.Entry<byte[], Long> entry : levels.getLevel(level).tailMap(key, true).entrySet()) {
+                    key = entry.getKey();
+                    if (rank == 0 && key.length > 0) {
+                        done = true;
+                        return;
+                    }
+                    final long count = entry.getValue();
+                    if (count > rank) {
+                        descend = true;
+                        break;
+                    }
+                    rank -= count;
+                }
+                if (!descend) {
+                    key = null;
+                    done = true;
+                    return;
+                }
+            }
+        }
+
         @Override
         public CompletableFuture<Boolean> next(ReadTransaction tr) {
+            if (done) {
+                return READY_FALSE;
+            }
             final boolean newIterator = asyncIterator == null;
             if (newIterator) {
                 level--;
@@ -628,10 +728,13 @@ public class RankedSet {
         if (rank < 0) {
             return CompletableFuture.completedFuture((byte[])null);
         }
-        return tc.readAsync(tr -> {
+        return tc.readAsync(tr -> withCachedLevels(tr, levels -> {
             NthLookup nth = new NthLookup(rank);
+            if (levels != null) {
+                nth.skipCachedLevels(levels);
+            }
             return AsyncUtil.whileTrue(() -> nextLookup(nth, tr), executor).thenApply(vignore -> nth.getKey());
-        });
+        }));
     }
 
     /**
@@ -657,12 +760,14 @@ public class RankedSet {
 
     /**
      * Read the deeper, likely empty, levels to get them into the RYW cache, since individual lookups may only
-     * add pieces, requiring additional requests as keys increase.
+     * add pieces, requiring additional requests as keys increase. For a {@linkplain Config#isVersioned() versioned}
+     * set, one more key is read, so that the version is also loaded when the set is (nearly) empty.
      * @param tr the transaction to use to access the database
      * @return a future that is complete when the deeper levels have been loaded
      */
     public CompletableFuture<Void> preloadForLookup(ReadTransaction tr) {
-        return tr.getRange(subspace.range(), config.getNLevels(), true).asList().thenApply(l -> null);
+        final int limit = config.isVersioned() ? config.getNLevels() + 1 : config.getNLevels();
+        return tr.getRange(subspace.range(), limit, true).asList().thenApply(l -> null);
     }
 
     protected CompletableFuture<Boolean> nextLookup(Lookup lookup, ReadTransaction tr) {
@@ -689,6 +794,7 @@ public class RankedSet {
         private int level = config.getNLevels();
         private AsyncIterator<KeyValue> asyncIterator = null;
         private long lastCount;
+        private boolean done;
 
         public RankLookup(byte[] key, boolean keyShouldBePresent) {
             this.key = key;
@@ -699,8 +805,29 @@ public class RankedSet {
             return rank;
         }
 
+        // Do the same as next would for the cached levels, leaving only the lower levels to be read.
+        void skipCachedLevels(@Nonnull RankedSetLevelCache.Levels levels) {
+            while (level > levels.getLowestLevel()) {
+                level--;
+                lastCount = 0;
+                for (Map.Entry<byte[], Long> entry : levels.getLevel(level).subMap(rankKey, true, key, true).entrySet()) {
+                    rankKey = entry.getKey();
+                    lastCount = entry.getValue();
+                    rank += lastCount;
+                }
+                rank -= lastCount;
+                if (Arrays.equals(rankKey, key)) {
+                    done = true;
+                    return;
+                }
+            }
+        }
+
         @Override
         public CompletableFuture<Boolean> next(ReadTransaction tr) {
+            if (done) {
+                return READY_FALSE;
+            }
             final boolean newIterator = asyncIterator == null;
             if (newIterator) {
                 level--;
@@ -788,8 +915,13 @@ public class RankedSet {
     }
 
     private CompletableFuture<Long> rankLookup(ReadTransaction tr, byte[] key, boolean keyShouldBePresent) {
-        RankLookup rank = new RankLookup(key, keyShouldBePresent);
-        return AsyncUtil.whileTrue(() -> nextLookup(rank, tr), executor).thenApply(vignore -> rank.getRank());
+        return withCachedLevels(tr, levels -> {
+            RankLookup rank = new RankLookup(key, keyShouldBePresent);
+            if (levels != null) {
+                rank.skipCachedLevels(levels);
+            }
+            return AsyncUtil.whileTrue(() -> nextLookup(rank, tr), executor).thenApply(vignore -> rank.getRank());
+        });
     }
 
     /**
@@ -798,10 +930,16 @@ public class RankedSet {
      * @return a future that completes to the number of items in the set
      */
     public CompletableFuture<Long> size(ReadTransactionContext tc) {
-        Range r = subspace.get(config.getNLevels() - 1).range();
-        return tc.readAsync(tr -> AsyncUtil.mapIterable(tr.getRange(r), keyValue -> decodeLong(keyValue.getValue()))
-                .asList()
-                .thenApply(longs -> longs.stream().reduce(0L, Long::sum)));
+        final int topLevel = config.getNLevels() - 1;
+        Range r = subspace.get(topLevel).range();
+        return tc.readAsync(tr -> withCachedLevels(tr, levels -> {
+            if (levels != null) {
+                return CompletableFuture.completedFuture(levels.getLevel(topLevel).values().stream().reduce(0L, Long::sum));
+            }
+            return AsyncUtil.mapIterable(tr.getRange(r), keyValue -> decodeLong(keyValue.getValue()))
+                    .asList()
+                    .thenApply(longs -> longs.stream().reduce(0L, Long::sum));
+        }));
     }
 
     protected Consistency checkConsistency(ReadTransactionContext tc) {
@@ -906,6 +1044,90 @@ public class RankedSet {
         return kf.thenApply(prevk -> subspace.unpack(prevk).getBytes(1));
     }
 
+    private byte[] versionKey() {
+        return subspace.pack(Tuple.from(VERSION_LEVEL));
+    }
+
+    // Must be called for every change to the set.
+    // The amount added is random rather than one, so that two transactions starting from the same version (one of
+    // which may never commit), as well as a set that has been cleared and refilled, do not end up with the same
+    // version for different contents.
+    private void changeVersion(Transaction tr) {
+        if (config.isVersioned()) {
+            tr.mutate(MutationType.ADD, versionKey(), encodeLong(ThreadLocalRandom.current().nextLong(1L, Long.MAX_VALUE)));
+        }
+    }
+
+    // Run a lookup, passing it the cached upper levels if there are any for the version of the set read by the
+    // transaction, or else null. The version is read in parallel with the lookup, which is simply repeated without
+    // cached levels if they turn out to be stale. A lookup without cached levels also starts loading them for next
+    // time, but does not wait for that.
+    private <T> CompletableFuture<T> withCachedLevels(ReadTransaction tr,
+                                                      Function<RankedSetLevelCache.Levels, CompletableFuture<T>> lookup) {
+        if (levelCache == null || !config.isVersioned() || config.getNLevels() <= levelCache.getUncachedLevels()) {
+            return lookup.apply(null);
+        }
+        // Not a snapshot read, so that the lookup conflicts with changes to the levels that it did not read.
+        final CompletableFuture<Long> versionFuture = tr.get(versionKey()).thenApply(v -> v == null ? null : decodeLong(v));
+        final RankedSetLevelCache.Levels levels = levelCache.get(subspace, config.getNLevels());
+        if (levels != null) {
+            final CompletableFuture<T> result = lookup.apply(levels);
+            return versionFuture.thenCompose(version -> {
+                if (version != null && version == levels.getVersion()) {
+                    return result;
+                }
+                levelCache.invalidate(subspace, levels);
+                return lookupAndLoadLevels(tr, version, lookup);
+            });
+        }
+        return versionFuture.thenCompose(version -> lookupAndLoadLevels(tr, version, lookup));
+    }
+
+    private <T> CompletableFuture<T> lookupAndLoadLevels(ReadTransaction tr, @Nullable Long version,
+                                                         Function<RankedSetLevelCache.Levels, CompletableFuture<T>> lookup) {
+        final CompletableFuture<T> result = lookup.apply(null);
+        // Never changed since versioning started, so there is no telling whether it has changed since being cached.
+        // Otherwise, only one load of a set's levels runs at a time, so that a set that changes more often than its
+        // levels can be loaded does not have every lookup reading them again.
+        if (version != null && levelCache != null && levelCache.startLoading(subspace)) {
+            loadLevels(tr, version).whenComplete((vignore, err) -> levelCache.finishLoading(subspace));
+        }
+        return result;
+    }
+
+    // Cache as many levels from the top down as fit. The levels are read one after the other, so that no more keys
+    // are read than can be cached, however large the set. This is best effort: if the transaction is closed before
+    // the levels have been read, nothing is cached.
+    private CompletableFuture<Void> loadLevels(ReadTransaction tr, long version) {
+        final int nlevels = config.getNLevels();
+        final List<NavigableMap<byte[], Long>> levels = new ArrayList<>();
+        final int[] nextLevel = {nlevels - 1};
+        final int[] remainingKeys = {levelCache.getMaxKeysPerSet()};
+        return AsyncUtil.whileTrue(() -> {
+            final int level = nextLevel[0];
+            if (level < levelCache.getUncachedLevels()) {
+                return READY_FALSE;
+            }
+            return tr.snapshot().getRange(subspace.range(Tuple.from(level)), remainingKeys[0] + 1).asList().thenApply(keyValues -> {
+                if (keyValues.size() > remainingKeys[0]) {
+                    return false;
+                }
+                final NavigableMap<byte[], Long> levelMap = new TreeMap<>(ByteArrayUtil::compareUnsigned);
+                for (KeyValue keyValue : keyValues) {
+                    levelMap.put(subspace.unpack(keyValue.getKey()).getBytes(1), decodeLong(keyValue.getValue()));
+                }
+                levels.add(0, Collections.unmodifiableNavigableMap(levelMap));
+                remainingKeys[0] -= keyValues.size();
+                nextLevel[0] = level - 1;
+                return true;
+            });
+        }, executor).thenAccept(vignore -> {
+            if (!levels.isEmpty()) {
+                levelCache.put(subspace, new RankedSetLevelCache.Levels(version, nlevels, nextLevel[0] + 1, levels));
+            }
+        });
+    }
+
     private CompletableFuture<Void> initLevels(TransactionContext tc) {
         return tc.runAsync(tr -> {
             final int nlevels = config.getNLevels();
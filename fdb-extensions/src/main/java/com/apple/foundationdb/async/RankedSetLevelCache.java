@@ -0,0 +1,184 @@
+/*
+ * RankedSetLevelCache.java
+ *
+ * This source file is part of the FoundationDB open source project
+ *
+ * Copyright 2015-2026 Apple Inc. and the FoundationDB project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.apple.foundationdb.async;
+
+import com.apple.foundationdb.annotation.API;
+import com.apple.foundationdb.subspace.Subspace;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A cache of the upper levels of {@link RankedSet}s that can be shared by lookups running in different transactions.
+ * <p>
+ * A {@link RankedSet#rank} or {@link RankedSet#getNth} lookup reads one level after the other, starting from the
+ * coarsest one, each read depending on the previous one. The upper levels are sparse, so they are cheap to keep in
+ * memory, which leaves only the bottom levels to be read from the database. Cached levels are only used for a set
+ * whose {@link RankedSet.Config#isVersioned() version} is maintained, and only if the version read by the lookup's
+ * transaction is exactly the one they were loaded at. As that version is read within the lookup's transaction, using
+ * the cache does not weaken the isolation of that transaction. It does, however, make the lookup conflict with any
+ * concurrent change to the set, rather than only with changes to the part of the set that it read.
+ * <p>
+ * A single instance can be used for any number of sets, e.g. all the sets of a database; they are distinguished by
+ * their subspace.
+ */
+@API(API.Status.EXPERIMENTAL)
+public class RankedSetLevelCache {
+    /**
+     * Default number of levels at the bottom of a set that are never cached.
+     */
+    public static final int DEFAULT_UNCACHED_LEVELS = 2;
+
+    private final int uncachedLevels;
+    private final int maxKeysPerSet;
+    @Nonnull
+    private final Cache<Subspace, Levels> cache;
+    @Nonnull
+    private final Set<Subspace> loading = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Creates a new cache.
+     * @param maxSets the maximum number of sets whose levels are cached
+     * @param maxKeysPerSet the maximum number of keys cached for any one set; fewer levels are cached for sets that
+     * have more keys than that in the levels that could be cached
+     * @param uncachedLevels the number of levels at the bottom of each set that are always read from the database,
+     * which must be at least {@code 1}
+     */
+    public RankedSetLevelCache(long maxSets, int maxKeysPerSet, int uncachedLevels) {
+        Preconditions.checkArgument(maxSets > 0, "maximum number of sets must be positive");
+        Preconditions.checkArgument(maxKeysPerSet > 0, "maximum number of keys per set must be positive");
+        Preconditions.checkArgument(uncachedLevels > 0, "level 0 cannot be cached");
+        this.uncachedLevels = uncachedLevels;
+        this.maxKeysPerSet = maxKeysPerSet;
+        this.cache = CacheBuilder.newBuilder().maximumSize(maxSets).build();
+    }
+
+    /**
+     * Creates a new cache that leaves the {@linkplain #DEFAULT_UNCACHED_LEVELS default number of levels} uncached.
+     * @param maxSets the maximum number of sets whose levels are cached
+     * @param maxKeysPerSet the maximum number of keys cached for any one set
+     */
+    public RankedSetLevelCache(long maxSets, int maxKeysPerSet) {
+        this(maxSets, maxKeysPerSet, DEFAULT_UNCACHED_LEVELS);
+    }
+
+    public int getUncachedLevels() {
+        return uncachedLevels;
+    }
+
+    public int getMaxKeysPerSet() {
+        return maxKeysPerSet;
+    }
+
+    /**
+     * Discards the cached levels of all sets.
+     */
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    @VisibleForTesting
+    long size() {
+        return cache.size();
+    }
+
+    @Nullable
+    Levels get(@Nonnull Subspace subspace, int nlevels) {
+        final Levels levels = cache.getIfPresent(subspace);
+        return levels != null && levels.getNLevels() == nlevels ? levels : null;
+    }
+
+    void put(@Nonnull Subspace subspace, @Nonnull Levels levels) {
+        cache.put(subspace, levels);
+    }
+
+    void invalidate(@Nonnull Subspace subspace, @Nonnull Levels levels) {
+        cache.asMap().remove(subspace, levels);
+    }
+
+    /**
+     * Note that the levels of a set are about to be loaded.
+     * @param subspace the subspace of the set
+     * @return {@code true} if the caller should load the levels and then call {@link #finishLoading}, or
+     * {@code false} if they are already being loaded
+     */
+    boolean startLoading(@Nonnull Subspace subspace) {
+        return loading.add(subspace);
+    }
+
+    void finishLoading(@Nonnull Subspace subspace) {
+        loading.remove(subspace);
+    }
+
+    @VisibleForTesting
+    boolean isLoading(@Nonnull Subspace subspace) {
+        return loading.contains(subspace);
+    }
+
+    /**
+     * The upper levels of one set at one version.
+     */
+    static final class Levels {
+        private final long version;
+        private final int nlevels;
+        private final int lowestLevel;
+        // Indexed by level minus lowestLevel.
+        @Nonnull
+        private final List<NavigableMap<byte[], Long>> levels;
+
+        Levels(long version, int nlevels, int lowestLevel, @Nonnull List<NavigableMap<byte[], Long>> levels) {
+            this.version = version;
+            this.nlevels = nlevels;
+            this.lowestLevel = lowestLevel;
+            this.levels = levels;
+        }
+
+        long getVersion() {
+            return version;
+        }
+
+        int getNLevels() {
+            return nlevels;
+        }
+
+        int getLowestLevel() {
+            return lowestLevel;
+        }
+
+        /**
+         * Get the keys and counts of one of the cached levels.
+         * @param level a level between {@link #getLowestLevel()} and the top level
+         * @return a map from key to count ordered like the keys in the database
+         */
+        @Nonnull
+        NavigableMap<byte[], Long> getLevel(int level) {
+            return levels.get(level - lowestLevel);
+        }
+    }
+}
@@ -207,7 +207,8 @@ abstract class AbstractStorageAdapter<N extends NodeReference> implements Storag
      * It handles persisting the node's data at a specific {@code layer} and applies
      * the changes to its neighbors as defined in the {@link NeighborsChangeSet}.
      * This method delegates the core writing logic to an internal method and provides
-     * debug logging upon completion.
+     * debug logging upon completion. Writes to a layer above layer {@code 0} also change the upper layers version
+     * (see {@link StorageAdapter#bumpUpperLayersVersion}).
      *
      * @param transaction the non-null {@link Transaction} context for this write operation
      * @param quantizer the quantizer to use
@@ -221,6 +222,9 @@ abstract class AbstractStorageAdapter<N extends NodeReference> implements Storag
                           final int layer, @Nonnull final AbstractNode<N> node,
                           @Nonnull final NeighborsChangeSet<N> changeSet) {
         writeNodeInternal(transaction, quantizer, layer, node, changeSet);
+        if (layer > 0) {
+            StorageAdapter.bumpUpperLayersVersion(transaction, getSubspace(), getOnWriteListener());
+        }
         if (logger.isTraceEnabled()) {
             logger.trace("written node with key={} at layer={}", node.getPrimaryKey(), layer);
         }
@@ -248,6 +252,9 @@ abstract class AbstractStorageAdapter<N extends NodeReference> implements Storag
     @Override
     public void deleteNode(@Nonnull final Transaction transaction, final int layer, @Nonnull final Tuple primaryKey) {
         deleteNodeInternal(transaction, layer, primaryKey);
+        if (layer > 0) {
+            StorageAdapter.bumpUpperLayersVersion(transaction, getSubspace(), getOnWriteListener());
+        }
         if (logger.isTraceEnabled()) {
             logger.trace("deleted node with key={} at layer={}", primaryKey, layer);
         }
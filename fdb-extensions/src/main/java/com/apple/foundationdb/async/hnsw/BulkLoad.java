@@ -0,0 +1,660 @@
+/*
+ * BulkLoad.java
+ *
+ * This source file is part of the FoundationDB open source project
+ *
+ * Copyright 2015-2026 Apple Inc. and the FoundationDB project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.apple.foundationdb.async.hnsw;
+
+import com.apple.foundationdb.Database;
+import com.apple.foundationdb.Transaction;
+import com.apple.foundationdb.annotation.API;
+import com.apple.foundationdb.async.AsyncUtil;
+import com.apple.foundationdb.linear.DoubleRealVector;
+import com.apple.foundationdb.linear.Estimator;
+import com.apple.foundationdb.linear.FhtKacRotator;
+import com.apple.foundationdb.linear.Quantizer;
+import com.apple.foundationdb.linear.RealVector;
+import com.apple.foundationdb.linear.Transformed;
+import com.apple.foundationdb.subspace.Subspace;
+import com.apple.foundationdb.tuple.Tuple;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.UnaryOperator;
+
+/**
+ * An implementation of a bulk load of an empty HNSW.
+ * <p>
+ * Inserting vectors one by one using {@link Insert} searches the graph stored in the database for every vector and
+ * rewrites the neighborhoods of all neighbors of the new node. For an initial build of a large structure, this class
+ * instead collects all vectors first (see {@link #add(Tuple, RealVector)}), builds the complete graph in memory using
+ * the same algorithm and parameters as {@link Insert}, and only then writes all nodes in the order of their keys, using
+ * large transactions that do not read anything. The graph is built in parallel by inserting batches of vectors
+ * concurrently on the executor of the HNSW.
+ * <p>
+ * As all vectors are known up front, the centroid needed for RaBitQ encodings (see {@link Config#isUseRaBitQ()}) is
+ * computed exactly from all vectors rather than being sampled while inserting.
+ * <p>
+ * The structure must be empty when the load is started and must not be modified until the load has completed. The
+ * access info is written by the last transaction of the load, so searches see an empty structure until the
+ * complete graph has been written. All vectors are kept in memory until the load completes.
+ * <p>
+ * Use {@link HNSW#bulkLoad()} to create an instance of this class.
+ */
+@API(API.Status.EXPERIMENTAL)
+public class BulkLoad {
+    @Nonnull
+    private static final Logger logger = LoggerFactory.getLogger(BulkLoad.class);
+
+    /**
+     * Number of vectors that are inserted into the in-memory graph by one task.
+     */
+    private static final int BUILD_BATCH_SIZE = 1_000;
+
+    @Nonnull
+    private final Locator locator;
+    @Nonnull
+    private final ConcurrentMap<Tuple, RealVector> vectors;
+
+    /**
+     * This constructor initializes a new bulk load.
+     *
+     * @param locator the {@link Locator} where the graph data is stored, which config to use, which executor to use,
+     *        etc.
+     */
+    public BulkLoad(@Nonnull final Locator locator) {
+        this.locator = locator;
+        this.vectors = Maps.newConcurrentMap();
+    }
+
+    @Nonnull
+    public Locator getLocator() {
+        return locator;
+    }
+
+    @Nonnull
+    private Subspace getSubspace() {
+        return getLocator().getSubspace();
+    }
+
+    @Nonnull
+    private Executor getExecutor() {
+        return getLocator().getExecutor();
+    }
+
+    @Nonnull
+    private Config getConfig() {
+        return getLocator().getConfig();
+    }
+
+    @Nonnull
+    private OnReadListener getOnReadListener() {
+        return getLocator().getOnReadListener();
+    }
+
+    @Nonnull
+    private Primitives primitives() {
+        return getLocator().primitives();
+    }
+
+    /**
+     * Adds a vector to be loaded. This method can be called concurrently. As for {@link Insert}, adding a vector
+     * for a primary key that has already been added is ignored.
+     * @param primaryKey the primary key of the new node
+     * @param vector the vector of the new node
+     */
+    public void add(@Nonnull final Tuple primaryKey, @Nonnull final RealVector vector) {
+        Preconditions.checkArgument(vector.getNumDimensions() == getConfig().getNumDimensions(),
+                "vector has the wrong number of dimensions");
+        vectors.putIfAbsent(primaryKey, vector);
+    }
+
+    /**
+     * Returns the number of distinct vectors added so far.
+     * @return the number of vectors to be loaded
+     */
+    public int size() {
+        return vectors.size();
+    }
+
+    /**
+     * Builds the graph of all vectors that have been added and writes it to the database.
+     *
+     * @param database the database to write to
+     * @param maxNodesPerTransaction the maximum number of nodes written by one transaction; a node that is part of
+     *        several layers is counted once per layer
+     * @return a {@link CompletableFuture} that completes when the access info has been written
+     * @throws IllegalStateException (via the future) if the structure is not empty
+     */
+    @Nonnull
+    public CompletableFuture<Void> load(@Nonnull final Database database, final int maxNodesPerTransaction) {
+        Preconditions.checkArgument(maxNodesPerTransaction > 0, "maximum number of nodes per transaction must be positive");
+        return database.runAsync(transaction ->
+                        StorageAdapter.fetchAccessInfo(getConfig(), transaction, getSubspace(), getOnReadListener()))
+                .thenCompose(existingAccessInfo -> {
+                    if (existingAccessInfo != null) {
+                        throw new IllegalStateException("bulk load requires an empty structure");
+                    }
+                    if (vectors.isEmpty()) {
+                        return AsyncUtil.DONE;
+                    }
+
+                    final List<Tuple> primaryKeys = ImmutableList.sortedCopyOf(vectors.keySet());
+                    final SplittableRandom random = Primitives.random(primaryKeys.get(0));
+                    final Config config = getConfig();
+                    final Primitives primitives = primitives();
+
+                    final long rotatorSeed;
+                    final RealVector negatedCentroid;
+                    final StorageTransform storageTransform;
+                    if (!config.isUseRaBitQ()) {
+                        rotatorSeed = -1L;
+                        negatedCentroid = null;
+                        storageTransform = StorageTransform.identity();
+                    } else if (!config.getMetric().satisfiesPreservedUnderTranslation()) {
+                        // same as the first insert, RaBitQ is used immediately under an identity translation
+                        rotatorSeed = random.nextLong();
+                        negatedCentroid = DoubleRealVector.zeroVector(config.getNumDimensions());
+                        storageTransform = primitives.storageTransform(rotatorSeed, null,
+                                primitives.isMetricNeedsNormalizedVectors());
+                    } else {
+                        rotatorSeed = random.nextLong();
+                        final FhtKacRotator rotator = new FhtKacRotator(rotatorSeed, config.getNumDimensions(), 10);
+                        negatedCentroid = rotator.apply(negatedMean(vectors.values()));
+                        storageTransform = primitives.storageTransform(rotatorSeed, negatedCentroid,
+                                primitives.isMetricNeedsNormalizedVectors());
+                    }
+
+                    final ImmutableList.Builder<BulkNode> bulkNodesBuilder = ImmutableList.builder();
+                    for (final Tuple primaryKey : primaryKeys) {
+                        bulkNodesBuilder.add(new BulkNode(primaryKey,
+                                storageTransform.transform(vectors.get(primaryKey)), primitives.topLayer(primaryKey)));
+                    }
+                    final List<BulkNode> bulkNodes = bulkNodesBuilder.build();
+
+                    return buildGraph(bulkNodes)
+                            .thenCompose(entryNode -> {
+                                final AccessInfo accessInfo =
+                                        new AccessInfo(new EntryNodeReference(entryNode.getPrimaryKey(),
+                                                entryNode.getVector(), entryNode.getTopLayer()),
+                                                rotatorSeed, negatedCentroid);
+                                return writeGraph(database, maxNodesPerTransaction, bulkNodes, accessInfo);
+                            });
+                });
+    }
+
+    @Nonnull
+    private static RealVector negatedMean(@Nonnull final Collection<RealVector> vectors) {
+        double[] sum = null;
+        for (final RealVector vector : vectors) {
+            if (sum == null) {
+                sum = new double[vector.getNumDimensions()];
+            }
+            for (int i = 0; i < sum.length; i++) {
+                sum[i] += vector.getComponent(i);
+            }
+        }
+        return new DoubleRealVector(Preconditions.checkNotNull(sum)).multiply(-1.0d / vectors.size());
+    }
+
+    /**
+     * Builds the graph in memory. The first batch of nodes is inserted by a single task in order to establish the
+     * upper layers, all other batches are then inserted concurrently.
+     * @param bulkNodes all nodes
+     * @return a future containing the entry node of the graph
+     */
+    @Nonnull
+    private CompletableFuture<BulkNode> buildGraph(@Nonnull final List<BulkNode> bulkNodes) {
+        final Estimator estimator = Quantizer.noOpQuantizer(getConfig().getMetric()).estimator();
+        final AtomicReference<BulkNode> entryNodeAtomic = new AtomicReference<>(bulkNodes.get(0));
+        final int firstBatchEnd = Math.min(BUILD_BATCH_SIZE, bulkNodes.size());
+
+        return CompletableFuture.runAsync(() -> {
+            for (final BulkNode bulkNode : bulkNodes.subList(1, firstBatchEnd)) {
+                insert(estimator, entryNodeAtomic, bulkNode);
+            }
+        }, getExecutor()).thenCompose(ignored -> {
+            final List<CompletableFuture<Void>> batchFutures = Lists.newArrayList();
+            for (int start = firstBatchEnd; start < bulkNodes.size(); start += BUILD_BATCH_SIZE) {
+                final List<BulkNode> batch = bulkNodes.subList(start, Math.min(start + BUILD_BATCH_SIZE, bulkNodes.size()));
+                batchFutures.add(CompletableFuture.runAsync(() -> {
+                    for (final BulkNode bulkNode : batch) {
+                        insert(estimator, entryNodeAtomic, bulkNode);
+                    }
+                }, getExecutor()));
+            }
+            return AsyncUtil.whenAll(batchFutures);
+        }).thenApply(ignored -> {
+            if (logger.isDebugEnabled()) {
+                logger.debug("built graph in memory with numNodes={}, entryLayer={}", bulkNodes.size(),
+                        entryNodeAtomic.get().getTopLayer());
+            }
+            return entryNodeAtomic.get();
+        });
+    }
+
+    /**
+     * Inserts a node into the in-memory graph. This follows the same steps as {@link Insert}: a greedy search through
+     * the layers above the layer of the new node, then for each layer of the new node a search for
+     * {@link Config#getEfConstruction()} candidates, the selection of {@link Config#getM()} neighbors among them and
+     * the linking (and if necessary pruning) of these neighbors.
+     * @param estimator the estimator to use
+     * @param entryNodeAtomic the current entry node
+     * @param newNode the node to insert
+     */
+    private void insert(@Nonnull final Estimator estimator,
+                        @Nonnull final AtomicReference<BulkNode> entryNodeAtomic,
+                        @Nonnull final BulkNode newNode) {
+        final Config config = getConfig();
+        final BulkNode entryNode = entryNodeAtomic.get();
+        final int lMax = entryNode.getTopLayer();
+
+        NodeAndDistance nearest = new NodeAndDistance(entryNode, distance(estimator, newNode, entryNode));
+        for (int layer = lMax; layer > newNode.getTopLayer(); layer--) {
+            nearest = greedySearchLayer(estimator, newNode, nearest, layer);
+        }
+
+        List<NodeAndDistance> entryPoints = ImmutableList.of(nearest);
+        for (int layer = Math.min(lMax, newNode.getTopLayer()); layer >= 0; layer--) {
+            final List<NodeAndDistance> searchResult =
+                    searchLayer(estimator, newNode, entryPoints, layer, config.getEfConstruction());
+            final List<NodeAndDistance> selectedNeighbors =
+                    selectNeighbors(estimator, extendCandidatesIfNecessary(estimator, newNode, searchResult, layer),
+                            config.getM());
+            final int currentMMax = layer == 0 ? config.getMMax0() : config.getMMax();
+            // Other tasks may already have found the new node through a higher layer and linked it to their nodes
+            // in this one, so these links are merged with the selected ones rather than replaced by them.
+            newNode.mergeNeighbors(layer, NodeAndDistance.nodes(selectedNeighbors), currentMMax,
+                    neighbors -> pruneNeighbors(estimator, newNode, neighbors, currentMMax));
+            for (final NodeAndDistance selectedNeighbor : selectedNeighbors) {
+                final BulkNode neighborNode = selectedNeighbor.getNode();
+                neighborNode.addNeighbor(layer, newNode, currentMMax,
+                        neighbors -> pruneNeighbors(estimator, neighborNode, neighbors, currentMMax));
+            }
+            entryPoints = searchResult;
+        }
+
+        if (newNode.getTopLayer() > lMax) {
+            entryNodeAtomic.accumulateAndGet(newNode,
+                    (current, candidate) -> candidate.getTopLayer() > current.getTopLayer() ? candidate : current);
+        }
+    }
+
+    @Nonnull
+    private NodeAndDistance greedySearchLayer(@Nonnull final Estimator estimator,
+                                              @Nonnull final BulkNode queryNode,
+                                              @Nonnull final NodeAndDistance start,
+                                              final int layer) {
+        NodeAndDistance nearest = start;
+        boolean improved = true;
+        while (improved) {
+            improved = false;
+            for (final BulkNode neighbor : nearest.getNode().getNeighbors(layer)) {
+                final double distance = distance(estimator, queryNode, neighbor);
+                if (distance < nearest.getDistance()) {
+                    nearest = new NodeAndDistance(neighbor, distance);
+                    improved = true;
+                }
+            }
+        }
+        return nearest;
+    }
+
+    /**
+     * Searches a layer for the nodes nearest to a query node.
+     * @param estimator the estimator to use
+     * @param queryNode the node to search the neighbors of
+     * @param entryPoints the nodes to start from
+     * @param layer the layer
+     * @param efSearch the number of nodes to find
+     * @return up to {@code efSearch} nodes sorted by ascending distance to the query node
+     */
+    @Nonnull
+    private List<NodeAndDistance> searchLayer(@Nonnull final Estimator estimator,
+                                              @Nonnull final BulkNode queryNode,
+                                              @Nonnull final List<NodeAndDistance> entryPoints,
+                                              final int layer,
+                                              final int efSearch) {
+        final Set<BulkNode> visited = Sets.newIdentityHashSet();
+        visited.add(queryNode);
+        final Queue<NodeAndDistance> candidates = new PriorityQueue<>(NodeAndDistance.COMPARATOR);
+        final Queue<NodeAndDistance> nearest = new PriorityQueue<>(NodeAndDistance.COMPARATOR.reversed());
+        for (final NodeAndDistance entryPoint : entryPoints) {
+            if (visited.add(entryPoint.getNode())) {
+                candidates.add(entryPoint);
+                nearest.add(entryPoint);
+                if (nearest.size() > efSearch) {
+                    nearest.poll();
+                }
+            }
+        }
+
+        while (!candidates.isEmpty()) {
+            final NodeAndDistance candidate = candidates.poll();
+            if (nearest.size() >= efSearch && candidate.getDistance() > nearest.peek().getDistance()) {
+                break;
+            }
+            for (final BulkNode neighbor : candidate.getNode().getNeighbors(layer)) {
+                if (!visited.add(neighbor)) {
+                    continue;
+                }
+                final double distance = distance(estimator, queryNode, neighbor);
+                if (nearest.size() < efSearch || distance < nearest.peek().getDistance()) {
+                    final NodeAndDistance neighborAndDistance = new NodeAndDistance(neighbor, distance);
+                    candidates.add(neighborAndDistance);
+                    nearest.add(neighborAndDistance);
+                    if (nearest.size() > efSearch) {
+                        nearest.poll();
+                    }
+                }
+            }
+        }
+
+        final List<NodeAndDistance> result = Lists.newArrayList(nearest);
+        result.sort(NodeAndDistance.COMPARATOR);
+        return result;
+    }
+
+    @Nonnull
+    private List<NodeAndDistance> extendCandidatesIfNecessary(@Nonnull final Estimator estimator,
+                                                              @Nonnull final BulkNode queryNode,
+                                                              @Nonnull final List<NodeAndDistance> candidates,
+                                                              final int layer) {
+        if (!getConfig().isExtendCandidates()) {
+            return candidates;
+        }
+        final Set<BulkNode> seen = Sets.newIdentityHashSet();
+        seen.add(queryNode);
+        final List<NodeAndDistance> extendedCandidates = Lists.newArrayList(candidates);
+        for (final NodeAndDistance candidate : candidates) {
+            seen.add(candidate.getNode());
+        }
+        for (final NodeAndDistance candidate : candidates) {
+            for (final BulkNode neighbor : candidate.getNode().getNeighbors(layer)) {
+                if (seen.add(neighbor)) {
+                    extendedCandidates.add(new NodeAndDistance(neighbor, distance(estimator, queryNode, neighbor)));
+                }
+            }
+        }
+        return extendedCandidates;
+    }
+
+    /**
+     * Selects neighbors among candidates using the same heuristic as
+     * {@link Primitives#selectCandidates}: a candidate is only selected if it is closer to the query node than to
+     * any of the candidates that have already been selected.
+     * @param estimator the estimator to use
+     * @param candidates the candidates including their distances to the query node
+     * @param m the maximum number of neighbors to select
+     * @return the selected neighbors
+     */
+    @Nonnull
+    private List<NodeAndDistance> selectNeighbors(@Nonnull final Estimator estimator,
+                                                  @Nonnull final Collection<NodeAndDistance> candidates,
+                                                  final int m) {
+        final boolean useHeuristic = getConfig().getMetric().satisfiesTriangleInequality();
+        final Queue<NodeAndDistance> candidatesQueue = new PriorityQueue<>(NodeAndDistance.COMPARATOR);
+        candidatesQueue.addAll(candidates);
+        final Queue<NodeAndDistance> discardedCandidates =
+                getConfig().isKeepPrunedConnections() ? new PriorityQueue<>(NodeAndDistance.COMPARATOR) : null;
+        final List<NodeAndDistance> selected = Lists.newArrayListWithExpectedSize(m);
+
+        while (!candidatesQueue.isEmpty() && selected.size() < m) {
+            final NodeAndDistance nearestCandidate = candidatesQueue.poll();
+            boolean shouldSelect = true;
+            if (useHeuristic) {
+                for (final NodeAndDistance alreadySelected : selected) {
+                    if (distance(estimator, nearestCandidate.getNode(), alreadySelected.getNode()) <
+                            nearestCandidate.getDistance()) {
+                        shouldSelect = false;
+                        break;
+                    }
+                }
+            }
+            if (shouldSelect) {
+                selected.add(nearestCandidate);
+            } else if (discardedCandidates != null) {
+                discardedCandidates.add(nearestCandidate);
+            }
+        }
+
+        if (discardedCandidates != null) {
+            while (!discardedCandidates.isEmpty() && selected.size() < m) {
+                selected.add(discardedCandidates.poll());
+            }
+        }
+        return selected;
+    }
+
+    @Nonnull
+    private List<BulkNode> pruneNeighbors(@Nonnull final Estimator estimator,
+                                          @Nonnull final BulkNode node,
+                                          @Nonnull final List<BulkNode> neighbors,
+                                          final int mMax) {
+        final List<NodeAndDistance> candidates = Lists.newArrayListWithExpectedSize(neighbors.size());
+        for (final BulkNode neighbor : neighbors) {
+            candidates.add(new NodeAndDistance(neighbor, distance(estimator, node, neighbor)));
+        }
+        return NodeAndDistance.nodes(selectNeighbors(estimator, candidates, mMax));
+    }
+
+    private static double distance(@Nonnull final Estimator estimator,
+                                   @Nonnull final BulkNode node1,
+                                   @Nonnull final BulkNode node2) {
+        return estimator.distance(node1.getVector(), node2.getVector());
+    }
+
+    /**
+     * Writes all nodes layer by layer and in the order of their primary keys, that is in the order of their keys in
+     * the database, followed by the access info.
+     * @param database the database
+     * @param maxNodesPerTransaction the maximum number of nodes to write in one transaction
+     * @param bulkNodes all nodes, sorted by their primary keys
+     * @param accessInfo the access info to write last
+     * @return a future that completes when all data has been written
+     */
+    @Nonnull
+    private CompletableFuture<Void> writeGraph(@Nonnull final Database database,
+                                               final int maxNodesPerTransaction,
+                                               @Nonnull final List<BulkNode> bulkNodes,
+                                               @Nonnull final AccessInfo accessInfo) {
+        final Primitives primitives = primitives();
+        final Quantizer quantizer = primitives.quantizer(accessInfo);
+        final int topLayer = accessInfo.getEntryNodeReference().getLayer();
+
+        final List<LayerAndNode> toBeWritten = Lists.newArrayList();
+        for (int layer = 0; layer <= topLayer; layer++) {
+            for (final BulkNode bulkNode : bulkNodes) {
+                if (bulkNode.getTopLayer() >= layer) {
+                    toBeWritten.add(new LayerAndNode(layer, bulkNode));
+                }
+            }
+        }
+
+        final Iterator<List<LayerAndNode>> batches = Lists.partition(toBeWritten, maxNodesPerTransaction).iterator();
+        return AsyncUtil.whileTrue(() -> {
+            if (!batches.hasNext()) {
+                return AsyncUtil.READY_FALSE;
+            }
+            final List<LayerAndNode> batch = batches.next();
+            return database.runAsync(transaction -> {
+                for (final LayerAndNode layerAndNode : batch) {
+                    final int layer = layerAndNode.getLayer();
+                    writeNode(primitives.storageAdapterForLayer(layer), transaction, quantizer, layer,
+                            layerAndNode.getNode());
+                }
+                return AsyncUtil.DONE;
+            }).thenApply(ignored -> true);
+        }, getExecutor()).thenCompose(ignored -> database.runAsync(transaction -> {
+            StorageAdapter.writeAccessInfo(transaction, getSubspace(), accessInfo, getLocator().getOnWriteListener());
+            if (logger.isDebugEnabled()) {
+                logger.debug("bulk loaded numNodes={}, numNodesOnAllLayers={}, entryKey={}, entryLayer={}",
+                        bulkNodes.size(), toBeWritten.size(), accessInfo.getEntryNodeReference().getPrimaryKey(),
+                        topLayer);
+            }
+            return AsyncUtil.DONE;
+        }));
+    }
+
+    private static <N extends NodeReference> void writeNode(@Nonnull final StorageAdapter<N> storageAdapter,
+                                                            @Nonnull final Transaction transaction,
+                                                            @Nonnull final Quantizer quantizer,
+                                                            final int layer,
+                                                            @Nonnull final BulkNode bulkNode) {
+        final List<NodeReferenceWithVector> neighborReferences = Lists.newArrayList();
+        for (final BulkNode neighbor : bulkNode.getNeighbors(layer)) {
+            neighborReferences.add(new NodeReferenceWithVector(neighbor.getPrimaryKey(), neighbor.getVector()));
+        }
+        final AbstractNode<N> node =
+                storageAdapter.getNodeFactory().create(bulkNode.getPrimaryKey(), bulkNode.getVector(),
+                        neighborReferences);
+        final NeighborsChangeSet<N> changeSet =
+                new InsertNeighborsChangeSet<>(new BaseNeighborsChangeSet<>(ImmutableList.of()), node.getNeighbors());
+        storageAdapter.writeNode(transaction, quantizer, layer, node, changeSet);
+    }
+
+    /**
+     * A node of the in-memory graph. The neighbors of each layer are guarded by the node's monitor.
+     */
+    private static class BulkNode {
+        @Nonnull
+        private final Tuple primaryKey;
+        @Nonnull
+        private final Transformed<RealVector> vector;
+        private final int topLayer;
+        @Nonnull
+        private final List<List<BulkNode>> neighborsByLayer;
+
+        BulkNode(@Nonnull final Tuple primaryKey, @Nonnull final Transformed<RealVector> vector, final int topLayer) {
+            this.primaryKey = primaryKey;
+            this.vector = vector;
+            this.topLayer = topLayer;
+            this.neighborsByLayer = Lists.newArrayListWithCapacity(topLayer + 1);
+            for (int layer = 0; layer <= topLayer; layer++) {
+                neighborsByLayer.add(ImmutableList.of());
+            }
+        }
+
+        @Nonnull
+        Tuple getPrimaryKey() {
+            return primaryKey;
+        }
+
+        @Nonnull
+        Transformed<RealVector> getVector() {
+            return vector;
+        }
+
+        int getTopLayer() {
+            return topLayer;
+        }
+
+        @Nonnull
+        synchronized List<BulkNode> getNeighbors(final int layer) {
+            return layer <= topLayer ? neighborsByLayer.get(layer) : ImmutableList.of();
+        }
+
+        synchronized void mergeNeighbors(final int layer, @Nonnull final List<BulkNode> newNeighbors, final int mMax,
+                                         @Nonnull final UnaryOperator<List<BulkNode>> pruneFunction) {
+            final Set<BulkNode> neighborsSet = Sets.newLinkedHashSet(newNeighbors);
+            neighborsSet.addAll(neighborsByLayer.get(layer));
+            final List<BulkNode> neighbors = ImmutableList.copyOf(neighborsSet);
+            neighborsByLayer.set(layer,
+                    neighbors.size() > mMax ? ImmutableList.copyOf(pruneFunction.apply(neighbors)) : neighbors);
+        }
+
+        synchronized void addNeighbor(final int layer, @Nonnull final BulkNode neighbor, final int mMax,
+                                      @Nonnull final UnaryOperator<List<BulkNode>> pruneFunction) {
+            final List<BulkNode> neighbors =
+                    ImmutableList.<BulkNode>builder().addAll(neighborsByLayer.get(layer)).add(neighbor).build();
+            neighborsByLayer.set(layer,
+                    neighbors.size() > mMax ? ImmutableList.copyOf(pruneFunction.apply(neighbors)) : neighbors);
+        }
+    }
+
+    private static class NodeAndDistance {
+        @Nonnull
+        private static final Comparator<NodeAndDistance> COMPARATOR =
+                Comparator.comparingDouble(NodeAndDistance::getDistance);
+
+        @Nonnull
+        private final BulkNode node;
+        private final double distance;
+
+        NodeAndDistance(@Nonnull final BulkNode node, final double distance) {
+            this.node = node;
+            this.distance = distance;
+        }
+
+        @Nonnull
+        BulkNode getNode() {
+            return node;
+        }
+
+        double getDistance() {
+            return distance;
+        }
+
+        @Nonnull
+        static List<BulkNode> nodes(@Nonnull final List<NodeAndDistance> nodeAndDistances) {
+            final ImmutableList.Builder<BulkNode> nodesBuilder = ImmutableList.builder();
+            for (final NodeAndDistance nodeAndDistance : nodeAndDistances) {
+                nodesBuilder.add(nodeAndDistance.getNode());
+            }
+            return nodesBuilder.build();
+        }
+    }
+
+    private static class LayerAndNode {
+        private final int layer;
+        @Nonnull
+        private final BulkNode node;
+
+        LayerAndNode(final int layer, @Nonnull final BulkNode node) {
+            this.layer = layer;
+            this.node = node;
+        }
+
+        int getLayer() {
+            return layer;
+        }
+
+        @Nonnull
+        BulkNode getNode() {
+            return node;
+        }
+    }
+}
@@ -36,6 +36,7 @@ import java.util.List;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Executor;
 import java.util.function.Consumer;
+import java.util.function.Predicate;
 
 /**
  * An implementation of the Hierarchical Navigable Small World (HNSW) algorithm for
@@ -99,7 +100,31 @@ public class HNSW {
                 @Nonnull final Config config,
                 @Nonnull final OnWriteListener onWriteListener,
                 @Nonnull final OnReadListener onReadListener) {
-        this.locator = new Locator(subspace, executor, config, onWriteListener, onReadListener);
+        this(subspace, executor, config, onWriteListener, onReadListener, null);
+    }
+
+    /**
+     * Constructs a new HNSW graph instance whose searches use a cache of the nodes of the upper layers.
+     * <p>
+     * The {@link UpperLayerCache} is meant to be kept across transactions and to be passed to every {@code HNSW}
+     * created for the same graph. Searches then only read the upper layers version and the access info in addition
+     * to the nodes of layer {@code 0}, as long as the upper layers are not modified.
+     *
+     * @param subspace the {@link Subspace} where the graph data is stored.
+     * @param executor the {@link Executor} service to use for concurrent operations.
+     * @param config the {@link Config} object containing HNSW algorithm parameters.
+     * @param onWriteListener a listener to be notified of write events on the graph.
+     * @param onReadListener a listener to be notified of read events on the graph.
+     * @param upperLayerCache a cache of the nodes of the upper layers of this graph, or {@code null} if searches
+     *        should always read all layers from the database
+     */
+    public HNSW(@Nonnull final Subspace subspace,
+                @Nonnull final Executor executor,
+                @Nonnull final Config config,
+                @Nonnull final OnWriteListener onWriteListener,
+                @Nonnull final OnReadListener onReadListener,
+                @Nullable final UpperLayerCache upperLayerCache) {
+        this.locator = new Locator(subspace, executor, config, onWriteListener, onReadListener, upperLayerCache);
     }
 
     @Nonnull
@@ -192,6 +217,39 @@ public class HNSW {
         return search().kNearestNeighborsSearch(readTransaction, k, efSearch, includeVectors, queryVector);
     }
 
+    /**
+     * Performs a search for the k-nearest neighbors for a given query vector among only those nodes whose primary
+     * keys satisfy a given filter. The filter is applied while the base layer is traversed rather than to the final
+     * result, i.e. nodes not satisfying the filter are still used to navigate the graph but are never returned.
+     * If the search finds fewer than {@code k} qualifying nodes, the size of the dynamic candidate list is
+     * increased, up to {@code maxEfSearch}.
+     *
+     * @param readTransaction the transaction to use for reading from the database
+     * @param k the number of nearest neighbors to return
+     * @param efSearch the initial size of the dynamic candidate list for the search
+     * @param maxEfSearch the maximum size the dynamic candidate list may grow to if too few qualifying nodes
+     *        are found
+     * @param includeVectors indicator if the caller would like the search to also include vectors in the result set
+     * @param queryVector the vector to find the nearest neighbors for
+     * @param filter a predicate on primary keys that all returned nodes must satisfy
+     *
+     * @return a {@link CompletableFuture} that will complete with a list of at most {@code k} nearest neighbors
+     *         satisfying {@code filter}, sorted by distance in ascending order.
+     */
+    @SuppressWarnings("checkstyle:MethodName") // method name introduced by paper
+    @Nonnull
+    public CompletableFuture<List<? extends ResultEntry>>
+            kNearestNeighborsSearch(@Nonnull final ReadTransaction readTransaction,
+                                    final int k,
+                                    final int efSearch,
+                                    final int maxEfSearch,
+                                    final boolean includeVectors,
+                                    @Nonnull final RealVector queryVector,
+                                    @Nonnull final Predicate<Tuple> filter) {
+        return search().kNearestNeighborsSearch(readTransaction, k, efSearch, maxEfSearch, includeVectors,
+                queryVector, filter);
+    }
+
     /**
      * Performs a search for the k-nearest neighbors of a ring around a given query vector at a given radius.
      *
@@ -243,6 +301,18 @@ public class HNSW {
         return insert().insert(transaction, newPrimaryKey, newVector);
     }
 
+    /**
+     * Starts a bulk load of this (empty) HNSW graph. Vectors are added to the returned {@link BulkLoad}, which then
+     * builds the graph in memory and writes it using transactions that only write, which is considerably faster than
+     * inserting the vectors one by one using {@link #insert(Transaction, Tuple, RealVector)}.
+     *
+     * @return a new {@link BulkLoad} for this graph
+     */
+    @Nonnull
+    public BulkLoad bulkLoad() {
+        return new BulkLoad(getLocator());
+    }
+
     /**
      * Deletes a record using its associated primary key from the HNSW graph.
      * <p>
@@ -30,6 +30,7 @@ import com.apple.foundationdb.linear.RealVector;
 import com.apple.foundationdb.linear.Transformed;
 import com.apple.foundationdb.subspace.Subspace;
 import com.apple.foundationdb.tuple.Tuple;
+import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Maps;
@@ -49,8 +50,10 @@ import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.IntUnaryOperator;
+import java.util.function.Predicate;
 import java.util.function.ToDoubleFunction;
 import java.util.stream.Collectors;
 
@@ -157,6 +160,50 @@ public class Search {
                                 includeVectors));
     }
 
+    /**
+     * Performs a search for the k-nearest neighbors for a given query vector among only those nodes whose primary
+     * keys satisfy a given filter.
+     * <p>
+     * The filter is pushed into the traversal of the base layer: nodes not satisfying it are still used to navigate
+     * the graph (otherwise a selective filter would disconnect it), but they never take up a slot among the results.
+     * If the beam has been exhausted before {@code k} qualifying nodes have been found, the size of the dynamic
+     * candidate list is doubled, up to {@code maxEfSearch}, and the traversal continues from where it stopped.
+     *
+     * @param readTransaction the transaction to use for reading from the database
+     * @param k the number of nearest neighbors to return
+     * @param efSearch the initial size of the dynamic candidate list for the search
+     * @param maxEfSearch the maximum size the dynamic candidate list may grow to if too few qualifying nodes
+     *        are found
+     * @param includeVectors indicator if the caller would like the search to also include vectors in the result set
+     * @param queryVector the vector to find the nearest neighbors for
+     * @param filter a predicate on primary keys that all returned nodes must satisfy
+     *
+     * @return a {@link CompletableFuture} that will complete with a list of at most {@code k} nearest neighbors
+     *         satisfying {@code filter}, sorted by distance in ascending order.
+     */
+    @SuppressWarnings("checkstyle:MethodName") // method name introduced by paper
+    @Nonnull
+    public CompletableFuture<List<? extends ResultEntry>>
+            kNearestNeighborsSearch(@Nonnull final ReadTransaction readTransaction,
+                                    final int k,
+                                    final int efSearch,
+                                    final int maxEfSearch,
+                                    final boolean includeVectors,
+                                    @Nonnull final RealVector queryVector,
+                                    @Nonnull final Predicate<Tuple> filter) {
+        Preconditions.checkArgument(maxEfSearch >= efSearch, "maxEfSearch must not be smaller than efSearch");
+        return search(readTransaction, queryVector,
+                layer -> layer > 0 ? 1 : efSearch,
+                Search::distanceToTargetVector,
+                (storageAdapter, storageTransform, entryNodeReferences, objectiveFunction, nodeCache) ->
+                        filteredBeamSearchLayer(storageAdapter, readTransaction, storageTransform,
+                                entryNodeReferences, efSearch, maxEfSearch, k, objectiveFunction, filter, nodeCache))
+                .thenApply(searchResult ->
+                        postProcessSearchResult(searchResult.getStorageTransform(), k,
+                                NodeReferenceAndNode.references(searchResult.getNearestReferenceAndNodes()),
+                                includeVectors));
+    }
+
     /**
      * Performs a search for the k-nearest neighbors of a ring around a given query vector at a given radius.
      *
@@ -218,6 +265,23 @@ public class Search {
                                            @Nonnull final RealVector queryVector,
                                            @Nonnull final IntUnaryOperator efSearchFunction,
                                            @Nonnull final ObjectiveFunctionCreator objectiveFunctionCreator) {
+        return search(readTransaction, queryVector, efSearchFunction, objectiveFunctionCreator,
+                (storageAdapter, storageTransform, entryNodeReferences, objectiveFunction, nodeCache) ->
+                        beamSearchLayer(storageAdapter, readTransaction, storageTransform, entryNodeReferences, 0,
+                                efSearchFunction.applyAsInt(0), objectiveFunction, nodeCache));
+    }
+
+    @Nonnull
+    private CompletableFuture<SearchResult> search(@Nonnull final ReadTransaction readTransaction,
+                                                   @Nonnull final RealVector queryVector,
+                                                   @Nonnull final IntUnaryOperator efSearchFunction,
+                                                   @Nonnull final ObjectiveFunctionCreator objectiveFunctionCreator,
+                                                   @Nonnull final BaseLayerSearch baseLayerSearch) {
+        // the upper layers version is only needed to validate cached nodes; read it alongside the access info
+        final CompletableFuture<Long> upperLayersVersionFuture =
+                getLocator().getUpperLayerCache() == null
+                ? CompletableFuture.completedFuture(null)
+                : StorageAdapter.fetchUpperLayersVersion(readTransaction, getSubspace(), getOnReadListener());
         return StorageAdapter.fetchAccessInfo(getConfig(), readTransaction, getSubspace(), getOnReadListener())
                 .thenCompose(accessInfo -> {
                     if (accessInfo == null) {
@@ -241,22 +305,23 @@ public class Search {
                                     objectiveFunction.applyAsDouble(entryNodeReference.getVector())));
 
                     final int topLayer = entryNodeReference.getLayer();
-                    return forLoop(topLayer, entryState,
-                            layer -> layer > 0,
-                            layer -> layer - 1,
-                            (layer, previousNodeReferences) -> {
-                                final int efSearchForLayer = efSearchFunction.applyAsInt(layer);
-                                final StorageAdapter<?> storageAdapter = primitives.storageAdapterForLayer(layer);
-                                return searchLayer(storageAdapter, readTransaction, storageTransform,
-                                        previousNodeReferences, layer, efSearchForLayer, objectiveFunction);
-                            }, getExecutor())
+                    return upperLayersVersionFuture.thenCompose(upperLayersVersion ->
+                            forLoop(topLayer, entryState,
+                                    layer -> layer > 0,
+                                    layer -> layer - 1,
+                                    (layer, previousNodeReferences) -> {
+                                        final int efSearchForLayer = efSearchFunction.applyAsInt(layer);
+                                        final StorageAdapter<?> storageAdapter = primitives.storageAdapterForLayer(layer);
+                                        return searchLayer(storageAdapter, readTransaction, storageTransform,
+                                                previousNodeReferences, layer, efSearchForLayer, objectiveFunction,
+                                                upperLayersVersion);
+                                    }, getExecutor()))
                             .thenCompose(previousNodeReferences -> {
-                                final int efSearchForLayer = efSearchFunction.applyAsInt(0);
                                 final CompactStorageAdapter storageAdapter =
                                         primitives.storageAdapterForLayer(0).asCompactStorageAdapter();
                                 final ConcurrentMap<Tuple, AbstractNode<NodeReference>> nodeCache = Maps.newConcurrentMap();
-                                return beamSearchLayer(storageAdapter, readTransaction, storageTransform,
-                                        previousNodeReferences, 0, efSearchForLayer, objectiveFunction, nodeCache)
+                                return baseLayerSearch.search(storageAdapter, storageTransform,
+                                                previousNodeReferences, objectiveFunction, nodeCache)
                                         .thenApply(nearestNodeReferenceAndNodes ->
                                                 new SearchResult(accessInfo, storageTransform,
                                                         nearestNodeReferenceAndNodes, nodeCache));
@@ -272,19 +337,38 @@ public class Search {
                         @Nonnull final List<NodeReferenceWithDistance> nodeReferenceWithDistances,
                         final int layer,
                         final int efSearch,
-                        @Nonnull final ToDoubleFunction<Transformed<RealVector>> objectiveFunction) {
+                        @Nonnull final ToDoubleFunction<Transformed<RealVector>> objectiveFunction,
+                        @Nullable final Long upperLayersVersion) {
+        final Map<Tuple, AbstractNode<N>> nodeCache = upperLayerNodeCache(upperLayersVersion, layer);
         if (efSearch == 1 && nodeReferenceWithDistances.size() == 1) {
             return greedySearchLayer(storageAdapter, readTransaction, storageTransform,
                     Iterables.getOnlyElement(nodeReferenceWithDistances),
-                    layer, objectiveFunction).thenApply(ImmutableList::of);
+                    layer, objectiveFunction, nodeCache).thenApply(ImmutableList::of);
         } else {
             return beamSearchLayer(storageAdapter, readTransaction, storageTransform,
-                    nodeReferenceWithDistances, layer, efSearch, objectiveFunction,
-                    Maps.newConcurrentMap())
+                    nodeReferenceWithDistances, layer, efSearch, objectiveFunction, nodeCache)
                     .thenApply(NodeReferenceAndNode::references);
         }
     }
 
+    /**
+     * Returns the node cache to use when searching an upper layer. That is the shared cache of the
+     * {@link UpperLayerCache} for the given version if there is one, or a new empty map otherwise.
+     * @param <N> the type of the node reference
+     * @param upperLayersVersion the upper layers version read by the search or {@code null} if there is none
+     * @param layer the layer to be searched
+     * @return a map from primary keys to nodes to be used as the node cache
+     */
+    @Nonnull
+    private <N extends NodeReference> Map<Tuple, AbstractNode<N>> upperLayerNodeCache(@Nullable final Long upperLayersVersion,
+                                                                                      final int layer) {
+        final UpperLayerCache upperLayerCache = getLocator().getUpperLayerCache();
+        if (upperLayerCache == null || upperLayersVersion == null) {
+            return Maps.newConcurrentMap();
+        }
+        return upperLayerCache.getNodeCache(upperLayersVersion, layer);
+    }
+
     @Nonnull
     private ImmutableList<ResultEntry> postProcessSearchResult(@Nonnull final StorageTransform storageTransform,
                                                                final int k,
@@ -334,13 +418,28 @@ public class Search {
                               @Nonnull final NodeReferenceWithDistance nodeReferenceWithDistance,
                               final int layer,
                               @Nonnull final ToDoubleFunction<Transformed<RealVector>> objectiveFunction) {
+        return greedySearchLayer(storageAdapter, readTransaction, storageTransform, nodeReferenceWithDistance,
+                layer, objectiveFunction, Maps.newConcurrentMap());
+    }
+
+    @Nonnull
+    @SuppressWarnings("unchecked")
+    private <N extends NodeReference> CompletableFuture<NodeReferenceWithDistance>
+            greedySearchLayer(@Nonnull final StorageAdapter<N> storageAdapter,
+                              @Nonnull final ReadTransaction readTransaction,
+                              @Nonnull final StorageTransform storageTransform,
+                              @Nonnull final NodeReferenceWithDistance nodeReferenceWithDistance,
+                              final int layer,
+                              @Nonnull final ToDoubleFunction<Transformed<RealVector>> objectiveFunction,
+                              @Nonnull final Map<Tuple, AbstractNode<N>> nodeCache) {
         if (storageAdapter.isInliningStorageAdapter()) {
+            // the storage adapter being an inlining storage adapter implies that N is NodeReferenceWithVector
             return greedySearchInliningLayer(storageAdapter.asInliningStorageAdapter(), readTransaction,
-                    storageTransform, nodeReferenceWithDistance, layer, objectiveFunction);
+                    storageTransform, nodeReferenceWithDistance, layer, objectiveFunction,
+                    (Map<Tuple, AbstractNode<NodeReferenceWithVector>>)(Map<Tuple, ?>)nodeCache);
         } else {
             return beamSearchLayer(storageAdapter, readTransaction, storageTransform,
-                    ImmutableList.of(nodeReferenceWithDistance), layer, 1, objectiveFunction,
-                    Maps.newConcurrentMap())
+                    ImmutableList.of(nodeReferenceWithDistance), layer, 1, objectiveFunction, nodeCache)
                     .thenApply(searchResult ->
                             Iterables.getOnlyElement(searchResult).getNodeReference());
         }
@@ -358,6 +457,7 @@ public class Search {
      *        the query vector
      * @param layer the zero-based index of the layer to search within
      * @param objectiveFunction the objective function that is to be minimized
+     * @param nodeCache the cache of the nodes of this layer, which may be shared with other searches
      * @return a {@link CompletableFuture} that, upon completion, will contain the closest node found on the layer,
      *         represented as a {@link NodeReferenceWithDistance}
      */
@@ -368,10 +468,10 @@ public class Search {
                                       @Nonnull final StorageTransform storageTransform,
                                       @Nonnull final NodeReferenceWithDistance nodeReferenceWithDistance,
                                       final int layer,
-                                      @Nonnull final ToDoubleFunction<Transformed<RealVector>> objectiveFunction) {
+                                      @Nonnull final ToDoubleFunction<Transformed<RealVector>> objectiveFunction,
+                                      @Nonnull final Map<Tuple, AbstractNode<NodeReferenceWithVector>> nodeCache) {
         final Primitives primitives = primitives();
         final NodeFactory<NodeReferenceWithVector> nodeFactory = storageAdapter.getNodeFactory();
-        final Map<Tuple, AbstractNode<NodeReferenceWithVector>> nodeCache = Maps.newHashMap();
         final Map<Tuple, AbstractNode<NodeReferenceWithVector>> updatedNodes = Maps.newHashMap();
 
         final AtomicReference<NodeReferenceWithDistance> nearestNodeReferenceAtomic =
@@ -587,6 +687,176 @@ public class Search {
                 });
     }
 
+    /**
+     * Searches the base layer of the graph for the nearest neighbors to a query vector that satisfy a filter on their
+     * primary keys.
+     * <p>
+     * This is a variant of {@link #beamSearchLayer} that maintains two bounded queues: the beam of nearest neighbors
+     * regardless of the filter, which steers the traversal and decides when it terminates, and the nearest neighbors
+     * satisfying the filter, which make up the result. When the beam is exhausted while fewer than {@code k}
+     * qualifying nodes have been found, the beam is widened by doubling its size (up to {@code maxEfSearch}) and the
+     * traversal continues, so that a selective filter costs more reads only when it has to. Nodes that were reached
+     * but were too far away to enter the narrower beam are kept aside and re-seed the widened beam, as they have
+     * already been visited and would otherwise never be reconsidered.
+     *
+     * @param storageAdapter The storage adapter for accessing node data of layer {@code 0}.
+     * @param readTransaction The transaction context for all database read operations.
+     * @param storageTransform an affine transformation operator that is used to transform the fetched vector into the
+     * storage space that is currently being used
+     * @param nodeReferences A collection of starting node references for the search in this layer, with their distances
+     * to the query vector already calculated.
+     * @param efSearch The initial size of the dynamic candidate list.
+     * @param maxEfSearch The maximum size the dynamic candidate list can be widened to.
+     * @param k The number of qualifying nodes the search tries to find.
+     * @param objectiveFunction the objective function that is to be minimized
+     * @param filter a predicate on primary keys that returned nodes must satisfy
+     * @param nodeCache A cache of nodes that have already been fetched from storage to avoid redundant I/O.
+     *
+     * @return A {@link CompletableFuture} that, upon completion, will contain a list of the best qualifying nodes
+     * found in this layer, paired with their full node data.
+     */
+    @Nonnull
+    private CompletableFuture<List<NodeReferenceAndNode<NodeReferenceWithDistance, NodeReference>>>
+            filteredBeamSearchLayer(@Nonnull final CompactStorageAdapter storageAdapter,
+                                    @Nonnull final ReadTransaction readTransaction,
+                                    @Nonnull final StorageTransform storageTransform,
+                                    @Nonnull final Collection<NodeReferenceWithDistance> nodeReferences,
+                                    final int efSearch,
+                                    final int maxEfSearch,
+                                    final int k,
+                                    @Nonnull final ToDoubleFunction<Transformed<RealVector>> objectiveFunction,
+                                    @Nonnull final Predicate<Tuple> filter,
+                                    @Nonnull final Map<Tuple, AbstractNode<NodeReference>> nodeCache) {
+        final Primitives primitives = primitives();
+
+        return primitives.fetchNeighborhoodReferences(storageAdapter, readTransaction, storageTransform, 0,
+                        nodeReferences, nodeCache)
+                .thenApply(refetchedNodeReferences -> {
+                    final ImmutableList.Builder<NodeReferenceWithDistance> nodeReferencesWithDistanceBuilder =
+                            ImmutableList.builder();
+                    for (final NodeReferenceWithVector refetchedNodeReference : refetchedNodeReferences) {
+                        nodeReferencesWithDistanceBuilder.add(new NodeReferenceWithDistance(refetchedNodeReference.getPrimaryKey(),
+                                refetchedNodeReference.getVector(),
+                                objectiveFunction.applyAsDouble(refetchedNodeReference.getVector())));
+                    }
+                    return nodeReferencesWithDistanceBuilder.build();
+                })
+                .thenCompose(refetchedNodeReferences -> {
+                    final AtomicInteger currentEfSearch = new AtomicInteger(efSearch);
+                    final Queue<NodeReferenceWithDistance> candidates =
+                            new PriorityQueue<>(getConfig().getM(), NodeReferenceWithDistance.comparator());
+                    candidates.addAll(refetchedNodeReferences);
+                    final Set<Tuple> visited = Sets.newConcurrentHashSet(NodeReference.primaryKeys(refetchedNodeReferences));
+                    final Queue<NodeReferenceWithDistance> nearestNeighbors =
+                            new PriorityQueue<>(efSearch + 1, NodeReferenceWithDistance.reversedComparator());
+                    nearestNeighbors.addAll(refetchedNodeReferences);
+                    final Queue<NodeReferenceWithDistance> nearestMatches =
+                            new PriorityQueue<>(efSearch + 1, NodeReferenceWithDistance.reversedComparator());
+                    // visited nodes that did not make it into the beam, nearest first
+                    final Queue<NodeReferenceWithDistance> passedOver =
+                            new PriorityQueue<>(NodeReferenceWithDistance.comparator());
+                    for (final NodeReferenceWithDistance refetchedNodeReference : refetchedNodeReferences) {
+                        offerMatch(nearestMatches, refetchedNodeReference, Math.max(k, efSearch), filter);
+                    }
+
+                    return AsyncUtil.whileTrue(() -> {
+                        if (candidates.isEmpty()) {
+                            return AsyncUtil.READY_FALSE;
+                        }
+
+                        final NodeReferenceWithDistance candidate = candidates.poll();
+                        final NodeReferenceWithDistance furthestNeighbor = Objects.requireNonNull(nearestNeighbors.peek());
+
+                        if (candidate.getDistance() > furthestNeighbor.getDistance() &&
+                                nearestNeighbors.size() >= currentEfSearch.get()) {
+                            if (nearestMatches.size() >= k || currentEfSearch.get() >= maxEfSearch) {
+                                return AsyncUtil.READY_FALSE;
+                            }
+                            // too few qualifying nodes so far -- widen the beam and keep going
+                            final int widenedEfSearch = Math.min(currentEfSearch.get() * 2, maxEfSearch);
+                            if (logger.isTraceEnabled()) {
+                                logger.trace("widening filtered search from efSearch={} to efSearch={} with {} matches",
+                                        currentEfSearch.get(), widenedEfSearch, nearestMatches.size());
+                            }
+                            currentEfSearch.set(widenedEfSearch);
+                            while (nearestNeighbors.size() < widenedEfSearch && !passedOver.isEmpty()) {
+                                final NodeReferenceWithDistance reseeded = passedOver.poll();
+                                candidates.add(reseeded);
+                                nearestNeighbors.add(reseeded);
+                            }
+                        }
+
+                        return primitives.fetchNodeIfNotCached(storageAdapter, readTransaction, storageTransform, 0, candidate, nodeCache)
+                                .thenApply(candidateNode ->
+                                        candidateNode == null
+                                        ? ImmutableList.<NodeReference>of()
+                                        : Iterables.filter(candidateNode.getNeighbors(),
+                                                neighbor -> !visited.contains(Objects.requireNonNull(neighbor).getPrimaryKey())))
+                                .thenCompose(neighborReferences -> primitives.fetchNeighborhoodReferences(storageAdapter, readTransaction,
+                                        storageTransform, 0, neighborReferences, nodeCache))
+                                .thenApply(neighborReferences -> {
+                                    final int ef = currentEfSearch.get();
+                                    for (final NodeReferenceWithVector current : neighborReferences) {
+                                        visited.add(current.getPrimaryKey());
+                                        final double furthestDistance =
+                                                Objects.requireNonNull(nearestNeighbors.peek()).getDistance();
+
+                                        final double currentDistance = objectiveFunction.applyAsDouble(current.getVector());
+                                        final NodeReferenceWithDistance currentWithDistance =
+                                                new NodeReferenceWithDistance(current.getPrimaryKey(), current.getVector(),
+                                                        currentDistance);
+                                        if (currentDistance < furthestDistance || nearestNeighbors.size() < ef) {
+                                            candidates.add(currentWithDistance);
+                                            nearestNeighbors.add(currentWithDistance);
+                                            if (nearestNeighbors.size() > ef) {
+                                                nearestNeighbors.poll();
+                                            }
+                                        } else if (currentEfSearch.get() < maxEfSearch) {
+                                            passedOver.add(currentWithDistance);
+                                        }
+                                        offerMatch(nearestMatches, currentWithDistance, Math.max(k, ef), filter);
+                                    }
+                                    return true;
+                                });
+                    })
+                    .thenCompose(ignored ->
+                            primitives.fetchSomeNodesIfNotCached(storageAdapter, readTransaction, storageTransform, 0,
+                                    Primitives.drain(nearestMatches), nodeCache))
+                    .thenApply(searchResult -> {
+                        if (logger.isTraceEnabled()) {
+                            logger.trace("filtered search of layer=0 for efSearch={} ended with efSearch={} and {} matches",
+                                    efSearch, currentEfSearch.get(), searchResult.size());
+                        }
+                        return searchResult;
+                    });
+                });
+    }
+
+    /**
+     * Adds a node reference to a bounded max-heap of matches if it satisfies the filter and is closer than the
+     * furthest match (or the heap is not full yet).
+     * @param nearestMatches the matches found so far, furthest first
+     * @param nodeReference the node reference to offer
+     * @param maxMatches the maximum number of matches to keep
+     * @param filter the predicate on primary keys a match must satisfy
+     */
+    private static void offerMatch(@Nonnull final Queue<NodeReferenceWithDistance> nearestMatches,
+                                   @Nonnull final NodeReferenceWithDistance nodeReference,
+                                   final int maxMatches,
+                                   @Nonnull final Predicate<Tuple> filter) {
+        if (nearestMatches.size() >= maxMatches &&
+                nodeReference.getDistance() >= Objects.requireNonNull(nearestMatches.peek()).getDistance()) {
+            return;
+        }
+        if (!filter.test(nodeReference.getPrimaryKey())) {
+            return;
+        }
+        nearestMatches.add(nodeReference);
+        while (nearestMatches.size() > maxMatches) {
+            nearestMatches.poll();
+        }
+    }
+
     /**
      * Returns an async iterator that returns results ordered by their distance from a given center vector.
      * <p>
@@ -715,4 +985,18 @@ public class Search {
         @Nonnull
         ToDoubleFunction<Transformed<RealVector>> create(@Nonnull Estimator estimator, @Nonnull Transformed<RealVector> targetVector);
     }
+
+    /**
+     * The search of the base layer, given the entry points that were found by the search of the layers above it.
+     */
+    @FunctionalInterface
+    private interface BaseLayerSearch {
+        @Nonnull
+        CompletableFuture<List<NodeReferenceAndNode<NodeReferenceWithDistance, NodeReference>>>
+                search(@Nonnull CompactStorageAdapter storageAdapter,
+                       @Nonnull StorageTransform storageTransform,
+                       @Nonnull List<NodeReferenceWithDistance> entryNodeReferences,
+                       @Nonnull ToDoubleFunction<Transformed<RealVector>> objectiveFunction,
+                       @Nonnull Map<Tuple, AbstractNode<NodeReference>> nodeCache);
+    }
 }
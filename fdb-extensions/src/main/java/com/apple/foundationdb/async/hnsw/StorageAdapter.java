@@ -21,6 +21,7 @@
 package com.apple.foundationdb.async.hnsw;
 
 import com.apple.foundationdb.KeyValue;
+import com.apple.foundationdb.MutationType;
 import com.apple.foundationdb.Range;
 import com.apple.foundationdb.ReadTransaction;
 import com.apple.foundationdb.StreamingMode;
@@ -35,6 +36,7 @@ import com.apple.foundationdb.linear.Transformed;
 import com.apple.foundationdb.linear.VectorType;
 import com.apple.foundationdb.rabitq.EncodedRealVector;
 import com.apple.foundationdb.subspace.Subspace;
+import com.apple.foundationdb.tuple.ByteArrayUtil;
 import com.apple.foundationdb.tuple.Tuple;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Verify;
@@ -45,6 +47,7 @@ import javax.annotation.Nullable;
 import java.util.List;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
 
 /**
  * Defines the contract for storing and retrieving HNSW graph data to/from a persistent store.
@@ -73,6 +76,12 @@ interface StorageAdapter<N extends NodeReference> {
      */
     long SUBSPACE_PREFIX_SAMPLES = 0x02;
 
+    /**
+     * Subspace for the upper layers version; changes whenever a node on a layer above layer {@code 0} or the access
+     * info is modified. It is used to validate nodes kept in an {@link UpperLayerCache}.
+     */
+    long SUBSPACE_PREFIX_UPPER_LAYERS_VERSION = 0x03;
+
     /**
      * Returns the configuration of the HNSW graph.
      * <p>
@@ -361,6 +370,7 @@ interface StorageAdapter<N extends NodeReference> {
                 centroid == null ? null : StorageAdapter.tupleFromVector(centroid)).pack();
         transaction.set(key, value);
         onWriteListener.onKeyValueWritten(entryNodeReference.getLayer(), key, value);
+        bumpUpperLayersVersion(transaction, subspace, onWriteListener);
     }
 
     /**
@@ -376,6 +386,56 @@ interface StorageAdapter<N extends NodeReference> {
         final byte[] key = entryNodeSubspace.pack();
         transaction.clear(key);
         onWriteListener.onKeyDeleted(-1, key);
+        deleteUpperLayersVersion(transaction, subspace, onWriteListener);
+    }
+
+    /**
+     * Fetches the current upper layers version.
+     * @param readTransaction the transaction to use
+     * @param subspace the subspace of the HNSW
+     * @param onReadListener the listener to be notified about the read
+     * @return a future containing the upper layers version or {@code null} if there is none, for instance because
+     *         the upper layers have never been written
+     */
+    @Nonnull
+    static CompletableFuture<Long> fetchUpperLayersVersion(@Nonnull final ReadTransaction readTransaction,
+                                                           @Nonnull final Subspace subspace,
+                                                           @Nonnull final OnReadListener onReadListener) {
+        final byte[] key = upperLayersVersionSubspace(subspace).pack();
+        return readTransaction.get(key)
+                .thenApply(valueBytes -> {
+                    onReadListener.onKeyValueRead(-1, key, valueBytes);
+                    return valueBytes == null ? null : ByteArrayUtil.decodeInt(valueBytes);
+                });
+    }
+
+    /**
+     * Changes the upper layers version. This needs to be called for every modification of the upper layers or the
+     * access info.
+     * <p>
+     * The version is changed using an atomic {@link MutationType#ADD} so that concurrent modifications do not conflict
+     * with each other. The amount added is random rather than {@code 1}, so that two transactions starting from the
+     * same version (one of which may never commit), as well as a structure that has been cleared and rebuilt, do not
+     * end up with the same version for different data.
+     * @param transaction the transaction to use
+     * @param subspace the subspace of the HNSW
+     * @param onWriteListener the listener to be notified about the write
+     */
+    static void bumpUpperLayersVersion(@Nonnull final Transaction transaction,
+                                       @Nonnull final Subspace subspace,
+                                       @Nonnull final OnWriteListener onWriteListener) {
+        final byte[] key = upperLayersVersionSubspace(subspace).pack();
+        final byte[] value = ByteArrayUtil.encodeInt(ThreadLocalRandom.current().nextLong(1L, Long.MAX_VALUE));
+        transaction.mutate(MutationType.ADD, key, value);
+        onWriteListener.onKeyValueWritten(-1, key, value);
+    }
+
+    static void deleteUpperLayersVersion(@Nonnull final Transaction transaction,
+                                         @Nonnull final Subspace subspace,
+                                         @Nonnull final OnWriteListener onWriteListener) {
+        final byte[] key = upperLayersVersionSubspace(subspace).pack();
+        transaction.clear(key);
+        onWriteListener.onKeyDeleted(-1, key);
     }
 
     @Nonnull
@@ -449,4 +509,9 @@ interface StorageAdapter<N extends NodeReference> {
     static Subspace samplesSubspace(@Nonnull final Subspace rootSubspace) {
         return rootSubspace.subspace(Tuple.from(SUBSPACE_PREFIX_SAMPLES));
     }
+
+    @Nonnull
+    static Subspace upperLayersVersionSubspace(@Nonnull final Subspace rootSubspace) {
+        return rootSubspace.subspace(Tuple.from(SUBSPACE_PREFIX_UPPER_LAYERS_VERSION));
+    }
 }
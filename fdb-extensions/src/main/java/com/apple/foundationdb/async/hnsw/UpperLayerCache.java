@@ -0,0 +1,152 @@
+/*
+ * UpperLayerCache.java
+ *
+ * This source file is part of the FoundationDB open source project
+ *
+ * Copyright 2015-2026 Apple Inc. and the FoundationDB project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.apple.foundationdb.async.hnsw;
+
+import com.apple.foundationdb.annotation.API;
+import com.apple.foundationdb.tuple.Tuple;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.Maps;
+
+import javax.annotation.Nonnull;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A cache of the nodes of the layers above layer {@code 0} of an HNSW that can be shared by searches running in
+ * different transactions.
+ * <p>
+ * The upper layers of an HNSW are sparse and only change when a node is inserted into or deleted from one of them,
+ * yet every search has to traverse them starting from the entry node. Each modification of an upper layer (or of the
+ * access info) changes the upper layers version that is kept alongside the graph (see
+ * {@link StorageAdapter#SUBSPACE_PREFIX_UPPER_LAYERS_VERSION}). A search reads that version in the same round trip
+ * as the access info, and only uses nodes cached for exactly that version. Whenever a search encounters a version
+ * different from the one the cache currently holds, all cached nodes are discarded and the cache starts over for the
+ * new version. As the version is read within the search's transaction, using the cache does not weaken the
+ * isolation of that transaction, i.e. the search conflicts with concurrent modifications of the upper layers just
+ * as it would without the cache.
+ * <p>
+ * An instance must only be used for one HNSW structure, that is for {@link HNSW}s on the same subspace using the same
+ * {@link Config}. It can (and should) outlive the {@link HNSW} objects which use it, as it is only useful if it is
+ * used by more than one search.
+ */
+@API(API.Status.EXPERIMENTAL)
+public class UpperLayerCache {
+    private final long maxNodesPerLayer;
+    @Nonnull
+    private final AtomicReference<Generation> currentGeneration;
+
+    /**
+     * Creates a new cache.
+     * @param maxNodesPerLayer the maximum number of nodes to cache per layer
+     */
+    public UpperLayerCache(final long maxNodesPerLayer) {
+        Preconditions.checkArgument(maxNodesPerLayer > 0, "maximum number of nodes per layer must be positive");
+        this.maxNodesPerLayer = maxNodesPerLayer;
+        this.currentGeneration = new AtomicReference<>(null);
+    }
+
+    /**
+     * Get the maximum number of nodes cached per layer.
+     * @return the maximum number of nodes cached per layer
+     */
+    public long getMaxNodesPerLayer() {
+        return maxNodesPerLayer;
+    }
+
+    /**
+     * Discards all cached nodes.
+     */
+    public void invalidateAll() {
+        currentGeneration.set(null);
+    }
+
+    /**
+     * Returns a map that can be used as the node cache of a search of a layer. Nodes that are put into the returned
+     * map are visible to other searches of the same layer and version.
+     * @param <N> the type of node reference used by the layer
+     * @param upperLayersVersion the upper layers version as read by the transaction of the search
+     * @param layer the layer, which must be greater than {@code 0}
+     * @return a map from primary keys to nodes of the given layer
+     */
+    @Nonnull
+    <N extends NodeReference> Map<Tuple, AbstractNode<N>> getNodeCache(final long upperLayersVersion,
+                                                                       final int layer) {
+        Preconditions.checkArgument(layer > 0, "only nodes of the upper layers can be cached");
+        Generation generation = currentGeneration.get();
+        while (generation == null || generation.getUpperLayersVersion() != upperLayersVersion) {
+            final Generation newGeneration = new Generation(upperLayersVersion, maxNodesPerLayer);
+            if (currentGeneration.compareAndSet(generation, newGeneration)) {
+                generation = newGeneration;
+            } else {
+                generation = currentGeneration.get();
+            }
+        }
+        return generation.getNodeCache(layer);
+    }
+
+    @VisibleForTesting
+    long size() {
+        final Generation generation = currentGeneration.get();
+        return generation == null ? 0L : generation.size();
+    }
+
+    /**
+     * The cached nodes of all upper layers for one upper layers version.
+     */
+    private static class Generation {
+        private final long upperLayersVersion;
+        private final long maxNodesPerLayer;
+        @Nonnull
+        private final ConcurrentMap<Integer, Cache<Tuple, AbstractNode<? extends NodeReference>>> cachesByLayer;
+
+        Generation(final long upperLayersVersion, final long maxNodesPerLayer) {
+            this.upperLayersVersion = upperLayersVersion;
+            this.maxNodesPerLayer = maxNodesPerLayer;
+            this.cachesByLayer = Maps.newConcurrentMap();
+        }
+
+        long getUpperLayersVersion() {
+            return upperLayersVersion;
+        }
+
+        @Nonnull
+        @SuppressWarnings("unchecked")
+        <N extends NodeReference> Map<Tuple, AbstractNode<N>> getNodeCache(final int layer) {
+            final Cache<Tuple, AbstractNode<? extends NodeReference>> cache =
+                    cachesByLayer.computeIfAbsent(layer,
+                            ignored -> CacheBuilder.newBuilder().maximumSize(maxNodesPerLayer).build());
+            // all nodes of a layer are of the same kind, as the storage adapter is determined by the layer
+            return (Map<Tuple, AbstractNode<N>>)(Map<Tuple, ?>)cache.asMap();
+        }
+
+        long size() {
+            long size = 0L;
+            for (final Cache<Tuple, AbstractNode<? extends NodeReference>> cache : cachesByLayer.values()) {
+                size += cache.size();
+            }
+            return size;
+        }
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ * DistanceKernels.java
+ *
+ * This source file is part of the FoundationDB open source project
+ *
+ * Copyright 2015-2026 Apple Inc. and the FoundationDB project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.apple.foundationdb.linear;
+
+import javax.annotation.Nonnull;
+
+/**
+ * The inner loops of the {@link MetricDefinition}s.
+ * <p>
+ * A plain loop that adds into a single accumulator has to wait for each addition to finish before starting the
+ * next one, as floating point addition is not associative and the JIT compiler must therefore keep the order of the
+ * additions. The kernels here instead unroll their loops by {@value #LANES} and keep that many independent
+ * accumulators, which are only combined at the end, so that consecutive additions do not depend on each other and
+ * the CPU can overlap them. This changes the order of the additions, and thus possibly the last bits of the result,
+ * but not its accuracy in general.
+ * <p>
+ * All kernels expect vectors of the same length; validating them is up to the caller.
+ */
+final class DistanceKernels {
+    /**
+     * The number of independent accumulators, and so the unrolling factor of the loops.
+     */
+    static final int LANES = 4;
+
+    private DistanceKernels() {
+        // not to be instantiated
+    }
+
+    /**
+     * Computes the sum of the squared differences of the components of two vectors.
+     * @param vector1 the first vector
+     * @param vector2 the second vector, of the same length as {@code vector1}
+     * @return {@code sum((vector1[i] - vector2[i])^2)}
+     */
+    static double sumOfSquaredDifferences(@Nonnull final double[] vector1, @Nonnull final double[] vector2) {
+        final int length = vector1.length;
+        final int unrolledLength = length - length % LANES;
+        double sum0 = 0.0d;
+        double sum1 = 0.0d;
+        double sum2 = 0.0d;
+        double sum3 = 0.0d;
+        int i = 0;
+        for (; i < unrolledLength; i += LANES) {
+            final double diff0 = vector1[i] - vector2[i];
+            final double diff1 = vector1[i + 1] - vector2[i + 1];
+            final double diff2 = vector1[i + 2] - vector2[i + 2];
+            final double diff3 = vector1[i + 3] - vector2[i + 3];
+            sum0 += diff0 * diff0;
+            sum1 += diff1 * diff1;
+            sum2 += diff2 * diff2;
+            sum3 += diff3 * diff3;
+        }
+        for (; i < length; i++) {
+            final double diff = vector1[i] - vector2[i];
+            sum0 += diff * diff;
+        }
+        return (sum0 + sum1) + (sum2 + sum3);
+    }
+
+    /**
+     * Computes the dot product of two vectors.
+     * @param vector1 the first vector
+     * @param vector2 the second vector, of the same length as {@code vector1}
+     * @return {@code sum(vector1[i] * vector2[i])}
+     */
+    static double dotProduct(@Nonnull final double[] vector1, @Nonnull final double[] vector2) {
+        final int length = vector1.length;
+        final int unrolledLength = length - length % LANES;
+        double sum0 = 0.0d;
+        double sum1 = 0.0d;
+        double sum2 = 0.0d;
+        double sum3 = 0.0d;
+        int i = 0;
+        for (; i < unrolledLength; i += LANES) {
+            sum0 += vector1[i] * vector2[i];
+            sum1 += vector1[i + 1] * vector2[i + 1];
+            sum2 += vector1[i + 2] * vector2[i + 2];
+            sum3 += vector1[i + 3] * vector2[i + 3];
+        }
+        for (; i < length; i++) {
+            sum0 += vector1[i] * vector2[i];
+        }
+        return (sum0 + sum1) + (sum2 + sum3);
+    }
+
+    /**
+     * Computes the cosine distance of two vectors, that is {@code 1 - cos(vector1, vector2)}, reading both vectors
+     * only once for the dot product and both norms.
+     * @param vector1 the first vector
+     * @param vector2 the second vector, of the same length as {@code vector1}
+     * @return the cosine distance, {@link Double#POSITIVE_INFINITY} if either vector is the zero vector, or
+     *         {@link Double#NaN} if the dot product or either norm is not finite
+     */
+    static double cosineDistance(@Nonnull final double[] vector1, @Nonnull final double[] vector2) {
+        final int length = vector1.length;
+        final int unrolledLength = length - length % LANES;
+        double dot0 = 0.0d;
+        double dot1 = 0.0d;
+        double dot2 = 0.0d;
+        double dot3 = 0.0d;
+        double normA0 = 0.0d;
+        double normA1 = 0.0d;
+        double normA2 = 0.0d;
+        double normA3 = 0.0d;
+        double normB0 = 0.0d;
+        double normB1 = 0.0d;
+        double normB2 = 0.0d;
+        double normB3 = 0.0d;
+        int i = 0;
+        for (; i < unrolledLength; i += LANES) {
+            final double a0 = vector1[i];
+            final double a1 = vector1[i + 1];
+            final double a2 = vector1[i + 2];
+            final double a3 = vector1[i + 3];
+            final double b0 = vector2[i];
+            final double b1 = vector2[i + 1];
+            final double b2 = vector2[i + 2];
+            final double b3 = vector2[i + 3];
+            dot0 += a0 * b0;
+            dot1 += a1 * b1;
+            dot2 += a2 * b2;
+            dot3 += a3 * b3;
+            normA0 += a0 * a0;
+            normA1 += a1 * a1;
+            normA2 += a2 * a2;
+            normA3 += a3 * a3;
+            normB0 += b0 * b0;
+            normB1 += b1 * b1;
+            normB2 += b2 * b2;
+            normB3 += b3 * b3;
+        }
+        for (; i < length; i++) {
+            final double a = vector1[i];
+            final double b = vector2[i];
+            dot0 += a * b;
+            normA0 += a * a;
+            normB0 += b * b;
+        }
+        final double dotProduct = (dot0 + dot1) + (dot2 + dot3);
+        final double normA = (normA0 + normA1) + (normA2 + normA3);
+        final double normB = (normB0 + normB1) + (normB2 + normB3);
+
+        // Handle the case of zero-vectors to avoid division by zero
+        if (normA == 0.0 || normB == 0.0) {
+            return Double.POSITIVE_INFINITY;
+        }
+        if (!Double.isFinite(normA) || !Double.isFinite(normB) || !Double.isFinite(dotProduct)) {
+            return Double.NaN;
+        }
+        return 1.0d - dotProduct / (Math.sqrt(normA) * Math.sqrt(normB));
+    }
+}
@@ -173,12 +173,7 @@ interface MetricDefinition {
         }
 
         private static double distanceInternal(@Nonnull final double[] vector1, @Nonnull final double[] vector2) {
-            double sumOfSquares = 0.0d;
-            for (int i = 0; i < vector1.length; i++) {
-                double diff = vector1[i] - vector2[i];
-                sumOfSquares += diff * diff;
-            }
-            return sumOfSquares;
+            return DistanceKernels.sumOfSquaredDifferences(vector1, vector2);
         }
 
         @Override
@@ -211,27 +206,7 @@ interface MetricDefinition {
         @Override
         public double distance(@Nonnull final double[] vector1, @Nonnull final double[] vector2) {
             MetricDefinition.validate(vector1, vector2);
-
-            double normA = 0.0;
-            double normB = 0.0;
-
-            for (int i = 0; i < vector1.length; i++) {
-                normA += vector1[i] * vector1[i];
-                normB += vector2[i] * vector2[i];
-            }
-
-            // Handle the case of zero-vectors to avoid division by zero
-            if (normA == 0.0 || normB == 0.0) {
-                return Double.POSITIVE_INFINITY;
-            }
-
-            final double dotProduct = DotProductMetric.dotProduct(vector1, vector2);
-
-            if (!Double.isFinite(normA) || !Double.isFinite(normB) || !Double.isFinite(dotProduct)) {
-                return Double.NaN;
-            }
-
-            return 1.0d - DotProductMetric.dotProduct(vector1, vector2) / (Math.sqrt(normA) * Math.sqrt(normB));
+            return DistanceKernels.cosineDistance(vector1, vector2);
         }
 
         @Override
@@ -279,12 +254,7 @@ interface MetricDefinition {
 
         public static double dotProduct(@Nonnull final double[] vector1, @Nonnull final double[] vector2) {
             MetricDefinition.validate(vector1, vector2);
-
-            double product = 0.0d;
-            for (int i = 0; i < vector1.length; i++) {
-                product += vector1[i] * vector2[i];
-            }
-            return product;
+            return DistanceKernels.dotProduct(vector1, vector2);
         }
 
         @Override
@@ -42,6 +42,7 @@ import javax.annotation.Nullable;
 import java.util.AbstractMap;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
@@ -665,6 +666,266 @@ public class BunchedMap<K, V> {
         })));
     }
 
+    /**
+     * Inserts or updates several keys of a map at once. This has the same effect as calling
+     * {@link #put(TransactionContext, Subspace, Object, Object) put} with each entry in turn, but the entries are
+     * sorted first, and all of the entries that belong in the same bunch are merged into it together. Each bunch
+     * that is modified is therefore only read and re-written once, rather than once for each entry placed in it,
+     * which makes a large difference when many keys close to one another are inserted in the same transaction.
+     * A bunch that grows beyond the bunch size is split into as many full bunches as are needed.
+     *
+     * <p>
+     * Note that this method is <b>not</b> thread-safe if multiple threads call it with the same
+     * transaction and subspace. (Multiple calls with different transactions or subspaces are safe.)
+     * </p>
+     *
+     * @param tcx database or transaction to use when performing the insertions
+     * @param subspace subspace within which the map's data are located
+     * @param entries the keys and values of the map entries to insert
+     * @return a future that will complete when all of the entries have been inserted
+     */
+    @Nonnull
+    public CompletableFuture<Void> putAll(@Nonnull TransactionContext tcx, @Nonnull Subspace subspace, @Nonnull Map<K, V> entries) {
+        if (entries.isEmpty()) {
+            return AsyncUtil.DONE;
+        }
+        final List<Map.Entry<K, V>> sortedEntries = new ArrayList<>(entries.size());
+        for (Map.Entry<K, V> entry : entries.entrySet()) {
+            sortedEntries.add(new AbstractMap.SimpleImmutableEntry<>(entry.getKey(), entry.getValue()));
+        }
+        sortedEntries.sort(Map.Entry.comparingByKey(keyComparator));
+        return tcx.runAsync(tr -> {
+            final byte[] subspaceKey = subspace.pack();
+            final AtomicInteger position = new AtomicInteger(0);
+            return AsyncUtil.whileTrue(() -> putIntoBunch(tr, subspaceKey, sortedEntries, position.get()).thenApply(next -> {
+                position.set(next);
+                return next < sortedEntries.size();
+            }), tr.getExecutor());
+        });
+    }
+
+    // Insert the entry at start, together with all the entries after it that go in the same bunch.
+    // Returns the position of the first entry that was not inserted.
+    @Nonnull
+    private CompletableFuture<Integer> putIntoBunch(@Nonnull Transaction tr, @Nonnull byte[] subspaceKey,
+                                                    @Nonnull List<Map.Entry<K, V>> sortedEntries, int start) {
+        final Map.Entry<K, V> firstEntry = sortedEntries.get(start);
+        final byte[] keyBytes = ByteArrayUtil.join(subspaceKey, serializer.serializeKey(firstEntry.getKey()));
+        // The same read as in put, which finds the bunch that the first key belongs in and the one after it.
+        return instrumentRangeRead(tr.snapshot().getRange(
+                KeySelector.lastLessOrEqual(keyBytes),
+                KeySelector.firstGreaterThan(keyBytes).add(1),
+                ReadTransaction.ROW_LIMIT_UNLIMITED, false, StreamingMode.WANT_ALL
+        ).asList()).thenApply(keyValues -> {
+            KeyValue kvBefore = null;
+            KeyValue kvAfter = null;
+            for (KeyValue next : keyValues) {
+                if (ByteArrayUtil.startsWith(next.getKey(), subspaceKey)) {
+                    if (ByteArrayUtil.compareUnsigned(keyBytes, next.getKey()) < 0) {
+                        kvAfter = next;
+                        break;
+                    }
+                    kvBefore = next;
+                }
+            }
+            // Every key before the next bunch's signpost belongs to the same bunch as the first one.
+            int end = start + 1;
+            if (kvAfter == null) {
+                end = sortedEntries.size();
+            } else {
+                final K afterKey = serializer.deserializeKey(kvAfter.getKey(), subspaceKey.length);
+                while (end < sortedEntries.size() && keyComparator.compare(sortedEntries.get(end).getKey(), afterKey) < 0) {
+                    end++;
+                }
+            }
+            if (end == start + 1) {
+                // A single entry can be placed exactly as put would, which might also use the following bunch.
+                insertEntry(tr, subspaceKey, keyBytes, firstEntry.getKey(), firstEntry.getValue(), kvBefore, kvAfter, firstEntry);
+            } else {
+                mergeIntoBunch(tr, subspaceKey, kvBefore, sortedEntries.subList(start, end));
+            }
+            return end;
+        });
+    }
+
+    private void mergeIntoBunch(@Nonnull Transaction tr, @Nonnull byte[] subspaceKey, @Nullable KeyValue kvBefore,
+                                @Nonnull List<Map.Entry<K, V>> newEntries) {
+        final List<Map.Entry<K, V>> mergedEntries;
+        boolean changed = false;
+        if (kvBefore == null) {
+            mergedEntries = newEntries;
+            changed = true;
+        } else {
+            final K beforeKey = serializer.deserializeKey(kvBefore.getKey(), subspaceKey.length);
+            final List<Map.Entry<K, V>> beforeEntryList = serializer.deserializeEntries(beforeKey, kvBefore.getValue());
+            mergedEntries = new ArrayList<>(beforeEntryList.size() + newEntries.size());
+            int beforeIndex = 0;
+            int newIndex = 0;
+            while (beforeIndex < beforeEntryList.size() || newIndex < newEntries.size()) {
+                final int comparison;
+                if (newIndex == newEntries.size()) {
+                    comparison = -1;
+                } else if (beforeIndex == beforeEntryList.size()) {
+                    comparison = 1;
+                } else {
+                    comparison = keyComparator.compare(beforeEntryList.get(beforeIndex).getKey(), newEntries.get(newIndex).getKey());
+                }
+                if (comparison < 0) {
+                    mergedEntries.add(beforeEntryList.get(beforeIndex++));
+                } else {
+                    final Map.Entry<K, V> newEntry = newEntries.get(newIndex++);
+                    if (comparison == 0) {
+                        if (!newEntry.getValue().equals(beforeEntryList.get(beforeIndex).getValue())) {
+                            changed = true;
+                        }
+                        beforeIndex++;
+                    } else {
+                        changed = true;
+                    }
+                    mergedEntries.add(newEntry);
+                }
+            }
+        }
+        if (!changed) {
+            // Every key already has the value wanted, so leave the bunch alone, but retry
+            // if something else changes any of them, as put does.
+            for (Map.Entry<K, V> entry : newEntries) {
+                tr.addReadConflictKey(ByteArrayUtil.join(subspaceKey, serializer.serializeKey(entry.getKey())));
+            }
+            return;
+        }
+        // The new bunches are based on all the entries of the old one and take responsibility for the whole
+        // range between their first and last keys, including any gaps between bunches, so conflict with any
+        // concurrent change within it. The read conflict range must be added before writing (see above).
+        final byte[] beginKey = ByteArrayUtil.join(subspaceKey, serializer.serializeKey(mergedEntries.get(0).getKey()));
+        final byte[] endKey = ByteArrayUtil.join(subspaceKey, serializer.serializeKey(mergedEntries.get(mergedEntries.size() - 1).getKey()), ZERO_ARRAY);
+        tr.addReadConflictRange(beginKey, endKey);
+        final List<Map.Entry<K, V>> currentEntryList = new ArrayList<>(bunchSize);
+        // As with compaction, the estimated size is just a heuristic to know when to split.
+        int currentEntrySize = 0;
+        KeyValue oldKv = kvBefore;
+        for (Map.Entry<K, V> entry : mergedEntries) {
+            final int serializedEntrySize = serializer.serializeEntry(entry).length;
+            if (!currentEntryList.isEmpty() && (currentEntryList.size() >= bunchSize || currentEntrySize + serializedEntrySize > MAX_VALUE_SIZE)) {
+                writeMergedEntryList(tr, subspaceKey, oldKv, currentEntryList);
+                oldKv = null;
+                currentEntryList.clear();
+                currentEntrySize = 0;
+            }
+            currentEntryList.add(entry);
+            currentEntrySize += serializedEntrySize;
+        }
+        writeMergedEntryList(tr, subspaceKey, oldKv, currentEntryList);
+        tr.addWriteConflictRange(beginKey, endKey);
+    }
+
+    private void writeMergedEntryList(@Nonnull Transaction tr, @Nonnull byte[] subspaceKey, @Nullable KeyValue oldKv,
+                                      @Nonnull List<Map.Entry<K, V>> entryList) {
+        // Only the first bunch re-uses the signpost of the old one, so there is nothing else to clear.
+        final byte[] keyBytes = ByteArrayUtil.join(subspaceKey, serializer.serializeKey(entryList.get(0).getKey()));
+        final byte[] valueBytes = serializer.serializeEntries(entryList);
+        tr.set(keyBytes, valueBytes);
+        instrumentWrite(keyBytes, valueBytes, oldKv == null ? null : oldKv.getValue());
+    }
+
+    /**
+     * Removes several keys from a map at once. This has the same effect as calling
+     * {@link #remove(TransactionContext, Subspace, Object) remove} with each key in turn, but the keys are
+     * sorted first, and all of the keys that are in the same bunch are removed from it together, so each bunch
+     * is only read and re-written once.
+     *
+     * <p>
+     * Note that this method is <b>not</b> thread-safe if multiple threads call it with the same
+     * transaction and subspace. (Multiple calls with different transactions or subspaces are safe.)
+     * </p>
+     *
+     * @param tcx database or transaction to use when removing the keys
+     * @param subspace subspace within which the map's data are located
+     * @param keys the keys to remove from the map
+     * @return a future that will complete when all of the keys have been removed
+     */
+    @Nonnull
+    public CompletableFuture<Void> removeAll(@Nonnull TransactionContext tcx, @Nonnull Subspace subspace, @Nonnull Collection<K> keys) {
+        if (keys.isEmpty()) {
+            return AsyncUtil.DONE;
+        }
+        final List<K> sortedKeys = new ArrayList<>(keys);
+        sortedKeys.sort(keyComparator);
+        return tcx.runAsync(tr -> {
+            final byte[] subspaceKey = subspace.getKey();
+            final AtomicInteger position = new AtomicInteger(0);
+            return AsyncUtil.whileTrue(() -> removeFromBunch(tr, subspaceKey, sortedKeys, position.get()).thenApply(next -> {
+                position.set(next);
+                return next < sortedKeys.size();
+            }), tr.getExecutor());
+        });
+    }
+
+    // Remove the key at start, together with all the keys after it that are in the same bunch.
+    // Returns the position of the first key that was not looked at.
+    @Nonnull
+    private CompletableFuture<Integer> removeFromBunch(@Nonnull Transaction tr, @Nonnull byte[] subspaceKey,
+                                                       @Nonnull List<K> sortedKeys, int start) {
+        return entryForKey(tr, subspaceKey, sortedKeys.get(start)).thenApply(optionalEntry -> {
+            if (!optionalEntry.isPresent()) {
+                return start + 1;
+            }
+            final KeyValue kv = optionalEntry.get();
+            final K mapKey = serializer.deserializeKey(kv.getKey(), subspaceKey.length);
+            final List<Map.Entry<K, V>> entryList = serializer.deserializeEntries(mapKey, kv.getValue());
+            final K lastKey = entryList.get(entryList.size() - 1).getKey();
+            final List<Map.Entry<K, V>> remainingEntries = new ArrayList<>(entryList.size());
+            final List<K> removedKeys = new ArrayList<>();
+            int end = start;
+            int entryIndex = 0;
+            while (end < sortedKeys.size() && keyComparator.compare(sortedKeys.get(end), lastKey) <= 0) {
+                final K key = sortedKeys.get(end++);
+                while (entryIndex < entryList.size() && keyComparator.compare(entryList.get(entryIndex).getKey(), key) < 0) {
+                    remainingEntries.add(entryList.get(entryIndex++));
+                }
+                if (entryIndex < entryList.size() && entryList.get(entryIndex).getKey().equals(key)) {
+                    removedKeys.add(key);
+                    entryIndex++;
+                } else if (end > start + 1) {
+                    // Not in the map after all, but still depend on it staying that way, as remove would.
+                    tr.addReadConflictKey(ByteArrayUtil.join(subspaceKey, serializer.serializeKey(key)));
+                }
+            }
+            if (end == start) {
+                // Past the end of the bunch, and so not in the map.
+                return start + 1;
+            }
+            if (removedKeys.isEmpty()) {
+                return end;
+            }
+            remainingEntries.addAll(entryList.subList(entryIndex, entryList.size()));
+            // The value that gets written is based on the contents of the entries read, so
+            // we need to add a read range with all of the values we are currently writing.
+            addEntryListReadConflictRange(tr, subspaceKey, kv.getKey(), entryList);
+            for (K key : removedKeys) {
+                tr.addWriteConflictKey(ByteArrayUtil.join(subspaceKey, serializer.serializeKey(key)));
+            }
+            if (remainingEntries.isEmpty()) {
+                tr.clear(kv.getKey());
+                instrumentDelete(kv.getKey(), null);
+            } else {
+                final byte[] newKey = ByteArrayUtil.join(subspaceKey, serializer.serializeKey(remainingEntries.get(0).getKey()));
+                final byte[] oldValue;
+                if (Arrays.equals(newKey, kv.getKey())) {
+                    oldValue = kv.getValue();
+                } else {
+                    tr.clear(kv.getKey());
+                    instrumentDelete(kv.getKey(), kv.getValue());
+                    oldValue = null;
+                }
+                final byte[] newValue = serializer.serializeEntries(remainingEntries);
+                tr.set(newKey, newValue);
+                instrumentWrite(newKey, newValue, oldValue);
+            }
+            return end;
+        });
+    }
+
     /**
      * Verify the integrity of the bunched map. This will read through all of the database keys associated
      * with the map and verify that all of the keys are in order. If it encounters an error, it will
@@ -0,0 +1,349 @@
+/*
+ * PackedTuple.java
+ *
+ * This source file is part of the FoundationDB open source project
+ *
+ * Copyright 2015-2026 Apple Inc. and the FoundationDB project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.apple.foundationdb.tuple;
+
+import com.apple.foundationdb.annotation.API;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.Arrays;
+
+/**
+ * A view of an encoded {@link Tuple} within a byte array that decodes its elements only as they are accessed.
+ *
+ * <p>
+ * Unpacking a key into a {@link Tuple} decodes every element, even when only a few of them are needed, for
+ * example to get the primary key out of an index entry. A {@code PackedTuple} instead locates the boundaries of
+ * the elements with a single pass over the bytes, without decoding them, and then decodes (and remembers) only the
+ * elements that are asked for. Because the tuple encoding preserves order, two packed tuples can also be compared
+ * without decoding anything.
+ * </p>
+ *
+ * <p>
+ * The view does not copy the underlying array, which must therefore not be modified while the view is in use.
+ * It is not thread-safe.
+ * </p>
+ */
+@API(API.Status.EXPERIMENTAL)
+public final class PackedTuple implements Comparable<PackedTuple> {
+    private static final byte NIL_CODE = 0x00;
+    private static final byte ESCAPED_NIL = (byte)0xff;
+    private static final int BYTES_CODE = 0x01;
+    private static final int STRING_CODE = 0x02;
+    private static final int NESTED_CODE = 0x05;
+    private static final int NEG_INT_START = 0x0b;
+    private static final int INT_ZERO_CODE = 0x14;
+    private static final int POS_INT_END = 0x1d;
+    private static final int FLOAT_CODE = 0x20;
+    private static final int DOUBLE_CODE = 0x21;
+    private static final int FALSE_CODE = 0x26;
+    private static final int TRUE_CODE = 0x27;
+    private static final int UUID_CODE = 0x30;
+    private static final int VERSIONSTAMP_CODE = 0x33;
+
+    @Nonnull
+    private final byte[] bytes;
+    private final int offset;
+    private final int length;
+
+    // The offset of each element, followed by the end offset, once located
+    @Nullable
+    private int[] elementOffsets;
+    @Nullable
+    private Object[] elements;
+    @Nullable
+    private boolean[] decoded;
+    @Nullable
+    private Tuple tuple;
+
+    private PackedTuple(@Nonnull byte[] bytes, int offset, int length, @Nullable Tuple tuple) {
+        this.bytes = bytes;
+        this.offset = offset;
+        this.length = length;
+        this.tuple = tuple;
+    }
+
+    /**
+     * Create a view of an encoded tuple.
+     * @param bytes the encoded tuple
+     * @return a view of the tuple encoded in {@code bytes}
+     */
+    @Nonnull
+    public static PackedTuple fromBytes(@Nonnull byte[] bytes) {
+        return fromBytes(bytes, 0, bytes.length);
+    }
+
+    /**
+     * Create a view of an encoded tuple within a byte array.
+     * @param bytes an array containing the encoded tuple
+     * @param offset the position at which the encoded tuple starts
+     * @param length the length of the encoded tuple
+     * @return a view of the tuple encoded in the given range of {@code bytes}
+     */
+    @Nonnull
+    public static PackedTuple fromBytes(@Nonnull byte[] bytes, int offset, int length) {
+        if (offset < 0 || length < 0 || offset + length > bytes.length) {
+            throw new IllegalArgumentException("Invalid range of packed tuple");
+        }
+        return new PackedTuple(bytes, offset, length, null);
+    }
+
+    /**
+     * Create a view of an existing tuple. The tuple is packed, but its elements are not decoded again.
+     * @param tuple the tuple
+     * @return a view of {@code tuple}
+     */
+    @Nonnull
+    public static PackedTuple fromTuple(@Nonnull Tuple tuple) {
+        final byte[] packed = tuple.pack();
+        return new PackedTuple(packed, 0, packed.length, tuple);
+    }
+
+    /**
+     * Get the number of elements in the tuple. This locates the elements, which also validates the encoding, but does
+     * not decode them.
+     * @return the number of elements
+     * @throws IllegalArgumentException if the bytes are not a valid encoded tuple
+     */
+    public int size() {
+        return getElementOffsets().length - 1;
+    }
+
+    /**
+     * Get an element of the tuple, decoding only that element.
+     * @param index the position of the element
+     * @return the decoded element
+     */
+    @Nullable
+    public Object get(int index) {
+        if (tuple != null) {
+            return tuple.get(index);
+        }
+        final int[] offsets = getElementOffsets();
+        if (index < 0 || index >= offsets.length - 1) {
+            throw new IndexOutOfBoundsException("Tuple index out of range: " + index);
+        }
+        if (elements == null) {
+            elements = new Object[offsets.length - 1];
+            decoded = new boolean[offsets.length - 1];
+        }
+        if (!decoded[index]) {
+            final TupleUtil.DecodeState state = new TupleUtil.DecodeState();
+            TupleUtil.decode(state, bytes, offsets[index], offsets[index + 1]);
+            elements[index] = state.values.get(0);
+            decoded[index] = true;
+        }
+        return elements[index];
+    }
+
+    /**
+     * Get the whole tuple, decoding every element the first time it is called.
+     * @return the decoded tuple
+     */
+    @Nonnull
+    public Tuple getTuple() {
+        if (tuple == null) {
+            tuple = Tuple.fromBytes(bytes, offset, length);
+        }
+        return tuple;
+    }
+
+    /**
+     * Get a range of elements of the tuple, decoding only those elements.
+     * @param start the position of the first element (inclusive)
+     * @param end the position of the last element (exclusive)
+     * @return a tuple with the elements between {@code start} and {@code end}
+     */
+    @Nonnull
+    public Tuple subTuple(int start, int end) {
+        if (tuple != null) {
+            return TupleHelpers.subTuple(tuple, start, end);
+        }
+        final int[] offsets = getElementOffsets();
+        if (start < 0 || end > offsets.length - 1 || start > end) {
+            throw new IndexOutOfBoundsException("Tuple range out of range: " + start + " to " + end);
+        }
+        if (start == end) {
+            return TupleHelpers.EMPTY;
+        }
+        return Tuple.fromBytes(bytes, offsets[start], offsets[end] - offsets[start]);
+    }
+
+    /**
+     * Get whether the given tuple is a prefix of this one, without decoding either of them.
+     * @param prefix the potential prefix
+     * @return {@code true} if {@code prefix} is a prefix of this tuple
+     */
+    public boolean startsWith(@Nonnull PackedTuple prefix) {
+        if (prefix.length > length) {
+            return false;
+        }
+        if (Arrays.compareUnsigned(bytes, offset, offset + prefix.length, prefix.bytes, prefix.offset, prefix.offset + prefix.length) != 0) {
+            return false;
+        }
+        // The encoding of the prefix must end at an element boundary of this tuple
+        return prefix.length == length || Arrays.binarySearch(getElementOffsets(), offset + prefix.length) >= 0;
+    }
+
+    /**
+     * Get the number of bytes of the encoded tuple.
+     * @return the packed size of the tuple
+     */
+    public int getPackedSize() {
+        return length;
+    }
+
+    /**
+     * Get a copy of the encoded tuple.
+     * @return the encoded tuple
+     */
+    @Nonnull
+    public byte[] pack() {
+        return Arrays.copyOfRange(bytes, offset, offset + length);
+    }
+
+    /**
+     * Compare two tuples the same way they would sort when used as keys, that is, by their encoded bytes.
+     * Neither tuple is decoded.
+     * @param other the other tuple
+     * @return a negative number, zero or a positive number if this tuple sorts before, the same as, or after
+     * {@code other}
+     */
+    @Override
+    public int compareTo(@Nonnull PackedTuple other) {
+        return Arrays.compareUnsigned(bytes, offset, offset + length, other.bytes, other.offset, other.offset + other.length);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof PackedTuple)) {
+            return false;
+        }
+        final PackedTuple that = (PackedTuple)o;
+        return Arrays.equals(bytes, offset, offset + length, that.bytes, that.offset, that.offset + that.length);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = 1;
+        for (int i = offset; i < offset + length; i++) {
+            result = 31 * result + bytes[i];
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return getTuple().toString();
+    }
+
+    @Nonnull
+    private int[] getElementOffsets() {
+        if (elementOffsets == null) {
+            int[] offsets = new int[8];
+            int count = 0;
+            final int end = offset + length;
+            int pos = offset;
+            while (pos < end) {
+                if (count == offsets.length - 1) {
+                    offsets = Arrays.copyOf(offsets, offsets.length * 2);
+                }
+                offsets[count++] = pos;
+                pos = skipElement(bytes, pos, end);
+            }
+            offsets[count] = end;
+            elementOffsets = Arrays.copyOf(offsets, count + 1);
+        }
+        return elementOffsets;
+    }
+
+    /**
+     * Find the end of the encoded element starting at {@code pos}, without decoding it.
+     */
+    private static int skipElement(@Nonnull byte[] bytes, int pos, int end) {
+        final int code = bytes[pos] & 0xff;
+        int next = pos + 1;
+        if (code == NIL_CODE || code == INT_ZERO_CODE || code == FALSE_CODE || code == TRUE_CODE) {
+            return next;
+        } else if (code == BYTES_CODE || code == STRING_CODE) {
+            // Terminated by a zero byte that is not followed by 0xff
+            while (true) {
+                checkInBounds(next, end);
+                if (bytes[next] == NIL_CODE) {
+                    if (next + 1 < end && bytes[next + 1] == ESCAPED_NIL) {
+                        next += 2;
+                    } else {
+                        return next + 1;
+                    }
+                } else {
+                    next++;
+                }
+            }
+        } else if (code == NESTED_CODE) {
+            // Terminated by a zero byte that is not followed by 0xff, which would be a null element
+            while (true) {
+                checkInBounds(next, end);
+                if (bytes[next] == NIL_CODE) {
+                    if (next + 1 < end && bytes[next + 1] == ESCAPED_NIL) {
+                        next += 2;
+                    } else {
+                        return next + 1;
+                    }
+                } else {
+                    next = skipElement(bytes, next, end);
+                }
+            }
+        } else if (code > INT_ZERO_CODE && code < POS_INT_END) {
+            next += code - INT_ZERO_CODE;
+        } else if (code > NEG_INT_START && code < INT_ZERO_CODE) {
+            next += INT_ZERO_CODE - code;
+        } else if (code == POS_INT_END) {
+            checkInBounds(next, end);
+            next += 1 + (bytes[next] & 0xff);
+        } else if (code == NEG_INT_START) {
+            checkInBounds(next, end);
+            next += 1 + ((bytes[next] ^ 0xff) & 0xff);
+        } else if (code == FLOAT_CODE) {
+            next += Float.BYTES;
+        } else if (code == DOUBLE_CODE) {
+            next += Double.BYTES;
+        } else if (code == UUID_CODE) {
+            next += 16;
+        } else if (code == VERSIONSTAMP_CODE) {
+            next += Versionstamp.LENGTH;
+        } else {
+            throw new IllegalArgumentException("Unknown tuple data type " + code + " at index " + pos);
+        }
+        if (next > end) {
+            throw new IllegalArgumentException("Tuple element at index " + pos + " extends past the end of the tuple");
+        }
+        return next;
+    }
+
+    private static void checkInBounds(int pos, int end) {
+        if (pos >= end) {
+            throw new IllegalArgumentException("Unterminated tuple element");
+        }
+    }
+}
@@ -49,6 +49,9 @@ import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -286,6 +289,144 @@ public class RankedSetTest {
         });
     }
 
+    @Test
+    public void cachedLevels() {
+        config = RankedSet.newConfigBuilder().setVersioned(true).build();
+        final RankedSetLevelCache levelCache = new RankedSetLevelCache(10, 1000);
+        final RankedSet uncached = newRankedSet();
+        final RankedSet cached = new RankedSet(rsSubspace, TestExecutors.defaultThreadPool(), config, levelCache);
+        final List<byte[]> keys = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            keys.add(Tuple.from(i * 2).pack());
+        }
+        db.run(tr -> {
+            for (byte[] key : keys) {
+                uncached.add(tr, key).join();
+            }
+            return null;
+        });
+        assertSameLookups(uncached, cached, keys.size());
+        awaitLoaded(levelCache);
+        final RankedSetLevelCache.Levels levels = levelCache.get(rsSubspace, config.getNLevels());
+        assertNotNull(levels);
+        assertEquals(RankedSetLevelCache.DEFAULT_UNCACHED_LEVELS, levels.getLowestLevel());
+        // Served from the cache this time.
+        assertSameLookups(uncached, cached, keys.size());
+        assertSame(levels, levelCache.get(rsSubspace, config.getNLevels()));
+
+        db.run(tr -> {
+            for (int i = 0; i < 100; i++) {
+                cached.remove(tr, Tuple.from(i * 10).pack()).join();
+                cached.add(tr, Tuple.from(i * 10 + 1).pack()).join();
+            }
+            return null;
+        });
+        assertSameLookups(uncached, cached, keys.size());
+        awaitLoaded(levelCache);
+        final RankedSetLevelCache.Levels reloaded = levelCache.get(rsSubspace, config.getNLevels());
+        assertNotNull(reloaded);
+        assertNotEquals(levels.getVersion(), reloaded.getVersion());
+
+        cached.clear(db).join();
+        assertEquals(0L, cached.size(db).join());
+        assertNull(cached.getNth(db, 0).join());
+    }
+
+    @Test
+    public void cachedLevelsTooMany() {
+        config = RankedSet.newConfigBuilder().setVersioned(true).setNLevels(3).build();
+        final RankedSetLevelCache levelCache = new RankedSetLevelCache(10, 20, 1);
+        final RankedSet uncached = newRankedSet();
+        final RankedSet cached = new RankedSet(rsSubspace, TestExecutors.defaultThreadPool(), config, levelCache);
+        db.run(tr -> {
+            for (int i = 0; i < 1000; i++) {
+                uncached.add(tr, Tuple.from(i).pack()).join();
+            }
+            return null;
+        });
+        assertSameLookups(uncached, cached, 1000);
+        awaitLoaded(levelCache);
+        // Only the top level fits.
+        final RankedSetLevelCache.Levels levels = levelCache.get(rsSubspace, config.getNLevels());
+        assertNotNull(levels);
+        assertEquals(2, levels.getLowestLevel());
+    }
+
+    @Test
+    public void cachedLevelsLoadedOnce() {
+        config = RankedSet.newConfigBuilder().setVersioned(true).build();
+        final RankedSetLevelCache levelCache = new RankedSetLevelCache(10, 1000);
+        final RankedSet uncached = newRankedSet();
+        final RankedSet cached = new RankedSet(rsSubspace, TestExecutors.defaultThreadPool(), config, levelCache);
+        db.run(tr -> {
+            for (int i = 0; i < 500; i++) {
+                uncached.add(tr, Tuple.from(i * 2).pack()).join();
+            }
+            return null;
+        });
+        // While the levels are being loaded for another lookup, a lookup does not load them again.
+        assertTrue(levelCache.startLoading(rsSubspace));
+        assertSameLookups(uncached, cached, 500);
+        assertNull(levelCache.get(rsSubspace, config.getNLevels()));
+        levelCache.finishLoading(rsSubspace);
+        assertSameLookups(uncached, cached, 500);
+        awaitLoaded(levelCache);
+        assertNotNull(levelCache.get(rsSubspace, config.getNLevels()));
+    }
+
+    @Test
+    public void cachedLevelsHighChurn() {
+        config = RankedSet.newConfigBuilder().setVersioned(true).build();
+        final RankedSetLevelCache levelCache = new RankedSetLevelCache(10, 1000);
+        final RankedSet uncached = newRankedSet();
+        final RankedSet cached = new RankedSet(rsSubspace, TestExecutors.defaultThreadPool(), config, levelCache);
+        db.run(tr -> {
+            for (int i = 0; i < 500; i++) {
+                uncached.add(tr, Tuple.from(i * 2).pack()).join();
+            }
+            return null;
+        });
+        // Every lookup finds the cached levels stale, because the set is changed between each.
+        for (int i = 0; i < 50; i++) {
+            final byte[] key = Tuple.from(i * 2 + 1).pack();
+            db.run(tr -> cached.add(tr, key).join());
+            db.run(tr -> {
+                assertEquals(uncached.rank(tr, key).join(), cached.rank(tr, key).join());
+                assertArrayEquals(uncached.getNth(tr, 250).join(), cached.getNth(tr, 250).join());
+                return null;
+            });
+        }
+        assertSameLookups(uncached, cached, 550);
+    }
+
+    private void awaitLoaded(RankedSetLevelCache levelCache) {
+        // Levels are loaded in the background, within the transaction of the lookup that started loading them.
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (levelCache.isLoading(rsSubspace)) {
+            assertTrue(System.currentTimeMillis() < deadline, "levels still loading");
+            Thread.onSpinWait();
+        }
+    }
+
+    private void assertSameLookups(RankedSet expected, RankedSet actual, int size) {
+        db.run(tr -> {
+            assertEquals(expected.size(tr).join(), actual.size(tr).join());
+            assertNull(actual.getNth(tr, size).join());
+            // Only every few, to stay well within the transaction time limit.
+            for (int i = 0; i < size; i += 7) {
+                final byte[] nth = expected.getNth(tr, i).join();
+                assertArrayEquals(nth, actual.getNth(tr, i).join());
+                if (nth != null) {
+                    assertEquals(expected.rank(tr, nth).join(), actual.rank(tr, nth).join());
+                }
+                final byte[] key = Tuple.from(i * 2 + 1).pack();
+                assertEquals(expected.rank(tr, key).join(), actual.rank(tr, key).join());
+                assertEquals(expected.rank(tr, key, false).join(), actual.rank(tr, key, false).join());
+            }
+            return null;
+        });
+    }
+
     //
     // Helpers
     //
@@ -78,6 +78,7 @@ import java.util.Set;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 import java.util.stream.LongStream;
 import java.util.stream.Stream;
@@ -544,6 +545,179 @@ class OperationsTest implements BaseTest {
         assertThat(accessInfo).isNull();
     }
 
+    @ParameterizedTest
+    @MethodSource("differentConfigs")
+    void testUpperLayerCache(final long seed, final Config config) {
+        final Random random = new Random(seed);
+        final int size = 500;
+        final TestOnReadListener onReadListener = new TestOnReadListener();
+        final UpperLayerCache upperLayerCache = new UpperLayerCache(1000);
+
+        final HNSW hnsw = new HNSW(subspaceExtension.getSubspace(), TestExecutors.defaultThreadPool(), config,
+                OnWriteListener.NOOP, OnReadListener.NOOP);
+
+        final int k = 10;
+        final List<PrimaryKeyAndVector> insertedData = randomVectors(random, config.getNumDimensions(), size + 100);
+        for (int i = 0; i < size;) {
+            i += TestHelpers.basicInsertBatch(getDb(), hnsw, 100, i,
+                    (tr, nextId) -> insertedData.get(Math.toIntExact(nextId))).size();
+        }
+
+        final HalfRealVector queryVector = createRandomHalfVector(random, config.getNumDimensions());
+        final List<Tuple> expectedResults = searchPrimaryKeys(hnsw, k, queryVector);
+
+        // searches of different HNSW instances in different transactions share the cached upper layers
+        for (int i = 0; i < 2; i++) {
+            final HNSW cachingHnsw = new HNSW(subspaceExtension.getSubspace(), TestExecutors.defaultThreadPool(),
+                    config, OnWriteListener.NOOP, onReadListener, upperLayerCache);
+            onReadListener.reset();
+            assertThat(searchPrimaryKeys(cachingHnsw, k, queryVector)).isEqualTo(expectedResults);
+            if (i > 0) {
+                assertThat(onReadListener.getNodeCountByLayer().keySet()).allMatch(layer -> layer == 0);
+            }
+        }
+        assertThat(upperLayerCache.size()).isPositive();
+
+        // modifying the structure invalidates what has been cached
+        for (int i = size; i < size + 100;) {
+            i += TestHelpers.basicInsertBatch(getDb(), hnsw, 100, i,
+                    (tr, nextId) -> insertedData.get(Math.toIntExact(nextId))).size();
+        }
+        final List<Tuple> expectedResultsAfterInsert = searchPrimaryKeys(hnsw, k, queryVector);
+        final HNSW cachingHnsw = new HNSW(subspaceExtension.getSubspace(), TestExecutors.defaultThreadPool(),
+                config, OnWriteListener.NOOP, onReadListener, upperLayerCache);
+        assertThat(searchPrimaryKeys(cachingHnsw, k, queryVector)).isEqualTo(expectedResultsAfterInsert);
+    }
+
+    @ParameterizedTest
+    @MethodSource("differentConfigs")
+    void testBulkLoad(final long seed, final Config config) {
+        final Random random = new Random(seed);
+        final int size = 1000;
+        final int k = 50;
+
+        final HNSW hnsw = new HNSW(subspaceExtension.getSubspace(), TestExecutors.defaultThreadPool(), config,
+                OnWriteListener.NOOP, OnReadListener.NOOP);
+        final List<PrimaryKeyAndVector> insertedData = randomVectors(random, config.getNumDimensions(), size);
+
+        final BulkLoad bulkLoad = hnsw.bulkLoad();
+        insertedData.parallelStream()
+                .forEach(primaryKeyAndVector ->
+                        bulkLoad.add(primaryKeyAndVector.getPrimaryKey(), primaryKeyAndVector.getVector()));
+        assertThat(bulkLoad.size()).isEqualTo(size);
+        bulkLoad.load(getDb(), 100).join();
+
+        assertThat(TestHelpers.countNodesOnLayer(getDb(), getSubspace(), config, 0)).isEqualTo(size);
+
+        final HalfRealVector queryVector = createRandomHalfVector(random, config.getNumDimensions());
+        final ImmutableSet<Tuple> trueNN =
+                orderedByDistances(config.getMetric(), insertedData, queryVector).stream()
+                        .limit(k)
+                        .map(PrimaryKeyVectorAndDistance::getPrimaryKey)
+                        .collect(ImmutableSet.toImmutableSet());
+        final List<Tuple> results = searchPrimaryKeys(hnsw, k, queryVector);
+        final long recallCount = results.stream().filter(trueNN::contains).count();
+        assertThat((double)recallCount / (double)k).isGreaterThan(0.9);
+
+        // the structure can be maintained as usual after it has been loaded
+        final PrimaryKeyAndVector additionalData =
+                new PrimaryKeyAndVector(TestHelpers.createPrimaryKey(size), queryVector);
+        db.run(tr -> hnsw.insert(tr, additionalData.getPrimaryKey(), additionalData.getVector()).join());
+        assertThat(TestHelpers.countNodesOnLayer(getDb(), getSubspace(), config, 0)).isEqualTo(size + 1);
+
+        // a structure that is not empty cannot be bulk loaded
+        final BulkLoad secondBulkLoad = hnsw.bulkLoad();
+        secondBulkLoad.add(TestHelpers.createPrimaryKey(size + 1), queryVector);
+        assertThatThrownBy(() -> secondBulkLoad.load(getDb(), 100).join())
+                .hasCauseInstanceOf(IllegalStateException.class);
+    }
+
+    @ParameterizedTest
+    @RandomSeedSource({0x0fdbL, 0x5ca1eL, 123456L})
+    void testBulkLoadConcurrentBatches(final long seed) {
+        final Random random = new Random(seed);
+        // several batches, which are inserted into the in-memory graph concurrently
+        final int size = 4500;
+        final int k = 20;
+        final Config config = HNSW.newConfigBuilder()
+                .setMetric(Metric.EUCLIDEAN_METRIC)
+                .setM(16)
+                .setMMax(32)
+                .setMMax0(64)
+                .build(32);
+
+        final HNSW hnsw = new HNSW(subspaceExtension.getSubspace(), TestExecutors.defaultThreadPool(), config,
+                OnWriteListener.NOOP, OnReadListener.NOOP);
+        final List<PrimaryKeyAndVector> insertedData = randomVectors(random, config.getNumDimensions(), size);
+
+        final BulkLoad bulkLoad = hnsw.bulkLoad();
+        insertedData.forEach(primaryKeyAndVector ->
+                bulkLoad.add(primaryKeyAndVector.getPrimaryKey(), primaryKeyAndVector.getVector()));
+        bulkLoad.load(getDb(), 500).join();
+
+        assertThat(TestHelpers.countNodesOnLayer(getDb(), getSubspace(), config, 0)).isEqualTo(size);
+
+        // nodes of later batches are only reachable through links added to them by concurrent inserts
+        for (int i = 0; i < 5; i++) {
+            final HalfRealVector queryVector = createRandomHalfVector(random, config.getNumDimensions());
+            final ImmutableSet<Tuple> trueNN =
+                    orderedByDistances(config.getMetric(), insertedData, queryVector).stream()
+                            .limit(k)
+                            .map(PrimaryKeyVectorAndDistance::getPrimaryKey)
+                            .collect(ImmutableSet.toImmutableSet());
+            final List<Tuple> results = searchPrimaryKeys(hnsw, k, queryVector);
+            final long recallCount = results.stream().filter(trueNN::contains).count();
+            assertThat((double)recallCount / (double)k).isGreaterThan(0.8);
+        }
+    }
+
+    @ParameterizedTest
+    @MethodSource("differentConfigs")
+    void testFilteredSearch(final long seed, final Config config) {
+        final Random random = new Random(seed);
+        final int size = 1000;
+        final int k = 10;
+
+        final HNSW hnsw = new HNSW(subspaceExtension.getSubspace(), TestExecutors.defaultThreadPool(), config,
+                OnWriteListener.NOOP, OnReadListener.NOOP);
+        final List<PrimaryKeyAndVector> insertedData = randomVectors(random, config.getNumDimensions(), size);
+        for (int i = 0; i < size;) {
+            i += TestHelpers.basicInsertBatch(getDb(), hnsw, 100, i,
+                    (tr, nextId) -> insertedData.get(Math.toIntExact(nextId))).size();
+        }
+
+        // only every 20th node qualifies, so a beam of the initial size will not find enough of them
+        final Predicate<Tuple> filter = primaryKey -> primaryKey.getLong(0) % 20 == 0;
+        final HalfRealVector queryVector = createRandomHalfVector(random, config.getNumDimensions());
+        final ImmutableSet<Tuple> trueNN =
+                orderedByDistances(config.getMetric(), insertedData, queryVector).stream()
+                        .map(PrimaryKeyVectorAndDistance::getPrimaryKey)
+                        .filter(filter)
+                        .limit(k)
+                        .collect(ImmutableSet.toImmutableSet());
+
+        final List<Tuple> results =
+                db.run(tr -> hnsw.kNearestNeighborsSearch(tr, k, 20, 400, false, queryVector, filter).join())
+                        .stream()
+                        .map(ResultEntry::getPrimaryKey)
+                        .collect(ImmutableList.toImmutableList());
+        assertThat(results).hasSize(k).allMatch(filter);
+        final long recallCount = results.stream().filter(trueNN::contains).count();
+        assertThat((double)recallCount / (double)k).isGreaterThanOrEqualTo(0.7);
+
+        // a filter that nothing satisfies returns nothing
+        assertThat(db.run(tr -> hnsw.kNearestNeighborsSearch(tr, k, 20, 40, false, queryVector,
+                primaryKey -> false).join())).isEmpty();
+    }
+
+    @Nonnull
+    private List<Tuple> searchPrimaryKeys(@Nonnull final HNSW hnsw, final int k, @Nonnull final RealVector queryVector) {
+        return db.run(tr -> hnsw.kNearestNeighborsSearch(tr, k, 100, false, queryVector).join())
+                .stream()
+                .map(ResultEntry::getPrimaryKey)
+                .collect(ImmutableList.toImmutableList());
+    }
+
     @ParameterizedTest()
     @RandomSeedSource({0x0fdbL, 0x5ca1eL, 123456L, 78910L, 1123581321345589L})
     void testBasicInsertWithRaBitQEncodings(final long seed) throws ExecutionException, InterruptedException, TimeoutException {
@@ -0,0 +1,84 @@
+/*
+ * DistanceKernelsTest.java
+ *
+ * This source file is part of the FoundationDB open source project
+ *
+ * Copyright 2015-2026 Apple Inc. and the FoundationDB project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.apple.foundationdb.linear;
+
+import com.apple.test.RandomizedTestUtils;
+import org.assertj.core.api.Assertions;
+import org.assertj.core.data.Offset;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import javax.annotation.Nonnull;
+import java.util.Random;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+class DistanceKernelsTest {
+    @Nonnull
+    private static Stream<Arguments> randomSeedsWithNumDimensions() {
+        // lengths that are and are not multiples of the number of lanes
+        return RandomizedTestUtils.randomSeeds(12345, 987654)
+                .flatMap(seed -> IntStream.of(1, 3, 4, 5, 7, 128, 767, 768)
+                        .mapToObj(numDimensions -> Arguments.of(seed, numDimensions)));
+    }
+
+    @ParameterizedTest
+    @MethodSource("randomSeedsWithNumDimensions")
+    void kernelsMatchSimpleLoops(final long seed, final int numDimensions) {
+        final Random random = new Random(seed);
+        for (int i = 0; i < 100; i++) {
+            final double[] x = RealVectorTest.createRandomVectorData(random, numDimensions);
+            final double[] y = RealVectorTest.createRandomVectorData(random, numDimensions);
+
+            double sumOfSquares = 0.0d;
+            double dotProduct = 0.0d;
+            double normX = 0.0d;
+            double normY = 0.0d;
+            for (int j = 0; j < numDimensions; j++) {
+                sumOfSquares += (x[j] - y[j]) * (x[j] - y[j]);
+                dotProduct += x[j] * y[j];
+                normX += x[j] * x[j];
+                normY += y[j] * y[j];
+            }
+            final double tolerance = 1E-12d * numDimensions * (1.0d + Math.abs(sumOfSquares) + Math.abs(dotProduct));
+
+            Assertions.assertThat(DistanceKernels.sumOfSquaredDifferences(x, y)).isCloseTo(sumOfSquares, Offset.offset(tolerance));
+            Assertions.assertThat(DistanceKernels.dotProduct(x, y)).isCloseTo(dotProduct, Offset.offset(tolerance));
+            if (normX != 0.0d && normY != 0.0d) {
+                Assertions.assertThat(DistanceKernels.cosineDistance(x, y))
+                        .isCloseTo(1.0d - dotProduct / (Math.sqrt(normX) * Math.sqrt(normY)), Offset.offset(1E-10d));
+            }
+        }
+    }
+
+    @Test
+    void cosineOfZeroVector() {
+        final double[] zero = new double[5];
+        final double[] ones = {1.0d, 1.0d, 1.0d, 1.0d, 1.0d};
+        Assertions.assertThat(DistanceKernels.cosineDistance(zero, ones)).isEqualTo(Double.POSITIVE_INFINITY);
+        Assertions.assertThat(DistanceKernels.cosineDistance(ones, zero)).isEqualTo(Double.POSITIVE_INFINITY);
+        Assertions.assertThat(DistanceKernels.cosineDistance(ones, ones)).isCloseTo(0.0d, Offset.offset(1E-15d));
+        final double[] infinite = {1.0d, Double.POSITIVE_INFINITY, 1.0d, 1.0d, 1.0d};
+        Assertions.assertThat(DistanceKernels.cosineDistance(infinite, ones)).isNaN();
+    }
+}
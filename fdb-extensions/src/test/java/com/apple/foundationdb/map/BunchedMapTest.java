@@ -244,6 +244,54 @@ public class BunchedMapTest {
         }
     }
 
+    @Test
+    public void putAllAndRemoveAll() throws ExecutionException, InterruptedException {
+        final Tuple value = Tuple.from("hello", "there");
+        final Tuple otherValue = Tuple.from("general", "kenobi");
+        db.run(tr -> {
+            LongStream.range(100L, 110L).forEach(i -> map.put(tr, bmSubspace, Tuple.from(i), value).join());
+            LongStream.range(120L, 130L).forEach(i -> map.put(tr, bmSubspace, Tuple.from(i), value).join());
+            return null;
+        });
+        verifyBoundaryKeys(Arrays.asList(Tuple.from(100L), Tuple.from(120L)));
+
+        // Before the first bunch, into and after a full bunch, and after the last bunch.
+        final Map<Tuple, Tuple> entries = new TreeMap<>();
+        LongStream.range(90L, 95L).forEach(i -> entries.put(Tuple.from(i), value));
+        LongStream.range(110L, 120L).forEach(i -> entries.put(Tuple.from(i), value));
+        LongStream.range(130L, 135L).forEach(i -> entries.put(Tuple.from(i), value));
+        entries.put(Tuple.from(105L), otherValue);
+        db.run(tr -> map.putAll(tr, bmSubspace, entries).join());
+        verifyBoundaryKeys(Stream.of(90L, 100L, 110L, 120L, 130L).map(Tuple::from).collect(Collectors.toList()));
+        db.run(tr -> {
+            LongStream.range(90L, 135L).forEach(i -> {
+                final Tuple key = Tuple.from(i);
+                if (i < 95L || i >= 100L) {
+                    assertEquals(i == 105L ? otherValue : value, map.get(tr, bmSubspace, key).join().orElse(null), key.toString());
+                } else {
+                    assertFalse(map.containsKey(tr, bmSubspace, key).join(), key.toString());
+                }
+            });
+            return null;
+        });
+
+        // Nothing changes if all of the entries are already present.
+        db.run(tr -> map.putAll(tr, bmSubspace, entries).join());
+        verifyBoundaryKeys(Stream.of(90L, 100L, 110L, 120L, 130L).map(Tuple::from).collect(Collectors.toList()));
+
+        // A whole bunch, the first key of a bunch, one from the middle of a bunch, and some that are not present.
+        final List<Tuple> keys = Stream.of(125L, 90L, 91L, 92L, 93L, 94L, 110L, 97L, 200L).map(Tuple::from).collect(Collectors.toList());
+        db.run(tr -> map.removeAll(tr, bmSubspace, keys).join());
+        verifyBoundaryKeys(Stream.of(100L, 111L, 120L, 130L).map(Tuple::from).collect(Collectors.toList()));
+        db.run(tr -> {
+            LongStream.range(90L, 135L).forEach(i -> {
+                final Tuple key = Tuple.from(i);
+                assertEquals(i >= 100L && i != 110L && i != 125L, map.containsKey(tr, bmSubspace, key).join(), key.toString());
+            });
+            return null;
+        });
+    }
+
     private void verifyBoundaryKeys(@Nonnull List<Tuple> boundaryKeys) throws ExecutionException, InterruptedException {
         try (Transaction tr = db.createTransaction()) {
             map.verifyIntegrity(tr, bmSubspace).get();
@@ -0,0 +1,123 @@
+/*
+ * PackedTupleTest.java
+ *
+ * This source file is part of the FoundationDB open source project
+ *
+ * Copyright 2015-2026 Apple Inc. and the FoundationDB project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.apple.foundationdb.tuple;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for {@link PackedTuple}.
+ */
+class PackedTupleTest {
+
+    static Stream<Tuple> tuples() {
+        return Stream.of(
+                Tuple.from(),
+                Tuple.from((Object)null),
+                Tuple.from("hello", 42L, true, false),
+                Tuple.from(new byte[] {0x00, 0x01, (byte)0xff, 0x00}, "a\u0000b", ""),
+                Tuple.from(0L, 1L, -1L, 255L, -255L, 65536L, Long.MAX_VALUE, Long.MIN_VALUE),
+                Tuple.from(BigInteger.ONE.shiftLeft(100), BigInteger.ONE.shiftLeft(100).negate()),
+                Tuple.from(1.5f, -2.5d, Double.NaN, Float.NEGATIVE_INFINITY),
+                Tuple.from(UUID.fromString("12345678-1234-1234-1234-123456789abc")),
+                Tuple.from(Versionstamp.complete(new byte[] {1, 2, 3, 4, 5, 6, 7, 8, 9, 10}, 7)),
+                Tuple.from(Tuple.from("nested", null, Tuple.from(1L, null)), null, Tuple.from(), "after")
+        );
+    }
+
+    @ParameterizedTest
+    @MethodSource("tuples")
+    void elementsMatchTuple(Tuple tuple) {
+        // Embed the tuple in a larger array to check that offsets are respected
+        final byte[] packed = tuple.pack();
+        final byte[] bytes = new byte[packed.length + 4];
+        System.arraycopy(packed, 0, bytes, 2, packed.length);
+        final PackedTuple packedTuple = PackedTuple.fromBytes(bytes, 2, packed.length);
+
+        assertEquals(tuple.size(), packedTuple.size());
+        for (int i = tuple.size() - 1; i >= 0; i--) {
+            assertEquals(0, TupleHelpers.compare(Tuple.from(tuple.get(i)), Tuple.from(packedTuple.get(i))), "element " + i);
+        }
+        for (int i = 0; i <= tuple.size(); i++) {
+            assertEquals(TupleHelpers.subTuple(tuple, 0, i), packedTuple.subTuple(0, i));
+            assertEquals(TupleHelpers.subTuple(tuple, i, tuple.size()), packedTuple.subTuple(i, tuple.size()));
+        }
+        assertEquals(tuple, packedTuple.getTuple());
+        assertArrayEquals(packed, packedTuple.pack());
+        assertEquals(PackedTuple.fromTuple(tuple), packedTuple);
+        assertEquals(PackedTuple.fromTuple(tuple).hashCode(), packedTuple.hashCode());
+    }
+
+    @Test
+    void compareMatchesTuple() {
+        final List<Tuple> tuples = new ArrayList<>();
+        tuples().forEach(tuples::add);
+        tuples.add(Tuple.from("hello"));
+        tuples.add(Tuple.from("hello", 41L));
+        tuples.add(Tuple.from("hello", 42L, true, false, 1L));
+        for (Tuple t1 : tuples) {
+            for (Tuple t2 : tuples) {
+                assertEquals(Integer.signum(t1.compareTo(t2)),
+                        Integer.signum(PackedTuple.fromBytes(t1.pack()).compareTo(PackedTuple.fromBytes(t2.pack()))),
+                        () -> t1 + " vs " + t2);
+            }
+        }
+    }
+
+    @Test
+    void startsWith() {
+        final PackedTuple tuple = PackedTuple.fromBytes(Tuple.from("abc", 1L, "de").pack());
+        assertTrue(tuple.startsWith(PackedTuple.fromTuple(Tuple.from())));
+        assertTrue(tuple.startsWith(PackedTuple.fromTuple(Tuple.from("abc"))));
+        assertTrue(tuple.startsWith(PackedTuple.fromTuple(Tuple.from("abc", 1L))));
+        assertTrue(tuple.startsWith(PackedTuple.fromTuple(Tuple.from("abc", 1L, "de"))));
+        assertFalse(tuple.startsWith(PackedTuple.fromTuple(Tuple.from("ab"))));
+        assertFalse(tuple.startsWith(PackedTuple.fromTuple(Tuple.from("abc", 2L))));
+        assertFalse(tuple.startsWith(PackedTuple.fromTuple(Tuple.from("abc", 1L, "de", null))));
+        // A byte prefix that ends inside an element is not a tuple prefix
+        final byte[] partial = Arrays.copyOf(Tuple.from("abc", 1L, "d").pack(), Tuple.from("abc", 1L, "d").pack().length - 1);
+        assertFalse(tuple.startsWith(PackedTuple.fromBytes(partial)));
+    }
+
+    @Test
+    void invalidEncoding() {
+        final byte[] packed = Tuple.from("abc", 1000L).pack();
+        assertThrows(IllegalArgumentException.class, () -> PackedTuple.fromBytes(packed, 0, packed.length - 1).size());
+        assertThrows(IllegalArgumentException.class, () -> PackedTuple.fromBytes(packed, 0, 3).size());
+        assertThrows(IllegalArgumentException.class, () -> PackedTuple.fromBytes(new byte[] {0x7f}).size());
+        assertThrows(IllegalArgumentException.class, () -> PackedTuple.fromBytes(packed, 2, packed.length));
+        assertThrows(IndexOutOfBoundsException.class, () -> PackedTuple.fromBytes(packed).get(2));
+    }
+}
@@ -24,6 +24,7 @@ import com.apple.foundationdb.annotation.API;
 import com.apple.foundationdb.record.metadata.Index;
 import com.apple.foundationdb.record.metadata.Key;
 import com.apple.foundationdb.record.metadata.Key.Evaluated.NullStandin;
+import com.apple.foundationdb.tuple.PackedTuple;
 import com.apple.foundationdb.tuple.Tuple;
 import com.apple.foundationdb.tuple.TupleHelpers;
 
@@ -42,8 +43,13 @@ public class IndexEntry {
 
     @Nonnull
     private final Index index;
-    @Nonnull
-    private final Tuple key;
+    /**
+     * The key, which is decoded lazily from {@link #packedKey} if the entry was read from the database.
+     */
+    @Nullable
+    private Tuple key;
+    @Nullable
+    private final PackedTuple packedKey;
     @Nonnull
     private final Tuple value;
 
@@ -92,10 +98,26 @@ public class IndexEntry {
     public IndexEntry(@Nonnull Index index, @Nonnull Tuple key, @Nonnull Tuple value, @Nullable Tuple primaryKey) {
         this.index = index;
         this.key = key;
+        this.packedKey = null;
         this.value = value;
         this.primaryKey = primaryKey;
     }
 
+    /**
+     * Create an index entry whose key is still encoded. The key elements are only decoded as they are accessed, so
+     * that, for example, getting the primary key of the entry does not decode the indexed values.
+     * @param index the index the entry was read from
+     * @param packedKey the encoded key of the entry
+     * @param value the value of the entry
+     */
+    @API(API.Status.INTERNAL)
+    public IndexEntry(@Nonnull Index index, @Nonnull PackedTuple packedKey, @Nonnull Tuple value) {
+        this.index = index;
+        this.key = null;
+        this.packedKey = packedKey;
+        this.value = value;
+    }
+
     /**
      * Get the index associated with this entry. This entry was either created in order to
      * store within this index or it was constructed from reading this index.
@@ -117,6 +139,9 @@ public class IndexEntry {
      */
     @Nonnull
     public Tuple getKey() {
+        if (key == null) {
+            key = Objects.requireNonNull(packedKey).getTuple();
+        }
         return key;
     }
 
@@ -134,7 +159,7 @@ public class IndexEntry {
     }
 
     public int getKeySize() {
-        return key.size();
+        return key == null ? Objects.requireNonNull(packedKey).size() : key.size();
     }
 
     /**
@@ -148,7 +173,13 @@ public class IndexEntry {
     @Nonnull
     public Tuple getPrimaryKey() {
         if (primaryKey == null) {
-            primaryKey = index.getEntryPrimaryKey(key);
+            if (key == null && index.getPrimaryKeyComponentPositions() == null) {
+                // The primary key is the suffix of the key after the indexed columns, which need not be decoded
+                final PackedTuple packed = Objects.requireNonNull(packedKey);
+                primaryKey = packed.subTuple(index.getColumnSize(), packed.size());
+            } else {
+                primaryKey = index.getEntryPrimaryKey(getKey());
+            }
         }
         return primaryKey;
     }
@@ -160,7 +191,7 @@ public class IndexEntry {
      */
     @Nullable
     public Object getKeyValue(int idx) {
-        return key.get(idx);
+        return key == null ? Objects.requireNonNull(packedKey).get(idx) : key.get(idx);
     }
 
     /**
@@ -214,11 +245,12 @@ public class IndexEntry {
      */
     @Nonnull
     public IndexEntry subKey(int startIdx, int endIdx) {
-        if (startIdx == 0 && endIdx == key.size()) {
+        if (startIdx == 0 && endIdx == getKeySize()) {
             return this;
         }
 
-        IndexEntry subKey = new IndexEntry(index, TupleHelpers.subTuple(key, startIdx, endIdx), value);
+        final Tuple subTuple = key == null ? Objects.requireNonNull(packedKey).subTuple(startIdx, endIdx) : TupleHelpers.subTuple(key, startIdx, endIdx);
+        IndexEntry subKey = new IndexEntry(index, subTuple, value);
         if (nullStandins == null || nullStandins.length == 0) {
             subKey.nullStandins = nullStandins;
         } else {
@@ -251,17 +283,24 @@ public class IndexEntry {
         // It is important to use TupleHelpers.equals() here. Tuple.equals() packs the value which explodes if
         // the tuple contains an incomplete version stamp (in addition to being inefficient).
         return Objects.equals(this.index, that.index)
-               && TupleHelpers.equals(this.key, that.key)
+               && keyEquals(that)
                && TupleHelpers.equals(this.value, that.value);
     }
 
+    private boolean keyEquals(@Nonnull IndexEntry that) {
+        if (this.key == null && that.key == null) {
+            return Objects.requireNonNull(this.packedKey).equals(that.packedKey);
+        }
+        return TupleHelpers.equals(this.getKey(), that.getKey());
+    }
+
     @Override
     public int hashCode() {
-        return Objects.hash(index, key, value);
+        return Objects.hash(index, getKey(), value);
     }
 
     @Override
     public String toString() {
-        return index.getName() + ":" + key + ":" + value;
+        return index.getName() + ":" + getKey() + ":" + value;
     }
 }
@@ -24,6 +24,7 @@ import com.apple.foundationdb.annotation.API;
 import com.apple.foundationdb.annotation.SpotBugsSuppressWarnings;
 import com.apple.foundationdb.async.AsyncIterator;
 import com.apple.foundationdb.async.AsyncUtil;
+import com.apple.foundationdb.record.cursors.AdaptivePipelineSize;
 import com.apple.foundationdb.record.cursors.AsyncIteratorCursor;
 import com.apple.foundationdb.record.cursors.EmptyCursor;
 import com.apple.foundationdb.record.cursors.FilterCursor;
@@ -567,6 +568,20 @@ public interface RecordCursor<T> extends AutoCloseable {
         return new MapPipelinedCursor<>(this, func, pipelineSize);
     }
 
+    /**
+     * Get a new cursor by applying the given asynchronous function to the records in this cursor, with a number of
+     * futures started ahead of time that adapts to how long the function takes and how fast the results are consumed.
+     * @param func the function to apply to each record
+     * @param pipelineSize the adaptive number of futures from applications of the mapping function to start ahead of time
+     * @param <V> the result type of the mapping function
+     * @return a new cursor that applies the given function to each record
+     */
+    @API(API.Status.EXPERIMENTAL)
+    @Nonnull
+    default <V> RecordCursor<V> mapPipelined(@Nonnull Function<T, CompletableFuture<V>> func, @Nonnull AdaptivePipelineSize pipelineSize) {
+        return new MapPipelinedCursor<>(this, func, pipelineSize);
+    }
+
     /**
      * Apply a given cursor generating function to each result from an outer cursor and chain the results together.
      * Users should typically supply a {@code checker} function for safety. For more details, see
@@ -0,0 +1,168 @@
+/*
+ * AdaptivePipelineSize.java
+ *
+ * This source file is part of the FoundationDB open source project
+ *
+ * Copyright 2015-2026 Apple Inc. and the FoundationDB project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.apple.foundationdb.record.cursors;
+
+import com.apple.foundationdb.annotation.API;
+import com.apple.foundationdb.record.RecordCoreArgumentException;
+import com.apple.foundationdb.record.logging.LogMessageKeys;
+import com.apple.foundationdb.record.provider.common.StoreTimer;
+import com.apple.foundationdb.record.provider.foundationdb.FDBStoreTimer;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * The number of elements a {@link MapPipelinedCursor} keeps in flight, adjusted as the cursor runs.
+ *
+ * <p>
+ * The size starts out small, so that a consumer that only wants a few results, such as a query with a low limit,
+ * does not start many operations whose results are never used. Each time the consumer asks for a result that is not
+ * ready yet, the size is doubled, up to a target. The target is derived from the observed latency of the operations
+ * and the time the consumer spends between asking for results: to keep a consumer that asks for a result every
+ * {@code c} nanoseconds busy with operations that take {@code l} nanoseconds, about {@code l / c} of them need to be
+ * in flight. When results are ready before the consumer asks for them and the size is above the target, it is
+ * reduced by one.
+ * </p>
+ *
+ * <p>
+ * Every change to the size is counted by the {@link StoreTimer}, if there is one, as
+ * {@link FDBStoreTimer.Counts#ADAPTIVE_PIPELINE_GROW} or {@link FDBStoreTimer.Counts#ADAPTIVE_PIPELINE_SHRINK}.
+ * </p>
+ *
+ * <p>
+ * Operation latencies are reported from whichever thread completes them, so the methods of this class are
+ * synchronized.
+ * </p>
+ */
+@API(API.Status.EXPERIMENTAL)
+public class AdaptivePipelineSize {
+    /**
+     * The weight of the newest sample in the moving averages of latency and consumer time.
+     */
+    private static final double SMOOTHING = 0.2;
+
+    private final int minSize;
+    private final int maxSize;
+    @Nullable
+    private final StoreTimer timer;
+
+    private int size;
+    private double latencyNanos = -1.0;
+    private double consumerNanos = -1.0;
+    private long lastResultNanos = -1L;
+
+    /**
+     * Create a new adaptive pipeline size.
+     * @param minSize the smallest size, which is also the initial size
+     * @param maxSize the largest size
+     * @param timer the timer used to count changes to the size
+     */
+    public AdaptivePipelineSize(int minSize, int maxSize, @Nullable StoreTimer timer) {
+        if (minSize < 1 || maxSize < minSize) {
+            throw new RecordCoreArgumentException("invalid adaptive pipeline size bounds")
+                    .addLogInfo(LogMessageKeys.MIN_PIPELINE_SIZE, minSize)
+                    .addLogInfo(LogMessageKeys.MAX_PIPELINE_SIZE, maxSize);
+        }
+        this.minSize = minSize;
+        this.maxSize = maxSize;
+        this.timer = timer;
+        this.size = minSize;
+    }
+
+    public int getMinSize() {
+        return minSize;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Get the current number of elements to keep in flight.
+     * @return the current pipeline size
+     */
+    public synchronized int getPipelineSize() {
+        return size;
+    }
+
+    /**
+     * Record the latency of one operation of the pipeline.
+     * @param nanos the time from starting the operation to its completion
+     */
+    public synchronized void recordLatency(long nanos) {
+        latencyNanos = smooth(latencyNanos, nanos);
+    }
+
+    /**
+     * Record that the consumer has asked for the next result.
+     * @param nowNanos the current {@link System#nanoTime()}
+     */
+    public synchronized void onRequest(long nowNanos) {
+        if (lastResultNanos >= 0) {
+            consumerNanos = smooth(consumerNanos, Math.max(0L, nowNanos - lastResultNanos));
+        }
+    }
+
+    /**
+     * Record that a result has been returned to the consumer and adjust the size accordingly.
+     * @param stalled whether the result was not ready yet when the consumer asked for it
+     * @param nowNanos the current {@link System#nanoTime()}
+     */
+    public synchronized void onResult(boolean stalled, long nowNanos) {
+        lastResultNanos = nowNanos;
+        final int target = getTargetSize();
+        if (stalled && size < target) {
+            size = (int)Math.min((long)size * 2, target);
+            increment(FDBStoreTimer.Counts.ADAPTIVE_PIPELINE_GROW);
+        } else if (!stalled && size > target) {
+            size--;
+            increment(FDBStoreTimer.Counts.ADAPTIVE_PIPELINE_SHRINK);
+        }
+    }
+
+    /**
+     * Get the size that would keep the consumer from waiting, given the latency and consumer time seen so far.
+     * @return the target pipeline size, between the minimum and maximum sizes
+     */
+    synchronized int getTargetSize() {
+        if (latencyNanos < 0 || consumerNanos <= 0) {
+            // Until there is something to go by, or if the consumer does not spend any time of its own, allow growing all the way.
+            return maxSize;
+        }
+        final double target = Math.ceil(latencyNanos / consumerNanos) + 1;
+        return (int)Math.max(minSize, Math.min(maxSize, target));
+    }
+
+    private void increment(@Nonnull StoreTimer.Count count) {
+        if (timer != null) {
+            timer.increment(count);
+        }
+    }
+
+    private static double smooth(double average, long sample) {
+        return average < 0 ? sample : average + SMOOTHING * (sample - average);
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "AdaptivePipelineSize{" + size + " in [" + minSize + ", " + maxSize + "]}";
+    }
+}
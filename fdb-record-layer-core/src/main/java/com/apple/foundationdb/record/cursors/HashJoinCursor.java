@@ -0,0 +1,237 @@
+/*
+ * HashJoinCursor.java
+ *
+ * This source file is part of the FoundationDB open source project
+ *
+ * Copyright 2015-2026 Apple Inc. and the FoundationDB project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.apple.foundationdb.record.cursors;
+
+import com.apple.foundationdb.annotation.API;
+import com.apple.foundationdb.async.AsyncUtil;
+import com.apple.foundationdb.record.RecordCoreException;
+import com.apple.foundationdb.record.RecordCursor;
+import com.apple.foundationdb.record.RecordCursorResult;
+import com.apple.foundationdb.record.RecordCursorVisitor;
+import com.apple.foundationdb.record.logging.LogMessageKeys;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * A cursor that implements an equi-join of two inputs by building an in-memory hash table over one of them (the
+ * <em>build</em> side) and then streaming the other one (the <em>probe</em> side), looking up the matching build
+ * elements for each probe element.
+ *
+ * <p>
+ * The build side is read in its entirety before the first result is returned, and is read again every time the cursor
+ * is resumed from a continuation, as only the position within the probe side is carried in the continuation. Elements
+ * for which the key function returns {@code null} never match anything. The number of build elements that are held in
+ * memory is bounded by a maximum build size; exceeding it fails the cursor rather than silently consuming unbounded
+ * heap.
+ * </p>
+ *
+ * <p>
+ * As the build side has to be read completely every time, it must not be subject to scan or time limits. If it stops
+ * early for an out-of-band reason nonetheless, this cursor fails, as a continuation that restarts the join would just
+ * stop at the same place again.
+ * </p>
+ *
+ * <p>
+ * For each probe element, the matching build elements are returned in the order in which the build side produced them,
+ * so the join preserves the order of the probe side.
+ * </p>
+ *
+ * @param <P> the type of elements of the probe side
+ * @param <B> the type of elements of the build side
+ * @param <V> the type of elements of the cursor
+ */
+@API(API.Status.EXPERIMENTAL)
+public class HashJoinCursor<P, B, V> implements RecordCursor<V> {
+    /**
+     * The default maximum number of elements of the build side that are held in memory.
+     */
+    public static final int DEFAULT_MAX_BUILD_SIZE = 100_000;
+
+    @Nonnull
+    private final Function<byte[], ? extends RecordCursor<P>> probeCursorFunction;
+    @Nonnull
+    private final RecordCursor<B> buildCursor;
+    @Nonnull
+    private final Function<? super B, ?> buildKeyFunction;
+    @Nonnull
+    private final Function<? super P, ?> probeKeyFunction;
+    @Nonnull
+    private final BiFunction<? super P, ? super B, ? extends V> joinFunction;
+    private final int maxBuildSize;
+    private final int pipelineSize;
+    @Nullable
+    private final byte[] continuation;
+    @Nonnull
+    private final Map<Object, List<B>> hashTable;
+    private int buildSize;
+
+    @Nullable
+    private RecordCursor<V> probeCursor;
+    @Nullable
+    private RecordCursorResult<V> nextResult;
+    private boolean closed;
+
+    /**
+     * Creates a new hash join cursor.
+     * @param probeCursorFunction a function that takes a continuation and returns the cursor over the probe side
+     * @param buildCursor the cursor over the build side
+     * @param probeKeyFunction a function computing the join key of a probe element
+     * @param buildKeyFunction a function computing the join key of a build element
+     * @param joinFunction a function combining a probe element and a matching build element into a result
+     * @param maxBuildSize the maximum number of build elements held in memory
+     * @param pipelineSize the number of probe elements to work ahead
+     * @param continuation the continuation returned from a previous instance of this cursor or {@code null} at start
+     */
+    public HashJoinCursor(@Nonnull Function<byte[], ? extends RecordCursor<P>> probeCursorFunction,
+                          @Nonnull RecordCursor<B> buildCursor,
+                          @Nonnull Function<? super P, ?> probeKeyFunction,
+                          @Nonnull Function<? super B, ?> buildKeyFunction,
+                          @Nonnull BiFunction<? super P, ? super B, ? extends V> joinFunction,
+                          int maxBuildSize,
+                          int pipelineSize,
+                          @Nullable byte[] continuation) {
+        this.probeCursorFunction = probeCursorFunction;
+        this.buildCursor = buildCursor;
+        this.probeKeyFunction = probeKeyFunction;
+        this.buildKeyFunction = buildKeyFunction;
+        this.joinFunction = joinFunction;
+        this.maxBuildSize = maxBuildSize;
+        this.pipelineSize = pipelineSize;
+        this.continuation = continuation;
+        this.hashTable = new HashMap<>();
+    }
+
+    @Nonnull
+    @Override
+    public CompletableFuture<RecordCursorResult<V>> onNext() {
+        if (nextResult != null && !nextResult.hasNext()) {
+            return CompletableFuture.completedFuture(nextResult);
+        }
+        if (probeCursor != null) {
+            return probeCursor.onNext().thenApply(this::postProcess);
+        }
+        return build().thenCompose(buildResult -> {
+            if (!buildResult.getNoNextReason().isSourceExhausted()) {
+                // Only the probe position is in the continuation, so resuming would read the same part of the build
+                // side again and stop at the same place forever.
+                throw new RecordCoreException("hash join build side did not complete")
+                        .addLogInfo(LogMessageKeys.NO_NEXT_REASON, buildResult.getNoNextReason());
+            }
+            probeCursor = RecordCursor.flatMapPipelined(probeCursorFunction,
+                    (probe, innerContinuation) ->
+                            RecordCursor.fromList(getExecutor(), matches(probe), innerContinuation)
+                                    .<V>map(element -> joinFunction.apply(probe, element)),
+                    continuation, pipelineSize);
+            return probeCursor.onNext().thenApply(this::postProcess);
+        });
+    }
+
+    @Nonnull
+    private CompletableFuture<RecordCursorResult<B>> build() {
+        final AtomicReference<RecordCursorResult<B>> lastResult = new AtomicReference<>();
+        return AsyncUtil.whileTrue(() -> buildCursor.onNext().thenApply(result -> {
+            lastResult.set(result);
+            if (!result.hasNext()) {
+                return false;
+            }
+            final B element = result.get();
+            final Object key = buildKeyFunction.apply(element);
+            if (key != null) {
+                if (++buildSize > maxBuildSize) {
+                    throw new RecordCoreException("hash join build side exceeds maximum size")
+                            .addLogInfo(LogMessageKeys.LIMIT, maxBuildSize);
+                }
+                hashTable.computeIfAbsent(key, ignored -> new ArrayList<>()).add(element);
+            }
+            return true;
+        }), getExecutor()).thenApply(ignored -> lastResult.get());
+    }
+
+    @Nonnull
+    private List<B> matches(@Nonnull P probe) {
+        final Object key = probeKeyFunction.apply(probe);
+        if (key == null) {
+            return Collections.emptyList();
+        }
+        final List<B> matches = hashTable.get(key);
+        return matches == null ? Collections.emptyList() : matches;
+    }
+
+    @Nonnull
+    private RecordCursorResult<V> postProcess(@Nonnull RecordCursorResult<V> result) {
+        nextResult = result;
+        return result;
+    }
+
+    /**
+     * Get the number of build elements held in the hash table.
+     * @return the number of build elements read so far that have a non-{@code null} key
+     */
+    public int getBuildSize() {
+        return buildSize;
+    }
+
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        buildCursor.close();
+        if (probeCursor != null) {
+            probeCursor.close();
+        }
+        hashTable.clear();
+        closed = true;
+    }
+
+    @Override
+    public boolean isClosed() {
+        return closed;
+    }
+
+    @Nonnull
+    @Override
+    public Executor getExecutor() {
+        return buildCursor.getExecutor();
+    }
+
+    @Override
+    public boolean accept(@Nonnull RecordCursorVisitor visitor) {
+        if (visitor.visitEnter(this)) {
+            buildCursor.accept(visitor);
+            if (probeCursor != null) {
+                probeCursor.accept(visitor);
+            }
+        }
+        return visitor.visitLeave(this);
+    }
+}
@@ -44,6 +44,11 @@ import java.util.function.Function;
  * The cursor is <i>pipelined</i>, that is, it maintains up to a specified number of pending futures ahead of what it has returned,
  * so that work is done in parallel.
  * </p>
+ *
+ * <p>
+ * The number of pending futures is either fixed or given by an {@link AdaptivePipelineSize}, which adjusts it to
+ * the latency of the function and the rate at which results are consumed.
+ * </p>
  * @param <T> the type of elements of the source cursor
  * @param <V> the type of elements of the cursor after applying the function and completing the future it returns
  */
@@ -56,6 +61,8 @@ public class MapPipelinedCursor<T, V> implements RecordCursor<V> {
     @Nonnull
     private final Function<T, CompletableFuture<V>> func;
     private final int pipelineSize;
+    @Nullable
+    private final AdaptivePipelineSize adaptivePipelineSize;
     /**
      * The pipeline, note this queue is not thread safe, so interactions must be in the same future pipeline.
      */
@@ -74,15 +81,37 @@ public class MapPipelinedCursor<T, V> implements RecordCursor<V> {
         this.inner = inner;
         this.func = func;
         this.pipelineSize = pipelineSize;
+        this.adaptivePipelineSize = null;
         this.pipeline = new ArrayDeque<>(pipelineSize);
     }
 
+    public MapPipelinedCursor(@Nonnull RecordCursor<T> inner, @Nonnull Function<T, CompletableFuture<V>> func,
+                              @Nonnull AdaptivePipelineSize adaptivePipelineSize) {
+        this.inner = inner;
+        this.func = t -> {
+            final long startTime = System.nanoTime();
+            return func.apply(t).whenComplete((vignore, errignore) -> adaptivePipelineSize.recordLatency(System.nanoTime() - startTime));
+        };
+        this.pipelineSize = adaptivePipelineSize.getMaxSize();
+        this.adaptivePipelineSize = adaptivePipelineSize;
+        this.pipeline = new ArrayDeque<>(adaptivePipelineSize.getMinSize());
+    }
+
     @Nonnull
     @Override
     public CompletableFuture<RecordCursorResult<V>> onNext() {
         if (nextResult != null && !nextResult.hasNext()) {
             return CompletableFuture.completedFuture(nextResult);
         }
+        final boolean stalled;
+        if (adaptivePipelineSize != null) {
+            adaptivePipelineSize.onRequest(System.nanoTime());
+            // Before the first result, the pipeline is empty because it has not been filled yet, not because it could not keep up.
+            final CompletableFuture<RecordCursorResult<V>> nextEntry = pipeline.peek();
+            stalled = nextEntry == null ? nextResult != null : !nextEntry.isDone();
+        } else {
+            stalled = false;
+        }
         return AsyncUtil.whileTrue(this::tryToFillPipeline, getExecutor())
                 .thenCompose(vignore -> pipeline.peek())
                 .thenApply(result -> {
@@ -91,12 +120,19 @@ public class MapPipelinedCursor<T, V> implements RecordCursor<V> {
                     // in which case this callback won't be run)
                     if (result.hasNext()) {
                         pipeline.remove();
+                        if (adaptivePipelineSize != null) {
+                            adaptivePipelineSize.onResult(stalled, System.nanoTime());
+                        }
                     }
                     nextResult = result;
                     return result;
                 });
     }
 
+    private int getPipelineSize() {
+        return adaptivePipelineSize == null ? pipelineSize : adaptivePipelineSize.getPipelineSize();
+    }
+
     @Override
     public void close() {
         closed = true;
@@ -134,7 +170,7 @@ public class MapPipelinedCursor<T, V> implements RecordCursor<V> {
         if (closed) {
             return cancellAll();
         }
-        while (!innerExhausted && pipeline.size() < pipelineSize) {
+        while (!innerExhausted && pipeline.size() < getPipelineSize()) {
             if (closed) {
                 return cancellAll();
             }
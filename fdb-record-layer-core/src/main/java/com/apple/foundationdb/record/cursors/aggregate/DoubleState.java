@@ -74,10 +74,10 @@ public class DoubleState implements AccumulatorState<Double, Double> {
                 currentState = 0.0d;
                 break;
             case MIN:
-                currentState = Double.MAX_VALUE;
+                currentState = Double.POSITIVE_INFINITY;
                 break;
             case MAX:
-                currentState = Double.MIN_VALUE;
+                currentState = Double.NEGATIVE_INFINITY;
                 break;
             default:
                 break;
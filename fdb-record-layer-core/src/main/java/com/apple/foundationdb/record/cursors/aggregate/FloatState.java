@@ -74,10 +74,10 @@ public class FloatState implements AccumulatorState<Float, Float> {
                 currentState = 0.0f;
                 break;
             case MIN:
-                currentState = Float.MAX_VALUE;
+                currentState = Float.POSITIVE_INFINITY;
                 break;
             case MAX:
-                currentState = Float.MIN_VALUE;
+                currentState = Float.NEGATIVE_INFINITY;
                 break;
             default:
                 break;
@@ -0,0 +1,258 @@
+/*
+ * HashAggregateCursor.java
+ *
+ * This source file is part of the FoundationDB open source project
+ *
+ * Copyright 2015-2026 Apple Inc. and the FoundationDB project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.apple.foundationdb.record.cursors.aggregate;
+
+import com.apple.foundationdb.annotation.API;
+import com.apple.foundationdb.async.AsyncUtil;
+import com.apple.foundationdb.record.RecordCoreException;
+import com.apple.foundationdb.record.RecordCursor;
+import com.apple.foundationdb.record.RecordCursorContinuation;
+import com.apple.foundationdb.record.RecordCursorProto;
+import com.apple.foundationdb.record.RecordCursorResult;
+import com.apple.foundationdb.record.RecordCursorVisitor;
+import com.apple.foundationdb.record.logging.LogMessageKeys;
+import com.apple.foundationdb.record.query.plan.cascades.values.Accumulator;
+import com.apple.foundationdb.record.query.plan.plans.QueryResult;
+import com.apple.foundationdb.tuple.ByteArrayUtil2;
+import com.google.protobuf.ByteString;
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.Message;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A cursor that groups incoming records by the given grouping criteria without requiring them to be ordered by it.
+ *
+ * <p>
+ * The groups are kept in memory by a {@link HashGrouping}, up to some maximum number of groups. The records of any
+ * further groups are not accumulated there; they are the input of an <em>overflow</em> cursor instead, which aggregates
+ * them some other way, typically by sorting them using files on local disk and then aggregating them with a
+ * {@link StreamGrouping}. The overflow cursor reads all of the records before returning its first result, so all
+ * the groups in memory are complete once it returns anything. Its results are returned first, followed by those of
+ * the groups in memory. The overflow cursor is expected to read all of the records in a single execution; if it
+ * stops early, this cursor fails.
+ * </p>
+ *
+ * <p>
+ * A continuation does not refer to anything that only exists in the process that returned it. Once there are no more
+ * than some maximum number of groups left to return, and those are all in memory, the continuation holds their state.
+ * Otherwise, it only holds the number of groups that have been returned so far: a later execution aggregates all of
+ * the records again and skips that many groups, which come out in the same order as long as the records do.
+ * </p>
+ *
+ * @param <M> the record type that holds the actual data
+ */
+@API(API.Status.EXPERIMENTAL)
+public class HashAggregateCursor<M extends Message> implements RecordCursor<QueryResult> {
+    /**
+     * The default maximum number of groups kept in memory.
+     */
+    public static final int DEFAULT_MAX_GROUP_COUNT = 10_000;
+    /**
+     * The default maximum number of groups whose state is included in a continuation.
+     */
+    public static final int DEFAULT_MAX_CONTINUATION_GROUP_COUNT = 100;
+
+    @Nonnull
+    private final RecordCursor<QueryResult> overflow;
+    @Nonnull
+    private final HashGrouping<M> hashGrouping;
+    private final int maxContinuationGroupCount;
+    private boolean overflowExhausted;
+    private int nextGroup;
+    private long returnedGroupCount;
+    private long groupsToSkip;
+
+    /**
+     * Create a new hash aggregation cursor.
+     * @param overflow cursor over the aggregates of those records that {@code hashGrouping} did not accept
+     * @param hashGrouping the groups held in memory
+     * @param overflowExhausted whether {@code overflow} has already been exhausted by a previous execution, so that
+     * {@code hashGrouping} holds just the groups that remain to be returned
+     * @param returnedGroupCount the number of groups returned by previous executions, which are skipped unless
+     * {@code overflowExhausted}
+     * @param maxContinuationGroupCount the maximum number of groups whose state is included in a continuation
+     */
+    public HashAggregateCursor(@Nonnull RecordCursor<QueryResult> overflow,
+                               @Nonnull HashGrouping<M> hashGrouping,
+                               boolean overflowExhausted,
+                               long returnedGroupCount,
+                               int maxContinuationGroupCount) {
+        this.overflow = overflow;
+        this.hashGrouping = hashGrouping;
+        this.overflowExhausted = overflowExhausted;
+        this.maxContinuationGroupCount = maxContinuationGroupCount;
+        this.returnedGroupCount = returnedGroupCount;
+        this.groupsToSkip = overflowExhausted ? 0 : returnedGroupCount;
+    }
+
+    @Nonnull
+    @Override
+    public CompletableFuture<RecordCursorResult<QueryResult>> onNext() {
+        if (groupsToSkip == 0) {
+            return nextUnskipped();
+        }
+        // skip the groups returned by previous executions
+        final AtomicReference<RecordCursorResult<QueryResult>> nextResult = new AtomicReference<>();
+        return AsyncUtil.whileTrue(() -> nextUnskipped().thenApply(result -> {
+            if (result.hasNext() && groupsToSkip > 0) {
+                groupsToSkip--;
+                return true;
+            }
+            nextResult.set(result);
+            return false;
+        }), getExecutor()).thenApply(vignore -> nextResult.get());
+    }
+
+    @Nonnull
+    private CompletableFuture<RecordCursorResult<QueryResult>> nextUnskipped() {
+        if (overflowExhausted) {
+            return CompletableFuture.completedFuture(nextGroupResult());
+        }
+        return overflow.onNext().thenApply(overflowResult -> {
+            if (overflowResult.hasNext()) {
+                returnedGroupCount++;
+                return RecordCursorResult.withNextValue(overflowResult.get(), new HashAggregateContinuation(returnedGroupCount));
+            }
+            if (overflowResult.getNoNextReason().isSourceExhausted()) {
+                overflowExhausted = true;
+                return nextGroupResult();
+            }
+            throw new RecordCoreException("hash aggregation input did not complete")
+                    .addLogInfo(LogMessageKeys.NO_NEXT_REASON, overflowResult.getNoNextReason());
+        });
+    }
+
+    @Nonnull
+    private RecordCursorResult<QueryResult> nextGroupResult() {
+        final List<Map.Entry<Object, Accumulator>> groups = hashGrouping.freeze();
+        if (nextGroup >= groups.size()) {
+            return RecordCursorResult.exhausted();
+        }
+        final Object groupResult = hashGrouping.getGroupResult(groups.get(nextGroup));
+        nextGroup++;
+        returnedGroupCount++;
+        final HashAggregateContinuation continuation = groups.size() - nextGroup <= maxContinuationGroupCount
+                                                       ? new HashAggregateContinuation(groups.subList(nextGroup, groups.size()))
+                                                       : new HashAggregateContinuation(returnedGroupCount);
+        return RecordCursorResult.withNextValue(QueryResult.ofComputed(groupResult), continuation);
+    }
+
+    @Override
+    public void close() {
+        overflow.close();
+    }
+
+    @Override
+    public boolean isClosed() {
+        return overflow.isClosed();
+    }
+
+    @Nonnull
+    @Override
+    public Executor getExecutor() {
+        return overflow.getExecutor();
+    }
+
+    @Override
+    public boolean accept(@Nonnull RecordCursorVisitor visitor) {
+        if (visitor.visitEnter(this)) {
+            overflow.accept(visitor);
+        }
+        return visitor.visitLeave(this);
+    }
+
+    /**
+     * Continuation for {@link HashAggregateCursor}. The groups are only serialized if the continuation is.
+     */
+    public static class HashAggregateContinuation implements RecordCursorContinuation {
+        private final long returnedGroupCount;
+        @Nullable
+        private final List<Map.Entry<Object, Accumulator>> remainingGroups;
+        @Nullable
+        private RecordCursorProto.HashAggregateContinuation cachedProto;
+
+        private HashAggregateContinuation(long returnedGroupCount) {
+            this.returnedGroupCount = returnedGroupCount;
+            this.remainingGroups = null;
+        }
+
+        private HashAggregateContinuation(@Nonnull List<Map.Entry<Object, Accumulator>> remainingGroups) {
+            this.returnedGroupCount = 0;
+            this.remainingGroups = remainingGroups;
+        }
+
+        @Nonnull
+        @Override
+        public ByteString toByteString() {
+            return isEnd() ? ByteString.EMPTY : toProto().toByteString();
+        }
+
+        @Nullable
+        @Override
+        public byte[] toBytes() {
+            ByteString byteString = toByteString();
+            return byteString.isEmpty() ? null : byteString.toByteArray();
+        }
+
+        @Override
+        public boolean isEnd() {
+            return remainingGroups != null && remainingGroups.isEmpty();
+        }
+
+        @Nonnull
+        private RecordCursorProto.HashAggregateContinuation toProto() {
+            if (cachedProto == null) {
+                final RecordCursorProto.HashAggregateContinuation.Builder builder = RecordCursorProto.HashAggregateContinuation.newBuilder();
+                if (remainingGroups == null) {
+                    builder.setReturnedGroupCount(returnedGroupCount);
+                } else {
+                    for (Map.Entry<Object, Accumulator> group : remainingGroups) {
+                        builder.addGroups(HashGrouping.getPartialAggregationResult(group));
+                    }
+                }
+                cachedProto = builder.build();
+            }
+            return cachedProto;
+        }
+
+        /**
+         * Parse a continuation returned by a previous execution.
+         * @param rawBytes the serialized continuation
+         * @return the parsed continuation
+         */
+        @Nonnull
+        public static RecordCursorProto.HashAggregateContinuation fromRawBytes(@Nonnull byte[] rawBytes) {
+            try {
+                return RecordCursorProto.HashAggregateContinuation.parseFrom(rawBytes);
+            } catch (InvalidProtocolBufferException ex) {
+                throw new RecordCoreException("error parsing continuation", ex)
+                        .addLogInfo(LogMessageKeys.RAW_BYTES, ByteArrayUtil2.loggable(rawBytes));
+            }
+        }
+    }
+}
@@ -0,0 +1,201 @@
+/*
+ * HashGrouping.java
+ *
+ * This source file is part of the FoundationDB open source project
+ *
+ * Copyright 2015-2026 Apple Inc. and the FoundationDB project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.apple.foundationdb.record.cursors.aggregate;
+
+import com.apple.foundationdb.annotation.API;
+import com.apple.foundationdb.record.Bindings;
+import com.apple.foundationdb.record.EvaluationContext;
+import com.apple.foundationdb.record.RecordCoreException;
+import com.apple.foundationdb.record.RecordCursorProto;
+import com.apple.foundationdb.record.logging.LogMessageKeys;
+import com.apple.foundationdb.record.provider.foundationdb.FDBRecordStoreBase;
+import com.apple.foundationdb.record.query.plan.cascades.CorrelationIdentifier;
+import com.apple.foundationdb.record.query.plan.cascades.values.Accumulator;
+import com.apple.foundationdb.record.query.plan.cascades.values.AggregateValue;
+import com.apple.foundationdb.record.query.plan.cascades.values.Value;
+import com.apple.foundationdb.tuple.ByteArrayUtil2;
+import com.google.common.collect.ImmutableList;
+import com.google.protobuf.Descriptors;
+import com.google.protobuf.DynamicMessage;
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.Message;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * HashGrouping places records into groups, based on grouping criteria, by keeping an {@link Accumulator} for each
+ * group in a hash table. Unlike {@link StreamGrouping}, the records do not need to be ordered by the grouping criteria,
+ * but all the groups are kept in memory until all the records have been seen.
+ * <p>
+ * The number of groups is bounded. Once the maximum number of groups is reached, a record that belongs to a group
+ * that is already in the table is still accumulated into it, but a record of any other group is rejected by
+ * {@link #apply}, so that the caller can aggregate those records some other way.
+ * </p>
+ * Once all the records have been seen, the groups are {@linkplain #freeze() frozen} and returned one at a time.
+ *
+ * @param <M> the type of content (message) that is in the store
+ */
+@API(API.Status.INTERNAL)
+public class HashGrouping<M extends Message> {
+    @Nonnull
+    private final Value groupingKeyValue;
+    @Nonnull
+    private final AggregateValue aggregateValue;
+    @Nonnull
+    private final Value completeResultValue;
+    @Nonnull
+    private final CorrelationIdentifier groupingKeyAlias;
+    @Nonnull
+    private final CorrelationIdentifier aggregateAlias;
+    @Nonnull
+    private final FDBRecordStoreBase<M> store;
+    @Nonnull
+    private final EvaluationContext context;
+    @Nonnull
+    private final CorrelationIdentifier alias;
+    private final int maxGroupCount;
+    @Nonnull
+    private final Map<Object, Accumulator> groups;
+    @Nullable
+    private List<Map.Entry<Object, Accumulator>> frozenGroups;
+
+    /**
+     * Create a new group aggregator.
+     *
+     * @param groupingKeyValue the grouping key
+     * @param aggregateValue the aggregate values that will accumulate the fields
+     * @param completeResultValue the {@link Value} of the aggregate results
+     * @param groupingKeyAlias the identifier of {@code groupingKeyValue}
+     * @param aggregateAlias the identifier of {@code aggregateValue}
+     * @param store record store from which to fetch records
+     * @param context evaluation context containing parameter bindings
+     * @param alias the quantifier alias for the value evaluation
+     * @param maxGroupCount the maximum number of groups to keep
+     * @param partialAggregationResults the groups of a previous execution to resume, if any
+     */
+    public HashGrouping(@Nonnull final Value groupingKeyValue,
+                        @Nonnull final AggregateValue aggregateValue,
+                        @Nonnull final Value completeResultValue,
+                        @Nonnull final CorrelationIdentifier groupingKeyAlias,
+                        @Nonnull final CorrelationIdentifier aggregateAlias,
+                        @Nonnull final FDBRecordStoreBase<M> store,
+                        @Nonnull final EvaluationContext context,
+                        @Nonnull final CorrelationIdentifier alias,
+                        final int maxGroupCount,
+                        @Nullable final List<RecordCursorProto.PartialAggregationResult> partialAggregationResults) {
+        this.groupingKeyValue = groupingKeyValue;
+        this.aggregateValue = aggregateValue;
+        this.completeResultValue = completeResultValue;
+        this.groupingKeyAlias = groupingKeyAlias;
+        this.aggregateAlias = aggregateAlias;
+        this.store = store;
+        this.context = context;
+        this.alias = alias;
+        this.maxGroupCount = maxGroupCount;
+        // Keep the groups in the order they were first seen, so that resuming returns them in the same order.
+        this.groups = new LinkedHashMap<>();
+        if (partialAggregationResults != null) {
+            final Descriptors.Descriptor groupKeyDescriptor =
+                    context.getTypeRepository().newMessageBuilder(groupingKeyValue.getResultType()).getDescriptorForType();
+            for (RecordCursorProto.PartialAggregationResult partialAggregationResult : partialAggregationResults) {
+                final Object groupKey;
+                try {
+                    groupKey = DynamicMessage.parseFrom(groupKeyDescriptor, partialAggregationResult.getGroupKey());
+                } catch (InvalidProtocolBufferException ex) {
+                    throw new RecordCoreException("invalid group key in continuation", ex)
+                            .addLogInfo(LogMessageKeys.RAW_BYTES, ByteArrayUtil2.loggable(partialAggregationResult.getGroupKey().toByteArray()));
+                }
+                // a group none of whose aggregates have accumulated anything yet has no states
+                final List<RecordCursorProto.AccumulatorState> accumulatorStates = partialAggregationResult.getAccumulatorStatesList();
+                groups.put(groupKey, aggregateValue.createAccumulatorWithInitialState(context.getTypeRepository(),
+                        accumulatorStates.isEmpty() ? null : accumulatorStates));
+            }
+        }
+    }
+
+    /**
+     * Accumulate the next record into its group, unless that would exceed the maximum number of groups.
+     *
+     * @param currentObject the next object to process
+     * @return {@code true} if the record was accumulated and {@code false} if it belongs to a group that is not
+     * in the table and there is no room for another
+     */
+    public boolean apply(@Nullable Object currentObject) {
+        final EvaluationContext nestedContext = context.withBinding(Bindings.Internal.CORRELATION, alias, currentObject);
+        final Object groupKey = groupingKeyValue.eval(store, nestedContext);
+        Accumulator accumulator = groups.get(groupKey);
+        if (accumulator == null) {
+            if (groups.size() >= maxGroupCount) {
+                return false;
+            }
+            accumulator = aggregateValue.createAccumulatorWithInitialState(context.getTypeRepository(), null);
+            groups.put(groupKey, accumulator);
+        }
+        accumulator.accumulate(aggregateValue.evalToPartial(store, nestedContext));
+        return true;
+    }
+
+    /**
+     * Stop accepting records and get the groups.
+     *
+     * @return the groups in the order they were first seen
+     */
+    @Nonnull
+    public List<Map.Entry<Object, Accumulator>> freeze() {
+        if (frozenGroups == null) {
+            frozenGroups = ImmutableList.copyOf(groups.entrySet());
+        }
+        return frozenGroups;
+    }
+
+    /**
+     * Get the result for a group.
+     *
+     * @param group a group returned by {@link #freeze()}
+     * @return the grouping criteria and accumulated values of the group
+     */
+    @Nullable
+    public Object getGroupResult(@Nonnull Map.Entry<Object, Accumulator> group) {
+        final EvaluationContext nestedContext = context.childBuilder()
+                .setBinding(groupingKeyAlias, group.getKey())
+                .setBinding(aggregateAlias, group.getValue().finish())
+                .build(context.getTypeRepository());
+        return completeResultValue.eval(store, nestedContext);
+    }
+
+    /**
+     * Get the state of a group, so that it can be resumed in a continuation.
+     *
+     * @param group a group returned by {@link #freeze()}
+     * @return the grouping criteria and accumulator states of the group
+     */
+    @Nonnull
+    public static RecordCursorProto.PartialAggregationResult getPartialAggregationResult(@Nonnull Map.Entry<Object, Accumulator> group) {
+        return RecordCursorProto.PartialAggregationResult.newBuilder()
+                .setGroupKey(((Message)group.getKey()).toByteString())
+                .addAllAccumulatorStates(group.getValue().getAccumulatorStates())
+                .build();
+    }
+}
@@ -0,0 +1,168 @@
+/*
+ * PrimitiveAccumulator.java
+ *
+ * This source file is part of the FoundationDB open source project
+ *
+ * Copyright 2015-2026 Apple Inc. and the FoundationDB project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.apple.foundationdb.record.cursors.aggregate;
+
+import com.apple.foundationdb.annotation.API;
+import com.apple.foundationdb.record.RecordCursorProto;
+import com.apple.foundationdb.record.query.plan.cascades.typing.Type.TypeCode;
+import com.apple.foundationdb.record.query.plan.cascades.values.Accumulator;
+import com.apple.foundationdb.record.query.plan.cascades.values.NumericAggregationValue.PhysicalOperator;
+import com.google.common.base.Verify;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.List;
+
+/**
+ * An {@link Accumulator} for a {@link PrimitiveAccumulatorOperation} over one of the primitive numeric types. The
+ * running aggregate is held by an {@link AccumulatorState} in a primitive field, so accumulating a value does not
+ * allocate a new boxed state. The {@linkplain #getAccumulatorStates() accumulator states} are the same as those of
+ * the general purpose accumulator for the same {@link PhysicalOperator}, so that continuations are interchangeable.
+ *
+ * @param <T> the type of the values that are being accumulated
+ */
+@API(API.Status.INTERNAL)
+public class PrimitiveAccumulator<T extends Number> implements Accumulator {
+    @Nonnull
+    private final TypeCode typeCode;
+    @Nonnull
+    private final AccumulatorState<T, T> state;
+
+    private PrimitiveAccumulator(@Nonnull TypeCode typeCode, @Nonnull AccumulatorState<T, T> state) {
+        this.typeCode = typeCode;
+        this.state = state;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void accumulate(@Nullable final Object currentObject) {
+        state.accumulate((T)currentObject);
+    }
+
+    @Nullable
+    @Override
+    public Object finish() {
+        return state.finish();
+    }
+
+    @Nonnull
+    @Override
+    public List<RecordCursorProto.AccumulatorState> getAccumulatorStates() {
+        final T value = state.finish();
+        if (value == null) {
+            return List.of();
+        }
+        final RecordCursorProto.OneOfTypedState.Builder builder = RecordCursorProto.OneOfTypedState.newBuilder();
+        switch (typeCode) {
+            case INT:
+                builder.setInt32State(value.intValue());
+                break;
+            case LONG:
+                builder.setInt64State(value.longValue());
+                break;
+            case FLOAT:
+                builder.setFloatState(value.floatValue());
+                break;
+            case DOUBLE:
+                builder.setDoubleState(value.doubleValue());
+                break;
+            default:
+                throw new IllegalStateException("unexpected type code " + typeCode);
+        }
+        return List.of(RecordCursorProto.AccumulatorState.newBuilder().addState(builder).build());
+    }
+
+    @SuppressWarnings("unchecked")
+    private void restore(@Nonnull RecordCursorProto.AccumulatorState initialState) {
+        Verify.verify(initialState.getStateCount() == 1);
+        final RecordCursorProto.OneOfTypedState typedState = initialState.getState(0);
+        switch (typeCode) {
+            case INT:
+                Verify.verify(typedState.hasInt32State());
+                state.accumulate((T)Integer.valueOf(typedState.getInt32State()));
+                break;
+            case LONG:
+                Verify.verify(typedState.hasInt64State());
+                state.accumulate((T)Long.valueOf(typedState.getInt64State()));
+                break;
+            case FLOAT:
+                Verify.verify(typedState.hasFloatState());
+                state.accumulate((T)Float.valueOf(typedState.getFloatState()));
+                break;
+            case DOUBLE:
+                Verify.verify(typedState.hasDoubleState());
+                state.accumulate((T)Double.valueOf(typedState.getDoubleState()));
+                break;
+            default:
+                throw new IllegalStateException("unexpected type code " + typeCode);
+        }
+    }
+
+    /**
+     * Create an accumulator for the given operator, if it can be specialized.
+     * @param operator the operator to accumulate
+     * @param initialState the state of a previous accumulation to resume or {@code null} to start afresh
+     * @return a new accumulator or {@code null} if the operator is not a {@link PrimitiveAccumulatorOperation}
+     * over a primitive numeric type
+     */
+    @Nullable
+    public static PrimitiveAccumulator<?> forOperator(@Nonnull PhysicalOperator operator,
+                                                      @Nullable RecordCursorProto.AccumulatorState initialState) {
+        final PrimitiveAccumulator<?> accumulator = forOperator(operator);
+        if (accumulator != null && initialState != null) {
+            accumulator.restore(initialState);
+        }
+        return accumulator;
+    }
+
+    @Nullable
+    @SuppressWarnings("PMD.CyclomaticComplexity")
+    private static PrimitiveAccumulator<?> forOperator(@Nonnull PhysicalOperator operator) {
+        switch (operator) {
+            case SUM_I:
+                return new PrimitiveAccumulator<>(TypeCode.INT, new IntegerState(PrimitiveAccumulatorOperation.SUM));
+            case SUM_L:
+                return new PrimitiveAccumulator<>(TypeCode.LONG, new LongState(PrimitiveAccumulatorOperation.SUM));
+            case SUM_F:
+                return new PrimitiveAccumulator<>(TypeCode.FLOAT, new FloatState(PrimitiveAccumulatorOperation.SUM));
+            case SUM_D:
+                return new PrimitiveAccumulator<>(TypeCode.DOUBLE, new DoubleState(PrimitiveAccumulatorOperation.SUM));
+            case MIN_I:
+                return new PrimitiveAccumulator<>(TypeCode.INT, new IntegerState(PrimitiveAccumulatorOperation.MIN));
+            case MIN_L:
+                return new PrimitiveAccumulator<>(TypeCode.LONG, new LongState(PrimitiveAccumulatorOperation.MIN));
+            case MIN_F:
+                return new PrimitiveAccumulator<>(TypeCode.FLOAT, new FloatState(PrimitiveAccumulatorOperation.MIN));
+            case MIN_D:
+                return new PrimitiveAccumulator<>(TypeCode.DOUBLE, new DoubleState(PrimitiveAccumulatorOperation.MIN));
+            case MAX_I:
+                return new PrimitiveAccumulator<>(TypeCode.INT, new IntegerState(PrimitiveAccumulatorOperation.MAX));
+            case MAX_L:
+                return new PrimitiveAccumulator<>(TypeCode.LONG, new LongState(PrimitiveAccumulatorOperation.MAX));
+            case MAX_F:
+                return new PrimitiveAccumulator<>(TypeCode.FLOAT, new FloatState(PrimitiveAccumulatorOperation.MAX));
+            case MAX_D:
+                return new PrimitiveAccumulator<>(TypeCode.DOUBLE, new DoubleState(PrimitiveAccumulatorOperation.MAX));
+            default:
+                return null;
+        }
+    }
+}
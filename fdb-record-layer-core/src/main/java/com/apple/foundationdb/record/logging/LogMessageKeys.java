@@ -309,6 +309,8 @@ public enum LogMessageKeys {
     REBUILD_RECORD_COUNTS,
     SCANNED_SO_FAR,
     MAX_LIMIT,
+    MIN_PIPELINE_SIZE,
+    MAX_PIPELINE_SIZE,
     NEXT_CONTINUATION,
     SUCCESSFUL_TRANSACTIONS_COUNT,
     FAILED_TRANSACTIONS_COUNT,
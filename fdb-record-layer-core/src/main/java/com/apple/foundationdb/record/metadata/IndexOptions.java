@@ -160,6 +160,15 @@ public class IndexOptions {
      */
     public static final String RANK_COUNT_DUPLICATES = "rankCountDuplicates";
 
+    /**
+     * Whether the {@link IndexTypes#RANK} skip list {@link com.apple.foundationdb.async.RankedSet} maintains a version
+     * that changes with every update, so that rank lookups can use the upper levels cached in the database's
+     * {@link com.apple.foundationdb.async.RankedSetLevelCache}.
+     *
+     * The default is {@code false}. It can be turned on for an existing index, but not back off.
+     */
+    public static final String RANK_VERSIONED = "rankVersioned";
+
     /**
      * Size of each position bitmap for {@link IndexTypes#BITMAP_VALUE} indexes.
      *
@@ -167,6 +176,23 @@ public class IndexOptions {
      */
     public static final String BITMAP_VALUE_ENTRY_SIZE_OPTION = "bitmapValueEntrySize";
 
+    /**
+     * How the position bitmaps of {@link IndexTypes#BITMAP_VALUE} indexes are stored.
+     *
+     * <ul>
+     *   <li>{@code raw} (the default) stores every bitmap with all its bits and updates it with atomic mutations.</li>
+     *   <li>{@code roaring} also allows bitmaps to be compacted, which stores them as compressed containers. This is
+     *   much smaller for sparse or clustered bitmaps. Updates are still atomic mutations of raw bitmaps, which scans
+     *   merge with the compacted ones until they are next compacted. This requires the store to be at
+     *   {@link com.apple.foundationdb.record.provider.foundationdb.FormatVersion#COMPACTED_BITMAP_VALUE}.</li>
+     * </ul>
+     *
+     * An existing index can be changed from {@code raw} to {@code roaring} without rebuilding it. The reverse change
+     * is not allowed.
+     * @see com.apple.foundationdb.record.provider.foundationdb.indexes.BitmapValueCompaction
+     */
+    public static final String BITMAP_VALUE_ENCODING_OPTION = "bitmapValueEncoding";
+
     /**
      * Whether to remove index entry for {@link IndexTypes#COUNT} type indexes when they decrement to zero.
      *
@@ -0,0 +1,125 @@
+/*
+ * DeflateRecordCompressionCodec.java
+ *
+ * This source file is part of the FoundationDB open source project
+ *
+ * Copyright 2015-2026 Apple Inc. and the FoundationDB project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.apple.foundationdb.record.provider.common;
+
+import com.apple.foundationdb.annotation.API;
+import com.apple.foundationdb.record.logging.LogMessageKeys;
+
+import javax.annotation.Nonnull;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * A {@link RecordCompressionCodec} using the zlib format through {@link Deflater} and {@link Inflater}. This is the
+ * default codec of {@link TransformedRecordSerializer}, and the only one used by versions that predate pluggable codecs.
+ *
+ * <p>
+ * Deflaters and inflaters are pooled in a {@link MappedPool} (keyed by compression level for deflaters), so that their
+ * native state is not allocated and released for every record.
+ * </p>
+ */
+@API(API.Status.EXPERIMENTAL)
+public final class DeflateRecordCompressionCodec implements RecordCompressionCodec {
+    /**
+     * The identifier of this codec. This is the same as the compression version written by versions that predate
+     * pluggable codecs, so their records remain readable.
+     */
+    public static final int ID = 1;
+    public static final String NAME = "deflate";
+    public static final DeflateRecordCompressionCodec INSTANCE = new DeflateRecordCompressionCodec();
+
+    private static final MappedPool<Integer, Deflater, RuntimeException> DEFLATER_POOL = new MappedPool<>(Deflater::new);
+    private static final MappedPool<Boolean, Inflater, RuntimeException> INFLATER_POOL = new MappedPool<>(ignore -> new Inflater());
+
+    private DeflateRecordCompressionCodec() {
+    }
+
+    @Override
+    public int getId() {
+        return ID;
+    }
+
+    @Nonnull
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public int compress(@Nonnull byte[] input, int inputOffset, int inputLength,
+                        @Nonnull byte[] output, int outputOffset, int maxOutputLength,
+                        int level) {
+        final Deflater compressor = DEFLATER_POOL.poll(level);
+        boolean reusable = false;
+        try {
+            compressor.setInput(input, inputOffset, inputLength);
+            compressor.finish(); // necessary to include checksum
+            final int compressedLength = compressor.deflate(output, outputOffset, maxOutputLength, Deflater.FULL_FLUSH);
+            reusable = true;
+            return compressedLength == maxOutputLength ? -1 : compressedLength;
+        } finally {
+            releaseDeflater(level, compressor, reusable);
+        }
+    }
+
+    @Override
+    public void decompress(@Nonnull byte[] input, int inputOffset, int inputLength,
+                           @Nonnull byte[] output) throws DataFormatException {
+        final Inflater decompressor = INFLATER_POOL.poll(Boolean.TRUE);
+        boolean reusable = false;
+        try {
+            decompressor.setInput(input, inputOffset, inputLength);
+            int actualDecompressedSize = decompressor.inflate(output);
+            if (actualDecompressedSize < output.length) {
+                throw new RecordSerializationException("decompressed record too small")
+                        .addLogInfo(LogMessageKeys.EXPECTED, output.length)
+                        .addLogInfo(LogMessageKeys.ACTUAL, actualDecompressedSize);
+            } else if (decompressor.getRemaining() > 0) {
+                throw new RecordSerializationException("decompressed record too large")
+                        .addLogInfo(LogMessageKeys.EXPECTED, output.length);
+            }
+            reusable = true;
+        } finally {
+            releaseInflater(decompressor, reusable);
+        }
+    }
+
+    private static void releaseDeflater(int level, @Nonnull Deflater compressor, boolean reusable) {
+        if (reusable) {
+            compressor.reset();
+            if (DEFLATER_POOL.offer(level, compressor)) {
+                return;
+            }
+        }
+        compressor.end();
+    }
+
+    private static void releaseInflater(@Nonnull Inflater decompressor, boolean reusable) {
+        if (reusable) {
+            decompressor.reset();
+            if (INFLATER_POOL.offer(Boolean.TRUE, decompressor)) {
+                return;
+            }
+        }
+        decompressor.end();
+    }
+}
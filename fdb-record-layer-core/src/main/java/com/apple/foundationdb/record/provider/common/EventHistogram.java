@@ -0,0 +1,226 @@
+/*
+ * EventHistogram.java
+ *
+ * This source file is part of the FoundationDB open source project
+ *
+ * Copyright 2015-2026 Apple Inc. and the FoundationDB project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.apple.foundationdb.record.provider.common;
+
+import com.apple.foundationdb.annotation.API;
+import com.apple.foundationdb.record.RecordCoreArgumentException;
+
+import javax.annotation.Nonnull;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A histogram of the values recorded for a {@link StoreTimer.Event}, used to compute percentiles such as the p99
+ * latency of an event.
+ * <p>
+ * Values are counted in logarithmic buckets: each power of two is split into {@value #SUB_BUCKET_COUNT} linear
+ * sub-buckets, so a value reported for a percentile is at most 12.5% larger than the actual value, independent of
+ * the magnitude of the recorded values. Non-negative values up to {@link Long#MAX_VALUE} can be recorded; negative values
+ * are counted as zero.
+ * </p>
+ * <p>
+ * The histogram is thread-safe. Each bucket is a {@link LongAdder}, so concurrent recording into the same bucket
+ * does not contend on a single memory location. Buckets are only allocated the first time a value is recorded in them,
+ * so a histogram whose values fall into a narrow range only holds a handful of them.
+ * </p>
+ * @see StoreTimer#setHistogramsEnabled(boolean)
+ */
+@API(API.Status.EXPERIMENTAL)
+public class EventHistogram {
+    private static final int SUB_BUCKET_BITS = 3;
+    /**
+     * The number of linear sub-buckets each power of two is split into.
+     */
+    public static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    /**
+     * The total number of buckets of a histogram.
+     */
+    public static final int BUCKET_COUNT = bucketIndex(Long.MAX_VALUE) + 1;
+
+    @Nonnull
+    private final AtomicReferenceArray<LongAdder> buckets;
+
+    public EventHistogram() {
+        this.buckets = new AtomicReferenceArray<>(BUCKET_COUNT);
+    }
+
+    /**
+     * Record an occurrence of a value.
+     *
+     * @param value the value to record
+     */
+    public void record(long value) {
+        bucket(bucketIndex(value)).increment();
+    }
+
+    /**
+     * Add the counts of another histogram into this histogram.
+     *
+     * @param other the other histogram to add into this histogram
+     */
+    public void add(@Nonnull EventHistogram other) {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            final LongAdder otherBucket = other.buckets.get(i);
+            if (otherBucket != null) {
+                final long count = otherBucket.sum();
+                if (count != 0L) {
+                    bucket(i).add(count);
+                }
+            }
+        }
+    }
+
+    /**
+     * Get the number of values recorded in each bucket of this histogram.
+     *
+     * @return a new array of length {@link #BUCKET_COUNT} containing the number of values recorded in each bucket
+     */
+    @Nonnull
+    public long[] getBucketCounts() {
+        final long[] counts = new long[BUCKET_COUNT];
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            final LongAdder bucket = buckets.get(i);
+            if (bucket != null) {
+                counts[i] = bucket.sum();
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * Get the number of values recorded in this histogram.
+     *
+     * @return the number of values recorded in this histogram
+     */
+    public long getTotalCount() {
+        long total = 0L;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            final LongAdder bucket = buckets.get(i);
+            if (bucket != null) {
+                total += bucket.sum();
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Get the value below which the given percentage of recorded values fall. The value returned is the
+     * largest value that falls into the same bucket as the value at the requested percentile.
+     *
+     * @param percentile the percentile, between {@code 0.0} and {@code 100.0}
+     * @return the value at the given percentile or {@code 0} if no values have been recorded
+     */
+    public long getValueAtPercentile(double percentile) {
+        return valueAtPercentile(getBucketCounts(), percentile);
+    }
+
+    @Nonnull
+    private LongAdder bucket(int index) {
+        LongAdder bucket = buckets.get(index);
+        if (bucket == null) {
+            final LongAdder newBucket = new LongAdder();
+            bucket = buckets.compareAndSet(index, null, newBucket) ? newBucket : buckets.get(index);
+        }
+        return bucket;
+    }
+
+    /**
+     * Create a new histogram containing the counts of a histogram minus the counts of an earlier snapshot of it.
+     *
+     * @param histogram the histogram
+     * @param snapshotCounts the bucket counts of an earlier snapshot of {@code histogram}
+     * @return a new histogram containing the values recorded in {@code histogram} since the snapshot was taken
+     */
+    @Nonnull
+    static EventHistogram difference(@Nonnull EventHistogram histogram, @Nonnull long[] snapshotCounts) {
+        final EventHistogram result = new EventHistogram();
+        final long[] counts = histogram.getBucketCounts();
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            final long count = counts[i] - snapshotCounts[i];
+            if (count > 0L) {
+                result.bucket(i).add(count);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Compute the value at a percentile from the bucket counts of a histogram.
+     *
+     * @param counts the bucket counts as returned by {@link #getBucketCounts()}
+     * @param percentile the percentile, between {@code 0.0} and {@code 100.0}
+     * @return the value at the given percentile or {@code 0} if the counts are all zero
+     */
+    static long valueAtPercentile(@Nonnull long[] counts, double percentile) {
+        if (percentile < 0.0 || percentile > 100.0) {
+            throw new RecordCoreArgumentException("percentile must be between 0 and 100")
+                    .addLogInfo("percentile", percentile);
+        }
+        long total = 0L;
+        for (long count : counts) {
+            total += count;
+        }
+        if (total == 0L) {
+            return 0L;
+        }
+        final long rank = Math.max(1L, (long)Math.ceil(percentile * total / 100.0));
+        long seen = 0L;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return highestValueInBucket(i);
+            }
+        }
+        return highestValueInBucket(counts.length - 1);
+    }
+
+    /**
+     * Get the index of the bucket a value is counted in.
+     *
+     * @param value the value
+     * @return the index of the bucket for {@code value}
+     */
+    static int bucketIndex(long value) {
+        if (value < SUB_BUCKET_COUNT) {
+            return value < 0L ? 0 : (int)value;
+        }
+        final int exponent = 63 - Long.numberOfLeadingZeros(value);
+        final int shift = exponent - SUB_BUCKET_BITS;
+        final int subBucket = (int)((value >>> shift) & (SUB_BUCKET_COUNT - 1));
+        return (shift + 1) * SUB_BUCKET_COUNT + subBucket;
+    }
+
+    /**
+     * Get the largest value that is counted in a bucket.
+     *
+     * @param index the index of the bucket
+     * @return the largest value counted in the bucket with the given index
+     */
+    static long highestValueInBucket(int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+        final int shift = index / SUB_BUCKET_COUNT - 1;
+        final long subBucket = index % SUB_BUCKET_COUNT;
+        final long lowest = (SUB_BUCKET_COUNT + subBucket) << shift;
+        return lowest + ((1L << shift) - 1L);
+    }
+}
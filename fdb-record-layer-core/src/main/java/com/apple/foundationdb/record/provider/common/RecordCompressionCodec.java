@@ -0,0 +1,95 @@
+/*
+ * RecordCompressionCodec.java
+ *
+ * This source file is part of the FoundationDB open source project
+ *
+ * Copyright 2015-2026 Apple Inc. and the FoundationDB project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.apple.foundationdb.record.provider.common;
+
+import com.apple.foundationdb.annotation.API;
+
+import javax.annotation.Nonnull;
+import java.util.zip.DataFormatException;
+
+/**
+ * A compression algorithm that can be used by a {@link TransformedRecordSerializer} to compress serialized records.
+ *
+ * <p>
+ * Each compressed record starts with a single byte identifying the codec that compressed it (see {@link #getId()}),
+ * followed by the length of the uncompressed data and the compressed data itself. This allows records compressed with
+ * different codecs to co-exist in the same store: records are always decompressed with the codec that compressed them,
+ * regardless of which codec the serializer is currently configured to compress new records with. The identifier
+ * {@value DeflateRecordCompressionCodec#ID} is reserved for {@link DeflateRecordCompressionCodec}, which is what all
+ * records compressed before codecs were introduced use.
+ * </p>
+ *
+ * <p>
+ * Codecs other than the built-in ones are discovered through the {@link java.util.ServiceLoader} mechanism (see
+ * {@link RecordCompressionCodecRegistry}), so an implementation that depends on a native compression library can be
+ * provided by a separate module. Implementations must be thread-safe; codecs that need expensive per-call state (for
+ * instance, native compression contexts) should pool it, as {@link DeflateRecordCompressionCodec} does with
+ * {@link MappedPool}.
+ * </p>
+ */
+@API(API.Status.EXPERIMENTAL)
+public interface RecordCompressionCodec {
+    /**
+     * Get the identifier of this codec, which is written into each record compressed by this codec. The identifier
+     * must be between {@code 1} and {@code 127} and must never change once records have been written with it.
+     *
+     * @return the identifier of this codec
+     */
+    int getId();
+
+    /**
+     * Get the name of this codec.
+     *
+     * @return the name of this codec
+     */
+    @Nonnull
+    String getName();
+
+    /**
+     * Compress data into a buffer.
+     *
+     * @param input the array containing the data to compress
+     * @param inputOffset the offset of the data in {@code input}
+     * @param inputLength the length of the data
+     * @param output the array to write the compressed data to
+     * @param outputOffset the offset in {@code output} to write the compressed data to
+     * @param maxOutputLength the maximum number of bytes that may be written to {@code output}
+     * @param level the compression level; its interpretation is up to the codec
+     * @return the length of the compressed data or {@code -1} if the compressed data does not fit into
+     * {@code maxOutputLength} bytes, in which case the record is stored uncompressed
+     */
+    int compress(@Nonnull byte[] input, int inputOffset, int inputLength,
+                 @Nonnull byte[] output, int outputOffset, int maxOutputLength,
+                 int level);
+
+    /**
+     * Decompress data into a buffer whose length is exactly the length of the uncompressed data.
+     *
+     * @param input the array containing the compressed data
+     * @param inputOffset the offset of the compressed data in {@code input}
+     * @param inputLength the length of the compressed data
+     * @param output the array to write the uncompressed data to
+     * @throws DataFormatException if the compressed data is corrupt
+     * @throws RecordSerializationException if the uncompressed data does not have the expected length
+     */
+    void decompress(@Nonnull byte[] input, int inputOffset, int inputLength,
+                    @Nonnull byte[] output) throws DataFormatException;
+}
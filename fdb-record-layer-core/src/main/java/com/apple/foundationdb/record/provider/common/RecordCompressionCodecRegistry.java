@@ -0,0 +1,120 @@
+/*
+ * RecordCompressionCodecRegistry.java
+ *
+ * This source file is part of the FoundationDB open source project
+ *
+ * Copyright 2015-2026 Apple Inc. and the FoundationDB project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.apple.foundationdb.record.provider.common;
+
+import com.apple.foundationdb.annotation.API;
+import com.apple.foundationdb.record.RecordCoreException;
+import com.apple.foundationdb.record.util.ServiceLoaderProvider;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.ServiceConfigurationError;
+
+/**
+ * Registry of the {@link RecordCompressionCodec}s known to {@link TransformedRecordSerializer}, used to find the codec
+ * needed to decompress a record from the identifier stored in it. The registry contains
+ * {@link DeflateRecordCompressionCodec} and all codecs that are registered as services for
+ * {@link RecordCompressionCodec} (for instance, using {@code @AutoService(RecordCompressionCodec.class)}).
+ */
+@API(API.Status.EXPERIMENTAL)
+public final class RecordCompressionCodecRegistry {
+    private static final int MAX_ID = Byte.MAX_VALUE;
+
+    @Nullable
+    private static volatile RecordCompressionCodec[] codecs;
+
+    private RecordCompressionCodecRegistry() {
+    }
+
+    /**
+     * Get the codec with the given identifier.
+     *
+     * @param id the identifier of the codec
+     * @return the codec with the given identifier
+     * @throws RecordSerializationException if there is no codec with the given identifier
+     */
+    @Nonnull
+    public static RecordCompressionCodec getCodec(int id) {
+        final RecordCompressionCodec[] registry = getRegistry();
+        final RecordCompressionCodec codec = id < 1 || id > MAX_ID ? null : registry[id];
+        if (codec == null) {
+            throw new RecordSerializationException("unknown compression version")
+                    .addLogInfo("compressionVersion", id);
+        }
+        return codec;
+    }
+
+    /**
+     * Check that the identifier of a codec fits in the single byte that is written into each record it compresses.
+     *
+     * @param codec the codec to check
+     * @throws RecordCoreException if the identifier is out of range
+     */
+    static void validateId(@Nonnull RecordCompressionCodec codec) {
+        final int id = codec.getId();
+        if (id < 1 || id > MAX_ID) {
+            throw new RecordCoreException("compression codec identifier out of range")
+                    .addLogInfo("codec", codec.getName())
+                    .addLogInfo("compressionVersion", id);
+        }
+    }
+
+    @Nonnull
+    private static RecordCompressionCodec[] getRegistry() {
+        RecordCompressionCodec[] currRegistry = codecs;
+        if (currRegistry != null) {
+            return currRegistry;
+        }
+        synchronized (RecordCompressionCodecRegistry.class) {
+            currRegistry = codecs;
+            if (currRegistry == null) {
+                currRegistry = initRegistry();
+                codecs = currRegistry;
+            }
+            return currRegistry;
+        }
+    }
+
+    @Nonnull
+    private static RecordCompressionCodec[] initRegistry() {
+        final RecordCompressionCodec[] registry = new RecordCompressionCodec[MAX_ID + 1];
+        register(registry, DeflateRecordCompressionCodec.INSTANCE);
+        try {
+            for (RecordCompressionCodec codec : ServiceLoaderProvider.load(RecordCompressionCodec.class)) {
+                register(registry, codec);
+            }
+        } catch (ServiceConfigurationError err) {
+            throw new RecordCoreException("Unable to load all defined RecordCompressionCodecs", err);
+        }
+        return registry;
+    }
+
+    private static void register(@Nonnull RecordCompressionCodec[] registry, @Nonnull RecordCompressionCodec codec) {
+        validateId(codec);
+        final int id = codec.getId();
+        if (registry[id] != null) {
+            throw new RecordCoreException("compression codec identifier already defined")
+                    .addLogInfo("codec", codec.getName())
+                    .addLogInfo("compressionVersion", id);
+        }
+        registry[id] = codec;
+    }
+}
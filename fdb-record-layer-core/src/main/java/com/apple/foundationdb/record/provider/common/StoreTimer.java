@@ -31,10 +31,12 @@ import com.apple.foundationdb.record.util.MapUtils;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Objects;
@@ -69,6 +71,7 @@ public class StoreTimer {
     protected long lastReset;
     @Nonnull
     protected final UUID uuid;
+    private volatile boolean histogramsEnabled;
 
     /**
      * Confirm that there is no naming conflict among the event names that will be used.
@@ -134,7 +137,18 @@ public class StoreTimer {
 
                 // Do not add events that weren't changed since the snapshot
                 if (count > 0) {
-                    differenceCounters.put(event, new Counter(count, counter.getCumulativeValue() - snapShotCounter.getCumulativeValue()));
+                    @Nullable final EventHistogram histogram = counter.getHistogram();
+                    @Nullable final long[] snapshotBucketCounts = snapShotCounter.getHistogramBucketCounts();
+                    @Nullable final EventHistogram differenceHistogram;
+                    if (histogram == null) {
+                        differenceHistogram = null;
+                    } else if (snapshotBucketCounts == null) {
+                        differenceHistogram = new EventHistogram();
+                        differenceHistogram.add(histogram);
+                    } else {
+                        differenceHistogram = EventHistogram.difference(histogram, snapshotBucketCounts);
+                    }
+                    differenceCounters.put(event, new Counter(count, counter.getCumulativeValue() - snapShotCounter.getCumulativeValue(), differenceHistogram));
                 }
             }
         }
@@ -172,12 +186,17 @@ public class StoreTimer {
             return counter;
         } else {
             if (createIfNotExists) {
-                return MapUtils.computeIfAbsent(counters, event, evignore -> new Counter());
+                return MapUtils.computeIfAbsent(counters, event, evignore -> newCounter());
             }
             return counters.get(event);
         }
     }
 
+    @Nonnull
+    private Counter newCounter() {
+        return histogramsEnabled ? new Counter(0, 0L, new EventHistogram()) : new Counter();
+    }
+
     /**
      * Return the timeout counter value for a given event type.
      *
@@ -192,7 +211,7 @@ public class StoreTimer {
     @Nullable
     protected Counter getTimeoutCounter(@Nonnull Event event, boolean createIfNotExists) {
         if (createIfNotExists) {
-            return MapUtils.computeIfAbsent(timeoutCounters, event, evignore -> new Counter());
+            return MapUtils.computeIfAbsent(timeoutCounters, event, evignore -> newCounter());
         }
         return timeoutCounters.get(event);
     }
@@ -340,22 +359,30 @@ public class StoreTimer {
          */
         @Nullable
         default Counter compute(@Nonnull StoreTimer storeTimer, @Nonnull Set<? extends Event> events) {
-            @Nullable StoreTimer.Counter counter = null;
-
+            final List<Counter> values = new ArrayList<>(events.size());
+            boolean anyHistogram = false;
             for (Event event : events) {
                 @Nullable Counter value = storeTimer.counters.get(event);
                 if (value != null) {
-                    if (counter == null) {
-                        counter = new Counter();
-                    }
-                    counter.add(value);
+                    values.add(value);
+                    anyHistogram |= value.getHistogram() != null;
                 }
             }
+            if (values.isEmpty()) {
+                return null;
+            }
+
+            // Keep a histogram merging those of the component counters, so that percentiles are available for
+            // the aggregate as well.
+            final Counter counter = anyHistogram ? new Counter(0, 0L, new EventHistogram()) : new Counter();
+            for (Counter value : values) {
+                counter.add(value);
+            }
 
             // Make sure the counter returned cannot be mutated.  This is a safety net to ensure that
             // no code is accidentally modifying the returned counter thinking that they are affecting
             // an actual change in the event.
-            return counter == null ? null : counter.makeImmutable();
+            return counter.makeImmutable();
         }
     }
 
@@ -403,11 +430,14 @@ public class StoreTimer {
 
     /**
      * Contains the number of occurrences and cumulative time spent/cumulative value of all occurrences of the associated
-     * {@link StoreTimer.Event}.
+     * {@link StoreTimer.Event}. If histograms are enabled for the timer that created the counter, the counter also
+     * keeps a histogram of the individual values recorded.
      */
     public static class Counter {
         private final AtomicLong cumulativeValue;
         private final AtomicInteger count;
+        @Nullable
+        private final EventHistogram histogram;
         private boolean immutable;
 
         private Counter() {
@@ -419,7 +449,11 @@ public class StoreTimer {
         }
 
         private Counter(Counter counter, boolean immutable) {
-            this(counter.getCount(), counter.getCumulativeValue(), immutable);
+            this(counter.getCount(), counter.getCumulativeValue(), copyHistogram(counter.getHistogram()), immutable);
+        }
+
+        private Counter(int count, long cumulativeValue, @Nullable EventHistogram histogram) {
+            this(count, cumulativeValue, histogram, false);
         }
 
         public Counter(boolean immutable) {
@@ -431,11 +465,26 @@ public class StoreTimer {
         }
 
         public Counter(int count, long cumulativeValue, boolean immutable) {
+            this(count, cumulativeValue, null, immutable);
+        }
+
+        private Counter(int count, long cumulativeValue, @Nullable EventHistogram histogram, boolean immutable) {
             this.count = new AtomicInteger(count);
             this.cumulativeValue = new AtomicLong(cumulativeValue);
+            this.histogram = histogram;
             this.immutable = immutable;
         }
 
+        @Nullable
+        private static EventHistogram copyHistogram(@Nullable EventHistogram histogram) {
+            if (histogram == null) {
+                return null;
+            }
+            final EventHistogram copy = new EventHistogram();
+            copy.add(histogram);
+            return copy;
+        }
+
         /**
          * Get the number of occurrences of the associated event.
          *
@@ -465,6 +514,18 @@ public class StoreTimer {
             return cumulativeValue.get();
         }
 
+        /**
+         * Get the histogram of the values recorded for the associated event.
+         *
+         * @return the histogram of the values recorded for the associated event or {@code null} if histograms were
+         * not enabled when this counter was created
+         * @see StoreTimer#setHistogramsEnabled(boolean)
+         */
+        @Nullable
+        public EventHistogram getHistogram() {
+            return histogram;
+        }
+
         /**
          * Add value incurred in the occurrence of the associated event.
          *
@@ -474,6 +535,9 @@ public class StoreTimer {
             checkImmutable();
             cumulativeValue.addAndGet(occurrenceValue);
             count.incrementAndGet();
+            if (histogram != null) {
+                histogram.record(occurrenceValue);
+            }
         }
 
         /**
@@ -487,7 +551,8 @@ public class StoreTimer {
         }
 
         /**
-         * Add the value of one counter into another counter.
+         * Add the value of one counter into another counter. If both counters keep a histogram, the histogram of
+         * the other counter is merged into this one's.
          *
          * @param counter the other counter to add into this counter
          */
@@ -495,6 +560,9 @@ public class StoreTimer {
             checkImmutable();
             cumulativeValue.addAndGet(counter.getCumulativeValue());
             count.addAndGet(counter.getCount());
+            if (histogram != null && counter.getHistogram() != null) {
+                histogram.add(counter.getHistogram());
+            }
         }
 
         /**
@@ -533,6 +601,29 @@ public class StoreTimer {
         return uuid;
     }
 
+    /**
+     * Set whether the counters of this timer keep a histogram of the individual values recorded, in addition to
+     * their count and cumulative value. Histograms allow computing percentiles, such as the p99 latency of an
+     * event, at the cost of some additional memory per event. This only affects counters created after the call,
+     * so it should be set before the timer is used (or right after a {@link #reset()}).
+     *
+     * @param histogramsEnabled whether counters should keep histograms
+     * @see Counter#getHistogram()
+     */
+    public void setHistogramsEnabled(boolean histogramsEnabled) {
+        this.histogramsEnabled = histogramsEnabled;
+    }
+
+    /**
+     * Get whether the counters of this timer keep a histogram of the individual values recorded.
+     *
+     * @return whether counters keep histograms
+     * @see #setHistogramsEnabled(boolean)
+     */
+    public boolean isHistogramsEnabled() {
+        return histogramsEnabled;
+    }
+
     /**
      * Record the amount of time each element in a set of events took to run.
      * This applies the same time difference to each event in the set.
@@ -696,6 +787,22 @@ public class StoreTimer {
         return counter == null ? 0 : counter.getCount();
     }
 
+    /**
+     * Get the value below which the given percentage of values recorded for an event fall. For a timed event, this
+     * is a latency in nanoseconds, for instance the p99 latency when passing {@code 99.0}.
+     *
+     * @param event the event to get the percentile for
+     * @param percentile the percentile, between {@code 0.0} and {@code 100.0}
+     *
+     * @return the value at the given percentile or {@code 0} if nothing was recorded for the event or histograms are not enabled
+     * @see #setHistogramsEnabled(boolean)
+     */
+    public long getValueAtPercentile(Event event, double percentile) {
+        @Nullable Counter counter = getCounter(event, false);
+        @Nullable EventHistogram histogram = counter == null ? null : counter.getHistogram();
+        return histogram == null ? 0L : histogram.getValueAtPercentile(percentile);
+    }
+
     /**
      * Return the set of aggregates that this store timer can produce. This method is expected to be
      * overridden by implementation in order to expose whichever aggregates they produce. Note that
@@ -757,6 +864,13 @@ public class StoreTimer {
                 result.put(event.logKeyWithSuffix("_size"), counter.getCumulativeValue());
             } else if (!(event instanceof Count)) {
                 result.put(event.logKeyWithSuffix("_micros"), counter.getTimeNanos() / 1000L);
+                @Nullable EventHistogram histogram = counter.getHistogram();
+                if (histogram != null) {
+                    long[] bucketCounts = histogram.getBucketCounts();
+                    result.put(event.logKeyWithSuffix("_p50_micros"), EventHistogram.valueAtPercentile(bucketCounts, 50.0) / 1000L);
+                    result.put(event.logKeyWithSuffix("_p99_micros"), EventHistogram.valueAtPercentile(bucketCounts, 99.0) / 1000L);
+                    result.put(event.logKeyWithSuffix("_p999_micros"), EventHistogram.valueAtPercentile(bucketCounts, 99.9) / 1000L);
+                }
             }
         }
 
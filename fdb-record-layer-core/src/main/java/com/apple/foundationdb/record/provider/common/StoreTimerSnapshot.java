@@ -179,10 +179,14 @@ public final class StoreTimerSnapshot {
     public static class CounterSnapshot {
         private final long cumulativeValue;
         private final int count;
+        @Nullable
+        private final long[] histogramBucketCounts;
 
         private CounterSnapshot(@Nonnull StoreTimer.Counter c) {
             cumulativeValue = c.getCumulativeValue();
             count = c.getCount();
+            @Nullable final EventHistogram histogram = c.getHistogram();
+            histogramBucketCounts = histogram == null ? null : histogram.getBucketCounts();
         }
 
         /**
@@ -223,5 +227,23 @@ public final class StoreTimerSnapshot {
         public long getCumulativeValue() {
             return cumulativeValue;
         }
+
+        /**
+         * Get the value below which the given percentage of values recorded for the associated event fall.
+         *
+         * @param percentile the percentile, between {@code 0.0} and {@code 100.0}
+         *
+         * @return the value at the given percentile or {@code 0} if the counter did not keep a histogram
+         * @see StoreTimer#setHistogramsEnabled(boolean)
+         */
+        public long getValueAtPercentile(double percentile) {
+            return histogramBucketCounts == null ? 0L : EventHistogram.valueAtPercentile(histogramBucketCounts, percentile);
+        }
+
+        @Nullable
+        @SuppressWarnings("PMD.MethodReturnsInternalArray")
+        long[] getHistogramBucketCounts() {
+            return histogramBucketCounts;
+        }
     }
 }
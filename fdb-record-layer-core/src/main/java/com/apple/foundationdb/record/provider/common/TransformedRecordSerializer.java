@@ -41,7 +41,6 @@ import java.util.Arrays;
 import java.util.concurrent.ThreadLocalRandom;
 import java.util.zip.DataFormatException;
 import java.util.zip.Deflater;
-import java.util.zip.Inflater;
 
 /**
  * A {@link RecordSerializer} implementation that transforms the bytes produced
@@ -80,14 +79,35 @@ import java.util.zip.Inflater;
  */
 @API(API.Status.UNSTABLE)
 public class TransformedRecordSerializer<M extends Message> implements RecordSerializer<M> {
-    protected static final int DEFAULT_COMPRESSION_LEVEL = Deflater.BEST_COMPRESSION;
-    protected static final int MIN_COMPRESSION_VERSION = 1;
-    protected static final int MAX_COMPRESSION_VERSION = 1;
+    /**
+     * The compression level used unless another one is set with {@link Builder#setCompressionLevel(int)}. This is
+     * {@link Deflater#BEST_COMPRESSION}, which favors the size of stored records over the CPU spent writing them;
+     * write-heavy stores may prefer a lower level such as {@link Deflater#DEFAULT_COMPRESSION}.
+     */
+    public static final int DEFAULT_COMPRESSION_LEVEL = Deflater.BEST_COMPRESSION;
+    /**
+     * The lowest compression version this serializer used to accept.
+     * @deprecated the compression version is now the identifier of a {@link RecordCompressionCodec}; see
+     * {@link RecordCompressionCodecRegistry}
+     */
+    @API(API.Status.DEPRECATED)
+    @Deprecated
+    protected static final int MIN_COMPRESSION_VERSION = DeflateRecordCompressionCodec.ID;
+    /**
+     * The highest compression version this serializer used to accept.
+     * @deprecated the compression version is now the identifier of a {@link RecordCompressionCodec}; see
+     * {@link RecordCompressionCodecRegistry}
+     */
+    @API(API.Status.DEPRECATED)
+    @Deprecated
+    protected static final int MAX_COMPRESSION_VERSION = DeflateRecordCompressionCodec.ID;
 
     @Nonnull
     protected final RecordSerializer<M> inner;
     protected final boolean compressWhenSerializing;
     protected final int compressionLevel;
+    @Nonnull
+    protected final RecordCompressionCodec compressionCodec;
     protected final boolean encryptWhenSerializing;
     protected final double writeValidationRatio;
     protected final double writeEncryptionValidationRatio;
@@ -102,9 +122,25 @@ public class TransformedRecordSerializer<M extends Message> implements RecordSer
                                           double writeEncryptionValidationRatio,
                                           boolean failOnDeserializeReattempt,
                                           int deserializeReattemptCount) {
+        this(inner, compressWhenSerializing, compressionLevel, DeflateRecordCompressionCodec.INSTANCE,
+                encryptWhenSerializing, writeValidationRatio, writeEncryptionValidationRatio,
+                failOnDeserializeReattempt, deserializeReattemptCount);
+    }
+
+    protected TransformedRecordSerializer(@Nonnull RecordSerializer<M> inner,
+                                          boolean compressWhenSerializing,
+                                          int compressionLevel,
+                                          @Nonnull RecordCompressionCodec compressionCodec,
+                                          boolean encryptWhenSerializing,
+                                          double writeValidationRatio,
+                                          double writeEncryptionValidationRatio,
+                                          boolean failOnDeserializeReattempt,
+                                          int deserializeReattemptCount) {
         this.inner = inner;
         this.compressWhenSerializing = compressWhenSerializing;
+        RecordCompressionCodecRegistry.validateId(compressionCodec);
         this.compressionLevel = compressionLevel;
+        this.compressionCodec = compressionCodec;
         this.encryptWhenSerializing = encryptWhenSerializing;
         this.writeValidationRatio = writeValidationRatio;
         this.writeEncryptionValidationRatio = writeEncryptionValidationRatio;
@@ -126,22 +162,15 @@ public class TransformedRecordSerializer<M extends Message> implements RecordSer
             // Actually compress. If we end up filling the buffer, then just
             // return the uncompressed value because it's pointless to compress
             // if we actually increase the amount of data.
-            Deflater compressor = new Deflater(compressionLevel);
-            int compressedLength;
-            try {
-                compressor.setInput(state.getData(), state.getOffset(), state.getLength());
-                compressor.finish(); // necessary to include checksum
-                compressedLength = compressor.deflate(compressed, 5, compressed.length - 5, Deflater.FULL_FLUSH);
-            } finally {
-                compressor.end();
-            }
-            if (compressedLength == compressed.length - 5) {
+            int compressedLength = compressionCodec.compress(state.getData(), state.getOffset(), state.getLength(),
+                    compressed, 5, compressed.length - 5, compressionLevel);
+            if (compressedLength < 0) {
                 increment(timer, Counts.RECORD_BYTES_AFTER_COMPRESSION, state.getLength());
                 state.setCompressed(false);
             } else {
-                // Write compression version number and uncompressed size as these
+                // Write the codec (the compression version number) and uncompressed size as these
                 // meta-data are needed when decompressing.
-                compressed[0] = (byte)MAX_COMPRESSION_VERSION;
+                compressed[0] = (byte)compressionCodec.getId();
                 ByteBuffer.wrap(compressed, 1, 4).order(ByteOrder.BIG_ENDIAN).putInt(state.getLength());
                 state.setCompressed(true);
                 increment(timer, Counts.RECORD_BYTES_AFTER_COMPRESSION, compressedLength + 5);
@@ -241,15 +270,12 @@ public class TransformedRecordSerializer<M extends Message> implements RecordSer
     protected void decompress(@Nonnull TransformedRecordSerializerState state, @Nullable StoreTimer timer) throws DataFormatException {
         final long startTime = System.nanoTime();
 
-        // At the moment, there is only one compression version, so
-        // we after we've verified it is in the right range, we
-        // can just move on. If we ever introduce a new format version,
-        // we will need to make this code more complicated.
+        // The compression version identifies the codec used to compress the record, which
+        // need not be the one this serializer uses to compress new records.
         int compressionVersion = state.getData()[state.getOffset()];
-        if (compressionVersion < MIN_COMPRESSION_VERSION || compressionVersion > MAX_COMPRESSION_VERSION) {
-            throw new RecordSerializationException("unknown compression version")
-                    .addLogInfo("compressionVersion", compressionVersion);
-        }
+        final RecordCompressionCodec codec = compressionVersion == compressionCodec.getId()
+                                             ? compressionCodec
+                                             : RecordCompressionCodecRegistry.getCodec(compressionVersion);
 
         int decompressedLength = ByteBuffer.wrap(state.getData(), state.getOffset() + 1, 4).order(ByteOrder.BIG_ENDIAN).getInt();
         if (decompressedLength < 0) {
@@ -257,22 +283,7 @@ public class TransformedRecordSerializer<M extends Message> implements RecordSer
                     .addLogInfo("decompressedLength", decompressedLength);
         }
         byte[] decompressed = new byte[decompressedLength];
-
-        Inflater decompressor = new Inflater();
-        try {
-            decompressor.setInput(state.getData(), state.getOffset() + 5, state.getLength() - 5);
-            int actualDecompressedSize = decompressor.inflate(decompressed);
-            if (actualDecompressedSize < decompressedLength) {
-                throw new RecordSerializationException("decompressed record too small")
-                        .addLogInfo(LogMessageKeys.EXPECTED, decompressedLength)
-                        .addLogInfo(LogMessageKeys.ACTUAL, actualDecompressedSize);
-            } else if (decompressor.getRemaining() > 0) {
-                throw new RecordSerializationException("decompressed record too large")
-                        .addLogInfo(LogMessageKeys.EXPECTED, decompressedLength);
-            }
-        } finally {
-            decompressor.end();
-        }
+        codec.decompress(state.getData(), state.getOffset() + 5, state.getLength() - 5, decompressed);
 
         state.setDataArray(decompressed);
 
@@ -374,7 +385,7 @@ public class TransformedRecordSerializer<M extends Message> implements RecordSer
     @Override
     public RecordSerializer<Message> widen() {
         return new TransformedRecordSerializer<>(inner.widen(), compressWhenSerializing, compressionLevel,
-                encryptWhenSerializing, writeValidationRatio, writeEncryptionValidationRatio, failOnDeserializeReattempt,
+                compressionCodec, encryptWhenSerializing, writeValidationRatio, writeEncryptionValidationRatio, failOnDeserializeReattempt,
                 deserializeReattemptCount);
     }
 
@@ -424,6 +435,8 @@ public class TransformedRecordSerializer<M extends Message> implements RecordSer
         protected final RecordSerializer<M> inner;
         protected boolean compressWhenSerializing;
         protected int compressionLevel = DEFAULT_COMPRESSION_LEVEL;
+        @Nonnull
+        protected RecordCompressionCodec compressionCodec = DeflateRecordCompressionCodec.INSTANCE;
         protected boolean encryptWhenSerializing;
         protected double writeValidationRatio;
         protected double writeEncryptionValidationRatio;
@@ -468,6 +481,22 @@ public class TransformedRecordSerializer<M extends Message> implements RecordSer
             return this;
         }
 
+        /**
+         * Compression codec to use if compressing. The default is {@link DeflateRecordCompressionCodec}.
+         * Records are always decompressed with the codec that compressed them, so changing the codec
+         * does not affect the readability of existing records, as long as the codec they were compressed with
+         * is still registered with {@link RecordCompressionCodecRegistry}. The interpretation of the
+         * {@linkplain #setCompressionLevel(int) compression level} is up to the codec. Setting
+         * this does <i>not</i> automatically enable compression when serializing.
+         * @param compressionCodec the compression codec
+         * @return this <code>Builder</code>
+         */
+        @Nonnull
+        public Builder<M> setCompressionCodec(@Nonnull RecordCompressionCodec compressionCodec) {
+            this.compressionCodec = compressionCodec;
+            return this;
+        }
+
         /**
          * Whether to encrypt records after serializing. Should
          * compression and encryption both be set, then data
@@ -561,6 +590,7 @@ public class TransformedRecordSerializer<M extends Message> implements RecordSer
                     inner,
                     compressWhenSerializing,
                     compressionLevel,
+                    compressionCodec,
                     encryptWhenSerializing,
                     writeValidationRatio,
                     writeEncryptionValidationRatio,
@@ -50,7 +50,21 @@ public class TransformedRecordSerializerJCE<M extends Message> extends Transform
                                              boolean failOnDeserializeReattempt,
                                              int deserializeReattemptCount,
                                              @Nullable SerializationKeyManager keyManager) {
-        super(inner, compressWhenSerializing, compressionLevel, encryptWhenSerializing, writeValidationRatio, writeEncryptionValidationRatio, failOnDeserializeReattempt, deserializeReattemptCount);
+        this(inner, compressWhenSerializing, compressionLevel, DeflateRecordCompressionCodec.INSTANCE, encryptWhenSerializing,
+                writeValidationRatio, writeEncryptionValidationRatio, failOnDeserializeReattempt, deserializeReattemptCount, keyManager);
+    }
+
+    protected TransformedRecordSerializerJCE(@Nonnull RecordSerializer<M> inner,
+                                             boolean compressWhenSerializing,
+                                             int compressionLevel,
+                                             @Nonnull RecordCompressionCodec compressionCodec,
+                                             boolean encryptWhenSerializing,
+                                             double writeValidationRatio,
+                                             double writeEncryptionValidationRatio,
+                                             boolean failOnDeserializeReattempt,
+                                             int deserializeReattemptCount,
+                                             @Nullable SerializationKeyManager keyManager) {
+        super(inner, compressWhenSerializing, compressionLevel, compressionCodec, encryptWhenSerializing, writeValidationRatio, writeEncryptionValidationRatio, failOnDeserializeReattempt, deserializeReattemptCount);
         this.keyManager = keyManager;
     }
 
@@ -119,7 +133,7 @@ public class TransformedRecordSerializerJCE<M extends Message> extends Transform
     @Override
     public RecordSerializer<Message> widen() {
         return new TransformedRecordSerializerJCE<>(inner.widen(), compressWhenSerializing, compressionLevel,
-                encryptWhenSerializing, writeValidationRatio, writeEncryptionValidationRatio, failOnDeserializeReattempt,
+                compressionCodec, encryptWhenSerializing, writeValidationRatio, writeEncryptionValidationRatio, failOnDeserializeReattempt,
                 deserializeReattemptCount, keyManager);
     }
 
@@ -187,6 +201,13 @@ public class TransformedRecordSerializerJCE<M extends Message> extends Transform
             return this;
         }
 
+        @Override
+        @Nonnull
+        public Builder<M> setCompressionCodec(@Nonnull RecordCompressionCodec compressionCodec) {
+            super.setCompressionCodec(compressionCodec);
+            return this;
+        }
+
         /**
          * Whether to encrypt records after serializing. Should
          * compression and encryption both be set, then data
@@ -313,6 +334,7 @@ public class TransformedRecordSerializerJCE<M extends Message> extends Transform
                     inner,
                     compressWhenSerializing,
                     compressionLevel,
+                    compressionCodec,
                     encryptWhenSerializing,
                     writeValidationRatio,
                     writeEncryptionValidationRatio,
@@ -0,0 +1,97 @@
+/*
+ * AdaptivePipelineSizer.java
+ *
+ * This source file is part of the FoundationDB open source project
+ *
+ * Copyright 2015-2026 Apple Inc. and the FoundationDB project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.apple.foundationdb.record.provider.foundationdb;
+
+import com.apple.foundationdb.annotation.API;
+import com.apple.foundationdb.record.PipelineOperation;
+import com.apple.foundationdb.record.cursors.AdaptivePipelineSize;
+import com.google.common.collect.ImmutableSet;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.Set;
+
+/**
+ * A {@link FDBRecordStoreBase.PipelineSizer} that lets some operations adapt their pipeline size as they run,
+ * using an {@link AdaptivePipelineSize}, rather than using a fixed size chosen ahead of time.
+ *
+ * <p>
+ * Each pipeline of one of the adaptive operations starts out with {@code minPipelineSize} elements in flight and
+ * can grow up to {@code maxPipelineSize}. All other operations, and any operation that does not support adapting,
+ * use the fixed size given by the base sizer.
+ * </p>
+ */
+@API(API.Status.EXPERIMENTAL)
+public class AdaptivePipelineSizer implements FDBRecordStoreBase.PipelineSizer {
+    /**
+     * The default smallest size of an adaptive pipeline.
+     */
+    public static final int DEFAULT_MIN_PIPELINE_SIZE = 1;
+    /**
+     * The default largest size of an adaptive pipeline.
+     */
+    public static final int DEFAULT_MAX_PIPELINE_SIZE = 100;
+
+    @Nonnull
+    private final FDBRecordStoreBase.PipelineSizer baseSizer;
+    @Nonnull
+    private final Set<PipelineOperation> adaptiveOperations;
+    private final int minPipelineSize;
+    private final int maxPipelineSize;
+
+    /**
+     * Create a sizer that adapts the pipeline size of loading the records of index entries, with the default bounds.
+     * @param baseSizer the sizer for the fixed sizes of other operations
+     */
+    public AdaptivePipelineSizer(@Nonnull FDBRecordStoreBase.PipelineSizer baseSizer) {
+        this(baseSizer, ImmutableSet.of(PipelineOperation.INDEX_TO_RECORD), DEFAULT_MIN_PIPELINE_SIZE, DEFAULT_MAX_PIPELINE_SIZE);
+    }
+
+    /**
+     * Create a sizer that adapts the pipeline size of the given operations.
+     * @param baseSizer the sizer for the fixed sizes of other operations
+     * @param adaptiveOperations the operations whose pipeline size adapts
+     * @param minPipelineSize the smallest and initial size of an adaptive pipeline
+     * @param maxPipelineSize the largest size of an adaptive pipeline
+     */
+    public AdaptivePipelineSizer(@Nonnull FDBRecordStoreBase.PipelineSizer baseSizer,
+                                 @Nonnull Set<PipelineOperation> adaptiveOperations,
+                                 int minPipelineSize, int maxPipelineSize) {
+        this.baseSizer = baseSizer;
+        this.adaptiveOperations = ImmutableSet.copyOf(adaptiveOperations);
+        this.minPipelineSize = minPipelineSize;
+        this.maxPipelineSize = maxPipelineSize;
+    }
+
+    @Override
+    public int getPipelineSize(@Nonnull PipelineOperation pipelineOperation) {
+        return baseSizer.getPipelineSize(pipelineOperation);
+    }
+
+    @Nullable
+    @Override
+    public AdaptivePipelineSize newAdaptivePipelineSize(@Nonnull PipelineOperation pipelineOperation, @Nullable FDBStoreTimer timer) {
+        if (!adaptiveOperations.contains(pipelineOperation)) {
+            return baseSizer.newAdaptivePipelineSize(pipelineOperation, timer);
+        }
+        return new AdaptivePipelineSize(minPipelineSize, maxPipelineSize, timer);
+    }
+}
@@ -24,6 +24,7 @@ import com.apple.foundationdb.Database;
 import com.apple.foundationdb.FDBException;
 import com.apple.foundationdb.Transaction;
 import com.apple.foundationdb.annotation.API;
+import com.apple.foundationdb.async.RankedSetLevelCache;
 import com.apple.foundationdb.record.AsyncLoadingCache;
 import com.apple.foundationdb.record.LoggableTimeoutException;
 import com.apple.foundationdb.record.RecordCoreException;
@@ -33,6 +34,7 @@ import com.apple.foundationdb.record.logging.KeyValueLogMessage;
 import com.apple.foundationdb.record.logging.LogMessageKeys;
 import com.apple.foundationdb.record.provider.common.StoreSubTimer;
 import com.apple.foundationdb.record.provider.common.StoreTimer;
+import com.apple.foundationdb.record.provider.foundationdb.indexes.VectorIndexUpperLayerCaches;
 import com.apple.foundationdb.record.provider.foundationdb.keyspace.LocatableResolver;
 import com.apple.foundationdb.record.provider.foundationdb.keyspace.ResolverResult;
 import com.apple.foundationdb.record.provider.foundationdb.keyspace.ScopedValue;
@@ -137,6 +139,10 @@ public class FDBDatabase {
     private final long reverseDirectoryMaxMillisPerTransaction;
     @Nonnull
     private FDBRecordStoreStateCache storeStateCache = PassThroughRecordStoreStateCache.instance();
+    @Nullable
+    private RankedSetLevelCache rankedSetLevelCache;
+    @Nullable
+    private VectorIndexUpperLayerCaches vectorIndexUpperLayerCaches;
     private final Supplier<Boolean> transactionIsTracedSupplier;
     private final long warnAndCloseOpenContextsAfterSeconds;
     // The number of cache entries to maintain in memory
@@ -715,6 +721,53 @@ public class FDBDatabase {
         this.storeStateCache = storeStateCache;
     }
 
+    /**
+     * Get the cache of upper skip list levels used by rank lookups against this database.
+     *
+     * @return the ranked set level cache for this database or {@code null} if there is none
+     * @see RankedSetLevelCache
+     */
+    @Nullable
+    @API(API.Status.EXPERIMENTAL)
+    public RankedSetLevelCache getRankedSetLevelCache() {
+        return rankedSetLevelCache;
+    }
+
+    /**
+     * Set the cache of upper skip list levels used by rank lookups against this database. The cache is only used for
+     * indexes with the {@link com.apple.foundationdb.record.metadata.IndexOptions#RANK_VERSIONED} option. Since
+     * cached levels are found by subspace, the cache should <em>not</em> be shared with a different database.
+     *
+     * @param rankedSetLevelCache the ranked set level cache or {@code null} to not cache levels
+     */
+    @API(API.Status.EXPERIMENTAL)
+    public void setRankedSetLevelCache(@Nullable RankedSetLevelCache rankedSetLevelCache) {
+        this.rankedSetLevelCache = rankedSetLevelCache;
+    }
+
+    /**
+     * Get the caches of the upper HNSW layers used by vector index searches against this database.
+     *
+     * @return the vector index upper layer caches for this database or {@code null} if there are none
+     * @see VectorIndexUpperLayerCaches
+     */
+    @Nullable
+    @API(API.Status.EXPERIMENTAL)
+    public VectorIndexUpperLayerCaches getVectorIndexUpperLayerCaches() {
+        return vectorIndexUpperLayerCaches;
+    }
+
+    /**
+     * Set the caches of the upper HNSW layers used by vector index searches against this database. Since the graphs
+     * are found by subspace, the caches should <em>not</em> be shared with a different database.
+     *
+     * @param vectorIndexUpperLayerCaches the vector index upper layer caches or {@code null} to not cache upper layers
+     */
+    @API(API.Status.EXPERIMENTAL)
+    public void setVectorIndexUpperLayerCaches(@Nullable VectorIndexUpperLayerCaches vectorIndexUpperLayerCaches) {
+        this.vectorIndexUpperLayerCaches = vectorIndexUpperLayerCaches;
+    }
+
     @VisibleForTesting
     @API(API.Status.INTERNAL)
     public void clearCaches() {
@@ -722,6 +775,14 @@ public class FDBDatabase {
         clearForwardDirectoryCache();
         clearReverseDirectoryCache();
         storeStateCache.clear();
+        final RankedSetLevelCache levelCache = rankedSetLevelCache;
+        if (levelCache != null) {
+            levelCache.invalidateAll();
+        }
+        final VectorIndexUpperLayerCaches upperLayerCaches = vectorIndexUpperLayerCaches;
+        if (upperLayerCaches != null) {
+            upperLayerCaches.invalidateAll();
+        }
     }
 
     public synchronized void close() {
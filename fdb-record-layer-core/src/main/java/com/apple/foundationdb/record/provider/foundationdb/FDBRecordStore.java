@@ -45,6 +45,7 @@ import com.apple.foundationdb.record.IndexBuildProto;
 import com.apple.foundationdb.record.IndexEntry;
 import com.apple.foundationdb.record.IndexScanType;
 import com.apple.foundationdb.record.IndexState;
+import com.apple.foundationdb.record.IndexStatisticsProto;
 import com.apple.foundationdb.record.IsolationLevel;
 import com.apple.foundationdb.record.MutableRecordStoreState;
 import com.apple.foundationdb.record.PipelineOperation;
@@ -86,9 +87,11 @@ import com.apple.foundationdb.record.metadata.expressions.EmptyKeyExpression;
 import com.apple.foundationdb.record.metadata.expressions.KeyExpression;
 import com.apple.foundationdb.record.provider.common.DynamicMessageRecordSerializer;
 import com.apple.foundationdb.record.provider.common.RecordSerializer;
+import com.apple.foundationdb.record.provider.foundationdb.cursors.RangePartitionedScan;
 import com.apple.foundationdb.record.provider.foundationdb.indexing.IndexingHeartbeat;
 import com.apple.foundationdb.record.provider.foundationdb.indexing.IndexingRangeSet;
 import com.apple.foundationdb.record.provider.foundationdb.keyspace.KeySpacePath;
+import com.apple.foundationdb.record.provider.foundationdb.statistics.IndexStatistics;
 import com.apple.foundationdb.record.provider.foundationdb.storestate.FDBRecordStoreStateCache;
 import com.apple.foundationdb.record.provider.foundationdb.storestate.FDBRecordStoreStateCacheEntry;
 import com.apple.foundationdb.record.query.IndexQueryabilityFilter;
@@ -101,12 +104,14 @@ import com.apple.foundationdb.record.query.expressions.QueryComponent;
 import com.apple.foundationdb.record.query.expressions.RecordTypeKeyComparison;
 import com.apple.foundationdb.record.query.plan.RecordQueryPlanner;
 import com.apple.foundationdb.record.query.plan.RecordQueryPlannerConfiguration;
+import com.apple.foundationdb.record.query.plan.cascades.CascadesPlanner;
 import com.apple.foundationdb.record.query.plan.plans.RecordQueryPlan;
 import com.apple.foundationdb.record.query.plan.serialization.DefaultPlanSerializationRegistry;
 import com.apple.foundationdb.record.query.plan.serialization.PlanSerializationRegistry;
 import com.apple.foundationdb.record.query.plan.synthetic.SyntheticRecordFromStoredRecordPlan;
 import com.apple.foundationdb.record.query.plan.synthetic.SyntheticRecordPlanner;
 import com.apple.foundationdb.record.util.pair.NonnullPair;
+import com.apple.foundationdb.record.util.pair.Pair;
 import com.apple.foundationdb.subspace.Subspace;
 import com.apple.foundationdb.tuple.ByteArrayUtil;
 import com.apple.foundationdb.tuple.ByteArrayUtil2;
@@ -131,7 +136,9 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
@@ -317,6 +324,14 @@ public class FDBRecordStore extends FDBStoreBase implements FDBRecordStoreBase<M
     @Nonnull
     private final Set<String> indexStateReadConflicts = ConcurrentHashMap.newKeySet(8);
 
+    // Indexing type stamps read by index maintainers of write-only indexes, by index name
+    @Nonnull
+    private final Map<String, CompletableFuture<IndexBuildProto.IndexBuildIndexingStamp>> cachedIndexingTypeStamps = new ConcurrentHashMap<>();
+
+    // Statistics of the readable indexes given to Cascades planners created for this store, by index name
+    @Nullable
+    private volatile CompletableFuture<Map<String, IndexStatistics>> cachedIndexStatistics;
+
     @Nonnull
     private final PlanSerializationRegistry planSerializationRegistry;
 
@@ -548,34 +563,11 @@ public class FDBRecordStore extends FDBStoreBase implements FDBRecordStoreBase<M
                                                                                         boolean isDryRun,
                                                                                         boolean overrideLock) {
         final RecordMetaData metaData = metaDataProvider.getRecordMetaData();
-        final Descriptors.Descriptor recordDescriptor = rec.getDescriptorForType();
-        final RecordType recordType = metaData.getRecordTypeForDescriptor(recordDescriptor);
-        final KeyExpression primaryKeyExpression = recordType.getPrimaryKey();
-
-        final FDBStoredRecordBuilder<M> recordBuilder = FDBStoredRecord.newBuilder(rec).setRecordType(recordType);
-        final FDBRecordVersion recordVersion = recordVersionForSave(metaData, version, behavior);
-        recordBuilder.setVersion(recordVersion);
-        final Tuple primaryKey = primaryKeyExpression.evaluateSingleton(recordBuilder).toTuple();
-        recordBuilder.setPrimaryKey(primaryKey);
+        final FDBStoredRecordBuilder<M> recordBuilder = newRecordBuilderForSave(metaData, rec, version, behavior);
+        final Tuple primaryKey = recordBuilder.getPrimaryKey();
 
         final CompletableFuture<FDBStoredRecord<M>> result = loadExistingRecord(typedSerializer, primaryKey).thenCompose(oldRecord -> {
-            if (oldRecord == null) {
-                if (existenceCheck.errorIfNotExists()) {
-                    throw new RecordDoesNotExistException("record does not exist",
-                            LogMessageKeys.PRIMARY_KEY, primaryKey);
-                }
-            } else {
-                if (existenceCheck.errorIfExists()) {
-                    throw new RecordAlreadyExistsException("record already exists",
-                            LogMessageKeys.PRIMARY_KEY, primaryKey);
-                }
-                if (existenceCheck.errorIfTypeChanged() && oldRecord.getRecordType() != recordType) {
-                    throw new RecordTypeChangedException("record type changed",
-                            LogMessageKeys.PRIMARY_KEY, primaryKey,
-                            LogMessageKeys.ACTUAL_TYPE, oldRecord.getRecordType().getName(),
-                            LogMessageKeys.EXPECTED_TYPE, recordType.getName());
-                }
-            }
+            checkExistence(existenceCheck, recordBuilder, oldRecord);
             if (isDryRun) {
                 final FDBStoredRecord<M> newRecord = dryRunSetSizeInfo(typedSerializer, recordBuilder, metaData);
                 return CompletableFuture.completedFuture(newRecord);
@@ -598,6 +590,145 @@ public class FDBRecordStore extends FDBStoreBase implements FDBRecordStoreBase<M
         return context.instrument(FDBStoreTimer.Events.SAVE_RECORD, result);
     }
 
+    @Nonnull
+    private <M extends Message> FDBStoredRecordBuilder<M> newRecordBuilderForSave(@Nonnull RecordMetaData metaData,
+                                                                                  @Nonnull M rec,
+                                                                                  @Nullable FDBRecordVersion version,
+                                                                                  @Nonnull VersionstampSaveBehavior behavior) {
+        final Descriptors.Descriptor recordDescriptor = rec.getDescriptorForType();
+        final RecordType recordType = metaData.getRecordTypeForDescriptor(recordDescriptor);
+        final KeyExpression primaryKeyExpression = recordType.getPrimaryKey();
+
+        final FDBStoredRecordBuilder<M> recordBuilder = FDBStoredRecord.newBuilder(rec).setRecordType(recordType);
+        final FDBRecordVersion recordVersion = recordVersionForSave(metaData, version, behavior);
+        recordBuilder.setVersion(recordVersion);
+        final Tuple primaryKey = primaryKeyExpression.evaluateSingleton(recordBuilder).toTuple();
+        recordBuilder.setPrimaryKey(primaryKey);
+        return recordBuilder;
+    }
+
+    @SuppressWarnings("PMD.CompareObjectsWithEquals")
+    private static <M extends Message> void checkExistence(@Nonnull RecordExistenceCheck existenceCheck,
+                                                           @Nonnull FDBStoredRecordBuilder<M> recordBuilder,
+                                                           @Nullable FDBStoredRecord<M> oldRecord) {
+        final Tuple primaryKey = recordBuilder.getPrimaryKey();
+        if (oldRecord == null) {
+            if (existenceCheck.errorIfNotExists()) {
+                throw new RecordDoesNotExistException("record does not exist",
+                        LogMessageKeys.PRIMARY_KEY, primaryKey);
+            }
+        } else {
+            if (existenceCheck.errorIfExists()) {
+                throw new RecordAlreadyExistsException("record already exists",
+                        LogMessageKeys.PRIMARY_KEY, primaryKey);
+            }
+            final RecordType recordType = recordBuilder.getRecordType();
+            if (existenceCheck.errorIfTypeChanged() && oldRecord.getRecordType() != recordType) {
+                throw new RecordTypeChangedException("record type changed",
+                        LogMessageKeys.PRIMARY_KEY, primaryKey,
+                        LogMessageKeys.ACTUAL_TYPE, oldRecord.getRecordType().getName(),
+                        LogMessageKeys.EXPECTED_TYPE, recordType.getName());
+            }
+        }
+    }
+
+    /**
+     * Async version of {@link #saveRecords(Collection, RecordExistenceCheck)}.
+     * @param records the records to save
+     * @param existenceCheck when to throw an exception if a record with the same primary key as one of the records does or does not already exist
+     * @return a future that completes with the stored record forms of the saved records, in the same order
+     */
+    @Override
+    @Nonnull
+    public CompletableFuture<List<FDBStoredRecord<Message>>> saveRecordsAsync(@Nonnull Collection<? extends Message> records,
+                                                                              @Nonnull RecordExistenceCheck existenceCheck) {
+        return saveTypedRecords(serializer, records, existenceCheck);
+    }
+
+    @Nonnull
+    @API(API.Status.INTERNAL)
+    protected <M extends Message> CompletableFuture<List<FDBStoredRecord<M>>> saveTypedRecords(@Nonnull RecordSerializer<M> typedSerializer,
+                                                                                               @Nonnull Collection<? extends M> records,
+                                                                                               @Nonnull RecordExistenceCheck existenceCheck) {
+        final RecordMetaData metaData = metaDataProvider.getRecordMetaData();
+        final List<FDBStoredRecordBuilder<M>> recordBuilders = new ArrayList<>(records.size());
+        final Set<Tuple> primaryKeys = new HashSet<>();
+        for (M rec : records) {
+            final FDBStoredRecordBuilder<M> recordBuilder = newRecordBuilderForSave(metaData, rec, null, VersionstampSaveBehavior.DEFAULT);
+            if (!primaryKeys.add(recordBuilder.getPrimaryKey())) {
+                throw new RecordCoreArgumentException("duplicate primary key in batch of records to save",
+                        LogMessageKeys.PRIMARY_KEY, recordBuilder.getPrimaryKey());
+            }
+            recordBuilders.add(recordBuilder);
+        }
+        if (recordBuilders.isEmpty()) {
+            return CompletableFuture.completedFuture(Collections.emptyList());
+        }
+        if (!metaData.getSyntheticRecordTypes().isEmpty()) {
+            // A synthetic record joining several records of the batch must be removed from its indexes as it was
+            // before any of them were written, so save them one after the other, as saveRecord would.
+            return context.instrument(FDBStoreTimer.Events.SAVE_RECORDS,
+                    saveTypedRecordsSequentially(typedSerializer, recordBuilders, existenceCheck, metaData));
+        }
+        // Load all the existing records first, in parallel, rather than each just before saving its replacement.
+        final List<CompletableFuture<FDBStoredRecord<M>>> oldRecordFutures = new ArrayList<>(recordBuilders.size());
+        for (FDBStoredRecordBuilder<M> recordBuilder : recordBuilders) {
+            oldRecordFutures.add(loadExistingRecord(typedSerializer, recordBuilder.getPrimaryKey()));
+        }
+        final CompletableFuture<List<FDBStoredRecord<M>>> result = AsyncUtil.getAll(oldRecordFutures)
+                .thenCompose(oldRecords -> {
+                    for (int i = 0; i < recordBuilders.size(); i++) {
+                        checkExistence(existenceCheck, recordBuilders.get(i), oldRecords.get(i));
+                    }
+                    return getRecordStoreStateAsync().thenCompose(recordStoreState -> {
+                        validateRecordUpdateAllowed(recordStoreState);
+                        final List<FDBStoredRecord<M>> newRecords = new ArrayList<>(recordBuilders.size());
+                        for (int i = 0; i < recordBuilders.size(); i++) {
+                            final FDBStoredRecord<M> oldRecord = oldRecords.get(i);
+                            final FDBStoredRecord<M> newRecord = serializeAndSaveRecord(typedSerializer, recordBuilders.get(i), metaData, oldRecord);
+                            if (oldRecord == null) {
+                                addRecordCount(metaData, newRecord, LITTLE_ENDIAN_INT64_ONE);
+                            } else {
+                                if (getTimer() != null) {
+                                    getTimer().increment(FDBStoreTimer.Counts.REPLACE_RECORD_VALUE_BYTES, oldRecord.getValueSize());
+                                }
+                            }
+                            newRecords.add(newRecord);
+                        }
+                        return updateSecondaryIndexes(oldRecords, newRecords).thenApply(v -> newRecords);
+                    });
+                });
+        return context.instrument(FDBStoreTimer.Events.SAVE_RECORDS, result);
+    }
+
+    @Nonnull
+    private <M extends Message> CompletableFuture<List<FDBStoredRecord<M>>> saveTypedRecordsSequentially(@Nonnull RecordSerializer<M> typedSerializer,
+                                                                                                        @Nonnull List<FDBStoredRecordBuilder<M>> recordBuilders,
+                                                                                                        @Nonnull RecordExistenceCheck existenceCheck,
+                                                                                                        @Nonnull RecordMetaData metaData) {
+        final List<FDBStoredRecord<M>> newRecords = new ArrayList<>(recordBuilders.size());
+        final Iterator<FDBStoredRecordBuilder<M>> iterator = recordBuilders.iterator();
+        return AsyncUtil.whileTrue(() -> {
+            final FDBStoredRecordBuilder<M> recordBuilder = iterator.next();
+            return loadExistingRecord(typedSerializer, recordBuilder.getPrimaryKey()).thenCompose(oldRecord -> {
+                checkExistence(existenceCheck, recordBuilder, oldRecord);
+                return getRecordStoreStateAsync().thenCompose(recordStoreState -> {
+                    validateRecordUpdateAllowed(recordStoreState);
+                    final FDBStoredRecord<M> newRecord = serializeAndSaveRecord(typedSerializer, recordBuilder, metaData, oldRecord);
+                    if (oldRecord == null) {
+                        addRecordCount(metaData, newRecord, LITTLE_ENDIAN_INT64_ONE);
+                    } else {
+                        if (getTimer() != null) {
+                            getTimer().increment(FDBStoreTimer.Counts.REPLACE_RECORD_VALUE_BYTES, oldRecord.getValueSize());
+                        }
+                    }
+                    newRecords.add(newRecord);
+                    return updateSecondaryIndexes(oldRecord, newRecord);
+                });
+            }).thenApply(vignore -> iterator.hasNext());
+        }, getExecutor()).thenApply(vignore -> newRecords);
+    }
+
     @SuppressWarnings("PMD.CloseResource")
     private <M extends Message> void addRecordCount(@Nonnull RecordMetaData metaData, @Nonnull FDBStoredRecord<M> rec, @Nonnull byte[] increment) {
         if (metaData.getRecordCountKey() != null) {
@@ -765,6 +896,95 @@ public class FDBRecordStore extends FDBStoreBase implements FDBRecordStoreBase<M
         }
     }
 
+    /**
+     * Update the secondary indexes for a batch of saved records. The updates are grouped by index, so that each index
+     * maintainer can {@linkplain IndexMaintainer#updateBatch handle them together}. Batches are only saved this way
+     * when there are no synthetic record types, whose indexes would need to be updated one record at a time.
+     */
+    @Nonnull
+    @SuppressWarnings("PMD.CompareObjectsWithEquals")
+    private <M extends Message> CompletableFuture<Void> updateSecondaryIndexes(@Nonnull final List<FDBStoredRecord<M>> oldRecords,
+                                                                               @Nonnull final List<FDBStoredRecord<M>> newRecords) {
+        final List<CompletableFuture<Void>> futures = new ArrayList<>();
+        final Map<Index, List<Pair<FDBIndexableRecord<M>, FDBIndexableRecord<M>>>> indexUpdates = new LinkedHashMap<>();
+        beginRecordStoreStateRead();
+        boolean haveFuture = false;
+        try {
+            for (int i = 0; i < newRecords.size(); i++) {
+                final FDBStoredRecord<M> oldRecord = oldRecords.get(i);
+                final FDBStoredRecord<M> newRecord = newRecords.get(i);
+                final RecordType newRecordType = newRecord.getRecordType();
+                if (oldRecord == null || oldRecord.getRecordType() == newRecordType) {
+                    addIndexUpdates(oldRecord, newRecord, indexUpdates, getEnabledIndexes(newRecordType));
+                    addIndexUpdates(oldRecord, newRecord, indexUpdates, getEnabledUniversalIndexes());
+                    addIndexUpdates(oldRecord, newRecord, indexUpdates, getEnabledMultiTypeIndexes(newRecordType));
+                } else {
+                    final RecordType oldRecordType = oldRecord.getRecordType();
+                    final List<Index> oldIndexes = new ArrayList<>(getEnabledIndexes(oldRecordType));
+                    oldIndexes.addAll(getEnabledMultiTypeIndexes(oldRecordType));
+                    final List<Index> newIndexes = new ArrayList<>(getEnabledIndexes(newRecordType));
+                    newIndexes.addAll(getEnabledMultiTypeIndexes(newRecordType));
+                    final List<Index> commonIndexes = new ArrayList<>(oldIndexes);
+                    commonIndexes.retainAll(newIndexes);
+                    commonIndexes.addAll(getEnabledUniversalIndexes());
+                    oldIndexes.removeAll(commonIndexes);
+                    newIndexes.removeAll(commonIndexes);
+                    addIndexUpdates(oldRecord, null, indexUpdates, oldIndexes);
+                    addIndexUpdates(null, newRecord, indexUpdates, newIndexes);
+                    addIndexUpdates(oldRecord, newRecord, indexUpdates, commonIndexes);
+                }
+            }
+            for (Map.Entry<Index, List<Pair<FDBIndexableRecord<M>, FDBIndexableRecord<M>>>> entry : indexUpdates.entrySet()) {
+                final Index index = entry.getKey();
+                final IndexMaintainer maintainer = getIndexMaintainer(index);
+                final CompletableFuture<Void> future;
+                if (isIndexWriteOnly(index)) {
+                    future = updateWhileWriteOnly(maintainer, entry.getValue());
+                } else {
+                    future = maintainer.updateBatch(entry.getValue());
+                }
+                if (!MoreAsyncUtil.isCompletedNormally(future)) {
+                    futures.add(future);
+                }
+            }
+            haveFuture = true;
+        } finally {
+            if (!haveFuture) {
+                endRecordStoreStateRead();
+            }
+        }
+        if (futures.isEmpty()) {
+            endRecordStoreStateRead();
+            return AsyncUtil.DONE;
+        } else {
+            return AsyncUtil.whenAll(futures).whenComplete((v, t) -> endRecordStoreStateRead());
+        }
+    }
+
+    private static <M extends Message> void addIndexUpdates(@Nullable final FDBIndexableRecord<M> oldRecord,
+                                                            @Nullable final FDBIndexableRecord<M> newRecord,
+                                                            @Nonnull final Map<Index, List<Pair<FDBIndexableRecord<M>, FDBIndexableRecord<M>>>> indexUpdates,
+                                                            @Nonnull final List<Index> indexes) {
+        for (Index index : indexes) {
+            indexUpdates.computeIfAbsent(index, k -> new ArrayList<>()).add(Pair.of(oldRecord, newRecord));
+        }
+    }
+
+    // Updates of an index that is being built are checked against the build's progress, so keep them one at a time.
+    @Nonnull
+    private static <M extends Message> CompletableFuture<Void> updateWhileWriteOnly(@Nonnull IndexMaintainer maintainer,
+                                                                                    @Nonnull List<Pair<FDBIndexableRecord<M>, FDBIndexableRecord<M>>> updates) {
+        CompletableFuture<Void> future = AsyncUtil.DONE;
+        for (Pair<FDBIndexableRecord<M>, FDBIndexableRecord<M>> update : updates) {
+            if (MoreAsyncUtil.isCompletedNormally(future)) {
+                future = maintainer.updateWhileWriteOnly(update.getLeft(), update.getRight());
+            } else {
+                future = future.thenCompose(vignore -> maintainer.updateWhileWriteOnly(update.getLeft(), update.getRight()));
+            }
+        }
+        return future;
+    }
+
     private <M extends Message> void updateSecondaryIndexes(@Nullable final FDBIndexableRecord<M> oldRecord,
                                                             @Nullable final FDBIndexableRecord<M> newRecord,
                                                             @Nonnull final List<CompletableFuture<Void>> futures,
@@ -2385,6 +2605,54 @@ public class FDBRecordStore extends FDBStoreBase implements FDBRecordStoreBase<M
         return planner.plan(query, parameterRelationshipGraph);
     }
 
+    /**
+     * Create a {@link CascadesPlanner} to use to plan queries on this record store. In addition to the types and
+     * indexes of the store, the planner is given the statistics collected for its readable indexes by the
+     * {@link OnlineIndexStatisticsCollector}, if they have already been loaded with this store. This does not
+     * wait for them to be loaded; use {@link #getCascadesPlannerAsync()} for a planner that always has them.
+     *
+     * @return a {@link CascadesPlanner} initialized with state from this record store
+     * @see #loadAllIndexStatisticsAsync()
+     */
+    @Override
+    @Nonnull
+    public CascadesPlanner getCascadesPlanner() {
+        final CascadesPlanner planner = new CascadesPlanner(getRecordMetaData(), getRecordStoreState(), getIndexMaintainerRegistry());
+        final CompletableFuture<Map<String, IndexStatistics>> indexStatistics = getCachedIndexStatisticsAsync();
+        if (MoreAsyncUtil.isCompletedNormally(indexStatistics)) {
+            planner.setIndexStatistics(indexStatistics.join());
+        }
+        return planner;
+    }
+
+    /**
+     * Create a {@link CascadesPlanner} to use to plan queries on this record store, once the statistics collected
+     * for its readable indexes by the {@link OnlineIndexStatisticsCollector} have been loaded. The statistics are
+     * read at most once with this store.
+     *
+     * @return a future that will contain a {@link CascadesPlanner} initialized with state from this record store
+     * @see #loadAllIndexStatisticsAsync()
+     */
+    @Override
+    @Nonnull
+    public CompletableFuture<CascadesPlanner> getCascadesPlannerAsync() {
+        return getCachedIndexStatisticsAsync().thenApply(indexStatistics -> {
+            final CascadesPlanner planner = new CascadesPlanner(getRecordMetaData(), getRecordStoreState(), getIndexMaintainerRegistry());
+            planner.setIndexStatistics(indexStatistics);
+            return planner;
+        });
+    }
+
+    @Nonnull
+    private CompletableFuture<Map<String, IndexStatistics>> getCachedIndexStatisticsAsync() {
+        CompletableFuture<Map<String, IndexStatistics>> indexStatistics = cachedIndexStatistics;
+        if (indexStatistics == null) {
+            indexStatistics = loadAllIndexStatisticsAsync();
+            cachedIndexStatistics = indexStatistics;
+        }
+        return indexStatistics;
+    }
+
     /**
      * Utility method to be used to specify that new indexes should be {@link IndexState#WRITE_ONLY}
      * if an index is not on new record types and there are too many records to build in-line. This method
@@ -3503,6 +3771,8 @@ public class FDBRecordStore extends FDBStoreBase implements FDBRecordStoreBase<M
         // This is generally called by someone who should already have a write lock, but adding them here
         // defensively shouldn't cause problems.
         beginRecordStoreStateWrite();
+        cachedIndexingTypeStamps.remove(indexName);
+        cachedIndexStatistics = null;
         try {
             context.setDirtyStoreState(true);
             if (isStateCacheableInternal()) {
@@ -3777,6 +4047,9 @@ public class FDBRecordStore extends FDBStoreBase implements FDBRecordStoreBase<M
     private CompletableFuture<Boolean> checkAndUpdateBuiltIndexState(Index index, byte[] indexKey, boolean allowUniquePending) {
         // An extension function to reduce markIndexReadable's complexity
         CompletableFuture<Optional<Range>> builtFuture = firstUnbuiltRange(index);
+        // A bulk sorted build notes records changed while it runs, which it still needs to repair after completing the range set
+        CompletableFuture<List<KeyValue>> changedRecordsFuture = ensureContextActive()
+                .getRange(IndexingSubspaces.indexBuildChangedRecordsSubspace(this, index).range(), 1).asList();
         CompletableFuture<Optional<RecordIndexUniquenessViolation>> uniquenessFuture;
         if (index.isUnique()) {
             // we wait for all the commit checks and then scan, because if the index is WriteOnly, the commit check
@@ -3789,8 +4062,9 @@ public class FDBRecordStore extends FDBStoreBase implements FDBRecordStoreBase<M
         } else {
             uniquenessFuture = CompletableFuture.completedFuture(Optional.empty());
         }
-        return CompletableFuture.allOf(builtFuture, uniquenessFuture).thenApply(vignore -> {
+        return CompletableFuture.allOf(builtFuture, changedRecordsFuture, uniquenessFuture).thenApply(vignore -> {
             Optional<Range> firstUnbuilt = context.join(builtFuture);
+            List<KeyValue> changedRecords = context.join(changedRecordsFuture);
             Optional<RecordIndexUniquenessViolation> uniquenessViolation = context.join(uniquenessFuture);
 
             if (firstUnbuilt.isPresent()) {
@@ -3800,6 +4074,11 @@ public class FDBRecordStore extends FDBStoreBase implements FDBRecordStoreBase<M
                         "unbuiltRangeEnd", ByteArrayUtil2.loggable(firstUnbuilt.get().end),
                         subspaceProvider.logKey(), subspaceProvider.toString(context),
                         LogMessageKeys.SUBSPACE_KEY, index.getSubspaceKey());
+            } else if (!changedRecords.isEmpty()) {
+                throw new IndexNotBuiltException("Attempted to make index with unrepaired changed records readable", null,
+                        LogMessageKeys.INDEX_NAME, index.getName(),
+                        subspaceProvider.logKey(), subspaceProvider.toString(context),
+                        LogMessageKeys.SUBSPACE_KEY, index.getSubspaceKey());
             } else if (uniquenessViolation.isPresent()) {
                 if (allowUniquePending) {
                     if (isIndexReadableUniquePending(index)) {
@@ -4227,6 +4506,21 @@ public class FDBRecordStore extends FDBStoreBase implements FDBRecordStoreBase<M
         return IndexBuildState.loadIndexBuildStateAsync(this, index);
     }
 
+    /**
+     * Load the indexing type stamp for an index, reading it at most once with this store. Index maintainers of
+     * write-only indexes need the stamp for every record saved, so it is kept until it is changed through this store,
+     * the state of the index changes or the index data is cleared. This method is {@link API.Status#INTERNAL}.
+     *
+     * @param index the index being built
+     * @return the indexing type stamp for the index's current build
+     * @see #loadIndexingTypeStampAsync(Index)
+     */
+    @API(API.Status.INTERNAL)
+    @Nonnull
+    public CompletableFuture<IndexBuildProto.IndexBuildIndexingStamp> loadCachedIndexingTypeStampAsync(@Nonnull Index index) {
+        return cachedIndexingTypeStamps.computeIfAbsent(index.getName(), name -> loadIndexingTypeStampAsync(index));
+    }
+
     /**
      * Load the indexing type stamp for an index. This stamp contains information about the kind of
      * index build being used to construct a new index. This method is {@link API.Status#INTERNAL}.
@@ -4268,6 +4562,80 @@ public class FDBRecordStore extends FDBStoreBase implements FDBRecordStoreBase<M
     public void saveIndexingTypeStamp(Index index, IndexBuildProto.IndexBuildIndexingStamp stamp) {
         byte[] stampKey = IndexingSubspaces.indexBuildTypeSubspace(this, index).pack();
         ensureContextActive().set(stampKey, stamp.toByteArray());
+        cachedIndexingTypeStamps.put(index.getName(), CompletableFuture.completedFuture(stamp));
+    }
+
+    /**
+     * Load the statistics collected for the given index by the {@link OnlineIndexStatisticsCollector}. Statistics
+     * collected before the index was last modified are ignored.
+     *
+     * @param index the index whose statistics to load
+     * @return a future that will contain the index's statistics or {@code null} if none have been collected
+     * @see OnlineIndexStatisticsCollector
+     */
+    @API(API.Status.EXPERIMENTAL)
+    @Nonnull
+    public CompletableFuture<IndexStatistics> loadIndexStatisticsAsync(@Nonnull Index index) {
+        byte[] statisticsKey = IndexingSubspaces.indexStatisticsSubspace(this, index).pack();
+        return ensureContextActive().snapshot().get(statisticsKey).thenApply(serializedStatistics -> {
+            if (serializedStatistics == null) {
+                return null;
+            }
+            final IndexStatistics statistics;
+            try {
+                statistics = IndexStatistics.fromProto(IndexStatisticsProto.IndexStatistics.parseFrom(serializedStatistics));
+            } catch (InvalidProtocolBufferException ex) {
+                RecordCoreException protoEx = new RecordCoreException("invalid index statistics",
+                        LogMessageKeys.INDEX_NAME, index.getName(),
+                        LogMessageKeys.ACTUAL, ByteArrayUtil2.loggable(serializedStatistics));
+                protoEx.initCause(ex);
+                throw protoEx;
+            }
+            return statistics.getIndexLastModifiedVersion() == index.getLastModifiedVersion() ? statistics : null;
+        });
+    }
+
+    /**
+     * Load the statistics collected for all readable indexes of this store, keyed by index name, for use by the
+     * planner (see {@link com.apple.foundationdb.record.query.plan.cascades.CascadesPlanner#setIndexStatistics}).
+     *
+     * @return a future that will contain the statistics of all readable indexes that have them
+     * @see #loadIndexStatisticsAsync(Index)
+     */
+    @API(API.Status.EXPERIMENTAL)
+    @Nonnull
+    public CompletableFuture<Map<String, IndexStatistics>> loadAllIndexStatisticsAsync() {
+        final List<Index> indexes = getRecordMetaData().getAllIndexes().stream()
+                .filter(this::isIndexReadable)
+                .collect(Collectors.toList());
+        final List<CompletableFuture<IndexStatistics>> futures = indexes.stream()
+                .map(this::loadIndexStatisticsAsync)
+                .collect(Collectors.toList());
+        return AsyncUtil.whenAll(futures).thenApply(ignore -> {
+            final Map<String, IndexStatistics> result = new HashMap<>();
+            for (int i = 0; i < indexes.size(); i++) {
+                final IndexStatistics statistics = futures.get(i).join();
+                if (statistics != null) {
+                    result.put(indexes.get(i).getName(), statistics);
+                }
+            }
+            return result;
+        });
+    }
+
+    /**
+     * Save the statistics of the given index. This is used by the {@link OnlineIndexStatisticsCollector} and is
+     * {@link API.Status#INTERNAL}.
+     *
+     * @param index the index whose statistics were collected
+     * @param statistics the statistics to save
+     * @see #loadIndexStatisticsAsync(Index)
+     */
+    @API(API.Status.INTERNAL)
+    public void saveIndexStatistics(@Nonnull Index index, @Nonnull IndexStatistics statistics) {
+        byte[] statisticsKey = IndexingSubspaces.indexStatisticsSubspace(this, index).pack();
+        ensureContextActive().set(statisticsKey, statistics.toProto().toByteArray());
+        cachedIndexStatistics = null;
     }
 
     // Remove any indexes that do not match the filter.
@@ -5052,6 +5420,8 @@ public class FDBRecordStore extends FDBStoreBase implements FDBRecordStoreBase<M
         // Under the index build subspace, there are multiple lower level subspaces - the lock subspace and few others. We are
         // not supposed to clear the lock subspace, which might have been used to an online index job that had invoked this method.
         IndexingSubspaces.eraseAllIndexingDataButTheLock(context, this, index);
+        cachedIndexingTypeStamps.remove(index.getName());
+        cachedIndexStatistics = null;
     }
 
     @SuppressWarnings("PMD.CloseResource")
@@ -5207,24 +5577,133 @@ public class FDBRecordStore extends FDBStoreBase implements FDBRecordStoreBase<M
         return getPrimaryKeyBoundaries(range.begin, range.end);
     }
 
-    @SuppressWarnings("PMD.CloseResource")
     private RecordCursor<Tuple> getPrimaryKeyBoundaries(byte[] rangeStart, byte[] rangeEnd) {
+        return getKeyBoundaries(recordsSubspace(), rangeStart, rangeEnd, hasSplitRecordSuffix());
+    }
+
+    @SuppressWarnings("PMD.CloseResource")
+    private RecordCursor<Tuple> getKeyBoundaries(@Nonnull Subspace subspace, byte[] rangeStart, byte[] rangeEnd, boolean hasSuffix) {
         final Transaction transaction = ensureContextActive();
         CloseableAsyncIterator<byte[]> cursor = context.getDatabase().getLocalityProvider().getBoundaryKeys(transaction, rangeStart, rangeEnd);
-        final boolean hasSplitRecordSuffix = hasSplitRecordSuffix();
         DistinctFilterCursorClosure closure = new DistinctFilterCursorClosure();
         return RecordCursor.flatMapPipelined(ignore -> RecordCursor.fromIterator(getExecutor(), cursor),
                 (result, ignore) -> RecordCursor.fromIterator(getExecutor(),
                         transaction.snapshot().getRange(result, rangeEnd, 1).iterator()),
                 null, DEFAULT_PIPELINE_SIZE)
                 .map(keyValue -> {
-                    Tuple recordKey = recordsSubspace().unpack(keyValue.getKey());
-                    return hasSplitRecordSuffix ? recordKey.popBack() : recordKey;
+                    Tuple key = subspace.unpack(keyValue.getKey());
+                    return hasSuffix ? key.popBack() : key;
                 })
                 // The input stream is expected to be sorted so this filter can work to de-duplicate the data.
                 .filter(closure::pred);
     }
 
+    /**
+     * Scan the records in a range of primary keys as several partitions at once. The range is split at the
+     * {@linkplain #getPrimaryKeyBoundaries(TupleRange) boundaries} of the shards that hold it, so that each
+     * partition is read from a different storage server, and the partitions are scanned concurrently. Unlike
+     * {@link #scanRecords(TupleRange, byte[], ScanProperties)}, which reads the whole range in a single sequence of
+     * range reads, the scan is therefore not bound by the latency of a single server.
+     *
+     * <p>
+     * If {@code ordered} is {@code false}, records are returned in whatever order their partitions return them.
+     * Otherwise, the partitions are merged in primary key order. Since the partitions do not overlap, the merge
+     * returns all the records of one partition before any of the next, and the later partitions do not read past
+     * their first records until the merge reaches them. An ordered scan is therefore mostly serialized and gives
+     * little speedup over {@link #scanRecords(TupleRange, byte[], ScanProperties)}; use it only where the order
+     * matters. Any skip and returned row limit of the scan properties apply to the merged records. All partitions
+     * share the scanned records, scanned bytes and time limits.
+     * </p>
+     *
+     * @param range the range of primary keys to scan
+     * @param continuation any continuation from a previous scan
+     * @param scanProperties skip, limit and other scan properties
+     * @param maxPartitions the maximum number of partitions to scan at once
+     * @param ordered whether to return the records in primary key order
+     * @return a cursor that will scan everything in the range, as several partitions at once
+     * @see RangePartitionedScan
+     */
+    @API(API.Status.EXPERIMENTAL)
+    @Nonnull
+    public RecordCursor<FDBStoredRecord<Message>> scanRecordsParallel(@Nonnull TupleRange range,
+                                                                      @Nullable byte[] continuation,
+                                                                      @Nonnull ScanProperties scanProperties,
+                                                                      int maxPartitions,
+                                                                      boolean ordered) {
+        return scanRecordsParallel(range, continuation, scanProperties, maxPartitions, ordered,
+                () -> getPrimaryKeyBoundaries(range).asList());
+    }
+
+    // Allows tests to split the range at given boundaries, since a test cluster's data rarely spans several shards.
+    @VisibleForTesting
+    @Nonnull
+    RecordCursor<FDBStoredRecord<Message>> scanRecordsParallel(
+            @Nonnull TupleRange range,
+            @Nullable byte[] continuation,
+            @Nonnull ScanProperties scanProperties,
+            int maxPartitions,
+            boolean ordered,
+            @Nonnull Supplier<CompletableFuture<List<Tuple>>> boundariesSupplier) {
+        final ScanProperties partitionScanProperties = scanProperties.with(ExecuteProperties::clearSkipAndLimit);
+        return RangePartitionedScan.<FDBStoredRecord<Message>>create(range,
+                        boundariesSupplier,
+                        (partition, partitionContinuation) ->
+                                scanRecords(partition, partitionContinuation, partitionScanProperties),
+                        ordered
+                        ? (FDBStoredRecord<Message> storedRecord) -> storedRecord.getPrimaryKey().getItems()
+                        : null,
+                        scanProperties.isReverse(), maxPartitions, continuation, getExecutor(), getTimer())
+                .skipThenLimit(scanProperties.getExecuteProperties().getSkip(),
+                        scanProperties.getExecuteProperties().getReturnedRowLimit());
+    }
+
+    /**
+     * Scan the entries in a range of a value index as several partitions at once. The range is split at the
+     * boundaries of the shards that hold it, like {@link #scanRecordsParallel}, and the partitions are scanned
+     * {@link IndexScanType#BY_VALUE} concurrently. This is only supported for {@link IndexTypes#VALUE} indexes,
+     * which store their entries as keys directly in the {@linkplain #indexSubspace(Index) index subspace}. As for
+     * records, an {@code ordered} scan returns one partition after the other and gives little speedup.
+     *
+     * @param index the index to scan
+     * @param range the range of index keys to scan
+     * @param continuation any continuation from a previous scan
+     * @param scanProperties skip, limit and other scan properties
+     * @param maxPartitions the maximum number of partitions to scan at once
+     * @param ordered whether to return the entries in index order
+     * @return a cursor that will scan everything in the range, as several partitions at once
+     * @throws RecordCoreArgumentException if the index is not a {@link IndexTypes#VALUE} index
+     * @see RangePartitionedScan
+     */
+    @API(API.Status.EXPERIMENTAL)
+    @Nonnull
+    public RecordCursor<IndexEntry> scanIndexParallel(@Nonnull Index index,
+                                                      @Nonnull TupleRange range,
+                                                      @Nullable byte[] continuation,
+                                                      @Nonnull ScanProperties scanProperties,
+                                                      int maxPartitions,
+                                                      boolean ordered) {
+        if (!IndexTypes.VALUE.equals(index.getType())) {
+            throw new RecordCoreArgumentException("Parallel index scan can only be used with VALUE indexes.",
+                    LogMessageKeys.INDEX_NAME, index.getName(),
+                    LogMessageKeys.INDEX_TYPE, index.getType(),
+                    subspaceProvider.logKey(), subspaceProvider.toString(context));
+        }
+        final ScanProperties partitionScanProperties = scanProperties.with(ExecuteProperties::clearSkipAndLimit);
+        return RangePartitionedScan.<IndexEntry>create(range,
+                        () -> {
+                            final Subspace indexSubspace = indexSubspace(index);
+                            final Range indexRange = range.toRange(indexSubspace);
+                            return getKeyBoundaries(indexSubspace, indexRange.begin, indexRange.end, false).asList();
+                        },
+                        (partition, partitionContinuation) -> scanIndex(index,
+                                new IndexScanRange(IndexScanType.BY_VALUE, partition), partitionContinuation,
+                                partitionScanProperties),
+                        ordered ? (IndexEntry entry) -> entry.getKey().getItems() : null,
+                        scanProperties.isReverse(), maxPartitions, continuation, getExecutor(), getTimer())
+                .skipThenLimit(scanProperties.getExecuteProperties().getSkip(),
+                        scanProperties.getExecuteProperties().getReturnedRowLimit());
+    }
+
     private static class DistinctFilterCursorClosure {
         private Tuple previousKey = null;
 
@@ -45,6 +45,7 @@ import com.apple.foundationdb.record.RecordMetaDataProvider;
 import com.apple.foundationdb.record.RecordStoreState;
 import com.apple.foundationdb.record.ScanProperties;
 import com.apple.foundationdb.record.TupleRange;
+import com.apple.foundationdb.record.cursors.AdaptivePipelineSize;
 import com.apple.foundationdb.record.cursors.FallbackCursor;
 import com.apple.foundationdb.record.logging.KeyValueLogMessage;
 import com.apple.foundationdb.record.logging.LogMessageKeys;
@@ -83,6 +84,7 @@ import java.util.List;
 import java.util.Objects;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Executor;
+import java.util.function.Function;
 import java.util.function.IntFunction;
 import java.util.function.Supplier;
 
@@ -687,6 +689,62 @@ public interface FDBRecordStoreBase<M extends Message> extends RecordMetaDataPro
         return saveRecord(rec, RecordExistenceCheck.ERROR_IF_NOT_EXISTS_OR_RECORD_TYPE_CHANGED);
     }
 
+    /**
+     * Async version of {@link #saveRecords(Collection)}.
+     * @param records the records to save
+     * @return a future that completes with the stored record forms of the saved records, in the same order
+     */
+    @API(API.Status.EXPERIMENTAL)
+    @Nonnull
+    default CompletableFuture<List<FDBStoredRecord<M>>> saveRecordsAsync(@Nonnull final Collection<? extends M> records) {
+        return saveRecordsAsync(records, RecordExistenceCheck.NONE);
+    }
+
+    /**
+     * Async version of {@link #saveRecords(Collection, RecordExistenceCheck)}.
+     * @param records the records to save
+     * @param existenceCheck when to throw an exception if a record with the same primary key as one of the records does or does not already exist
+     * @return a future that completes with the stored record forms of the saved records, in the same order
+     */
+    @API(API.Status.EXPERIMENTAL)
+    @Nonnull
+    CompletableFuture<List<FDBStoredRecord<M>>> saveRecordsAsync(@Nonnull Collection<? extends M> records,
+                                                                 @Nonnull RecordExistenceCheck existenceCheck);
+
+    /**
+     * Save a batch of records.
+     * This has the same effect as saving each of the records in turn, but it is faster for more than a few records,
+     * since the existing records are all loaded together and then each index is updated for the whole batch.
+     * If the meta-data has synthetic record types, the records are saved one at a time instead, since a synthetic
+     * record can join several of them.
+     * No two of the records may have the same primary key.
+     * @param records the records to save
+     * @return wrapping objects containing the saved records and metadata, in the same order
+     */
+    @API(API.Status.EXPERIMENTAL)
+    @Nonnull
+    default List<FDBStoredRecord<M>> saveRecords(@Nonnull final Collection<? extends M> records) {
+        return saveRecords(records, RecordExistenceCheck.NONE);
+    }
+
+    /**
+     * Save a batch of records.
+     * This has the same effect as saving each of the records in turn with the same existence check, except that
+     * if any check fails, none of the records are saved. If the meta-data has synthetic record types, the records
+     * are saved in turn, so a failed check for one of them only stops the records after it from being saved.
+     * No two of the records may have the same primary key.
+     * @param records the records to save
+     * @param existenceCheck when to throw an exception if a record with the same primary key as one of the records does or does not already exist
+     * @return wrapping objects containing the saved records and metadata, in the same order
+     * @see #saveRecords(Collection)
+     */
+    @API(API.Status.EXPERIMENTAL)
+    @Nonnull
+    default List<FDBStoredRecord<M>> saveRecords(@Nonnull final Collection<? extends M> records,
+                                                 @Nonnull RecordExistenceCheck existenceCheck) {
+        return getContext().asyncToSync(FDBStoreTimer.Waits.WAIT_SAVE_RECORD, saveRecordsAsync(records, existenceCheck));
+    }
+
     /**
      * Load the record with the given primary key.
      * @param primaryKey the primary key for the record
@@ -1325,8 +1383,12 @@ public interface FDBRecordStoreBase<M extends Message> extends RecordMetaDataPro
     default RecordCursor<FDBIndexedRecord<M>> fetchIndexRecords(@Nonnull RecordCursor<IndexEntry> indexCursor,
                                                                 @Nonnull IndexOrphanBehavior orphanBehavior,
                                                                 @Nonnull ExecuteState executeState) {
-        RecordCursor<FDBIndexedRecord<M>> recordCursor = indexCursor.mapPipelined(entry ->
-                loadIndexEntryRecord(entry, orphanBehavior, executeState), getPipelineSize(PipelineOperation.INDEX_TO_RECORD));
+        final Function<IndexEntry, CompletableFuture<FDBIndexedRecord<M>>> loadRecord = entry ->
+                loadIndexEntryRecord(entry, orphanBehavior, executeState);
+        final AdaptivePipelineSize adaptivePipelineSize = getPipelineSizer().newAdaptivePipelineSize(PipelineOperation.INDEX_TO_RECORD, getTimer());
+        RecordCursor<FDBIndexedRecord<M>> recordCursor = adaptivePipelineSize == null
+                                                         ? indexCursor.mapPipelined(loadRecord, getPipelineSize(PipelineOperation.INDEX_TO_RECORD))
+                                                         : indexCursor.mapPipelined(loadRecord, adaptivePipelineSize);
         if (orphanBehavior == IndexOrphanBehavior.SKIP) {
             recordCursor = recordCursor.filter(Objects::nonNull);
         }
@@ -1735,6 +1797,20 @@ public interface FDBRecordStoreBase<M extends Message> extends RecordMetaDataPro
      */
     interface PipelineSizer {
         int getPipelineSize(@Nonnull PipelineOperation pipelineOperation);
+
+        /**
+         * Get a pipeline size for an operation of the given type that adapts as the pipeline runs, instead of the
+         * fixed {@link #getPipelineSize(PipelineOperation)}. Only those operations that support it call this.
+         * @param pipelineOperation the operation
+         * @param timer the timer used to report changes to the pipeline size
+         * @return a new adaptive pipeline size or {@code null} to use the fixed pipeline size
+         * @see AdaptivePipelineSizer
+         */
+        @API(API.Status.EXPERIMENTAL)
+        @Nullable
+        default AdaptivePipelineSize newAdaptivePipelineSize(@Nonnull PipelineOperation pipelineOperation, @Nullable FDBStoreTimer timer) {
+            return null;
+        }
     }
 
     /**
@@ -2160,6 +2236,18 @@ public interface FDBRecordStoreBase<M extends Message> extends RecordMetaDataPro
         return new CascadesPlanner(getRecordMetaData(), getRecordStoreState(), getIndexMaintainerRegistry());
     }
 
+    /**
+     * Create a {@link CascadesPlanner} to use to plan queries on this record store, once any state that it needs
+     * from the database has been loaded.
+     *
+     * @return a future that will contain a {@link CascadesPlanner} implementation initialized with state from this record store
+     * @see #getCascadesPlanner()
+     */
+    @Nonnull
+    default CompletableFuture<CascadesPlanner> getCascadesPlannerAsync() {
+        return CompletableFuture.completedFuture(getCascadesPlanner());
+    }
+
     /**
      * Plan a query.
      * @param query the query to plan
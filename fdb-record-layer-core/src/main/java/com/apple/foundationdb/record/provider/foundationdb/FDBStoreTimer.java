@@ -115,6 +115,11 @@ public class FDBStoreTimer extends StoreTimer {
          * for later committing.
          */
         SAVE_RECORD("save record"),
+        /**
+         * The amount of time taken saving a batch of records.
+         * This time includes loading any existing records as well as the time for saving each of them.
+         */
+        SAVE_RECORDS("save records"),
         /**
          * The amount of time taken loading records.
          * This time includes fetching from the database and deserialization.
@@ -395,6 +400,8 @@ public class FDBStoreTimer extends StoreTimer {
         WAIT_CHECK_ONGOING_ONLINE_INDEX_BUILD("wait for checking ongoing online index builds"),
         /** Wait for {@link OnlineIndexer} to complete ongoing online index merge(s). */
         WAIT_ONLINE_MERGE_INDEX("wait for online merge index"),
+        /** Wait for {@link OnlineIndexStatisticsCollector} to complete collecting index statistics. */
+        WAIT_ONLINE_COLLECT_INDEX_STATISTICS("wait for online collect index statistics"),
         /** Wait for {@link OnlineIndexer} to build endpoints. */
         WAIT_BUILD_ENDPOINTS("wait for building endpoints"),
         /** Wait for a record scan without an index. */
@@ -536,6 +543,10 @@ public class FDBStoreTimer extends StoreTimer {
         LOAD_RECORD_KEY_BYTES("number of record key bytes loaded", true),
         /** The size of values for record key-value pairs loaded. */
         LOAD_RECORD_VALUE_BYTES("number of record value bytes loaded", true),
+        /** The number of times an {@link com.apple.foundationdb.record.cursors.AdaptivePipelineSize} allowed more operations in flight. */
+        ADAPTIVE_PIPELINE_GROW("number of adaptive pipeline size increases", false),
+        /** The number of times an {@link com.apple.foundationdb.record.cursors.AdaptivePipelineSize} allowed fewer operations in flight. */
+        ADAPTIVE_PIPELINE_SHRINK("number of adaptive pipeline size decreases", false),
         /** The number of index key-value pairs saved. */
         SAVE_INDEX_KEY("number of index keys saved", false, null, true),
         /** The size of keys for index key-value pairs saved. */
@@ -170,7 +170,19 @@ public enum FormatVersion implements Comparable<FormatVersion> {
      * {@code FormatVersion}.
      * This version also introduces {@linkplain RecordMetaDataProto.DataStoreInfo.StoreLockState.State#FULL_STORE}.
      */
-    FULL_STORE_LOCK(14)
+    FULL_STORE_LOCK(14),
+    /**
+     * This FormatVersion allows the bitmaps of {@link com.apple.foundationdb.record.metadata.IndexTypes#BITMAP_VALUE}
+     * indexes with the {@link com.apple.foundationdb.record.metadata.IndexOptions#BITMAP_VALUE_ENCODING_OPTION} set to
+     * {@code roaring} to be compacted.
+     * <p>
+     *     A compacted bitmap is stored compressed in a separate subspace, and updates to it are kept as raw bitmaps, as
+     *     before, together with a bitmap of the bits cleared since it was compacted. A server that did not know this
+     *     would neither see the compacted bits nor note the cleared ones.
+     * </p>
+     * @see com.apple.foundationdb.record.provider.foundationdb.indexes.BitmapValueCompaction
+     */
+    COMPACTED_BITMAP_VALUE(15)
     ;
 
     private final int value;
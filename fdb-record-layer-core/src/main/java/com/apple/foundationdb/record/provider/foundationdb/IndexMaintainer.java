@@ -23,6 +23,7 @@ package com.apple.foundationdb.record.provider.foundationdb;
 import com.apple.foundationdb.Transaction;
 import com.apple.foundationdb.annotation.API;
 import com.apple.foundationdb.async.AsyncUtil;
+import com.apple.foundationdb.async.MoreAsyncUtil;
 import com.apple.foundationdb.record.EvaluationContext;
 import com.apple.foundationdb.record.IndexEntry;
 import com.apple.foundationdb.record.IndexScanType;
@@ -36,6 +37,7 @@ import com.apple.foundationdb.record.metadata.IndexRecordFunction;
 import com.apple.foundationdb.record.metadata.Key;
 import com.apple.foundationdb.record.provider.foundationdb.indexes.InvalidIndexEntry;
 import com.apple.foundationdb.record.query.QueryToKeyMatcher;
+import com.apple.foundationdb.record.util.pair.Pair;
 import com.apple.foundationdb.subspace.Subspace;
 import com.apple.foundationdb.tuple.Tuple;
 import com.google.protobuf.Message;
@@ -53,7 +55,7 @@ import java.util.concurrent.CompletableFuture;
  *
  * An {@code IndexMaintainer} instance is associated with a particular record store and index meta-data.
  * Implementers should assume that the same maintainer might be used to perform multiple record updates,
- * even though this never happens today.
+ * as it is by {@link #updateBatch}.
  *
  * @see IndexMaintainerFactory
  */
@@ -152,6 +154,30 @@ public abstract class IndexMaintainer {
     public abstract <M extends Message> CompletableFuture<Void> updateWhileWriteOnly(@Nullable FDBIndexableRecord<M> oldRecord,
                                                                                      @Nullable FDBIndexableRecord<M> newRecord);
 
+    /**
+     * Update associated index for a batch of changed records, as when saving several records at once.
+     * The default implementation calls {@link #update} for each record in turn, waiting for any asynchronous work
+     * for one to complete before starting the next. Index types whose updates are independent of one another can
+     * override this to let them overlap or to combine writes to the same keys.
+     * @param updates pairs of the previous stored record (or <code>null</code>) and the new record (or <code>null</code>),
+     * with no primary key appearing more than once
+     * @param <M> type of message
+     * @return a future that is complete when all the index updates are done
+     */
+    @API(API.Status.EXPERIMENTAL)
+    @Nonnull
+    public <M extends Message> CompletableFuture<Void> updateBatch(@Nonnull List<Pair<FDBIndexableRecord<M>, FDBIndexableRecord<M>>> updates) {
+        CompletableFuture<Void> future = AsyncUtil.DONE;
+        for (Pair<FDBIndexableRecord<M>, FDBIndexableRecord<M>> update : updates) {
+            if (MoreAsyncUtil.isCompletedNormally(future)) {
+                future = update(update.getLeft(), update.getRight());
+            } else {
+                future = future.thenCompose(vignore -> update(update.getLeft(), update.getRight()));
+            }
+        }
+        return future;
+    }
+
 
     /**
      * Scans through the list of uniqueness violations within the database.
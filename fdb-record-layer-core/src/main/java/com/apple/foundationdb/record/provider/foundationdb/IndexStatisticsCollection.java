@@ -0,0 +1,329 @@
+/*
+ * IndexStatisticsCollection.java
+ *
+ * This source file is part of the FoundationDB open source project
+ *
+ * Copyright 2015-2026 Apple Inc. and the FoundationDB project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.apple.foundationdb.record.provider.foundationdb;
+
+import com.apple.foundationdb.KeyValue;
+import com.apple.foundationdb.annotation.API;
+import com.apple.foundationdb.async.AsyncUtil;
+import com.apple.foundationdb.async.RangeSet;
+import com.apple.foundationdb.record.ExecuteProperties;
+import com.apple.foundationdb.record.IndexBuildProto;
+import com.apple.foundationdb.record.IndexEntry;
+import com.apple.foundationdb.record.IndexScanType;
+import com.apple.foundationdb.record.IndexStatisticsProto;
+import com.apple.foundationdb.record.IsolationLevel;
+import com.apple.foundationdb.record.RecordCoreException;
+import com.apple.foundationdb.record.RecordCursor;
+import com.apple.foundationdb.record.RecordCursorResult;
+import com.apple.foundationdb.record.ScanProperties;
+import com.apple.foundationdb.record.TupleRange;
+import com.apple.foundationdb.record.logging.KeyValueLogMessage;
+import com.apple.foundationdb.record.logging.LogMessageKeys;
+import com.apple.foundationdb.record.metadata.Index;
+import com.apple.foundationdb.record.metadata.IndexTypes;
+import com.apple.foundationdb.record.provider.foundationdb.indexing.IndexingRangeSet;
+import com.apple.foundationdb.record.provider.foundationdb.statistics.EquiDepthHistogram;
+import com.apple.foundationdb.record.provider.foundationdb.statistics.HyperLogLogSketch;
+import com.apple.foundationdb.record.provider.foundationdb.statistics.IndexStatistics;
+import com.apple.foundationdb.subspace.Subspace;
+import com.apple.foundationdb.tuple.Tuple;
+import com.apple.foundationdb.tuple.TupleHelpers;
+import com.google.protobuf.ByteString;
+import com.google.protobuf.InvalidProtocolBufferException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Collect {@link IndexStatistics} for a readable value index by scanning its entries. The scan is split into
+ * throttled transactions like an index build. The covered ranges, the entry count, the distinct count sketches and
+ * a bottom-k sample of the entries (by hash of the entry key) are persisted in every transaction, so an interrupted
+ * collection resumes where it stopped. When all ranges have been covered, the statistics are computed and saved, and
+ * the collection state is erased.
+ */
+@API(API.Status.INTERNAL)
+public class IndexStatisticsCollection extends IndexingBase {
+    @Nonnull
+    private static final Logger LOGGER = LoggerFactory.getLogger(IndexStatisticsCollection.class);
+    @Nonnull
+    private static final IndexBuildProto.IndexBuildIndexingStamp myIndexingTypeStamp = compileIndexingTypeStamp();
+    @Nonnull
+    private final OnlineIndexStatisticsCollector.CollectionPolicy collectionPolicy;
+    @Nonnull
+    private final AtomicReference<IndexStatistics> collectedStatistics;
+
+    public IndexStatisticsCollection(@Nonnull final IndexingCommon common,
+                                     @Nonnull final OnlineIndexer.IndexingPolicy policy,
+                                     @Nonnull final OnlineIndexStatisticsCollector.CollectionPolicy collectionPolicy,
+                                     @Nonnull final AtomicReference<IndexStatistics> collectedStatistics) {
+        // Like scrubbing, this only reads a readable index
+        super(common, policy, true);
+        this.collectionPolicy = collectionPolicy;
+        this.collectedStatistics = collectedStatistics;
+    }
+
+    @Override
+    List<Object> indexingLogMessageKeyValues() {
+        return Arrays.asList(
+                LogMessageKeys.INDEXING_METHOD, "collect statistics",
+                LogMessageKeys.RANGE_RESET, collectionPolicy.isRangeReset(),
+                LogMessageKeys.LIMIT, collectionPolicy.getSampleSize()
+        );
+    }
+
+    @Nonnull
+    @Override
+    IndexBuildProto.IndexBuildIndexingStamp getIndexingTypeStamp(final FDBRecordStore store) {
+        return myIndexingTypeStamp;
+    }
+
+    @Nonnull
+    static IndexBuildProto.IndexBuildIndexingStamp compileIndexingTypeStamp() {
+        // As with scrubbing, this stamp is never committed
+        return
+                IndexBuildProto.IndexBuildIndexingStamp.newBuilder()
+                        .setMethod(IndexBuildProto.IndexBuildIndexingStamp.Method.SCRUB_REPAIR)
+                        .build();
+    }
+
+    @Override
+    CompletableFuture<Void> buildIndexInternalAsync() {
+        return getRunner().runAsync(context ->
+                        context.getReadVersionAsync().thenCompose(ignore -> collectStatistics()),
+                common.indexLogMessageKeyValues("IndexStatisticsCollection::buildIndexInternalAsync"));
+    }
+
+    @Nonnull
+    private CompletableFuture<Void> collectStatistics() {
+        final List<Object> additionalLogMessageKeyValues = Arrays.asList(LogMessageKeys.CALLING_METHOD, "collectStatistics");
+        return iterateAllRanges(additionalLogMessageKeyValues, this::collectRangeOnly);
+    }
+
+    @Nonnull
+    private CompletableFuture<Boolean> collectRangeOnly(@Nonnull FDBRecordStore store, @Nonnull AtomicLong recordsScanned) {
+        final Index index = common.getIndex();
+        validateOrThrowEx(store.getIndexState(index).isScannable(), "index statistics can only be collected for a readable index");
+        validateOrThrowEx(IndexTypes.VALUE.equals(index.getType()), "index statistics can only be collected for value indexes");
+
+        final IndexingRangeSet rangeSet = IndexingRangeSet.forIndexStatistics(store, index);
+        return rangeSet.firstMissingRangeAsync().thenCompose(range -> {
+            if (range == null) {
+                // Here: all the index entries have been sampled
+                return finishCollection(store, index).thenApply(ignore -> false);
+            }
+            final Tuple rangeStart = RangeSet.isFirstKey(range.begin) ? null : Tuple.fromBytes(range.begin);
+            final Tuple rangeEnd = RangeSet.isFinalKey(range.end) ? null : Tuple.fromBytes(range.end);
+            final TupleRange tupleRange = TupleRange.between(rangeStart, rangeEnd);
+
+            final ScanProperties scanProperties = new ScanProperties(ExecuteProperties.newBuilder()
+                    .setIsolationLevel(IsolationLevel.SNAPSHOT)
+                    .setReturnedRowLimit(getLimit() + 1) // +1 allows a continuation item
+                    .build());
+            final AtomicBoolean hasMore = new AtomicBoolean(true);
+            final AtomicReference<RecordCursorResult<IndexEntry>> lastResult = new AtomicReference<>(RecordCursorResult.exhausted());
+
+            return Progress.loadAsync(store, index, collectionPolicy.getSampleSize()).thenCompose(progress -> {
+                final RecordCursor<IndexEntry> cursor = store.scanIndex(index, IndexScanType.BY_VALUE, tupleRange, null, scanProperties);
+                return iterateRangeOnly(store, cursor,
+                        (recordStore, result) -> {
+                            progress.add(result.get());
+                            return CompletableFuture.completedFuture(null);
+                        },
+                        lastResult, hasMore, recordsScanned, true)
+                        .thenApply(vignore -> hasMore.get() ? lastResult.get().get().getKey() : rangeEnd)
+                        .thenCompose(continuation -> {
+                            progress.save(store);
+                            return rangeSet.insertRangeAsync(packOrNull(rangeStart), packOrNull(continuation), true)
+                                    .thenApply(ignore -> true);
+                        });
+            });
+        });
+    }
+
+    @Nonnull
+    private CompletableFuture<Void> finishCollection(@Nonnull FDBRecordStore store, @Nonnull Index index) {
+        return Progress.loadAsync(store, index, collectionPolicy.getSampleSize()).thenAccept(progress -> {
+            final IndexStatistics statistics = progress.toStatistics(index, collectionPolicy.getHistogramBucketCount());
+            store.saveIndexStatistics(index, statistics);
+            IndexingSubspaces.eraseIndexStatisticsProgress(store.getRecordContext(), store, index);
+            store.getRecordContext().addAfterCommit(() -> collectedStatistics.set(statistics));
+            if (LOGGER.isInfoEnabled()) {
+                LOGGER.info(KeyValueLogMessage.build("collected index statistics")
+                        .addKeysAndValues(common.indexLogMessageKeyValues())
+                        .addKeyAndValue(LogMessageKeys.RECORD_COUNT, statistics.getEntryCount())
+                        .toString());
+            }
+        });
+    }
+
+    @Nonnull
+    @Override
+    protected CompletableFuture<Void> setScrubberTypeOrThrow(FDBRecordStore store) {
+        // HERE: The index must be readable, checked by the caller.
+        if (collectionPolicy.isRangeReset()) {
+            if (LOGGER.isInfoEnabled()) {
+                LOGGER.info(KeyValueLogMessage.build("Reset index statistics collection")
+                        .addKeysAndValues(common.indexLogMessageKeyValues())
+                        .addKeyAndValue(LogMessageKeys.REASON, "forced reset")
+                        .toString());
+            }
+            IndexingSubspaces.eraseIndexStatisticsProgress(store.getRecordContext(), store, common.getIndex());
+        }
+        return AsyncUtil.DONE;
+    }
+
+    @Override
+    CompletableFuture<Void> rebuildIndexInternalAsync(final FDBRecordStore store) {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * The state of a collection, as persisted between transactions.
+     */
+    private static final class Progress {
+        @Nonnull
+        private final Subspace progressSubspace;
+        @Nonnull
+        private final Subspace sampleSubspace;
+        private final int sampleSize;
+        private final int columnSize;
+        private long entryCount;
+        @Nonnull
+        private final List<HyperLogLogSketch> sketches;
+        // The entries with the smallest hashes, mapped to their first column
+        @Nonnull
+        private final TreeMap<Long, byte[]> sample;
+        @Nonnull
+        private final Set<Long> storedSample;
+
+        private Progress(@Nonnull FDBRecordStore store, @Nonnull Index index, int sampleSize,
+                         @Nullable byte[] serializedProgress, @Nonnull List<KeyValue> sampleKeyValues) {
+            this.progressSubspace = IndexingSubspaces.indexStatisticsProgressSubspace(store, index);
+            this.sampleSubspace = IndexingSubspaces.indexStatisticsSampleSubspace(store, index);
+            this.sampleSize = sampleSize;
+            this.columnSize = index.getColumnSize();
+            this.sketches = new ArrayList<>(columnSize);
+            if (serializedProgress == null) {
+                for (int i = 0; i < columnSize; i++) {
+                    sketches.add(new HyperLogLogSketch());
+                }
+            } else {
+                final IndexStatisticsProto.IndexStatisticsProgress proto = parseProgress(index, serializedProgress);
+                entryCount = proto.getEntryCount();
+                for (ByteString sketch : proto.getDistinctPrefixSketchList()) {
+                    sketches.add(HyperLogLogSketch.fromBytes(sketch.toByteArray()));
+                }
+            }
+            this.sample = new TreeMap<>();
+            for (KeyValue keyValue : sampleKeyValues) {
+                sample.put(sampleSubspace.unpack(keyValue.getKey()).getLong(0), keyValue.getValue());
+            }
+            this.storedSample = new HashSet<>(sample.keySet());
+        }
+
+        @Nonnull
+        static CompletableFuture<Progress> loadAsync(@Nonnull FDBRecordStore store, @Nonnull Index index, int sampleSize) {
+            final FDBRecordContext context = store.getRecordContext();
+            final CompletableFuture<byte[]> progressFuture = context.ensureActive()
+                    .get(IndexingSubspaces.indexStatisticsProgressSubspace(store, index).pack());
+            final CompletableFuture<List<KeyValue>> sampleFuture = context.ensureActive()
+                    .getRange(IndexingSubspaces.indexStatisticsSampleSubspace(store, index).range()).asList();
+            return progressFuture.thenCombine(sampleFuture,
+                    (serializedProgress, sampleKeyValues) -> new Progress(store, index, sampleSize, serializedProgress, sampleKeyValues));
+        }
+
+        @Nonnull
+        private static IndexStatisticsProto.IndexStatisticsProgress parseProgress(@Nonnull Index index, @Nonnull byte[] serializedProgress) {
+            try {
+                return IndexStatisticsProto.IndexStatisticsProgress.parseFrom(serializedProgress);
+            } catch (InvalidProtocolBufferException ex) {
+                throw new RecordCoreException("invalid index statistics progress", ex)
+                        .addLogInfo(LogMessageKeys.INDEX_NAME, index.getName());
+            }
+        }
+
+        void add(@Nullable IndexEntry indexEntry) {
+            if (indexEntry == null) {
+                return;
+            }
+            final Tuple key = indexEntry.getKey();
+            entryCount++;
+            for (int i = 0; i < columnSize && i < key.size(); i++) {
+                sketches.get(i).add(TupleHelpers.subTuple(key, 0, i + 1).pack());
+            }
+            final long hash = HyperLogLogSketch.hash(key.pack());
+            if (sample.size() < sampleSize || hash < sample.lastKey()) {
+                sample.put(hash, Tuple.from(key.get(0)).pack());
+                if (sample.size() > sampleSize) {
+                    sample.pollLastEntry();
+                }
+            }
+        }
+
+        void save(@Nonnull FDBRecordStore store) {
+            final FDBRecordContext context = store.getRecordContext();
+            final IndexStatisticsProto.IndexStatisticsProgress.Builder builder = IndexStatisticsProto.IndexStatisticsProgress.newBuilder()
+                    .setEntryCount(entryCount);
+            for (HyperLogLogSketch sketch : sketches) {
+                builder.addDistinctPrefixSketch(ByteString.copyFrom(sketch.toBytes()));
+            }
+            context.ensureActive().set(progressSubspace.pack(), builder.build().toByteArray());
+            for (Long hash : storedSample) {
+                if (!sample.containsKey(hash)) {
+                    context.ensureActive().clear(sampleSubspace.pack(Tuple.from(hash)));
+                }
+            }
+            sample.forEach((hash, value) -> {
+                if (!storedSample.contains(hash)) {
+                    context.ensureActive().set(sampleSubspace.pack(Tuple.from(hash)), value);
+                }
+            });
+        }
+
+        @Nonnull
+        IndexStatistics toStatistics(@Nonnull Index index, int histogramBucketCount) {
+            final List<Long> distinctPrefixCounts = new ArrayList<>(sketches.size());
+            for (HyperLogLogSketch sketch : sketches) {
+                distinctPrefixCounts.add(Math.min(entryCount, sketch.estimate()));
+            }
+            final List<Tuple> sortedSample = new ArrayList<>(sample.size());
+            for (byte[] value : sample.values()) {
+                sortedSample.add(Tuple.fromBytes(value));
+            }
+            sortedSample.sort(null);
+            return new IndexStatistics(entryCount, distinctPrefixCounts,
+                    EquiDepthHistogram.fromSortedSample(sortedSample, histogramBucketCount),
+                    sample.size(), index.getLastModifiedVersion(), System.currentTimeMillis());
+        }
+    }
+}
@@ -808,7 +808,7 @@ public abstract class IndexingBase {
         return AsyncUtil.READY_FALSE;
     }
 
-    private CompletableFuture<Void> validateTypeStamp(@Nonnull FDBRecordStore store) {
+    protected CompletableFuture<Void> validateTypeStamp(@Nonnull FDBRecordStore store) {
         // check other heartbeats (if exclusive) & typestamp
         if (isScrubber) {
             // Scrubber's type-stamp is never commited. It is protected by expecting a READABLE index state.
@@ -0,0 +1,821 @@
+/*
+ * IndexingBulkSortedByRecords.java
+ *
+ * This source file is part of the FoundationDB open source project
+ *
+ * Copyright 2015-2026 Apple Inc. and the FoundationDB project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.apple.foundationdb.record.provider.foundationdb;
+
+import com.apple.foundationdb.KeySelector;
+import com.apple.foundationdb.KeyValue;
+import com.apple.foundationdb.MutationType;
+import com.apple.foundationdb.Range;
+import com.apple.foundationdb.Transaction;
+import com.apple.foundationdb.annotation.API;
+import com.apple.foundationdb.async.AsyncUtil;
+import com.apple.foundationdb.async.RangeSet;
+import com.apple.foundationdb.record.ExecuteProperties;
+import com.apple.foundationdb.record.IndexBuildProto;
+import com.apple.foundationdb.record.IndexEntry;
+import com.apple.foundationdb.record.IsolationLevel;
+import com.apple.foundationdb.record.PipelineOperation;
+import com.apple.foundationdb.record.RecordCoreException;
+import com.apple.foundationdb.record.RecordCursor;
+import com.apple.foundationdb.record.ScanProperties;
+import com.apple.foundationdb.record.TupleRange;
+import com.apple.foundationdb.record.logging.LogMessageKeys;
+import com.apple.foundationdb.record.metadata.Index;
+import com.apple.foundationdb.record.metadata.IndexTypes;
+import com.apple.foundationdb.record.metadata.RecordType;
+import com.apple.foundationdb.record.provider.common.CipherPool;
+import com.apple.foundationdb.record.provider.foundationdb.cursors.RangePartitionedScan;
+import com.apple.foundationdb.record.provider.foundationdb.indexes.ValueIndexMaintainer;
+import com.apple.foundationdb.record.provider.foundationdb.indexing.IndexingRangeSet;
+import com.apple.foundationdb.record.sorting.FileSortAdapter;
+import com.apple.foundationdb.record.sorting.FileSorter;
+import com.apple.foundationdb.record.sorting.MemorySortAdapter;
+import com.apple.foundationdb.record.sorting.MemorySorter;
+import com.apple.foundationdb.record.sorting.SortedFileReader;
+import com.apple.foundationdb.subspace.Subspace;
+import com.apple.foundationdb.tuple.ByteArrayUtil;
+import com.apple.foundationdb.tuple.Tuple;
+import com.google.common.base.Suppliers;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.Message;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.crypto.KeyGenerator;
+import java.io.File;
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiFunction;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * This indexer scans records in parallel ranges, sorts the index entries of all of them in local files, and then
+ * writes the entries in index order.
+ *
+ * <p>
+ * A by-records build updates the index for each record as it is scanned in primary key order, so every transaction
+ * writes to keys all over the index. Here, the records are read with snapshot isolation, as several partitions at
+ * once (see {@link FDBRecordStore#scanRecordsParallel}), and their entries are fed to a {@link FileSorter}. Once all
+ * the records have been read, the sorted entries are written as blind sets, with as many contiguous keys in each
+ * transaction as the write limit allows.
+ * </p>
+ *
+ * <p>
+ * The range set is only marked complete once all the sorted entries are written, so while the build is running, the
+ * index is maintained for every saved record and, in addition, the primary key of the record is noted (see
+ * {@link com.apple.foundationdb.record.provider.foundationdb.indexes.StandardIndexMaintainer#updateWriteOnlyBulkSorted}).
+ * The entries written from the sorted files for those records may be stale. After the range set is complete, no more
+ * records are noted, so the entries of those that were are then cleared and the current entries of the records
+ * written instead. The index cannot be marked readable until none are left.
+ * </p>
+ *
+ * <p>
+ * The sorted files are read and written by a dedicated pool of threads, rather than by the executor of the
+ * database, so that completing a future of a transaction does not wait for local disk.
+ * The sorted files are local to this process, so a build that is interrupted starts again from the beginning, even
+ * when only the changed records were left to repair.
+ * Only single, non-unique, {@link IndexTypes#VALUE} indexes on stored records are supported, because these are
+ * idempotent and their entries can be written without reading anything; others fail validation, which lets
+ * the {@link OnlineIndexer} fall back to a by-records build.
+ * </p>
+ */
+@API(API.Status.INTERNAL)
+public class IndexingBulkSortedByRecords extends IndexingBase {
+    private static final IndexBuildProto.IndexBuildIndexingStamp MY_INDEXING_TYPE_STAMP =
+            IndexBuildProto.IndexBuildIndexingStamp.newBuilder()
+                    .setMethod(IndexBuildProto.IndexBuildIndexingStamp.Method.BULK_SORTED_BY_RECORDS)
+                    .build();
+
+    // Shared by all builds, which only ever have one file operation outstanding at a time.
+    private static final Supplier<ExecutorService> FILE_EXECUTOR = Suppliers.memoize(() -> {
+        ThreadFactory threadFactory = new ThreadFactoryBuilder()
+                .setDaemon(true)
+                .setNameFormat("fdb-bulk-sorted-files-%d")
+                .build();
+        return Executors.newCachedThreadPool(threadFactory);
+    });
+
+    @Nullable
+    private FileSorter<byte[], SortedEntry> fileSorter;
+    @Nullable
+    private SortedEntryAdapter adapter;
+    @Nullable
+    private byte[] scanContinuation;
+    @Nullable
+    private List<SortedEntry> sortedInMemory;
+    @Nullable
+    private File sortedFile;
+    private long entriesWritten;
+    private long entriesSorted;
+    @Nonnull
+    private final Map<Tuple, List<byte[]>> sortedKeysByPrimaryKey = new HashMap<>();
+
+    IndexingBulkSortedByRecords(@Nonnull IndexingCommon common,
+                                @Nonnull OnlineIndexer.IndexingPolicy policy) {
+        super(common, policy);
+    }
+
+    @Override
+    @Nonnull
+    IndexBuildProto.IndexBuildIndexingStamp getIndexingTypeStamp(FDBRecordStore store) {
+        return MY_INDEXING_TYPE_STAMP;
+    }
+
+    @Override
+    List<Object> indexingLogMessageKeyValues() {
+        return Arrays.asList(
+                LogMessageKeys.INDEXING_METHOD, "bulk sorted by records",
+                LogMessageKeys.TARGET_INDEX_NAME, common.getTargetIndexesNames(),
+                LogMessageKeys.RECORD_COUNT, entriesSorted
+        );
+    }
+
+    @Nonnull
+    private Index getTargetIndex() {
+        return common.getPrimaryIndex();
+    }
+
+    private void validateBulkSortableOrThrow(@Nonnull FDBRecordStore store) {
+        final Index index = getTargetIndex();
+        validateOrThrowEx(!common.isMultiTarget(), "bulk sorted build supports a single target index");
+        validateOrThrowEx(IndexTypes.VALUE.equals(index.getType()), "bulk sorted build supports only VALUE indexes");
+        validateOrThrowEx(!index.isUnique(), "bulk sorted build does not support unique indexes");
+        validateOrThrowEx(!common.getTargetIndexContexts().get(0).isSynthetic, "bulk sorted build does not support synthetic indexes");
+        validateOrThrowEx(store.getIndexMaintainer(index) instanceof ValueIndexMaintainer, "bulk sorted build requires a value index maintainer");
+    }
+
+    @Nonnull
+    @Override
+    CompletableFuture<Void> buildIndexInternalAsync() {
+        final List<Object> additionalLogMessageKeyValues = Arrays.asList(LogMessageKeys.CALLING_METHOD, "buildBulkSortedIndex");
+        resetSortState();
+        return buildCommitRetryAsync(this::prepareBuild, additionalLogMessageKeyValues)
+                .thenCompose(shouldBuild -> {
+                    if (!shouldBuild) {
+                        return AsyncUtil.DONE;
+                    }
+                    return sortEntries(additionalLogMessageKeyValues)
+                            .thenCompose(vignore -> writeSortedEntries(additionalLogMessageKeyValues))
+                            .thenCompose(vignore -> repairChangedRecordsAndComplete(additionalLogMessageKeyValues));
+                })
+                .whenComplete((ignore, ex) -> deleteSortedFiles());
+    }
+
+    private void resetSortState() {
+        deleteSortedFiles();
+        scanContinuation = null;
+        sortedInMemory = null;
+        sortedFile = null;
+        entriesWritten = 0;
+        entriesSorted = 0;
+        sortedKeysByPrimaryKey.clear();
+    }
+
+    /**
+     * Run a sequence of transactions, throttled like the build of ranges.
+     * @param additionalLogMessageKeyValues log keys and values for progress messages
+     * @param transactionFunction the work to do in each transaction
+     * @param afterCommit called with the result of each committed transaction; returns whether there is more to do
+     * @param <R> the result of a single transaction
+     * @return a future that is complete when there is nothing more to do
+     */
+    @Nonnull
+    private <R> CompletableFuture<Void> iterateTransactions(@Nonnull List<Object> additionalLogMessageKeyValues,
+                                                            @Nonnull BiFunction<FDBRecordStore, AtomicLong, CompletableFuture<R>> transactionFunction,
+                                                            @Nonnull Predicate<R> afterCommit) {
+        return AsyncUtil.whileTrue(() -> buildCommitRetryAsync(transactionFunction, additionalLogMessageKeyValues, true)
+                        .thenCompose(result -> doneOrThrottleDelayAndMaybeLogProgress(!afterCommit.test(result), additionalLogMessageKeyValues)),
+                getRunner().getExecutor());
+    }
+
+    @Nonnull
+    @SuppressWarnings("unused")
+    private CompletableFuture<Boolean> prepareBuild(@Nonnull FDBRecordStore store, @Nonnull AtomicLong recordsScanned) {
+        // return false if the index is already built
+        validateSameMetadataOrThrow(store);
+        validateBulkSortableOrThrow(store);
+        final Index index = getTargetIndex();
+        final IndexingRangeSet rangeSet = IndexingRangeSet.forIndexBuild(store, index);
+        final Subspace changedRecordsSubspace = IndexingSubspaces.indexBuildChangedRecordsSubspace(store, index);
+        return validateTypeStamp(store)
+                .thenCompose(ignore -> rangeSet.firstMissingRangeAsync())
+                .thenCompose(range -> {
+                    if (range != null) {
+                        // The range set is only ever updated all at once, so anything else was built another way.
+                        validateOrThrowEx(RangeSet.isFirstKey(range.begin) && RangeSet.isFinalKey(range.end),
+                                "bulk sorted build cannot continue a partly built index");
+                        return AsyncUtil.READY_TRUE;
+                    }
+                    // A complete range set with changed records left was interrupted while repairing them.
+                    return store.ensureContextActive().getRange(changedRecordsSubspace.range(), 1).asList()
+                            .thenApply(keyValues -> !keyValues.isEmpty());
+                })
+                .thenApply(shouldBuild -> {
+                    if (!shouldBuild) {
+                        return false;
+                    }
+                    // Start over. Anything from an interrupted build is in files that are no longer available.
+                    final Subspace indexSubspace = store.indexSubspace(index);
+                    final Transaction transaction = store.ensureContextActive();
+                    rangeSet.clear();
+                    transaction.clear(indexSubspace.range());
+                    transaction.clear(changedRecordsSubspace.range());
+                    final int maxRecordCountInMemory = policy.getBulkSortedMaxRecordCountInMemory() > 0 ?
+                                                       policy.getBulkSortedMaxRecordCountInMemory() :
+                                                       SortedEntryAdapter.DEFAULT_MAX_RECORD_COUNT_IN_MEMORY;
+                    adapter = new SortedEntryAdapter(indexSubspace, store.getRecordMetaData().getVersion(), maxRecordCountInMemory);
+                    fileSorter = new FileSorter<>(adapter, getRunner().getTimer(), FILE_EXECUTOR.get());
+                    return true;
+                });
+    }
+
+    @Nonnull
+    private CompletableFuture<Void> sortEntries(@Nonnull List<Object> additionalLogMessageKeyValues) {
+        return iterateTransactions(additionalLogMessageKeyValues, this::loadSortedEntries, loadResult -> {
+            scanContinuation = loadResult.getSourceContinuation().toBytes();
+            if (!loadResult.isLoadComplete()) {
+                return true;
+            }
+            final FileSorter<byte[], SortedEntry> sorter = getFileSorter();
+            if (loadResult.isInMemory()) {
+                sortedInMemory = new ArrayList<>(sorter.getMapSorter().getMap().values());
+                sorter.getMapSorter().getMap().clear();
+            } else {
+                sortedFile = sorter.getFiles().get(0);
+            }
+            return false;
+        });
+    }
+
+    @Nonnull
+    @SuppressWarnings("PMD.CloseResource")
+    private CompletableFuture<FileSorter.LoadResult> loadSortedEntries(@Nonnull FDBRecordStore store, @Nonnull AtomicLong recordsScanned) {
+        // Records are read at snapshot isolation: changes made to them while they are being sorted are caught by the
+        // changed records subspace. If this transaction is retried, its entries are loaded again, which is harmless.
+        validateSameMetadataOrThrow(store);
+        final Index index = getTargetIndex();
+        final IndexMaintainer maintainer = store.getIndexMaintainer(index);
+        final Subspace indexSubspace = store.indexSubspace(index);
+        final Collection<RecordType> recordTypes = common.getTargetIndexContexts().get(0).recordTypes;
+        final ExecuteProperties.Builder executeProperties = ExecuteProperties.newBuilder()
+                .setIsolationLevel(IsolationLevel.SNAPSHOT)
+                .setScannedRecordsLimit(getLimit());
+        final long transactionTimeLimitMilliseconds = common.config.getTransactionTimeLimitMilliseconds();
+        if (transactionTimeLimitMilliseconds > 0) {
+            executeProperties.setTimeLimit(transactionTimeLimitMilliseconds);
+        }
+        final ScanProperties scanProperties = new ScanProperties(executeProperties.build());
+        final AtomicLong recordsScannedCounter = new AtomicLong();
+        final byte[] continuation = scanContinuation;
+
+        return validateTypeStamp(store).thenCompose(ignore -> {
+            final RecordCursor<SortedEntry> cursor = RecordCursor.flatMapPipelined(
+                    outerContinuation -> store.scanRecordsParallel(TupleRange.ALL, outerContinuation, scanProperties,
+                            RangePartitionedScan.DEFAULT_MAX_PARTITIONS, false),
+                    (rec, innerContinuation) -> {
+                        recordsScannedCounter.incrementAndGet();
+                        timerIncrement(FDBStoreTimer.Counts.ONLINE_INDEX_BUILDER_RECORDS_SCANNED);
+                        return RecordCursor.fromList(store.getExecutor(),
+                                sortedEntriesOf(store, maintainer, indexSubspace, recordTypes, rec), innerContinuation);
+                    },
+                    continuation, store.getPipelineSize(PipelineOperation.RECORD_FUNCTION));
+            return getFileSorter().load(cursor).whenComplete((result, ex) -> cursor.close());
+        }).thenApply(loadResult -> {
+            final long recordsScannedInTransaction = recordsScannedCounter.get();
+            recordsScanned.addAndGet(recordsScannedInTransaction);
+            if (common.isTrackProgress()) {
+                final Subspace scannedRecordsSubspace = IndexingSubspaces.indexBuildScannedRecordsSubspace(store, index);
+                store.context.ensureActive().mutate(MutationType.ADD, scannedRecordsSubspace.getKey(),
+                        FDBRecordStore.encodeRecordCount(recordsScannedInTransaction));
+            }
+            return loadResult;
+        });
+    }
+
+    @Nonnull
+    private List<SortedEntry> sortedEntriesOf(@Nonnull FDBRecordStore store, @Nonnull IndexMaintainer maintainer,
+                                              @Nonnull Subspace indexSubspace, @Nonnull Collection<RecordType> recordTypes,
+                                              @Nonnull FDBStoredRecord<Message> rec) {
+        if (!recordTypes.contains(rec.getRecordType())) {
+            return Collections.emptyList();
+        }
+        final List<IndexEntry> indexEntries = maintainer.filteredIndexEntries(rec);
+        if (indexEntries == null || indexEntries.isEmpty()) {
+            return Collections.emptyList();
+        }
+        timerIncrement(FDBStoreTimer.Counts.ONLINE_INDEX_BUILDER_RECORDS_INDEXED);
+        final Index index = getTargetIndex();
+        final List<SortedEntry> sortedEntries = new ArrayList<>(indexEntries.size());
+        for (IndexEntry indexEntry : indexEntries) {
+            final byte[] key = indexSubspace.pack(FDBRecordStoreBase.indexEntryKey(index, indexEntry.getKey(), rec.getPrimaryKey()));
+            final byte[] value = indexEntry.getValue().pack();
+            if (key.length > store.getKeySizeLimit()) {
+                throw new FDBExceptions.FDBStoreKeySizeException("index entry is too large to be stored in FDB key",
+                        LogMessageKeys.PRIMARY_KEY, rec.getPrimaryKey(),
+                        LogMessageKeys.INDEX_NAME, index.getName());
+            }
+            if (value.length > store.getValueSizeLimit()) {
+                throw new FDBExceptions.FDBStoreValueSizeException("index entry is too large to be stored in FDB value",
+                        LogMessageKeys.PRIMARY_KEY, rec.getPrimaryKey(),
+                        LogMessageKeys.INDEX_NAME, index.getName());
+            }
+            sortedEntries.add(new SortedEntry(key, value));
+        }
+        entriesSorted += sortedEntries.size();
+        return sortedEntries;
+    }
+
+    @Nonnull
+    private CompletableFuture<Void> writeSortedEntries(@Nonnull List<Object> additionalLogMessageKeyValues) {
+        return iterateTransactions(additionalLogMessageKeyValues, this::writeSortedEntriesOnly, written -> {
+            entriesWritten += written;
+            return written > 0;
+        });
+    }
+
+    @Nonnull
+    @SuppressWarnings("unused")
+    private CompletableFuture<Long> writeSortedEntriesOnly(@Nonnull FDBRecordStore store, @Nonnull AtomicLong recordsScanned) {
+        // return the number of entries written, which is zero when done
+        validateSameMetadataOrThrow(store);
+        final long maxWriteLimitBytes = common.config.getMaxWriteLimitBytes() > 0 ?
+                                        common.config.getMaxWriteLimitBytes() :
+                                        OnlineIndexOperationConfig.DEFAULT_WRITE_LIMIT_BYTES;
+        return validateTypeStamp(store).thenCompose(ignore -> {
+            final Transaction transaction = store.ensureContextActive();
+            final AtomicLong bytesWritten = new AtomicLong();
+            return visitSortedEntriesAsync(entriesWritten, entry -> {
+                transaction.set(entry.getKey(), entry.getValue());
+                return bytesWritten.addAndGet(entry.getKey().length + entry.getValue().length) < maxWriteLimitBytes;
+            });
+        });
+    }
+
+    @Nonnull
+    private CompletableFuture<Void> repairChangedRecordsAndComplete(@Nonnull List<Object> additionalLogMessageKeyValues) {
+        // Once the range set is complete, saving a record no longer notes it, so the records to repair can only
+        // be those noted until then, and this ends even while records keep changing.
+        return buildCommitRetryAsync(this::completeRangeSet, additionalLogMessageKeyValues)
+                .thenCompose(ignore -> AsyncUtil.whileTrue(() -> collectChangedRecords(additionalLogMessageKeyValues)
+                        .thenCompose(changedRecords -> {
+                            if (changedRecords.isEmpty()) {
+                                return AsyncUtil.READY_FALSE;
+                            }
+                            return findSortedKeys(changedRecords)
+                                    .thenCompose(vignore -> repairChangedRecords(new ArrayList<>(changedRecords), additionalLogMessageKeyValues))
+                                    .thenApply(vignore -> true);
+                        }), getRunner().getExecutor()));
+    }
+
+    @Nonnull
+    private CompletableFuture<Set<Tuple>> collectChangedRecords(@Nonnull List<Object> additionalLogMessageKeyValues) {
+        final Set<Tuple> changedRecords = new LinkedHashSet<>();
+        final AtomicReference<Tuple> lastPrimaryKey = new AtomicReference<>();
+        return iterateTransactions(additionalLogMessageKeyValues,
+                (store, recordsScanned) -> readChangedRecordsOnly(store, lastPrimaryKey.get()),
+                primaryKeys -> {
+                    if (primaryKeys.isEmpty()) {
+                        return false;
+                    }
+                    changedRecords.addAll(primaryKeys);
+                    lastPrimaryKey.set(primaryKeys.get(primaryKeys.size() - 1));
+                    return true;
+                }).thenApply(vignore -> changedRecords);
+    }
+
+    @Nonnull
+    private CompletableFuture<List<Tuple>> readChangedRecordsOnly(@Nonnull FDBRecordStore store, @Nullable Tuple lastPrimaryKey) {
+        // Read at snapshot isolation: repairing a record loads it and clears its marker serializably.
+        final Subspace changedRecordsSubspace = IndexingSubspaces.indexBuildChangedRecordsSubspace(store, getTargetIndex());
+        final Range range = changedRecordsSubspace.range();
+        final KeySelector begin = lastPrimaryKey == null ?
+                                  KeySelector.firstGreaterOrEqual(range.begin) :
+                                  KeySelector.firstGreaterThan(changedRecordsSubspace.pack(lastPrimaryKey));
+        return store.ensureContextActive().snapshot()
+                .getRange(begin, KeySelector.firstGreaterOrEqual(range.end), getLimit())
+                .asList()
+                .thenApply(keyValues -> {
+                    final List<Tuple> primaryKeys = new ArrayList<>(keyValues.size());
+                    for (KeyValue keyValue : keyValues) {
+                        primaryKeys.add(changedRecordsSubspace.unpack(keyValue.getKey()));
+                    }
+                    return primaryKeys;
+                });
+    }
+
+    /**
+     * Find the keys that were written from the sorted entries for each of the given records, unless already known.
+     * @param changedRecords primary keys of records changed during the build
+     * @return a future that is complete when the keys have been found
+     */
+    @Nonnull
+    private CompletableFuture<Void> findSortedKeys(@Nonnull Set<Tuple> changedRecords) {
+        final Set<Tuple> unknown = new HashSet<>();
+        for (Tuple primaryKey : changedRecords) {
+            if (!sortedKeysByPrimaryKey.containsKey(primaryKey)) {
+                unknown.add(primaryKey);
+                sortedKeysByPrimaryKey.put(primaryKey, new ArrayList<>());
+            }
+        }
+        if (unknown.isEmpty()) {
+            return AsyncUtil.DONE;
+        }
+        final Index index = getTargetIndex();
+        final Subspace indexSubspace = getAdapter().getIndexSubspace();
+        return visitSortedEntriesAsync(0, entry -> {
+            final Tuple primaryKey = index.getEntryPrimaryKey(indexSubspace.unpack(entry.getKey()));
+            if (unknown.contains(primaryKey)) {
+                sortedKeysByPrimaryKey.get(primaryKey).add(entry.getKey());
+            }
+            return true;
+        }).thenApply(count -> null);
+    }
+
+    @Nonnull
+    private CompletableFuture<Void> repairChangedRecords(@Nonnull List<Tuple> changedRecords,
+                                                         @Nonnull List<Object> additionalLogMessageKeyValues) {
+        if (changedRecords.isEmpty()) {
+            return AsyncUtil.DONE;
+        }
+        final AtomicLong repaired = new AtomicLong();
+        return iterateTransactions(additionalLogMessageKeyValues,
+                (store, recordsScanned) -> {
+                    final int start = (int)repaired.get();
+                    final int end = Math.min(changedRecords.size(), start + Math.max(1, getLimit()));
+                    return repairChangedRecordsOnly(store, changedRecords.subList(start, end), recordsScanned);
+                },
+                count -> repaired.addAndGet(count) < changedRecords.size());
+    }
+
+    @Nonnull
+    private CompletableFuture<Integer> repairChangedRecordsOnly(@Nonnull FDBRecordStore store, @Nonnull List<Tuple> primaryKeys,
+                                                                @Nonnull AtomicLong recordsScanned) {
+        // Loading the records serializably makes any concurrent change to them conflict with clearing their markers.
+        validateSameMetadataOrThrow(store);
+        final Index index = getTargetIndex();
+        final IndexMaintainer maintainer = store.getIndexMaintainer(index);
+        final Collection<RecordType> recordTypes = common.getTargetIndexContexts().get(0).recordTypes;
+        final Subspace changedRecordsSubspace = IndexingSubspaces.indexBuildChangedRecordsSubspace(store, index);
+        final Transaction transaction = store.ensureContextActive();
+        final List<CompletableFuture<FDBStoredRecord<Message>>> records = new ArrayList<>(primaryKeys.size());
+        for (Tuple primaryKey : primaryKeys) {
+            records.add(store.loadRecordAsync(primaryKey));
+        }
+        CompletableFuture<Void> future = validateTypeStamp(store);
+        for (int i = 0; i < primaryKeys.size(); i++) {
+            final Tuple primaryKey = primaryKeys.get(i);
+            final CompletableFuture<FDBStoredRecord<Message>> recordFuture = records.get(i);
+            // Index maintainers are not thread safe, so update the index for one record after the other.
+            future = future.thenCompose(vignore -> recordFuture).thenCompose(rec -> {
+                for (byte[] key : sortedKeysByPrimaryKey.getOrDefault(primaryKey, Collections.emptyList())) {
+                    transaction.clear(key);
+                }
+                transaction.clear(changedRecordsSubspace.pack(primaryKey));
+                recordsScanned.incrementAndGet();
+                if (rec == null || !recordTypes.contains(rec.getRecordType())) {
+                    return AsyncUtil.DONE;
+                }
+                timerIncrement(FDBStoreTimer.Counts.ONLINE_INDEX_BUILDER_RECORDS_INDEXED);
+                return maintainer.update(null, rec);
+            });
+        }
+        return future.thenApply(vignore -> primaryKeys.size());
+    }
+
+    @Nonnull
+    @SuppressWarnings("unused")
+    private CompletableFuture<Boolean> completeRangeSet(@Nonnull FDBRecordStore store, @Nonnull AtomicLong recordsScanned) {
+        // A record saved concurrently reads the range set serializably, so it either conflicts with this or
+        // commits before it, in which case it is among the changed records found afterwards.
+        validateSameMetadataOrThrow(store);
+        return validateTypeStamp(store)
+                .thenCompose(ignore -> IndexingRangeSet.forIndexBuild(store, getTargetIndex()).insertRangeAsync(null, null));
+    }
+
+    /**
+     * Visit the sorted entries in order, starting at the given position, until the visitor returns {@code false}.
+     * The entries are read from the sorted file, if any, by the file executor.
+     * @param skip the number of entries to skip
+     * @param visitor called with each entry; returns whether to continue
+     * @return a future with the number of entries visited
+     */
+    @Nonnull
+    private CompletableFuture<Long> visitSortedEntriesAsync(long skip, @Nonnull Predicate<SortedEntry> visitor) {
+        if (sortedFile == null) {
+            return CompletableFuture.completedFuture(visitSortedEntries(skip, visitor));
+        }
+        return CompletableFuture.supplyAsync(() -> visitSortedEntries(skip, visitor), FILE_EXECUTOR.get());
+    }
+
+    private long visitSortedEntries(long skip, @Nonnull Predicate<SortedEntry> visitor) {
+        long count = 0;
+        if (sortedInMemory != null) {
+            for (long i = skip; i < sortedInMemory.size(); i++) {
+                count++;
+                if (!visitor.test(sortedInMemory.get((int)i))) {
+                    break;
+                }
+            }
+            return count;
+        }
+        if (sortedFile == null) {
+            return count;
+        }
+        if (skip > Integer.MAX_VALUE) {
+            // The header of a sorted file counts its entries as an int, so no position in it can be this far.
+            throw new RecordCoreException("sorted entry position is past the end of the sorted file")
+                    .addLogInfo(LogMessageKeys.RECORD_COUNT, skip);
+        }
+        try (SortedFileReader<SortedEntry> reader = new SortedFileReader<>(sortedFile, getAdapter(), getRunner().getTimer(),
+                (int)skip, Integer.MAX_VALUE)) {
+            while (true) {
+                final SortedEntry entry = reader.read();
+                if (entry == null) {
+                    break;
+                }
+                count++;
+                if (!visitor.test(entry)) {
+                    break;
+                }
+            }
+        } catch (IOException | GeneralSecurityException ex) {
+            throw new RecordCoreException(ex);
+        }
+        return count;
+    }
+
+    @Nonnull
+    private FileSorter<byte[], SortedEntry> getFileSorter() {
+        return Objects.requireNonNull(fileSorter);
+    }
+
+    @Nonnull
+    private SortedEntryAdapter getAdapter() {
+        return Objects.requireNonNull(adapter);
+    }
+
+    private void deleteSortedFiles() {
+        if (fileSorter != null) {
+            try {
+                fileSorter.deleteFiles();
+            } catch (IOException ex) {
+                // The files are also deleted on exit.
+            }
+            fileSorter = null;
+        }
+    }
+
+    // support rebuildIndexAsync
+    @Nonnull
+    @Override
+    CompletableFuture<Void> rebuildIndexInternalAsync(FDBRecordStore store) {
+        // An inline rebuild happens in a single transaction, so there is nothing to gain from sorting the entries
+        // first. The range set is already complete, so the entries are written as the records are scanned.
+        validateSameMetadataOrThrow(store);
+        validateBulkSortableOrThrow(store);
+        final IndexMaintainer maintainer = store.getIndexMaintainer(getTargetIndex());
+        final Collection<RecordType> recordTypes = common.getTargetIndexContexts().get(0).recordTypes;
+        return store.scanRecords(TupleRange.ALL, null, ScanProperties.FORWARD_SCAN)
+                .forEachAsync(rec -> recordTypes.contains(rec.getRecordType()) ?
+                                     maintainer.update(null, rec) :
+                                     AsyncUtil.DONE, 1);
+    }
+
+    /**
+     * An index entry, as the key and value to be written, together with its sort key.
+     */
+    static final class SortedEntry {
+        @Nonnull
+        private final byte[] key;
+        @Nonnull
+        private final byte[] value;
+
+        SortedEntry(@Nonnull byte[] key, @Nonnull byte[] value) {
+            this.key = key;
+            this.value = value;
+        }
+
+        @Nonnull
+        byte[] getKey() {
+            return key;
+        }
+
+        @Nonnull
+        byte[] getValue() {
+            return value;
+        }
+    }
+
+    /**
+     * A {@link FileSortAdapter} for sorting index entries by their keys.
+     *
+     * <p>
+     * The key of an entry is the whole FDB key it is written to, so comparing keys as unsigned bytes sorts the entries
+     * in index order. Since {@link SortedFileReader} only returns values, the value of an entry also includes its key.
+     * Files are compressed and encrypted with a key that is shared by all builds in this process.
+     * </p>
+     */
+    static final class SortedEntryAdapter implements FileSortAdapter<byte[], SortedEntry> {
+        private static final Supplier<SecureRandom> RANDOM = Suppliers.memoize(SecureRandom::new);
+        private static final Supplier<java.security.Key> ENCRYPTION_KEY = Suppliers.memoize(SortedEntryAdapter::generateEncryptionKey);
+
+        // Entries are small, so quite a few of them can be sorted in memory before saving a file.
+        static final int DEFAULT_MAX_RECORD_COUNT_IN_MEMORY = 100_000;
+        // Files are merged in tiers of this many, so that each entry is only merged a logarithmic number of times.
+        private static final int MAX_FILE_COUNT = 100;
+        private static final int RECORD_COUNT_PER_SECTION = 1_000;
+
+        @Nonnull
+        private final Subspace indexSubspace;
+        private final int metaDataVersion;
+        private final int maxRecordCountInMemory;
+
+        SortedEntryAdapter(@Nonnull Subspace indexSubspace, int metaDataVersion, int maxRecordCountInMemory) {
+            this.indexSubspace = indexSubspace;
+            this.metaDataVersion = metaDataVersion;
+            this.maxRecordCountInMemory = maxRecordCountInMemory;
+        }
+
+        @Nonnull
+        Subspace getIndexSubspace() {
+            return indexSubspace;
+        }
+
+        @Override
+        public int compare(@Nonnull byte[] o1, @Nonnull byte[] o2) {
+            return ByteArrayUtil.compareUnsigned(o1, o2);
+        }
+
+        @Nonnull
+        @Override
+        public byte[] generateKey(@Nonnull SortedEntry value) {
+            return value.getKey();
+        }
+
+        @Nonnull
+        @Override
+        public byte[] serializeKey(@Nonnull byte[] key) {
+            return key;
+        }
+
+        @Override
+        public boolean isSerializedOrderReversed() {
+            return false;
+        }
+
+        @Nonnull
+        @Override
+        public byte[] deserializeKey(@Nonnull byte[] key) {
+            return key;
+        }
+
+        @Nonnull
+        @Override
+        public byte[] serializeValue(@Nonnull SortedEntry value) {
+            return Tuple.from(value.getKey(), value.getValue()).pack();
+        }
+
+        @Nonnull
+        @Override
+        public SortedEntry deserializeValue(@Nonnull byte[] bytes) {
+            final Tuple tuple = Tuple.fromBytes(bytes);
+            return new SortedEntry(tuple.getBytes(0), tuple.getBytes(1));
+        }
+
+        @Override
+        public void writeValue(@Nonnull SortedEntry value, @Nonnull CodedOutputStream stream) throws IOException {
+            // Merging files copies values as a single byte array.
+            stream.writeByteArrayNoTag(serializeValue(value));
+        }
+
+        @Nonnull
+        @Override
+        public SortedEntry readValue(@Nonnull CodedInputStream stream) throws IOException {
+            return deserializeValue(stream.readByteArray());
+        }
+
+        @Override
+        public int getMaxRecordCountInMemory() {
+            return maxRecordCountInMemory;
+        }
+
+        @Nonnull
+        @Override
+        public MemorySorter.RecordCountInMemoryLimitMode getRecordCountInMemoryLimitMode() {
+            return MemorySorter.RecordCountInMemoryLimitMode.STOP;
+        }
+
+        @Nonnull
+        @Override
+        public File generateFilename() throws IOException {
+            final File file = File.createTempFile("fdb", ".bin");
+            // Files are deleted when the build finishes; make sure that those of a build that does not finish do not outlive the process.
+            file.deleteOnExit();
+            return file;
+        }
+
+        @Override
+        public int getMetaDataVersion() {
+            return metaDataVersion;
+        }
+
+        @Override
+        public int getMinFileRecordCount() {
+            return maxRecordCountInMemory;
+        }
+
+        @Override
+        public int getMaxFileCount() {
+            return MAX_FILE_COUNT;
+        }
+
+        @Override
+        public boolean isTieredMerge() {
+            return true;
+        }
+
+        @Override
+        public int getRecordCountPerSection() {
+            return RECORD_COUNT_PER_SECTION;
+        }
+
+        @Override
+        public boolean isCompressed() {
+            return true;
+        }
+
+        @Nullable
+        @Override
+        public String getEncryptionCipherName() {
+            return CipherPool.DEFAULT_CIPHER;
+        }
+
+        @Nullable
+        @Override
+        public java.security.Key getEncryptionKey() {
+            return ENCRYPTION_KEY.get();
+        }
+
+        @Nullable
+        @Override
+        public SecureRandom getSecureRandom() {
+            return RANDOM.get();
+        }
+
+        @Nonnull
+        @Override
+        public MemorySortComparator<byte[]> getComparator(@Nullable byte[] minimumKey) {
+            return new MemorySortAdapter.OrderComparator<>(this, minimumKey);
+        }
+
+        @Nonnull
+        private static java.security.Key generateEncryptionKey() {
+            try {
+                final KeyGenerator keyGen = KeyGenerator.getInstance("AES");
+                keyGen.init(128, RANDOM.get());
+                return keyGen.generateKey();
+            } catch (GeneralSecurityException ex) {
+                throw new RecordCoreException(ex);
+            }
+        }
+    }
+}
@@ -42,6 +42,11 @@ public final class IndexingSubspaces {
     private static final Object INDEX_SCRUBBED_RECORDS_RANGES = 5L;
     private static final Object INDEX_SCRUBBED_INDEX_RANGES = 6L;
     private static final Object INDEX_BUILD_HEARTBEAT_PREFIX = 7L;
+    private static final Object INDEX_STATISTICS = 8L;
+    private static final Object INDEX_STATISTICS_RANGES = 9L;
+    private static final Object INDEX_STATISTICS_PROGRESS = 10L;
+    private static final Object INDEX_STATISTICS_SAMPLE = 11L;
+    private static final Object INDEX_BUILD_CHANGED_RECORDS = 12L;
 
     private IndexingSubspaces() {
         throw new IllegalStateException("Utility class");
@@ -108,6 +113,62 @@ public final class IndexingSubspaces {
         return indexHeartbeatSubspace(store, index).subspace(Tuple.from(indexerId)).pack();
     }
 
+    /**
+     * Subspace that stores the primary keys of records that were changed during a bulk sorted index build, and whose
+     * index entries written by the build might therefore be stale.
+     * @param store store
+     * @param index index
+     * @return subspace
+     */
+    @Nonnull
+    public static Subspace indexBuildChangedRecordsSubspace(@Nonnull FDBRecordStoreBase<?> store, @Nonnull Index index) {
+        return indexBuildSubspace(store, index, INDEX_BUILD_CHANGED_RECORDS);
+    }
+
+    /**
+     * Subspace that stores the collected statistics of an index.
+     * @param store store
+     * @param index index
+     * @return subspace
+     */
+    @Nonnull
+    public static Subspace indexStatisticsSubspace(@Nonnull FDBRecordStoreBase<?> store, @Nonnull Index index) {
+        return indexBuildSubspace(store, index, INDEX_STATISTICS);
+    }
+
+    /**
+     * Subspace that stores the index entries ranges already covered by an ongoing statistics collection.
+     * @param store store
+     * @param index index
+     * @return subspace
+     */
+    @Nonnull
+    public static Subspace indexStatisticsRangeSubspace(@Nonnull FDBRecordStoreBase<?> store, @Nonnull Index index) {
+        return indexBuildSubspace(store, index, INDEX_STATISTICS_RANGES);
+    }
+
+    /**
+     * Subspace that stores the counters and sketches of an ongoing statistics collection.
+     * @param store store
+     * @param index index
+     * @return subspace
+     */
+    @Nonnull
+    public static Subspace indexStatisticsProgressSubspace(@Nonnull FDBRecordStoreBase<?> store, @Nonnull Index index) {
+        return indexBuildSubspace(store, index, INDEX_STATISTICS_PROGRESS);
+    }
+
+    /**
+     * Subspace that stores the sample of index entries of an ongoing statistics collection.
+     * @param store store
+     * @param index index
+     * @return subspace
+     */
+    @Nonnull
+    public static Subspace indexStatisticsSampleSubspace(@Nonnull FDBRecordStoreBase<?> store, @Nonnull Index index) {
+        return indexBuildSubspace(store, index, INDEX_STATISTICS_SAMPLE);
+    }
+
     /**
      * Subspace that stores scrubbed records ranges of the zero range-id. This subspace is backward compatible
      * to record ranges scrubbed before range-id was introduced.
@@ -198,6 +259,29 @@ public final class IndexingSubspaces {
         context.clear(Range.startsWith(indexScrubRecordsRangeSubspaceRoot(store, index).pack()));
     }
 
+    /**
+     * Erase the collected statistics of an index, along with the state of any ongoing statistics collection.
+     * @param context user context - the operation will run within this context
+     * @param store store
+     * @param index index
+     */
+    public static void eraseAllIndexStatisticsData(@Nonnull FDBRecordContext context, @Nonnull FDBRecordStore store, @Nonnull Index index) {
+        context.clear(Range.startsWith(indexStatisticsSubspace(store, index).pack()));
+        eraseIndexStatisticsProgress(context, store, index);
+    }
+
+    /**
+     * Erase the state of an ongoing statistics collection, but not the statistics collected previously.
+     * @param context user context - the operation will run within this context
+     * @param store store
+     * @param index index
+     */
+    public static void eraseIndexStatisticsProgress(@Nonnull FDBRecordContext context, @Nonnull FDBRecordStore store, @Nonnull Index index) {
+        context.clear(Range.startsWith(indexStatisticsRangeSubspace(store, index).pack()));
+        context.clear(Range.startsWith(indexStatisticsProgressSubspace(store, index).pack()));
+        context.clear(Range.startsWith(indexStatisticsSampleSubspace(store, index).pack()));
+    }
+
     /**
      * Delete all data related to the indexing/scrubbing process except of the index locks. Index locks are preserved because
      * often this operation is expected to be protected by this lock.
@@ -207,8 +291,10 @@ public final class IndexingSubspaces {
      */
     public static void eraseAllIndexingDataButTheLock(@Nonnull FDBRecordContext context, @Nonnull FDBRecordStore store, @Nonnull Index index) {
         eraseAllIndexingScrubbingData(context, store, index);
+        eraseAllIndexStatisticsData(context, store, index);
         context.clear(Range.startsWith(indexBuildScannedRecordsSubspace(store, index).pack()));
         context.clear(Range.startsWith(indexBuildTypeSubspace(store, index).pack()));
+        context.clear(Range.startsWith(indexBuildChangedRecordsSubspace(store, index).pack()));
         // The heartbeats, unlike the sync lock, may be erased here. If needed, an appropriate heartbeat will be set after this clear & within the same transaction.
         context.clear(Range.startsWith(indexHeartbeatSubspace(store, index).pack()));
     }
@@ -0,0 +1,287 @@
+/*
+ * OnlineIndexStatisticsCollector.java
+ *
+ * This source file is part of the FoundationDB open source project
+ *
+ * Copyright 2015-2026 Apple Inc. and the FoundationDB project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.apple.foundationdb.record.provider.foundationdb;
+
+import com.apple.foundationdb.annotation.API;
+import com.apple.foundationdb.async.AsyncUtil;
+import com.apple.foundationdb.record.RecordMetaData;
+import com.apple.foundationdb.record.metadata.Index;
+import com.apple.foundationdb.record.metadata.MetaDataException;
+import com.apple.foundationdb.record.provider.foundationdb.statistics.IndexStatistics;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.UnaryOperator;
+
+/**
+ * Collect statistics about the entries of a readable value index, for use by the planner when estimating the cost
+ * of index scans. The collection scans the index in throttled transactions, like the {@link OnlineIndexer}, and can be
+ * resumed if it is interrupted. The collected statistics are stored with the index and can be loaded with
+ * {@link FDBRecordStore#loadIndexStatisticsAsync(Index)}. They are erased when the index is rebuilt.
+ *
+ * <pre><code>
+ * try (OnlineIndexStatisticsCollector collector = OnlineIndexStatisticsCollector.newBuilder()
+ *         .setRecordStoreBuilder(recordStoreBuilder)
+ *         .setIndex(index)
+ *         .build()) {
+ *     collector.collectStatistics();
+ * }
+ * </code></pre>
+ */
+@API(API.Status.EXPERIMENTAL)
+public class OnlineIndexStatisticsCollector implements AutoCloseable {
+
+    @Nonnull private final IndexingCommon common;
+    @Nonnull private final FDBDatabaseRunner runner;
+    @Nonnull private final CollectionPolicy collectionPolicy;
+
+    @SuppressWarnings("squid:S00107")
+    OnlineIndexStatisticsCollector(@Nonnull FDBDatabaseRunner runner,
+                                   @Nonnull FDBRecordStore.Builder recordStoreBuilder,
+                                   @Nonnull Index index,
+                                   @Nonnull UnaryOperator<OnlineIndexOperationConfig> configLoader,
+                                   @Nonnull OnlineIndexOperationConfig config,
+                                   boolean trackProgress,
+                                   @Nonnull CollectionPolicy collectionPolicy) {
+        this.runner = runner;
+        this.collectionPolicy = collectionPolicy;
+        this.common = new IndexingCommon(runner, recordStoreBuilder,
+                Collections.singletonList(index), null, configLoader, config,
+                trackProgress);
+    }
+
+    @Override
+    public void close() {
+        common.close();
+    }
+
+    /**
+     * Collect the statistics of the index, resuming a previously interrupted collection if there is one.
+     * @return a future that will contain the collected statistics
+     */
+    @Nonnull
+    public CompletableFuture<IndexStatistics> collectStatisticsAsync() {
+        final AtomicReference<IndexStatistics> collected = new AtomicReference<>();
+        return AsyncUtil.composeHandle(
+                new IndexStatisticsCollection(common, OnlineIndexer.IndexingPolicy.DEFAULT, collectionPolicy, collected).buildIndexAsync(false),
+                (ignore, ex) -> {
+                    if (ex != null) {
+                        throw FDBExceptions.wrapException(ex);
+                    }
+                    return CompletableFuture.completedFuture(collected.get());
+                });
+    }
+
+    /**
+     * Collect the statistics of the index.
+     * Synchronous version of {@link #collectStatisticsAsync()}.
+     * @return the collected statistics
+     */
+    @Nonnull
+    public IndexStatistics collectStatistics() {
+        return runner.asyncToSync(FDBStoreTimer.Waits.WAIT_ONLINE_COLLECT_INDEX_STATISTICS, collectStatisticsAsync());
+    }
+
+    @Nonnull
+    public static Builder newBuilder() {
+        return new Builder();
+    }
+
+    /**
+     * Options controlling the statistics collected.
+     */
+    public static class CollectionPolicy {
+        public static final int DEFAULT_SAMPLE_SIZE = 1000;
+        public static final int DEFAULT_HISTOGRAM_BUCKET_COUNT = 50;
+        public static final CollectionPolicy DEFAULT = new CollectionPolicy(DEFAULT_SAMPLE_SIZE, DEFAULT_HISTOGRAM_BUCKET_COUNT, false);
+        private final int sampleSize;
+        private final int histogramBucketCount;
+        private final boolean rangeReset;
+
+        private CollectionPolicy(int sampleSize, int histogramBucketCount, boolean rangeReset) {
+            this.sampleSize = sampleSize;
+            this.histogramBucketCount = histogramBucketCount;
+            this.rangeReset = rangeReset;
+        }
+
+        public int getSampleSize() {
+            return sampleSize;
+        }
+
+        public int getHistogramBucketCount() {
+            return histogramBucketCount;
+        }
+
+        public boolean isRangeReset() {
+            return rangeReset;
+        }
+
+        /**
+         * Create a collection policy builder.
+         * @return a new {@link CollectionPolicy} builder
+         */
+        @Nonnull
+        public static Builder newBuilder() {
+            return new Builder();
+        }
+
+        /**
+         * Builder for {@link CollectionPolicy}.
+         */
+        @API(API.Status.EXPERIMENTAL)
+        public static class Builder {
+            int sampleSize = DEFAULT_SAMPLE_SIZE;
+            int histogramBucketCount = DEFAULT_HISTOGRAM_BUCKET_COUNT;
+            boolean rangeReset = false;
+
+            protected Builder() {
+            }
+
+            /**
+             * Set the number of index entries sampled to build the histogram. The sample is kept in the database
+             * while the collection is ongoing and read by each of its transactions.
+             * If never called, the default is {@value CollectionPolicy#DEFAULT_SAMPLE_SIZE}.
+             * @param sampleSize the number of sampled entries
+             * @return this builder
+             */
+            public Builder setSampleSize(int sampleSize) {
+                this.sampleSize = sampleSize;
+                return this;
+            }
+
+            /**
+             * Set the maximum number of buckets of the histogram.
+             * If never called, the default is {@value CollectionPolicy#DEFAULT_HISTOGRAM_BUCKET_COUNT}.
+             * @param histogramBucketCount the maximum number of buckets
+             * @return this builder
+             */
+            public Builder setHistogramBucketCount(int histogramBucketCount) {
+                this.histogramBucketCount = histogramBucketCount;
+                return this;
+            }
+
+            /**
+             * Start the collection from scratch, regardless of any progress already made by an interrupted collection.
+             * @param rangeReset reset if true
+             * @return this builder
+             */
+            public Builder setRangeReset(boolean rangeReset) {
+                this.rangeReset = rangeReset;
+                return this;
+            }
+
+            public CollectionPolicy build() {
+                if (sampleSize < 2) {
+                    throw new IllegalArgumentException("sample size must be at least 2");
+                }
+                if (histogramBucketCount < 1) {
+                    throw new IllegalArgumentException("histogram bucket count must be positive");
+                }
+                return new CollectionPolicy(sampleSize, histogramBucketCount, rangeReset);
+            }
+        }
+    }
+
+    /**
+     * Builder for {@link OnlineIndexStatisticsCollector}.
+     *
+     * <pre><code>
+     * OnlineIndexStatisticsCollector.newBuilder().setRecordStoreBuilder(recordStoreBuilder).setIndex(index).build()
+     * </code></pre>
+     */
+    @API(API.Status.EXPERIMENTAL)
+    public static class Builder extends OnlineIndexOperationBaseBuilder<Builder> {
+        @Nullable
+        protected Index index;
+        @Nullable
+        private CollectionPolicy collectionPolicy;
+
+        @SuppressWarnings("this-escape")
+        protected Builder() {
+            setLimit(2000);
+        }
+
+        @Override
+        Builder self() {
+            return this;
+        }
+
+        /**
+         * Set the index whose statistics are collected.
+         * @param index the index
+         * @return this builder
+         */
+        @Nonnull
+        public Builder setIndex(@Nullable Index index) {
+            this.index = index;
+            return this;
+        }
+
+        /**
+         * Set the index whose statistics are collected.
+         * @param indexName the name of the index
+         * @return this builder
+         */
+        @Nonnull
+        public Builder setIndex(@Nonnull String indexName) {
+            this.index = getRecordMetaData().getIndex(indexName);
+            return this;
+        }
+
+        /**
+         * Set the {@link CollectionPolicy}.
+         * @param collectionPolicy the collection policy
+         * @return this builder
+         */
+        @Nonnull
+        public Builder setCollectionPolicy(@Nonnull CollectionPolicy collectionPolicy) {
+            this.collectionPolicy = collectionPolicy;
+            return this;
+        }
+
+        /**
+         * Build an {@link OnlineIndexStatisticsCollector}.
+         * @return a new statistics collector
+         */
+        public OnlineIndexStatisticsCollector build() {
+            validate();
+            return new OnlineIndexStatisticsCollector(getRunner(), getRecordStoreBuilder(), index,
+                    getConfigLoader(), getConfig(), isTrackProgress(),
+                    collectionPolicy == null ? CollectionPolicy.DEFAULT : collectionPolicy);
+        }
+
+        // Check pointer equality to make sure other objects really came from given metaData.
+        @SuppressWarnings("PMD.CompareObjectsWithEquals")
+        private void validate() {
+            if (index == null) {
+                throw new IllegalArgumentException("index must be set");
+            }
+            final RecordMetaData metaData = getRecordMetaData();
+            if (!metaData.hasIndex(index.getName()) || index != metaData.getIndex(index.getName())) {
+                throw new MetaDataException("Index " + index.getName() + " not contained within specified metadata");
+            }
+            validateLimits();
+        }
+    }
+}
@@ -209,6 +209,15 @@ public class OnlineIndexer implements AutoCloseable {
                             .build();
                     return indexingLauncher(indexingFunc, attemptCount, origPolicy);
                 }
+                if (method == IndexBuildProto.IndexBuildIndexingStamp.Method.BULK_SORTED_BY_RECORDS && !common.isMultiTarget()) {
+                    // Partly built by a bulk sorted build. Retry with the old policy, but preserve the requested policy - in case the old one fails.
+                    IndexingPolicy origPolicy = indexingPolicy;
+                    indexingPolicy = origPolicy.toBuilder()
+                            .setMutualIndexing(false)
+                            .setBulkSortedBuild(true)
+                            .build();
+                    return indexingLauncher(indexingFunc, attemptCount, origPolicy);
+                }
                 // No other methods (yet). This line should never be reached.
                 throw partlyBuiltException;
             }
@@ -225,13 +234,14 @@ public class OnlineIndexer implements AutoCloseable {
             throw partlyBuiltException;
         }
 
-        if (indexingPolicy.isByIndex() && IndexingByIndex.isValidationException(ex)) {
-            // Validation failed - the source index cannot be used for records scanning
+        if ((indexingPolicy.isByIndex() || indexingPolicy.isBulkSorted()) && IndexingBase.isValidationException(ex)) {
+            // Validation failed - the source index cannot be used for records scanning, or the target index cannot be
+            // built by a bulk sorted build
             if (requestedPolicy != null) {
                 // We tried to continue a previous indexing session, but failed. The best recovery, as it seems,
                 // is to rebuild with requested policy.
                 if (LOGGER.isWarnEnabled()) {
-                    LOGGER.warn(KeyValueLogMessage.build("The previous method's source index isn't usable. Rebuild by the requested policy",
+                    LOGGER.warn(KeyValueLogMessage.build("The previous method isn't usable. Rebuild by the requested policy",
                             LogMessageKeys.CURR_ATTEMPT, attemptCount)
                             .addKeysAndValues(common.indexLogMessageKeyValues())
                             .toString());
@@ -244,7 +254,7 @@ public class OnlineIndexer implements AutoCloseable {
             }
 
             if (! indexingPolicy.isForbidRecordScan() && ! fallbackToRecordsScan) {
-                // requested by-index failed, and record scan is allowed. Build by records.
+                // requested by-index or bulk sorted failed, and record scan is allowed. Build by records.
                 if (LOGGER.isWarnEnabled()) {
                     LOGGER.warn(KeyValueLogMessage.build("Fallback to a by-record scan",
                             LogMessageKeys.CURR_ATTEMPT, attemptCount)
@@ -290,6 +300,14 @@ public class OnlineIndexer implements AutoCloseable {
         return (IndexingMultiTargetByRecords)indexer;
     }
 
+    @Nonnull
+    private IndexingBulkSortedByRecords getIndexerBulkSortedByRecords() {
+        if (! (indexer instanceof IndexingBulkSortedByRecords)) {
+            indexer = new IndexingBulkSortedByRecords(common, indexingPolicy);
+        }
+        return (IndexingBulkSortedByRecords)indexer;
+    }
+
     @Nonnull
     private IndexingMutuallyByRecords getMutualIndexerByRecords() {
         if (! (indexer instanceof IndexingMutuallyByRecords)) {
@@ -303,6 +321,9 @@ public class OnlineIndexer implements AutoCloseable {
         if (indexingPolicy.isMutual() && !fallbackToRecordsScan) {
             return getMutualIndexerByRecords();
         }
+        if (indexingPolicy.isBulkSorted() && !common.isMultiTarget() && !fallbackToRecordsScan) {
+            return getIndexerBulkSortedByRecords();
+        }
         if (indexingPolicy.isByIndex() && !common.isMultiTarget() && !fallbackToRecordsScan) {
             return getIndexerByIndex();
         }
@@ -876,6 +897,14 @@ public class OnlineIndexer implements AutoCloseable {
             if (indexingPolicy.isMutual() && indexingPolicy.isByIndex()) {
                 throw new IndexingBase.ValidationException("Indexing mutually by a source index is not supported (yet)");
             }
+            if (indexingPolicy.isBulkSorted()) {
+                if (targetIndexes.size() > 1) {
+                    throw new IndexingBase.ValidationException("Bulk sorted indexing of multi targets is not supported");
+                }
+                if (indexingPolicy.isByIndex() || indexingPolicy.isMutual()) {
+                    throw new IndexingBase.ValidationException("Bulk sorted indexing can only be done by records");
+                }
+            }
             targetIndexes.sort(Comparator.comparing(Index::getName));
             for (Index index : targetIndexes) {
                 if (!metaData.hasIndex(index.getName()) || index != metaData.getIndex(index.getName())) {
@@ -918,6 +947,8 @@ public class OnlineIndexer implements AutoCloseable {
         private final String allowUnblockId;
         private final long initialMergesCountLimit;
         private final boolean reverseScanOrder;
+        private final boolean bulkSortedBuild;
+        private final int bulkSortedMaxRecordCountInMemory;
 
         /**
          * Possible actions when an index is already partially built.
@@ -965,6 +996,9 @@ public class OnlineIndexer implements AutoCloseable {
          * @param allowUnblockId if preset, allow unblocking only if the block ID matches this param
          * @param initialMergesCountLimit the initial max merges count for index merger
          * @param reverseScanOrder if true, scan records in reverse order
+         * @param bulkSortedBuild if true, sort the index entries of all records before writing them
+         * @param bulkSortedMaxRecordCountInMemory the maximum number of index entries a bulk sorted build sorts in
+         * memory before saving them to a file, or 0 for the default
          */
         @SuppressWarnings("squid:S00107") // too many parameters
         private IndexingPolicy(@Nullable String sourceIndex, @Nullable Object sourceIndexSubspaceKey, boolean forbidRecordScan,
@@ -973,7 +1007,9 @@ public class OnlineIndexer implements AutoCloseable {
                                boolean mutualIndexing, List<Tuple> mutualIndexingBoundaries,
                                boolean allowUnblock, String allowUnblockId,
                                long initialMergesCountLimit,
-                               boolean reverseScanOrder) {
+                               boolean reverseScanOrder,
+                               boolean bulkSortedBuild,
+                               int bulkSortedMaxRecordCountInMemory) {
             this.sourceIndex = sourceIndex;
             this.forbidRecordScan = forbidRecordScan;
             this.sourceIndexSubspaceKey = sourceIndexSubspaceKey;
@@ -989,6 +1025,8 @@ public class OnlineIndexer implements AutoCloseable {
             this.allowUnblockId = allowUnblockId;
             this.initialMergesCountLimit = initialMergesCountLimit;
             this.reverseScanOrder = reverseScanOrder;
+            this.bulkSortedBuild = bulkSortedBuild;
+            this.bulkSortedMaxRecordCountInMemory = bulkSortedMaxRecordCountInMemory;
         }
 
         /**
@@ -1059,6 +1097,8 @@ public class OnlineIndexer implements AutoCloseable {
                     .setAllowUnblock(allowUnblock, allowUnblockId)
                     .setInitialMergesCountLimit(initialMergesCountLimit)
                     .setReverseScanOrder(reverseScanOrder)
+                    .setBulkSortedBuild(bulkSortedBuild)
+                    .setBulkSortedMaxRecordCountInMemory(bulkSortedMaxRecordCountInMemory)
                     ;
         }
 
@@ -1195,6 +1235,27 @@ public class OnlineIndexer implements AutoCloseable {
             return reverseScanOrder;
         }
 
+        /**
+         * Get caller's request to build the index by sorting the index entries of all records before writing them.
+         * @return true if a bulk sorted build was requested
+         * @see Builder#setBulkSortedBuild(boolean)
+         */
+        @API(API.Status.EXPERIMENTAL)
+        public boolean isBulkSorted() {
+            return bulkSortedBuild;
+        }
+
+        /**
+         * Get the maximum number of index entries that a bulk sorted build sorts in memory before saving them to a
+         * file.
+         * @return the maximum number of entries in memory, or 0 for the default
+         * @see Builder#setBulkSortedMaxRecordCountInMemory(int)
+         */
+        @API(API.Status.EXPERIMENTAL)
+        public int getBulkSortedMaxRecordCountInMemory() {
+            return bulkSortedMaxRecordCountInMemory;
+        }
+
         /**
          * Builder for {@link IndexingPolicy}.
          *
@@ -1225,6 +1286,8 @@ public class OnlineIndexer implements AutoCloseable {
             private String allowUnblockId = null;
             private long initialMergesCountLimit = 0;
             private boolean reverseScanOrder = false;
+            private boolean bulkSortedBuild = false;
+            private int bulkSortedMaxRecordCountInMemory = 0;
 
             protected Builder() {
             }
@@ -1497,6 +1560,41 @@ public class OnlineIndexer implements AutoCloseable {
                 return this;
             }
 
+            /**
+             * Build the index by scanning the records in parallel ranges, sorting all their index entries in local
+             * files, and then writing the entries in index order, a contiguous run of keys in each transaction.
+             * This turns the random writes of a by-records build into sequential ones, at the cost of local disk
+             * space for the sorted entries and of not being able to resume the build in another process.
+             * Records that are changed while the index is being built are noted and their entries are fixed before
+             * the range set is marked complete.
+             * <p>
+             * This is only supported for a single, non-unique {@link com.apple.foundationdb.record.metadata.IndexTypes#VALUE}
+             * index on stored records. For other indexes, the build falls back to a by-records scan, unless
+             * {@link #forbidRecordScan()} was called.
+             * </p>
+             * @param bulkSortedBuild if true, use a bulk sorted build
+             * @return this builder
+             */
+            @API(API.Status.EXPERIMENTAL)
+            public Builder setBulkSortedBuild(final boolean bulkSortedBuild) {
+                this.bulkSortedBuild = bulkSortedBuild;
+                return this;
+            }
+
+            /**
+             * Set the maximum number of index entries that a bulk sorted build sorts in memory before saving them to
+             * a file. Fewer entries in memory means less memory used, but more files to merge.
+             * The default is 0 - which means 100,000 entries.
+             * @param bulkSortedMaxRecordCountInMemory the maximum number of entries in memory, or 0 for the default
+             * @return this builder
+             * @see #setBulkSortedBuild(boolean)
+             */
+            @API(API.Status.EXPERIMENTAL)
+            public Builder setBulkSortedMaxRecordCountInMemory(final int bulkSortedMaxRecordCountInMemory) {
+                this.bulkSortedMaxRecordCountInMemory = bulkSortedMaxRecordCountInMemory;
+                return this;
+            }
+
             public IndexingPolicy build() {
                 if (useMutualIndexingBoundaries != null) {
                     useMutualIndexing = true;
@@ -1505,7 +1603,8 @@ public class OnlineIndexer implements AutoCloseable {
                         ifDisabled, ifWriteOnly, ifMismatchPrevious, ifReadable,
                         doAllowUniquePendingState, allowedTakeoverSet,
                         useMutualIndexing, useMutualIndexingBoundaries, allowUnblock, allowUnblockId,
-                        initialMergesCountLimit, reverseScanOrder);
+                        initialMergesCountLimit, reverseScanOrder, bulkSortedBuild,
+                        bulkSortedMaxRecordCountInMemory);
             }
         }
     }
@@ -47,6 +47,7 @@ import com.apple.foundationdb.record.logging.LogMessageKeys;
 import com.apple.foundationdb.subspace.Subspace;
 import com.apple.foundationdb.tuple.ByteArrayUtil;
 import com.apple.foundationdb.tuple.ByteArrayUtil2;
+import com.apple.foundationdb.tuple.PackedTuple;
 import com.apple.foundationdb.tuple.Tuple;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -581,6 +582,31 @@ public class SplitHelper {
         }
     }
 
+    /**
+     * Get a lazily-decoded view of the tuple that a key encodes within a subspace. Like {@link #unpackKey}, this
+     * validates that the key is a well-formed tuple in the subspace, but it does not decode the tuple elements.
+     * @param subspace the subspace containing the key
+     * @param kv the key-value pair whose key is unpacked
+     * @return a view of the tuple encoded by the key after the subspace prefix
+     */
+    @Nonnull
+    public static PackedTuple unpackKeyLazily(@Nonnull Subspace subspace, @Nonnull KeyValue kv) {
+        final byte[] key = kv.getKey();
+        try {
+            if (!subspace.contains(key)) {
+                throw new IllegalArgumentException("Cannot unpack key that is not contained in subspace.");
+            }
+            final int prefixLength = subspace.getKey().length;
+            final PackedTuple packedKey = PackedTuple.fromBytes(key, prefixLength, key.length - prefixLength);
+            packedKey.size(); // locates the elements, validating the encoding
+            return packedKey;
+        } catch (IllegalArgumentException e) {
+            throw new RecordCoreArgumentException("unable to unpack key", e)
+                    .addLogInfo(LogMessageKeys.KEY, ByteArrayUtil2.loggable(key))
+                    .addLogInfo(LogMessageKeys.SUBSPACE, ByteArrayUtil2.loggable(subspace.getKey()));
+        }
+    }
+
     /**
      * A utility to ensure the given key has a valid suffix.
      * Suffix has to be a Long, and within the range of supported suffixes.
@@ -26,9 +26,11 @@ import com.apple.foundationdb.record.IndexScanType;
 import com.apple.foundationdb.record.RecordCoreException;
 import com.apple.foundationdb.record.TupleRange;
 import com.apple.foundationdb.record.query.expressions.Comparisons;
+import com.apple.foundationdb.tuple.Tuple;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
+import java.util.function.Predicate;
 
 /**
  * TODO.
@@ -44,17 +46,29 @@ public class VectorIndexScanBounds implements IndexScanBounds {
     private final RealVector queryVector;
     private final int limit;
     @Nonnull final VectorIndexScanOptions vectorIndexScanOptions;
+    @Nullable
+    private final Predicate<Tuple> primaryKeyFilter;
 
     public VectorIndexScanBounds(@Nonnull final TupleRange prefixRange,
                                  @Nonnull final Comparisons.Type comparisonType,
                                  @Nullable final RealVector queryVector,
                                  final int limit,
                                  @Nonnull final VectorIndexScanOptions vectorIndexScanOptions) {
+        this(prefixRange, comparisonType, queryVector, limit, vectorIndexScanOptions, null);
+    }
+
+    public VectorIndexScanBounds(@Nonnull final TupleRange prefixRange,
+                                 @Nonnull final Comparisons.Type comparisonType,
+                                 @Nullable final RealVector queryVector,
+                                 final int limit,
+                                 @Nonnull final VectorIndexScanOptions vectorIndexScanOptions,
+                                 @Nullable final Predicate<Tuple> primaryKeyFilter) {
         this.prefixRange = prefixRange;
         this.comparisonType = comparisonType;
         this.queryVector = queryVector;
         this.limit = limit;
         this.vectorIndexScanOptions = vectorIndexScanOptions;
+        this.primaryKeyFilter = primaryKeyFilter;
     }
 
     @Nonnull
@@ -87,6 +101,27 @@ public class VectorIndexScanBounds implements IndexScanBounds {
         return vectorIndexScanOptions;
     }
 
+    /**
+     * Get the filter on record primary keys that all returned index entries must satisfy, if any. The filter is
+     * evaluated while the HNSW graph is traversed, so that the scan still returns up to the limit of matching entries.
+     * @return the primary key filter or {@code null} if all records qualify
+     */
+    @Nullable
+    public Predicate<Tuple> getPrimaryKeyFilter() {
+        return primaryKeyFilter;
+    }
+
+    /**
+     * Get a copy of these bounds that only returns index entries whose record primary keys satisfy a filter.
+     * @param primaryKeyFilter the filter on record primary keys
+     * @return new bounds with the given filter
+     */
+    @Nonnull
+    public VectorIndexScanBounds withPrimaryKeyFilter(@Nonnull final Predicate<Tuple> primaryKeyFilter) {
+        return new VectorIndexScanBounds(prefixRange, comparisonType, queryVector, limit, vectorIndexScanOptions,
+                primaryKeyFilter);
+    }
+
     public int getAdjustedLimit() {
         switch (getComparisonType()) {
             case DISTANCE_RANK_LESS_THAN:
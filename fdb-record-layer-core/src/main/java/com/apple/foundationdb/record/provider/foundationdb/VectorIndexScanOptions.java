@@ -44,12 +44,14 @@ import java.util.stream.Collectors;
 public final class VectorIndexScanOptions implements PlanHashable, PlanSerializable {
     public static final OptionKey<Integer> HNSW_EF_SEARCH = new OptionKey<>("hnswEfSearch", Integer.class);
     public static final OptionKey<Boolean> HNSW_RETURN_VECTORS = new OptionKey<>("hnswReturnVectors", Boolean.class);
+    public static final OptionKey<Integer> HNSW_MAX_EF_SEARCH = new OptionKey<>("hnswMaxEfSearch", Integer.class);
 
     private static final VectorIndexScanOptions EMPTY = new VectorIndexScanOptions(ImmutableMap.of());
 
     private static final Map<String /* optionName */, OptionKey<?>> optionsNameMap =
             ImmutableMap.of(HNSW_EF_SEARCH.getOptionName(), HNSW_EF_SEARCH,
-                    HNSW_RETURN_VECTORS.getOptionName(), HNSW_RETURN_VECTORS);
+                    HNSW_RETURN_VECTORS.getOptionName(), HNSW_RETURN_VECTORS,
+                    HNSW_MAX_EF_SEARCH.getOptionName(), HNSW_MAX_EF_SEARCH);
 
     @Nonnull
     private final Map<OptionKey<?>, Object> optionsMap;
@@ -0,0 +1,274 @@
+/*
+ * RangePartitionedScan.java
+ *
+ * This source file is part of the FoundationDB open source project
+ *
+ * Copyright 2015-2026 Apple Inc. and the FoundationDB project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.apple.foundationdb.record.provider.foundationdb.cursors;
+
+import com.apple.foundationdb.Range;
+import com.apple.foundationdb.annotation.API;
+import com.apple.foundationdb.record.EndpointType;
+import com.apple.foundationdb.record.RecordCoreException;
+import com.apple.foundationdb.record.RecordCursor;
+import com.apple.foundationdb.record.RecordCursorContinuation;
+import com.apple.foundationdb.record.RecordCursorProto;
+import com.apple.foundationdb.record.TupleRange;
+import com.apple.foundationdb.record.cursors.LazyCursor;
+import com.apple.foundationdb.record.logging.LogMessageKeys;
+import com.apple.foundationdb.record.provider.foundationdb.FDBStoreTimer;
+import com.apple.foundationdb.tuple.ByteArrayUtil;
+import com.apple.foundationdb.tuple.ByteArrayUtil2;
+import com.apple.foundationdb.tuple.Tuple;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.protobuf.ByteString;
+import com.google.protobuf.InvalidProtocolBufferException;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Scan a {@link TupleRange} as several partitions at once.
+ *
+ * <p>
+ * The range is split at boundary keys, typically those of the shards that hold it, so that each partition is read
+ * from a different storage server. The partitions are scanned concurrently and their results are merged either in
+ * whatever order they arrive, using an {@link UnorderedUnionCursor}, or in the order of the range, using a
+ * {@link UnionCursor} with a comparison key that follows the order of the keys. As the partitions are disjoint,
+ * neither merge returns any result more than once.
+ * </p>
+ *
+ * <p>
+ * The continuation holds the boundaries along with the continuation of the merge, so that a scan that is resumed
+ * uses the same partitions even if the shards of the range have moved in the meantime.
+ * </p>
+ */
+@API(API.Status.EXPERIMENTAL)
+public class RangePartitionedScan {
+    /**
+     * The default maximum number of partitions that are scanned at once.
+     */
+    public static final int DEFAULT_MAX_PARTITIONS = 8;
+
+    private RangePartitionedScan() {
+    }
+
+    /**
+     * Create a cursor that scans a range as several partitions at once.
+     *
+     * @param range the range to scan
+     * @param boundariesSupplier supplier of the keys at which the range can be split; only called if there is no
+     * continuation
+     * @param scanFunction function that scans a partition of the range from a continuation
+     * @param comparisonKeyFunction function that returns the key of a result, in the order of the range, to merge
+     * the partitions in order, or {@code null} to return results in any order
+     * @param reverse whether the range is scanned in reverse
+     * @param maxPartitions the maximum number of partitions to scan at once
+     * @param continuation any continuation from a previous scan
+     * @param executor the executor to use to compute the boundaries
+     * @param timer the timer used to instrument events
+     * @param <T> the type of elements returned by the cursor
+     * @return a cursor over the results of all the partitions
+     */
+    @Nonnull
+    @SuppressWarnings("squid:S00107") // too many parameters
+    public static <T> RecordCursor<T> create(@Nonnull TupleRange range,
+                                             @Nonnull Supplier<CompletableFuture<List<Tuple>>> boundariesSupplier,
+                                             @Nonnull BiFunction<TupleRange, byte[], RecordCursor<T>> scanFunction,
+                                             @Nullable Function<? super T, ? extends List<Object>> comparisonKeyFunction,
+                                             boolean reverse,
+                                             int maxPartitions,
+                                             @Nullable byte[] continuation,
+                                             @Nonnull Executor executor,
+                                             @Nullable FDBStoreTimer timer) {
+        if (continuation != null) {
+            final RecordCursorProto.RangePartitionedContinuation parsed = parseContinuation(continuation);
+            final List<Tuple> boundaries = new ArrayList<>(parsed.getBoundariesCount());
+            for (ByteString boundary : parsed.getBoundariesList()) {
+                boundaries.add(Tuple.fromBytes(boundary.toByteArray()));
+            }
+            final byte[] mergeContinuation = parsed.hasMergeContinuation() ? parsed.getMergeContinuation().toByteArray() : null;
+            return merge(range, boundaries, scanFunction, comparisonKeyFunction, reverse, mergeContinuation, timer);
+        }
+        if (!canPartition(range) || maxPartitions <= 1) {
+            return merge(range, ImmutableList.of(), scanFunction, comparisonKeyFunction, reverse, null, timer);
+        }
+        return new LazyCursor<>(boundariesSupplier.get().thenApply(candidates ->
+                merge(range, selectBoundaries(range, candidates, maxPartitions),
+                        scanFunction, comparisonKeyFunction, reverse, null, timer)), executor);
+    }
+
+    @Nonnull
+    private static <T> RecordCursor<T> merge(@Nonnull TupleRange range,
+                                             @Nonnull List<Tuple> boundaries,
+                                             @Nonnull BiFunction<TupleRange, byte[], RecordCursor<T>> scanFunction,
+                                             @Nullable Function<? super T, ? extends List<Object>> comparisonKeyFunction,
+                                             boolean reverse,
+                                             @Nullable byte[] mergeContinuation,
+                                             @Nullable FDBStoreTimer timer) {
+        List<TupleRange> partitions = partition(range, boundaries);
+        if (reverse) {
+            partitions = Lists.reverse(partitions);
+        }
+        final RecordCursor<T> merged;
+        if (partitions.size() == 1) {
+            merged = scanFunction.apply(partitions.get(0), mergeContinuation);
+        } else {
+            final List<Function<byte[], RecordCursor<T>>> cursorFunctions = new ArrayList<>(partitions.size());
+            for (TupleRange partition : partitions) {
+                cursorFunctions.add(partitionContinuation -> scanFunction.apply(partition, partitionContinuation));
+            }
+            if (comparisonKeyFunction == null) {
+                merged = UnorderedUnionCursor.create(cursorFunctions, mergeContinuation, timer);
+            } else {
+                merged = UnionCursor.create(comparisonKeyFunction, reverse, cursorFunctions, mergeContinuation, timer);
+            }
+        }
+        return merged.mapResult(result -> result.withContinuation(
+                new RangePartitionedContinuation(boundaries, result.getContinuation())));
+    }
+
+    private static boolean canPartition(@Nonnull TupleRange range) {
+        // a prefix string range must have the same prefix at both ends
+        return range.getLowEndpoint() != EndpointType.PREFIX_STRING && range.getHighEndpoint() != EndpointType.PREFIX_STRING;
+    }
+
+    /**
+     * Select the boundaries at which to split a range. Only candidates that are strictly inside the range are used,
+     * and if there are more of those than needed, an evenly spaced subset of them is selected.
+     *
+     * @param range the range to split
+     * @param candidates the keys at which the range can be split, in order
+     * @param maxPartitions the maximum number of partitions
+     * @return the boundaries to split the range at, in order
+     */
+    @Nonnull
+    @VisibleForTesting
+    static List<Tuple> selectBoundaries(@Nonnull TupleRange range, @Nonnull List<Tuple> candidates, int maxPartitions) {
+        final Range byteRange = range.toRange();
+        final List<Tuple> inside = new ArrayList<>(candidates.size());
+        byte[] previous = byteRange.begin;
+        for (Tuple candidate : candidates) {
+            final byte[] packed = candidate.pack();
+            if (ByteArrayUtil.compareUnsigned(packed, previous) > 0 && ByteArrayUtil.compareUnsigned(packed, byteRange.end) < 0) {
+                inside.add(candidate);
+                previous = packed;
+            }
+        }
+        final int count = inside.size();
+        if (count < maxPartitions) {
+            return inside;
+        }
+        final List<Tuple> selected = new ArrayList<>(maxPartitions - 1);
+        for (int i = 1; i < maxPartitions; i++) {
+            selected.add(inside.get((int)((long)i * (count + 1) / maxPartitions) - 1));
+        }
+        return selected;
+    }
+
+    /**
+     * Split a range into partitions.
+     *
+     * @param range the range to split
+     * @param boundaries the keys at which to split the range, in order
+     * @return the partitions of the range, in order, each one starting at a boundary (inclusive) and ending at the
+     * next one (exclusive)
+     */
+    @Nonnull
+    @VisibleForTesting
+    static List<TupleRange> partition(@Nonnull TupleRange range, @Nonnull List<Tuple> boundaries) {
+        if (boundaries.isEmpty()) {
+            return ImmutableList.of(range);
+        }
+        final ImmutableList.Builder<TupleRange> partitions = ImmutableList.builder();
+        partitions.add(new TupleRange(range.getLow(), boundaries.get(0), range.getLowEndpoint(), EndpointType.RANGE_EXCLUSIVE));
+        for (int i = 1; i < boundaries.size(); i++) {
+            partitions.add(new TupleRange(boundaries.get(i - 1), boundaries.get(i), EndpointType.RANGE_INCLUSIVE, EndpointType.RANGE_EXCLUSIVE));
+        }
+        partitions.add(new TupleRange(boundaries.get(boundaries.size() - 1), range.getHigh(), EndpointType.RANGE_INCLUSIVE, range.getHighEndpoint()));
+        return partitions.build();
+    }
+
+    @Nonnull
+    private static RecordCursorProto.RangePartitionedContinuation parseContinuation(@Nonnull byte[] continuation) {
+        try {
+            return RecordCursorProto.RangePartitionedContinuation.parseFrom(continuation);
+        } catch (InvalidProtocolBufferException ex) {
+            throw new RecordCoreException("invalid continuation", ex)
+                    .addLogInfo(LogMessageKeys.RAW_BYTES, ByteArrayUtil2.loggable(continuation));
+        }
+    }
+
+    /**
+     * Continuation of a range partitioned scan: the boundaries of the partitions and the continuation of the merge
+     * of their cursors.
+     */
+    private static class RangePartitionedContinuation implements RecordCursorContinuation {
+        @Nonnull
+        private final List<Tuple> boundaries;
+        @Nonnull
+        private final RecordCursorContinuation mergeContinuation;
+        @Nullable
+        private ByteString cachedByteString;
+
+        private RangePartitionedContinuation(@Nonnull List<Tuple> boundaries, @Nonnull RecordCursorContinuation mergeContinuation) {
+            this.boundaries = boundaries;
+            this.mergeContinuation = mergeContinuation;
+        }
+
+        @Nonnull
+        @Override
+        public ByteString toByteString() {
+            if (isEnd()) {
+                return ByteString.EMPTY;
+            }
+            if (cachedByteString == null) {
+                final RecordCursorProto.RangePartitionedContinuation.Builder builder = RecordCursorProto.RangePartitionedContinuation.newBuilder();
+                for (Tuple boundary : boundaries) {
+                    builder.addBoundaries(ByteString.copyFrom(boundary.pack()));
+                }
+                final byte[] mergeBytes = mergeContinuation.toBytes();
+                if (mergeBytes != null) {
+                    builder.setMergeContinuation(ByteString.copyFrom(mergeBytes));
+                }
+                cachedByteString = builder.build().toByteString();
+            }
+            return cachedByteString;
+        }
+
+        @Nullable
+        @Override
+        public byte[] toBytes() {
+            final ByteString byteString = toByteString();
+            return byteString.isEmpty() ? null : byteString.toByteArray();
+        }
+
+        @Override
+        public boolean isEnd() {
+            return mergeContinuation.isEnd();
+        }
+    }
+}
@@ -39,6 +39,7 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
+import java.util.function.BinaryOperator;
 import java.util.function.Function;
 
 /**
@@ -62,11 +63,32 @@ import java.util.function.Function;
 @API(API.Status.UNSTABLE)
 public class UnionCursor<T> extends UnionCursorBase<T, KeyedMergeCursorState<T>> {
     private final boolean reverse;
+    @Nullable
+    private final BinaryOperator<T> combiner;
 
     private UnionCursor(boolean reverse, @Nonnull List<KeyedMergeCursorState<T>> cursorStates,
                         @Nullable FDBStoreTimer timer) {
+        this(reverse, null, cursorStates, timer);
+    }
+
+    private UnionCursor(boolean reverse, @Nullable BinaryOperator<T> combiner,
+                        @Nonnull List<KeyedMergeCursorState<T>> cursorStates, @Nullable FDBStoreTimer timer) {
         super(cursorStates, timer);
         this.reverse = reverse;
+        this.combiner = combiner;
+    }
+
+    @Override
+    @Nonnull
+    protected T getNextResult(@Nonnull List<KeyedMergeCursorState<T>> chosenStates) {
+        if (combiner == null) {
+            return super.getNextResult(chosenStates);
+        }
+        T result = chosenStates.get(0).getResult().get();
+        for (int i = 1; i < chosenStates.size(); i++) {
+            result = combiner.apply(result, chosenStates.get(i).getResult().get());
+        }
+        return result;
     }
 
     @Nonnull
@@ -300,4 +322,36 @@ public class UnionCursor<T> extends UnionCursorBase<T, KeyedMergeCursorState<T>>
         final List<KeyedMergeCursorState<T>> cursorStates = createCursorStates(cursorFunctions, byteContinuation, comparisonKeyFunction);
         return new UnionCursor<>(reverse, cursorStates, timer);
     }
+
+    /**
+     * Create a union cursor from two or more compatibly-ordered cursors that combines elements with
+     * the same comparison key. Rather than returning only one of the elements from different cursors
+     * that have the same comparison key, the cursor returns the result of combining them all
+     * in the order of the cursors. Otherwise, this behaves exactly the same way as
+     * {@link #create(Function, boolean, List, byte[], FDBStoreTimer)}.
+     *
+     * @param comparisonKeyFunction the function evaluated to compare elements from different cursors
+     * @param combiner the function that combines two elements with the same comparison key
+     * @param reverse whether records are returned in descending or ascending order by the comparison key
+     * @param cursorFunctions a list of functions to produce {@link RecordCursor}s from a continuation
+     * @param byteContinuation any continuation from a previous scan
+     * @param timer the timer used to instrument events
+     * @param <T> the type of elements returned by this cursor
+     * @return a cursor containing the combined elements from all child cursors
+     */
+    @Nonnull
+    public static <T> UnionCursor<T> create(
+            @Nonnull Function<? super T, ? extends List<Object>> comparisonKeyFunction,
+            @Nonnull BinaryOperator<T> combiner,
+            boolean reverse,
+            @Nonnull List<Function<byte[], RecordCursor<T>>> cursorFunctions,
+            @Nullable byte[] byteContinuation,
+            @Nullable FDBStoreTimer timer) {
+        if (cursorFunctions.size() < 2) {
+            throw new RecordCoreArgumentException("not enough child cursors provided to UnionCursor")
+                    .addLogInfo(LogMessageKeys.CHILD_COUNT, cursorFunctions.size());
+        }
+        final List<KeyedMergeCursorState<T>> cursorStates = createCursorStates(cursorFunctions, byteContinuation, comparisonKeyFunction);
+        return new UnionCursor<>(reverse, combiner, cursorStates, timer);
+    }
 }
@@ -23,6 +23,7 @@ package com.apple.foundationdb.record.provider.foundationdb.indexes;
 import com.apple.foundationdb.MutationType;
 import com.apple.foundationdb.annotation.API;
 import com.apple.foundationdb.async.AsyncUtil;
+import com.apple.foundationdb.async.MoreAsyncUtil;
 import com.apple.foundationdb.record.ExecuteProperties;
 import com.apple.foundationdb.record.FunctionNames;
 import com.apple.foundationdb.record.IndexEntry;
@@ -41,6 +42,7 @@ import com.apple.foundationdb.record.provider.foundationdb.FDBIndexableRecord;
 import com.apple.foundationdb.record.provider.foundationdb.FDBStoreTimer;
 import com.apple.foundationdb.record.provider.foundationdb.IndexFunctionHelper;
 import com.apple.foundationdb.record.provider.foundationdb.IndexMaintainerState;
+import com.apple.foundationdb.record.util.pair.Pair;
 import com.apple.foundationdb.tuple.ByteArrayUtil;
 import com.apple.foundationdb.tuple.Tuple;
 import com.apple.foundationdb.tuple.TupleHelpers;
@@ -48,8 +50,11 @@ import com.google.protobuf.Message;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentSkipListMap;
 import java.util.function.BiFunction;
 
 /**
@@ -62,6 +67,9 @@ import java.util.function.BiFunction;
 @API(API.Status.UNSTABLE)
 public class AtomicMutationIndexMaintainer extends StandardIndexMaintainer {
     protected final AtomicMutation mutation;
+    // While updating a batch of records, the total amount to add to each key, written once the batch is done.
+    @Nullable
+    private volatile Map<byte[], Long> pendingAdds;
 
     public AtomicMutationIndexMaintainer(IndexMaintainerState state) {
         super(state);
@@ -127,6 +135,7 @@ public class AtomicMutationIndexMaintainer extends StandardIndexMaintainer {
                                                                           @Nonnull final List<IndexEntry> indexEntries) {
         final MutationType mutationType = mutation.getMutationType();
         final int groupPrefixSize = getGroupingCount();
+        final Map<byte[], Long> adds = mutationType == MutationType.ADD ? pendingAdds : null;
         for (IndexEntry indexEntry : indexEntries) {
             final long startTime = System.nanoTime();
             final Tuple groupKey;
@@ -168,6 +177,8 @@ public class AtomicMutationIndexMaintainer extends StandardIndexMaintainer {
                 } else {
                     state.transaction.mutate(MutationType.BYTE_MAX, key, param);
                 }
+            } else if (adds != null && param.length == Long.BYTES) {
+                adds.merge(key, AtomicMutation.Standard.decodeUnsignedLong(param), Long::sum);
             } else {
                 state.transaction.mutate(mutationType, key, param);
                 final byte[] compareAndClear = mutation.getCompareAndClearParam();
@@ -182,6 +193,47 @@ public class AtomicMutationIndexMaintainer extends StandardIndexMaintainer {
         return AsyncUtil.DONE;
     }
 
+    /**
+     * Update the index for a batch of changed records.
+     * For indexes that add to the grouped value, such as sums and counts, the amounts for each group are combined
+     * across the whole batch, so that each group key gets a single mutation.
+     * @param updates pairs of the previous stored record and the new record
+     * @param <M> type of message
+     * @return a future that is complete when all the index updates are done
+     */
+    @Nonnull
+    @Override
+    public <M extends Message> CompletableFuture<Void> updateBatch(@Nonnull List<Pair<FDBIndexableRecord<M>, FDBIndexableRecord<M>>> updates) {
+        if (mutation.getMutationType() != MutationType.ADD || updates.size() < 2) {
+            return super.updateBatch(updates);
+        }
+        final Map<byte[], Long> adds = new ConcurrentSkipListMap<>(ByteArrayUtil::compareUnsigned);
+        pendingAdds = adds;
+        final List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (Pair<FDBIndexableRecord<M>, FDBIndexableRecord<M>> update : updates) {
+            final CompletableFuture<Void> future = update(update.getLeft(), update.getRight());
+            if (!MoreAsyncUtil.isCompletedNormally(future)) {
+                futures.add(future);
+            }
+        }
+        if (futures.isEmpty()) {
+            writePendingAdds(adds);
+            return AsyncUtil.DONE;
+        }
+        return AsyncUtil.whenAll(futures).thenRun(() -> writePendingAdds(adds));
+    }
+
+    private void writePendingAdds(@Nonnull Map<byte[], Long> adds) {
+        pendingAdds = null;
+        final byte[] compareAndClear = mutation.getCompareAndClearParam();
+        for (Map.Entry<byte[], Long> entry : adds.entrySet()) {
+            state.transaction.mutate(MutationType.ADD, entry.getKey(), AtomicMutation.Standard.encodeUnsignedLong(entry.getValue()));
+            if (compareAndClear != null) {
+                state.transaction.mutate(MutationType.COMPARE_AND_CLEAR, entry.getKey(), compareAndClear);
+            }
+        }
+    }
+
     @Override
     protected Tuple decodeValue(@Nonnull byte[] value) {
         switch (mutation.getMutationType()) {
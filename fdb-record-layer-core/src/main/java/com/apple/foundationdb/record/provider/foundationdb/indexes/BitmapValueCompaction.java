@@ -0,0 +1,67 @@
+/*
+ * BitmapValueCompaction.java
+ *
+ * This source file is part of the FoundationDB open source project
+ *
+ * Copyright 2015-2026 Apple Inc. and the FoundationDB project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.apple.foundationdb.record.provider.foundationdb.indexes;
+
+import com.apple.foundationdb.annotation.API;
+import com.apple.foundationdb.record.TupleRange;
+import com.apple.foundationdb.record.provider.foundationdb.IndexOperation;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * Compact the bitmaps of a {@link com.apple.foundationdb.record.metadata.IndexTypes#BITMAP_VALUE} index with the
+ * {@link com.apple.foundationdb.record.metadata.IndexOptions#BITMAP_VALUE_ENCODING_OPTION} set to
+ * {@value BitmapValueIndexMaintainer#ROARING_ENCODING}.
+ *
+ * Each bitmap in the range, together with any updates to it since it was last compacted, is stored compressed.
+ * Compacting a bitmap reads it, so it conflicts with concurrent updates to the same bitmap, which do not conflict
+ * with one another. A {@link BitmapValueCompactionResult} is returned.
+ */
+@API(API.Status.EXPERIMENTAL)
+public class BitmapValueCompaction extends IndexOperation {
+    @Nonnull
+    private final TupleRange range;
+    @Nullable
+    private final byte[] continuation;
+    private final int limit;
+
+    public BitmapValueCompaction(@Nonnull TupleRange range, @Nullable byte[] continuation, int limit) {
+        this.range = range;
+        this.continuation = continuation;
+        this.limit = limit;
+    }
+
+    @Nonnull
+    public TupleRange getRange() {
+        return range;
+    }
+
+    @Nullable
+    public byte[] getContinuation() {
+        return continuation;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+}
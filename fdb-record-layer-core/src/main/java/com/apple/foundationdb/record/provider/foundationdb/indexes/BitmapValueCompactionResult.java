@@ -0,0 +1,55 @@
+/*
+ * BitmapValueCompactionResult.java
+ *
+ * This source file is part of the FoundationDB open source project
+ *
+ * Copyright 2015-2026 Apple Inc. and the FoundationDB project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.apple.foundationdb.record.provider.foundationdb.indexes;
+
+import com.apple.foundationdb.annotation.API;
+import com.apple.foundationdb.record.provider.foundationdb.IndexOperationResult;
+
+import javax.annotation.Nullable;
+
+/**
+ * The number of bitmaps compacted by a {@link BitmapValueCompaction} and where to continue.
+ */
+@API(API.Status.EXPERIMENTAL)
+public class BitmapValueCompactionResult extends IndexOperationResult {
+    private final int compactedCount;
+    @Nullable
+    private final byte[] continuation;
+
+    public BitmapValueCompactionResult(int compactedCount, @Nullable byte[] continuation) {
+        this.compactedCount = compactedCount;
+        this.continuation = continuation;
+    }
+
+    public int getCompactedCount() {
+        return compactedCount;
+    }
+
+    /**
+     * Get the continuation for compacting the rest of the range.
+     * @return the continuation or {@code null} if the whole range has been compacted
+     */
+    @Nullable
+    public byte[] getContinuation() {
+        return continuation;
+    }
+}
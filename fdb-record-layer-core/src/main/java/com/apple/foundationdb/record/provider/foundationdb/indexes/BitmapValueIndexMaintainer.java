@@ -20,7 +20,11 @@
 
 package com.apple.foundationdb.record.provider.foundationdb.indexes;
 
+import com.apple.foundationdb.KeyValue;
 import com.apple.foundationdb.MutationType;
+import com.apple.foundationdb.Range;
+import com.apple.foundationdb.ReadTransaction;
+import com.apple.foundationdb.Transaction;
 import com.apple.foundationdb.annotation.API;
 import com.apple.foundationdb.async.AsyncUtil;
 import com.apple.foundationdb.record.EndpointType;
@@ -41,9 +45,15 @@ import com.apple.foundationdb.record.metadata.IndexOptions;
 import com.apple.foundationdb.record.metadata.MetaDataException;
 import com.apple.foundationdb.record.provider.foundationdb.FDBIndexableRecord;
 import com.apple.foundationdb.record.provider.foundationdb.FDBStoreTimer;
+import com.apple.foundationdb.record.provider.foundationdb.FormatVersion;
 import com.apple.foundationdb.record.provider.foundationdb.IndexFunctionHelper;
 import com.apple.foundationdb.record.provider.foundationdb.IndexMaintainerState;
+import com.apple.foundationdb.record.provider.foundationdb.IndexOperation;
+import com.apple.foundationdb.record.provider.foundationdb.IndexOperationResult;
+import com.apple.foundationdb.record.provider.foundationdb.KeyValueCursor;
+import com.apple.foundationdb.record.provider.foundationdb.cursors.UnionCursor;
 import com.apple.foundationdb.subspace.Subspace;
+import com.apple.foundationdb.tuple.ByteArrayUtil;
 import com.apple.foundationdb.tuple.Tuple;
 import com.apple.foundationdb.tuple.TupleHelpers;
 import com.google.protobuf.Message;
@@ -54,6 +64,7 @@ import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
 
@@ -84,6 +95,14 @@ import java.util.concurrent.CompletableFuture;
  * A separate unique index on the position field, if it is not the primary key, is therefore generally preferable.
  * </p>
  *
+ * <p>
+ * With the {@link IndexOptions#BITMAP_VALUE_ENCODING_OPTION} set to {@value #ROARING_ENCODING}, and a store at
+ * {@link FormatVersion#COMPACTED_BITMAP_VALUE} or later, bitmaps can also be compacted with a {@link BitmapValueCompaction}
+ * operation, which stores them compressed (see {@link RoaringBitmapEncoding}) in the secondary subspace. Updates still
+ * use the same atomic mutations on raw bitmaps, so they never conflict, and also keep the bits cleared since the bitmap
+ * was compacted in another raw bitmap, so that a scan can merge all three.
+ * </p>
+ *
  */
 @API(API.Status.EXPERIMENTAL)
 public class BitmapValueIndexMaintainer extends StandardIndexMaintainer {
@@ -92,8 +111,16 @@ public class BitmapValueIndexMaintainer extends StandardIndexMaintainer {
     public static final int DEFAULT_ENTRY_SIZE = 10_000;
     public static final int MAX_ENTRY_SIZE = 250_000;
 
+    public static final String RAW_ENCODING = "raw";
+    public static final String ROARING_ENCODING = "roaring";
+
+    // Under the secondary subspace, compacted bitmaps and the bits cleared from them since.
+    private static final long COMPACTED_KEY = 0L;
+    private static final long CLEARED_KEY = 1L;
+
     private final int entrySize;
     private final boolean unique;
+    private final boolean roaring;
 
     public BitmapValueIndexMaintainer(IndexMaintainerState state) {
         super(state);
@@ -104,6 +131,37 @@ public class BitmapValueIndexMaintainer extends StandardIndexMaintainer {
                     .addLogInfo("entrySize", entrySize, "maxEntrySize", MAX_ENTRY_SIZE);
         }
         unique = state.index.isUnique();
+        roaring = isRoaringEncoding(state.index.getOption(IndexOptions.BITMAP_VALUE_ENCODING_OPTION));
+    }
+
+    /**
+     * Get whether the given value of {@link IndexOptions#BITMAP_VALUE_ENCODING_OPTION} means compressed bitmaps.
+     * @param encoding the option value or {@code null} if the option is not set
+     * @return {@code true} for {@value #ROARING_ENCODING}
+     */
+    public static boolean isRoaringEncoding(@Nullable String encoding) {
+        if (encoding == null || RAW_ENCODING.equals(encoding)) {
+            return false;
+        } else if (ROARING_ENCODING.equals(encoding)) {
+            return true;
+        } else {
+            throw new MetaDataException("unknown bitmap value encoding",
+                    "encoding", encoding);
+        }
+    }
+
+    private boolean isCompactable() {
+        return roaring && state.store.getFormatVersionEnum().isAtLeast(FormatVersion.COMPACTED_BITMAP_VALUE);
+    }
+
+    @Nonnull
+    private Subspace compactedSubspace() {
+        return state.store.indexSecondarySubspace(state.index).subspace(Tuple.from(COMPACTED_KEY));
+    }
+
+    @Nonnull
+    private Subspace clearedSubspace() {
+        return state.store.indexSecondarySubspace(state.index).subspace(Tuple.from(CLEARED_KEY));
     }
 
     @Nonnull
@@ -179,7 +237,7 @@ public class BitmapValueIndexMaintainer extends StandardIndexMaintainer {
                                                                           final boolean remove,
                                                                           @Nonnull final List<IndexEntry> indexEntries) {
         final int groupPrefixSize = getGroupingCount();
-        final List<CompletableFuture<Void>> futures = unique && !remove ? new ArrayList<>(indexEntries.size()) : null;
+        final List<CompletableFuture<Void>> futures = new ArrayList<>();
         for (IndexEntry indexEntry : indexEntries) {
             final long startTime = System.nanoTime();
             final Tuple groupKey = TupleHelpers.subTuple(indexEntry.getKey(), 0, groupPrefixSize);
@@ -197,27 +255,37 @@ public class BitmapValueIndexMaintainer extends StandardIndexMaintainer {
             long position = ((Number) positionObject).longValue();
             final int offset = (int)Math.floorMod(position, (long)entrySize);
             position -= offset;
-            final byte[] key = state.indexSubspace.pack(groupKey.add(position));
+            final Tuple bitmapKey = groupKey.add(position);
+            final byte[] key = state.indexSubspace.pack(bitmapKey);
+            final boolean compactable = isCompactable();
             // This has to be the same size every time, with all the unset bits, or else it gets truncated.
             // We really could use a new mutation that took a linear bit position to set / clear and only did length extension or something like that.
             final byte[] bitmap = new byte[(entrySize + 7) / 8];
             if (remove) {
-                if (state.store.isIndexWriteOnly(state.index)) {
-                    // If the index isn't built, it's possible this key wasn't reached.
-                    // So initialize it to zeros (or leave it alone).
+                if (compactable) {
+                    // The bit may be in a compacted bitmap instead, so note it as cleared there.
+                    bitmap[offset / 8] |= (byte)(1 << (offset % 8));
+                    state.transaction.mutate(MutationType.BIT_OR, clearedSubspace().pack(bitmapKey), bitmap);
+                    bitmap[offset / 8] = 0;
+                }
+                if (compactable || state.store.isIndexWriteOnly(state.index)) {
+                    // If the index isn't built, it's possible this key wasn't reached. Or the bitmap may have been
+                    // compacted since. So initialize it to zeros (or leave it alone).
                     state.transaction.mutate(MutationType.BIT_OR, key, bitmap);
                 }
                 // Otherwise the entry must already exist for us to be removing it,
                 // so there is no danger that this will store all (but one) ones in a new key.
-                Arrays.fill(bitmap, (byte)0xFF);
-                bitmap[offset / 8] &= (byte)~(1 << (offset % 8));
-                state.transaction.mutate(MutationType.BIT_AND, key, bitmap);
-                Arrays.fill(bitmap, (byte)0x00);
-                state.transaction.mutate(MutationType.COMPARE_AND_CLEAR, key, bitmap);
+                clearBit(key, bitmap, offset);
             } else {
+                if (compactable) {
+                    // Undo any earlier clearing of the bit from a compacted bitmap.
+                    final byte[] clearedKey = clearedSubspace().pack(bitmapKey);
+                    state.transaction.mutate(MutationType.BIT_OR, clearedKey, bitmap);
+                    clearBit(clearedKey, bitmap, offset);
+                }
                 if (unique) {
                     // Snapshot read to see if the bit is already set.
-                    CompletableFuture<Void> future = state.transaction.snapshot().get(key).thenAccept(existing -> {
+                    CompletableFuture<Void> future = loadBitmap(state.transaction.snapshot(), bitmapKey).thenAccept(existing -> {
                         if (existing != null && (existing[offset / 8] & (byte)(1 << (offset % 8))) != 0) {
                             throw new RecordIndexUniquenessViolation(state.index, indexEntry, savedRecord.getPrimaryKey(),
                                     null);  // Unfortunately, we don't know the other key.
@@ -236,7 +304,196 @@ public class BitmapValueIndexMaintainer extends StandardIndexMaintainer {
                 state.store.getTimer().recordSinceNanoTime(FDBStoreTimer.Events.MUTATE_INDEX_ENTRY, startTime);
             }
         }
-        return futures != null ? AsyncUtil.whenAll(futures) : AsyncUtil.DONE;
+        return futures.isEmpty() ? AsyncUtil.DONE : AsyncUtil.whenAll(futures);
+    }
+
+    // Clear one bit of the bitmap at key, which must already exist, and the whole key if that was the last one.
+    // The given bitmap must be all zeros, and is again afterwards.
+    private void clearBit(@Nonnull byte[] key, @Nonnull byte[] bitmap, int offset) {
+        Arrays.fill(bitmap, (byte)0xFF);
+        bitmap[offset / 8] &= (byte)~(1 << (offset % 8));
+        state.transaction.mutate(MutationType.BIT_AND, key, bitmap);
+        Arrays.fill(bitmap, (byte)0x00);
+        state.transaction.mutate(MutationType.COMPARE_AND_CLEAR, key, bitmap);
+    }
+
+    /**
+     * Load a single bitmap, merging any compacted bitmap with the updates since.
+     * @param tr the transaction to read with
+     * @param bitmapKey the group key and starting position of the bitmap
+     * @return a future that completes to the raw bitmap or {@code null} if there is none
+     */
+    @Nonnull
+    private CompletableFuture<byte[]> loadBitmap(@Nonnull ReadTransaction tr, @Nonnull Tuple bitmapKey) {
+        final CompletableFuture<byte[]> rawFuture = tr.get(state.indexSubspace.pack(bitmapKey));
+        if (!isCompactable()) {
+            return rawFuture;
+        }
+        final CompletableFuture<byte[]> compactedFuture = tr.get(compactedSubspace().pack(bitmapKey));
+        final CompletableFuture<byte[]> clearedFuture = tr.get(clearedSubspace().pack(bitmapKey));
+        return CompletableFuture.allOf(rawFuture, compactedFuture, clearedFuture).thenApply(vignore ->
+                mergeBitmap(rawFuture.join(), compactedFuture.join(), clearedFuture.join()));
+    }
+
+    @Nullable
+    private byte[] mergeBitmap(@Nullable byte[] raw, @Nullable byte[] compacted, @Nullable byte[] cleared) {
+        if (compacted == null) {
+            return raw;
+        }
+        // Copy, since a value that was not compressed is returned as is.
+        final byte[] bitmap = Arrays.copyOf(RoaringBitmapEncoding.decode(compacted, entrySize), RoaringBitmapEncoding.rawSize(entrySize));
+        for (int i = 0; i < bitmap.length; i++) {
+            if (cleared != null && i < cleared.length) {
+                bitmap[i] &= (byte)~cleared[i];
+            }
+            if (raw != null && i < raw.length) {
+                bitmap[i] |= raw[i];
+            }
+        }
+        return isEmpty(bitmap) ? null : bitmap;
+    }
+
+    @Override
+    @Nonnull
+    protected RecordCursor<IndexEntry> scan(@Nonnull final TupleRange range,
+                                            @Nullable byte[] continuation,
+                                            @Nonnull ScanProperties scanProperties) {
+        if (!isCompactable()) {
+            return super.scan(range, continuation, scanProperties);
+        }
+        // Merge the raw, compacted and cleared values of each bitmap from range reads of all three subspaces,
+        // so that no bitmap needs to be read again. The skip and limit apply to the merged bitmaps.
+        final ExecuteProperties executeProperties = scanProperties.getExecuteProperties();
+        final ScanProperties innerScanProperties = scanProperties.with(ExecuteProperties::clearSkipAndLimit);
+        final Subspace compactedSubspace = compactedSubspace();
+        final Subspace clearedSubspace = clearedSubspace();
+        return UnionCursor.create(parts -> parts.bitmapKey.getItems(), BitmapParts::combine, scanProperties.isReverse(),
+                List.of(
+                        outerContinuation -> scanKeyValues(state.indexSubspace, range, outerContinuation, innerScanProperties)
+                                .map(kv -> new BitmapParts(state.indexSubspace.unpack(kv.getKey()), kv.getValue(), null, null)),
+                        outerContinuation -> scanKeyValues(compactedSubspace, range, outerContinuation, innerScanProperties)
+                                .map(kv -> new BitmapParts(compactedSubspace.unpack(kv.getKey()), null, kv.getValue(), null)),
+                        outerContinuation -> scanKeyValues(clearedSubspace, range, outerContinuation, innerScanProperties)
+                                .map(kv -> new BitmapParts(clearedSubspace.unpack(kv.getKey()), null, null, kv.getValue()))),
+                continuation, state.store.getTimer())
+                .map(parts -> {
+                    final byte[] bitmap = mergeBitmap(parts.raw, parts.compacted, parts.cleared);
+                    return bitmap == null ? null : new IndexEntry(state.index, parts.bitmapKey, Tuple.from(bitmap));
+                })
+                .filter(Objects::nonNull)
+                .skipThenLimit(executeProperties.getSkip(), executeProperties.getReturnedRowLimit());
+    }
+
+    @Nonnull
+    private RecordCursor<Tuple> scanBitmapKeys(@Nonnull final TupleRange range,
+                                               @Nullable byte[] continuation,
+                                               @Nonnull ScanProperties scanProperties) {
+        final Subspace compactedSubspace = compactedSubspace();
+        return UnionCursor.create(Tuple::getItems, scanProperties.isReverse(),
+                outerContinuation -> scanKeys(state.indexSubspace, range, outerContinuation, scanProperties),
+                outerContinuation -> scanKeys(compactedSubspace, range, outerContinuation, scanProperties),
+                continuation, state.store.getTimer());
+    }
+
+    @Nonnull
+    private RecordCursor<Tuple> scanKeys(@Nonnull Subspace subspace, @Nonnull final TupleRange range,
+                                         @Nullable byte[] continuation, @Nonnull ScanProperties scanProperties) {
+        return scanKeyValues(subspace, range, continuation, scanProperties).map(kv -> subspace.unpack(kv.getKey()));
+    }
+
+    @Nonnull
+    private RecordCursor<KeyValue> scanKeyValues(@Nonnull Subspace subspace, @Nonnull final TupleRange range,
+                                                 @Nullable byte[] continuation, @Nonnull ScanProperties scanProperties) {
+        return KeyValueCursor.Builder.withSubspace(subspace)
+                .setContext(state.context)
+                .setRange(range)
+                .setContinuation(continuation)
+                .setScanProperties(scanProperties)
+                .build()
+                .map(kv -> {
+                    state.store.countKeyValue(FDBStoreTimer.Counts.LOAD_INDEX_KEY, FDBStoreTimer.Counts.LOAD_INDEX_KEY_BYTES, FDBStoreTimer.Counts.LOAD_INDEX_VALUE_BYTES,
+                            kv);
+                    return kv;
+                });
+    }
+
+    /**
+     * Compact the bitmaps in a range.
+     * @param compaction the range and how many bitmaps to compact
+     * @return a future that completes to the number compacted and a continuation
+     */
+    @Nonnull
+    private CompletableFuture<IndexOperationResult> compactBitmaps(@Nonnull BitmapValueCompaction compaction) {
+        if (!roaring) {
+            throw new RecordCoreArgumentException("bitmap value index does not have roaring encoding",
+                    LogMessageKeys.INDEX_NAME, state.index.getName());
+        }
+        if (!isCompactable()) {
+            throw new RecordCoreException("store format version does not support compacted bitmaps",
+                    LogMessageKeys.INDEX_NAME, state.index.getName(),
+                    LogMessageKeys.FORMAT_VERSION, state.store.getFormatVersionEnum());
+        }
+        final ScanProperties scanProperties = new ScanProperties(ExecuteProperties.newBuilder()
+                .setReturnedRowLimit(compaction.getLimit())
+                .build());
+        final List<CompletableFuture<Void>> work = new ArrayList<>();
+        return scanBitmapKeys(compaction.getRange(), compaction.getContinuation(), scanProperties)
+                .forEachResult(result -> work.add(compactBitmap(result.get())))
+                .thenCompose(lastResult -> AsyncUtil.whenAll(work).thenApply(vignore ->
+                        new BitmapValueCompactionResult(work.size(),
+                                lastResult.getNoNextReason().isSourceExhausted() ? null : lastResult.getContinuation().toBytes())));
+    }
+
+    @Nonnull
+    private CompletableFuture<Void> compactBitmap(@Nonnull Tuple bitmapKey) {
+        // Not a snapshot read, so that this conflicts with concurrent updates of the bitmap.
+        return loadBitmap(state.transaction, bitmapKey).thenAccept(bitmap -> {
+            final byte[] rawKey = state.indexSubspace.pack(bitmapKey);
+            final byte[] compactedKey = compactedSubspace().pack(bitmapKey);
+            state.transaction.clear(clearedSubspace().pack(bitmapKey));
+            if (bitmap == null || isEmpty(bitmap)) {
+                state.transaction.clear(rawKey);
+                state.transaction.clear(compactedKey);
+                return;
+            }
+            final byte[] encoded = RoaringBitmapEncoding.encode(bitmap);
+            if (RoaringBitmapEncoding.isEncoded(encoded, entrySize)) {
+                state.transaction.set(compactedKey, encoded);
+                state.transaction.clear(rawKey);
+            } else {
+                // Not worth compressing, so leave it raw.
+                state.transaction.set(rawKey, bitmap);
+                state.transaction.clear(compactedKey);
+            }
+        });
+    }
+
+    @Override
+    public CompletableFuture<IndexOperationResult> performOperation(@Nonnull IndexOperation operation) {
+        if (operation instanceof BitmapValueCompaction) {
+            return compactBitmaps((BitmapValueCompaction)operation);
+        }
+        return super.performOperation(operation);
+    }
+
+    @Override
+    public CompletableFuture<Void> deleteWhere(Transaction tr, @Nonnull Tuple prefix) {
+        if (roaring) {
+            for (Subspace subspace : List.of(compactedSubspace(), clearedSubspace())) {
+                final byte[] key = subspace.pack(prefix);
+                state.context.clear(new Range(key, ByteArrayUtil.strinc(key)));
+            }
+        }
+        return super.deleteWhere(tr, prefix);
+    }
+
+    private static boolean isEmpty(@Nonnull byte[] bitmap) {
+        for (byte b : bitmap) {
+            if (b != 0) {
+                return false;
+            }
+        }
+        return true;
     }
 
     @Override
@@ -279,6 +536,35 @@ public class BitmapValueIndexMaintainer extends StandardIndexMaintainer {
                 .thenApply(combined -> Tuple.from(combined.asByteArray()));
     }
 
+    /**
+     * The values of one bitmap in each of the subspaces, as merged by a scan.
+     */
+    private static class BitmapParts {
+        @Nonnull
+        private final Tuple bitmapKey;
+        @Nullable
+        private final byte[] raw;
+        @Nullable
+        private final byte[] compacted;
+        @Nullable
+        private final byte[] cleared;
+
+        BitmapParts(@Nonnull Tuple bitmapKey, @Nullable byte[] raw, @Nullable byte[] compacted, @Nullable byte[] cleared) {
+            this.bitmapKey = bitmapKey;
+            this.raw = raw;
+            this.compacted = compacted;
+            this.cleared = cleared;
+        }
+
+        @Nonnull
+        BitmapParts combine(@Nonnull BitmapParts other) {
+            return new BitmapParts(bitmapKey,
+                    raw != null ? raw : other.raw,
+                    compacted != null ? compacted : other.compacted,
+                    cleared != null ? cleared : other.cleared);
+        }
+    }
+
     private static class BitmapAggregator {
         private final long offset;
         private ByteBuffer buffer;
@@ -24,8 +24,10 @@ import com.apple.foundationdb.annotation.API;
 import com.apple.foundationdb.record.RecordMetaData;
 import com.apple.foundationdb.record.logging.LogMessageKeys;
 import com.apple.foundationdb.record.metadata.Index;
+import com.apple.foundationdb.record.metadata.IndexOptions;
 import com.apple.foundationdb.record.metadata.IndexTypes;
 import com.apple.foundationdb.record.metadata.IndexValidator;
+import com.apple.foundationdb.record.metadata.MetaDataException;
 import com.apple.foundationdb.record.metadata.MetaDataValidator;
 import com.apple.foundationdb.record.metadata.RecordType;
 import com.apple.foundationdb.record.metadata.expressions.GroupingKeyExpression;
@@ -44,6 +46,7 @@ import com.google.protobuf.Descriptors;
 import javax.annotation.Nonnull;
 import java.util.Collections;
 import java.util.List;
+import java.util.Set;
 
 /**
  * A factory for {@link BitmapValueIndexMaintainer}.
@@ -76,6 +79,23 @@ public class BitmapValueIndexMaintainerFactory implements IndexMaintainerFactory
                                                                        LogMessageKeys.INDEX_KEY, index.getRootExpression());
                 }
                 validateNotVersion();
+                BitmapValueIndexMaintainer.isRoaringEncoding(index.getOption(IndexOptions.BITMAP_VALUE_ENCODING_OPTION));
+            }
+
+            @Override
+            public void validateChangedOptions(@Nonnull Index oldIndex, @Nonnull Set<String> changedOptions) {
+                if (changedOptions.contains(IndexOptions.BITMAP_VALUE_ENCODING_OPTION)) {
+                    final boolean oldRoaring = BitmapValueIndexMaintainer.isRoaringEncoding(oldIndex.getOption(IndexOptions.BITMAP_VALUE_ENCODING_OPTION));
+                    final boolean newRoaring = BitmapValueIndexMaintainer.isRoaringEncoding(index.getOption(IndexOptions.BITMAP_VALUE_ENCODING_OPTION));
+                    // Raw bitmaps are still understood once the index can be compacted, and are compressed when compacted.
+                    // But an index with raw encoding would ignore any compacted bitmaps.
+                    if (oldRoaring && !newRoaring) {
+                        throw new MetaDataException("bitmap value index cannot be changed back to raw encoding",
+                                LogMessageKeys.INDEX_NAME, index.getName());
+                    }
+                    changedOptions.remove(IndexOptions.BITMAP_VALUE_ENCODING_OPTION);
+                }
+                super.validateChangedOptions(oldIndex, changedOptions);
             }
 
             @Override
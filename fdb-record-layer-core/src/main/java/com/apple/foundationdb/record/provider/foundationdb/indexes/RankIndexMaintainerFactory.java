@@ -96,6 +96,15 @@ public class RankIndexMaintainerFactory implements IndexMaintainerFactory {
                         }
                         changedOptions.remove(IndexOptions.RANK_COUNT_DUPLICATES);
                     }
+                    if (changedOptions.contains(IndexOptions.RANK_VERSIONED)) {
+                        // Sets that do not have a version yet get one with their next change, but sets that stop
+                        // maintaining it could later have stale levels used if it were turned back on.
+                        if (oldOptions.isVersioned() && !newOptions.isVersioned()) {
+                            throw new MetaDataException("rank versioned changed",
+                                    LogMessageKeys.INDEX_NAME, index.getName());
+                        }
+                        changedOptions.remove(IndexOptions.RANK_VERSIONED);
+                    }
                 }
                 super.validateChangedOptions(oldIndex, changedOptions);
             }
@@ -75,6 +75,10 @@ public class RankedSetIndexHelper {
         if (duplicatesOption != null) {
             builder.setCountDuplicates(Boolean.parseBoolean(duplicatesOption));
         }
+        String versionedOption = index.getOption(IndexOptions.RANK_VERSIONED);
+        if (versionedOption != null) {
+            builder.setVersioned(Boolean.parseBoolean(versionedOption));
+        }
         return builder.build();
     }
 
@@ -294,7 +298,7 @@ public class RankedSetIndexHelper {
         public InstrumentedRankedSet(@Nonnull IndexMaintainerState state,
                                      @Nonnull Subspace rankSubspace,
                                      @Nonnull Config config) {
-            super(rankSubspace, state.context.getExecutor(), config);
+            super(rankSubspace, state.context.getExecutor(), config, state.context.getDatabase().getRankedSetLevelCache());
             this.context = state.context;
         }
 
@@ -0,0 +1,271 @@
+/*
+ * RoaringBitmapEncoding.java
+ *
+ * This source file is part of the FoundationDB open source project
+ *
+ * Copyright 2015-2026 Apple Inc. and the FoundationDB project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.apple.foundationdb.record.provider.foundationdb.indexes;
+
+import com.apple.foundationdb.annotation.API;
+import com.apple.foundationdb.record.RecordCoreException;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+
+/**
+ * Compressed encoding of the position bitmaps of a {@link BitmapValueIndexMaintainer}, after the Roaring bitmap format.
+ *
+ * <p>
+ * The bitmap is split into chunks of {@value #CONTAINER_BITS} bits, keyed by the high bits of the offset. Each
+ * chunk with any bit set is stored as one container of whichever of these kinds is smallest:
+ * </p>
+ * <ul>
+ *     <li>an <em>array</em> of the sorted low bits of the offsets that are set, for sparse chunks;</li>
+ *     <li>a <em>bitset</em>, that is the raw bytes of the chunk up to the last one that is not zero, for dense chunks;</li>
+ *     <li>a list of <em>runs</em> of consecutive offsets that are set, for clustered chunks.</li>
+ * </ul>
+ *
+ * <p>
+ * The encoded form is only used when it is strictly shorter than the raw bitmap, which always has the same length
+ * for a given entry size. So a value of exactly that length is a raw bitmap.
+ * </p>
+ */
+@API(API.Status.INTERNAL)
+public final class RoaringBitmapEncoding {
+    /**
+     * Number of bits covered by one container.
+     */
+    public static final int CONTAINER_BITS = 1 << 16;
+
+    private static final int CONTAINER_BYTES = CONTAINER_BITS / 8;
+    private static final byte FORMAT_VERSION = 1;
+    private static final byte ARRAY_CONTAINER = 1;
+    private static final byte BITSET_CONTAINER = 2;
+    private static final byte RUN_CONTAINER = 3;
+    // Key and kind of container, followed by a count or length.
+    private static final int CONTAINER_HEADER_SIZE = 5;
+
+    private RoaringBitmapEncoding() {
+    }
+
+    /**
+     * Get the length of a raw bitmap of the given number of bits.
+     * @param entrySize the number of bits
+     * @return the number of bytes in the raw bitmap
+     */
+    public static int rawSize(int entrySize) {
+        return (entrySize + 7) / 8;
+    }
+
+    /**
+     * Get whether a stored value is in the compressed form.
+     * @param value a stored bitmap
+     * @param entrySize the number of bits in the bitmap
+     * @return {@code true} if {@code value} needs to be decoded with {@link #decode}
+     */
+    public static boolean isEncoded(@Nonnull byte[] value, int entrySize) {
+        return value.length != rawSize(entrySize);
+    }
+
+    /**
+     * Encode a raw bitmap.
+     * @param bitmap the raw bitmap
+     * @return the compressed bitmap, or {@code bitmap} itself if compressing it would not make it any shorter
+     */
+    @Nonnull
+    public static byte[] encode(@Nonnull byte[] bitmap) {
+        final int numContainers = (bitmap.length + CONTAINER_BYTES - 1) / CONTAINER_BYTES;
+        final byte[] kinds = new byte[numContainers];
+        int encodedSize = 1;
+        for (int container = 0; container < numContainers; container++) {
+            final int start = container * CONTAINER_BYTES;
+            final int end = Math.min(bitmap.length, start + CONTAINER_BYTES);
+            int cardinality = 0;
+            int runs = 0;
+            int lastNonZero = -1;
+            boolean previousSet = false;
+            for (int i = start; i < end; i++) {
+                final int b = bitmap[i] & 0xFF;
+                if (b != 0) {
+                    cardinality += Integer.bitCount(b);
+                    lastNonZero = i;
+                }
+                // A run starts at each set bit whose predecessor is clear.
+                runs += Integer.bitCount(b & ~((b << 1) | (previousSet ? 1 : 0)));
+                previousSet = (b & 0x80) != 0;
+            }
+            if (cardinality == 0) {
+                continue;
+            }
+            final int arraySize = 2 * cardinality;
+            final int bitsetSize = lastNonZero - start + 1;
+            final int runSize = 4 * runs;
+            final int size;
+            if (runSize <= arraySize && runSize <= bitsetSize) {
+                kinds[container] = RUN_CONTAINER;
+                size = runSize;
+            } else if (arraySize <= bitsetSize) {
+                kinds[container] = ARRAY_CONTAINER;
+                size = arraySize;
+            } else {
+                kinds[container] = BITSET_CONTAINER;
+                size = bitsetSize;
+            }
+            encodedSize += CONTAINER_HEADER_SIZE + size;
+            if (encodedSize >= bitmap.length) {
+                return bitmap;
+            }
+        }
+        final ByteBuffer buffer = ByteBuffer.allocate(encodedSize);
+        buffer.put(FORMAT_VERSION);
+        for (int container = 0; container < numContainers; container++) {
+            if (kinds[container] == 0) {
+                continue;
+            }
+            final int start = container * CONTAINER_BYTES;
+            final int end = Math.min(bitmap.length, start + CONTAINER_BYTES);
+            buffer.putShort((short)container);
+            buffer.put(kinds[container]);
+            switch (kinds[container]) {
+                case ARRAY_CONTAINER:
+                    encodeArray(bitmap, start, end, buffer);
+                    break;
+                case BITSET_CONTAINER:
+                    encodeBitset(bitmap, start, end, buffer);
+                    break;
+                case RUN_CONTAINER:
+                    encodeRuns(bitmap, start, end, buffer);
+                    break;
+                default:
+                    throw new RecordCoreException("unknown container kind")
+                            .addLogInfo("kind", kinds[container]);
+            }
+        }
+        return buffer.array();
+    }
+
+    private static void encodeArray(@Nonnull byte[] bitmap, int start, int end, @Nonnull ByteBuffer buffer) {
+        final int countPosition = buffer.position();
+        buffer.putShort((short)0);
+        int count = 0;
+        for (int i = start; i < end; i++) {
+            int b = bitmap[i] & 0xFF;
+            while (b != 0) {
+                buffer.putShort((short)((i - start) * 8 + Integer.numberOfTrailingZeros(b)));
+                b &= b - 1;
+                count++;
+            }
+        }
+        buffer.putShort(countPosition, (short)count);
+    }
+
+    private static void encodeBitset(@Nonnull byte[] bitmap, int start, int end, @Nonnull ByteBuffer buffer) {
+        int last = end - 1;
+        while (bitmap[last] == 0) {
+            last--;
+        }
+        buffer.putShort((short)(last - start + 1));
+        buffer.put(bitmap, start, last - start + 1);
+    }
+
+    private static void encodeRuns(@Nonnull byte[] bitmap, int start, int end, @Nonnull ByteBuffer buffer) {
+        final int countPosition = buffer.position();
+        buffer.putShort((short)0);
+        int count = 0;
+        int runStart = -1;
+        final int bits = (end - start) * 8;
+        for (int offset = 0; offset <= bits; offset++) {
+            final boolean set = offset < bits && (bitmap[start + offset / 8] & (1 << (offset % 8))) != 0;
+            if (set && runStart < 0) {
+                runStart = offset;
+            } else if (!set && runStart >= 0) {
+                // Lengths are stored less one so that a full container fits.
+                buffer.putShort((short)runStart);
+                buffer.putShort((short)(offset - runStart - 1));
+                runStart = -1;
+                count++;
+            }
+        }
+        buffer.putShort(countPosition, (short)count);
+    }
+
+    /**
+     * Decode a stored bitmap.
+     * @param value the stored bitmap, either raw or compressed
+     * @param entrySize the number of bits in the bitmap
+     * @return the raw bitmap, which is {@code value} itself if that was not compressed
+     */
+    @Nonnull
+    public static byte[] decode(@Nonnull byte[] value, int entrySize) {
+        if (!isEncoded(value, entrySize)) {
+            return value;
+        }
+        final byte[] bitmap = new byte[rawSize(entrySize)];
+        try {
+            final ByteBuffer buffer = ByteBuffer.wrap(value);
+            final byte version = buffer.get();
+            if (version != FORMAT_VERSION) {
+                throw new RecordCoreException("unknown bitmap encoding")
+                        .addLogInfo("version", version);
+            }
+            while (buffer.hasRemaining()) {
+                final int base = (buffer.getShort() & 0xFFFF) * CONTAINER_BITS;
+                final byte kind = buffer.get();
+                final int count = buffer.getShort() & 0xFFFF;
+                switch (kind) {
+                    case ARRAY_CONTAINER:
+                        for (int i = 0; i < count; i++) {
+                            setBit(bitmap, base + (buffer.getShort() & 0xFFFF));
+                        }
+                        break;
+                    case BITSET_CONTAINER:
+                        if (count > CONTAINER_BYTES || base / 8 + count > bitmap.length) {
+                            throw invalid(value, entrySize, null);
+                        }
+                        buffer.get(bitmap, base / 8, count);
+                        break;
+                    case RUN_CONTAINER:
+                        for (int i = 0; i < count; i++) {
+                            final int runStart = base + (buffer.getShort() & 0xFFFF);
+                            final int runLength = (buffer.getShort() & 0xFFFF) + 1;
+                            for (int offset = runStart; offset < runStart + runLength; offset++) {
+                                setBit(bitmap, offset);
+                            }
+                        }
+                        break;
+                    default:
+                        throw invalid(value, entrySize, null);
+                }
+            }
+        } catch (BufferUnderflowException | ArrayIndexOutOfBoundsException ex) {
+            throw invalid(value, entrySize, ex);
+        }
+        return bitmap;
+    }
+
+    private static void setBit(@Nonnull byte[] bitmap, int offset) {
+        bitmap[offset / 8] |= (byte)(1 << (offset % 8));
+    }
+
+    @Nonnull
+    private static RecordCoreException invalid(@Nonnull byte[] value, int entrySize, @Nullable Throwable cause) {
+        return new RecordCoreException("invalid compressed bitmap", cause)
+                .addLogInfo("length", value.length, "entrySize", entrySize);
+    }
+}
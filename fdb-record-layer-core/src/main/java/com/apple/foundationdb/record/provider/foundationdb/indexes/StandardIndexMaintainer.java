@@ -65,6 +65,7 @@ import com.apple.foundationdb.record.provider.foundationdb.IndexOperationResult;
 import com.apple.foundationdb.record.provider.foundationdb.IndexPrefetchRangeKeyValueCursor;
 import com.apple.foundationdb.record.provider.foundationdb.IndexScanBounds;
 import com.apple.foundationdb.record.provider.foundationdb.IndexScanRange;
+import com.apple.foundationdb.record.provider.foundationdb.IndexingSubspaces;
 import com.apple.foundationdb.record.provider.foundationdb.KeyValueCursor;
 import com.apple.foundationdb.record.provider.foundationdb.indexing.IndexingRangeSet;
 import com.apple.foundationdb.record.query.QueryToKeyMatcher;
@@ -90,6 +91,7 @@ import java.util.function.Function;
 import java.util.stream.Collectors;
 
 import static com.apple.foundationdb.record.provider.foundationdb.SplitHelper.unpackKey;
+import static com.apple.foundationdb.record.provider.foundationdb.SplitHelper.unpackKeyLazily;
 
 /**
  * Base class for {@link IndexMaintainer} implementation.
@@ -185,12 +187,12 @@ public abstract class StandardIndexMaintainer extends IndexMaintainer {
      */
     @Nonnull
     protected IndexEntry unpackKeyValue(@Nonnull final Subspace subspace, @Nonnull final KeyValue kv) {
-        return new IndexEntry(state.index, unpackKey(subspace, kv), decodeValue(kv.getValue()));
+        return new IndexEntry(state.index, unpackKeyLazily(subspace, kv), decodeValue(kv.getValue()));
     }
 
     @Nonnull
     protected FDBIndexedRawRecord unpackRemoteFetchRecord(@Nonnull MappedKeyValue indexKeyValue) {
-        IndexEntry indexEntry = new IndexEntry(state.index, unpackKey(state.indexSubspace, indexKeyValue), decodeValue(indexKeyValue.getValue()));
+        IndexEntry indexEntry = new IndexEntry(state.index, unpackKeyLazily(state.indexSubspace, indexKeyValue), decodeValue(indexKeyValue.getValue()));
         return new FDBIndexedRawRecord(indexEntry, indexKeyValue);
     }
 
@@ -256,7 +258,7 @@ public abstract class StandardIndexMaintainer extends IndexMaintainer {
             // Idempotent indexes can just update the index data structures directly
             return update(oldRecord, newRecord);
         }
-        return state.store.loadIndexingTypeStampAsync(state.index).thenCompose(stamp -> {
+        return state.store.loadCachedIndexingTypeStampAsync(state.index).thenCompose(stamp -> {
             if (stamp == null) {
                 // Either the index build has not started (in which case the record should not be
                 // indexed) or this is a by-records build that did not write the stamp, which can
@@ -287,6 +289,29 @@ public abstract class StandardIndexMaintainer extends IndexMaintainer {
                 inRange ? update(oldRecord, newRecord) : AsyncUtil.DONE);
     }
 
+    /**
+     * Update a write-only index that is being built by a bulk sorted build. Such a build writes the entries of each
+     * record as of when it was scanned, which may be after or before this update. So the index is updated as usual,
+     * and, until the build is complete, the primary key of the record is also noted in the
+     * {@linkplain IndexingSubspaces#indexBuildChangedRecordsSubspace changed records subspace}, so that the build can
+     * replace any stale entries it wrote for it. This is only correct for idempotent indexes.
+     * @param oldRecord the previous stored record or {@code null} if a new record is being created
+     * @param newRecord the new record or {@code null} if an old record is being deleted
+     * @param <M> type of message
+     * @return a future that is complete when the record update is done
+     */
+    @Nonnull
+    protected <M extends Message> CompletableFuture<Void> updateWriteOnlyBulkSorted(@Nullable final FDBIndexableRecord<M> oldRecord, @Nullable final FDBIndexableRecord<M> newRecord) {
+        Tuple primaryKey = oldRecord == null ? Verify.verifyNotNull(newRecord).getPrimaryKey() : oldRecord.getPrimaryKey();
+        return addedRangeWithKey(primaryKey).thenCompose(inRange -> {
+            if (!inRange) {
+                final Subspace changedRecordsSubspace = IndexingSubspaces.indexBuildChangedRecordsSubspace(state.store, state.index);
+                state.transaction.set(changedRecordsSubspace.pack(primaryKey), new byte[0]);
+            }
+            return update(oldRecord, newRecord);
+        });
+    }
+
     @SuppressWarnings("java:S3776") // Trying to simplify this method cognitive complexity seems to make it harder to follow
     private <M extends Message> CompletableFuture<Void> updateWriteOnlyByIndex(@Nonnull Index sourceIndex, @Nullable final FDBIndexableRecord<M> oldRecord, @Nullable final FDBIndexableRecord<M> newRecord) {
         IndexMaintainer sourceIndexMaintainer = state.store.getIndexMaintainer(sourceIndex);
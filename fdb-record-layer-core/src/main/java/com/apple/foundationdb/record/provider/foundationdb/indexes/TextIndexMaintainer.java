@@ -24,6 +24,7 @@ import com.apple.foundationdb.annotation.API;
 import com.apple.foundationdb.KeyValue;
 import com.apple.foundationdb.Range;
 import com.apple.foundationdb.async.AsyncUtil;
+import com.apple.foundationdb.async.MoreAsyncUtil;
 import com.apple.foundationdb.map.BunchedMap;
 import com.apple.foundationdb.map.BunchedMapMultiIterator;
 import com.apple.foundationdb.record.ByteScanLimiter;
@@ -56,6 +57,7 @@ import com.apple.foundationdb.record.provider.foundationdb.IndexMaintainerState;
 import com.apple.foundationdb.record.query.QueryToKeyMatcher;
 import com.apple.foundationdb.record.query.expressions.QueryComponent;
 import com.apple.foundationdb.record.util.pair.NonnullPair;
+import com.apple.foundationdb.record.util.pair.Pair;
 import com.apple.foundationdb.subspace.Subspace;
 import com.apple.foundationdb.tuple.ByteArrayUtil2;
 import com.apple.foundationdb.tuple.Tuple;
@@ -67,10 +69,14 @@ import org.slf4j.LoggerFactory;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.SortedSet;
+import java.util.TreeSet;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionStage;
 import java.util.concurrent.Executor;
@@ -279,6 +285,17 @@ public class TextIndexMaintainer extends StandardIndexMaintainer {
         return NonnullPair.of(keySize, valueSize);
     }
 
+    private void addAggressiveConflictRange(@Nullable Tuple groupingKey) {
+        // Add a read and write conflict range over the whole index to decrease the number of mutations
+        // sent to the resolver. In theory, this will increase the number of conflicts in that if two
+        // records with the same grouping key come in at the same time, then they will now definitely
+        // conflict. However, this isn't too bad because there is already a high chance of conflict
+        // in the text index because each token insert has to do a read on its own.
+        final Range indexRange = groupingKey == null ? state.indexSubspace.range() : state.indexSubspace.range(groupingKey);
+        state.context.ensureActive().addReadConflictRange(indexRange.begin, indexRange.end);
+        state.context.ensureActive().addWriteConflictRange(indexRange.begin, indexRange.end);
+    }
+
     @Nonnull
     private <M extends Message> CompletableFuture<Void> updateOneKeyAsync(@Nonnull FDBIndexableRecord<M> savedRecord,
                                                                           final boolean remove,
@@ -298,26 +315,7 @@ public class TextIndexMaintainer extends StandardIndexMaintainer {
         final Map<String, List<Integer>> positionMap = tokenizer.tokenizeToMap(text, recordTokenizerVersion, TextTokenizer.TokenizerMode.INDEX);
         final StoreTimer.Event indexUpdateEvent = remove ? FDBStoreTimer.Events.DELETE_INDEX_ENTRY : FDBStoreTimer.Events.SAVE_INDEX_ENTRY;
         if (LOGGER.isDebugEnabled()) {
-            final NonnullPair<Integer, Integer> estimatedSize = estimateSize(groupingKey, positionMap, groupedKey);
-            KeyValueLogMessage msg = KeyValueLogMessage.build("performed text tokenization",
-                                        LogMessageKeys.REMOVE, remove,
-                                        LogMessageKeys.TEXT_SIZE, text.length(),
-                                        LogMessageKeys.UNIQUE_TOKENS, positionMap.size(),
-                                        LogMessageKeys.AVG_TOKEN_SIZE, positionMap.keySet().stream().mapToInt(String::length).sum() * 1.0 / positionMap.size(),
-                                        LogMessageKeys.MAX_TOKEN_SIZE, positionMap.keySet().stream().mapToInt(String::length).max().orElse(0),
-                                        LogMessageKeys.AVG_POSITIONS, positionMap.values().stream().mapToInt(List::size).sum() * 1.0 / positionMap.size(),
-                                        LogMessageKeys.MAX_POSITIONS, positionMap.values().stream().mapToInt(List::size).max().orElse(0),
-                                        LogMessageKeys.TEXT_KEY_SIZE, estimatedSize.getKey(),
-                                        LogMessageKeys.TEXT_VALUE_SIZE, estimatedSize.getValue(),
-                                        LogMessageKeys.TEXT_INDEX_SIZE_AMORTIZED, estimatedSize.getKey() / 10 + estimatedSize.getValue(),
-                                        IndexOptions.TEXT_TOKENIZER_NAME_OPTION, tokenizer.getName(),
-                                        IndexOptions.TEXT_TOKENIZER_VERSION_OPTION, recordTokenizerVersion,
-                                        IndexOptions.TEXT_ADD_AGGRESSIVE_CONFLICT_RANGES_OPTION, addAggressiveConflictRanges,
-                                        LogMessageKeys.PRIMARY_KEY, savedRecord.getPrimaryKey(),
-                                        LogMessageKeys.SUBSPACE, ByteArrayUtil2.loggable(state.store.getSubspace().getKey()),
-                                        LogMessageKeys.INDEX_SUBSPACE, ByteArrayUtil2.loggable(state.indexSubspace.getKey()),
-                                        LogMessageKeys.WROTE_INDEX, true);
-            LOGGER.debug(msg.toString());
+            logTokenization(savedRecord, remove, text, positionMap, groupingKey, groupedKey, recordTokenizerVersion);
         }
         if (positionMap.isEmpty()) {
             if (state.store.getTimer() != null) {
@@ -326,14 +324,7 @@ public class TextIndexMaintainer extends StandardIndexMaintainer {
             return AsyncUtil.DONE;
         }
         if (addAggressiveConflictRanges) {
-            // Add a read and write conflict range over the whole index to decrease the number of mutations
-            // sent to the resolver. In theory, this will increase the number of conflicts in that if two
-            // records with the same grouping key come in at the same time, then they will now definitely
-            // conflict. However, this isn't too bad because there is already a high chance of conflict
-            // in the text index because each token insert has to do a read on its own.
-            final Range indexRange = groupingKey == null ? state.indexSubspace.range() : state.indexSubspace.range(groupingKey);
-            state.context.ensureActive().addReadConflictRange(indexRange.begin, indexRange.end);
-            state.context.ensureActive().addWriteConflictRange(indexRange.begin, indexRange.end);
+            addAggressiveConflictRange(groupingKey);
         }
         final BunchedMap<Tuple, List<Integer>> bunchedMap = getBunchedMap(state.context);
         CompletableFuture<Void> tokenInsertFuture = RecordCursor.fromIterator(state.context.getExecutor(), positionMap.entrySet().iterator())
@@ -359,6 +350,32 @@ public class TextIndexMaintainer extends StandardIndexMaintainer {
         }
     }
 
+    private <M extends Message> void logTokenization(@Nonnull FDBIndexableRecord<M> savedRecord, boolean remove,
+                                                     @Nonnull String text, @Nonnull Map<String, List<Integer>> positionMap,
+                                                     @Nullable Tuple groupingKey, @Nonnull Tuple groupedKey,
+                                                     int recordTokenizerVersion) {
+        final NonnullPair<Integer, Integer> estimatedSize = estimateSize(groupingKey, positionMap, groupedKey);
+        KeyValueLogMessage msg = KeyValueLogMessage.build("performed text tokenization",
+                                    LogMessageKeys.REMOVE, remove,
+                                    LogMessageKeys.TEXT_SIZE, text.length(),
+                                    LogMessageKeys.UNIQUE_TOKENS, positionMap.size(),
+                                    LogMessageKeys.AVG_TOKEN_SIZE, positionMap.keySet().stream().mapToInt(String::length).sum() * 1.0 / positionMap.size(),
+                                    LogMessageKeys.MAX_TOKEN_SIZE, positionMap.keySet().stream().mapToInt(String::length).max().orElse(0),
+                                    LogMessageKeys.AVG_POSITIONS, positionMap.values().stream().mapToInt(List::size).sum() * 1.0 / positionMap.size(),
+                                    LogMessageKeys.MAX_POSITIONS, positionMap.values().stream().mapToInt(List::size).max().orElse(0),
+                                    LogMessageKeys.TEXT_KEY_SIZE, estimatedSize.getKey(),
+                                    LogMessageKeys.TEXT_VALUE_SIZE, estimatedSize.getValue(),
+                                    LogMessageKeys.TEXT_INDEX_SIZE_AMORTIZED, estimatedSize.getKey() / 10 + estimatedSize.getValue(),
+                                    IndexOptions.TEXT_TOKENIZER_NAME_OPTION, tokenizer.getName(),
+                                    IndexOptions.TEXT_TOKENIZER_VERSION_OPTION, recordTokenizerVersion,
+                                    IndexOptions.TEXT_ADD_AGGRESSIVE_CONFLICT_RANGES_OPTION, addAggressiveConflictRanges,
+                                    LogMessageKeys.PRIMARY_KEY, savedRecord.getPrimaryKey(),
+                                    LogMessageKeys.SUBSPACE, ByteArrayUtil2.loggable(state.store.getSubspace().getKey()),
+                                    LogMessageKeys.INDEX_SUBSPACE, ByteArrayUtil2.loggable(state.indexSubspace.getKey()),
+                                    LogMessageKeys.WROTE_INDEX, true);
+        LOGGER.debug(msg.toString());
+    }
+
     @Nonnull
     private <M extends Message> CompletableFuture<Void> updateIndexKeys(@Nonnull final FDBIndexableRecord<M> savedRecord,
                                                                         final boolean remove,
@@ -485,6 +502,158 @@ public class TextIndexMaintainer extends StandardIndexMaintainer {
         }
     }
 
+    /**
+     * Update the index for a batch of changed records. Rather than inserting each token of each record separately,
+     * which reads and re-writes a bunch of the token's map once for every record with that token, the postings of all
+     * the records are first gathered by token. Each token's map is then updated with {@link BunchedMap#removeAll} and
+     * {@link BunchedMap#putAll}, which read and re-write each affected bunch only once. The tokenizer version of each
+     * record is maintained in the same way as by {@link #update}.
+     *
+     * @param updates pairs of the previous stored record and the new record
+     * @param <M> type of message
+     * @return a future that is complete when all the index updates are done
+     */
+    @Nonnull
+    @Override
+    public <M extends Message> CompletableFuture<Void> updateBatch(@Nonnull List<Pair<FDBIndexableRecord<M>, FDBIndexableRecord<M>>> updates) {
+        if (updates.size() < 2 || state.store.isIndexWriteOnly(state.index)) {
+            return super.updateBatch(updates);
+        }
+        final List<CompletableFuture<Integer>> recordTokenizerVersions = new ArrayList<>(updates.size());
+        for (Pair<FDBIndexableRecord<M>, FDBIndexableRecord<M>> update : updates) {
+            final FDBIndexableRecord<M> oldRecord = update.getLeft();
+            recordTokenizerVersions.add(oldRecord == null ? CompletableFuture.completedFuture(tokenizerVersion) : getRecordTokenizerVersion(oldRecord.getPrimaryKey()));
+        }
+        return AsyncUtil.getAll(recordTokenizerVersions).thenCompose(versions -> {
+            final int textPosition = textFieldPosition(state.index.getRootExpression());
+            final Map<Tuple, Map<Tuple, List<Integer>>> removedPostings = new HashMap<>();
+            final Map<Tuple, Map<Tuple, List<Integer>>> addedPostings = new HashMap<>();
+            final List<Long> removedStartTimes = new ArrayList<>();
+            final List<Long> addedStartTimes = new ArrayList<>();
+            for (int i = 0; i < updates.size(); i++) {
+                final FDBIndexableRecord<M> oldRecord = updates.get(i).getLeft();
+                final FDBIndexableRecord<M> newRecord = updates.get(i).getRight();
+                final int recordTokenizerVersion = versions.get(i);
+                List<IndexEntry> oldIndexEntries = filteredIndexEntries(oldRecord);
+                List<IndexEntry> newIndexEntries = filteredIndexEntries(newRecord);
+                if (oldIndexEntries != null && newIndexEntries != null && recordTokenizerVersion == tokenizerVersion) {
+                    // As in update, a record is only re-indexed entirely if its tokenizer version changed.
+                    final List<IndexEntry> commonKeys = commonKeys(oldIndexEntries, newIndexEntries);
+                    if (!commonKeys.isEmpty()) {
+                        oldIndexEntries = makeMutable(oldIndexEntries);
+                        oldIndexEntries.removeAll(commonKeys);
+                        newIndexEntries = makeMutable(newIndexEntries);
+                        newIndexEntries.removeAll(commonKeys);
+                    }
+                }
+                if (oldRecord != null && oldIndexEntries != null) {
+                    for (IndexEntry entry : oldIndexEntries) {
+                        addPostings(oldRecord, true, entry, textPosition, recordTokenizerVersion, removedPostings, removedStartTimes);
+                    }
+                }
+                if (newRecord != null) {
+                    if (newIndexEntries != null) {
+                        for (IndexEntry entry : newIndexEntries) {
+                            addPostings(newRecord, false, entry, textPosition, tokenizerVersion, addedPostings, addedStartTimes);
+                        }
+                    }
+                    if (oldRecord == null || recordTokenizerVersion != tokenizerVersion) {
+                        writeRecordTokenizerVersion(newRecord.getPrimaryKey());
+                    }
+                } else if (oldRecord != null) {
+                    clearRecordTokenizerVersion(oldRecord.getPrimaryKey());
+                }
+            }
+            return instrumentPostings(updatePostings(removedPostings, addedPostings), removedStartTimes, addedStartTimes);
+        });
+    }
+
+    // Tokenize the text of one index entry and add its postings to those for each token's map.
+    // The time at which the entry started being updated is added to startTimes for instrumentPostings.
+    private <M extends Message> void addPostings(@Nonnull FDBIndexableRecord<M> savedRecord, final boolean remove,
+                                                 @Nonnull IndexEntry entry, int textPosition, int recordTokenizerVersion,
+                                                 @Nonnull Map<Tuple, Map<Tuple, List<Integer>>> postings,
+                                                 @Nonnull List<Long> startTimes) {
+        long startTime = System.nanoTime();
+        final Tuple indexEntryKey = indexEntryKey(entry.getKey(), savedRecord.getPrimaryKey());
+        final String text = indexEntryKey.getString(textPosition);
+        if (text == null || text.isEmpty()) {
+            return;
+        }
+        final Tuple groupingKey = (textPosition == 0) ? null : TupleHelpers.subTuple(indexEntryKey, 0, textPosition);
+        final Tuple groupedKey = TupleHelpers.subTuple(indexEntryKey, textPosition + 1, indexEntryKey.size());
+        final Map<String, List<Integer>> positionMap = tokenizer.tokenizeToMap(text, recordTokenizerVersion, TextTokenizer.TokenizerMode.INDEX);
+        if (LOGGER.isDebugEnabled()) {
+            logTokenization(savedRecord, remove, text, positionMap, groupingKey, groupedKey, recordTokenizerVersion);
+        }
+        if (positionMap.isEmpty()) {
+            if (state.store.getTimer() != null) {
+                state.store.getTimer().recordSinceNanoTime(remove ? FDBStoreTimer.Events.DELETE_INDEX_ENTRY : FDBStoreTimer.Events.SAVE_INDEX_ENTRY, startTime);
+            }
+            return;
+        }
+        startTimes.add(startTime);
+        if (addAggressiveConflictRanges) {
+            addAggressiveConflictRange(groupingKey);
+        }
+        for (Map.Entry<String, List<Integer>> tokenEntry : positionMap.entrySet()) {
+            final Tuple subspaceTuple = groupingKey == null ? Tuple.from(tokenEntry.getKey()) : groupingKey.add(tokenEntry.getKey());
+            final List<Integer> value = omitPositionLists ? Collections.emptyList() : tokenEntry.getValue();
+            postings.computeIfAbsent(subspaceTuple, ignore -> new HashMap<>()).put(groupedKey, value);
+        }
+    }
+
+    // As in updateOneKeyAsync, each index entry counts as one save or delete, lasting from when it started being
+    // updated until its postings have been written.
+    @Nonnull
+    private CompletableFuture<Void> instrumentPostings(@Nonnull CompletableFuture<Void> postingsFuture,
+                                                       @Nonnull List<Long> removedStartTimes,
+                                                       @Nonnull List<Long> addedStartTimes) {
+        final FDBStoreTimer timer = state.store.getTimer();
+        if (timer == null) {
+            return postingsFuture;
+        }
+        CompletableFuture<Void> future = postingsFuture;
+        for (long startTime : removedStartTimes) {
+            future = timer.instrument(FDBStoreTimer.Events.DELETE_INDEX_ENTRY, future, state.context.getExecutor(), startTime);
+        }
+        for (long startTime : addedStartTimes) {
+            future = timer.instrument(FDBStoreTimer.Events.SAVE_INDEX_ENTRY, future, state.context.getExecutor(), startTime);
+        }
+        return future;
+    }
+
+    @Nonnull
+    private CompletableFuture<Void> updatePostings(@Nonnull Map<Tuple, Map<Tuple, List<Integer>>> removedPostings,
+                                                   @Nonnull Map<Tuple, Map<Tuple, List<Integer>>> addedPostings) {
+        final SortedSet<Tuple> subspaceTuples = new TreeSet<>(removedPostings.keySet());
+        subspaceTuples.addAll(addedPostings.keySet());
+        final BunchedMap<Tuple, List<Integer>> bunchedMap = getBunchedMap(state.context);
+        return RecordCursor.fromIterator(state.context.getExecutor(), subspaceTuples.iterator())
+                .forEachAsync(subspaceTuple -> {
+                    final Subspace mapSubspace = state.indexSubspace.subspace(subspaceTuple);
+                    final Map<Tuple, List<Integer>> removed = removedPostings.get(subspaceTuple);
+                    final Map<Tuple, List<Integer>> added = addedPostings.get(subspaceTuple);
+                    CompletableFuture<Void> future = AsyncUtil.DONE;
+                    if (removed != null) {
+                        if (added != null) {
+                            // Putting these will replace their old values anyway.
+                            removed.keySet().removeAll(added.keySet());
+                        }
+                        future = bunchedMap.removeAll(state.transaction, mapSubspace, removed.keySet());
+                    }
+                    if (added != null) {
+                        // Modifications to the same map must be done one after the other.
+                        if (MoreAsyncUtil.isCompletedNormally(future)) {
+                            future = bunchedMap.putAll(state.transaction, mapSubspace, added);
+                        } else {
+                            future = future.thenCompose(vignore -> bunchedMap.putAll(state.transaction, mapSubspace, added));
+                        }
+                    }
+                    return future;
+                }, state.store.getPipelineSize(PipelineOperation.TEXT_INDEX_UPDATE));
+    }
+
     /**
      * Indicates whether the expression allows for this index to perform a {@link FDBRecordStore#deleteRecordsWhere(QueryComponent)}
      * operation. A text index can only delete records that are aligned with its grouping key, as
@@ -21,8 +21,11 @@
 package com.apple.foundationdb.record.provider.foundationdb.indexes;
 
 import com.apple.foundationdb.annotation.API;
+import com.apple.foundationdb.async.AsyncUtil;
+import com.apple.foundationdb.async.MoreAsyncUtil;
 import com.apple.foundationdb.record.ExecuteProperties;
 import com.apple.foundationdb.record.FunctionNames;
+import com.apple.foundationdb.record.IndexBuildProto;
 import com.apple.foundationdb.record.IndexEntry;
 import com.apple.foundationdb.record.IndexScanType;
 import com.apple.foundationdb.record.IsolationLevel;
@@ -35,15 +38,20 @@ import com.apple.foundationdb.record.metadata.IndexAggregateFunction;
 import com.apple.foundationdb.record.metadata.MetaDataException;
 import com.apple.foundationdb.record.metadata.expressions.GroupingKeyExpression;
 import com.apple.foundationdb.record.metadata.expressions.KeyExpression;
+import com.apple.foundationdb.record.provider.foundationdb.FDBIndexableRecord;
 import com.apple.foundationdb.record.provider.foundationdb.FDBIndexedRawRecord;
 import com.apple.foundationdb.record.provider.foundationdb.IndexMaintainerState;
 import com.apple.foundationdb.record.provider.foundationdb.IndexScanBounds;
 import com.apple.foundationdb.record.provider.foundationdb.IndexScrubbingTools;
+import com.apple.foundationdb.record.util.pair.Pair;
 import com.apple.foundationdb.tuple.Tuple;
 import com.apple.foundationdb.tuple.TupleHelpers;
+import com.google.protobuf.Message;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.CompletableFuture;
 
 /**
@@ -69,6 +77,50 @@ public class ValueIndexMaintainer extends StandardIndexMaintainer {
         return scan(range, continuation, scanProperties);
     }
 
+    /**
+     * Update a write-only index. If the index is being built by a bulk sorted build, changed records are noted
+     * so that the build can fix any entries it wrote for them, as described in {@link #updateWriteOnlyBulkSorted}.
+     * @param oldRecord the previous stored record or {@code null} if a new record is being created
+     * @param newRecord the new record or {@code null} if an old record is being deleted
+     * @param <M> type of message
+     * @return a future that is complete when the record update is done
+     */
+    @Nonnull
+    @Override
+    public <M extends Message> CompletableFuture<Void> updateWhileWriteOnly(@Nullable final FDBIndexableRecord<M> oldRecord, @Nullable final FDBIndexableRecord<M> newRecord) {
+        return state.store.loadCachedIndexingTypeStampAsync(state.index).thenCompose(stamp -> {
+            if (stamp != null && stamp.getMethod() == IndexBuildProto.IndexBuildIndexingStamp.Method.BULK_SORTED_BY_RECORDS) {
+                return updateWriteOnlyBulkSorted(oldRecord, newRecord);
+            }
+            return super.updateWhileWriteOnly(oldRecord, newRecord);
+        });
+    }
+
+    /**
+     * Update the index for a batch of changed records.
+     * Entries are only ever set or cleared, so the updates do not depend on one another and can all be issued
+     * without waiting for any uniqueness checks. That is, unless uniqueness violations are being recorded instead,
+     * in which case the updates are done one after the other as usual.
+     * @param updates pairs of the previous stored record and the new record
+     * @param <M> type of message
+     * @return a future that is complete when all the index updates are done
+     */
+    @Nonnull
+    @Override
+    public <M extends Message> CompletableFuture<Void> updateBatch(@Nonnull List<Pair<FDBIndexableRecord<M>, FDBIndexableRecord<M>>> updates) {
+        if (state.store.isIndexWriteOnly(state.index) || state.store.isIndexReadableUniquePending(state.index)) {
+            return super.updateBatch(updates);
+        }
+        final List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (Pair<FDBIndexableRecord<M>, FDBIndexableRecord<M>> update : updates) {
+            final CompletableFuture<Void> future = update(update.getLeft(), update.getRight());
+            if (!MoreAsyncUtil.isCompletedNormally(future)) {
+                futures.add(future);
+            }
+        }
+        return futures.isEmpty() ? AsyncUtil.DONE : AsyncUtil.whenAll(futures);
+    }
+
     /**
      * Validate entries in the index. It scans the index and checks if the record associated with each index entry exists.
      * @param continuation any continuation from a previous validation invocation
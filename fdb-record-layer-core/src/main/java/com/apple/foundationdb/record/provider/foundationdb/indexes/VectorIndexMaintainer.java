@@ -32,6 +32,7 @@ import com.apple.foundationdb.async.hnsw.NodeReference;
 import com.apple.foundationdb.async.hnsw.OnReadListener;
 import com.apple.foundationdb.async.hnsw.OnWriteListener;
 import com.apple.foundationdb.async.hnsw.ResultEntry;
+import com.apple.foundationdb.async.hnsw.UpperLayerCache;
 import com.apple.foundationdb.linear.RealVector;
 import com.apple.foundationdb.record.CursorStreamingMode;
 import com.apple.foundationdb.record.EndpointType;
@@ -80,6 +81,7 @@ import java.util.Objects;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
 import java.util.function.Function;
+import java.util.function.Predicate;
 
 /**
  * An index maintainer for keeping an {@link HNSW}.
@@ -99,6 +101,21 @@ public class VectorIndexMaintainer extends StandardIndexMaintainer {
         return config;
     }
 
+    /**
+     * Get the cache of the upper layers of the graph in the given subspace from the database's
+     * {@link VectorIndexUpperLayerCaches}, if there are any.
+     * @param hnswSubspace the subspace of the graph
+     * @return the cache for the graph at the current version of the index or {@code null} if there is none
+     */
+    @Nullable
+    private UpperLayerCache getUpperLayerCache(@Nonnull final Subspace hnswSubspace) {
+        final VectorIndexUpperLayerCaches upperLayerCaches =
+                state.context.getDatabase().getVectorIndexUpperLayerCaches();
+        return upperLayerCaches == null
+               ? null
+               : upperLayerCaches.getCache(hnswSubspace, state.index.getLastModifiedVersion());
+    }
+
     /**
      * Scan the vector index.
      * @param scanBounds the {@link VectorIndexScanBounds bounds} of the scan to perform
@@ -197,7 +214,7 @@ public class VectorIndexMaintainer extends StandardIndexMaintainer {
         }
 
         final HNSW hnsw = new HNSW(hnswSubspace, getExecutor(), getConfig(),
-                OnWriteListener.NOOP, new OnRead(timer));
+                OnWriteListener.NOOP, new OnRead(timer), getUpperLayerCache(hnswSubspace));
         final ReadTransaction transaction =
                 state.context.readTransaction(scanProperties.getExecuteProperties().getIsolationLevel().isSnapshot());
         return new LazyCursor<>(
@@ -218,9 +235,22 @@ public class VectorIndexMaintainer extends StandardIndexMaintainer {
                                    @Nonnull final HNSW hnsw,
                                    @Nonnull final ReadTransaction transaction,
                                    @Nonnull final VectorIndexScanBounds vectorIndexScanBounds) {
-        return hnsw.kNearestNeighborsSearch(transaction, vectorIndexScanBounds.getAdjustedLimit(),
-                        efSearch(vectorIndexScanBounds), returnVectors(hnsw.getConfig(), vectorIndexScanBounds),
-                        Objects.requireNonNull(vectorIndexScanBounds.getQueryVector()))
+        final int k = vectorIndexScanBounds.getAdjustedLimit();
+        final int efSearch = efSearch(vectorIndexScanBounds);
+        final boolean returnVectors = returnVectors(hnsw.getConfig(), vectorIndexScanBounds);
+        final RealVector queryVector = Objects.requireNonNull(vectorIndexScanBounds.getQueryVector());
+        final Predicate<Tuple> primaryKeyFilter = vectorIndexScanBounds.getPrimaryKeyFilter();
+        final CompletableFuture<List<? extends ResultEntry>> resultEntriesFuture;
+        if (primaryKeyFilter == null) {
+            resultEntriesFuture = hnsw.kNearestNeighborsSearch(transaction, k, efSearch, returnVectors, queryVector);
+        } else {
+            // the graph only knows the primary keys without the grouping prefix
+            resultEntriesFuture = hnsw.kNearestNeighborsSearch(transaction, k, efSearch,
+                    maxEfSearch(vectorIndexScanBounds, efSearch), returnVectors, queryVector,
+                    primaryKey -> primaryKeyFilter.test(
+                            state.index.getEntryPrimaryKey(indexEntryKey(prefixTuple, primaryKey))));
+        }
+        return resultEntriesFuture
                 .thenApply(resultEntries -> {
                     final ImmutableList.Builder<IndexEntry> nearestNeighborEntriesBuilder = ImmutableList.builder();
                     for (final ResultEntry nearestNeighbor : resultEntries) {
@@ -240,18 +270,23 @@ public class VectorIndexMaintainer extends StandardIndexMaintainer {
 
     @Nonnull
     private IndexEntry toIndexEntry(@Nullable final Tuple prefixTuple, @Nonnull final ResultEntry resultEntry) {
-        final List<Object> keyItems = Lists.newArrayList();
-        if (prefixTuple != null) {
-            keyItems.addAll(prefixTuple.getItems());
-        }
-        keyItems.addAll(resultEntry.getPrimaryKey().getItems());
         final List<Object> valueItems = Lists.newArrayList();
         final RealVector vector = resultEntry.getVector();
         valueItems.add(vector == null ? null : resultEntry.getVector().getRawData());
-        return new IndexEntry(state.index, Tuple.fromList(keyItems),
+        return new IndexEntry(state.index, indexEntryKey(prefixTuple, resultEntry.getPrimaryKey()),
                 Tuple.fromList(valueItems));
     }
 
+    @Nonnull
+    private static Tuple indexEntryKey(@Nullable final Tuple prefixTuple, @Nonnull final Tuple primaryKey) {
+        final List<Object> keyItems = Lists.newArrayList();
+        if (prefixTuple != null) {
+            keyItems.addAll(prefixTuple.getItems());
+        }
+        keyItems.addAll(primaryKey.getItems());
+        return Tuple.fromList(keyItems);
+    }
+
     @Nonnull
     @Override
     public RecordCursor<IndexEntry> scan(@Nonnull final IndexScanType scanType, @Nonnull final TupleRange range,
@@ -344,7 +379,8 @@ public class VectorIndexMaintainer extends StandardIndexMaintainer {
             final Tuple trimmedPrimaryKey = Tuple.fromList(primaryKeyParts);
             final FDBStoreTimer timer = Objects.requireNonNull(getTimer());
             final HNSW hnsw =
-                    new HNSW(rtSubspace, getExecutor(), getConfig(), new OnWrite(timer), OnReadListener.NOOP);
+                    new HNSW(rtSubspace, getExecutor(), getConfig(), new OnWrite(timer), OnReadListener.NOOP,
+                            getUpperLayerCache(rtSubspace));
             if (remove) {
                 return hnsw.delete(state.transaction, trimmedPrimaryKey);
             } else {
@@ -389,6 +425,16 @@ public class VectorIndexMaintainer extends StandardIndexMaintainer {
         return Math.min(Math.max(4 * k, 64), Math.max(k, 400));
     }
 
+    private int maxEfSearch(@Nonnull final VectorIndexScanBounds scanBounds, final int efSearch) {
+        final VectorIndexScanOptions scanOptions = scanBounds.getVectorIndexScanOptions();
+        final Integer maxEfSearchOptionValue = scanOptions.getOption(VectorIndexScanOptions.HNSW_MAX_EF_SEARCH);
+        if (maxEfSearchOptionValue != null) {
+            return Math.max(maxEfSearchOptionValue, efSearch);
+        }
+        // a filtered search may widen its beam a few times before giving up on finding k matches
+        return 8 * efSearch;
+    }
+
     private boolean returnVectors(@Nonnull final Config config, @Nonnull final VectorIndexScanBounds scanBounds) {
         final VectorIndexScanOptions scanOptions = scanBounds.getVectorIndexScanOptions();
         final Boolean returnVectorsValue = scanOptions.getOption(VectorIndexScanOptions.HNSW_RETURN_VECTORS);
@@ -0,0 +1,118 @@
+/*
+ * VectorIndexUpperLayerCaches.java
+ *
+ * This source file is part of the FoundationDB open source project
+ *
+ * Copyright 2015-2026 Apple Inc. and the FoundationDB project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.apple.foundationdb.record.provider.foundationdb.indexes;
+
+import com.apple.foundationdb.annotation.API;
+import com.apple.foundationdb.async.hnsw.UpperLayerCache;
+import com.apple.foundationdb.subspace.Subspace;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * The {@link UpperLayerCache}s of the HNSW graphs of {@link com.apple.foundationdb.record.metadata.IndexTypes#VECTOR}
+ * indexes, kept across transactions.
+ * <p>
+ * There is one cache per graph, that is per index subspace (and grouping prefix) of each record store. The cache of a
+ * graph belongs to the {@linkplain com.apple.foundationdb.record.metadata.Index#getLastModifiedVersion() last
+ * modified version} of its index. When a transaction sees a newer version of the index, which is the case after the
+ * index's definition was changed or the index was rebuilt, the cache is discarded and a new one started. Changes to
+ * other parts of the meta-data do not affect the cache. A transaction that still sees an older version of the index
+ * does not use the cache at all. Independently of this, a cached node is only ever used by a search that reads the
+ * same upper layers version of the graph, so the cache never returns nodes that the search's transaction would not see.
+ */
+@API(API.Status.EXPERIMENTAL)
+public class VectorIndexUpperLayerCaches {
+    private final long maxNodesPerLayer;
+    @Nonnull
+    private final Cache<Subspace, Generation> caches;
+
+    /**
+     * Creates a new set of caches.
+     * @param maxGraphs the maximum number of graphs whose upper layers are cached
+     * @param maxNodesPerLayer the maximum number of nodes to cache per layer of each graph
+     */
+    public VectorIndexUpperLayerCaches(long maxGraphs, long maxNodesPerLayer) {
+        Preconditions.checkArgument(maxGraphs > 0, "maximum number of graphs must be positive");
+        Preconditions.checkArgument(maxNodesPerLayer > 0, "maximum number of nodes per layer must be positive");
+        this.maxNodesPerLayer = maxNodesPerLayer;
+        this.caches = CacheBuilder.newBuilder().maximumSize(maxGraphs).build();
+    }
+
+    public long getMaxNodesPerLayer() {
+        return maxNodesPerLayer;
+    }
+
+    /**
+     * Discards the caches of all graphs.
+     */
+    public void invalidateAll() {
+        caches.invalidateAll();
+    }
+
+    /**
+     * Get the cache for a graph.
+     * @param graphSubspace the subspace of the graph
+     * @param indexVersion the last modified version of the index as seen by the calling transaction
+     * @return the cache to use for the graph or {@code null} if the graph's cache belongs to a newer version of the
+     * index
+     */
+    @Nullable
+    public UpperLayerCache getCache(@Nonnull Subspace graphSubspace, int indexVersion) {
+        final Generation generation = caches.asMap().compute(graphSubspace, (subspace, existing) ->
+                existing == null || existing.getIndexVersion() < indexVersion
+                ? new Generation(indexVersion, new UpperLayerCache(maxNodesPerLayer))
+                : existing);
+        return generation.getIndexVersion() == indexVersion ? generation.getCache() : null;
+    }
+
+    @VisibleForTesting
+    long size() {
+        return caches.size();
+    }
+
+    /**
+     * The cache of one graph for one version of its index.
+     */
+    private static final class Generation {
+        private final int indexVersion;
+        @Nonnull
+        private final UpperLayerCache cache;
+
+        Generation(int indexVersion, @Nonnull UpperLayerCache cache) {
+            this.indexVersion = indexVersion;
+            this.cache = cache;
+        }
+
+        int getIndexVersion() {
+            return indexVersion;
+        }
+
+        @Nonnull
+        UpperLayerCache getCache() {
+            return cache;
+        }
+    }
+}
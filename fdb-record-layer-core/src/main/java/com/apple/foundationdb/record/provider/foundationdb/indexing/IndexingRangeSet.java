@@ -248,4 +248,21 @@ public class IndexingRangeSet {
         final RangeSet rangeSet = new RangeSet(subspace);
         return new IndexingRangeSet(store.getRecordContext(), rangeSet);
     }
+
+    /**
+     * Create a range set for collecting statistics about the entries of an index. This is used by the index
+     * statistics collector to track how much of a given index has been sampled so that a collection can be resumed
+     * across transactions.
+     *
+     * @param store the record store associated with the index
+     * @param index the index whose statistics are being collected
+     *
+     * @return a range set for the index statistics collection
+     */
+    @Nonnull
+    public static IndexingRangeSet forIndexStatistics(@Nonnull FDBRecordStore store, @Nonnull Index index) {
+        final Subspace subspace = IndexingSubspaces.indexStatisticsRangeSubspace(store, index);
+        final RangeSet rangeSet = new RangeSet(subspace);
+        return new IndexingRangeSet(store.getRecordContext(), rangeSet);
+    }
 }
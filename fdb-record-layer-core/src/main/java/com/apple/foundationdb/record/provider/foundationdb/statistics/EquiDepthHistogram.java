@@ -0,0 +1,142 @@
+/*
+ * EquiDepthHistogram.java
+ *
+ * This source file is part of the FoundationDB open source project
+ *
+ * Copyright 2015-2026 Apple Inc. and the FoundationDB project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.apple.foundationdb.record.provider.foundationdb.statistics;
+
+import com.apple.foundationdb.annotation.API;
+import com.apple.foundationdb.record.RecordCoreArgumentException;
+import com.apple.foundationdb.tuple.Tuple;
+import com.google.common.collect.ImmutableList;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.List;
+
+/**
+ * An equi-depth histogram over the values of a single index column. The histogram is given by its bucket
+ * boundaries: each of the {@code n - 1} buckets between consecutive boundaries holds (approximately) the same number
+ * of index entries. Values are represented as single element {@link Tuple}s so that they are ordered like they are
+ * in the index.
+ *
+ * <p>
+ * Values that occupy one or more whole buckets are frequent values, so the histogram can give a better estimate for
+ * equality comparisons with them than assuming a uniform distribution (see {@link #fractionEqualTo(Tuple)}).
+ * </p>
+ */
+@API(API.Status.EXPERIMENTAL)
+public class EquiDepthHistogram {
+    @Nonnull
+    private final List<Tuple> boundaries;
+
+    public EquiDepthHistogram(@Nonnull List<Tuple> boundaries) {
+        if (boundaries.size() < 2) {
+            throw new RecordCoreArgumentException("histogram needs at least two boundaries");
+        }
+        this.boundaries = ImmutableList.copyOf(boundaries);
+    }
+
+    @Nonnull
+    public List<Tuple> getBoundaries() {
+        return boundaries;
+    }
+
+    public int getBucketCount() {
+        return boundaries.size() - 1;
+    }
+
+    /**
+     * Build a histogram from a sorted sample of values.
+     * @param sortedSample the sampled values, sorted
+     * @param bucketCount the maximum number of buckets
+     * @return a histogram with at most {@code bucketCount} buckets or {@code null} if the sample is too small
+     */
+    @Nullable
+    public static EquiDepthHistogram fromSortedSample(@Nonnull List<Tuple> sortedSample, int bucketCount) {
+        if (sortedSample.size() < 2) {
+            return null;
+        }
+        final int buckets = Math.min(bucketCount, sortedSample.size() - 1);
+        final ImmutableList.Builder<Tuple> boundaries = ImmutableList.builderWithExpectedSize(buckets + 1);
+        for (int i = 0; i <= buckets; i++) {
+            boundaries.add(sortedSample.get((int)((long)i * (sortedSample.size() - 1) / buckets)));
+        }
+        return new EquiDepthHistogram(boundaries.build());
+    }
+
+    /**
+     * Estimate the fraction of entries equal to the given value, if it is a frequent value.
+     * @param value the value
+     * @return the fraction of the entries equal to {@code value}, {@code 0.0} if {@code value} is outside the range of
+     * the histogram, or {@code -1.0} if the value is not frequent enough for the histogram to know
+     */
+    public double fractionEqualTo(@Nonnull Tuple value) {
+        if (value.compareTo(boundaries.get(0)) < 0 || value.compareTo(boundaries.get(boundaries.size() - 1)) > 0) {
+            return 0.0;
+        }
+        int fullBuckets = 0;
+        for (int i = 0; i < getBucketCount(); i++) {
+            if (value.equals(boundaries.get(i)) && value.equals(boundaries.get(i + 1))) {
+                fullBuckets++;
+            }
+        }
+        return fullBuckets == 0 ? -1.0 : (double)fullBuckets / getBucketCount();
+    }
+
+    /**
+     * Estimate the fraction of entries between two values.
+     * @param low the lower bound or {@code null} if the range has no lower bound
+     * @param high the upper bound or {@code null} if the range has no upper bound
+     * @return the estimated fraction of entries between {@code low} and {@code high}
+     */
+    public double fractionBetween(@Nullable Tuple low, @Nullable Tuple high) {
+        final double lowPosition = low == null ? 0.0 : position(low);
+        final double highPosition = high == null ? 1.0 : position(high);
+        return Math.max(0.0, highPosition - lowPosition);
+    }
+
+    /**
+     * Estimate the fraction of entries less than the given value, interpolating linearly within a bucket for numeric
+     * values and assuming half the bucket otherwise.
+     */
+    private double position(@Nonnull Tuple value) {
+        if (value.compareTo(boundaries.get(0)) <= 0) {
+            return 0.0;
+        }
+        final int bucketCount = getBucketCount();
+        if (value.compareTo(boundaries.get(bucketCount)) > 0) {
+            return 1.0;
+        }
+        int bucket = 0;
+        while (bucket < bucketCount - 1 && value.compareTo(boundaries.get(bucket + 1)) > 0) {
+            bucket++;
+        }
+        final Tuple lower = boundaries.get(bucket);
+        final Tuple upper = boundaries.get(bucket + 1);
+        double withinBucket = 0.5;
+        if (lower.get(0) instanceof Number && upper.get(0) instanceof Number && value.get(0) instanceof Number) {
+            final double lowerValue = ((Number)lower.get(0)).doubleValue();
+            final double upperValue = ((Number)upper.get(0)).doubleValue();
+            if (upperValue > lowerValue) {
+                withinBucket = (((Number)value.get(0)).doubleValue() - lowerValue) / (upperValue - lowerValue);
+            }
+        }
+        return (bucket + Math.min(1.0, Math.max(0.0, withinBucket))) / bucketCount;
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * HyperLogLogSketch.java
+ *
+ * This source file is part of the FoundationDB open source project
+ *
+ * Copyright 2015-2026 Apple Inc. and the FoundationDB project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.apple.foundationdb.record.provider.foundationdb.statistics;
+
+import com.apple.foundationdb.annotation.API;
+import com.apple.foundationdb.record.RecordCoreArgumentException;
+import com.apple.foundationdb.record.logging.LogMessageKeys;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+
+import javax.annotation.Nonnull;
+import java.util.Arrays;
+
+/**
+ * A HyperLogLog sketch estimating the number of distinct values added to it. The sketch uses
+ * {@value #REGISTER_COUNT} one-byte registers, which gives a standard error of about 3%. Sketches can be merged, and
+ * can be stored as their register array (see {@link #toBytes()}), so a count can be accumulated over several
+ * transactions.
+ */
+@API(API.Status.EXPERIMENTAL)
+public class HyperLogLogSketch {
+    static final int PRECISION = 10;
+    public static final int REGISTER_COUNT = 1 << PRECISION;
+    private static final double ALPHA = 0.7213 / (1.0 + 1.079 / REGISTER_COUNT);
+    private static final HashFunction HASH_FUNCTION = Hashing.murmur3_128();
+
+    @Nonnull
+    private final byte[] registers;
+
+    public HyperLogLogSketch() {
+        this(new byte[REGISTER_COUNT]);
+    }
+
+    private HyperLogLogSketch(@Nonnull byte[] registers) {
+        this.registers = registers;
+    }
+
+    /**
+     * Add a value, given by its serialized form, to the sketch.
+     * @param value the serialized value
+     */
+    public void add(@Nonnull byte[] value) {
+        addHash(hash(value));
+    }
+
+    /**
+     * Add a value, given by its 64-bit hash, to the sketch.
+     * @param hash a hash of the value
+     */
+    public void addHash(long hash) {
+        final int index = (int)(hash >>> (Long.SIZE - PRECISION));
+        // Append a one bit so that the rank is bounded even if all remaining bits are zero
+        final int rank = Long.numberOfLeadingZeros((hash << PRECISION) | (1L << (PRECISION - 1))) + 1;
+        if (rank > registers[index]) {
+            registers[index] = (byte)rank;
+        }
+    }
+
+    /**
+     * Merge the values of another sketch into this one.
+     * @param other the sketch to merge
+     */
+    public void merge(@Nonnull HyperLogLogSketch other) {
+        for (int i = 0; i < REGISTER_COUNT; i++) {
+            if (other.registers[i] > registers[i]) {
+                registers[i] = other.registers[i];
+            }
+        }
+    }
+
+    /**
+     * Estimate the number of distinct values that have been added to this sketch.
+     * @return the estimated number of distinct values
+     */
+    public long estimate() {
+        double sum = 0.0;
+        int zeroRegisters = 0;
+        for (byte register : registers) {
+            sum += 1.0 / (1L << register);
+            if (register == 0) {
+                zeroRegisters++;
+            }
+        }
+        final double estimate = ALPHA * REGISTER_COUNT * REGISTER_COUNT / sum;
+        if (estimate <= 2.5 * REGISTER_COUNT && zeroRegisters > 0) {
+            // Small range correction: linear counting is more accurate while there are empty registers
+            return Math.round(REGISTER_COUNT * Math.log((double)REGISTER_COUNT / zeroRegisters));
+        }
+        return Math.round(estimate);
+    }
+
+    @Nonnull
+    public byte[] toBytes() {
+        return Arrays.copyOf(registers, REGISTER_COUNT);
+    }
+
+    @Nonnull
+    public static HyperLogLogSketch fromBytes(@Nonnull byte[] bytes) {
+        if (bytes.length != REGISTER_COUNT) {
+            throw new RecordCoreArgumentException("invalid sketch length")
+                    .addLogInfo(LogMessageKeys.EXPECTED, REGISTER_COUNT)
+                    .addLogInfo(LogMessageKeys.ACTUAL, bytes.length);
+        }
+        return new HyperLogLogSketch(Arrays.copyOf(bytes, REGISTER_COUNT));
+    }
+
+    /**
+     * Compute the 64-bit hash used by sketches (and by the sampling of index entries) for a serialized value.
+     * @param value the serialized value
+     * @return the hash of the value
+     */
+    @SuppressWarnings("UnstableApiUsage")
+    public static long hash(@Nonnull byte[] value) {
+        return HASH_FUNCTION.hashBytes(value).asLong();
+    }
+}
@@ -0,0 +1,249 @@
+/*
+ * IndexStatistics.java
+ *
+ * This source file is part of the FoundationDB open source project
+ *
+ * Copyright 2015-2026 Apple Inc. and the FoundationDB project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.apple.foundationdb.record.provider.foundationdb.statistics;
+
+import com.apple.foundationdb.annotation.API;
+import com.apple.foundationdb.record.IndexStatisticsProto;
+import com.apple.foundationdb.record.query.expressions.Comparisons;
+import com.apple.foundationdb.record.query.plan.ScanComparisons;
+import com.apple.foundationdb.record.query.plan.cascades.values.LiteralValue;
+import com.apple.foundationdb.tuple.Tuple;
+import com.google.common.collect.ImmutableList;
+import com.google.protobuf.ByteString;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Statistics about the entries of an index, used by the planner to estimate how many entries an index scan reads.
+ * The statistics consist of the number of entries, an estimate of the number of distinct values of each prefix of
+ * the index key, and an {@link EquiDepthHistogram} over the first column of the index key. They are collected by
+ * the {@link com.apple.foundationdb.record.provider.foundationdb.OnlineIndexStatisticsCollector} and can be loaded
+ * with {@link com.apple.foundationdb.record.provider.foundationdb.FDBRecordStore#loadIndexStatisticsAsync}.
+ *
+ * <p>
+ * Selectivity estimation follows the usual textbook rules: an equality comparison on a prefix of the index matches
+ * one distinct value of the prefix (or, for a frequent literal value of the first column, the fraction of the
+ * histogram it occupies), and an inequality comparison matches the fraction of the histogram between its literal
+ * bounds, or a third of the entries (see {@link #DEFAULT_INEQUALITY_SELECTIVITY}) if the bounds are not known at
+ * planning time.
+ * </p>
+ */
+@API(API.Status.EXPERIMENTAL)
+public class IndexStatistics {
+    /**
+     * The fraction of entries assumed to match an inequality comparison whose bounds are not known.
+     */
+    public static final double DEFAULT_INEQUALITY_SELECTIVITY = 1.0 / 3.0;
+
+    private final long entryCount;
+    @Nonnull
+    private final List<Long> distinctPrefixCounts;
+    @Nullable
+    private final EquiDepthHistogram histogram;
+    private final long sampleSize;
+    private final int indexLastModifiedVersion;
+    private final long collectedTimeMillis;
+
+    public IndexStatistics(long entryCount, @Nonnull List<Long> distinctPrefixCounts, @Nullable EquiDepthHistogram histogram,
+                           long sampleSize, int indexLastModifiedVersion, long collectedTimeMillis) {
+        this.entryCount = entryCount;
+        this.distinctPrefixCounts = ImmutableList.copyOf(distinctPrefixCounts);
+        this.histogram = histogram;
+        this.sampleSize = sampleSize;
+        this.indexLastModifiedVersion = indexLastModifiedVersion;
+        this.collectedTimeMillis = collectedTimeMillis;
+    }
+
+    public long getEntryCount() {
+        return entryCount;
+    }
+
+    /**
+     * Get the estimated number of distinct values of each prefix of the index key. The element at position {@code i}
+     * is the count for the prefix of length {@code i + 1}.
+     * @return the estimated distinct counts by prefix length
+     */
+    @Nonnull
+    public List<Long> getDistinctPrefixCounts() {
+        return distinctPrefixCounts;
+    }
+
+    @Nullable
+    public EquiDepthHistogram getHistogram() {
+        return histogram;
+    }
+
+    public long getSampleSize() {
+        return sampleSize;
+    }
+
+    public int getIndexLastModifiedVersion() {
+        return indexLastModifiedVersion;
+    }
+
+    public long getCollectedTimeMillis() {
+        return collectedTimeMillis;
+    }
+
+    /**
+     * Estimate the number of index entries an index scan with the given comparisons reads.
+     * @param scanComparisons the comparisons of the scan
+     * @return the estimated number of entries
+     */
+    public double estimateEntries(@Nonnull ScanComparisons scanComparisons) {
+        if (entryCount == 0) {
+            return 0.0;
+        }
+        return Math.max(1.0, entryCount * estimateSelectivity(scanComparisons));
+    }
+
+    /**
+     * Estimate the fraction of index entries an index scan with the given comparisons reads.
+     * @param scanComparisons the comparisons of the scan
+     * @return the estimated selectivity, between {@code 0.0} and {@code 1.0}
+     */
+    public double estimateSelectivity(@Nonnull ScanComparisons scanComparisons) {
+        final List<Comparisons.Comparison> equalityComparisons = scanComparisons.getEqualityComparisons();
+        double selectivity = 1.0;
+        if (!equalityComparisons.isEmpty()) {
+            selectivity = estimateEqualitySelectivity(equalityComparisons);
+        }
+        final Set<Comparisons.Comparison> inequalityComparisons = scanComparisons.getInequalityComparisons();
+        if (!inequalityComparisons.isEmpty()) {
+            selectivity *= estimateInequalitySelectivity(equalityComparisons.isEmpty(), inequalityComparisons);
+        }
+        return selectivity;
+    }
+
+    private double estimateEqualitySelectivity(@Nonnull List<Comparisons.Comparison> equalityComparisons) {
+        if (histogram != null && equalityComparisons.size() == 1) {
+            final Tuple value = literalComparand(equalityComparisons.get(0));
+            if (value != null) {
+                final double fraction = histogram.fractionEqualTo(value);
+                if (fraction >= 0.0) {
+                    return fraction;
+                }
+            }
+        }
+        if (distinctPrefixCounts.isEmpty()) {
+            return 1.0;
+        }
+        final long distinctCount = distinctPrefixCounts.get(Math.min(equalityComparisons.size(), distinctPrefixCounts.size()) - 1);
+        return distinctCount <= 1 ? 1.0 : 1.0 / distinctCount;
+    }
+
+    private double estimateInequalitySelectivity(boolean onFirstColumn, @Nonnull Set<Comparisons.Comparison> inequalityComparisons) {
+        Tuple low = null;
+        Tuple high = null;
+        boolean restricting = false;
+        boolean allKnown = true;
+        for (Comparisons.Comparison comparison : inequalityComparisons) {
+            switch (comparison.getType()) {
+                case NOT_NULL:
+                case SORT:
+                    // These only establish the order or exclude nulls, so they are not restricting
+                    break;
+                case GREATER_THAN:
+                case GREATER_THAN_OR_EQUALS:
+                    restricting = true;
+                    low = literalComparand(comparison);
+                    allKnown &= low != null;
+                    break;
+                case LESS_THAN:
+                case LESS_THAN_OR_EQUALS:
+                    restricting = true;
+                    high = literalComparand(comparison);
+                    allKnown &= high != null;
+                    break;
+                default:
+                    restricting = true;
+                    allKnown = false;
+                    break;
+            }
+        }
+        if (!restricting) {
+            return 1.0;
+        }
+        if (onFirstColumn && allKnown && histogram != null) {
+            return histogram.fractionBetween(low, high);
+        }
+        return DEFAULT_INEQUALITY_SELECTIVITY;
+    }
+
+    @Nullable
+    private static Tuple literalComparand(@Nonnull Comparisons.Comparison comparison) {
+        final Object comparand;
+        if (comparison instanceof Comparisons.SimpleComparison) {
+            comparand = comparison.getComparand();
+        } else if (comparison instanceof Comparisons.ValueComparison &&
+                   ((Comparisons.ValueComparison)comparison).getComparandValue() instanceof LiteralValue) {
+            comparand = ((LiteralValue<?>)((Comparisons.ValueComparison)comparison).getComparandValue()).getLiteralValue();
+        } else {
+            return null;
+        }
+        try {
+            final Tuple value = Tuple.from(ScanComparisons.toTupleItem(comparand));
+            value.getPackedSize(); // validate that the comparand can be encoded in a tuple
+            return value;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    @Nonnull
+    public IndexStatisticsProto.IndexStatistics toProto() {
+        final IndexStatisticsProto.IndexStatistics.Builder builder = IndexStatisticsProto.IndexStatistics.newBuilder()
+                .setEntryCount(entryCount)
+                .addAllDistinctPrefixCount(distinctPrefixCounts)
+                .setSampleSize(sampleSize)
+                .setIndexLastModifiedVersion(indexLastModifiedVersion)
+                .setCollectedTimeMillis(collectedTimeMillis);
+        if (histogram != null) {
+            for (Tuple boundary : histogram.getBoundaries()) {
+                builder.addHistogramBoundary(ByteString.copyFrom(boundary.pack()));
+            }
+        }
+        return builder.build();
+    }
+
+    @Nonnull
+    public static IndexStatistics fromProto(@Nonnull IndexStatisticsProto.IndexStatistics proto) {
+        EquiDepthHistogram histogram = null;
+        if (proto.getHistogramBoundaryCount() >= 2) {
+            final ImmutableList.Builder<Tuple> boundaries = ImmutableList.builderWithExpectedSize(proto.getHistogramBoundaryCount());
+            for (ByteString boundary : proto.getHistogramBoundaryList()) {
+                boundaries.add(Tuple.fromBytes(boundary.toByteArray()));
+            }
+            histogram = new EquiDepthHistogram(boundaries.build());
+        }
+        return new IndexStatistics(proto.getEntryCount(), proto.getDistinctPrefixCountList(), histogram,
+                proto.getSampleSize(), proto.getIndexLastModifiedVersion(), proto.getCollectedTimeMillis());
+    }
+
+    @Override
+    public String toString() {
+        return "IndexStatistics{entries=" + entryCount + ", distinct=" + distinctPrefixCounts +
+               ", buckets=" + (histogram == null ? 0 : histogram.getBucketCount()) + "}";
+    }
+}
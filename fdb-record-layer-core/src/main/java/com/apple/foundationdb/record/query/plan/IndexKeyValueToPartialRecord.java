@@ -158,8 +158,16 @@ public class IndexKeyValueToPartialRecord implements PlanHashable, PlanSerializa
 
     @Nullable
     public static Object getForOrdinalPath(@Nonnull Tuple tuple, @Nonnull final ImmutableIntArray ordinalPath) {
-        Object value = tuple;
-        for (int i = 0; i < ordinalPath.length(); i ++) {
+        return getForOrdinalPath(tuple, ordinalPath, 0);
+    }
+
+    @Nullable
+    private static Object getForOrdinalPath(@Nullable Object start, @Nonnull final ImmutableIntArray ordinalPath, int startIndex) {
+        Object value = start;
+        if (value == null) {
+            return null;
+        }
+        for (int i = startIndex; i < ordinalPath.length(); i ++) {
             if (value instanceof Tuple) {
                 value = ((Tuple)value).get(ordinalPath.get(i));
             } else {
@@ -276,13 +284,19 @@ public class IndexKeyValueToPartialRecord implements PlanHashable, PlanSerializa
         @Override
         public boolean copy(@Nonnull Descriptors.Descriptor recordDescriptor, @Nonnull Message.Builder recordBuilder,
                             @Nonnull IndexEntry kv) {
-            final Tuple tuple = (source == TupleSource.KEY ? kv.getKey() : kv.getValue());
-            if (!copyIfPredicate.test(tuple)) {
-                return false;
+            Object value;
+            if (source == TupleSource.KEY && copyIfPredicate instanceof AvailableFields.TruePredicate && !ordinalPath.isEmpty()) {
+                // Only decode the elements of the key that are copied
+                value = getForOrdinalPath(kv.getKeyValue(ordinalPath.get(0)), ordinalPath, 1);
+            } else {
+                final Tuple tuple = (source == TupleSource.KEY ? kv.getKey() : kv.getValue());
+                if (!copyIfPredicate.test(tuple)) {
+                    return false;
+                }
+                value = getForOrdinalPath(tuple, ordinalPath);
             }
 
             Descriptors.FieldDescriptor fieldDescriptor = recordDescriptor.findFieldByName(field);
-            Object value = getForOrdinalPath(tuple, ordinalPath);
             if (invertibleFunctionName != null) {
                 value = getInvertibleFunction().apply(value);
             }
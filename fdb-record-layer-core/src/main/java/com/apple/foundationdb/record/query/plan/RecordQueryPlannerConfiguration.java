@@ -23,6 +23,8 @@ package com.apple.foundationdb.record.query.plan;
 import com.apple.foundationdb.annotation.API;
 import com.apple.foundationdb.record.IndexFetchMethod;
 import com.apple.foundationdb.record.RecordPlannerConfigurationProto;
+import com.apple.foundationdb.record.cursors.HashJoinCursor;
+import com.apple.foundationdb.record.cursors.aggregate.HashAggregateCursor;
 import com.apple.foundationdb.record.query.RecordQuery;
 import com.apple.foundationdb.record.query.plan.cascades.CascadesRule;
 import com.apple.foundationdb.record.query.plan.cascades.PlannerRule;
@@ -68,6 +70,8 @@ public class RecordQueryPlannerConfiguration {
     private static final long NORMALIZE_NESTED_FIELDS_MASK = 1L << 10;
     private static final long OMIT_PRIMARY_KEY_IN_ORDERING_KEY_FOR_IN_UNION_MASK = 1L << 11;
     private static final long JOIN_RIGHT_DEEP_MASK = 1L << 12;
+    private static final long PLAN_HASH_JOINS_MASK = 1L << 13;
+    private static final long PLAN_HASH_AGGREGATIONS_MASK = 1L << 14;
 
     @Nonnull
     private final RecordPlannerConfigurationProto.PlannerConfiguration proto;
@@ -398,6 +402,68 @@ public class RecordQueryPlannerConfiguration {
         return flagSet(JOIN_RIGHT_DEEP_MASK);
     }
 
+    /**
+     * Should the planner consider hash joins in addition to nested loop joins. A hash join reads its build side
+     * into memory in its entirety, so it is only attempted for joins whose predicates contain at least one
+     * equality between a value of one side and a value of the other side. The number of records of the build side
+     * that can be held in memory is bounded by {@link #getHashJoinMaxBuildSize()}. This option only applies to the
+     * {@link com.apple.foundationdb.record.query.plan.cascades.CascadesPlanner}.
+     *
+     * @return whether hash joins should be planned
+     */
+    public boolean shouldPlanHashJoins() {
+        return flagSet(PLAN_HASH_JOINS_MASK);
+    }
+
+    /**
+     * Returns the maximum number of records of the build side of a hash join that are held in memory. A hash join
+     * whose build side exceeds this size fails at execution time.
+     *
+     * @return the maximum number of records of the build side of a hash join
+     * @see #shouldPlanHashJoins()
+     */
+    public int getHashJoinMaxBuildSize() {
+        return proto.hasHashJoinMaxBuildSize() ? proto.getHashJoinMaxBuildSize() : HashJoinCursor.DEFAULT_MAX_BUILD_SIZE;
+    }
+
+    /**
+     * Should the planner consider hash aggregations for a {@code GROUP BY} whose input is not ordered by its grouping
+     * values. Without a hash aggregation, such a query can only be planned if some index provides that order. A
+     * hash aggregation keeps up to {@link #getHashAggregationMaxGroupCount()} groups in memory; the records of any
+     * further groups are sorted using files on local disk and then aggregated. This option only applies to the
+     * {@link com.apple.foundationdb.record.query.plan.cascades.CascadesPlanner}.
+     *
+     * @return whether hash aggregations should be planned
+     */
+    public boolean shouldPlanHashAggregations() {
+        return flagSet(PLAN_HASH_AGGREGATIONS_MASK);
+    }
+
+    /**
+     * Returns the maximum number of groups of a hash aggregation that are held in memory. This is also the maximum
+     * number of records of other groups that are held in memory while sorting them.
+     *
+     * @return the maximum number of groups of a hash aggregation held in memory
+     * @see #shouldPlanHashAggregations()
+     */
+    public int getHashAggregationMaxGroupCount() {
+        return proto.hasHashAggregationMaxGroupCount() ? proto.getHashAggregationMaxGroupCount() : HashAggregateCursor.DEFAULT_MAX_GROUP_COUNT;
+    }
+
+    /**
+     * Returns the maximum number of groups of a hash aggregation whose state is included in a continuation. A
+     * continuation returned while more groups remain only holds the number of groups returned so far, and resuming
+     * from it aggregates all of the input again.
+     *
+     * @return the maximum number of groups of a hash aggregation included in a continuation
+     * @see #shouldPlanHashAggregations()
+     */
+    public int getHashAggregationMaxContinuationGroupCount() {
+        return proto.hasHashAggregationMaxContinuationGroupCount()
+               ? proto.getHashAggregationMaxContinuationGroupCount()
+               : HashAggregateCursor.DEFAULT_MAX_CONTINUATION_GROUP_COUNT;
+    }
+
     /**
      * Return a protobuf representation of this configuration object. This can then be serialized and
      * returned along with, say, a plan continuation. If the original query is re-planned, the serialized
@@ -818,6 +884,76 @@ public class RecordQueryPlannerConfiguration {
             return this;
         }
 
+        /**
+         * Set whether hash joins should be planned. See {@link #shouldPlanHashJoins()} for
+         * more details.
+         *
+         * @param planHashJoins whether hash joins should be planned
+         * @return this builder
+         * @see #shouldPlanHashJoins()
+         */
+        @CanIgnoreReturnValue
+        @Nonnull
+        public Builder setPlanHashJoins(boolean planHashJoins) {
+            updateFlags(planHashJoins, PLAN_HASH_JOINS_MASK);
+            return this;
+        }
+
+        /**
+         * Set the maximum number of records of the build side of a hash join that are held in memory.
+         * @param hashJoinMaxBuildSize the maximum number of records of the build side of a hash join
+         * @return this builder
+         * @see #getHashJoinMaxBuildSize()
+         */
+        @CanIgnoreReturnValue
+        @Nonnull
+        public Builder setHashJoinMaxBuildSize(final int hashJoinMaxBuildSize) {
+            protoBuilder.setHashJoinMaxBuildSize(hashJoinMaxBuildSize);
+            return this;
+        }
+
+        /**
+         * Set whether hash aggregations should be planned. See {@link #shouldPlanHashAggregations()} for
+         * more details.
+         *
+         * @param planHashAggregations whether hash aggregations should be planned
+         * @return this builder
+         * @see #shouldPlanHashAggregations()
+         */
+        @CanIgnoreReturnValue
+        @Nonnull
+        public Builder setPlanHashAggregations(boolean planHashAggregations) {
+            updateFlags(planHashAggregations, PLAN_HASH_AGGREGATIONS_MASK);
+            return this;
+        }
+
+        /**
+         * Set the maximum number of groups of a hash aggregation that are held in memory.
+         * @param hashAggregationMaxGroupCount the maximum number of groups of a hash aggregation held in memory
+         * @return this builder
+         * @see #getHashAggregationMaxGroupCount()
+         */
+        @CanIgnoreReturnValue
+        @Nonnull
+        public Builder setHashAggregationMaxGroupCount(final int hashAggregationMaxGroupCount) {
+            protoBuilder.setHashAggregationMaxGroupCount(hashAggregationMaxGroupCount);
+            return this;
+        }
+
+        /**
+         * Set the maximum number of groups of a hash aggregation whose state is included in a continuation.
+         * @param hashAggregationMaxContinuationGroupCount the maximum number of groups of a hash aggregation
+         * included in a continuation
+         * @return this builder
+         * @see #getHashAggregationMaxContinuationGroupCount()
+         */
+        @CanIgnoreReturnValue
+        @Nonnull
+        public Builder setHashAggregationMaxContinuationGroupCount(final int hashAggregationMaxContinuationGroupCount) {
+            protoBuilder.setHashAggregationMaxContinuationGroupCount(hashAggregationMaxContinuationGroupCount);
+            return this;
+        }
+
         public RecordQueryPlannerConfiguration build() {
             if (protoBuilder.getFlags() != flags) {
                 protoBuilder.setFlags(flags);
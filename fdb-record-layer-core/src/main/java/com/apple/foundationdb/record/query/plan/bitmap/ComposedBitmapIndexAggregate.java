@@ -82,6 +82,9 @@ import java.util.stream.Collectors;
  * and appending the common position. These scans yield bitmaps with one bits for each unique position matching that single predicate.
  * Applying bit operations on these bitmaps corresponding to the complex Boolean expression on the original predicates
  * gives bitmaps with one bits for positions satisfying that complex condition.
+ *
+ * The bit operations are always applied to raw bitmaps. Scans of an index with the {@code roaring} encoding decode
+ * each stored bitmap first, so the operations are not yet done container by container.
  */
 @API(API.Status.EXPERIMENTAL)
 public class ComposedBitmapIndexAggregate {
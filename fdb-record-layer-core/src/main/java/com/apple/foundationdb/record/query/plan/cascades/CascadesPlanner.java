@@ -27,6 +27,7 @@ import com.apple.foundationdb.record.RecordStoreState;
 import com.apple.foundationdb.record.logging.KeyValueLogMessage;
 import com.apple.foundationdb.record.logging.LogMessageKeys;
 import com.apple.foundationdb.record.provider.foundationdb.IndexMatchCandidateRegistry;
+import com.apple.foundationdb.record.provider.foundationdb.statistics.IndexStatistics;
 import com.apple.foundationdb.record.query.IndexQueryabilityFilter;
 import com.apple.foundationdb.record.query.ParameterRelationshipGraph;
 import com.apple.foundationdb.record.query.RecordQuery;
@@ -63,6 +64,7 @@ import com.apple.foundationdb.record.query.plan.cascades.matching.structure.Refe
 import com.apple.foundationdb.record.query.plan.plans.RecordQueryPlan;
 import com.google.common.base.Suppliers;
 import com.google.common.base.Verify;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Iterables;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -71,6 +73,7 @@ import javax.annotation.Nonnull;
 import java.util.ArrayDeque;
 import java.util.Collection;
 import java.util.Deque;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
@@ -241,6 +244,8 @@ public class CascadesPlanner implements QueryPlanner {
     private int taskCount;
     // max size of the task queue encountered during the planning
     private int maxQueueSize;
+    @Nonnull
+    private Map<String, IndexStatistics> indexStatistics;
 
     public CascadesPlanner(@Nonnull RecordMetaData metaData, @Nonnull RecordStoreState recordStoreState, @Nonnull IndexMatchCandidateRegistry matchCandidateRegistry) {
         this.configuration = RecordQueryPlannerConfiguration.builder().build();
@@ -253,6 +258,7 @@ public class CascadesPlanner implements QueryPlanner {
         this.evaluationContext = EvaluationContext.empty();
         this.traversal = Traversal.withRoot(currentRoot);
         this.taskStack = new ArrayDeque<>();
+        this.indexStatistics = ImmutableMap.of();
     }
 
     @Nonnull
@@ -323,6 +329,23 @@ public class CascadesPlanner implements QueryPlanner {
         this.configuration = configuration;
     }
 
+    @Nonnull
+    public Map<String, IndexStatistics> getIndexStatistics() {
+        return indexStatistics;
+    }
+
+    /**
+     * Set the statistics of the indexes of the store, keyed by index name, which the cost model uses to estimate the
+     * number of entries read by index scans. Indexes without statistics are compared using heuristics only. Planners
+     * created by {@link com.apple.foundationdb.record.provider.foundationdb.FDBRecordStore#getCascadesPlannerAsync()} are
+     * given the statistics of the store's indexes.
+     * @param indexStatistics the statistics of the indexes
+     * @see com.apple.foundationdb.record.provider.foundationdb.FDBRecordStore#loadAllIndexStatisticsAsync()
+     */
+    public void setIndexStatistics(@Nonnull final Map<String, IndexStatistics> indexStatistics) {
+        this.indexStatistics = ImmutableMap.copyOf(indexStatistics);
+    }
+
     private boolean isTaskQueueSizeExceeded(final RecordQueryPlannerConfiguration configuration, final int queueSize) {
         return ((configuration.getMaxTaskQueueSize() > 0) && (queueSize > configuration.getMaxTaskQueueSize()));
     }
@@ -632,7 +655,7 @@ public class CascadesPlanner implements QueryPlanner {
         @Override
         public void execute() {
             RelationalExpression bestFinalExpression = null;
-            final var costModel = plannerPhase.createCostModel(configuration);
+            final var costModel = plannerPhase.createCostModel(configuration, indexStatistics);
             for (final var finalExpression : group.getFinalExpressions()) {
                 if (bestFinalExpression == null || costModel.compare(finalExpression, bestFinalExpression) < 0) {
                     if (bestFinalExpression != null) {
@@ -21,13 +21,16 @@
 package com.apple.foundationdb.record.query.plan.cascades;
 
 import com.apple.foundationdb.record.RecordCoreException;
+import com.apple.foundationdb.record.provider.foundationdb.statistics.IndexStatistics;
 import com.apple.foundationdb.record.query.plan.RecordQueryPlannerConfiguration;
 import com.apple.foundationdb.record.query.plan.cascades.events.eventprotos.PPlannerPhase;
+import com.google.common.collect.ImmutableMap;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
+import java.util.Map;
 import java.util.Objects;
-import java.util.function.Function;
+import java.util.function.BiFunction;
 
 /**
  * Enum for the planner phase a task of the {@link CascadesPlanner} can be in. Members of the enum define which ruleset
@@ -36,26 +39,26 @@ import java.util.function.Function;
 public enum PlannerPhase {
     // note that the phase are declared in a counterintuitive inverse way since a phase has to specify the next phase
     PLANNING(PlanningRuleSet.getDefault(), PlannerStage.PLANNED, PlanningCostModel::new),
-    REWRITING(RewritingRuleSet.getDefault(), PlannerStage.CANONICAL, RewritingCostModel::new, PLANNING);
+    REWRITING(RewritingRuleSet.getDefault(), PlannerStage.CANONICAL, (configuration, ignored) -> new RewritingCostModel(configuration), PLANNING);
 
     @Nonnull
     private final CascadesRuleSet ruleSet;
     @Nonnull
     private final PlannerStage targetStage;
     @Nonnull
-    private final Function<RecordQueryPlannerConfiguration, CascadesCostModel> costModelCreator;
+    private final BiFunction<RecordQueryPlannerConfiguration, Map<String, IndexStatistics>, CascadesCostModel> costModelCreator;
     @Nullable
     private final PlannerPhase nextPhase;
 
     PlannerPhase(@Nonnull final CascadesRuleSet ruleSet,
                  @Nonnull final PlannerStage targetStage,
-                 @Nonnull final Function<RecordQueryPlannerConfiguration, CascadesCostModel> costModelCreator) {
+                 @Nonnull final BiFunction<RecordQueryPlannerConfiguration, Map<String, IndexStatistics>, CascadesCostModel> costModelCreator) {
         this(ruleSet, targetStage, costModelCreator, null);
     }
 
     PlannerPhase(@Nonnull final CascadesRuleSet ruleSet,
                  @Nonnull final PlannerStage targetStage,
-                 @Nonnull final Function<RecordQueryPlannerConfiguration, CascadesCostModel> costModelCreator,
+                 @Nonnull final BiFunction<RecordQueryPlannerConfiguration, Map<String, IndexStatistics>, CascadesCostModel> costModelCreator,
                  @Nullable final PlannerPhase nextPhase) {
         this.ruleSet = ruleSet;
         this.targetStage = targetStage;
@@ -75,7 +78,13 @@ public enum PlannerPhase {
 
     @Nonnull
     public CascadesCostModel createCostModel(@Nonnull final RecordQueryPlannerConfiguration configuration) {
-        return costModelCreator.apply(configuration);
+        return createCostModel(configuration, ImmutableMap.of());
+    }
+
+    @Nonnull
+    public CascadesCostModel createCostModel(@Nonnull final RecordQueryPlannerConfiguration configuration,
+                                             @Nonnull final Map<String, IndexStatistics> indexStatistics) {
+        return costModelCreator.apply(configuration, indexStatistics);
     }
 
     @Nonnull
@@ -3,7 +3,7 @@
  *
  * This source file is part of the FoundationDB open source project
  *
- * Copyright 2015-2025 Apple Inc. and the FoundationDB project authors
+ * Copyright 2015-2026 Apple Inc. and the FoundationDB project authors
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -22,7 +22,11 @@ package com.apple.foundationdb.record.query.plan.cascades;
 
 import com.apple.foundationdb.annotation.API;
 import com.apple.foundationdb.annotation.SpotBugsSuppressWarnings;
+import com.apple.foundationdb.record.IndexScanType;
 import com.apple.foundationdb.record.PlanHashable;
+import com.apple.foundationdb.record.provider.foundationdb.IndexScanComparisons;
+import com.apple.foundationdb.record.provider.foundationdb.IndexScanParameters;
+import com.apple.foundationdb.record.provider.foundationdb.statistics.IndexStatistics;
 import com.apple.foundationdb.record.query.expressions.Comparisons;
 import com.apple.foundationdb.record.query.plan.QueryPlanner.IndexScanPreference;
 import com.apple.foundationdb.record.query.plan.RecordQueryPlannerConfiguration;
@@ -34,8 +38,11 @@ import com.apple.foundationdb.record.query.plan.cascades.properties.NormalizedRe
 import com.apple.foundationdb.record.query.plan.plans.RecordQueryCoveringIndexPlan;
 import com.apple.foundationdb.record.query.plan.plans.RecordQueryFetchFromPartialRecordPlan;
 import com.apple.foundationdb.record.query.plan.plans.RecordQueryFlatMapPlan;
+import com.apple.foundationdb.record.query.plan.plans.RecordQueryHashAggregationPlan;
+import com.apple.foundationdb.record.query.plan.plans.RecordQueryHashJoinPlan;
 import com.apple.foundationdb.record.query.plan.plans.RecordQueryInJoinPlan;
 import com.apple.foundationdb.record.query.plan.plans.RecordQueryInUnionPlan;
+import com.apple.foundationdb.record.query.plan.plans.RecordQueryIndexPlan;
 import com.apple.foundationdb.record.query.plan.plans.RecordQueryMapPlan;
 import com.apple.foundationdb.record.query.plan.plans.RecordQueryPlan;
 import com.apple.foundationdb.record.query.plan.plans.RecordQueryPlanWithIndex;
@@ -43,13 +50,17 @@ import com.apple.foundationdb.record.query.plan.plans.RecordQueryRecursiveDfsJoi
 import com.apple.foundationdb.record.query.plan.plans.RecordQueryRecursiveLevelUnionPlan;
 import com.apple.foundationdb.record.query.plan.plans.RecordQueryPredicatesFilterPlan;
 import com.apple.foundationdb.record.query.plan.plans.RecordQueryScanPlan;
+import com.apple.foundationdb.record.query.plan.plans.RecordQueryStreamingAggregationPlan;
+import com.apple.foundationdb.record.query.plan.sorting.RecordQuerySortOnValuesPlan;
 import com.google.common.base.Verify;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Sets;
 
 import javax.annotation.Nonnull;
 import java.util.List;
 import java.util.Map;
+import java.util.OptionalDouble;
 import java.util.OptionalInt;
 import java.util.Set;
 import java.util.function.Supplier;
@@ -84,8 +95,17 @@ public class PlanningCostModel implements CascadesCostModel {
     @Nonnull
     private final RecordQueryPlannerConfiguration configuration;
 
+    @Nonnull
+    private final Map<String, IndexStatistics> indexStatistics;
+
     public PlanningCostModel(@Nonnull final RecordQueryPlannerConfiguration configuration) {
+        this(configuration, ImmutableMap.of());
+    }
+
+    public PlanningCostModel(@Nonnull final RecordQueryPlannerConfiguration configuration,
+                             @Nonnull final Map<String, IndexStatistics> indexStatistics) {
         this.configuration = configuration;
+        this.indexStatistics = indexStatistics;
     }
 
     @Nonnull
@@ -137,6 +157,22 @@ public class PlanningCostModel implements CascadesCostModel {
             }
         }
 
+        //
+        // If there are statistics for every index scanned by both plans, prefer the plan that is estimated to
+        // read significantly fewer index entries. The estimates are compared by their binary order of magnitude,
+        // as smaller differences are within the error of the statistics, and comparing buckets rather than using a
+        // threshold keeps the comparison transitive.
+        //
+        final OptionalDouble estimatedEntriesA = estimatedIndexEntriesOfAllDataAccesses(planOpsMapA);
+        final OptionalDouble estimatedEntriesB = estimatedIndexEntriesOfAllDataAccesses(planOpsMapB);
+        if (estimatedEntriesA.isPresent() && estimatedEntriesB.isPresent()) {
+            int estimatedEntriesCompare = Integer.compare(estimateMagnitude(estimatedEntriesA.getAsDouble()),
+                    estimateMagnitude(estimatedEntriesB.getAsDouble()));
+            if (estimatedEntriesCompare != 0) {
+                return estimatedEntriesCompare;
+            }
+        }
+
         int unsatisfiedFilterCompare = Long.compare(NormalizedResidualPredicateProperty.countNormalizedConjuncts(a),
                 NormalizedResidualPredicateProperty.countNormalizedConjuncts(b));
         if (unsatisfiedFilterCompare != 0) {
@@ -162,6 +198,22 @@ public class PlanningCostModel implements CascadesCostModel {
             return countDataAccessesCompare;
         }
 
+        // special case
+        // if one plan sorts its input and the other one does not, prefer the one that does not
+        final OptionalInt sortVsOtherOptional =
+                flipFlop(() -> compareSortOperator(a, b), () -> compareSortOperator(b, a));
+        if (sortVsOtherOptional.isPresent() && sortVsOtherOptional.getAsInt() != 0) {
+            return sortVsOtherOptional.getAsInt();
+        }
+
+        // special case
+        // if one plan aggregates using a hash table and the other one using a stream
+        final OptionalInt hashVsStreamingAggregationOptional =
+                flipFlop(() -> compareHashAggregationOperator(a, b), () -> compareHashAggregationOperator(b, a));
+        if (hashVsStreamingAggregationOptional.isPresent() && hashVsStreamingAggregationOptional.getAsInt() != 0) {
+            return hashVsStreamingAggregationOptional.getAsInt();
+        }
+
         // special case
         // rCTE tie-breaker, if both plans are rCTE plans; one is DFS and the other is Level-based, always prefer DFS.
         final OptionalInt dfsVsLevelOptional =
@@ -170,6 +222,14 @@ public class PlanningCostModel implements CascadesCostModel {
             return dfsVsLevelOptional.getAsInt();
         }
 
+        // special case
+        // if one plan is a hash join and the other one is a nested loop join over the same legs
+        final OptionalInt hashJoinVsNestedLoopJoinOptional =
+                flipFlop(() -> compareHashJoinOperator(a, b), () -> compareHashJoinOperator(b, a));
+        if (hashJoinVsNestedLoopJoinOptional.isPresent() && hashJoinVsNestedLoopJoinOptional.getAsInt() != 0) {
+            return hashJoinVsNestedLoopJoinOptional.getAsInt();
+        }
+
         // special case
         // if one plan is a inUnion plan
         final OptionalInt inPlanVsOtherOptional =
@@ -339,6 +399,53 @@ public class PlanningCostModel implements CascadesCostModel {
                         });
     }
 
+    /**
+     * Estimate the total number of index entries read by the index scans of a plan using the available
+     * {@link IndexStatistics}. Each scan is counted once, even if it is executed more than once, for example as the
+     * inner of an in-join.
+     *
+     * @param planOpsMap map to hold the data accesses of the plan
+     * @return the estimated number of index entries, or {@code OptionalDouble.empty()} if the plan does not scan an
+     *         index, scans the records directly, or scans an index for which there are no usable statistics
+     */
+    @Nonnull
+    private OptionalDouble estimatedIndexEntriesOfAllDataAccesses(@Nonnull final Map<Class<? extends RelationalExpression>, Set<RelationalExpression>> planOpsMap) {
+        if (indexStatistics.isEmpty() || count(planOpsMap, RecordQueryScanPlan.class) > 0) {
+            return OptionalDouble.empty();
+        }
+        final Set<? extends RelationalExpression> indexScans =
+                FindExpressionVisitor.slice(planOpsMap, RecordQueryPlanWithIndex.class, RecordQueryCoveringIndexPlan.class);
+        if (indexScans.isEmpty()) {
+            return OptionalDouble.empty();
+        }
+        double estimatedEntries = 0.0;
+        for (final RelationalExpression indexScan : indexScans) {
+            final RecordQueryPlanWithIndex planWithIndex = indexScan instanceof RecordQueryCoveringIndexPlan
+                                                           ? ((RecordQueryCoveringIndexPlan)indexScan).getIndexPlan()
+                                                           : (RecordQueryPlanWithIndex)indexScan;
+            if (!(planWithIndex instanceof RecordQueryIndexPlan)) {
+                return OptionalDouble.empty();
+            }
+            final IndexScanParameters scanParameters = ((RecordQueryIndexPlan)planWithIndex).getScanParameters();
+            final IndexStatistics statistics = indexStatistics.get(planWithIndex.getIndexName());
+            if (statistics == null || !(scanParameters instanceof IndexScanComparisons) ||
+                    !IndexScanType.BY_VALUE.equals(scanParameters.getScanType())) {
+                return OptionalDouble.empty();
+            }
+            estimatedEntries += statistics.estimateEntries(((IndexScanComparisons)scanParameters).getScanComparisons());
+        }
+        return OptionalDouble.of(estimatedEntries);
+    }
+
+    /**
+     * Get the binary order of magnitude of an estimated number of index entries, i.e., {@code floor(log2(entries + 1))}.
+     * @param estimatedEntries the estimated number of entries
+     * @return the order of magnitude
+     */
+    private static int estimateMagnitude(final double estimatedEntries) {
+        return estimatedEntries < 1.0 ? 0 : Math.getExponent(estimatedEntries + 1.0);
+    }
+
     /**
      * Method to break a tie between a plan using singular index scan and one using a singular primary scan.
      * <br>
@@ -491,6 +598,104 @@ public class PlanningCostModel implements CascadesCostModel {
         return OptionalInt.empty();
     }
 
+    /**
+     * Compares a hash join plan to a nested loop join plan. The left expression is assumed to be a hash join and the
+     * right expression is assumed to be a nested loop join. A nested loop join whose inner is correlated to its outer
+     * underneath its join predicates uses the outer to look up the matching inner records (for instance, using an
+     * index) which is preferred over reading the build side of the hash join in its entirety. Otherwise, the nested
+     * loop join re-executes its inner for each outer record and only filters it, so the hash join is preferred. Returns {@link OptionalInt#empty()} if the assumption does
+     * not hold. This method is meant to be called using {@link #flipFlop(Supplier, Supplier)} so the reversed case is
+     * also checked.
+     *
+     * @param leftExpression this expression (expected to be a hash join plan)
+     * @param rightExpression other expression (expected to be a nested loop join plan)
+     * @return {@code OptionalInt.of(-1)} to prefer the hash join plan (left), {@code OptionalInt.of(1)} to prefer the
+     *         nested loop join plan (right), or {@code OptionalInt.empty()} if the expressions are not a hash join vs
+     *         nested loop join pair
+     */
+    private static OptionalInt compareHashJoinOperator(@Nonnull final RelationalExpression leftExpression,
+                                                       @Nonnull final RelationalExpression rightExpression) {
+        if (!(leftExpression instanceof RecordQueryHashJoinPlan) ||
+                !(rightExpression instanceof RecordQueryFlatMapPlan)) {
+            return OptionalInt.empty();
+        }
+        final RecordQueryFlatMapPlan flatMapPlan = (RecordQueryFlatMapPlan)rightExpression;
+        final boolean isInnerLookupOfOuter =
+                isCorrelatedUnderneathFilters(flatMapPlan.getInnerQuantifier().getRangesOver(),
+                        flatMapPlan.getOuterQuantifier().getAlias());
+        return isInnerLookupOfOuter ? OptionalInt.of(1) : OptionalInt.of(-1);
+    }
+
+    /**
+     * Checks whether any of the plans in a reference is correlated to the given alias once predicate filters on top
+     * of it are ignored. The nested loop join rule puts the join predicates into a filter on top of its inner, so the
+     * inner is always correlated to the outer; only a correlation underneath that filter (for instance, in the
+     * comparisons of an index scan) means that the outer is actually used to look up the matching inner records.
+     *
+     * @param reference the reference to check
+     * @param alias the alias to check correlations to
+     * @return {@code true} if a plan in the reference is correlated to {@code alias} underneath its filters
+     */
+    private static boolean isCorrelatedUnderneathFilters(@Nonnull final Reference reference,
+                                                         @Nonnull final CorrelationIdentifier alias) {
+        for (final RelationalExpression member : reference.getFinalExpressions()) {
+            if (member instanceof RecordQueryPredicatesFilterPlan) {
+                if (isCorrelatedUnderneathFilters(((RecordQueryPredicatesFilterPlan)member).getInner().getRangesOver(), alias)) {
+                    return true;
+                }
+            } else if (member.isCorrelatedTo(alias)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Compares a plan that sorts its input to a plan that does not. The left expression is assumed to be a sort plan
+     * and the right expression is assumed not to be one. As the sort has to read all of its input before it can return
+     * the first record, the plan that does not sort is preferred. Returns {@link OptionalInt#empty()} if the
+     * assumption does not hold. This method is meant to be called using {@link #flipFlop(Supplier, Supplier)} so the
+     * reversed case is also checked.
+     *
+     * @param leftExpression this expression (expected to be a sort plan)
+     * @param rightExpression other expression (expected not to be a sort plan)
+     * @return {@code OptionalInt.of(1)} to prefer the plan that does not sort (right), or {@code OptionalInt.empty()}
+     *         if the expressions are not a sort vs other pair
+     */
+    private static OptionalInt compareSortOperator(@Nonnull final RelationalExpression leftExpression,
+                                                   @Nonnull final RelationalExpression rightExpression) {
+        if (!(leftExpression instanceof RecordQuerySortOnValuesPlan) ||
+                rightExpression instanceof RecordQuerySortOnValuesPlan) {
+            return OptionalInt.empty();
+        }
+        return OptionalInt.of(1);
+    }
+
+    /**
+     * Compares a hash aggregation plan to a streaming aggregation plan. The left expression is assumed to be a hash
+     * aggregation and the right expression is assumed to be a streaming aggregation. A streaming aggregation over
+     * input that has to be sorted first reads all of its input before returning the first group, just like the hash
+     * aggregation, but it also has to sort all of it, so the hash aggregation is preferred. Otherwise, the streaming
+     * aggregation is preferred as it only keeps one group in memory. Returns {@link OptionalInt#empty()} if the
+     * assumption does not hold. This method is meant to be called using {@link #flipFlop(Supplier, Supplier)} so the
+     * reversed case is also checked.
+     *
+     * @param leftExpression this expression (expected to be a hash aggregation plan)
+     * @param rightExpression other expression (expected to be a streaming aggregation plan)
+     * @return {@code OptionalInt.of(-1)} to prefer the hash aggregation plan (left), {@code OptionalInt.of(1)} to
+     *         prefer the streaming aggregation plan (right), or {@code OptionalInt.empty()} if the expressions are not
+     *         a hash aggregation vs streaming aggregation pair
+     */
+    private static OptionalInt compareHashAggregationOperator(@Nonnull final RelationalExpression leftExpression,
+                                                              @Nonnull final RelationalExpression rightExpression) {
+        if (!(leftExpression instanceof RecordQueryHashAggregationPlan) ||
+                !(rightExpression instanceof RecordQueryStreamingAggregationPlan)) {
+            return OptionalInt.empty();
+        }
+        final RecordQueryStreamingAggregationPlan streamingAggregationPlan = (RecordQueryStreamingAggregationPlan)rightExpression;
+        return streamingAggregationPlan.getChild() instanceof RecordQuerySortOnValuesPlan ? OptionalInt.of(-1) : OptionalInt.of(1);
+    }
+
     /** First evaluates {@code variantA} which compares
      * {@code (a, b)} in some specific way. If that yields a result, it is returned directly. Otherwise, evaluates
      * {@code variantB} which compares {@code (b, a)} in the same way; if that yields a result, its sign is negated
@@ -32,13 +32,16 @@ import com.apple.foundationdb.record.query.plan.cascades.rules.ImplementDistinct
 import com.apple.foundationdb.record.query.plan.cascades.rules.ImplementDistinctUnionRule;
 import com.apple.foundationdb.record.query.plan.cascades.rules.ImplementExplodeRule;
 import com.apple.foundationdb.record.query.plan.cascades.rules.ImplementFilterRule;
+import com.apple.foundationdb.record.query.plan.cascades.rules.ImplementHashJoinRule;
 import com.apple.foundationdb.record.query.plan.cascades.rules.ImplementInJoinRule;
 import com.apple.foundationdb.record.query.plan.cascades.rules.ImplementInUnionRule;
 import com.apple.foundationdb.record.query.plan.cascades.rules.ImplementInsertRule;
 import com.apple.foundationdb.record.query.plan.cascades.rules.ImplementIntersectionRule;
+import com.apple.foundationdb.record.query.plan.cascades.rules.ImplementHashAggregationRule;
 import com.apple.foundationdb.record.query.plan.cascades.rules.ImplementNestedLoopJoinRule;
 import com.apple.foundationdb.record.query.plan.cascades.rules.ImplementRecursiveLevelUnionRule;
 import com.apple.foundationdb.record.query.plan.cascades.rules.ImplementSimpleSelectRule;
+import com.apple.foundationdb.record.query.plan.cascades.rules.ImplementSortRule;
 import com.apple.foundationdb.record.query.plan.cascades.rules.ImplementStreamingAggregationRule;
 import com.apple.foundationdb.record.query.plan.cascades.rules.ImplementTableFunctionRule;
 import com.apple.foundationdb.record.query.plan.cascades.rules.ImplementTempTableInsertRule;
@@ -147,6 +150,7 @@ public class PlanningRuleSet extends CascadesRuleSet {
             new ImplementDistinctRule(),
             new ImplementUniqueRule(),
             new RemoveSortRule(),
+            new ImplementSortRule(),
             new PushDistinctBelowFilterRule(),
             new MergeFetchIntoCoveringIndexRule(),
             new PushInJoinThroughFetchRule<>(RecordQueryInValuesJoinPlan.class),
@@ -165,7 +169,9 @@ public class PlanningRuleSet extends CascadesRuleSet {
             new ImplementSimpleSelectRule(),
             new ImplementExplodeRule(),
             new ImplementNestedLoopJoinRule(),
+            new ImplementHashJoinRule(),
             new ImplementStreamingAggregationRule(),
+            new ImplementHashAggregationRule(),
             new ImplementDeleteRule(),
             new ImplementInsertRule(),
             new ImplementTempTableInsertRule(),
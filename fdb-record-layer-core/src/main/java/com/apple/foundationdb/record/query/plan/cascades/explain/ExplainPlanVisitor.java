@@ -47,6 +47,8 @@ import com.apple.foundationdb.record.query.plan.plans.RecordQueryFetchFromPartia
 import com.apple.foundationdb.record.query.plan.plans.RecordQueryFilterPlan;
 import com.apple.foundationdb.record.query.plan.plans.RecordQueryFirstOrDefaultPlan;
 import com.apple.foundationdb.record.query.plan.plans.RecordQueryFlatMapPlan;
+import com.apple.foundationdb.record.query.plan.plans.RecordQueryHashAggregationPlan;
+import com.apple.foundationdb.record.query.plan.plans.RecordQueryHashJoinPlan;
 import com.apple.foundationdb.record.query.plan.plans.RecordQueryInComparandJoinPlan;
 import com.apple.foundationdb.record.query.plan.plans.RecordQueryInJoinPlan;
 import com.apple.foundationdb.record.query.plan.plans.RecordQueryInParameterJoinPlan;
@@ -86,6 +88,7 @@ import com.apple.foundationdb.record.query.plan.plans.RecordQueryUpdatePlan;
 import com.apple.foundationdb.record.query.plan.plans.TempTableInsertPlan;
 import com.apple.foundationdb.record.query.plan.plans.TempTableScanPlan;
 import com.apple.foundationdb.record.query.plan.sorting.RecordQueryDamPlan;
+import com.apple.foundationdb.record.query.plan.sorting.RecordQuerySortOnValuesPlan;
 import com.apple.foundationdb.record.query.plan.sorting.RecordQuerySortPlan;
 import com.google.common.base.Verify;
 import com.google.common.collect.ImmutableList;
@@ -94,6 +97,7 @@ import javax.annotation.Nonnull;
 import java.util.Arrays;
 import java.util.List;
 import java.util.function.Supplier;
+import java.util.stream.IntStream;
 
 /**
  * Visitor that produces a string representation of a {@link RecordQueryPlan}. This can be used as a
@@ -315,6 +319,31 @@ public class ExplainPlanVisitor extends ExplainTokens implements RecordQueryPlan
                 .addWhitespace().addClosingBrace();
     }
 
+    @Nonnull
+    @Override
+    public ExplainTokens visitHashJoinPlan(@Nonnull final RecordQueryHashJoinPlan hashJoinPlan) {
+        final var probeQuantifier = hashJoinPlan.getProbeQuantifier();
+        visit(probeQuantifier.getRangesOverPlan());
+        pipe().addKeyword("HASHJOIN").addWhitespace().addAliasDefinition(probeQuantifier.getAlias()).addWhitespace()
+                .addToString("->").addWhitespace().addOpeningBrace().addLinebreakOrWhitespace();
+        final var buildQuantifier = hashJoinPlan.getBuildQuantifier();
+        final var probeKeyValues = hashJoinPlan.getProbeKeyValues();
+        final var buildKeyValues = hashJoinPlan.getBuildKeyValues();
+        return visit(buildQuantifier.getRangesOverPlan())
+                .addWhitespace().addKeyword("AS").addWhitespace().addAliasDefinition(buildQuantifier.getAlias())
+                .addLinebreakOrWhitespace().addKeyword("ON").addWhitespace()
+                .addSequence(() -> new ExplainTokens().addWhitespace().addKeyword("AND").addWhitespace(),
+                        () -> IntStream.range(0, probeKeyValues.size())
+                                .mapToObj(i -> new ExplainTokens()
+                                        .addNested(probeKeyValues.get(i).explain().getExplainTokens())
+                                        .addWhitespace().addToString("=").addWhitespace()
+                                        .addNested(buildKeyValues.get(i).explain().getExplainTokens()))
+                                .iterator())
+                .addLinebreakOrWhitespace().addKeyword("RETURN").addWhitespace()
+                .addNested(hashJoinPlan.getResultValue().explain().getExplainTokens())
+                .addWhitespace().addClosingBrace();
+    }
+
     @Nonnull
     private ExplainTokens visitInJoinPlan(@Nonnull final RecordQueryInJoinPlan inJoinPlan) {
         final var inSource = inJoinPlan.getInSource();
@@ -553,6 +582,19 @@ public class ExplainPlanVisitor extends ExplainTokens implements RecordQueryPlan
         return visitAndJoin(() -> new ExplainTokens().addCommaAndWhiteSpace(), selectorPlan.getChildren());
     }
 
+    @Nonnull
+    @Override
+    public ExplainTokens visitHashAggregationPlan(@Nonnull final RecordQueryHashAggregationPlan hashAggregationPlan) {
+        visit(hashAggregationPlan.getChild());
+        pipe().addKeyword("HASH").addWhitespace().addKeyword("AGG").addWhitespace().addPush()
+                .addCurrentAliasDefinition(hashAggregationPlan.getInner().getAlias())
+                .addNested(hashAggregationPlan.getAggregateValue().explain().getExplainTokens())
+                .addWhitespace().addKeyword("GROUP").addWhitespace().addKeyword("BY").addWhitespace()
+                .addNested(hashAggregationPlan.getGroupingValue().explain().getExplainTokens());
+        addPop();
+        return this;
+    }
+
     @Nonnull
     @Override
     public ExplainTokens visitStreamingAggregationPlan(@Nonnull final RecordQueryStreamingAggregationPlan streamingAggregationPlan) {
@@ -693,6 +735,19 @@ public class ExplainPlanVisitor extends ExplainTokens implements RecordQueryPlan
                 .addToString(sortPlan.getKey());
     }
 
+    @Nonnull
+    @Override
+    public ExplainTokens visitSortOnValuesPlan(@Nonnull final RecordQuerySortOnValuesPlan sortOnValuesPlan) {
+        visit(sortOnValuesPlan.getChild());
+        return pipe().addKeyword("SORT").addWhitespace().addKeyword("BY").addWhitespace()
+                .addSequence(() -> new ExplainTokens().addCommaAndWhiteSpace(),
+                        () -> sortOnValuesPlan.getOrderingParts().stream()
+                                .map(orderingPart -> new ExplainTokens()
+                                        .addNested(orderingPart.getValue().explain().getExplainTokens())
+                                        .addToString(orderingPart.getSortOrder().getArrowIndicator()))
+                                .iterator());
+    }
+
     @Nonnull
     @Override
     public ExplainTokens visitTempTableScanPlan(@Nonnull final TempTableScanPlan tempTableScanPlan) {
@@ -49,6 +49,7 @@ import com.apple.foundationdb.record.query.plan.plans.RecordQueryFetchFromPartia
 import com.apple.foundationdb.record.query.plan.plans.RecordQueryFilterPlan;
 import com.apple.foundationdb.record.query.plan.plans.RecordQueryFirstOrDefaultPlan;
 import com.apple.foundationdb.record.query.plan.plans.RecordQueryFlatMapPlan;
+import com.apple.foundationdb.record.query.plan.plans.RecordQueryHashAggregationPlan;
 import com.apple.foundationdb.record.query.plan.plans.RecordQueryInComparandJoinPlan;
 import com.apple.foundationdb.record.query.plan.plans.RecordQueryInJoinPlan;
 import com.apple.foundationdb.record.query.plan.plans.RecordQueryInParameterJoinPlan;
@@ -743,6 +744,11 @@ public class RecordQueryPlanMatchers {
                 downstream);
     }
 
+    @Nonnull
+    public static BindingMatcher<RecordQueryHashAggregationPlan> hashAggregationPlan(@Nonnull final BindingMatcher<? extends RecordQueryPlan> downstream) {
+        return childrenPlans(RecordQueryHashAggregationPlan.class, all(downstream));
+    }
+
     @Nonnull
     public static BindingMatcher<RecordQueryAggregateIndexPlan> aggregateIndexPlan() {
         return ofTypeOwning(RecordQueryAggregateIndexPlan.class, CollectionMatcher.empty());
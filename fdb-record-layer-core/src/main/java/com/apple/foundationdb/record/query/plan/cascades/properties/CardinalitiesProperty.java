@@ -68,6 +68,8 @@ import com.apple.foundationdb.record.query.plan.plans.RecordQueryFetchFromPartia
 import com.apple.foundationdb.record.query.plan.plans.RecordQueryFilterPlan;
 import com.apple.foundationdb.record.query.plan.plans.RecordQueryFirstOrDefaultPlan;
 import com.apple.foundationdb.record.query.plan.plans.RecordQueryFlatMapPlan;
+import com.apple.foundationdb.record.query.plan.plans.RecordQueryHashAggregationPlan;
+import com.apple.foundationdb.record.query.plan.plans.RecordQueryHashJoinPlan;
 import com.apple.foundationdb.record.query.plan.plans.RecordQueryInComparandJoinPlan;
 import com.apple.foundationdb.record.query.plan.plans.RecordQueryInParameterJoinPlan;
 import com.apple.foundationdb.record.query.plan.plans.RecordQueryInUnionOnKeyExpressionPlan;
@@ -101,6 +103,7 @@ import com.apple.foundationdb.record.query.plan.plans.RecordQueryUpdatePlan;
 import com.apple.foundationdb.record.query.plan.plans.TempTableInsertPlan;
 import com.apple.foundationdb.record.query.plan.plans.TempTableScanPlan;
 import com.apple.foundationdb.record.query.plan.sorting.RecordQueryDamPlan;
+import com.apple.foundationdb.record.query.plan.sorting.RecordQuerySortOnValuesPlan;
 import com.apple.foundationdb.record.query.plan.sorting.RecordQuerySortPlan;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Verify;
@@ -479,6 +482,28 @@ public class CardinalitiesProperty implements ExpressionProperty<CardinalitiesPr
             return outerCardinalities.times(innerCardinalities);
         }
 
+        @Nonnull
+        @Override
+        public Cardinalities visitRecordQueryHashJoinPlan(@Nonnull final RecordQueryHashJoinPlan hashJoinPlan) {
+            final var fromChildren = fromChildren(hashJoinPlan);
+            final var probeCardinalities = fromChildren.get(0);
+            final var buildCardinalities = fromChildren.get(1);
+
+            // the join predicate is applied by the join itself, so any probe record may not find a match
+            return new Cardinalities(Cardinality.ofCardinality(0L),
+                    probeCardinalities.getMaxCardinality().times(buildCardinalities.getMaxCardinality()));
+        }
+
+        @Nonnull
+        @Override
+        public Cardinalities visitRecordQueryHashAggregationPlan(@Nonnull final RecordQueryHashAggregationPlan element) {
+            // if the grouping value is constant, the cardinality ranges between 0 and 1.
+            if (element.getGroupingValue().isConstant()) {
+                return new Cardinalities(Cardinality.ofCardinality(0L), Cardinality.ofCardinality(1L));
+            }
+            return Cardinalities.unknownMaxCardinality();
+        }
+
         @Nonnull
         @Override
         public Cardinalities visitRecordQueryStreamingAggregationPlan(@Nonnull final RecordQueryStreamingAggregationPlan element) {
@@ -692,6 +717,12 @@ public class CardinalitiesProperty implements ExpressionProperty<CardinalitiesPr
             return fromChild(querySortPlan);
         }
 
+        @Nonnull
+        @Override
+        public Cardinalities visitRecordQuerySortOnValuesPlan(@Nonnull final RecordQuerySortOnValuesPlan sortOnValuesPlan) {
+            return fromChild(sortOnValuesPlan);
+        }
+
         @Nonnull
         @Override
         public Cardinalities visitRecordQueryRecursiveDfsJoinPlan(@Nonnull final RecordQueryRecursiveDfsJoinPlan recursiveDfsJoinPlan) {
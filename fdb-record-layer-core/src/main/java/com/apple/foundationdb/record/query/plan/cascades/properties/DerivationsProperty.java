@@ -55,6 +55,8 @@ import com.apple.foundationdb.record.query.plan.plans.RecordQueryFetchFromPartia
 import com.apple.foundationdb.record.query.plan.plans.RecordQueryFilterPlan;
 import com.apple.foundationdb.record.query.plan.plans.RecordQueryFirstOrDefaultPlan;
 import com.apple.foundationdb.record.query.plan.plans.RecordQueryFlatMapPlan;
+import com.apple.foundationdb.record.query.plan.plans.RecordQueryHashAggregationPlan;
+import com.apple.foundationdb.record.query.plan.plans.RecordQueryHashJoinPlan;
 import com.apple.foundationdb.record.query.plan.plans.RecordQueryInComparandJoinPlan;
 import com.apple.foundationdb.record.query.plan.plans.RecordQueryInJoinPlan;
 import com.apple.foundationdb.record.query.plan.plans.RecordQueryInParameterJoinPlan;
@@ -94,6 +96,7 @@ import com.apple.foundationdb.record.query.plan.plans.RecordQueryUpdatePlan;
 import com.apple.foundationdb.record.query.plan.plans.TempTableInsertPlan;
 import com.apple.foundationdb.record.query.plan.plans.TempTableScanPlan;
 import com.apple.foundationdb.record.query.plan.sorting.RecordQueryDamPlan;
+import com.apple.foundationdb.record.query.plan.sorting.RecordQuerySortOnValuesPlan;
 import com.apple.foundationdb.record.query.plan.sorting.RecordQuerySortPlan;
 import com.google.common.base.Verify;
 import com.google.common.collect.ImmutableList;
@@ -614,8 +617,19 @@ public class DerivationsProperty implements ExpressionProperty<DerivationsProper
         @Nonnull
         @Override
         public Derivations visitFlatMapPlan(@Nonnull final RecordQueryFlatMapPlan flatMapPlan) {
-            final var outerQuantifier = flatMapPlan.getOuterQuantifier();
-            final var innerQuantifier = flatMapPlan.getInnerQuantifier();
+            return derivationsOfJoin(flatMapPlan, flatMapPlan.getOuterQuantifier(), flatMapPlan.getInnerQuantifier());
+        }
+
+        @Nonnull
+        @Override
+        public Derivations visitHashJoinPlan(@Nonnull final RecordQueryHashJoinPlan hashJoinPlan) {
+            return derivationsOfJoin(hashJoinPlan, hashJoinPlan.getProbeQuantifier(), hashJoinPlan.getBuildQuantifier());
+        }
+
+        @Nonnull
+        private Derivations derivationsOfJoin(@Nonnull final RecordQueryPlan joinPlan,
+                                              @Nonnull final Quantifier.Physical outerQuantifier,
+                                              @Nonnull final Quantifier.Physical innerQuantifier) {
             final var outerDerivations = derivationsFromQuantifier(outerQuantifier);
             final var innerDerivations = derivationsFromQuantifier(innerQuantifier);
 
@@ -637,7 +651,7 @@ public class DerivationsProperty implements ExpressionProperty<DerivationsProper
                 }
             }
 
-            final var resultValue = flatMapPlan.getResultValue();
+            final var resultValue = joinPlan.getResultValue();
             final var decorrelatedResultValuesBuilder = ImmutableList.<Value>builder();
             for (final var outerResultValue : outerDerivations.getResultValues()) {
                 for (final var innerResultValue : innerDerivations.getResultValues()) {
@@ -675,6 +689,41 @@ public class DerivationsProperty implements ExpressionProperty<DerivationsProper
                             .build());
         }
 
+        @Nonnull
+        @Override
+        public Derivations visitHashAggregationPlan(@Nonnull final RecordQueryHashAggregationPlan hashAggregationPlan) {
+            //
+            // get the result value and translate the groupings and aggregations into it
+            //
+            final var resultValue = hashAggregationPlan.getResultValue();
+            final var resultTranslationMap = TranslationMap.regularBuilder();
+            resultTranslationMap
+                    .when(hashAggregationPlan.getGroupingKeyAlias())
+                    .then((sourceAlias, leafValue) -> hashAggregationPlan.getGroupingValue());
+            resultTranslationMap.when(hashAggregationPlan.getAggregateAlias())
+                    .then((sourceAlias, leafValue) -> hashAggregationPlan.getAggregateValue());
+
+            final var expandedResultValue = resultValue.translateCorrelations(resultTranslationMap.build(), true);
+            final var childDerivations = derivationsFromSingleChild(hashAggregationPlan);
+            final var innerQuantifier = hashAggregationPlan.getInner();
+            final var decorrelatedResultValuesBuilder = ImmutableList.<Value>builder();
+            for (final var childResultValue : childDerivations.getResultValues()) {
+                final var translationMap = TranslationMap.regularBuilder()
+                        .when(innerQuantifier.getAlias()).then((sourceAlias, leafValue) -> childResultValue)
+                        .build();
+                final var decorrelatedExpandedResultValue = expandedResultValue.translateCorrelations(translationMap, true);
+                decorrelatedResultValuesBuilder.add(decorrelatedExpandedResultValue);
+            }
+
+            final var decorrelatedResultValues = decorrelatedResultValuesBuilder.build();
+
+            return new Derivations(decorrelatedResultValues,
+                    ImmutableList.<Value>builder()
+                            .addAll(decorrelatedResultValues)
+                            .addAll(childDerivations.getLocalValues())
+                            .build());
+        }
+
         @Nonnull
         @Override
         public Derivations visitStreamingAggregationPlan(@Nonnull final RecordQueryStreamingAggregationPlan streamingAggregationPlan) {
@@ -846,6 +895,12 @@ public class DerivationsProperty implements ExpressionProperty<DerivationsProper
             return derivationsFromSingleChild(sortPlan);
         }
 
+        @Nonnull
+        @Override
+        public Derivations visitSortOnValuesPlan(@Nonnull final RecordQuerySortOnValuesPlan sortOnValuesPlan) {
+            return derivationsFromSingleChild(sortOnValuesPlan);
+        }
+
         @Nonnull
         @Override
         public Derivations visitRecursiveDfsJoinPlan(@Nonnull final RecordQueryRecursiveDfsJoinPlan recursiveDfsJoinPlan) {
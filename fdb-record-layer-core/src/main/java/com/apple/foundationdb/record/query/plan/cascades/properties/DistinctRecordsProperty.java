@@ -39,6 +39,8 @@ import com.apple.foundationdb.record.query.plan.plans.RecordQueryFetchFromPartia
 import com.apple.foundationdb.record.query.plan.plans.RecordQueryFilterPlan;
 import com.apple.foundationdb.record.query.plan.plans.RecordQueryFirstOrDefaultPlan;
 import com.apple.foundationdb.record.query.plan.plans.RecordQueryFlatMapPlan;
+import com.apple.foundationdb.record.query.plan.plans.RecordQueryHashAggregationPlan;
+import com.apple.foundationdb.record.query.plan.plans.RecordQueryHashJoinPlan;
 import com.apple.foundationdb.record.query.plan.plans.RecordQueryInComparandJoinPlan;
 import com.apple.foundationdb.record.query.plan.plans.RecordQueryInJoinPlan;
 import com.apple.foundationdb.record.query.plan.plans.RecordQueryInParameterJoinPlan;
@@ -74,6 +76,7 @@ import com.apple.foundationdb.record.query.plan.plans.RecordQueryUnorderedPrimar
 import com.apple.foundationdb.record.query.plan.plans.RecordQueryUnorderedUnionPlan;
 import com.apple.foundationdb.record.query.plan.plans.RecordQueryUpdatePlan;
 import com.apple.foundationdb.record.query.plan.sorting.RecordQueryDamPlan;
+import com.apple.foundationdb.record.query.plan.sorting.RecordQuerySortOnValuesPlan;
 import com.apple.foundationdb.record.query.plan.sorting.RecordQuerySortPlan;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Iterables;
@@ -355,6 +358,18 @@ public class DistinctRecordsProperty implements ExpressionProperty<Boolean> {
             return false;
         }
 
+        @Nonnull
+        @Override
+        public Boolean visitHashJoinPlan(@Nonnull final RecordQueryHashJoinPlan element) {
+            return false;
+        }
+
+        @Nonnull
+        @Override
+        public Boolean visitHashAggregationPlan(@Nonnull final RecordQueryHashAggregationPlan element) {
+            return false;
+        }
+
         @Nonnull
         @Override
         public Boolean visitStreamingAggregationPlan(@Nonnull final RecordQueryStreamingAggregationPlan element) {
@@ -403,6 +418,12 @@ public class DistinctRecordsProperty implements ExpressionProperty<Boolean> {
             return distinctRecordsFromSingleChild(sortPlan);
         }
 
+        @Nonnull
+        @Override
+        public Boolean visitSortOnValuesPlan(@Nonnull final RecordQuerySortOnValuesPlan sortOnValuesPlan) {
+            return distinctRecordsFromSingleChild(sortOnValuesPlan);
+        }
+
         @Nonnull
         @Override
         public Boolean visitRecursiveDfsJoinPlan(@Nonnull final RecordQueryRecursiveDfsJoinPlan recursiveDfsJoinPlan) {
@@ -55,6 +55,8 @@ import com.apple.foundationdb.record.query.plan.plans.RecordQueryFetchFromPartia
 import com.apple.foundationdb.record.query.plan.plans.RecordQueryFilterPlan;
 import com.apple.foundationdb.record.query.plan.plans.RecordQueryFirstOrDefaultPlan;
 import com.apple.foundationdb.record.query.plan.plans.RecordQueryFlatMapPlan;
+import com.apple.foundationdb.record.query.plan.plans.RecordQueryHashAggregationPlan;
+import com.apple.foundationdb.record.query.plan.plans.RecordQueryHashJoinPlan;
 import com.apple.foundationdb.record.query.plan.plans.RecordQueryInComparandJoinPlan;
 import com.apple.foundationdb.record.query.plan.plans.RecordQueryInJoinPlan;
 import com.apple.foundationdb.record.query.plan.plans.RecordQueryInParameterJoinPlan;
@@ -90,6 +92,7 @@ import com.apple.foundationdb.record.query.plan.plans.RecordQueryUnorderedPrimar
 import com.apple.foundationdb.record.query.plan.plans.RecordQueryUnorderedUnionPlan;
 import com.apple.foundationdb.record.query.plan.plans.RecordQueryUpdatePlan;
 import com.apple.foundationdb.record.query.plan.sorting.RecordQueryDamPlan;
+import com.apple.foundationdb.record.query.plan.sorting.RecordQuerySortOnValuesPlan;
 import com.apple.foundationdb.record.query.plan.sorting.RecordQuerySortPlan;
 import com.apple.foundationdb.record.util.pair.Pair;
 import com.google.common.base.Verify;
@@ -573,20 +576,37 @@ public class OrderingProperty implements ExpressionProperty<Ordering> {
         @Nonnull
         @Override
         public Ordering visitFlatMapPlan(@Nonnull final RecordQueryFlatMapPlan flatMapPlan) {
-            final var orderingsFromChildren = orderingsFromChildren(flatMapPlan);
-            final var correlatedTo = flatMapPlan.getCorrelatedTo();
-            final var resultValue = flatMapPlan.getResultValue();
+            return orderingOfJoin(flatMapPlan, flatMapPlan.getOuterQuantifier(), flatMapPlan.getInnerQuantifier());
+        }
+
+        @Nonnull
+        @Override
+        public Ordering visitHashJoinPlan(@Nonnull final RecordQueryHashJoinPlan hashJoinPlan) {
+            //
+            // The hash join returns the matches of the build side in the order of the build side for each record
+            // of the probe side, i.e. it orders just like a nested loop join over the probe and the build side.
+            //
+            return orderingOfJoin(hashJoinPlan, hashJoinPlan.getProbeQuantifier(), hashJoinPlan.getBuildQuantifier());
+        }
+
+        @Nonnull
+        private Ordering orderingOfJoin(@Nonnull final RecordQueryPlan joinPlan,
+                                        @Nonnull final Quantifier.Physical outerQuantifier,
+                                        @Nonnull final Quantifier.Physical innerQuantifier) {
+            final var orderingsFromChildren = orderingsFromChildren(joinPlan);
+            final var correlatedTo = joinPlan.getCorrelatedTo();
+            final var resultValue = joinPlan.getResultValue();
 
             final var outerOrdering = orderingsFromChildren.get(0)
-                    .pullUp(resultValue, EvaluationContext.empty(), AliasMap.ofAliases(flatMapPlan.getOuterQuantifier().getAlias(), Quantifier.current()), correlatedTo);
+                    .pullUp(resultValue, EvaluationContext.empty(), AliasMap.ofAliases(outerQuantifier.getAlias(), Quantifier.current()), correlatedTo);
             final var innerOrdering = orderingsFromChildren.get(1)
-                    .pullUp(resultValue, EvaluationContext.empty(), AliasMap.ofAliases(flatMapPlan.getInnerQuantifier().getAlias(), Quantifier.current()), correlatedTo);
+                    .pullUp(resultValue, EvaluationContext.empty(), AliasMap.ofAliases(innerQuantifier.getAlias(), Quantifier.current()), correlatedTo);
 
             //
             // For now, we special-case where we can find exactly one _regular_ quantifier and only
             // another quantifier with a max cardinality of 1.
             //
-            final var outerCardinalities = cardinalities().evaluate(flatMapPlan.getOuterQuantifier().getRangesOver());
+            final var outerCardinalities = cardinalities().evaluate(outerQuantifier.getRangesOver());
             final var outerMaxCardinality = outerCardinalities.getMaxCardinality();
             if (!outerMaxCardinality.isUnknown() && outerMaxCardinality.getCardinality() == 1L) {
                 // outer max cardinality is proven to be 1 row
@@ -604,6 +624,13 @@ public class OrderingProperty implements ExpressionProperty<Ordering> {
             return Ordering.concatOrderings(outerOrdering, innerOrdering);
         }
 
+        @Nonnull
+        @Override
+        public Ordering visitHashAggregationPlan(@Nonnull final RecordQueryHashAggregationPlan hashAggregationPlan) {
+            // the groups are returned in no particular order
+            return Ordering.empty();
+        }
+
         @Nonnull
         @Override
         public Ordering visitStreamingAggregationPlan(@Nonnull final RecordQueryStreamingAggregationPlan streamingAggregationPlan) {
@@ -732,6 +759,33 @@ public class OrderingProperty implements ExpressionProperty<Ordering> {
             return Ordering.empty();
         }
 
+        @Nonnull
+        @Override
+        public Ordering visitSortOnValuesPlan(@Nonnull final RecordQuerySortOnValuesPlan sortOnValuesPlan) {
+            //
+            // The sort orders its results by the values sorted by. The values that are fixed by the child remain
+            // fixed, as does the distinctness of the results.
+            //
+            final var childOrdering = orderingFromSingleChild(sortOnValuesPlan);
+            final var bindingMapBuilder = ImmutableSetMultimap.<Value, Binding>builder();
+            final var orderingValuesBuilder = ImmutableList.<Value>builder();
+            final var seenValues = Sets.<Value>newHashSet();
+            for (final var orderingPart : sortOnValuesPlan.getOrderingParts()) {
+                final var value = orderingPart.getValue();
+                if (seenValues.add(value)) {
+                    bindingMapBuilder.put(value, Binding.sorted(orderingPart.getSortOrder()));
+                    orderingValuesBuilder.add(value);
+                }
+            }
+            for (final var entry : childOrdering.getFixedBindingMap().entries()) {
+                if (!seenValues.contains(entry.getKey())) {
+                    bindingMapBuilder.put(entry);
+                }
+            }
+            return Ordering.ofOrderingSequence(bindingMapBuilder.build(), orderingValuesBuilder.build(),
+                    childOrdering.isDistinct());
+        }
+
         @Nonnull
         @Override
         public Ordering visitRecursiveDfsJoinPlan(@Nonnull final RecordQueryRecursiveDfsJoinPlan recursiveDfsJoinPlan) {
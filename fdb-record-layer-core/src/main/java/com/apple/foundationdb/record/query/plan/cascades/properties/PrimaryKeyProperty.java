@@ -40,6 +40,8 @@ import com.apple.foundationdb.record.query.plan.plans.RecordQueryFetchFromPartia
 import com.apple.foundationdb.record.query.plan.plans.RecordQueryFilterPlan;
 import com.apple.foundationdb.record.query.plan.plans.RecordQueryFirstOrDefaultPlan;
 import com.apple.foundationdb.record.query.plan.plans.RecordQueryFlatMapPlan;
+import com.apple.foundationdb.record.query.plan.plans.RecordQueryHashAggregationPlan;
+import com.apple.foundationdb.record.query.plan.plans.RecordQueryHashJoinPlan;
 import com.apple.foundationdb.record.query.plan.plans.RecordQueryInComparandJoinPlan;
 import com.apple.foundationdb.record.query.plan.plans.RecordQueryInJoinPlan;
 import com.apple.foundationdb.record.query.plan.plans.RecordQueryInParameterJoinPlan;
@@ -75,6 +77,7 @@ import com.apple.foundationdb.record.query.plan.plans.RecordQueryUnorderedPrimar
 import com.apple.foundationdb.record.query.plan.plans.RecordQueryUnorderedUnionPlan;
 import com.apple.foundationdb.record.query.plan.plans.RecordQueryUpdatePlan;
 import com.apple.foundationdb.record.query.plan.sorting.RecordQueryDamPlan;
+import com.apple.foundationdb.record.query.plan.sorting.RecordQuerySortOnValuesPlan;
 import com.apple.foundationdb.record.query.plan.sorting.RecordQuerySortPlan;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Iterables;
@@ -380,6 +383,21 @@ public class PrimaryKeyProperty implements ExpressionProperty<Optional<List<Valu
             return Optional.empty();
         }
 
+        @Nonnull
+        @Override
+        public Optional<List<Value>> visitHashJoinPlan(@Nonnull final RecordQueryHashJoinPlan hashJoinPlan) {
+            if (hashJoinPlan.isInheritOuterRecordProperties()) {
+                return primaryKeyFromSingleQuantifier(hashJoinPlan.getProbeQuantifier());
+            }
+            return Optional.empty();
+        }
+
+        @Nonnull
+        @Override
+        public Optional<List<Value>> visitHashAggregationPlan(@Nonnull final RecordQueryHashAggregationPlan element) {
+            return Optional.empty();
+        }
+
         @Nonnull
         @Override
         public Optional<List<Value>> visitStreamingAggregationPlan(@Nonnull final RecordQueryStreamingAggregationPlan element) {
@@ -428,6 +446,12 @@ public class PrimaryKeyProperty implements ExpressionProperty<Optional<List<Valu
             return primaryKeyFromSingleChild(sortPlan);
         }
 
+        @Nonnull
+        @Override
+        public Optional<List<Value>> visitSortOnValuesPlan(@Nonnull final RecordQuerySortOnValuesPlan sortOnValuesPlan) {
+            return primaryKeyFromSingleChild(sortOnValuesPlan);
+        }
+
         @Nonnull
         @Override
         public Optional<List<Value>> visitRecursiveDfsJoinPlan(@Nonnull final RecordQueryRecursiveDfsJoinPlan recursiveDfsJoinPlan) {
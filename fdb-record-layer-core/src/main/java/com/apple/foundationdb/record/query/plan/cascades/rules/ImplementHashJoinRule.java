@@ -0,0 +1,322 @@
+/*
+ * ImplementHashJoinRule.java
+ *
+ * This source file is part of the FoundationDB open source project
+ *
+ * Copyright 2015-2026 Apple Inc. and the FoundationDB project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.apple.foundationdb.record.query.plan.cascades.rules;
+
+import com.apple.foundationdb.annotation.API;
+import com.apple.foundationdb.record.EvaluationContext;
+import com.apple.foundationdb.record.logging.KeyValueLogMessage;
+import com.apple.foundationdb.record.query.expressions.Comparisons;
+import com.apple.foundationdb.record.query.plan.cascades.AliasMap;
+import com.apple.foundationdb.record.query.plan.cascades.CorrelationIdentifier;
+import com.apple.foundationdb.record.query.plan.cascades.ImplementationCascadesRule;
+import com.apple.foundationdb.record.query.plan.cascades.ImplementationCascadesRuleCall;
+import com.apple.foundationdb.record.query.plan.cascades.Ordering;
+import com.apple.foundationdb.record.query.plan.cascades.PlanPartition;
+import com.apple.foundationdb.record.query.plan.cascades.PlanPartitions;
+import com.apple.foundationdb.record.query.plan.cascades.Quantifier;
+import com.apple.foundationdb.record.query.plan.cascades.Reference;
+import com.apple.foundationdb.record.query.plan.cascades.RequestedOrdering;
+import com.apple.foundationdb.record.query.plan.cascades.RequestedOrderingConstraint;
+import com.apple.foundationdb.record.query.plan.cascades.debug.Debugger;
+import com.apple.foundationdb.record.query.plan.cascades.expressions.SelectExpression;
+import com.apple.foundationdb.record.query.plan.cascades.matching.structure.BindingMatcher;
+import com.apple.foundationdb.record.query.plan.cascades.predicates.QueryPredicate;
+import com.apple.foundationdb.record.query.plan.cascades.predicates.ValuePredicate;
+import com.apple.foundationdb.record.query.plan.cascades.properties.CardinalitiesProperty;
+import com.apple.foundationdb.record.query.plan.cascades.properties.OrderingProperty;
+import com.apple.foundationdb.record.query.plan.cascades.typing.Type;
+import com.apple.foundationdb.record.query.plan.cascades.values.Value;
+import com.apple.foundationdb.record.query.plan.plans.RecordQueryHashJoinPlan;
+import com.apple.foundationdb.record.query.plan.plans.RecordQueryPlan;
+import com.apple.foundationdb.record.query.plan.plans.RecordQueryPredicatesFilterPlan;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Sets;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.List;
+import java.util.Set;
+
+import static com.apple.foundationdb.record.query.plan.cascades.matching.structure.MultiMatcher.all;
+import static com.apple.foundationdb.record.query.plan.cascades.matching.structure.PlanPartitionMatchers.anyPlanPartition;
+import static com.apple.foundationdb.record.query.plan.cascades.matching.structure.PlanPartitionMatchers.planPartitions;
+import static com.apple.foundationdb.record.query.plan.cascades.matching.structure.PlanPartitionMatchers.rollUpPartitionsTo;
+import static com.apple.foundationdb.record.query.plan.cascades.matching.structure.QuantifierMatchers.anyQuantifierOverRef;
+import static com.apple.foundationdb.record.query.plan.cascades.matching.structure.RelationalExpressionMatchers.canBeImplemented;
+import static com.apple.foundationdb.record.query.plan.cascades.matching.structure.RelationalExpressionMatchers.selectExpression;
+import static com.apple.foundationdb.record.query.plan.cascades.matching.structure.SetMatcher.exactlyInAnyOrder;
+
+/**
+ * A rule that implements an equi-join of two uncorrelated, (already implemented) children using a
+ * {@link RecordQueryHashJoinPlan}. The rule only fires if the planner configuration enables hash joins and if the
+ * predicates of the {@link SelectExpression} contain at least one equality comparison between a value that only
+ * depends on one child and a value that only depends on the other child. All other predicates need to depend on
+ * at most one of the children; they are then applied as filters underneath the join.
+ * <p>
+ * As the rule matches its children in any order, each child is considered both as the probe and as the build side.
+ * The hash join preserves the order of its probe side, so only probe partitions whose ordering satisfies the requested
+ * ordering are used, while the build side is always rolled up into a single partition.
+ * </p>
+ * <p>
+ * The build side is read completely, without scan or time limits, whenever the join is started or resumed from a
+ * continuation. To keep that bounded, only build plans whose maximum cardinality is known not to exceed the configured
+ * maximum build size (for example, because they are restricted to a single primary key) are considered.
+ * </p>
+ */
+@API(API.Status.EXPERIMENTAL)
+@SuppressWarnings("PMD.TooManyStaticImports")
+public class ImplementHashJoinRule extends ImplementationCascadesRule<SelectExpression> {
+    @Nonnull
+    private static final Logger logger = LoggerFactory.getLogger(ImplementHashJoinRule.class);
+
+    @Nonnull
+    private static final Set<Type.TypeCode> HASHABLE_TYPE_CODES =
+            ImmutableSet.of(Type.TypeCode.BOOLEAN, Type.TypeCode.BYTES, Type.TypeCode.INT, Type.TypeCode.LONG,
+                    Type.TypeCode.STRING);
+
+    @Nonnull
+    private static final BindingMatcher<PlanPartition> probePlanPartitionsMatcher = anyPlanPartition();
+
+    @Nonnull
+    private static final BindingMatcher<Reference> probeReferenceMatcher =
+            planPartitions(rollUpPartitionsTo(all(probePlanPartitionsMatcher), OrderingProperty.ordering()));
+    @Nonnull
+    private static final BindingMatcher<Quantifier> probeQuantifierMatcher = anyQuantifierOverRef(probeReferenceMatcher);
+    @Nonnull
+    private static final BindingMatcher<PlanPartition> buildPlanPartitionsMatcher = anyPlanPartition();
+
+    @Nonnull
+    private static final BindingMatcher<Reference> buildReferenceMatcher =
+            planPartitions(rollUpPartitionsTo(all(buildPlanPartitionsMatcher), ImmutableSet.of()));
+    @Nonnull
+    private static final BindingMatcher<Quantifier> buildQuantifierMatcher = anyQuantifierOverRef(buildReferenceMatcher);
+    @Nonnull
+    private static final BindingMatcher<SelectExpression> root =
+            selectExpression(exactlyInAnyOrder(probeQuantifierMatcher, buildQuantifierMatcher)).where(canBeImplemented());
+
+    public ImplementHashJoinRule() {
+        super(root, ImmutableSet.of(RequestedOrderingConstraint.REQUESTED_ORDERING));
+    }
+
+    @Override
+    @SuppressWarnings({"java:S135", "java:S2629", "checkstyle:VariableDeclarationUsageDistance", "PMD.GuardLogStatement"})
+    public void onMatch(@Nonnull final ImplementationCascadesRuleCall call) {
+        final var plannerConfiguration = call.getContext().getPlannerConfiguration();
+        if (!plannerConfiguration.shouldPlanHashJoins()) {
+            return;
+        }
+        final var requestedOrderingsOptional = call.getPlannerConstraintMaybe(RequestedOrderingConstraint.REQUESTED_ORDERING);
+        if (requestedOrderingsOptional.isEmpty()) {
+            return;
+        }
+        final var requestedOrderings = requestedOrderingsOptional.get();
+        final var bindings = call.getBindings();
+        final var selectExpression = bindings.get(root);
+
+        final var probeQuantifier = bindings.get(probeQuantifierMatcher);
+        final var buildQuantifier = bindings.get(buildQuantifierMatcher);
+        if (!isPlainForEach(probeQuantifier) || !isPlainForEach(buildQuantifier)) {
+            // existential and null-on-empty semantics are not supported by the hash join
+            return;
+        }
+
+        final var probeReference = bindings.get(probeReferenceMatcher);
+        final var buildReference = bindings.get(buildReferenceMatcher);
+
+        final var probeAlias = probeQuantifier.getAlias();
+        final var buildAlias = buildQuantifier.getAlias();
+
+        final var fullCorrelationOrder =
+                selectExpression.getCorrelationOrder().getTransitiveClosure();
+        if (fullCorrelationOrder.get(probeAlias).contains(buildAlias) ||
+                fullCorrelationOrder.get(buildAlias).contains(probeAlias)) {
+            // the sides need to be independent of each other
+            return;
+        }
+        final var aliasToQuantifierMap = selectExpression.getAliasToQuantifierMap();
+
+        //
+        // Classify predicates according to their correlations. Predicates that only depend on one side are applied
+        // as a filter on that side. Predicates that depend on both sides must be equalities that can be used as
+        // join keys.
+        //
+        final var probePredicatesBuilder = ImmutableList.<QueryPredicate>builder();
+        final var buildPredicatesBuilder = ImmutableList.<QueryPredicate>builder();
+        final var probeKeyValuesBuilder = ImmutableList.<Value>builder();
+        final var buildKeyValuesBuilder = ImmutableList.<Value>builder();
+
+        for (final QueryPredicate predicate : selectExpression.getPredicates()) {
+            if (predicate.isIndexOnly()) {
+                return;
+            }
+            final var correlatedToInExpression =
+                    Sets.intersection(predicate.getCorrelatedTo(), aliasToQuantifierMap.keySet());
+            final var residualPredicate = predicate.toResidualPredicate();
+            if (!correlatedToInExpression.contains(buildAlias)) {
+                probePredicatesBuilder.add(residualPredicate);
+            } else if (!correlatedToInExpression.contains(probeAlias)) {
+                buildPredicatesBuilder.add(residualPredicate);
+            } else {
+                final var joinKeyValues = joinKeyValuesMaybe(residualPredicate, probeAlias, buildAlias);
+                if (joinKeyValues == null) {
+                    Debugger.withDebugger(debugger -> logger.debug(KeyValueLogMessage.of("predicate cannot be used for hash join", "predicate", predicate)));
+                    return;
+                }
+                probeKeyValuesBuilder.add(joinKeyValues.get(0));
+                buildKeyValuesBuilder.add(joinKeyValues.get(1));
+            }
+        }
+
+        final List<Value> probeKeyValues = probeKeyValuesBuilder.build();
+        if (probeKeyValues.isEmpty()) {
+            // a cross product, leave that to the nested loop join
+            return;
+        }
+        final List<Value> buildKeyValues = buildKeyValuesBuilder.build();
+        final List<QueryPredicate> probePredicates = probePredicatesBuilder.build();
+        final List<QueryPredicate> buildPredicates = buildPredicatesBuilder.build();
+
+        final var buildPlanPartitions = PlanPartitions.rollUpTo(bindings.getAll(buildPlanPartitionsMatcher), ImmutableSet.of());
+        final var maxBuildSize = plannerConfiguration.getHashJoinMaxBuildSize();
+
+        for (final RequestedOrdering requestedOrdering : requestedOrderings) {
+            for (final PlanPartition probePlanPartition : satisfyingProbePartitions(requestedOrdering, selectExpression, probeAlias,
+                    bindings.getAll(probePlanPartitionsMatcher))) {
+                final Quantifier.Physical newProbeQuantifier = planPartitionToPhysical(call, probeQuantifier, probeReference, probePredicates, probePlanPartition);
+                for (final PlanPartition buildPlanPartition : buildPlanPartitions) {
+                    final PlanPartition smallBuildPlanPartition = buildPlanPartition.filter(plan -> isKnownToBeSmall(plan, maxBuildSize));
+                    if (smallBuildPlanPartition.getPlans().isEmpty()) {
+                        continue;
+                    }
+                    final Quantifier.Physical newBuildQuantifier = planPartitionToPhysical(call, buildQuantifier, buildReference, buildPredicates, smallBuildPlanPartition);
+                    call.yieldPlan(new RecordQueryHashJoinPlan(newProbeQuantifier, newBuildQuantifier, probeKeyValues,
+                            buildKeyValues, selectExpression.getResultValue(), false, maxBuildSize));
+                }
+            }
+        }
+    }
+
+    /**
+     * Check whether a plan is known to produce at most the given number of elements. The build side of a hash join is
+     * read in its entirety, ignoring any scan or time limits, every time the join is resumed; only plans whose maximum
+     * cardinality can be proven not to exceed the maximum build size can therefore be used as the build side.
+     * @param plan the plan
+     * @param maxBuildSize the maximum number of elements the build side may produce
+     * @return {@code true} if the maximum cardinality of {@code plan} is known and does not exceed {@code maxBuildSize}
+     */
+    private static boolean isKnownToBeSmall(@Nonnull final RecordQueryPlan plan, final int maxBuildSize) {
+        final CardinalitiesProperty.Cardinality maxCardinality = CardinalitiesProperty.cardinalities().evaluate(plan).getMaxCardinality();
+        return !maxCardinality.isUnknown() && maxCardinality.getCardinality() <= maxBuildSize;
+    }
+
+    private static boolean isPlainForEach(@Nonnull final Quantifier quantifier) {
+        return quantifier instanceof Quantifier.ForEach && !((Quantifier.ForEach)quantifier).isNullOnEmpty();
+    }
+
+    /**
+     * Extract the join keys from a predicate that depends on both sides of the join.
+     * @param predicate the predicate
+     * @param probeAlias the alias of the probe side
+     * @param buildAlias the alias of the build side
+     * @return a list containing the key value of the probe side and the key value of the build side, or {@code null}
+     *         if the predicate is not an equality that can be evaluated by hashing its operands
+     */
+    @Nullable
+    private static List<Value> joinKeyValuesMaybe(@Nonnull final QueryPredicate predicate,
+                                                  @Nonnull final CorrelationIdentifier probeAlias,
+                                                  @Nonnull final CorrelationIdentifier buildAlias) {
+        if (!(predicate instanceof ValuePredicate)) {
+            return null;
+        }
+        final var valuePredicate = (ValuePredicate)predicate;
+        final var comparison = valuePredicate.getComparison();
+        if (!(comparison instanceof Comparisons.ValueComparison) || comparison.getType() != Comparisons.Type.EQUALS) {
+            return null;
+        }
+        final var value = valuePredicate.getValue();
+        final var comparandValue = ((Comparisons.ValueComparison)comparison).getComparandValue();
+
+        //
+        // Both operands must produce values whose equality is the same as the equality of their Java
+        // representations, as that is what the hash table relies on.
+        //
+        final var valueType = value.getResultType();
+        final var comparandType = comparandValue.getResultType();
+        if (valueType.getTypeCode() != comparandType.getTypeCode() ||
+                !HASHABLE_TYPE_CODES.contains(valueType.getTypeCode())) {
+            return null;
+        }
+
+        if (isOnlyCorrelatedTo(value, probeAlias, buildAlias) && isOnlyCorrelatedTo(comparandValue, buildAlias, probeAlias)) {
+            return ImmutableList.of(value, comparandValue);
+        }
+        if (isOnlyCorrelatedTo(value, buildAlias, probeAlias) && isOnlyCorrelatedTo(comparandValue, probeAlias, buildAlias)) {
+            return ImmutableList.of(comparandValue, value);
+        }
+        return null;
+    }
+
+    private static boolean isOnlyCorrelatedTo(@Nonnull final Value value,
+                                              @Nonnull final CorrelationIdentifier alias,
+                                              @Nonnull final CorrelationIdentifier otherAlias) {
+        return value.isCorrelatedTo(alias) && !value.isCorrelatedTo(otherAlias);
+    }
+
+    @Nonnull
+    private static List<PlanPartition> satisfyingProbePartitions(@Nonnull final RequestedOrdering requestedOrdering,
+                                                                 @Nonnull final SelectExpression selectExpression,
+                                                                 @Nonnull final CorrelationIdentifier probeAlias,
+                                                                 @Nonnull final List<PlanPartition> planPartitions) {
+        final ImmutableList.Builder<PlanPartition> satisfyingOrderings = ImmutableList.builderWithExpectedSize(planPartitions.size());
+        for (final PlanPartition planPartition : planPartitions) {
+            final Ordering pulledUpOrdering =
+                    planPartition.getPartitionPropertyValue(OrderingProperty.ordering())
+                            .pullUp(selectExpression.getResultValue(), EvaluationContext.empty(),
+                                    AliasMap.ofAliases(probeAlias, Quantifier.current()),
+                                    selectExpression.getResultValue().getCorrelatedTo());
+            if (pulledUpOrdering.satisfies(requestedOrdering)) {
+                satisfyingOrderings.add(planPartition);
+            }
+        }
+        return requestedOrdering.isDistinct()
+               ? satisfyingOrderings.build()
+               : PlanPartitions.rollUpTo(satisfyingOrderings.build(), ImmutableSet.of());
+    }
+
+    @Nonnull
+    private static Quantifier.Physical planPartitionToPhysical(@Nonnull final ImplementationCascadesRuleCall call,
+                                                               @Nonnull final Quantifier quantifier,
+                                                               @Nonnull final Reference reference,
+                                                               @Nonnull final List<QueryPredicate> predicates,
+                                                               @Nonnull final PlanPartition planPartition) {
+        var ref = call.memoizeMemberPlansFromOther(reference, planPartition.getPlans());
+
+        if (!predicates.isEmpty()) {
+            final var newLowerQuantifier = Quantifier.physicalBuilder().withAlias(quantifier.getAlias()).build(ref);
+            ref = call.memoizePlan(new RecordQueryPredicatesFilterPlan(newLowerQuantifier, predicates));
+        }
+
+        return Quantifier.physicalBuilder().withAlias(quantifier.getAlias()).build(ref);
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * ImplementSortRule.java
+ *
+ * This source file is part of the FoundationDB open source project
+ *
+ * Copyright 2015-2026 Apple Inc. and the FoundationDB project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.apple.foundationdb.record.query.plan.cascades.rules;
+
+import com.apple.foundationdb.annotation.API;
+import com.apple.foundationdb.record.query.plan.cascades.ImplementationCascadesRule;
+import com.apple.foundationdb.record.query.plan.cascades.ImplementationCascadesRuleCall;
+import com.apple.foundationdb.record.query.plan.cascades.LinkedIdentitySet;
+import com.apple.foundationdb.record.query.plan.cascades.OrderingPart.ProvidedOrderingPart;
+import com.apple.foundationdb.record.query.plan.cascades.OrderingPart.ProvidedSortOrder;
+import com.apple.foundationdb.record.query.plan.cascades.OrderingPart.RequestedOrderingPart;
+import com.apple.foundationdb.record.query.plan.cascades.OrderingPart.RequestedSortOrder;
+import com.apple.foundationdb.record.query.plan.cascades.PlanPartition;
+import com.apple.foundationdb.record.query.plan.cascades.Quantifier;
+import com.apple.foundationdb.record.query.plan.cascades.Reference;
+import com.apple.foundationdb.record.query.plan.cascades.RequestedOrdering;
+import com.apple.foundationdb.record.query.plan.cascades.expressions.LogicalSortExpression;
+import com.apple.foundationdb.record.query.plan.cascades.matching.structure.BindingMatcher;
+import com.apple.foundationdb.record.query.plan.cascades.properties.OrderingProperty;
+import com.apple.foundationdb.record.query.plan.plans.RecordQueryPlan;
+import com.apple.foundationdb.record.query.plan.sorting.RecordQueryPlannerSortConfiguration;
+import com.apple.foundationdb.record.query.plan.sorting.RecordQuerySortOnValuesPlan;
+import com.google.common.collect.ImmutableList;
+
+import javax.annotation.Nonnull;
+import java.util.List;
+
+import static com.apple.foundationdb.record.query.plan.cascades.matching.structure.ListMatcher.exactly;
+import static com.apple.foundationdb.record.query.plan.cascades.matching.structure.MultiMatcher.all;
+import static com.apple.foundationdb.record.query.plan.cascades.matching.structure.PlanPartitionMatchers.anyPlanPartition;
+import static com.apple.foundationdb.record.query.plan.cascades.matching.structure.PlanPartitionMatchers.planPartitions;
+import static com.apple.foundationdb.record.query.plan.cascades.matching.structure.PlanPartitionMatchers.rollUpPartitionsTo;
+import static com.apple.foundationdb.record.query.plan.cascades.matching.structure.QuantifierMatchers.forEachQuantifierOverRef;
+import static com.apple.foundationdb.record.query.plan.cascades.matching.structure.RelationalExpressionMatchers.logicalSortExpression;
+
+/**
+ * A rule that implements a sort expression using a {@link RecordQuerySortOnValuesPlan} if none of the plans of its
+ * child already provides the requested ordering. The rule only fires if the planner configuration has a
+ * {@link RecordQueryPlannerSortConfiguration} that allows non-index sorts; otherwise a query whose requested ordering
+ * cannot be provided by an index still fails to plan.
+ */
+@API(API.Status.EXPERIMENTAL)
+@SuppressWarnings("PMD.TooManyStaticImports")
+public class ImplementSortRule extends ImplementationCascadesRule<LogicalSortExpression> {
+    @Nonnull
+    private static final BindingMatcher<PlanPartition> innerPlanPartitionsMatcher = anyPlanPartition();
+
+    @Nonnull
+    private static final BindingMatcher<Reference> innerReferenceMatcher =
+            planPartitions(rollUpPartitionsTo(all(innerPlanPartitionsMatcher), OrderingProperty.ordering()));
+
+    @Nonnull
+    private static final BindingMatcher<Quantifier.ForEach> innerQuantifierMatcher = forEachQuantifierOverRef(innerReferenceMatcher);
+    @Nonnull
+    private static final BindingMatcher<LogicalSortExpression> root = logicalSortExpression(exactly(innerQuantifierMatcher));
+
+    public ImplementSortRule() {
+        super(root);
+    }
+
+    @Override
+    public void onMatch(@Nonnull final ImplementationCascadesRuleCall call) {
+        final RecordQueryPlannerSortConfiguration sortConfiguration =
+                call.getContext().getPlannerConfiguration().getSortConfiguration();
+        if (sortConfiguration == null || !sortConfiguration.shouldAllowNonIndexSort()) {
+            return;
+        }
+
+        final var bindings = call.getBindings();
+        final LogicalSortExpression sortExpression = bindings.get(root);
+        final RequestedOrdering requestedOrdering = sortExpression.getOrdering();
+        if (requestedOrdering.isPreserve()) {
+            return;
+        }
+
+        final List<PlanPartition> innerPlanPartitions = bindings.getAll(innerPlanPartitionsMatcher);
+        final RequestedOrdering requestedOrderingPreservingDistinctness =
+                requestedOrdering.withDistinctness(RequestedOrdering.Distinctness.PRESERVE_DISTINCTNESS);
+        for (final PlanPartition innerPlanPartition : innerPlanPartitions) {
+            if (innerPlanPartition.getPartitionPropertyValue(OrderingProperty.ordering())
+                    .satisfies(requestedOrderingPreservingDistinctness)) {
+                // no need to sort, that is handled by RemoveSortRule
+                return;
+            }
+        }
+
+        final var innerPlans = new LinkedIdentitySet<RecordQueryPlan>();
+        for (final PlanPartition innerPlanPartition : innerPlanPartitions) {
+            innerPlans.addAll(innerPlanPartition.getPlans());
+        }
+
+        final var orderingPartsBuilder = ImmutableList.<ProvidedOrderingPart>builder();
+        for (final RequestedOrderingPart requestedOrderingPart : requestedOrdering.getOrderingParts()) {
+            final RequestedSortOrder requestedSortOrder = requestedOrderingPart.getSortOrder();
+            final ProvidedSortOrder providedSortOrder =
+                    requestedSortOrder.isDirectional() ? requestedSortOrder.toProvidedSortOrder() : ProvidedSortOrder.ASCENDING;
+            orderingPartsBuilder.add(new ProvidedOrderingPart(requestedOrderingPart.getValue(), providedSortOrder));
+        }
+
+        final Quantifier.ForEach innerQuantifier = bindings.get(innerQuantifierMatcher);
+        final Reference innerReference = call.memoizeMemberPlansFromOther(bindings.get(innerReferenceMatcher), innerPlans);
+        call.yieldPlan(new RecordQuerySortOnValuesPlan(
+                Quantifier.physicalBuilder().withAlias(innerQuantifier.getAlias()).build(innerReference),
+                orderingPartsBuilder.build(), sortConfiguration.getMaxRecordCountInMemory()));
+    }
+}
@@ -30,6 +30,7 @@ import com.apple.foundationdb.record.PlanSerializationContext;
 import com.apple.foundationdb.record.RecordCoreArgumentException;
 import com.apple.foundationdb.record.RecordCoreException;
 import com.apple.foundationdb.record.RecordCursorProto;
+import com.apple.foundationdb.record.cursors.aggregate.PrimitiveAccumulator;
 import com.apple.foundationdb.record.metadata.IndexTypes;
 import com.apple.foundationdb.record.planprotos.PNumericAggregationValue;
 import com.apple.foundationdb.record.planprotos.PNumericAggregationValue.PAvg;
@@ -122,12 +123,19 @@ public abstract class NumericAggregationValue extends AbstractValue implements V
     @Nonnull
     @Override
     public Accumulator createAccumulatorWithInitialState(final @Nonnull TypeRepository typeRepository, @Nullable List<RecordCursorProto.AccumulatorState> initialState) {
+        final RecordCursorProto.AccumulatorState state;
         if (initialState == null) {
-            return new NumericAccumulator(operator);
+            state = null;
         } else {
             Verify.verify(initialState.size() == 1);
-            return new NumericAccumulator(operator, initialState.get(0));
+            state = initialState.get(0);
         }
+        // prefer an accumulator that does not box its running state for every value
+        final Accumulator primitiveAccumulator = PrimitiveAccumulator.forOperator(operator, state);
+        if (primitiveAccumulator != null) {
+            return primitiveAccumulator;
+        }
+        return state == null ? new NumericAccumulator(operator) : new NumericAccumulator(operator, state);
     }
 
     @Nonnull
@@ -395,7 +395,7 @@ public class RecordConstructorValue extends AbstractValue implements AggregateVa
 
                 for (int i = 0; i < childrenAsList.size(); i++) {
                     Verify.verify(childrenAsList.get(i) instanceof AggregateValue);
-                    if (initialState == null) {
+                    if (initialState == null || initialState.get(i).getStateCount() == 0) {
                         childAccumulatorsBuilder.add(((AggregateValue)childrenAsList.get(i)).createAccumulatorWithInitialState(typeRepository, null));
                     } else {
                         childAccumulatorsBuilder.add(((AggregateValue)childrenAsList.get(i)).createAccumulatorWithInitialState(typeRepository, List.of(initialState.get(i))));
@@ -408,10 +408,18 @@ public class RecordConstructorValue extends AbstractValue implements AggregateVa
             @Override
             public List<RecordCursorProto.AccumulatorState> getAccumulatorStates() {
                 List<RecordCursorProto.AccumulatorState> accumulatorStates = new ArrayList<>();
+                boolean hasState = false;
                 for (Accumulator accumulator: childAccumulators) {
-                    accumulatorStates.addAll(accumulator.getAccumulatorStates());
+                    final List<RecordCursorProto.AccumulatorState> childStates = accumulator.getAccumulatorStates();
+                    if (childStates.isEmpty()) {
+                        // keep the states aligned with the children for those that have not accumulated anything yet
+                        accumulatorStates.add(RecordCursorProto.AccumulatorState.getDefaultInstance());
+                    } else {
+                        accumulatorStates.addAll(childStates);
+                        hasState = true;
+                    }
                 }
-                return accumulatorStates;
+                return hasState ? accumulatorStates : List.of();
             }
         };
     }
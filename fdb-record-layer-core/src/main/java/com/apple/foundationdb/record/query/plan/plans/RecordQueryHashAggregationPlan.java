@@ -0,0 +1,524 @@
+/*
+ * RecordQueryHashAggregationPlan.java
+ *
+ * This source file is part of the FoundationDB open source project
+ *
+ * Copyright 2015-2026 Apple Inc. and the FoundationDB project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.apple.foundationdb.record.query.plan.plans;
+
+import com.apple.foundationdb.annotation.API;
+import com.apple.foundationdb.record.EvaluationContext;
+import com.apple.foundationdb.record.ExecuteProperties;
+import com.apple.foundationdb.record.ObjectPlanHash;
+import com.apple.foundationdb.record.PlanDeserializer;
+import com.apple.foundationdb.record.PlanHashable;
+import com.apple.foundationdb.record.PlanSerializationContext;
+import com.apple.foundationdb.record.RecordCursor;
+import com.apple.foundationdb.record.RecordCursorProto;
+import com.apple.foundationdb.record.RecordCursorStartContinuation;
+import com.apple.foundationdb.record.cursors.aggregate.AggregateCursor;
+import com.apple.foundationdb.record.cursors.aggregate.HashAggregateCursor;
+import com.apple.foundationdb.record.cursors.aggregate.HashGrouping;
+import com.apple.foundationdb.record.cursors.aggregate.StreamGrouping;
+import com.apple.foundationdb.record.planprotos.PRecordQueryHashAggregationPlan;
+import com.apple.foundationdb.record.planprotos.PRecordQueryPlan;
+import com.apple.foundationdb.record.provider.common.StoreTimer;
+import com.apple.foundationdb.record.provider.foundationdb.FDBRecordStoreBase;
+import com.apple.foundationdb.record.provider.foundationdb.FDBStoreTimer;
+import com.apple.foundationdb.record.query.plan.cascades.AliasMap;
+import com.apple.foundationdb.record.query.plan.cascades.CorrelationIdentifier;
+import com.apple.foundationdb.record.query.plan.cascades.Quantifier;
+import com.apple.foundationdb.record.query.plan.cascades.Reference;
+import com.apple.foundationdb.record.query.plan.cascades.explain.Attribute;
+import com.apple.foundationdb.record.query.plan.cascades.explain.ExplainPlanVisitor;
+import com.apple.foundationdb.record.query.plan.cascades.explain.NodeInfo;
+import com.apple.foundationdb.record.query.plan.cascades.explain.PlannerGraph;
+import com.apple.foundationdb.record.query.plan.cascades.expressions.AbstractRelationalExpressionWithChildren;
+import com.apple.foundationdb.record.query.plan.cascades.expressions.RelationalExpression;
+import com.apple.foundationdb.record.query.plan.cascades.typing.Type;
+import com.apple.foundationdb.record.query.plan.cascades.values.AggregateValue;
+import com.apple.foundationdb.record.query.plan.cascades.values.ObjectValue;
+import com.apple.foundationdb.record.query.plan.cascades.values.Value;
+import com.apple.foundationdb.record.query.plan.cascades.values.Values;
+import com.apple.foundationdb.record.query.plan.cascades.values.simplification.DefaultValueSimplificationRuleSet;
+import com.apple.foundationdb.record.query.plan.cascades.values.translation.TranslationMap;
+import com.apple.foundationdb.record.query.plan.sorting.RecordQuerySortOnValuesAdapter;
+import com.apple.foundationdb.record.sorting.FileSortCursor;
+import com.apple.foundationdb.record.util.pair.NonnullPair;
+import com.apple.foundationdb.tuple.TupleOrdering;
+import com.google.auto.service.AutoService;
+import com.google.common.base.Suppliers;
+import com.google.common.base.Verify;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterables;
+import com.google.protobuf.Message;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * A query plan that applies an aggregate function(s) to its inputs and also places them into groups, without requiring
+ * its inputs to be ordered by the grouping values.
+ *
+ * <p>
+ * Unlike {@link RecordQueryStreamingAggregationPlan}, this plan reads all of its input before returning the first
+ * group. Up to a maximum number of groups are aggregated in a hash table in memory. The records of any further groups
+ * are sorted by their grouping values, keeping up to the same number of records in memory and spilling the rest to
+ * files on local disk, and then aggregated one group at a time, so the memory used is bounded no matter how many
+ * groups there are. The groups are not returned in any particular order.
+ * </p>
+ *
+ * <p>
+ * All of the input is read by a single execution, without the row, time and scan limits of the execute properties,
+ * since partial groups cannot be carried over to another execution. A continuation of this plan can carry the state
+ * of the groups that are left to return, once they are all held in memory and there are no more than a maximum
+ * number of them. Otherwise, it only carries the number of groups that were returned, and resuming from it aggregates
+ * all of the input again and skips that many groups. Either way, it can be resumed by any process.
+ * </p>
+ *
+ * @see HashAggregateCursor
+ */
+@API(API.Status.EXPERIMENTAL)
+public class RecordQueryHashAggregationPlan extends AbstractRelationalExpressionWithChildren implements RecordQueryPlanWithChild {
+    private static final ObjectPlanHash BASE_HASH = new ObjectPlanHash("Record-Query-Hash-Aggregation-Plan");
+
+    @Nonnull
+    private final Quantifier.Physical inner;
+    @Nonnull
+    private final AggregateValue aggregateValue;
+    @Nonnull
+    private final Value groupingKeyValue;
+    @Nonnull
+    private final CorrelationIdentifier groupingKeyAlias;
+    @Nonnull
+    private final CorrelationIdentifier aggregateAlias;
+    @Nonnull
+    private final Value completeResultValue;
+    private final int maxGroupCount;
+    private final int maxContinuationGroupCount;
+    @Nonnull
+    private final Supplier<List<NonnullPair<Value, TupleOrdering.Direction>>> overflowSortValuesSupplier;
+
+    /**
+     * Construct a new plan.
+     *
+     * @param inner the quantifier that this plan owns
+     * @param groupingKeyValue the {@link Value} to group by
+     * @param aggregateValue the {@link AggregateValue} to aggregate by grouping key
+     * @param groupingKeyAlias the identifier of {@code groupingKeyValue}
+     * @param aggregateAlias the identifier of {@code aggregateValue}
+     * @param completeResultValue the {@link Value} of the aggregate results
+     * @param maxGroupCount the maximum number of groups to hold in memory
+     * @param maxContinuationGroupCount the maximum number of groups whose state to include in a continuation
+     */
+    private RecordQueryHashAggregationPlan(@Nonnull final Quantifier.Physical inner,
+                                           @Nonnull final Value groupingKeyValue,
+                                           @Nonnull final AggregateValue aggregateValue,
+                                           @Nonnull final CorrelationIdentifier groupingKeyAlias,
+                                           @Nonnull final CorrelationIdentifier aggregateAlias,
+                                           @Nonnull final Value completeResultValue,
+                                           final int maxGroupCount,
+                                           final int maxContinuationGroupCount) {
+        this.inner = inner;
+        this.groupingKeyValue = groupingKeyValue;
+        this.aggregateValue = aggregateValue;
+        this.groupingKeyAlias = groupingKeyAlias;
+        this.aggregateAlias = aggregateAlias;
+        this.completeResultValue = completeResultValue;
+        this.maxGroupCount = maxGroupCount;
+        this.maxContinuationGroupCount = maxContinuationGroupCount;
+        this.overflowSortValuesSupplier = Suppliers.memoize(this::computeOverflowSortValues);
+    }
+
+    @Nonnull
+    @Override
+    public <M extends Message> RecordCursor<QueryResult> executePlan(@Nonnull FDBRecordStoreBase<M> store,
+                                                                     @Nonnull EvaluationContext context,
+                                                                     @Nullable byte[] continuation,
+                                                                     @Nonnull ExecuteProperties executeProperties) {
+        final RecordCursorProto.HashAggregateContinuation parsedContinuation =
+                continuation == null ? null : HashAggregateCursor.HashAggregateContinuation.fromRawBytes(continuation);
+        // only the remaining groups are left when they are in the continuation
+        final boolean overflowExhausted = parsedContinuation != null && parsedContinuation.getGroupsCount() > 0;
+        final HashGrouping<M> hashGrouping =
+                new HashGrouping<>(groupingKeyValue,
+                        aggregateValue,
+                        completeResultValue,
+                        groupingKeyAlias,
+                        aggregateAlias,
+                        store,
+                        context,
+                        inner.getAlias(),
+                        maxGroupCount,
+                        overflowExhausted ? parsedContinuation.getGroupsList() : null);
+        final RecordCursor<QueryResult> overflow;
+        if (overflowExhausted) {
+            overflow = RecordCursor.empty(store.getExecutor());
+        } else {
+            // the groups cannot be resumed part way through the input, so read all of it at once
+            overflow = executeOverflow(store, context,
+                    executeProperties.clearSkipAndLimit().clearRowAndTimeLimits().clearState(), hashGrouping);
+        }
+        return new HashAggregateCursor<>(overflow, hashGrouping, overflowExhausted,
+                parsedContinuation == null ? 0L : parsedContinuation.getReturnedGroupCount(),
+                maxContinuationGroupCount)
+                .skipThenLimit(executeProperties.getSkip(),
+                        executeProperties.getReturnedRowLimit());
+    }
+
+    /**
+     * Aggregate the records of the inner plan that do not fit into the hash table. Those records are sorted by the
+     * grouping values and then aggregated one group at a time.
+     */
+    @Nonnull
+    private <M extends Message> RecordCursor<QueryResult> executeOverflow(@Nonnull FDBRecordStoreBase<M> store,
+                                                                          @Nonnull EvaluationContext context,
+                                                                          @Nonnull ExecuteProperties executeInner,
+                                                                          @Nonnull HashGrouping<M> hashGrouping) {
+        final RecordQuerySortOnValuesAdapter<M> adapter = new RecordQuerySortOnValuesAdapter<>(store, context,
+                overflowSortValuesSupplier.get(), inner.getFlowedObjectType(), maxGroupCount, Integer.MAX_VALUE);
+        final Function<byte[], RecordCursor<RecordQuerySortOnValuesAdapter.SortedQueryResult>> overflowRecords =
+                innerContinuation -> rejectedByHashTable(getInnerPlan().executePlan(store, context, innerContinuation, executeInner), hashGrouping)
+                        .map(adapter::toSortedQueryResult);
+        final RecordCursor<QueryResult> sorted = FileSortCursor.create(adapter, overflowRecords, store.getTimer(),
+                        null, 0, Integer.MAX_VALUE)
+                .map(RecordQuerySortOnValuesAdapter.SortedQueryResult::getResult);
+        final StreamGrouping<M> streamGrouping =
+                new StreamGrouping<>(groupingKeyValue,
+                        aggregateValue,
+                        completeResultValue,
+                        groupingKeyAlias,
+                        aggregateAlias,
+                        store,
+                        context,
+                        inner.getAlias(),
+                        null);
+        return new AggregateCursor<>(sorted, streamGrouping, RecordCursorStartContinuation.START,
+                RecordQueryStreamingAggregationPlan.SerializationMode.TO_NEW);
+    }
+
+    /**
+     * Accumulate each record into the hash table, passing on only those records whose groups did not fit.
+     */
+    @Nonnull
+    private static <M extends Message> RecordCursor<QueryResult> rejectedByHashTable(@Nonnull RecordCursor<QueryResult> records,
+                                                                                     @Nonnull HashGrouping<M> hashGrouping) {
+        return records.map(result -> NonnullPair.of(result, hashGrouping.apply(result)))
+                .filter(resultAndAccepted -> !resultAndAccepted.getRight())
+                .map(NonnullPair::getLeft);
+    }
+
+    /**
+     * Compute the values that the records of the groups that do not fit into the hash table are sorted by: the
+     * primitive fields of the grouping key, evaluated relative to {@link Quantifier#current()}.
+     */
+    @Nonnull
+    private List<NonnullPair<Value, TupleOrdering.Direction>> computeOverflowSortValues() {
+        final Value currentGroupingKeyValue = groupingKeyValue.rebase(AliasMap.ofAliases(inner.getAlias(), Quantifier.current()));
+        final List<Value> primitiveAccessors =
+                Values.simplify(Values.primitiveAccessorsForType(currentGroupingKeyValue.getResultType(), () -> currentGroupingKeyValue),
+                        DefaultValueSimplificationRuleSet.instance(), EvaluationContext.empty(), AliasMap.emptyMap(),
+                        getCorrelatedTo());
+        final ImmutableList.Builder<NonnullPair<Value, TupleOrdering.Direction>> sortValues = ImmutableList.builder();
+        for (final Value primitiveAccessor : primitiveAccessors) {
+            sortValues.add(NonnullPair.of(primitiveAccessor, TupleOrdering.Direction.ASC_NULLS_FIRST));
+        }
+        return sortValues.build();
+    }
+
+    @Override
+    public boolean isReverse() {
+        return false;
+    }
+
+    @Nonnull
+    @Override
+    public List<? extends Quantifier> getQuantifiers() {
+        return ImmutableList.of(inner);
+    }
+
+    @Nonnull
+    public Quantifier.Physical getInner() {
+        return inner;
+    }
+
+    @Nonnull
+    @Override
+    public Set<Type> getDynamicTypes() {
+        return ImmutableSet.copyOf(Iterables.concat(
+                RecordQueryPlanWithChild.super.getDynamicTypes(),
+                groupingKeyValue.getDynamicTypes(),
+                aggregateValue.getDynamicTypes()));
+    }
+
+    @Nonnull
+    @Override
+    public String toString() {
+        return ExplainPlanVisitor.toStringForDebugging(this);
+    }
+
+    @Nonnull
+    @Override
+    public Set<CorrelationIdentifier> computeCorrelatedToWithoutChildren() {
+        return ImmutableSet.copyOf(Iterables.concat(groupingKeyValue.getCorrelatedTo(), aggregateValue.getCorrelatedTo()));
+    }
+
+    @Nonnull
+    @Override
+    public RecordQueryHashAggregationPlan translateCorrelations(@Nonnull final TranslationMap translationMap,
+                                                                final boolean shouldSimplifyValues,
+                                                                @Nonnull final List<? extends Quantifier> translatedQuantifiers) {
+        Verify.verify(translatedQuantifiers.size() == 1);
+        final var translatedGroupingKeyValue = groupingKeyValue.translateCorrelations(translationMap, shouldSimplifyValues);
+        final var translatedAggregateValue =
+                (AggregateValue)aggregateValue.translateCorrelations(translationMap, shouldSimplifyValues);
+
+        return new RecordQueryHashAggregationPlan(Iterables.getOnlyElement(translatedQuantifiers).narrow(Quantifier.Physical.class),
+                translatedGroupingKeyValue,
+                translatedAggregateValue,
+                groupingKeyAlias,
+                aggregateAlias,
+                completeResultValue,
+                maxGroupCount,
+                maxContinuationGroupCount);
+    }
+
+    @Nonnull
+    @Override
+    public RecordQueryHashAggregationPlan withChild(@Nonnull final Reference childRef) {
+        return new RecordQueryHashAggregationPlan(Quantifier.physical(childRef, inner.getAlias()),
+                groupingKeyValue,
+                aggregateValue,
+                groupingKeyAlias,
+                aggregateAlias,
+                completeResultValue,
+                maxGroupCount,
+                maxContinuationGroupCount);
+    }
+
+    @Nonnull
+    @Override
+    public Value getResultValue() {
+        return completeResultValue;
+    }
+
+    @SuppressWarnings("EqualsWhichDoesntCheckParameterClass")
+    @Override
+    public boolean equals(final Object other) {
+        return structuralEquals(other);
+    }
+
+    @Override
+    @SuppressWarnings("PMD.CompareObjectsWithEquals")
+    public boolean equalsWithoutChildren(@Nonnull RelationalExpression otherExpression,
+                                         @Nonnull final AliasMap equivalencesMap) {
+        if (this == otherExpression) {
+            return true;
+        }
+        if (getClass() != otherExpression.getClass()) {
+            return false;
+        }
+
+        final var otherHashAggregationPlan = (RecordQueryHashAggregationPlan)otherExpression;
+
+        if (maxGroupCount != otherHashAggregationPlan.getMaxGroupCount()
+                || maxContinuationGroupCount != otherHashAggregationPlan.getMaxContinuationGroupCount()) {
+            return false;
+        }
+
+        if (!groupingKeyValue.semanticEquals(otherHashAggregationPlan.getGroupingValue(), equivalencesMap)) {
+            return false;
+        }
+
+        if (!aggregateValue.semanticEquals(otherHashAggregationPlan.getAggregateValue(), equivalencesMap)) {
+            return false;
+        }
+
+        final var extendedEquivalencesMap = equivalencesMap.toBuilder()
+                .put(groupingKeyAlias, otherHashAggregationPlan.getGroupingKeyAlias())
+                .put(aggregateAlias, otherHashAggregationPlan.getAggregateAlias())
+                .build();
+
+        // Results are combination of groupCriteria and aggregateValues
+        return semanticEqualsForResults(otherExpression, extendedEquivalencesMap);
+    }
+
+    @Override
+    public int hashCode() {
+        return structuralHashCode();
+    }
+
+    @Override
+    public int computeHashCodeWithoutChildren() {
+        return Objects.hash(BASE_HASH, groupingKeyValue, aggregateValue, completeResultValue, maxGroupCount,
+                maxContinuationGroupCount);
+    }
+
+    @Override
+    public int planHash(@Nonnull final PlanHashMode mode) {
+        return PlanHashable.objectsPlanHash(mode, BASE_HASH, getInnerPlan(), groupingKeyValue, aggregateValue, completeResultValue);
+    }
+
+    @Nonnull
+    public RecordQueryPlan getInnerPlan() {
+        return inner.getRangesOverPlan();
+    }
+
+    @Override
+    @Nonnull
+    public RecordQueryPlan getChild() {
+        return getInnerPlan();
+    }
+
+    @Override
+    public void logPlanStructure(StoreTimer timer) {
+        timer.increment(FDBStoreTimer.Counts.PLAN_AGGREGATE);
+        getInnerPlan().logPlanStructure(timer);
+    }
+
+    @Override
+    public int getComplexity() {
+        return 1 + getInnerPlan().getComplexity();
+    }
+
+    @Nonnull
+    @Override
+    public PlannerGraph rewritePlannerGraph(@Nonnull List<? extends PlannerGraph> childGraphs) {
+        return PlannerGraph.fromNodeAndChildGraphs(
+                new PlannerGraph.OperatorNodeWithInfo(this,
+                        NodeInfo.HASH_AGGREGATE_OPERATOR,
+                        ImmutableList.of("COLLECT {{agg}}", "GROUP BY {{groupingKey}}"),
+                        ImmutableMap.of("agg", Attribute.gml(aggregateValue.toString()), "groupingKey", Attribute.gml(groupingKeyValue.toString()))),
+                childGraphs);
+    }
+
+    @Nonnull
+    public AggregateValue getAggregateValue() {
+        return aggregateValue;
+    }
+
+    @Nonnull
+    public CorrelationIdentifier getAggregateAlias() {
+        return aggregateAlias;
+    }
+
+    @Nonnull
+    public Value getGroupingValue() {
+        return groupingKeyValue;
+    }
+
+    @Nonnull
+    public CorrelationIdentifier getGroupingKeyAlias() {
+        return groupingKeyAlias;
+    }
+
+    @Nonnull
+    public Value getCompleteResultValue() {
+        return completeResultValue;
+    }
+
+    public int getMaxGroupCount() {
+        return maxGroupCount;
+    }
+
+    public int getMaxContinuationGroupCount() {
+        return maxContinuationGroupCount;
+    }
+
+    @Nonnull
+    @Override
+    public PRecordQueryHashAggregationPlan toProto(@Nonnull final PlanSerializationContext serializationContext) {
+        return PRecordQueryHashAggregationPlan.newBuilder()
+                .setInner(inner.toProto(serializationContext))
+                .setAggregateValue(aggregateValue.toValueProto(serializationContext))
+                .setGroupingKeyValue(groupingKeyValue.toValueProto(serializationContext))
+                .setGroupingKeyAlias(groupingKeyAlias.getId())
+                .setAggregateAlias(aggregateAlias.getId())
+                .setCompleteResultValue(completeResultValue.toValueProto(serializationContext))
+                .setMaxGroupCount(maxGroupCount)
+                .setMaxContinuationGroupCount(maxContinuationGroupCount)
+                .build();
+    }
+
+    @Nonnull
+    @Override
+    public PRecordQueryPlan toRecordQueryPlanProto(@Nonnull final PlanSerializationContext serializationContext) {
+        return PRecordQueryPlan.newBuilder().setHashAggregationPlan(toProto(serializationContext)).build();
+    }
+
+    @Nonnull
+    public static RecordQueryHashAggregationPlan fromProto(@Nonnull final PlanSerializationContext serializationContext,
+                                                           @Nonnull final PRecordQueryHashAggregationPlan recordQueryHashAggregationPlanProto) {
+        // deserialize in the same order as serialized, see RecordQueryStreamingAggregationPlan
+        final Quantifier.Physical inner = Quantifier.Physical.fromProto(serializationContext, Objects.requireNonNull(recordQueryHashAggregationPlanProto.getInner()));
+        final AggregateValue aggregateValue = (AggregateValue)Value.fromValueProto(serializationContext, Objects.requireNonNull(recordQueryHashAggregationPlanProto.getAggregateValue()));
+        final Value groupingKeyValue = Value.fromValueProto(serializationContext, Objects.requireNonNull(recordQueryHashAggregationPlanProto.getGroupingKeyValue()));
+        final CorrelationIdentifier groupingKeyAlias = CorrelationIdentifier.of(Objects.requireNonNull(recordQueryHashAggregationPlanProto.getGroupingKeyAlias()));
+        final CorrelationIdentifier aggregateAlias = CorrelationIdentifier.of(Objects.requireNonNull(recordQueryHashAggregationPlanProto.getAggregateAlias()));
+        final Value completeResultValue = Value.fromValueProto(serializationContext, Objects.requireNonNull(recordQueryHashAggregationPlanProto.getCompleteResultValue()));
+        return new RecordQueryHashAggregationPlan(inner, groupingKeyValue, aggregateValue, groupingKeyAlias, aggregateAlias,
+                completeResultValue, recordQueryHashAggregationPlanProto.getMaxGroupCount(),
+                recordQueryHashAggregationPlanProto.hasMaxContinuationGroupCount()
+                ? recordQueryHashAggregationPlanProto.getMaxContinuationGroupCount()
+                : HashAggregateCursor.DEFAULT_MAX_CONTINUATION_GROUP_COUNT);
+    }
+
+    @Nonnull
+    public static RecordQueryHashAggregationPlan of(@Nonnull final Quantifier.Physical inner,
+                                                    @Nonnull final Value groupingKeyValue,
+                                                    @Nonnull final AggregateValue aggregateValue,
+                                                    @Nonnull final BiFunction<Value, Value, Value> resultValueFunction,
+                                                    final int maxGroupCount,
+                                                    final int maxContinuationGroupCount) {
+        final var groupingKeyAlias = CorrelationIdentifier.uniqueId();
+        final var aggregateAlias = CorrelationIdentifier.uniqueId();
+
+        final var referencedGroupingKeyValue = ObjectValue.of(groupingKeyAlias, groupingKeyValue.getResultType());
+        final var referencedAggregateValue = ObjectValue.of(aggregateAlias, aggregateValue.getResultType());
+
+        return new RecordQueryHashAggregationPlan(inner, groupingKeyValue, aggregateValue, groupingKeyAlias, aggregateAlias,
+                resultValueFunction.apply(referencedGroupingKeyValue, referencedAggregateValue), maxGroupCount,
+                maxContinuationGroupCount);
+    }
+
+    /**
+     * Deserializer.
+     */
+    @AutoService(PlanDeserializer.class)
+    public static class Deserializer implements PlanDeserializer<PRecordQueryHashAggregationPlan, RecordQueryHashAggregationPlan> {
+        @Nonnull
+        @Override
+        public Class<PRecordQueryHashAggregationPlan> getProtoMessageClass() {
+            return PRecordQueryHashAggregationPlan.class;
+        }
+
+        @Nonnull
+        @Override
+        public RecordQueryHashAggregationPlan fromProto(@Nonnull final PlanSerializationContext serializationContext,
+                                                        @Nonnull final PRecordQueryHashAggregationPlan recordQueryHashAggregationPlanProto) {
+            return RecordQueryHashAggregationPlan.fromProto(serializationContext, recordQueryHashAggregationPlanProto);
+        }
+    }
+}
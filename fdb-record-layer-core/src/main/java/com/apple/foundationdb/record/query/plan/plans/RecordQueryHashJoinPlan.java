@@ -0,0 +1,463 @@
+/*
+ * RecordQueryHashJoinPlan.java
+ *
+ * This source file is part of the FoundationDB open source project
+ *
+ * Copyright 2015-2026 Apple Inc. and the FoundationDB project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.apple.foundationdb.record.query.plan.plans;
+
+import com.apple.foundationdb.annotation.API;
+import com.apple.foundationdb.record.Bindings;
+import com.apple.foundationdb.record.EvaluationContext;
+import com.apple.foundationdb.record.ExecuteProperties;
+import com.apple.foundationdb.record.ObjectPlanHash;
+import com.apple.foundationdb.record.PipelineOperation;
+import com.apple.foundationdb.record.PlanDeserializer;
+import com.apple.foundationdb.record.PlanHashable;
+import com.apple.foundationdb.record.PlanSerializationContext;
+import com.apple.foundationdb.record.RecordCursor;
+import com.apple.foundationdb.record.cursors.HashJoinCursor;
+import com.apple.foundationdb.record.planprotos.PRecordQueryHashJoinPlan;
+import com.apple.foundationdb.record.planprotos.PRecordQueryPlan;
+import com.apple.foundationdb.record.planprotos.PValue;
+import com.apple.foundationdb.record.provider.common.StoreTimer;
+import com.apple.foundationdb.record.provider.foundationdb.FDBRecordStoreBase;
+import com.apple.foundationdb.record.query.plan.AvailableFields;
+import com.apple.foundationdb.record.query.plan.cascades.AliasMap;
+import com.apple.foundationdb.record.query.plan.cascades.CorrelationIdentifier;
+import com.apple.foundationdb.record.query.plan.cascades.FinalMemoizer;
+import com.apple.foundationdb.record.query.plan.cascades.Quantifier;
+import com.apple.foundationdb.record.query.plan.cascades.Quantifiers;
+import com.apple.foundationdb.record.query.plan.cascades.explain.Attribute;
+import com.apple.foundationdb.record.query.plan.cascades.explain.ExplainPlanVisitor;
+import com.apple.foundationdb.record.query.plan.cascades.explain.ExplainPlannerGraphRewritable;
+import com.apple.foundationdb.record.query.plan.cascades.explain.InternalPlannerGraphRewritable;
+import com.apple.foundationdb.record.query.plan.cascades.explain.NodeInfo;
+import com.apple.foundationdb.record.query.plan.cascades.explain.PlannerGraph;
+import com.apple.foundationdb.record.query.plan.cascades.expressions.AbstractRelationalExpressionWithChildren;
+import com.apple.foundationdb.record.query.plan.cascades.expressions.RelationalExpression;
+import com.apple.foundationdb.record.query.plan.cascades.values.Value;
+import com.apple.foundationdb.record.query.plan.cascades.values.translation.TranslationMap;
+import com.apple.foundationdb.record.query.plan.explain.WithIndentationsExplainFormatter;
+import com.google.auto.service.AutoService;
+import com.google.common.base.Verify;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.protobuf.Message;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * A query plan that joins two inputs on a list of equality conditions by building an in-memory hash table over the
+ * results of the build side and probing it with every result of the probe side. Unlike
+ * {@link RecordQueryFlatMapPlan}, the build side is executed only once per execution (and transaction) of this plan
+ * rather than once per result of the probe side. That makes this plan the better choice for joins where the inner
+ * side cannot use an index on the join key, as long as the build side is small enough to be held in memory.
+ * <br>
+ * The build side must not be correlated to the probe side. The result of the plan preserves the order of the probe
+ * side. Continuations only capture the position in the probe side; the build side is re-read when the plan is resumed.
+ *
+ * @see HashJoinCursor
+ */
+@API(API.Status.INTERNAL)
+public class RecordQueryHashJoinPlan extends AbstractRelationalExpressionWithChildren implements RecordQueryPlanWithChildren, ExplainPlannerGraphRewritable, InternalPlannerGraphRewritable {
+    private static final ObjectPlanHash BASE_HASH = new ObjectPlanHash("Record-Query-Hash-Join-Plan");
+
+    @Nonnull
+    private final Quantifier.Physical probeQuantifier;
+    @Nonnull
+    private final Quantifier.Physical buildQuantifier;
+    @Nonnull
+    private final List<Value> probeKeyValues;
+    @Nonnull
+    private final List<Value> buildKeyValues;
+    @Nonnull
+    private final Value resultValue;
+    private final boolean inheritOuterRecordProperties;
+    private final int maxBuildSize;
+
+    public RecordQueryHashJoinPlan(@Nonnull final Quantifier.Physical probeQuantifier,
+                                   @Nonnull final Quantifier.Physical buildQuantifier,
+                                   @Nonnull final List<? extends Value> probeKeyValues,
+                                   @Nonnull final List<? extends Value> buildKeyValues,
+                                   @Nonnull final Value resultValue,
+                                   final boolean inheritOuterRecordProperties,
+                                   final int maxBuildSize) {
+        Verify.verify(probeKeyValues.size() == buildKeyValues.size());
+        Verify.verify(!probeKeyValues.isEmpty());
+        this.probeQuantifier = probeQuantifier;
+        this.buildQuantifier = buildQuantifier;
+        this.probeKeyValues = ImmutableList.copyOf(probeKeyValues);
+        this.buildKeyValues = ImmutableList.copyOf(buildKeyValues);
+        this.resultValue = resultValue;
+        this.inheritOuterRecordProperties = inheritOuterRecordProperties;
+        this.maxBuildSize = maxBuildSize;
+    }
+
+    @Nonnull
+    public Quantifier.Physical getProbeQuantifier() {
+        return probeQuantifier;
+    }
+
+    @Nonnull
+    public Quantifier.Physical getBuildQuantifier() {
+        return buildQuantifier;
+    }
+
+    @Nonnull
+    public List<Value> getProbeKeyValues() {
+        return probeKeyValues;
+    }
+
+    @Nonnull
+    public List<Value> getBuildKeyValues() {
+        return buildKeyValues;
+    }
+
+    public boolean isInheritOuterRecordProperties() {
+        return inheritOuterRecordProperties;
+    }
+
+    public int getMaxBuildSize() {
+        return maxBuildSize;
+    }
+
+    @SuppressWarnings("resource")
+    @Nonnull
+    @Override
+    public <M extends Message> RecordCursor<QueryResult> executePlan(@Nonnull final FDBRecordStoreBase<M> store,
+                                                                     @Nonnull final EvaluationContext context,
+                                                                     @Nullable final byte[] continuation,
+                                                                     @Nonnull final ExecuteProperties executeProperties) {
+        final var nestedExecuteProperties = executeProperties.clearSkipAndLimit();
+        // The build side is read again in its entirety whenever the join is resumed, so it cannot be limited by the
+        // scan and time limits of the probe side; otherwise it might never complete. The planner only uses a hash join
+        // if the build side is known to be small.
+        final var buildExecuteProperties = nestedExecuteProperties.clearRowAndTimeLimits().clearState();
+        final var probeAlias = probeQuantifier.getAlias();
+        final var buildAlias = buildQuantifier.getAlias();
+        return new HashJoinCursor<QueryResult, QueryResult, QueryResult>(
+                probeContinuation ->
+                        probeQuantifier.getRangesOverPlan().executePlan(store, context, probeContinuation, nestedExecuteProperties),
+                buildQuantifier.getRangesOverPlan().executePlan(store, context, null, buildExecuteProperties),
+                probeResult -> evalJoinKey(store, context, probeAlias, probeKeyValues, probeResult),
+                buildResult -> evalJoinKey(store, context, buildAlias, buildKeyValues, buildResult),
+                (probeResult, buildResult) -> {
+                    final EvaluationContext nestedContext =
+                            context.withBinding(Bindings.Internal.CORRELATION, probeAlias, probeResult)
+                                    .withBinding(Bindings.Internal.CORRELATION, buildAlias, buildResult);
+                    final var computed = resultValue.eval(store, nestedContext);
+                    return inheritOuterRecordProperties
+                           ? probeResult.withComputed(computed)
+                           : QueryResult.ofComputed(computed);
+                },
+                maxBuildSize,
+                store.getPipelineSize(PipelineOperation.HASH_JOIN),
+                continuation).skipThenLimit(executeProperties.getSkip(), executeProperties.getReturnedRowLimit());
+    }
+
+    /**
+     * Evaluate the join key for a result of one of the legs of the join. A join key containing a {@code null} does
+     * not compare equal to anything (including another {@code null}), so no key is returned in that case.
+     */
+    @Nullable
+    private static <M extends Message> List<Object> evalJoinKey(@Nonnull final FDBRecordStoreBase<M> store,
+                                                                @Nonnull final EvaluationContext context,
+                                                                @Nonnull final CorrelationIdentifier alias,
+                                                                @Nonnull final List<Value> keyValues,
+                                                                @Nonnull final QueryResult result) {
+        final EvaluationContext nestedContext = context.withBinding(Bindings.Internal.CORRELATION, alias, result);
+        final List<Object> key = new ArrayList<>(keyValues.size());
+        for (final Value keyValue : keyValues) {
+            final Object keyElement = keyValue.eval(store, nestedContext);
+            if (keyElement == null) {
+                return null;
+            }
+            key.add(keyElement);
+        }
+        return key;
+    }
+
+    @Override
+    public int getRelationalChildCount() {
+        return 2;
+    }
+
+    @Override
+    public boolean canCorrelate() {
+        return true;
+    }
+
+    @Nonnull
+    @Override
+    public List<RecordQueryPlan> getChildren() {
+        return ImmutableList.of(probeQuantifier.getRangesOverPlan(), buildQuantifier.getRangesOverPlan());
+    }
+
+    @Nonnull
+    @Override
+    public AvailableFields getAvailableFields() {
+        return AvailableFields.NO_FIELDS;
+    }
+
+    @Nonnull
+    @Override
+    public Set<CorrelationIdentifier> computeCorrelatedToWithoutChildren() {
+        final var builder = ImmutableSet.<CorrelationIdentifier>builder();
+        builder.addAll(resultValue.getCorrelatedTo());
+        probeKeyValues.forEach(probeKeyValue -> builder.addAll(probeKeyValue.getCorrelatedTo()));
+        buildKeyValues.forEach(buildKeyValue -> builder.addAll(buildKeyValue.getCorrelatedTo()));
+        return builder.build();
+    }
+
+    @Nonnull
+    @Override
+    public RecordQueryHashJoinPlan translateCorrelations(@Nonnull final TranslationMap translationMap,
+                                                         final boolean shouldSimplifyValues,
+                                                         @Nonnull final List<? extends Quantifier> translatedQuantifiers) {
+        Verify.verify(translatedQuantifiers.size() == 2);
+        return new RecordQueryHashJoinPlan(translatedQuantifiers.get(0).narrow(Quantifier.Physical.class),
+                translatedQuantifiers.get(1).narrow(Quantifier.Physical.class),
+                translateValues(probeKeyValues, translationMap, shouldSimplifyValues),
+                translateValues(buildKeyValues, translationMap, shouldSimplifyValues),
+                resultValue.translateCorrelations(translationMap, shouldSimplifyValues),
+                inheritOuterRecordProperties,
+                maxBuildSize);
+    }
+
+    @Nonnull
+    private static List<Value> translateValues(@Nonnull final List<Value> values,
+                                               @Nonnull final TranslationMap translationMap,
+                                               final boolean shouldSimplifyValues) {
+        return values.stream()
+                .map(value -> value.translateCorrelations(translationMap, shouldSimplifyValues))
+                .collect(ImmutableList.toImmutableList());
+    }
+
+    @Override
+    public boolean isReverse() {
+        return Quantifiers.isReversed(Quantifiers.narrow(Quantifier.Physical.class, getQuantifiers()));
+    }
+
+    @Override
+    public RecordQueryHashJoinPlan strictlySorted(@Nonnull FinalMemoizer memoizer) {
+        return this;
+    }
+
+    @Nonnull
+    @Override
+    public Value getResultValue() {
+        return resultValue;
+    }
+
+    @Nonnull
+    @Override
+    public String toString() {
+        return ExplainPlanVisitor.toStringForDebugging(this);
+    }
+
+    @Override
+    @SuppressWarnings("PMD.CompareObjectsWithEquals")
+    public boolean equalsWithoutChildren(@Nonnull RelationalExpression otherExpression,
+                                         @Nonnull final AliasMap aliasMap) {
+        if (this == otherExpression) {
+            return true;
+        }
+        if (getClass() != otherExpression.getClass()) {
+            return false;
+        }
+        final var otherHashJoinPlan = (RecordQueryHashJoinPlan)otherExpression;
+        if (inheritOuterRecordProperties != otherHashJoinPlan.isInheritOuterRecordProperties() ||
+                maxBuildSize != otherHashJoinPlan.getMaxBuildSize()) {
+            return false;
+        }
+        if (!semanticEqualsValues(probeKeyValues, otherHashJoinPlan.getProbeKeyValues(), aliasMap) ||
+                !semanticEqualsValues(buildKeyValues, otherHashJoinPlan.getBuildKeyValues(), aliasMap)) {
+            return false;
+        }
+        return semanticEqualsForResults(otherExpression, aliasMap);
+    }
+
+    private static boolean semanticEqualsValues(@Nonnull final List<Value> values,
+                                                @Nonnull final List<Value> otherValues,
+                                                @Nonnull final AliasMap aliasMap) {
+        if (values.size() != otherValues.size()) {
+            return false;
+        }
+        for (int i = 0; i < values.size(); i++) {
+            if (!values.get(i).semanticEquals(otherValues.get(i), aliasMap)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @SuppressWarnings("EqualsWhichDoesntCheckParameterClass")
+    @Override
+    public boolean equals(final Object other) {
+        return structuralEquals(other);
+    }
+
+    @Override
+    public int hashCode() {
+        return structuralHashCode();
+    }
+
+    @Override
+    public int computeHashCodeWithoutChildren() {
+        return Objects.hash(getResultValue(), probeKeyValues, buildKeyValues, inheritOuterRecordProperties, maxBuildSize);
+    }
+
+    @Override
+    public void logPlanStructure(StoreTimer timer) {
+        // nothing to increment
+    }
+
+    @Override
+    public int getComplexity() {
+        return probeQuantifier.getRangesOverPlan().getComplexity() + buildQuantifier.getRangesOverPlan().getComplexity();
+    }
+
+    @Override
+    public int planHash(@Nonnull final PlanHashMode mode) {
+        switch (mode.getKind()) {
+            case LEGACY:
+            case FOR_CONTINUATION:
+                return PlanHashable.objectsPlanHash(mode, BASE_HASH, getChildren(), probeKeyValues, buildKeyValues,
+                        inheritOuterRecordProperties, getResultValue());
+            default:
+                throw new UnsupportedOperationException("Hash kind " + mode.name() + " is not supported");
+        }
+    }
+
+    @Nonnull
+    @Override
+    public List<? extends Quantifier> getQuantifiers() {
+        return ImmutableList.of(probeQuantifier, buildQuantifier);
+    }
+
+    @Nonnull
+    @Override
+    public PlannerGraph rewriteExplainPlannerGraph(@Nonnull final List<? extends PlannerGraph> childGraphs) {
+        return rewritePlannerGraph(childGraphs);
+    }
+
+    @Nonnull
+    @Override
+    public PlannerGraph rewriteInternalPlannerGraph(@Nonnull final List<? extends PlannerGraph> childGraphs) {
+        final var explainFormatter =
+                WithIndentationsExplainFormatter.forDot(5);
+
+        final var hashJoinString =
+                "HASHJOIN " + getResultValue().explain()
+                        .getExplainTokens()
+                        .render(explainFormatter);
+
+        return PlannerGraph.fromNodeAndChildGraphs(
+                new PlannerGraph.OperatorNodeWithInfo(
+                        this,
+                        NodeInfo.HASH_JOIN_OPERATOR,
+                        ImmutableList.of(hashJoinString),
+                        ImmutableMap.of()),
+                childGraphs);
+    }
+
+    @Nonnull
+    @Override
+    public PlannerGraph rewritePlannerGraph(@Nonnull final List<? extends PlannerGraph> childGraphs) {
+        return PlannerGraph.fromNodeAndChildGraphs(
+                new PlannerGraph.OperatorNodeWithInfo(this,
+                        NodeInfo.HASH_JOIN_OPERATOR,
+                        ImmutableList.of("HASHJOIN ON {{probeKeys}} = {{buildKeys}}", "RETURN {{expr}}"),
+                        ImmutableMap.of("probeKeys", Attribute.gml(probeKeyValues.toString()),
+                                "buildKeys", Attribute.gml(buildKeyValues.toString()),
+                                "expr", Attribute.gml(getResultValue().toString()))),
+                childGraphs,
+                getQuantifiers());
+    }
+
+    @Nonnull
+    @Override
+    public PRecordQueryHashJoinPlan toProto(@Nonnull final PlanSerializationContext serializationContext) {
+        final var builder = PRecordQueryHashJoinPlan.newBuilder()
+                .setProbeQuantifier(probeQuantifier.toProto(serializationContext))
+                .setBuildQuantifier(buildQuantifier.toProto(serializationContext));
+        for (final Value probeKeyValue : probeKeyValues) {
+            builder.addProbeKeyValues(probeKeyValue.toValueProto(serializationContext));
+        }
+        for (final Value buildKeyValue : buildKeyValues) {
+            builder.addBuildKeyValues(buildKeyValue.toValueProto(serializationContext));
+        }
+        return builder.setResultValue(resultValue.toValueProto(serializationContext))
+                .setInheritOuterRecordProperties(inheritOuterRecordProperties)
+                .setMaxBuildSize(maxBuildSize)
+                .build();
+    }
+
+    @Nonnull
+    @Override
+    public PRecordQueryPlan toRecordQueryPlanProto(@Nonnull final PlanSerializationContext serializationContext) {
+        return PRecordQueryPlan.newBuilder().setHashJoinPlan(toProto(serializationContext)).build();
+    }
+
+    @Nonnull
+    public static RecordQueryHashJoinPlan fromProto(@Nonnull final PlanSerializationContext serializationContext,
+                                                    @Nonnull final PRecordQueryHashJoinPlan recordQueryHashJoinPlanProto) {
+        final ImmutableList.Builder<Value> probeKeyValuesBuilder = ImmutableList.builder();
+        for (final PValue probeKeyValueProto : recordQueryHashJoinPlanProto.getProbeKeyValuesList()) {
+            probeKeyValuesBuilder.add(Value.fromValueProto(serializationContext, probeKeyValueProto));
+        }
+        final ImmutableList.Builder<Value> buildKeyValuesBuilder = ImmutableList.builder();
+        for (final PValue buildKeyValueProto : recordQueryHashJoinPlanProto.getBuildKeyValuesList()) {
+            buildKeyValuesBuilder.add(Value.fromValueProto(serializationContext, buildKeyValueProto));
+        }
+        return new RecordQueryHashJoinPlan(Quantifier.Physical.fromProto(serializationContext, Objects.requireNonNull(recordQueryHashJoinPlanProto.getProbeQuantifier())),
+                Quantifier.Physical.fromProto(serializationContext, Objects.requireNonNull(recordQueryHashJoinPlanProto.getBuildQuantifier())),
+                probeKeyValuesBuilder.build(),
+                buildKeyValuesBuilder.build(),
+                Value.fromValueProto(serializationContext, Objects.requireNonNull(recordQueryHashJoinPlanProto.getResultValue())),
+                recordQueryHashJoinPlanProto.getInheritOuterRecordProperties(),
+                recordQueryHashJoinPlanProto.hasMaxBuildSize()
+                ? recordQueryHashJoinPlanProto.getMaxBuildSize()
+                : HashJoinCursor.DEFAULT_MAX_BUILD_SIZE);
+    }
+
+    /**
+     * Deserializer.
+     */
+    @AutoService(PlanDeserializer.class)
+    public static class Deserializer implements PlanDeserializer<PRecordQueryHashJoinPlan, RecordQueryHashJoinPlan> {
+        @Nonnull
+        @Override
+        public Class<PRecordQueryHashJoinPlan> getProtoMessageClass() {
+            return PRecordQueryHashJoinPlan.class;
+        }
+
+        @Nonnull
+        @Override
+        public RecordQueryHashJoinPlan fromProto(@Nonnull final PlanSerializationContext serializationContext,
+                                                 @Nonnull final PRecordQueryHashJoinPlan recordQueryHashJoinPlanProto) {
+            return RecordQueryHashJoinPlan.fromProto(serializationContext, recordQueryHashJoinPlanProto);
+        }
+    }
+}
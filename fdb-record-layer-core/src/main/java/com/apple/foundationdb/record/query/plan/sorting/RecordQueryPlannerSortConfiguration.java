@@ -61,6 +61,21 @@ public class RecordQueryPlannerSortConfiguration {
         return proto.getShouldAllowNonIndexSort();
     }
 
+    /**
+     * Get the maximum number of records that a sort planned by the Cascades planner keeps in memory. A sort of more
+     * records than that spills them to files on local disk.
+     *
+     * This method returns the value set in the configuration, or {@link RecordQuerySortAdapter#DEFAULT_MAX_RECORD_COUNT_IN_MEMORY}
+     * if none is set.
+     *
+     * A subclass can override this method to use more complex criteria to decide.
+     * @return the maximum number of records to sort in memory
+     * @see RecordQuerySortOnValuesPlan
+     */
+    public int getMaxRecordCountInMemory() {
+        return proto.hasMaxRecordCountInMemory() ? proto.getMaxRecordCountInMemory() : RecordQuerySortAdapter.DEFAULT_MAX_RECORD_COUNT_IN_MEMORY;
+    }
+
     @Nonnull
     public RecordPlannerConfigurationProto.PlannerConfiguration.SortConfiguration toProto() {
         return proto;
@@ -0,0 +1,354 @@
+/*
+ * RecordQuerySortOnValuesAdapter.java
+ *
+ * This source file is part of the FoundationDB open source project
+ *
+ * Copyright 2015-2026 Apple Inc. and the FoundationDB project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.apple.foundationdb.record.query.plan.sorting;
+
+import com.apple.foundationdb.annotation.API;
+import com.apple.foundationdb.record.Bindings;
+import com.apple.foundationdb.record.EvaluationContext;
+import com.apple.foundationdb.record.RecordCoreException;
+import com.apple.foundationdb.record.RecordMetaData;
+import com.apple.foundationdb.record.RecordSortingProto;
+import com.apple.foundationdb.record.logging.LogMessageKeys;
+import com.apple.foundationdb.record.metadata.Key;
+import com.apple.foundationdb.record.provider.common.CipherPool;
+import com.apple.foundationdb.record.provider.common.RecordSerializer;
+import com.apple.foundationdb.record.provider.common.TransformedRecordSerializer;
+import com.apple.foundationdb.record.provider.foundationdb.FDBQueriedRecord;
+import com.apple.foundationdb.record.provider.foundationdb.FDBRecordStoreBase;
+import com.apple.foundationdb.record.provider.foundationdb.SortedRecordSerializer;
+import com.apple.foundationdb.record.query.plan.cascades.Quantifier;
+import com.apple.foundationdb.record.query.plan.cascades.typing.Type;
+import com.apple.foundationdb.record.query.plan.cascades.values.Value;
+import com.apple.foundationdb.record.query.plan.plans.QueryResult;
+import com.apple.foundationdb.record.sorting.FileSortAdapter;
+import com.apple.foundationdb.record.sorting.MemorySortAdapter;
+import com.apple.foundationdb.record.sorting.MemorySorter;
+import com.apple.foundationdb.record.util.pair.NonnullPair;
+import com.apple.foundationdb.tuple.ByteArrayUtil;
+import com.apple.foundationdb.tuple.ByteArrayUtil2;
+import com.apple.foundationdb.tuple.Tuple;
+import com.apple.foundationdb.tuple.TupleOrdering;
+import com.google.common.base.Suppliers;
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.Descriptors;
+import com.google.protobuf.ExtensionRegistryLite;
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.Message;
+import com.google.protobuf.ZeroCopyByteString;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.crypto.KeyGenerator;
+import java.io.File;
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * A {@link MemorySortAdapter} / {@link FileSortAdapter} for use with {@link RecordQuerySortOnValuesPlan}.
+ *
+ * <p>
+ * The key of a result is the concatenation of the ordered encodings of the values sorted by, each in its own
+ * direction, so that comparing keys as unsigned bytes sorts the results as requested. The sorters keep a single value
+ * per key, so each key ends in a tie-breaker that is unique to the result: its position in the input. Results that
+ * sort the same are therefore returned in the order they were read from the input, and a key identifies the same
+ * result each time the same input is sorted again, so that a continuation can hold the key of the last result
+ * returned.
+ * </p>
+ *
+ * <p>
+ * Results are serialized when they are written to files. A result that was read from a stored record keeps it,
+ * including its primary key and version. Files are encrypted with a key that is generated for each sort, and are
+ * deleted when the sort is done.
+ * </p>
+ *
+ * @param <M> type used to represent stored records
+ */
+@API(API.Status.EXPERIMENTAL)
+public class RecordQuerySortOnValuesAdapter<M extends Message> implements FileSortAdapter<byte[], RecordQuerySortOnValuesAdapter.SortedQueryResult> {
+    private static final Supplier<SecureRandom> RANDOM = Suppliers.memoize(SecureRandom::new);
+
+    @Nonnull
+    private final FDBRecordStoreBase<M> recordStore;
+    @Nonnull
+    private final EvaluationContext context;
+    @Nonnull
+    private final List<NonnullPair<Value, TupleOrdering.Direction>> sortValues;
+    @Nonnull
+    private final Type resultType;
+    private final int memoryLimit;
+    private final boolean memoryOnly;
+    @Nonnull
+    private final SortedRecordSerializer<M> serializer;
+    private final int metaDataVersion;
+    @Nullable
+    private java.security.Key encryptionKey;
+
+    private long position;
+
+    public RecordQuerySortOnValuesAdapter(@Nonnull FDBRecordStoreBase<M> recordStore,
+                                          @Nonnull EvaluationContext context,
+                                          @Nonnull List<NonnullPair<Value, TupleOrdering.Direction>> sortValues,
+                                          @Nonnull Type resultType,
+                                          int maxRecordCountInMemory,
+                                          int maxRecordsToRead) {
+        this.recordStore = recordStore;
+        this.context = context;
+        this.sortValues = sortValues;
+        this.resultType = resultType;
+        this.memoryLimit = Math.min(maxRecordsToRead, maxRecordCountInMemory);
+        this.memoryOnly = memoryLimit == maxRecordsToRead;
+        RecordSerializer<M> recordSerializer = recordStore.getSerializer();
+        if (recordSerializer instanceof TransformedRecordSerializer) {
+            // Nothing goes wrong without this, but it avoids double encryption / compression.
+            recordSerializer = ((TransformedRecordSerializer<M>)recordSerializer).untransformed();
+        }
+        final RecordMetaData metaData = recordStore.getRecordMetaData();
+        this.serializer = new SortedRecordSerializer<>(recordSerializer, metaData, recordStore.getTimer());
+        this.metaDataVersion = metaData.getVersion();
+    }
+
+    public boolean isMemoryOnly() {
+        return memoryOnly;
+    }
+
+    /**
+     * Compute the key of a result read from the input of the sort.
+     * @param result a result of the input of the sort
+     * @return the result with its key
+     */
+    @Nonnull
+    public SortedQueryResult toSortedQueryResult(@Nonnull QueryResult result) {
+        final EvaluationContext nestedContext = context.withBinding(Bindings.Internal.CORRELATION, Quantifier.current(), result);
+        final byte[][] keyParts = new byte[sortValues.size() + 1][];
+        for (int i = 0; i < sortValues.size(); i++) {
+            final NonnullPair<Value, TupleOrdering.Direction> sortValue = sortValues.get(i);
+            final Object evaluated = sortValue.getLeft().eval(recordStore, nestedContext);
+            keyParts[i] = TupleOrdering.pack(Key.Evaluated.scalar(evaluated).toTuple(), sortValue.getRight());
+        }
+        keyParts[sortValues.size()] = Tuple.from(position++).pack();
+        return new SortedQueryResult(ByteArrayUtil.join(keyParts), result);
+    }
+
+    @Override
+    public int compare(@Nonnull byte[] o1, @Nonnull byte[] o2) {
+        return ByteArrayUtil.compareUnsigned(o1, o2);
+    }
+
+    @Nonnull
+    @Override
+    public byte[] generateKey(@Nonnull SortedQueryResult value) {
+        return value.getKey();
+    }
+
+    @Nonnull
+    @Override
+    public byte[] serializeKey(@Nonnull byte[] key) {
+        return key;
+    }
+
+    @Override
+    public boolean isSerializedOrderReversed() {
+        return false;
+    }
+
+    @Nonnull
+    @Override
+    public byte[] deserializeKey(@Nonnull byte[] key) {
+        return key;
+    }
+
+    @Nonnull
+    @Override
+    public byte[] serializeValue(@Nonnull SortedQueryResult value) {
+        return toProto(value).toByteArray();
+    }
+
+    @Nonnull
+    @Override
+    public SortedQueryResult deserializeValue(@Nonnull byte[] bytes) {
+        try {
+            return fromProto(RecordSortingProto.SortedQueryResult.parseFrom(bytes));
+        } catch (InvalidProtocolBufferException ex) {
+            throw new RecordCoreException("invalid sorted query result", ex)
+                    .addLogInfo(LogMessageKeys.RAW_BYTES, ByteArrayUtil2.loggable(bytes));
+        }
+    }
+
+    @Override
+    public void writeValue(@Nonnull SortedQueryResult value, @Nonnull CodedOutputStream stream) throws IOException {
+        stream.writeMessageNoTag(toProto(value));
+    }
+
+    @Nonnull
+    @Override
+    public SortedQueryResult readValue(@Nonnull CodedInputStream stream) throws IOException {
+        final RecordSortingProto.SortedQueryResult.Builder builder = RecordSortingProto.SortedQueryResult.newBuilder();
+        stream.readMessage(builder, ExtensionRegistryLite.getEmptyRegistry());
+        return fromProto(builder.build());
+    }
+
+    @Nonnull
+    private RecordSortingProto.SortedQueryResult toProto(@Nonnull SortedQueryResult value) {
+        final QueryResult result = value.getResult();
+        final RecordSortingProto.SortedQueryResult.Builder builder = RecordSortingProto.SortedQueryResult.newBuilder()
+                .setKey(ZeroCopyByteString.wrap(value.getKey()))
+                .setResult(result.toProto().toByteString());
+        final FDBQueriedRecord<M> queriedRecord = result.<M>getQueriedRecordMaybe().orElse(null);
+        if (queriedRecord != null) {
+            builder.setRecord(serializer.toProto(queriedRecord));
+        } else if (result.getPrimaryKey() != null) {
+            builder.setPrimaryKey(ZeroCopyByteString.wrap(result.getPrimaryKey().pack()));
+        }
+        return builder.build();
+    }
+
+    @Nonnull
+    private SortedQueryResult fromProto(@Nonnull RecordSortingProto.SortedQueryResult sortedQueryResultProto) {
+        final FDBQueriedRecord<M> queriedRecord = sortedQueryResultProto.hasRecord()
+                                                  ? serializer.deserialize(sortedQueryResultProto.getRecord())
+                                                  : null;
+        final Object datum = QueryResult.from(getResultDescriptor(queriedRecord), sortedQueryResultProto.getResult()).getDatum();
+        final QueryResult result;
+        if (queriedRecord != null) {
+            result = QueryResult.fromQueriedRecord(resultType, context, queriedRecord).withComputed(datum);
+        } else {
+            result = QueryResult.ofComputed(datum,
+                    sortedQueryResultProto.hasPrimaryKey() ? Tuple.fromBytes(sortedQueryResultProto.getPrimaryKey().toByteArray()) : null);
+        }
+        return new SortedQueryResult(sortedQueryResultProto.getKey().toByteArray(), result);
+    }
+
+    @Nullable
+    private Descriptors.Descriptor getResultDescriptor(@Nullable FDBQueriedRecord<M> queriedRecord) {
+        if (resultType instanceof Type.Record) {
+            final Descriptors.Descriptor descriptor = context.getTypeRepository().getMessageDescriptor(resultType);
+            if (descriptor != null) {
+                return descriptor;
+            }
+        }
+        // Results whose type is not known to the type repository are the stored records themselves.
+        return queriedRecord == null ? null : queriedRecord.getRecord().getDescriptorForType();
+    }
+
+    @Override
+    public int getMaxRecordCountInMemory() {
+        return memoryLimit;
+    }
+
+    @Nonnull
+    @Override
+    public MemorySorter.RecordCountInMemoryLimitMode getRecordCountInMemoryLimitMode() {
+        return memoryOnly ? MemorySorter.RecordCountInMemoryLimitMode.DISCARD : MemorySorter.RecordCountInMemoryLimitMode.STOP;
+    }
+
+    @Nonnull
+    @Override
+    public File generateFilename() throws IOException {
+        return File.createTempFile("fdb", ".bin");
+    }
+
+    @Override
+    public int getMetaDataVersion() {
+        return metaDataVersion;
+    }
+
+    @Override
+    public int getMinFileRecordCount() {
+        return memoryLimit;
+    }
+
+    @Override
+    public int getMaxFileCount() {
+        return RecordQuerySortAdapter.DEFAULT_MAX_FILE_COUNT;
+    }
+
+    @Override
+    public int getRecordCountPerSection() {
+        return RecordQuerySortAdapter.DEFAULT_RECORD_COUNT_PER_SECTION;
+    }
+
+    @Override
+    public boolean isCompressed() {
+        return true;
+    }
+
+    @Nullable
+    @Override
+    public String getEncryptionCipherName() {
+        return CipherPool.DEFAULT_CIPHER;
+    }
+
+    @Nullable
+    @Override
+    public synchronized java.security.Key getEncryptionKey() {
+        if (encryptionKey == null) {
+            try {
+                final KeyGenerator keyGen = KeyGenerator.getInstance("AES");
+                keyGen.init(128, RANDOM.get());
+                encryptionKey = keyGen.generateKey();
+            } catch (GeneralSecurityException ex) {
+                throw new RecordCoreException(ex);
+            }
+        }
+        return encryptionKey;
+    }
+
+    @Nullable
+    @Override
+    public SecureRandom getSecureRandom() {
+        return RANDOM.get();
+    }
+
+    @Nonnull
+    @Override
+    public MemorySortComparator<byte[]> getComparator(@Nullable byte[] minimumKey) {
+        return new MemorySortAdapter.OrderComparator<>(this, minimumKey);
+    }
+
+    /**
+     * A {@link QueryResult} together with its sort key.
+     */
+    public static final class SortedQueryResult {
+        @Nonnull
+        private final byte[] key;
+        @Nonnull
+        private final QueryResult result;
+
+        private SortedQueryResult(@Nonnull byte[] key, @Nonnull QueryResult result) {
+            this.key = key;
+            this.result = result;
+        }
+
+        @Nonnull
+        public byte[] getKey() {
+            return key;
+        }
+
+        @Nonnull
+        public QueryResult getResult() {
+            return result;
+        }
+    }
+}
@@ -0,0 +1,396 @@
+/*
+ * RecordQuerySortOnValuesPlan.java
+ *
+ * This source file is part of the FoundationDB open source project
+ *
+ * Copyright 2015-2026 Apple Inc. and the FoundationDB project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.apple.foundationdb.record.query.plan.sorting;
+
+import com.apple.foundationdb.annotation.API;
+import com.apple.foundationdb.record.ByteArrayContinuation;
+import com.apple.foundationdb.record.EvaluationContext;
+import com.apple.foundationdb.record.ExecuteProperties;
+import com.apple.foundationdb.record.ObjectPlanHash;
+import com.apple.foundationdb.record.PlanDeserializer;
+import com.apple.foundationdb.record.PlanHashable;
+import com.apple.foundationdb.record.PlanSerializationContext;
+import com.apple.foundationdb.record.RecordCoreException;
+import com.apple.foundationdb.record.RecordCursor;
+import com.apple.foundationdb.record.RecordCursorProto;
+import com.apple.foundationdb.record.RecordCursorResult;
+import com.apple.foundationdb.record.logging.LogMessageKeys;
+import com.apple.foundationdb.record.planprotos.PRecordQueryPlan;
+import com.apple.foundationdb.record.planprotos.PRecordQuerySortOnValuesPlan;
+import com.apple.foundationdb.record.planprotos.PValue;
+import com.apple.foundationdb.record.provider.common.StoreTimer;
+import com.apple.foundationdb.record.provider.foundationdb.FDBRecordStoreBase;
+import com.apple.foundationdb.record.provider.foundationdb.FDBStoreTimer;
+import com.apple.foundationdb.record.query.plan.AvailableFields;
+import com.apple.foundationdb.record.query.plan.cascades.AliasMap;
+import com.apple.foundationdb.record.query.plan.cascades.CorrelationIdentifier;
+import com.apple.foundationdb.record.query.plan.cascades.OrderingPart;
+import com.apple.foundationdb.record.query.plan.cascades.OrderingPart.ProvidedOrderingPart;
+import com.apple.foundationdb.record.query.plan.cascades.OrderingPart.ProvidedSortOrder;
+import com.apple.foundationdb.record.query.plan.cascades.Quantifier;
+import com.apple.foundationdb.record.query.plan.cascades.Reference;
+import com.apple.foundationdb.record.query.plan.cascades.explain.Attribute;
+import com.apple.foundationdb.record.query.plan.cascades.explain.ExplainPlanVisitor;
+import com.apple.foundationdb.record.query.plan.cascades.explain.NodeInfo;
+import com.apple.foundationdb.record.query.plan.cascades.explain.PlannerGraph;
+import com.apple.foundationdb.record.query.plan.cascades.expressions.AbstractRelationalExpressionWithChildren;
+import com.apple.foundationdb.record.query.plan.cascades.expressions.RelationalExpression;
+import com.apple.foundationdb.record.query.plan.cascades.values.OrderedBytesHelpers;
+import com.apple.foundationdb.record.query.plan.cascades.values.Value;
+import com.apple.foundationdb.record.query.plan.cascades.values.translation.TranslationMap;
+import com.apple.foundationdb.record.query.plan.plans.QueryResult;
+import com.apple.foundationdb.record.query.plan.plans.RecordQueryPlan;
+import com.apple.foundationdb.record.query.plan.plans.RecordQueryPlanWithChild;
+import com.apple.foundationdb.record.sorting.FileSortCursor;
+import com.apple.foundationdb.record.sorting.MemorySortCursor;
+import com.apple.foundationdb.record.util.pair.NonnullPair;
+import com.apple.foundationdb.tuple.ByteArrayUtil2;
+import com.apple.foundationdb.tuple.TupleOrdering;
+import com.google.auto.service.AutoService;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterables;
+import com.google.protobuf.ByteString;
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.Message;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * A query plan that sorts the results of its child by a list of {@link Value}s, each in its own direction, keeping up
+ * to a maximum number of results in memory and spilling the rest to files on local disk.
+ *
+ * <p>
+ * Unlike {@link RecordQuerySortPlan}, which sorts stored records by a key expression, this plan sorts arbitrary
+ * results. The values sorted by are evaluated relative to {@link Quantifier#current()}. Results that sort the same
+ * are returned in the order they were produced by the child.
+ * </p>
+ *
+ * <p>
+ * A sort cannot return anything until it has read all of its input, so each execution reads all of it, without the
+ * row, time and scan limits of the execute properties. A continuation only holds the sort key of the last result
+ * returned, which is unique to that result. Resuming from it sorts the input again, leaving out the results that sort
+ * before that key, and keeps only as many results in memory as will be returned, when there is a returned row limit.
+ * Nothing in a continuation refers to local files, so any process can resume it.
+ * </p>
+ */
+@API(API.Status.EXPERIMENTAL)
+public class RecordQuerySortOnValuesPlan extends AbstractRelationalExpressionWithChildren implements RecordQueryPlanWithChild {
+    private static final ObjectPlanHash BASE_HASH = new ObjectPlanHash("Record-Query-Sort-On-Values-Plan");
+
+    @Nonnull
+    private final Quantifier.Physical inner;
+    @Nonnull
+    private final List<ProvidedOrderingPart> orderingParts;
+    private final int maxRecordCountInMemory;
+
+    public RecordQuerySortOnValuesPlan(@Nonnull final Quantifier.Physical inner,
+                                       @Nonnull final List<ProvidedOrderingPart> orderingParts,
+                                       final int maxRecordCountInMemory) {
+        this.inner = inner;
+        this.orderingParts = ImmutableList.copyOf(orderingParts);
+        this.maxRecordCountInMemory = maxRecordCountInMemory;
+    }
+
+    @Nonnull
+    @Override
+    @SuppressWarnings("PMD.CloseResource")
+    public <M extends Message> RecordCursor<QueryResult> executePlan(@Nonnull FDBRecordStoreBase<M> store,
+                                                                     @Nonnull EvaluationContext context,
+                                                                     @Nullable byte[] continuation,
+                                                                     @Nonnull ExecuteProperties executeProperties) {
+        final byte[] lastKey = continuation == null ? null : parseContinuation(continuation).getLastKey().toByteArray();
+        // Since we are sorting, we need to feed through everything from the inner plan,
+        // even just to get the top few, and we cannot resume part way through it.
+        final ExecuteProperties executeInner = executeProperties.clearSkipAndLimit().clearRowAndTimeLimits().clearState();
+        final int skip = executeProperties.getSkip();
+        final int limit = executeProperties.getReturnedRowLimitOrMax();
+        final int maxRecordsToRead = limit == Integer.MAX_VALUE ? limit : skip + limit;
+        final RecordQuerySortOnValuesAdapter<M> adapter = new RecordQuerySortOnValuesAdapter<>(store, context,
+                getSortValues(), inner.getFlowedObjectType(), maxRecordCountInMemory, maxRecordsToRead);
+        final Function<byte[], RecordCursor<RecordQuerySortOnValuesAdapter.SortedQueryResult>> innerCursor =
+                innerContinuation -> {
+                    final RecordCursor<RecordQuerySortOnValuesAdapter.SortedQueryResult> sortedResults =
+                            getChild().executePlan(store, context, innerContinuation, executeInner)
+                                    .map(adapter::toSortedQueryResult);
+                    // every result gets its key, so that those after the last one returned have the same keys again
+                    return lastKey == null
+                           ? sortedResults
+                           : sortedResults.filter(sortedResult -> adapter.compare(sortedResult.getKey(), lastKey) > 0);
+                };
+        final FDBStoreTimer timer = store.getTimer();
+        final RecordCursor<RecordQuerySortOnValuesAdapter.SortedQueryResult> sorted;
+        if (adapter.isMemoryOnly()) {
+            sorted = MemorySortCursor.createSort(adapter, innerCursor, timer, null);
+        } else {
+            sorted = FileSortCursor.create(adapter, innerCursor, timer, null, 0, maxRecordsToRead);
+        }
+        return sorted.mapResult(RecordQuerySortOnValuesPlan::withKeyContinuation).skipThenLimit(skip, limit);
+    }
+
+    @Nonnull
+    private static RecordCursorResult<QueryResult> withKeyContinuation(@Nonnull RecordCursorResult<RecordQuerySortOnValuesAdapter.SortedQueryResult> result) {
+        if (result.hasNext()) {
+            final RecordQuerySortOnValuesAdapter.SortedQueryResult sortedResult = Objects.requireNonNull(result.get());
+            final RecordCursorProto.SortOnValuesContinuation continuation = RecordCursorProto.SortOnValuesContinuation.newBuilder()
+                    .setLastKey(ByteString.copyFrom(sortedResult.getKey()))
+                    .build();
+            return RecordCursorResult.withNextValue(sortedResult.getResult(), ByteArrayContinuation.fromNullable(continuation.toByteArray()));
+        }
+        if (result.getNoNextReason().isOutOfBand()) {
+            // Only the last key is in the continuation, so resuming would read the same part of the input again.
+            throw new RecordCoreException("sort input did not complete")
+                    .addLogInfo(LogMessageKeys.NO_NEXT_REASON, result.getNoNextReason());
+        }
+        // A sort that stops at its in-band limit has returned all that this execution was asked for.
+        return RecordCursorResult.exhausted();
+    }
+
+    @Nonnull
+    private static RecordCursorProto.SortOnValuesContinuation parseContinuation(@Nonnull byte[] continuation) {
+        try {
+            return RecordCursorProto.SortOnValuesContinuation.parseFrom(continuation);
+        } catch (InvalidProtocolBufferException ex) {
+            throw new RecordCoreException("error parsing continuation", ex)
+                    .addLogInfo(LogMessageKeys.RAW_BYTES, ByteArrayUtil2.loggable(continuation));
+        }
+    }
+
+    @Nonnull
+    private List<NonnullPair<Value, TupleOrdering.Direction>> getSortValues() {
+        final ImmutableList.Builder<NonnullPair<Value, TupleOrdering.Direction>> sortValues = ImmutableList.builder();
+        for (final ProvidedOrderingPart orderingPart : orderingParts) {
+            sortValues.add(NonnullPair.of(orderingPart.getValue(), orderingPart.getSortOrder().getTupleDirection()));
+        }
+        return sortValues.build();
+    }
+
+    @Override
+    @Nonnull
+    public RecordQueryPlan getChild() {
+        return inner.getRangesOverPlan();
+    }
+
+    @Nonnull
+    public Quantifier.Physical getInner() {
+        return inner;
+    }
+
+    @Nonnull
+    public List<ProvidedOrderingPart> getOrderingParts() {
+        return orderingParts;
+    }
+
+    public int getMaxRecordCountInMemory() {
+        return maxRecordCountInMemory;
+    }
+
+    @Override
+    public boolean isReverse() {
+        return false;
+    }
+
+    @Nonnull
+    @Override
+    public List<? extends Quantifier> getQuantifiers() {
+        return ImmutableList.of(inner);
+    }
+
+    @Nonnull
+    @Override
+    public Value getResultValue() {
+        return inner.getFlowedObjectValue();
+    }
+
+    @Nonnull
+    @Override
+    public AvailableFields getAvailableFields() {
+        return AvailableFields.ALL_FIELDS;
+    }
+
+    @Override
+    public String toString() {
+        return ExplainPlanVisitor.toStringForDebugging(this);
+    }
+
+    @Nonnull
+    @Override
+    public Set<CorrelationIdentifier> computeCorrelatedToWithoutChildren() {
+        final ImmutableSet.Builder<CorrelationIdentifier> correlatedTo = ImmutableSet.builder();
+        for (final ProvidedOrderingPart orderingPart : orderingParts) {
+            orderingPart.getValue().getCorrelatedTo().stream()
+                    .filter(alias -> !alias.equals(Quantifier.current()))
+                    .forEach(correlatedTo::add);
+        }
+        return correlatedTo.build();
+    }
+
+    @Nonnull
+    @Override
+    public RecordQuerySortOnValuesPlan translateCorrelations(@Nonnull final TranslationMap translationMap,
+                                                             final boolean shouldSimplifyValues,
+                                                             @Nonnull final List<? extends Quantifier> translatedQuantifiers) {
+        return new RecordQuerySortOnValuesPlan((Quantifier.Physical)Iterables.getOnlyElement(translatedQuantifiers),
+                orderingParts, maxRecordCountInMemory);
+    }
+
+    @Nonnull
+    @Override
+    public RecordQueryPlanWithChild withChild(@Nonnull final Reference childRef) {
+        return new RecordQuerySortOnValuesPlan(Quantifier.physical(childRef, inner.getAlias()), orderingParts, maxRecordCountInMemory);
+    }
+
+    @Override
+    @SuppressWarnings("PMD.CompareObjectsWithEquals")
+    public boolean equalsWithoutChildren(@Nonnull RelationalExpression otherExpression,
+                                         @Nonnull final AliasMap equivalencesMap) {
+        if (this == otherExpression) {
+            return true;
+        }
+        if (getClass() != otherExpression.getClass()) {
+            return false;
+        }
+        final RecordQuerySortOnValuesPlan other = (RecordQuerySortOnValuesPlan)otherExpression;
+        if (maxRecordCountInMemory != other.getMaxRecordCountInMemory() ||
+                orderingParts.size() != other.getOrderingParts().size()) {
+            return false;
+        }
+        for (int i = 0; i < orderingParts.size(); i++) {
+            final ProvidedOrderingPart orderingPart = orderingParts.get(i);
+            final ProvidedOrderingPart otherOrderingPart = other.getOrderingParts().get(i);
+            if (orderingPart.getSortOrder() != otherOrderingPart.getSortOrder() ||
+                    !orderingPart.getValue().semanticEquals(otherOrderingPart.getValue(), equivalencesMap)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @SuppressWarnings("EqualsWhichDoesntCheckParameterClass")
+    @Override
+    public boolean equals(final Object other) {
+        return structuralEquals(other);
+    }
+
+    @Override
+    public int hashCode() {
+        return structuralHashCode();
+    }
+
+    @Override
+    public int computeHashCodeWithoutChildren() {
+        return Objects.hash(orderingParts, maxRecordCountInMemory);
+    }
+
+    @Override
+    public int planHash(@Nonnull final PlanHashMode mode) {
+        switch (mode.getKind()) {
+            case LEGACY:
+            case FOR_CONTINUATION:
+                return PlanHashable.objectsPlanHash(mode, BASE_HASH, getChild(),
+                        OrderingPart.toValues(orderingParts),
+                        orderingParts.stream().map(ProvidedOrderingPart::getSortOrder).collect(ImmutableList.toImmutableList()));
+            default:
+                throw new UnsupportedOperationException("Hash kind " + mode.name() + " is not supported");
+        }
+    }
+
+    @Override
+    public void logPlanStructure(StoreTimer timer) {
+        timer.increment(FDBStoreTimer.Counts.PLAN_SORT);
+        getChild().logPlanStructure(timer);
+    }
+
+    @Override
+    public int getComplexity() {
+        return getChild().getComplexity();
+    }
+
+    @Nonnull
+    @Override
+    public PlannerGraph rewritePlannerGraph(@Nonnull final List<? extends PlannerGraph> childGraphs) {
+        return PlannerGraph.fromNodeAndChildGraphs(
+                new PlannerGraph.OperatorNodeWithInfo(this, NodeInfo.SORT_OPERATOR,
+                        ImmutableList.of("BY {{orderingParts}}"),
+                        ImmutableMap.of("orderingParts", Attribute.gml(orderingParts.toString()))),
+                childGraphs);
+    }
+
+    @Nonnull
+    @Override
+    public PRecordQuerySortOnValuesPlan toProto(@Nonnull final PlanSerializationContext serializationContext) {
+        final PRecordQuerySortOnValuesPlan.Builder builder = PRecordQuerySortOnValuesPlan.newBuilder()
+                .setInner(inner.toProto(serializationContext));
+        for (final ProvidedOrderingPart orderingPart : orderingParts) {
+            builder.addSortValues(orderingPart.getValue().toValueProto(serializationContext));
+            builder.addDirections(OrderedBytesHelpers.toDirectionProto(orderingPart.getSortOrder().getTupleDirection()));
+        }
+        return builder.setMaxRecordCountInMemory(maxRecordCountInMemory).build();
+    }
+
+    @Nonnull
+    @Override
+    public PRecordQueryPlan toRecordQueryPlanProto(@Nonnull final PlanSerializationContext serializationContext) {
+        return PRecordQueryPlan.newBuilder().setSortOnValuesPlan(toProto(serializationContext)).build();
+    }
+
+    @Nonnull
+    public static RecordQuerySortOnValuesPlan fromProto(@Nonnull final PlanSerializationContext serializationContext,
+                                                        @Nonnull final PRecordQuerySortOnValuesPlan recordQuerySortOnValuesPlanProto) {
+        final ImmutableList.Builder<ProvidedOrderingPart> orderingPartsBuilder = ImmutableList.builder();
+        for (int i = 0; i < recordQuerySortOnValuesPlanProto.getSortValuesCount(); i++) {
+            final PValue sortValueProto = recordQuerySortOnValuesPlanProto.getSortValues(i);
+            final TupleOrdering.Direction direction =
+                    OrderedBytesHelpers.fromDirectionProto(recordQuerySortOnValuesPlanProto.getDirections(i));
+            orderingPartsBuilder.add(new ProvidedOrderingPart(Value.fromValueProto(serializationContext, sortValueProto),
+                    ProvidedSortOrder.fromDirection(direction)));
+        }
+        return new RecordQuerySortOnValuesPlan(
+                Quantifier.Physical.fromProto(serializationContext, Objects.requireNonNull(recordQuerySortOnValuesPlanProto.getInner())),
+                orderingPartsBuilder.build(),
+                recordQuerySortOnValuesPlanProto.getMaxRecordCountInMemory());
+    }
+
+    /**
+     * Deserializer.
+     */
+    @AutoService(PlanDeserializer.class)
+    public static class Deserializer implements PlanDeserializer<PRecordQuerySortOnValuesPlan, RecordQuerySortOnValuesPlan> {
+        @Nonnull
+        @Override
+        public Class<PRecordQuerySortOnValuesPlan> getProtoMessageClass() {
+            return PRecordQuerySortOnValuesPlan.class;
+        }
+
+        @Nonnull
+        @Override
+        public RecordQuerySortOnValuesPlan fromProto(@Nonnull final PlanSerializationContext serializationContext,
+                                                     @Nonnull final PRecordQuerySortOnValuesPlan recordQuerySortOnValuesPlanProto) {
+            return RecordQuerySortOnValuesPlan.fromProto(serializationContext, recordQuerySortOnValuesPlanProto);
+        }
+    }
+}
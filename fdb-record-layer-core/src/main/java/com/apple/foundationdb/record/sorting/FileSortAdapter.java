@@ -84,6 +84,18 @@ public interface FileSortAdapter<K, V> extends MemorySortAdapter<K, V> {
      */
     int getMaxFileCount();
 
+    /**
+     * Get whether files are merged in tiers.
+     * By default, once there are more than {@link #getMaxFileCount} files, all of them are merged into one, which
+     * rewrites the records of earlier files over and over when sorting many files' worth of records. With tiered
+     * merging, only files of the same tier are merged, that many at a time, so each record is only rewritten once per
+     * tier, at the cost of keeping up to that many files per tier.
+     * @return {@code true} if files are merged in tiers
+     */
+    default boolean isTieredMerge() {
+        return false;
+    }
+
     /**
      * Get the maximum number of files in a section.
      * Sections allow skipping through the file faster.
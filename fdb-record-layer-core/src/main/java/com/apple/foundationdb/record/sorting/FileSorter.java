@@ -54,6 +54,8 @@ import java.security.GeneralSecurityException;
 import java.security.SecureRandom;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
@@ -68,6 +70,8 @@ import java.util.zip.InflaterInputStream;
  * Then these are saved to files.
  * The files are then merged and values returned in order from there.
  * In addition to a final merge at the end, files can be merged when there are too many pending files.
+ * Normally, all the files are merged into one then; if the adapter asks for {@linkplain FileSortAdapter#isTieredMerge tiered}
+ * merging, only files of the same tier are merged, so that each record is only rewritten a logarithmic number of times.
  *
  * The files are divided into <em>sections</em> with headers that allow skipping ahead sequentially
  * somewhat faster than would be possible if every record had to be read,
@@ -95,6 +99,9 @@ public class FileSorter<K, V>  {
     private final Executor executor;
     @Nonnull
     private final List<File> files;
+    // Files without a tier, such as those from a continuation, are in the lowest tier.
+    @Nonnull
+    private final Map<File, Integer> fileTiers;
 
     private LoadResult loadResult;
 
@@ -105,6 +112,7 @@ public class FileSorter<K, V>  {
         this.executor = executor;
         mapSorter = new MemorySorter<>(adapter, timer);
         files = new ArrayList<>();
+        fileTiers = new HashMap<>();
     }
 
     @Nonnull
@@ -257,7 +265,9 @@ public class FileSorter<K, V>  {
             files.add(file);
             mapSorter.getMap().clear();
         }
-        if (files.size() > maxNumFiles) {
+        if (adapter.isTieredMerge()) {
+            mergeTiers(maxNumFiles);
+        } else if (files.size() > maxNumFiles) {
             File file;
             try {
                 file = adapter.generateFilename();
@@ -270,6 +280,55 @@ public class FileSorter<K, V>  {
         }
     }
 
+    /**
+     * Merge files of the same tier into a single file of the next tier whenever there are as many of them as the
+     * maximum file count, and then, while there are still more than {@code maxNumFiles}, merge the files of the lowest
+     * tiers, at most the maximum file count of them at a time.
+     * @param maxNumFiles the maximum number of files to keep
+     */
+    private void mergeTiers(int maxNumFiles) {
+        final int fanIn = Math.max(2, adapter.getMaxFileCount());
+        for (int tier = 0; ; tier++) {
+            final List<File> tierFiles = new ArrayList<>();
+            boolean higherTiers = false;
+            for (File file : files) {
+                final int fileTier = fileTiers.getOrDefault(file, 0);
+                if (fileTier == tier) {
+                    tierFiles.add(file);
+                } else if (fileTier > tier) {
+                    higherTiers = true;
+                }
+            }
+            if (tierFiles.size() >= fanIn) {
+                mergeInto(tierFiles, tier + 1);
+            } else if (!higherTiers) {
+                break;
+            }
+        }
+        while (files.size() > maxNumFiles) {
+            final List<File> lowestFiles = new ArrayList<>(files);
+            lowestFiles.sort(Comparator.comparingInt(file -> fileTiers.getOrDefault(file, 0)));
+            final List<File> mergeFiles = lowestFiles.subList(0, Math.min(fanIn, lowestFiles.size()));
+            mergeInto(new ArrayList<>(mergeFiles), fileTiers.getOrDefault(mergeFiles.get(mergeFiles.size() - 1), 0) + 1);
+        }
+    }
+
+    private void mergeInto(@Nonnull List<File> inputFiles, int tier) {
+        final File file;
+        try {
+            file = adapter.generateFilename();
+            merge(inputFiles, file);
+        } catch (IOException | GeneralSecurityException ex) {
+            throw new RecordCoreException(ex);
+        }
+        files.removeAll(inputFiles);
+        for (File inputFile : inputFiles) {
+            fileTiers.remove(inputFile);
+        }
+        files.add(file);
+        fileTiers.put(file, tier);
+    }
+
     static void initCipherEncrypt(@Nonnull Cipher cipher,
                                   @Nonnull java.security.Key encryptionKey,
                                   @Nonnull SecureRandom secureRandom,
@@ -153,7 +153,7 @@ public class SortedFileReader<V> implements AutoCloseable {
                     timer.recordSinceNanoTime(SortEvents.Events.FILE_SORT_SKIP_RECORD, startTime);
                 }
             }
-            limit += skip;
+            limit = (int)Math.min((long)limit + skip, Integer.MAX_VALUE);
         }
         fileRecordEnd = Math.min(limit, fileHeader.getNumberOfRecords());
     }
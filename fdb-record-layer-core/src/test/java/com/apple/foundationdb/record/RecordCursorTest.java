@@ -22,6 +22,7 @@ package com.apple.foundationdb.record;
 
 import com.apple.foundationdb.async.AsyncUtil;
 import com.apple.foundationdb.async.MoreAsyncUtil;
+import com.apple.foundationdb.record.cursors.AdaptivePipelineSize;
 import com.apple.foundationdb.record.cursors.FilterCursor;
 import com.apple.foundationdb.record.cursors.FirableCursor;
 import com.apple.foundationdb.record.cursors.LazyCursor;
@@ -175,6 +176,28 @@ public class RecordCursorTest {
         assertThat(cursor.onNextCalled, Matchers.lessThanOrEqualTo(102));
     }
 
+    @Test
+    void mapPipelinedAdaptiveTest() {
+        AsyncCountdown cursor = new AsyncCountdown(100);
+        FDBStoreTimer storeTimer = new FDBStoreTimer();
+        AdaptivePipelineSize pipelineSize = new AdaptivePipelineSize(1, 20, storeTimer);
+        RecordCursor<Integer> map = cursor.mapPipelined(i -> delayedFuture(i, 10), pipelineSize);
+        assertEquals(IntStream.range(0, 100).mapToObj(i -> 100 - i).collect(Collectors.toList()), map.asList().join());
+        // A consumer that does nothing but wait for the next result keeps the pipeline growing.
+        assertThat(pipelineSize.getPipelineSize(), greaterThan(1));
+        assertThat(storeTimer.getCount(FDBStoreTimer.Counts.ADAPTIVE_PIPELINE_GROW), greaterThan(0));
+    }
+
+    @Test
+    void mapPipelinedAdaptiveLimitTest() {
+        AsyncCountdown cursor = new AsyncCountdown(100);
+        RecordCursor<Integer> map = cursor.mapPipelined(i -> delayedFuture(i, 10), new AdaptivePipelineSize(1, 50, null))
+                .limitRowsTo(3);
+        assertEquals(List.of(100, 99, 98), map.asList().join());
+        // A fixed pipeline of 50 would have read that many entries ahead.
+        assertThat(cursor.onNextCalled, Matchers.lessThanOrEqualTo(10));
+    }
+
     @Test
     void forEachAsyncTest() {
         RecordCursor<Integer> cursor = RecordCursor.fromList(Arrays.asList(1, 2, 3, 4, 5, 6, 7));
@@ -0,0 +1,84 @@
+/*
+ * AdaptivePipelineSizeTest.java
+ *
+ * This source file is part of the FoundationDB open source project
+ *
+ * Copyright 2015-2026 Apple Inc. and the FoundationDB project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.apple.foundationdb.record.cursors;
+
+import com.apple.foundationdb.record.RecordCoreArgumentException;
+import com.apple.foundationdb.record.provider.foundationdb.FDBStoreTimer;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Tests for {@link AdaptivePipelineSize}.
+ */
+public class AdaptivePipelineSizeTest {
+
+    @Test
+    void growsWhileStalled() {
+        final FDBStoreTimer timer = new FDBStoreTimer();
+        final AdaptivePipelineSize pipelineSize = new AdaptivePipelineSize(1, 10, timer);
+        assertEquals(1, pipelineSize.getPipelineSize());
+        long now = 0L;
+        for (int i = 0; i < 5; i++) {
+            pipelineSize.recordLatency(1_000_000L);
+            pipelineSize.onRequest(now);
+            now += 1_000_000L;
+            pipelineSize.onResult(true, now);
+        }
+        // 1, 2, 4, 8, then capped at 10
+        assertEquals(10, pipelineSize.getPipelineSize());
+        assertEquals(4, timer.getCount(FDBStoreTimer.Counts.ADAPTIVE_PIPELINE_GROW));
+        assertEquals(0, timer.getCount(FDBStoreTimer.Counts.ADAPTIVE_PIPELINE_SHRINK));
+    }
+
+    @Test
+    void shrinksToTarget() {
+        final FDBStoreTimer timer = new FDBStoreTimer();
+        final AdaptivePipelineSize pipelineSize = new AdaptivePipelineSize(1, 16, timer);
+        long now = 0L;
+        // With no consumer time yet, the target is the maximum.
+        pipelineSize.recordLatency(1_000L);
+        pipelineSize.onRequest(now);
+        for (int i = 0; i < 4; i++) {
+            pipelineSize.onResult(true, now);
+            pipelineSize.onRequest(now);
+        }
+        assertEquals(16, pipelineSize.getPipelineSize());
+
+        // A consumer slower than the function only needs latency / consumer time, rounded up, + 1 in flight.
+        for (int i = 0; i < 50; i++) {
+            pipelineSize.recordLatency(1_000L);
+            pipelineSize.onResult(false, now);
+            now += 2_000L;
+            pipelineSize.onRequest(now);
+        }
+        assertEquals(2, pipelineSize.getTargetSize());
+        assertEquals(2, pipelineSize.getPipelineSize());
+        assertEquals(14, timer.getCount(FDBStoreTimer.Counts.ADAPTIVE_PIPELINE_SHRINK));
+    }
+
+    @Test
+    void invalidBounds() {
+        assertThrows(RecordCoreArgumentException.class, () -> new AdaptivePipelineSize(0, 10, null));
+        assertThrows(RecordCoreArgumentException.class, () -> new AdaptivePipelineSize(5, 4, null));
+    }
+}
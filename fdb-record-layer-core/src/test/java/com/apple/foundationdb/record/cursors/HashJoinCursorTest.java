@@ -0,0 +1,152 @@
+/*
+ * HashJoinCursorTest.java
+ *
+ * This source file is part of the FoundationDB open source project
+ *
+ * Copyright 2015-2026 Apple Inc. and the FoundationDB project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.apple.foundationdb.record.cursors;
+
+import com.apple.foundationdb.record.RecordCoreException;
+import com.apple.foundationdb.record.RecordCursor;
+import com.apple.foundationdb.record.RecordCursorResult;
+import com.apple.foundationdb.record.RecordCursorTest;
+import org.junit.jupiter.api.Test;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for {@link HashJoinCursor}.
+ */
+public class HashJoinCursorTest {
+    private static final List<String> PROBE = List.of("a1", "b1", "c1", "a2", "d1", "b2");
+    private static final List<String> BUILD = List.of("ax", "bx", "ay", "ex");
+
+    @Test
+    void joinTest() throws Exception {
+        final List<String> expected = List.of("a1:ax", "a1:ay", "b1:bx", "a2:ax", "a2:ay", "b2:bx");
+        assertEquals(expected, join(cont -> new ListCursor<>(PROBE, cont), new ListCursor<>(BUILD, null), null).asList().get());
+    }
+
+    @Test
+    void emptyBuildTest() throws Exception {
+        assertEquals(List.of(), join(cont -> new ListCursor<>(PROBE, cont), new ListCursor<>(List.<String>of(), null), null).asList().get());
+    }
+
+    @Test
+    void nullKeysNeverMatchTest() throws Exception {
+        final List<String> probe = List.of("a1", "_1", "b1");
+        final List<String> build = List.of("_x", "ax", "bx");
+        final HashJoinCursor<String, String, String> classUnderTest = join(cont -> new ListCursor<>(probe, cont), new ListCursor<>(build, null), null);
+        assertEquals(List.of("a1:ax", "b1:bx"), classUnderTest.asList().get());
+        assertEquals(2, classUnderTest.getBuildSize());
+    }
+
+    @Test
+    void continuationTest() throws Exception {
+        final List<String> expected = List.of("a1:ax", "a1:ay", "b1:bx", "a2:ax", "a2:ay", "b2:bx");
+        final List<String> actual = new ArrayList<>();
+        byte[] continuation = null;
+        int iterations = 0;
+        RecordCursorResult<String> result;
+        do {
+            // a build cursor is consumed by the hash join cursor, so every execution needs a new one
+            final RecordCursor<String> classUnderTest =
+                    join(cont -> new ListCursor<>(PROBE, cont), new ListCursor<>(BUILD, null), continuation).limitRowsTo(2);
+            result = readThroughContinuation(classUnderTest, actual);
+            continuation = result.getContinuation().toBytes();
+            iterations++;
+        } while (result.hasStoppedBeforeEnd());
+
+        assertEquals(expected, actual);
+        assertEquals(4, iterations);
+        assertTrue(result.getContinuation().isEnd());
+        assertEquals(RecordCursor.NoNextReason.SOURCE_EXHAUSTED, result.getNoNextReason());
+    }
+
+    @Test
+    void buildOutOfBandTest() {
+        final RecordCursor<String> classUnderTest = join(cont -> new ListCursor<>(PROBE, cont),
+                new RecordCursorTest.FakeOutOfBandCursor<>(new ListCursor<>(BUILD, null), 2), null);
+
+        // the build side could not be read completely and resuming would stop at the same place again
+        final CompletionException exception = assertThrows(CompletionException.class, () -> classUnderTest.asList().join());
+        assertInstanceOf(RecordCoreException.class, exception.getCause());
+    }
+
+    @Test
+    void buildOutOfBandAfterContinuationTest() throws Exception {
+        final List<String> actual = new ArrayList<>();
+        final RecordCursorResult<String> result = readThroughContinuation(
+                join(cont -> new ListCursor<>(PROBE, cont), new ListCursor<>(BUILD, null), null).limitRowsTo(3), actual);
+        final byte[] continuation = result.getContinuation().toBytes();
+        assertEquals(List.of("a1:ax", "a1:ay", "b1:bx"), actual);
+
+        final RecordCursor<String> classUnderTest = join(cont -> new ListCursor<>(PROBE, cont),
+                new RecordCursorTest.FakeOutOfBandCursor<>(new ListCursor<>(BUILD, null), 2), continuation);
+        final CompletionException exception = assertThrows(CompletionException.class, () -> classUnderTest.asList().join());
+        assertInstanceOf(RecordCoreException.class, exception.getCause());
+    }
+
+    @Test
+    void maxBuildSizeTest() {
+        final HashJoinCursor<String, String, String> classUnderTest =
+                new HashJoinCursor<>(cont -> new ListCursor<>(PROBE, cont), new ListCursor<>(BUILD, null),
+                        HashJoinCursorTest::key, HashJoinCursorTest::key, (probe, build) -> probe + ":" + build,
+                        3, 1, null);
+        final CompletionException exception = assertThrows(CompletionException.class, () -> classUnderTest.asList().join());
+        assertInstanceOf(RecordCoreException.class, exception.getCause());
+    }
+
+    @Nonnull
+    private static HashJoinCursor<String, String, String> join(@Nonnull Function<byte[], RecordCursor<String>> probeFunction,
+                                                               @Nonnull RecordCursor<String> buildCursor,
+                                                               @Nullable byte[] continuation) {
+        return new HashJoinCursor<>(probeFunction, buildCursor, HashJoinCursorTest::key, HashJoinCursorTest::key,
+                (probe, build) -> probe + ":" + build, HashJoinCursor.DEFAULT_MAX_BUILD_SIZE, 2, continuation);
+    }
+
+    /**
+     * The join key of an element is its first character, with {@code _} standing for {@code null}.
+     */
+    @Nullable
+    private static Character key(@Nonnull String element) {
+        final char key = element.charAt(0);
+        return key == '_' ? null : key;
+    }
+
+    @Nonnull
+    private static RecordCursorResult<String> readThroughContinuation(@Nonnull RecordCursor<String> cursor, @Nonnull List<String> actual) {
+        RecordCursorResult<String> result;
+        do {
+            result = cursor.getNext();
+            if (result.hasNext()) {
+                actual.add(result.get());
+            }
+        } while (result.hasNext());
+        return result;
+    }
+}
@@ -1966,6 +1966,22 @@ class MetaDataEvolutionValidatorTest {
         validator.validate(metaData2, metaData3);
     }
 
+    @Test
+    void rankVersionedChanged() {
+        final String indexName = "MySimpleRecord$rank(num_value_2)";
+        RecordMetaDataBuilder metaDataBuilder = RecordMetaData.newBuilder().setRecords(TestRecords1Proto.getDescriptor());
+        metaDataBuilder.addIndex("MySimpleRecord", new Index(indexName, Key.Expressions.field("num_value_2").ungrouped(), IndexTypes.RANK));
+        RecordMetaData metaData1 = metaDataBuilder.getRecordMetaData();
+
+        // Turning versioning on is fine, but turning it back off is not
+        RecordMetaData metaData2 = replaceIndex(metaData1, indexName,
+                indexProto -> changeOption(indexProto, IndexOptions.RANK_VERSIONED, "true"));
+        validator.validate(metaData1, metaData2);
+        validateIndexMutation("rank versioned changed", metaData2, indexName,
+                indexProto -> changeOption(indexProto, IndexOptions.RANK_VERSIONED, "false"));
+        validateIndexMutation("rank versioned changed", metaData2, indexName, this::clearOptions);
+    }
+
     @Test
     void textOptionsChanged() {
         final String indexName = "MySimpleRecord$text(str_value_indexed)";
@@ -0,0 +1,167 @@
+/*
+ * EventHistogramTest.java
+ *
+ * This source file is part of the FoundationDB open source project
+ *
+ * Copyright 2015-2026 Apple Inc. and the FoundationDB project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.apple.foundationdb.record.provider.common;
+
+import com.apple.foundationdb.record.RecordCoreArgumentException;
+import com.apple.foundationdb.record.provider.foundationdb.FDBStoreTimer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.Map;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.hasKey;
+import static org.hamcrest.Matchers.not;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests of the {@link EventHistogram} and its use in {@link StoreTimer}.
+ */
+public class EventHistogramTest {
+
+    @ParameterizedTest
+    @ValueSource(longs = {0L, 1L, 7L, 8L, 9L, 15L, 16L, 17L, 1000L, 123_456_789L, Long.MAX_VALUE - 1, Long.MAX_VALUE})
+    void bucketBoundaries(long value) {
+        final int index = EventHistogram.bucketIndex(value);
+        assertTrue(index >= 0 && index < EventHistogram.BUCKET_COUNT);
+        final long highest = EventHistogram.highestValueInBucket(index);
+        assertTrue(highest >= value);
+        // relative error is bounded by the width of the sub-buckets
+        assertTrue(highest - value <= value / EventHistogram.SUB_BUCKET_COUNT);
+        if (highest < Long.MAX_VALUE) {
+            assertEquals(index + 1, EventHistogram.bucketIndex(highest + 1));
+        }
+    }
+
+    @Test
+    void percentiles() {
+        final EventHistogram histogram = new EventHistogram();
+        assertEquals(0L, histogram.getValueAtPercentile(99.0));
+        for (long i = 1; i <= 1000; i++) {
+            histogram.record(i);
+        }
+        assertEquals(1000L, histogram.getTotalCount());
+        assertWithinBucket(500L, histogram.getValueAtPercentile(50.0));
+        assertWithinBucket(990L, histogram.getValueAtPercentile(99.0));
+        assertWithinBucket(1000L, histogram.getValueAtPercentile(100.0));
+        assertWithinBucket(1L, histogram.getValueAtPercentile(0.0));
+        assertThrows(RecordCoreArgumentException.class, () -> histogram.getValueAtPercentile(101.0));
+    }
+
+    @Test
+    void addHistograms() {
+        final EventHistogram histogram1 = new EventHistogram();
+        final EventHistogram histogram2 = new EventHistogram();
+        for (int i = 0; i < 99; i++) {
+            histogram1.record(100L);
+        }
+        histogram2.record(1_000_000L);
+        histogram1.add(histogram2);
+        assertEquals(100L, histogram1.getTotalCount());
+        assertWithinBucket(100L, histogram1.getValueAtPercentile(99.0));
+        assertWithinBucket(1_000_000L, histogram1.getValueAtPercentile(99.9));
+    }
+
+    @Test
+    void histogramsDisabledByDefault() {
+        final StoreTimer timer = new StoreTimer();
+        timer.record(FDBStoreTimer.Events.COMMIT, 1000L);
+        assertNull(timer.getCounter(FDBStoreTimer.Events.COMMIT).getHistogram());
+        assertEquals(0L, timer.getValueAtPercentile(FDBStoreTimer.Events.COMMIT, 99.0));
+        assertThat(timer.getKeysAndValues(), not(hasKey("commit_p99_micros")));
+    }
+
+    @Test
+    void timerPercentiles() {
+        final StoreTimer timer = new StoreTimer();
+        timer.setHistogramsEnabled(true);
+        for (int i = 0; i < 998; i++) {
+            timer.record(FDBStoreTimer.Events.COMMIT, 1_000_000L);
+        }
+        timer.record(FDBStoreTimer.Events.COMMIT, 500_000_000L);
+        timer.record(FDBStoreTimer.Events.COMMIT, 500_000_000L);
+        timer.increment(FDBStoreTimer.Counts.DELETE_RECORD_KEY);
+
+        assertNotNull(timer.getCounter(FDBStoreTimer.Events.COMMIT).getHistogram());
+        assertWithinBucket(1_000_000L, timer.getValueAtPercentile(FDBStoreTimer.Events.COMMIT, 99.0));
+        assertWithinBucket(500_000_000L, timer.getValueAtPercentile(FDBStoreTimer.Events.COMMIT, 100.0));
+
+        final Map<String, Number> keysAndValues = timer.getKeysAndValues();
+        assertEquals(highestValue(1_000_000L) / 1000L, keysAndValues.get("commit_p50_micros").longValue());
+        assertEquals(highestValue(1_000_000L) / 1000L, keysAndValues.get("commit_p99_micros").longValue());
+        assertEquals(highestValue(500_000_000L) / 1000L, keysAndValues.get("commit_p999_micros").longValue());
+        assertThat(keysAndValues, not(hasKey("delete_record_key_p99_micros")));
+    }
+
+    @Test
+    void snapshotDifference() {
+        final StoreTimer timer = new StoreTimer();
+        timer.setHistogramsEnabled(true);
+        for (int i = 0; i < 100; i++) {
+            timer.record(FDBStoreTimer.Events.LOAD_RECORD, 10_000L);
+        }
+        final StoreTimerSnapshot snapshot = StoreTimerSnapshot.from(timer);
+        assertWithinBucket(10_000L, snapshot.getCounterSnapshot(FDBStoreTimer.Events.LOAD_RECORD).getValueAtPercentile(99.0));
+
+        for (int i = 0; i < 10; i++) {
+            timer.record(FDBStoreTimer.Events.LOAD_RECORD, 5_000_000L);
+        }
+        timer.record(FDBStoreTimer.Events.PLAN_QUERY, 20_000L);
+
+        final StoreTimer difference = StoreTimer.getDifference(timer, snapshot);
+        final EventHistogram loadRecordHistogram = difference.getCounter(FDBStoreTimer.Events.LOAD_RECORD).getHistogram();
+        assertNotNull(loadRecordHistogram);
+        assertEquals(10L, loadRecordHistogram.getTotalCount());
+        assertWithinBucket(5_000_000L, loadRecordHistogram.getValueAtPercentile(0.0));
+        assertWithinBucket(20_000L, difference.getValueAtPercentile(FDBStoreTimer.Events.PLAN_QUERY, 50.0));
+    }
+
+    @Test
+    void aggregatePercentiles() {
+        final StoreTimer timer = new StoreTimer();
+        timer.setHistogramsEnabled(true);
+        for (int i = 0; i < 90; i++) {
+            timer.record(FDBStoreTimer.Counts.DELETE_RECORD_KEY_BYTES, 100L);
+        }
+        for (int i = 0; i < 10; i++) {
+            timer.record(FDBStoreTimer.Counts.DELETE_INDEX_KEY_BYTES, 10_000L);
+        }
+
+        final EventHistogram histogram = timer.getCounter(FDBStoreTimer.CountAggregates.BYTES_DELETED).getHistogram();
+        assertNotNull(histogram);
+        assertEquals(100L, histogram.getTotalCount());
+        assertWithinBucket(100L, timer.getValueAtPercentile(FDBStoreTimer.CountAggregates.BYTES_DELETED, 90.0));
+        assertWithinBucket(10_000L, timer.getValueAtPercentile(FDBStoreTimer.CountAggregates.BYTES_DELETED, 99.0));
+    }
+
+    private static void assertWithinBucket(long expected, long actual) {
+        assertEquals(highestValue(expected), actual);
+    }
+
+    private static long highestValue(long value) {
+        return EventHistogram.highestValueInBucket(EventHistogram.bucketIndex(value));
+    }
+}
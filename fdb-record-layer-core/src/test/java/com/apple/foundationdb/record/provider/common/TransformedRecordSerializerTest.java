@@ -21,6 +21,7 @@
 package com.apple.foundationdb.record.provider.common;
 
 import com.apple.foundationdb.record.RecordCoreArgumentException;
+import com.apple.foundationdb.record.RecordCoreException;
 import com.apple.foundationdb.record.RecordMetaData;
 import com.apple.foundationdb.record.TestRecords1Proto;
 import com.apple.foundationdb.record.TestRecords1Proto.MySimpleRecord;
@@ -350,6 +351,82 @@ public class TransformedRecordSerializerTest {
         assertThat(negativeLengthException.getLogInfo(), hasEntry("decompressedLength", -1));
     }
 
+    @Test
+    void compressWithCustomCodec() {
+        final TransformedRecordSerializer<Message> serializer = TransformedRecordSerializer.newDefaultBuilder()
+                .setCompressWhenSerializing(true)
+                .setCompressionCodec(new RunLengthCodec())
+                .setWriteValidationRatio(1.0)
+                .build();
+        final MySimpleRecord longRecord = MySimpleRecord.newBuilder().setRecNo(PRIMARY_KEY_REC_NO).setStrValueIndexed(Strings.repeat("a", 1000)).build();
+        byte[] serialized = serialize(serializer, longRecord);
+        assertTrue(isCompressed(serialized));
+        assertEquals(RunLengthCodec.ID, serialized[1]);
+        assertEquals(RecordTypeUnion.newBuilder().setMySimpleRecord(longRecord).build().toByteArray().length, getUncompressedSize(serialized));
+        assertThat(storeTimer.getCount(RecordSerializer.Counts.RECORD_BYTES_BEFORE_COMPRESSION),
+                greaterThan(storeTimer.getCount(RecordSerializer.Counts.RECORD_BYTES_AFTER_COMPRESSION)));
+        assertEquals(longRecord, deserialize(serializer, PRIMARY_KEY, serialized));
+
+        // A serializer that does not use the codec cannot find it, as it is not registered as a service
+        final TransformedRecordSerializer<Message> defaultSerializer = TransformedRecordSerializer.newDefaultBuilder()
+                .setCompressWhenSerializing(true)
+                .build();
+        RecordSerializationException e = assertThrows(RecordSerializationException.class,
+                () -> deserialize(defaultSerializer, PRIMARY_KEY, serialized));
+        assertThat(e.getMessage(), containsString("unknown compression version"));
+        assertThat(e.getLogInfo(), hasEntry("compressionVersion", (Object) RunLengthCodec.ID));
+    }
+
+    @Test
+    void readDeflateWithCustomCodec() {
+        final TransformedRecordSerializer<Message> deflateSerializer = TransformedRecordSerializer.newDefaultBuilder()
+                .setCompressWhenSerializing(true)
+                .build();
+        final MySimpleRecord simpleRecord = MySimpleRecord.newBuilder().setRecNo(PRIMARY_KEY_REC_NO).setStrValueIndexed(SONNET_108).build();
+        byte[] serialized = serialize(deflateSerializer, simpleRecord);
+        assertTrue(isCompressed(serialized));
+        assertEquals(DeflateRecordCompressionCodec.ID, serialized[1]);
+
+        // Records compressed by the default codec remain readable after switching codecs
+        final TransformedRecordSerializer<Message> serializer = TransformedRecordSerializer.newDefaultBuilder()
+                .setCompressWhenSerializing(true)
+                .setCompressionCodec(new RunLengthCodec())
+                .build();
+        assertEquals(simpleRecord, deserialize(serializer, PRIMARY_KEY, serialized));
+    }
+
+    @Test
+    void customCodecIdOutOfRange() {
+        // The identifier is written into a single byte of each compressed record
+        final RecordCompressionCodec codec = new RunLengthCodec() {
+            @Override
+            public int getId() {
+                return 200;
+            }
+        };
+        RecordCoreException e = assertThrows(RecordCoreException.class,
+                () -> TransformedRecordSerializer.newDefaultBuilder()
+                        .setCompressWhenSerializing(true)
+                        .setCompressionCodec(codec)
+                        .build());
+        assertThat(e.getMessage(), containsString("compression codec identifier out of range"));
+    }
+
+    @Test
+    void customCodecWithoutSavings() {
+        final TransformedRecordSerializer<Message> serializer = TransformedRecordSerializer.newDefaultBuilder()
+                .setCompressWhenSerializing(true)
+                .setCompressionCodec(new RunLengthCodec())
+                .setWriteValidationRatio(1.0)
+                .build();
+        // Sonnet has almost no runs of repeated characters, so run-length encoding only makes it larger
+        final MySimpleRecord simpleRecord = MySimpleRecord.newBuilder().setRecNo(PRIMARY_KEY_REC_NO).setStrValueIndexed(SONNET_108).build();
+        byte[] serialized = serialize(serializer, simpleRecord);
+        assertEquals(TransformedRecordSerializerPrefix.PREFIX_CLEAR, serialized[0]);
+        assertEquals(1, storeTimer.getCount(RecordSerializer.Counts.ESCHEW_RECORD_COMPRESSION));
+        assertEquals(simpleRecord, deserialize(serializer, PRIMARY_KEY, serialized));
+    }
+
     @Test
     void buildWithoutSettingEncryption() {
         final TransformedRecordSerializer.Builder<Message> builder = TransformedRecordSerializer.newDefaultBuilder().setEncryptWhenSerializing(true);
@@ -1085,4 +1162,61 @@ public class TransformedRecordSerializerTest {
         }
     }
 
+
+    /**
+     * A simple run-length encoding of (count, byte) pairs, used to test codecs other than the default one.
+     */
+    private static class RunLengthCodec implements RecordCompressionCodec {
+        private static final int ID = 100;
+
+        @Override
+        public int getId() {
+            return ID;
+        }
+
+        @Nonnull
+        @Override
+        public String getName() {
+            return "rle";
+        }
+
+        @Override
+        public int compress(@Nonnull byte[] input, int inputOffset, int inputLength,
+                            @Nonnull byte[] output, int outputOffset, int maxOutputLength, int level) {
+            int outputLength = 0;
+            int i = inputOffset;
+            while (i < inputOffset + inputLength) {
+                int run = 1;
+                while (run < 255 && i + run < inputOffset + inputLength && input[i + run] == input[i]) {
+                    run++;
+                }
+                if (outputLength + 2 > maxOutputLength) {
+                    return -1;
+                }
+                output[outputOffset + outputLength++] = (byte)run;
+                output[outputOffset + outputLength++] = input[i];
+                i += run;
+            }
+            return outputLength;
+        }
+
+        @Override
+        public void decompress(@Nonnull byte[] input, int inputOffset, int inputLength, @Nonnull byte[] output) {
+            int outputLength = 0;
+            for (int i = inputOffset; i + 1 < inputOffset + inputLength; i += 2) {
+                int run = input[i] & 0xff;
+                if (outputLength + run > output.length) {
+                    throw new RecordSerializationException("decompressed record too large")
+                            .addLogInfo(LogMessageKeys.EXPECTED, output.length);
+                }
+                Arrays.fill(output, outputLength, outputLength + run, input[i + 1]);
+                outputLength += run;
+            }
+            if (outputLength < output.length) {
+                throw new RecordSerializationException("decompressed record too small")
+                        .addLogInfo(LogMessageKeys.EXPECTED, output.length)
+                        .addLogInfo(LogMessageKeys.ACTUAL, outputLength);
+            }
+        }
+    }
 }
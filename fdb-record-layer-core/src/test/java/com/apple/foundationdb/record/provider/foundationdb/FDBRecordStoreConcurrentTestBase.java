@@ -100,7 +100,7 @@ public class FDBRecordStoreConcurrentTestBase {
     public QueryPlanner setupPlanner(@Nonnull FDBRecordStore recordStore, @Nullable PlannableIndexTypes indexTypes) {
         final QueryPlanner planner;
         if (useCascadesPlanner) {
-            planner = recordStore.getCascadesPlanner();
+            planner = recordStore.getCascadesPlannerAsync().join();
             if (Debugger.getDebugger() == null) {
                 Debugger.setDebugger(DebuggerWithSymbolTables.withSanityChecks());
             }
@@ -32,6 +32,7 @@ import com.apple.foundationdb.record.IndexEntry;
 import com.apple.foundationdb.record.IndexScanType;
 import com.apple.foundationdb.record.IndexState;
 import com.apple.foundationdb.record.IsolationLevel;
+import com.apple.foundationdb.record.RecordCoreArgumentException;
 import com.apple.foundationdb.record.RecordCoreException;
 import com.apple.foundationdb.record.RecordCursorIterator;
 import com.apple.foundationdb.record.RecordIndexUniquenessViolation;
@@ -267,6 +268,70 @@ public class FDBRecordStoreIndexTest extends FDBRecordStoreTestBase {
         }
     }
 
+    @Test
+    void saveRecordsBatch() {
+        final FieldKeyExpression recno = field("rec_no");
+        final GroupingKeyExpression byKey = recno.groupBy(field("num_value_3_indexed"));
+        final RecordMetaDataHook hook = md -> md.addUniversalIndex(new Index("sum", byKey, IndexTypes.SUM));
+
+        final IndexAggregateFunction subtotal = new IndexAggregateFunction(FunctionNames.SUM, byKey, null);
+        final IndexAggregateFunction total = new IndexAggregateFunction(FunctionNames.SUM, recno, null);
+        final List<String> allTypes = Collections.emptyList();
+
+        try (FDBRecordContext context = openContext()) {
+            openSimpleRecordStore(context, hook);
+            for (int i = 0; i < 10; i++) {
+                recordStore.saveRecord(batchRecord(i, i % 2));
+            }
+            commit(context);
+        }
+
+        try (FDBRecordContext context = openContext()) {
+            openSimpleRecordStore(context, hook);
+            // Replace the second half and add as many again.
+            final List<TestRecords1Proto.MySimpleRecord> batch = new ArrayList<>();
+            for (int i = 5; i < 15; i++) {
+                batch.add(batchRecord(i, 2));
+            }
+            final List<FDBStoredRecord<Message>> saved = recordStore.saveRecords(batch);
+            assertEquals(batch.size(), saved.size());
+            for (int i = 0; i < batch.size(); i++) {
+                assertEquals(Tuple.from(batch.get(i).getRecNo()), saved.get(i).getPrimaryKey());
+            }
+            commit(context);
+        }
+
+        try (FDBRecordContext context = openContext()) {
+            openSimpleRecordStore(context, hook);
+            assertEquals((14 * 15) / 2, recordStore.evaluateAggregateFunction(allTypes, total, Key.Evaluated.EMPTY, IsolationLevel.SNAPSHOT).join().getLong(0));
+            assertEquals(0 + 2 + 4, recordStore.evaluateAggregateFunction(allTypes, subtotal, Key.Evaluated.scalar(0), IsolationLevel.SNAPSHOT).join().getLong(0));
+            assertEquals(1 + 3, recordStore.evaluateAggregateFunction(allTypes, subtotal, Key.Evaluated.scalar(1), IsolationLevel.SNAPSHOT).join().getLong(0));
+            assertEquals((14 * 15) / 2 - (4 * 5) / 2, recordStore.evaluateAggregateFunction(allTypes, subtotal, Key.Evaluated.scalar(2), IsolationLevel.SNAPSHOT).join().getLong(0));
+            final Index strIndex = recordStore.getRecordMetaData().getIndex("MySimpleRecord$str_value_indexed");
+            assertEquals(3, (int)recordStore.scanIndex(strIndex, IndexScanType.BY_VALUE, TupleRange.allOf(Tuple.from("group_0")), null, ScanProperties.FORWARD_SCAN).getCount().join());
+            assertEquals(10, (int)recordStore.scanIndex(strIndex, IndexScanType.BY_VALUE, TupleRange.allOf(Tuple.from("group_2")), null, ScanProperties.FORWARD_SCAN).getCount().join());
+
+            assertThrows(RecordCoreArgumentException.class, () -> recordStore.saveRecords(List.of(batchRecord(20, 0), batchRecord(20, 1))));
+            // Nothing is saved if any of the records fails the check.
+            assertThrows(RecordAlreadyExistsException.class,
+                    () -> recordStore.saveRecords(List.of(batchRecord(20, 0), batchRecord(1, 0)), FDBRecordStoreBase.RecordExistenceCheck.ERROR_IF_EXISTS));
+            assertNull(recordStore.loadRecord(Tuple.from(20L)));
+
+            recordStore.saveRecords(List.of(batchRecord(20, 0), batchRecord(21, 0).toBuilder().setNumValueUnique(20).build()));
+            assertThrows(RecordIndexUniquenessViolation.class, () -> commit(context));
+        }
+    }
+
+    @Nonnull
+    private static TestRecords1Proto.MySimpleRecord batchRecord(int recNo, int group) {
+        return TestRecords1Proto.MySimpleRecord.newBuilder()
+                .setRecNo(recNo)
+                .setNumValue3Indexed(group)
+                .setStrValueIndexed("group_" + group)
+                .setNumValueUnique(recNo)
+                .build();
+    }
+
     @Test
     void sumUnsetOptional() {
         final KeyExpression key = field("num_value_3_indexed").ungrouped();
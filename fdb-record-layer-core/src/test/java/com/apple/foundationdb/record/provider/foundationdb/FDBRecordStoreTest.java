@@ -30,6 +30,7 @@ import com.apple.foundationdb.record.IndexEntry;
 import com.apple.foundationdb.record.IndexScanType;
 import com.apple.foundationdb.record.IndexState;
 import com.apple.foundationdb.record.IsolationLevel;
+import com.apple.foundationdb.record.RecordCoreArgumentException;
 import com.apple.foundationdb.record.RecordCoreException;
 import com.apple.foundationdb.record.RecordCoreStorageException;
 import com.apple.foundationdb.record.RecordCursor;
@@ -75,6 +76,7 @@ import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Tag;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
 import org.junit.jupiter.params.provider.MethodSource;
 
 import javax.annotation.Nonnull;
@@ -95,6 +97,7 @@ import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
+import java.util.stream.LongStream;
 
 import static com.apple.foundationdb.record.metadata.Key.Expressions.concat;
 import static com.apple.foundationdb.record.metadata.Key.Expressions.concatenateFields;
@@ -278,6 +281,66 @@ public class FDBRecordStoreTest extends FDBRecordStoreTestBase {
         }
     }
 
+    @ParameterizedTest(name = "scanRecordsParallel [ordered = {0}, reverse = {1}]")
+    @CsvSource({"false, false", "true, false", "true, true"})
+    public void scanRecordsParallel(boolean ordered, boolean reverse) {
+        try (FDBRecordContext context = openContext()) {
+            openSimpleRecordStore(context);
+
+            TestRecords1Proto.MySimpleRecord.Builder recBuilder = TestRecords1Proto.MySimpleRecord.newBuilder();
+            for (int i = 0; i < 100; i++) {
+                recBuilder.setRecNo(i);
+                recordStore.saveRecord(recBuilder.build());
+            }
+            commit(context);
+        }
+        final ScanProperties scanProperties = new ScanProperties(ExecuteProperties.newBuilder()
+                .setReturnedRowLimit(7)
+                .setIsolationLevel(IsolationLevel.SERIALIZABLE)
+                .build(), reverse);
+        // All the records are in one shard, so give boundaries explicitly to have several partitions.
+        // Those outside the range are ignored and only evenly spaced ones are used for the 4 partitions.
+        final List<Tuple> boundaries = LongStream.range(0L, 100L).filter(i -> i % 5 == 0)
+                .mapToObj(i -> Tuple.from(i)).collect(Collectors.toList());
+        final List<Long> primaryKeys = new ArrayList<>();
+        byte[] continuation = null;
+        do {
+            try (FDBRecordContext context = openContext()) {
+                openSimpleRecordStore(context);
+                final RecordCursor<FDBStoredRecord<Message>> parallelScan = recordStore.scanRecordsParallel(
+                        TupleRange.between(Tuple.from(10L), Tuple.from(90L)), continuation, scanProperties,
+                        4, ordered, () -> CompletableFuture.completedFuture(boundaries));
+                try (RecordCursorIterator<FDBStoredRecord<Message>> cursor = parallelScan.asIterator()) {
+                    while (cursor.hasNext()) {
+                        primaryKeys.add(cursor.next().getPrimaryKey().getLong(0));
+                    }
+                    continuation = cursor.getContinuation();
+                }
+            }
+        } while (continuation != null);
+        final List<Long> expected = LongStream.range(10L, 90L).boxed().collect(Collectors.toList());
+        if (reverse) {
+            Collections.reverse(expected);
+        }
+        if (ordered) {
+            assertEquals(expected, primaryKeys);
+        } else {
+            assertEquals(new HashSet<>(expected), new HashSet<>(primaryKeys));
+            assertEquals(expected.size(), primaryKeys.size());
+        }
+    }
+
+    @Test
+    public void scanIndexParallelNotValueIndex() {
+        try (FDBRecordContext context = openContext()) {
+            openSimpleRecordStore(context, md -> md.addIndex("MySimpleRecord",
+                    new Index("rankIndex", field("num_value_2").ungrouped(), IndexTypes.RANK)));
+            final Index index = recordStore.getRecordMetaData().getIndex("rankIndex");
+            assertThrows(RecordCoreArgumentException.class, () -> recordStore.scanIndexParallel(index,
+                    TupleRange.ALL, null, ScanProperties.FORWARD_SCAN, 4, false));
+        }
+    }
+
     @Test
     public void testOverlappingPrimaryKey() {
         try (FDBRecordContext context = openContext()) {
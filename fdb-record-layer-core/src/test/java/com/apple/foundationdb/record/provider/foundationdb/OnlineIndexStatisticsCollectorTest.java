@@ -0,0 +1,130 @@
+/*
+ * OnlineIndexStatisticsCollectorTest.java
+ *
+ * This source file is part of the FoundationDB open source project
+ *
+ * Copyright 2015-2026 Apple Inc. and the FoundationDB project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.apple.foundationdb.record.provider.foundationdb;
+
+import com.apple.foundationdb.record.metadata.Index;
+import com.apple.foundationdb.record.metadata.IndexTypes;
+import com.apple.foundationdb.record.metadata.expressions.EmptyKeyExpression;
+import com.apple.foundationdb.record.metadata.expressions.GroupingKeyExpression;
+import com.apple.foundationdb.record.provider.foundationdb.statistics.IndexStatistics;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static com.apple.foundationdb.record.metadata.Key.Expressions.field;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for collecting index statistics with {@link OnlineIndexStatisticsCollector}.
+ */
+class OnlineIndexStatisticsCollectorTest extends OnlineIndexerTest {
+
+    @Test
+    void collectValueIndexStatistics() {
+        final int numRecords = 200;
+        final Index tgtIndex = createValueIndexAndPopulateData(numRecords);
+
+        final FDBStoreTimer timer = new FDBStoreTimer();
+        final IndexStatistics collected;
+        try (OnlineIndexStatisticsCollector collector = newCollectorBuilder(tgtIndex, timer)
+                .setLimit(17)
+                .setCollectionPolicy(OnlineIndexStatisticsCollector.CollectionPolicy.newBuilder()
+                        .setSampleSize(100)
+                        .setHistogramBucketCount(10)
+                        .build())
+                .build()) {
+            collected = collector.collectStatistics();
+        }
+        assertEquals(numRecords, collected.getEntryCount());
+        assertEquals(1, collected.getDistinctPrefixCounts().size());
+        final long distinct = collected.getDistinctPrefixCounts().get(0);
+        assertTrue(distinct > numRecords * 0.9 && distinct < numRecords * 1.1, "distinct count " + distinct);
+        assertNotNull(collected.getHistogram());
+        assertEquals(10, collected.getHistogram().getBucketCount());
+        assertTrue(timer.getCount(FDBStoreTimer.Counts.ONLINE_INDEX_BUILDER_RANGES_BY_COUNT) > 1);
+
+        try (FDBRecordContext context = openContext()) {
+            final IndexStatistics loaded = recordStore.loadIndexStatisticsAsync(tgtIndex).join();
+            assertNotNull(loaded);
+            assertEquals(collected.toProto(), loaded.toProto());
+            assertEquals(List.of(tgtIndex.getName()), List.copyOf(recordStore.loadAllIndexStatisticsAsync().join().keySet()));
+        }
+
+        // statistics of a rebuilt index are discarded
+        disableAll(List.of(tgtIndex));
+        buildIndexClean(tgtIndex);
+        try (FDBRecordContext context = openContext()) {
+            assertNull(recordStore.loadIndexStatisticsAsync(tgtIndex).join());
+        }
+    }
+
+    @Test
+    void collectEmptyIndexStatistics() {
+        final Index tgtIndex = createValueIndexAndPopulateData(0);
+        try (OnlineIndexStatisticsCollector collector = newCollectorBuilder(tgtIndex, new FDBStoreTimer()).build()) {
+            final IndexStatistics collected = collector.collectStatistics();
+            assertEquals(0, collected.getEntryCount());
+            assertNull(collected.getHistogram());
+        }
+    }
+
+    @Test
+    void collectInvalidIndexState() {
+        final Index tgtIndex = createValueIndexAndPopulateData(20);
+
+        // refuse to collect statistics of a non-readable index
+        try (FDBRecordContext context = openContext()) {
+            recordStore.markIndexWriteOnly(tgtIndex).join();
+            context.commit();
+        }
+        try (OnlineIndexStatisticsCollector collector = newCollectorBuilder(tgtIndex, new FDBStoreTimer()).build()) {
+            assertThrows(IndexingBase.ValidationException.class, collector::collectStatistics);
+        }
+
+        // refuse to collect statistics of a non-value index
+        final Index nonValueIndex = new Index("count_index", new GroupingKeyExpression(EmptyKeyExpression.EMPTY, 0), IndexTypes.COUNT);
+        openSimpleMetaData(allIndexesHook(List.of(nonValueIndex)));
+        buildIndexClean(nonValueIndex);
+        try (OnlineIndexStatisticsCollector collector = newCollectorBuilder(nonValueIndex, new FDBStoreTimer()).build()) {
+            assertThrows(IndexingBase.ValidationException.class, collector::collectStatistics);
+        }
+    }
+
+    private OnlineIndexStatisticsCollector.Builder newCollectorBuilder(Index index, FDBStoreTimer timer) {
+        return OnlineIndexStatisticsCollector.newBuilder()
+                .setDatabase(fdb)
+                .setRecordStoreBuilder(createStoreBuilder())
+                .setIndex(index)
+                .setTimer(timer);
+    }
+
+    private Index createValueIndexAndPopulateData(long numRecords) {
+        Index tgtIndex = new Index("tgt_index", field("num_value_2"));
+        populateData(numRecords);
+        openSimpleMetaData(allIndexesHook(List.of(tgtIndex)));
+        buildIndexClean(tgtIndex);
+        return tgtIndex;
+    }
+}
@@ -0,0 +1,238 @@
+/*
+ * OnlineIndexerBulkSortedTest.java
+ *
+ * This source file is part of the FoundationDB open source project
+ *
+ * Copyright 2015-2026 Apple Inc. and the FoundationDB project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.apple.foundationdb.record.provider.foundationdb;
+
+import com.apple.foundationdb.record.IndexBuildProto;
+import com.apple.foundationdb.record.TestRecords1Proto;
+import com.apple.foundationdb.record.metadata.Index;
+import com.apple.foundationdb.record.metadata.IndexOptions;
+import com.apple.foundationdb.record.metadata.IndexTypes;
+import com.apple.foundationdb.record.metadata.expressions.EmptyKeyExpression;
+import com.apple.foundationdb.record.sorting.SortEvents;
+import com.apple.foundationdb.tuple.Tuple;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.apple.foundationdb.record.metadata.Key.Expressions.field;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Tests for building indexes with {@link OnlineIndexer} by a bulk sorted scan of the records.
+ */
+class OnlineIndexerBulkSortedTest extends OnlineIndexerTest {
+
+    private OnlineIndexer.IndexingPolicy bulkSortedPolicy() {
+        return OnlineIndexer.IndexingPolicy.newBuilder()
+                .setBulkSortedBuild(true)
+                .build();
+    }
+
+    private IndexBuildProto.IndexBuildIndexingStamp.Method stampMethod(Index index) {
+        try (OnlineIndexer indexer = newIndexerBuilder(index).build()) {
+            final Map<String, IndexBuildProto.IndexBuildIndexingStamp> stamps = indexer.queryIndexingStamps();
+            final IndexBuildProto.IndexBuildIndexingStamp stamp = stamps.get(index.getName());
+            assertNotNull(stamp);
+            return stamp.getMethod();
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {7, 50, 1000})
+    void testBulkSortedSimple(int limit) {
+        final FDBStoreTimer timer = new FDBStoreTimer();
+        final long numRecords = 211;
+
+        final Index index = new Index("indexB", field("num_value_3_indexed"), IndexTypes.VALUE);
+        final List<Index> indexes = List.of(index);
+
+        populateData(numRecords);
+
+        final FDBRecordStoreTestBase.RecordMetaDataHook hook = allIndexesHook(indexes);
+        openSimpleMetaData(hook);
+        disableAll(indexes);
+        try (OnlineIndexer indexBuilder = newIndexerBuilder(index, timer)
+                .setLimit(limit)
+                .setIndexingPolicy(bulkSortedPolicy())
+                .build()) {
+            indexBuilder.buildIndex(true);
+        }
+
+        assertEquals(numRecords, timer.getCount(FDBStoreTimer.Counts.ONLINE_INDEX_BUILDER_RECORDS_SCANNED));
+        assertEquals(numRecords, timer.getCount(FDBStoreTimer.Counts.ONLINE_INDEX_BUILDER_RECORDS_INDEXED));
+        assertReadable(indexes);
+        assertEquals(IndexBuildProto.IndexBuildIndexingStamp.Method.BULK_SORTED_BY_RECORDS, stampMethod(index));
+        scrubAndValidate(indexes);
+    }
+
+    @Test
+    void testBulkSortedSpillsToFiles() {
+        final FDBStoreTimer timer = new FDBStoreTimer();
+        final long numRecords = 500;
+        final int limit = 37;
+
+        final Index index = new Index("indexB", field("num_value_3_indexed"), IndexTypes.VALUE);
+        final List<Index> indexes = List.of(index);
+
+        populateData(numRecords);
+
+        final FDBRecordStoreTestBase.RecordMetaDataHook hook = allIndexesHook(indexes);
+        openSimpleMetaData(hook);
+        disableAll(indexes);
+        // Few enough entries in memory that there are more files than are merged at once.
+        try (OnlineIndexer indexBuilder = newIndexerBuilder(index, timer)
+                .setLimit(limit)
+                .setIndexingPolicy(OnlineIndexer.IndexingPolicy.newBuilder()
+                        .setBulkSortedBuild(true)
+                        .setBulkSortedMaxRecordCountInMemory(3)
+                        .build())
+                .build()) {
+            indexBuilder.buildIndex(true);
+        }
+
+        assertEquals(numRecords, timer.getCount(FDBStoreTimer.Counts.ONLINE_INDEX_BUILDER_RECORDS_INDEXED));
+        assertThat(timer.getCount(SortEvents.Events.FILE_SORT_MERGE_FILES), greaterThan(1));
+        assertReadable(indexes);
+        scrubAndValidate(indexes);
+    }
+
+    @Test
+    void testBulkSortedInterruptedWhileRepairing() {
+        final long numRecords = 60;
+
+        final Index index = new Index("indexB", field("num_value_3_indexed"), IndexTypes.VALUE);
+        final List<Index> indexes = List.of(index);
+
+        populateData(numRecords);
+
+        final FDBRecordStoreTestBase.RecordMetaDataHook hook = allIndexesHook(indexes);
+        openSimpleMetaData(hook);
+        disableAll(indexes);
+        try (OnlineIndexer indexBuilder = newIndexerBuilder(index)
+                .setIndexingPolicy(bulkSortedPolicy())
+                .build()) {
+            indexBuilder.buildIndex(false);
+        }
+
+        // Leave a changed record behind, as though the build had stopped before repairing it.
+        try (FDBRecordContext context = openContext()) {
+            context.ensureActive().set(IndexingSubspaces.indexBuildChangedRecordsSubspace(recordStore, index).pack(Tuple.from(1L)), new byte[0]);
+            final CompletionException ex = assertThrows(CompletionException.class, () -> recordStore.markIndexReadable(index).join());
+            assertInstanceOf(FDBRecordStore.IndexNotBuiltException.class, ex.getCause());
+            context.commit();
+        }
+
+        final FDBStoreTimer timer = new FDBStoreTimer();
+        try (OnlineIndexer indexBuilder = newIndexerBuilder(index, timer)
+                .setIndexingPolicy(bulkSortedPolicy())
+                .build()) {
+            indexBuilder.buildIndex(true);
+        }
+
+        // The build starts over rather than leave the entries of the changed record as they are.
+        assertEquals(numRecords, timer.getCount(FDBStoreTimer.Counts.ONLINE_INDEX_BUILDER_RECORDS_SCANNED));
+        assertReadable(indexes);
+        scrubAndValidate(indexes);
+    }
+
+    @Test
+    void testBulkSortedUniqueFallsBackToByRecords() {
+        final FDBStoreTimer timer = new FDBStoreTimer();
+        final long numRecords = 80;
+
+        final Index index = new Index("indexC", field("num_value_unique"), EmptyKeyExpression.EMPTY, IndexTypes.VALUE, IndexOptions.UNIQUE_OPTIONS);
+        final List<Index> indexes = List.of(index);
+
+        populateData(numRecords);
+
+        final FDBRecordStoreTestBase.RecordMetaDataHook hook = allIndexesHook(indexes);
+        openSimpleMetaData(hook);
+        disableAll(indexes);
+        try (OnlineIndexer indexBuilder = newIndexerBuilder(index, timer)
+                .setIndexingPolicy(bulkSortedPolicy())
+                .build()) {
+            indexBuilder.buildIndex(true);
+        }
+
+        assertEquals(numRecords, timer.getCount(FDBStoreTimer.Counts.ONLINE_INDEX_BUILDER_RECORDS_INDEXED));
+        assertReadable(indexes);
+        assertEquals(IndexBuildProto.IndexBuildIndexingStamp.Method.BY_RECORDS, stampMethod(index));
+        scrubAndValidate(indexes);
+    }
+
+    @Test
+    void testBulkSortedWithConcurrentUpdates() {
+        final FDBStoreTimer timer = new FDBStoreTimer();
+        final long numRecords = 150;
+        final int limit = 20;
+
+        final Index index = new Index("indexB", field("num_value_3_indexed"), IndexTypes.VALUE);
+        final List<Index> indexes = List.of(index);
+
+        populateData(numRecords);
+
+        final FDBRecordStoreTestBase.RecordMetaDataHook hook = allIndexesHook(indexes);
+        openSimpleMetaData(hook);
+        disableAll(indexes);
+        final AtomicLong counter = new AtomicLong(0);
+        try (OnlineIndexer indexBuilder = newIndexerBuilder(index, timer)
+                .setLimit(limit)
+                .setIndexingPolicy(bulkSortedPolicy())
+                .setConfigLoader(old -> {
+                    if (counter.incrementAndGet() == 4) {
+                        // Change records, some of them already scanned, while the build is in progress
+                        try (FDBRecordContext context = openContext()) {
+                            for (long recNo = 0; recNo < numRecords; recNo += 10) {
+                                recordStore.saveRecord(TestRecords1Proto.MySimpleRecord.newBuilder()
+                                        .setRecNo(recNo)
+                                        .setNumValue3Indexed((int)recNo * 3 + 1)
+                                        .build());
+                            }
+                            for (long recNo = 5; recNo < numRecords; recNo += 20) {
+                                recordStore.deleteRecord(Tuple.from(recNo));
+                            }
+                            recordStore.saveRecord(TestRecords1Proto.MySimpleRecord.newBuilder()
+                                    .setRecNo(numRecords + 1000)
+                                    .setNumValue3Indexed(-1)
+                                    .build());
+                            context.commit();
+                        }
+                    }
+                    return old;
+                })
+                .build()) {
+            indexBuilder.buildIndex(true);
+        }
+
+        assertReadable(indexes);
+        scrubAndValidate(indexes);
+    }
+}
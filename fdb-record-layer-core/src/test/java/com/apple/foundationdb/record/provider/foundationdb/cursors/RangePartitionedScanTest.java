@@ -0,0 +1,143 @@
+/*
+ * RangePartitionedScanTest.java
+ *
+ * This source file is part of the FoundationDB open source project
+ *
+ * Copyright 2015-2026 Apple Inc. and the FoundationDB project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.apple.foundationdb.record.provider.foundationdb.cursors;
+
+import com.apple.foundationdb.Range;
+import com.apple.foundationdb.record.EndpointType;
+import com.apple.foundationdb.record.RecordCursor;
+import com.apple.foundationdb.record.RecordCursorResult;
+import com.apple.foundationdb.record.TupleRange;
+import com.apple.foundationdb.tuple.ByteArrayUtil;
+import com.apple.foundationdb.tuple.Tuple;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * Tests for {@link RangePartitionedScan}.
+ */
+public class RangePartitionedScanTest {
+    private static final List<Tuple> KEYS = LongStream.range(0L, 100L).mapToObj(Tuple::from).collect(Collectors.toList());
+
+    @Nonnull
+    private static RecordCursor<Tuple> scan(@Nonnull TupleRange range, @Nullable byte[] continuation, boolean reverse) {
+        final Range byteRange = range.toRange();
+        final List<Tuple> inRange = new ArrayList<>();
+        for (Tuple key : KEYS) {
+            final byte[] packed = key.pack();
+            if (ByteArrayUtil.compareUnsigned(packed, byteRange.begin) >= 0 && ByteArrayUtil.compareUnsigned(packed, byteRange.end) < 0) {
+                inRange.add(key);
+            }
+        }
+        if (reverse) {
+            Collections.reverse(inRange);
+        }
+        return RecordCursor.fromList(inRange, continuation);
+    }
+
+    @Nonnull
+    private static List<Tuple> boundaries(long... keys) {
+        return LongStream.of(keys).mapToObj(Tuple::from).collect(Collectors.toList());
+    }
+
+    @Test
+    public void partition() {
+        final TupleRange range = new TupleRange(Tuple.from(10L), Tuple.from(90L), EndpointType.RANGE_EXCLUSIVE, EndpointType.RANGE_INCLUSIVE);
+        assertEquals(List.of(range), RangePartitionedScan.partition(range, List.of()));
+        assertEquals(List.of(
+                        new TupleRange(Tuple.from(10L), Tuple.from(30L), EndpointType.RANGE_EXCLUSIVE, EndpointType.RANGE_EXCLUSIVE),
+                        new TupleRange(Tuple.from(30L), Tuple.from(60L), EndpointType.RANGE_INCLUSIVE, EndpointType.RANGE_EXCLUSIVE),
+                        new TupleRange(Tuple.from(60L), Tuple.from(90L), EndpointType.RANGE_INCLUSIVE, EndpointType.RANGE_INCLUSIVE)),
+                RangePartitionedScan.partition(range, boundaries(30L, 60L)));
+    }
+
+    @Test
+    public void selectBoundaries() {
+        final TupleRange range = TupleRange.between(Tuple.from(10L), Tuple.from(90L));
+        // outside of the range, at its start and duplicates are dropped
+        assertEquals(boundaries(20L, 30L),
+                RangePartitionedScan.selectBoundaries(range, boundaries(5L, 10L, 20L, 20L, 30L, 90L, 95L), 8));
+        // evenly spaced when there are too many
+        assertEquals(boundaries(40L, 70L),
+                RangePartitionedScan.selectBoundaries(range, boundaries(20L, 30L, 40L, 50L, 60L, 70L, 80L, 85L), 3));
+        assertEquals(boundaries(20L, 30L, 40L),
+                RangePartitionedScan.selectBoundaries(range, boundaries(20L, 30L, 40L), 4));
+    }
+
+    @ParameterizedTest(name = "scanAll [ordered = {0}, reverse = {1}, limit = {2}]")
+    @CsvSource({"false, false, 1000", "false, false, 3", "true, false, 1000", "true, false, 3", "true, true, 1000", "true, true, 3", "false, true, 7"})
+    public void scanAll(boolean ordered, boolean reverse, int limit) {
+        final TupleRange range = TupleRange.between(Tuple.from(10L), Tuple.from(90L));
+        final List<Tuple> results = new ArrayList<>();
+        byte[] continuation = null;
+        Supplier<CompletableFuture<List<Tuple>>> boundariesSupplier = () -> CompletableFuture.completedFuture(boundaries(0L, 25L, 50L, 75L, 95L));
+        do {
+            RecordCursor<Tuple> cursor = RangePartitionedScan.create(range, boundariesSupplier,
+                    (partition, partitionContinuation) -> scan(partition, partitionContinuation, reverse),
+                    ordered ? Tuple::getItems : null, reverse, 8, continuation, ForkJoinPool.commonPool(), null)
+                    .limitRowsTo(limit);
+            RecordCursorResult<Tuple> result;
+            while ((result = cursor.getNext()).hasNext()) {
+                results.add(result.get());
+            }
+            continuation = result.getContinuation().toBytes();
+            // a resumed scan uses the partitions in the continuation
+            boundariesSupplier = () -> fail("boundaries computed again");
+        } while (continuation != null);
+
+        final List<Tuple> expected = new ArrayList<>(KEYS.subList(10, 90));
+        if (reverse) {
+            Collections.reverse(expected);
+        }
+        if (ordered) {
+            assertEquals(expected, results);
+        } else {
+            assertEquals(new HashSet<>(expected), new HashSet<>(results));
+            assertEquals(expected.size(), results.size());
+        }
+    }
+
+    @Test
+    public void singlePartition() {
+        final TupleRange range = TupleRange.between(Tuple.from(10L), Tuple.from(20L));
+        final List<Tuple> results = RangePartitionedScan.create(range,
+                () -> CompletableFuture.completedFuture(boundaries(30L)),
+                (partition, partitionContinuation) -> scan(partition, partitionContinuation, false),
+                null, false, 8, null, ForkJoinPool.commonPool(), null)
+                .asList().join();
+        assertEquals(KEYS.subList(10, 20), results);
+    }
+}
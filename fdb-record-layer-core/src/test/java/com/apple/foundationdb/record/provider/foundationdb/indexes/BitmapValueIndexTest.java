@@ -28,6 +28,7 @@ import com.apple.foundationdb.record.IndexScanType;
 import com.apple.foundationdb.record.IsolationLevel;
 import com.apple.foundationdb.record.PlanHashable;
 import com.apple.foundationdb.record.RecordCursor;
+import com.apple.foundationdb.record.RecordCoreException;
 import com.apple.foundationdb.record.RecordCursorResult;
 import com.apple.foundationdb.record.RecordIndexUniquenessViolation;
 import com.apple.foundationdb.record.RecordMetaData;
@@ -40,12 +41,15 @@ import com.apple.foundationdb.record.metadata.IndexAggregateFunction;
 import com.apple.foundationdb.record.metadata.IndexAggregateFunctionCall;
 import com.apple.foundationdb.record.metadata.IndexOptions;
 import com.apple.foundationdb.record.metadata.IndexTypes;
+import com.apple.foundationdb.record.metadata.MetaDataException;
 import com.apple.foundationdb.record.metadata.RecordTypeBuilder;
 import com.apple.foundationdb.record.metadata.expressions.GroupingKeyExpression;
 import com.apple.foundationdb.record.metadata.expressions.KeyExpression;
 import com.apple.foundationdb.record.provider.foundationdb.FDBQueriedRecord;
 import com.apple.foundationdb.record.provider.foundationdb.FDBRecordContext;
 import com.apple.foundationdb.record.provider.foundationdb.FDBRecordStoreTestBase;
+import com.apple.foundationdb.record.provider.foundationdb.FDBStoreTimer;
+import com.apple.foundationdb.record.provider.foundationdb.FormatVersion;
 import com.apple.foundationdb.record.query.IndexQueryabilityFilter;
 import com.apple.foundationdb.record.query.RecordQuery;
 import com.apple.foundationdb.record.query.expressions.Query;
@@ -85,9 +89,14 @@ import static com.apple.foundationdb.record.query.plan.match.PlanMatchers.indexS
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.allOf;
 import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
 import static org.hamcrest.Matchers.hasToString;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 
 /**
@@ -638,6 +647,325 @@ class BitmapValueIndexTest extends FDBRecordStoreTestBase {
         }
     }
 
+    @Test
+    void roaringEncoding() {
+        try (FDBRecordContext context = openContext()) {
+            createOrOpenRecordStore(context, metaData(REC_NO_BY_STR_NUMS_ROARING_HOOK));
+            saveRecords(100, 200);
+            commit(context);
+        }
+        try (FDBRecordContext context = openContext()) {
+            createOrOpenRecordStore(context, metaData(REC_NO_BY_STR_NUMS_ROARING_HOOK));
+            final Index index = recordStore.getRecordMetaData().getIndex("rec_no_by_str_num3");
+            // Updates are not compressed until compacted.
+            assertFalse(RoaringBitmapEncoding.isEncoded(storedBitmap(index, Tuple.from("odd", 1, 0)), 1000));
+            assertNull(compactedBitmap(index, Tuple.from("odd", 1, 0)));
+            final BitmapValueCompactionResult result = compact("rec_no_by_str_num3", TupleRange.ALL);
+            assertNull(result.getContinuation());
+            assertThat(result.getCompactedCount(), greaterThan(0));
+            commit(context);
+        }
+        try (FDBRecordContext context = openContext()) {
+            createOrOpenRecordStore(context, metaData(REC_NO_BY_STR_NUMS_ROARING_HOOK));
+            final Index index = recordStore.getRecordMetaData().getIndex("rec_no_by_str_num3");
+            assertNull(storedBitmap(index, Tuple.from("odd", 1, 0)));
+            final byte[] compacted = compactedBitmap(index, Tuple.from("odd", 1, 0));
+            assertTrue(RoaringBitmapEncoding.isEncoded(compacted, 1000));
+            assertTrue(compacted.length < RoaringBitmapEncoding.rawSize(1000) / 2);
+            assertThat(
+                    collectOnBits(recordStore.scanIndex(index, IndexScanType.BY_GROUP,
+                            TupleRange.allOf(Tuple.from("odd", 1)),
+                            null, ScanProperties.FORWARD_SCAN)),
+                    equalTo(IntStream.range(100, 200).boxed()
+                            .filter(i -> (i & 1) == 1)
+                            .filter(i -> (i % 5) == 1)
+                            .collect(Collectors.toList())));
+            assertThat(
+                    collectOnBits(recordStore.scanIndex(index, IndexScanType.BY_GROUP,
+                            TupleRange.between(Tuple.from("odd", 1, 150), Tuple.from("odd", 1, 175)),
+                            null, ScanProperties.FORWARD_SCAN)),
+                    equalTo(IntStream.range(150, 175).boxed()
+                            .filter(i -> (i & 1) == 1)
+                            .filter(i -> (i % 5) == 1)
+                            .collect(Collectors.toList())));
+
+            setupPlanner(null);
+            final RecordQueryPlan queryPlan = plan(BITMAP_VALUE_REC_NO_BY_STR, Query.and(
+                    Query.field("str_value").equalsValue("odd"),
+                    Query.field("num_value_2").equalsValue(1),
+                    Query.not(Query.field("num_value_3").equalsValue(2))));
+            assertThat(
+                    collectOnBits(queryPlan.execute(recordStore).map(FDBQueriedRecord::getIndexEntry)),
+                    equalTo(IntStream.range(100, 200).boxed()
+                            .filter(i -> (i & 1) == 1)
+                            .filter(i -> (i % 7) == 1 && !((i % 5) == 2))
+                            .collect(Collectors.toList())));
+        }
+        try (FDBRecordContext context = openContext()) {
+            createOrOpenRecordStore(context, metaData(REC_NO_BY_STR_NUMS_ROARING_HOOK));
+            for (int recNo = 101; recNo < 200; recNo += 10) {
+                recordStore.deleteRecord(Tuple.from(recNo));
+            }
+            recordStore.deleteRecord(Tuple.from(103));
+            saveRecords(203, 204);
+            commit(context);
+        }
+        try (FDBRecordContext context = openContext()) {
+            createOrOpenRecordStore(context, metaData(REC_NO_BY_STR_NUMS_ROARING_HOOK));
+            final Index index = recordStore.getRecordMetaData().getIndex("rec_no_by_str_num3");
+            // Updates since the compaction are merged with the compacted bitmap.
+            assertThat(
+                    collectOnBits(recordStore.scanIndex(index, IndexScanType.BY_GROUP,
+                            TupleRange.allOf(Tuple.from("odd", 1)),
+                            null, ScanProperties.FORWARD_SCAN)),
+                    equalTo(Collections.emptyList()));
+            assertThat(
+                    collectOnBits(recordStore.scanIndex(index, IndexScanType.BY_GROUP,
+                            TupleRange.allOf(Tuple.from("odd", 3)),
+                            null, ScanProperties.FORWARD_SCAN)),
+                    equalTo(IntStream.range(104, 204).boxed()
+                            .filter(i -> (i & 1) == 1)
+                            .filter(i -> (i % 5) == 3)
+                            .collect(Collectors.toList())));
+            compact("rec_no_by_str_num3", TupleRange.ALL);
+            commit(context);
+        }
+        try (FDBRecordContext context = openContext()) {
+            createOrOpenRecordStore(context, metaData(REC_NO_BY_STR_NUMS_ROARING_HOOK));
+            final Index index = recordStore.getRecordMetaData().getIndex("rec_no_by_str_num3");
+            // Empty bitmaps are cleared.
+            assertNull(storedBitmap(index, Tuple.from("odd", 1, 0)));
+            assertNull(compactedBitmap(index, Tuple.from("odd", 1, 0)));
+            assertTrue(RoaringBitmapEncoding.isEncoded(compactedBitmap(index, Tuple.from("odd", 3, 0)), 1000));
+        }
+    }
+
+    @Test
+    void roaringEncodingUpdatesDoNotConflict() {
+        try (FDBRecordContext context = openContext()) {
+            createOrOpenRecordStore(context, metaData(REC_NO_BY_STR_NUMS_ROARING_HOOK));
+            saveRecords(100, 200);
+            compact("rec_no_by_str_num3", TupleRange.ALL);
+            commit(context);
+        }
+        // Two transactions changing the same compacted bitmap both commit.
+        try (FDBRecordContext context1 = openContext(); FDBRecordContext context2 = openContext()) {
+            createOrOpenRecordStore(context1, metaData(REC_NO_BY_STR_NUMS_ROARING_HOOK));
+            recordStore.deleteRecord(Tuple.from(111));
+            saveRecords(201, 202);
+            createOrOpenRecordStore(context2, metaData(REC_NO_BY_STR_NUMS_ROARING_HOOK));
+            recordStore.deleteRecord(Tuple.from(121));
+            saveRecords(211, 212);
+            commit(context1);
+            commit(context2);
+        }
+        try (FDBRecordContext context = openContext()) {
+            createOrOpenRecordStore(context, metaData(REC_NO_BY_STR_NUMS_ROARING_HOOK));
+            final Index index = recordStore.getRecordMetaData().getIndex("rec_no_by_str_num3");
+            assertThat(
+                    collectOnBits(recordStore.scanIndex(index, IndexScanType.BY_GROUP,
+                            TupleRange.allOf(Tuple.from("odd", 1)),
+                            null, ScanProperties.FORWARD_SCAN)),
+                    equalTo(IntStream.range(100, 212).boxed()
+                            .filter(i -> (i & 1) == 1)
+                            .filter(i -> (i % 5) == 1)
+                            .filter(i -> i != 111 && i != 121)
+                            .collect(Collectors.toList())));
+        }
+    }
+
+    @Test
+    void roaringEncodingScanMergesRangeReads() {
+        try (FDBRecordContext context = openContext()) {
+            createOrOpenRecordStore(context, metaData(REC_NO_BY_STR_NUMS_ROARING_HOOK));
+            saveRecords(100, 200);
+            compact("rec_no_by_str_num3", TupleRange.ALL);
+            commit(context);
+        }
+        try (FDBRecordContext context = openContext()) {
+            createOrOpenRecordStore(context, metaData(REC_NO_BY_STR_NUMS_ROARING_HOOK));
+            // Leave raw, compacted and cleared values for the same bitmaps.
+            recordStore.deleteRecord(Tuple.from(111));
+            saveRecords(201, 202);
+            commit(context);
+        }
+        try (FDBRecordContext context = openContext()) {
+            createOrOpenRecordStore(context, metaData(REC_NO_BY_STR_NUMS_ROARING_HOOK));
+            final Index index = recordStore.getRecordMetaData().getIndex("rec_no_by_str_num3");
+            timer.reset();
+            final List<Integer> onBits = new ArrayList<>();
+            byte[] continuation = null;
+            do {
+                final RecordCursorResult<IndexEntry> result = recordStore.scanIndex(index, IndexScanType.BY_GROUP,
+                                TupleRange.allOf(Tuple.from("odd")), continuation,
+                                new ScanProperties(ExecuteProperties.newBuilder().setReturnedRowLimit(2).build()))
+                        .forEachResult(entry -> onBits.addAll(collectOnBits(entry.get())))
+                        .join();
+                continuation = result.getContinuation().toBytes();
+            } while (continuation != null);
+            assertThat(onBits, equalTo(IntStream.range(0, 5).boxed()
+                    .flatMap(num3 -> IntStream.range(100, 202).boxed()
+                            .filter(i -> (i & 1) == 1)
+                            .filter(i -> (i % 5) == num3)
+                            .filter(i -> i != 111))
+                    .collect(Collectors.toList())));
+            // Every bitmap came from the range reads, without reading any of them again.
+            assertEquals(timer.getCount(FDBStoreTimer.Counts.RANGE_READS), timer.getCount(FDBStoreTimer.Counts.READS));
+        }
+    }
+
+    @Test
+    void roaringEncodingCompactionContinues() {
+        try (FDBRecordContext context = openContext()) {
+            createOrOpenRecordStore(context, metaData(REC_NO_BY_STR_NUMS_ROARING_HOOK));
+            saveRecords(100, 200);
+            commit(context);
+        }
+        byte[] continuation = null;
+        int compacted = 0;
+        do {
+            try (FDBRecordContext context = openContext()) {
+                createOrOpenRecordStore(context, metaData(REC_NO_BY_STR_NUMS_ROARING_HOOK));
+                final BitmapValueCompactionResult result = (BitmapValueCompactionResult)recordStore.performIndexOperation("rec_no_by_str_num3",
+                        new BitmapValueCompaction(TupleRange.ALL, continuation, 3));
+                assertThat(result.getCompactedCount(), lessThanOrEqualTo(3));
+                compacted += result.getCompactedCount();
+                continuation = result.getContinuation();
+                commit(context);
+            }
+        } while (continuation != null);
+        // One bitmap for each of two strings and five values of num_value_3.
+        assertEquals(10, compacted);
+    }
+
+    @Test
+    void roaringEncodingCompactionNeedsFormatVersion() {
+        try (FDBRecordContext context = openContext()) {
+            recordStore = createOrOpenRecordStore(context, metaData(REC_NO_BY_STR_NUMS_ROARING_HOOK), path,
+                    FormatVersion.FULL_STORE_LOCK);
+            saveRecords(100, 110);
+            final Index index = recordStore.getRecordMetaData().getIndex("rec_no_by_str_num3");
+            assertThrows(RecordCoreException.class, () -> compact("rec_no_by_str_num3", TupleRange.ALL));
+            // Bitmaps are still stored uncompressed and can be read.
+            assertFalse(RoaringBitmapEncoding.isEncoded(storedBitmap(index, Tuple.from("odd", 1, 0)), 1000));
+            assertThat(
+                    collectOnBits(recordStore.scanIndex(index, IndexScanType.BY_GROUP,
+                            TupleRange.allOf(Tuple.from("odd", 1)),
+                            null, ScanProperties.FORWARD_SCAN)),
+                    equalTo(List.of(101)));
+        }
+    }
+
+    @Test
+    void roaringEncodingUniquenessViolationChecked() {
+        final RecordMetaDataHook num_by_num3_hook = metadata -> {
+            metadata.removeIndex("MySimpleRecord$num_value_unique");
+            metadata.addIndex(metadata.getRecordType("MySimpleRecord"),
+                    new Index("num_by_num3",
+                            concatenateFields("num_value_3", "num_value_unique").group(1),
+                            IndexTypes.BITMAP_VALUE, ImmutableMap.of(IndexOptions.BITMAP_VALUE_ENTRY_SIZE_OPTION, "1000",
+                            IndexOptions.BITMAP_VALUE_ENCODING_OPTION, BitmapValueIndexMaintainer.ROARING_ENCODING,
+                            IndexOptions.UNIQUE_OPTION, "true")));
+        };
+        try (FDBRecordContext context = openContext()) {
+            createOrOpenRecordStore(context, metaData(num_by_num3_hook));
+            saveRecords(0, 10);
+            commit(context);
+        }
+        try (FDBRecordContext context = openContext()) {
+            createOrOpenRecordStore(context, metaData(num_by_num3_hook));
+            assertThrows(RecordIndexUniquenessViolation.class, () -> {
+                // This is a duplicate of record #2.
+                recordStore.saveRecord(TestRecordsBitmapProto.MySimpleRecord.newBuilder()
+                        .setRecNo(1002)
+                        .setStrValue("even")
+                        .setNumValueUnique(1002)
+                        .setNumValue3(2)
+                        .build());
+            });
+        }
+        try (FDBRecordContext context = openContext()) {
+            createOrOpenRecordStore(context, metaData(num_by_num3_hook));
+            compact("num_by_num3", TupleRange.ALL);
+            commit(context);
+        }
+        try (FDBRecordContext context = openContext()) {
+            createOrOpenRecordStore(context, metaData(num_by_num3_hook));
+            assertThrows(RecordIndexUniquenessViolation.class, () -> {
+                // This is a duplicate of record #3, which is now only in a compacted bitmap.
+                recordStore.saveRecord(TestRecordsBitmapProto.MySimpleRecord.newBuilder()
+                        .setRecNo(1003)
+                        .setStrValue("odd")
+                        .setNumValueUnique(1003)
+                        .setNumValue3(3)
+                        .build());
+            });
+        }
+    }
+
+    @Test
+    void migrateToRoaringEncoding() {
+        try (FDBRecordContext context = openContext()) {
+            createOrOpenRecordStore(context, metaData(REC_NO_BY_STR_NUMS_LARGE_HOOK));
+            saveRecords(100, 200);
+            commit(context);
+        }
+
+        final BitmapValueIndexMaintainerFactory factory = new BitmapValueIndexMaintainerFactory();
+        final Index rawIndex = metaData(REC_NO_BY_STR_NUMS_LARGE_HOOK).getIndex("rec_no_by_str_num3");
+        final Index roaringIndex = metaData(REC_NO_BY_STR_NUMS_ROARING_HOOK).getIndex("rec_no_by_str_num3");
+        factory.getIndexValidator(roaringIndex).validateChangedOptions(rawIndex);
+        assertThrows(MetaDataException.class, () -> factory.getIndexValidator(rawIndex).validateChangedOptions(roaringIndex));
+
+        try (FDBRecordContext context = openContext()) {
+            createOrOpenRecordStore(context, metaData(REC_NO_BY_STR_NUMS_ROARING_HOOK));
+            recordStore.deleteRecord(Tuple.from(101));
+            saveRecords(301, 302);
+            compact("rec_no_by_str_num3", TupleRange.allOf(Tuple.from("odd", 1)));
+            commit(context);
+        }
+        try (FDBRecordContext context = openContext()) {
+            createOrOpenRecordStore(context, metaData(REC_NO_BY_STR_NUMS_ROARING_HOOK));
+            recordStore.deleteRecord(Tuple.from(111));
+            recordStore.deleteRecord(Tuple.from(113));
+            commit(context);
+        }
+        try (FDBRecordContext context = openContext()) {
+            createOrOpenRecordStore(context, metaData(REC_NO_BY_STR_NUMS_ROARING_HOOK));
+            final Index index = recordStore.getRecordMetaData().getIndex("rec_no_by_str_num3");
+            // Compacted bitmaps have been compressed, others are left alone.
+            assertTrue(RoaringBitmapEncoding.isEncoded(compactedBitmap(index, Tuple.from("odd", 1, 0)), 1000));
+            assertFalse(RoaringBitmapEncoding.isEncoded(storedBitmap(index, Tuple.from("odd", 3, 0)), 1000));
+            assertNull(compactedBitmap(index, Tuple.from("odd", 3, 0)));
+            final List<Integer> expected = IntStream.concat(IntStream.range(102, 200), IntStream.of(301)).boxed()
+                    .filter(i -> (i & 1) == 1)
+                    .filter(i -> (i % 5) == 1)
+                    .filter(i -> i != 111)
+                    .collect(Collectors.toList());
+            assertThat(
+                    collectOnBits(recordStore.scanIndex(index, IndexScanType.BY_GROUP,
+                            TupleRange.allOf(Tuple.from("odd", 1)),
+                            null, ScanProperties.FORWARD_SCAN)),
+                    equalTo(expected));
+            assertThat(
+                    collectOnBits(recordStore.scanIndex(index, IndexScanType.BY_GROUP,
+                            TupleRange.allOf(Tuple.from("odd", 3)),
+                            null, ScanProperties.FORWARD_SCAN)),
+                    equalTo(IntStream.range(100, 200).boxed()
+                            .filter(i -> (i & 1) == 1)
+                            .filter(i -> (i % 5) == 3)
+                            .filter(i -> i != 113)
+                            .collect(Collectors.toList())));
+            final IndexAggregateFunction aggregateFunction = new IndexAggregateFunction(FunctionNames.BITMAP_VALUE, REC_NO_BY_STR_NUM3, null);
+            assertThat(
+                    collectOnBits(recordStore.evaluateAggregateFunction(
+                            Collections.singletonList("MySimpleRecord"), aggregateFunction,
+                            TupleRange.allOf(Tuple.from("odd", 1)),
+                            IsolationLevel.SERIALIZABLE).join().getBytes(0), 0),
+                    equalTo(expected));
+        }
+    }
+
     protected static final GroupingKeyExpression REC_NO_BY_STR = concatenateFields("str_value", "rec_no").group(1);
     protected static final GroupingKeyExpression REC_NO_BY_STR_NUM2 = concatenateFields("str_value", "num_value_2", "rec_no").group(1);
     protected static final GroupingKeyExpression REC_NO_BY_STR_NUM3 = concatenateFields("str_value", "num_value_3", "rec_no").group(1);
@@ -648,6 +976,20 @@ class BitmapValueIndexTest extends FDBRecordStoreTestBase {
         metadata.addIndex(recordType, new Index("rec_no_by_str_num3", REC_NO_BY_STR_NUM3, IndexTypes.BITMAP_VALUE, SMALL_BITMAP_OPTIONS));
     };
 
+    protected static final Map<String, String> LARGE_BITMAP_OPTIONS = Collections.singletonMap(IndexOptions.BITMAP_VALUE_ENTRY_SIZE_OPTION, "1000");
+    protected static final RecordMetaDataHook REC_NO_BY_STR_NUMS_LARGE_HOOK = metadata -> {
+        final RecordTypeBuilder recordType = metadata.getRecordType("MySimpleRecord");
+        metadata.addIndex(recordType, new Index("rec_no_by_str_num2", REC_NO_BY_STR_NUM2, IndexTypes.BITMAP_VALUE, LARGE_BITMAP_OPTIONS));
+        metadata.addIndex(recordType, new Index("rec_no_by_str_num3", REC_NO_BY_STR_NUM3, IndexTypes.BITMAP_VALUE, LARGE_BITMAP_OPTIONS));
+    };
+    protected static final Map<String, String> ROARING_BITMAP_OPTIONS = ImmutableMap.of(IndexOptions.BITMAP_VALUE_ENTRY_SIZE_OPTION, "1000",
+            IndexOptions.BITMAP_VALUE_ENCODING_OPTION, BitmapValueIndexMaintainer.ROARING_ENCODING);
+    protected static final RecordMetaDataHook REC_NO_BY_STR_NUMS_ROARING_HOOK = metadata -> {
+        final RecordTypeBuilder recordType = metadata.getRecordType("MySimpleRecord");
+        metadata.addIndex(recordType, new Index("rec_no_by_str_num2", REC_NO_BY_STR_NUM2, IndexTypes.BITMAP_VALUE, ROARING_BITMAP_OPTIONS));
+        metadata.addIndex(recordType, new Index("rec_no_by_str_num3", REC_NO_BY_STR_NUM3, IndexTypes.BITMAP_VALUE, ROARING_BITMAP_OPTIONS));
+    };
+
     protected static final IndexAggregateFunctionCall BITMAP_VALUE_REC_NO_BY_STR = new IndexAggregateFunctionCall(FunctionNames.BITMAP_VALUE, REC_NO_BY_STR);
 
     protected RecordMetaData metaData(@Nullable RecordMetaDataHook hook) {
@@ -668,6 +1010,21 @@ class BitmapValueIndexTest extends FDBRecordStoreTestBase {
         }
     }
 
+    @Nullable
+    protected byte[] storedBitmap(@Nonnull Index index, @Nonnull Tuple key) {
+        return recordStore.ensureContextActive().get(recordStore.indexSubspace(index).pack(key)).join();
+    }
+
+    @Nullable
+    protected byte[] compactedBitmap(@Nonnull Index index, @Nonnull Tuple key) {
+        return recordStore.ensureContextActive().get(recordStore.indexSecondarySubspace(index).subspace(Tuple.from(0L)).pack(key)).join();
+    }
+
+    @Nonnull
+    protected BitmapValueCompactionResult compact(@Nonnull String indexName, @Nonnull TupleRange range) {
+        return (BitmapValueCompactionResult)recordStore.performIndexOperation(indexName, new BitmapValueCompaction(range, null, 1000));
+    }
+
     protected List<Integer> collectOnBits(@Nonnull RecordCursor<IndexEntry> indexEntries) {
         return indexEntries.reduce(new ArrayList<Integer>(), (list, entries) -> {
             list.addAll(collectOnBits(entries));
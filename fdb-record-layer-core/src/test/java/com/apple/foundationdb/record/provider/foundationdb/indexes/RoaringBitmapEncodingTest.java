@@ -0,0 +1,128 @@
+/*
+ * RoaringBitmapEncodingTest.java
+ *
+ * This source file is part of the FoundationDB open source project
+ *
+ * Copyright 2015-2026 Apple Inc. and the FoundationDB project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.apple.foundationdb.record.provider.foundationdb.indexes;
+
+import com.apple.foundationdb.record.RecordCoreException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for {@link RoaringBitmapEncoding}.
+ */
+class RoaringBitmapEncodingTest {
+
+    @ParameterizedTest
+    @ValueSource(ints = {16, 10_000, 70_000, BitmapValueIndexMaintainer.MAX_ENTRY_SIZE})
+    void sparse(int entrySize) {
+        final byte[] bitmap = randomBitmap(entrySize, 0.001, entrySize);
+        final byte[] encoded = roundTrip(bitmap, entrySize);
+        if (entrySize > 16) {
+            assertTrue(encoded.length < bitmap.length / 4);
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {10_000, 70_000, BitmapValueIndexMaintainer.MAX_ENTRY_SIZE})
+    void dense(int entrySize) {
+        final byte[] bitmap = randomBitmap(entrySize, 0.5, entrySize);
+        final byte[] encoded = RoaringBitmapEncoding.encode(bitmap);
+        // Not worth compressing.
+        assertSame(bitmap, encoded);
+        assertFalse(RoaringBitmapEncoding.isEncoded(encoded, entrySize));
+        assertSame(encoded, RoaringBitmapEncoding.decode(encoded, entrySize));
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {10_000, 70_000, BitmapValueIndexMaintainer.MAX_ENTRY_SIZE})
+    void runs(int entrySize) {
+        final byte[] bitmap = new byte[RoaringBitmapEncoding.rawSize(entrySize)];
+        for (int i = 0; i < entrySize; i++) {
+            if ((i / 500) % 7 == 0) {
+                bitmap[i / 8] |= (byte)(1 << (i % 8));
+            }
+        }
+        final byte[] encoded = roundTrip(bitmap, entrySize);
+        assertTrue(encoded.length < bitmap.length / 20);
+    }
+
+    @Test
+    void mixedContainers() {
+        final int entrySize = BitmapValueIndexMaintainer.MAX_ENTRY_SIZE;
+        final byte[] bitmap = new byte[RoaringBitmapEncoding.rawSize(entrySize)];
+        // First container sparse, second one dense but only at its start, third one a single run, fourth one empty.
+        final byte[] sparse = randomBitmap(RoaringBitmapEncoding.CONTAINER_BITS, 0.001, entrySize);
+        System.arraycopy(sparse, 0, bitmap, 0, sparse.length);
+        final byte[] dense = randomBitmap(1000, 0.5, entrySize);
+        System.arraycopy(dense, 0, bitmap, RoaringBitmapEncoding.CONTAINER_BITS / 8, dense.length);
+        Arrays.fill(bitmap, 2 * RoaringBitmapEncoding.CONTAINER_BITS / 8, 3 * RoaringBitmapEncoding.CONTAINER_BITS / 8, (byte)0xFF);
+        final byte[] encoded = roundTrip(bitmap, entrySize);
+        assertTrue(encoded.length < bitmap.length / 4);
+    }
+
+    @Test
+    void small() {
+        final byte[] bitmap = new byte[] { 0x01, 0x00 };
+        // Not worth compressing a single bit in two bytes.
+        assertSame(bitmap, RoaringBitmapEncoding.encode(bitmap));
+        final byte[] sparse = new byte[RoaringBitmapEncoding.rawSize(10_000)];
+        sparse[500] = 0x10;
+        final byte[] encoded = roundTrip(sparse, 10_000);
+        assertTrue(encoded.length < 10);
+    }
+
+    @Test
+    void invalid() {
+        final byte[] bitmap = new byte[RoaringBitmapEncoding.rawSize(10_000)];
+        bitmap[100] = 0x01;
+        final byte[] encoded = RoaringBitmapEncoding.encode(bitmap);
+        assertThrows(RecordCoreException.class, () -> RoaringBitmapEncoding.decode(Arrays.copyOf(encoded, encoded.length - 1), 10_000));
+        // Position beyond the end of the entry.
+        assertThrows(RecordCoreException.class, () -> RoaringBitmapEncoding.decode(encoded, 16));
+    }
+
+    private static byte[] roundTrip(byte[] bitmap, int entrySize) {
+        final byte[] encoded = RoaringBitmapEncoding.encode(bitmap);
+        assertTrue(RoaringBitmapEncoding.isEncoded(encoded, entrySize));
+        assertArrayEquals(bitmap, RoaringBitmapEncoding.decode(encoded, entrySize));
+        return encoded;
+    }
+
+    private static byte[] randomBitmap(int numBits, double probability, long seed) {
+        final Random random = new Random(seed);
+        final byte[] bitmap = new byte[RoaringBitmapEncoding.rawSize(numBits)];
+        for (int i = 0; i < numBits; i++) {
+            if (random.nextDouble() < probability) {
+                bitmap[i / 8] |= (byte)(1 << (i % 8));
+            }
+        }
+        return bitmap;
+    }
+}
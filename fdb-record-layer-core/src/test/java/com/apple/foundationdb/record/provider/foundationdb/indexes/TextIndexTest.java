@@ -973,6 +973,66 @@ public class TextIndexTest extends FDBRecordStoreTestBase {
         }
     }
 
+    @Test
+    void saveRecordsBatch() throws Exception {
+        final List<String> texts = Arrays.asList(TextSamples.ROMEO_AND_JULIET_PROLOGUE, TextSamples.AETHELRED,
+                TextSamples.ANGSTROM, TextSamples.FRENCH, TextSamples.GERMAN, "");
+        final List<SimpleDocument> documents = new ArrayList<>();
+        final List<SimpleDocument> updatedDocuments = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            documents.add(SimpleDocument.newBuilder().setDocId(i).setText(texts.get(i % texts.size())).build());
+            // Some documents change, while others keep the same text.
+            updatedDocuments.add(SimpleDocument.newBuilder().setDocId(i).setText(texts.get((i % 3 == 0 ? i + 1 : i) % texts.size())).build());
+        }
+
+        final List<IndexEntry> batchEntries;
+        final int batchSaves;
+        final int batchSavedEntries;
+        try (FDBRecordContext context = openContext()) {
+            openRecordStore(context);
+            resetTimer(recordStore);
+            recordStore.saveRecords(documents);
+            batchSaves = getSaveIndexKeyCount(recordStore);
+            batchSavedEntries = recordStore.getTimer().getCount(FDBStoreTimer.Events.SAVE_INDEX_ENTRY);
+            batchEntries = scanIndex(recordStore, recordStore.getRecordMetaData().getIndex(TextIndexTestUtils.SIMPLE_DEFAULT_NAME), TupleRange.ALL);
+            // Not committed, to compare with saving one at a time.
+        }
+        try (FDBRecordContext context = openContext()) {
+            openRecordStore(context);
+            resetTimer(recordStore);
+            for (SimpleDocument document : documents) {
+                recordStore.saveRecord(document);
+            }
+            // Each bunch is only written once, rather than once per document.
+            assertThat(batchSaves, lessThan(getSaveIndexKeyCount(recordStore)));
+            // But each index entry is still instrumented as it would be when saved by itself.
+            assertEquals(recordStore.getTimer().getCount(FDBStoreTimer.Events.SAVE_INDEX_ENTRY), batchSavedEntries);
+            final Index index = recordStore.getRecordMetaData().getIndex(TextIndexTestUtils.SIMPLE_DEFAULT_NAME);
+            assertEquals(scanIndex(recordStore, index, TupleRange.ALL), batchEntries);
+            commit(context);
+        }
+
+        final List<IndexEntry> updatedBatchEntries;
+        final List<Pair<Tuple, Integer>> updatedBatchVersions;
+        try (FDBRecordContext context = openContext()) {
+            openRecordStore(context);
+            recordStore.saveRecords(updatedDocuments);
+            final Index index = recordStore.getRecordMetaData().getIndex(TextIndexTestUtils.SIMPLE_DEFAULT_NAME);
+            updatedBatchEntries = scanIndex(recordStore, index, TupleRange.ALL);
+            updatedBatchVersions = scanTokenizerVersions(recordStore, index);
+        }
+        try (FDBRecordContext context = openContext()) {
+            openRecordStore(context);
+            for (SimpleDocument document : updatedDocuments) {
+                recordStore.saveRecord(document);
+            }
+            final Index index = recordStore.getRecordMetaData().getIndex(TextIndexTestUtils.SIMPLE_DEFAULT_NAME);
+            assertEquals(scanIndex(recordStore, index, TupleRange.ALL), updatedBatchEntries);
+            assertEquals(scanTokenizerVersions(recordStore, index), updatedBatchVersions);
+            commit(context);
+        }
+    }
+
     private void saveTwoRecordsConcurrently(@Nonnull RecordMetaDataHook hook, @Nonnull Message record1, @Nonnull Message record2, boolean shouldSucceed) throws Exception {
         try (FDBRecordContext context = openContext()) {
             openRecordStore(context, hook);
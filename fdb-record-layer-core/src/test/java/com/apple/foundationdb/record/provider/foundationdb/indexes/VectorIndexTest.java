@@ -20,6 +20,7 @@
 
 package com.apple.foundationdb.record.provider.foundationdb.indexes;
 
+import com.apple.foundationdb.async.hnsw.UpperLayerCache;
 import com.apple.foundationdb.linear.HalfRealVector;
 import com.apple.foundationdb.linear.Metric;
 import com.apple.foundationdb.record.Bindings;
@@ -51,6 +52,7 @@ import com.apple.foundationdb.record.provider.foundationdb.VectorIndexScanOption
 import com.apple.foundationdb.record.query.expressions.Query;
 import com.apple.foundationdb.record.query.plan.plans.RecordQueryIndexPlan;
 import com.apple.foundationdb.record.vector.TestRecordsVectorsProto.VectorRecord;
+import com.apple.foundationdb.subspace.Subspace;
 import com.apple.foundationdb.tuple.Tuple;
 import com.apple.test.RandomizedTestUtils;
 import com.google.common.collect.ImmutableList;
@@ -70,11 +72,13 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.annotation.Nonnull;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Random;
 import java.util.Set;
+import java.util.function.Predicate;
 import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
@@ -567,4 +571,149 @@ class VectorIndexTest extends VectorIndexTestBase {
                             assertThat((double)recallCounter / k).isGreaterThan(0.9));
         }
     }
+
+    @ParameterizedTest
+    @MethodSource("randomSeedsWithReturnVectors")
+    void directIndexReadGroupedWithPrimaryKeyFilterTest(final long seed, final boolean returnVectors) throws Exception {
+        final int size = 1000;
+        final int k = 10;
+        final Random random = new Random(seed);
+        final HalfRealVector queryVector = randomHalfVector(random, 128);
+
+        final List<FDBStoredRecord<Message>> savedRecords =
+                saveRandomRecords(true, this::addGroupedVectorIndex, random, size);
+        // only every fifth record qualifies, so the beam has to be widened to find k of them
+        final Predicate<Tuple> primaryKeyFilter = primaryKey -> primaryKey.getLong(primaryKey.size() - 1) % 5 == 0;
+        final Map<Integer, List<Long>> randomRecords =
+                Maps.transformValues(groupAndSortByDistances(savedRecords, queryVector),
+                        recNos -> Objects.requireNonNull(recNos).stream()
+                                .filter(recNo -> recNo % 5 == 0)
+                                .collect(ImmutableList.toImmutableList()));
+        final Map<Integer, Set<Long>> expectedResults = trueTopK(randomRecords, k);
+
+        try (FDBRecordContext context = openContext()) {
+            openRecordStore(context, this::addGroupedVectorIndex);
+
+            final int[] allCounters = new int[2];
+            final int[] recallCounters = new int[2];
+
+            final Index index =
+                    Objects.requireNonNull(recordStore.getMetaDataProvider())
+                            .getRecordMetaData().getIndex("GroupedVectorIndex");
+            final IndexMaintainer indexMaintainer = recordStore.getIndexMaintainer(index);
+            final VectorIndexScanComparisons vectorIndexScanComparisons =
+                    createVectorIndexScanComparisons(queryVector, k,
+                            VectorIndexScanOptions.builder()
+                                    .putOption(VectorIndexScanOptions.HNSW_RETURN_VECTORS, returnVectors)
+                                    .putOption(VectorIndexScanOptions.HNSW_EF_SEARCH, 16)
+                                    .putOption(VectorIndexScanOptions.HNSW_MAX_EF_SEARCH, 256)
+                                    .build());
+            final ScanProperties scanProperties = ExecuteProperties.newBuilder()
+                    .setIsolationLevel(IsolationLevel.SERIALIZABLE)
+                    .setState(ExecuteState.NO_LIMITS)
+                    .setReturnedRowLimit(Integer.MAX_VALUE).build().asScanProperties(false);
+
+            try (final RecordCursor<IndexEntry> cursor =
+                         indexMaintainer.scan(vectorIndexScanComparisons.bind(recordStore, index,
+                                         EvaluationContext.empty()).withPrimaryKeyFilter(primaryKeyFilter),
+                                 null, scanProperties)) {
+                final RecordCursorIterator<IndexEntry> cursorIterator = cursor.asIterator();
+                while (cursorIterator.hasNext()) {
+                    final IndexEntry indexEntry = Objects.requireNonNull(cursorIterator.next());
+                    assertThat(primaryKeyFilter.test(indexEntry.getPrimaryKey())).isTrue();
+                    final int groupId = Math.toIntExact(indexEntry.getPrimaryKey().getLong(0));
+                    final long recNo = Math.toIntExact(indexEntry.getPrimaryKey().getLong(1));
+                    allCounters[groupId]++;
+                    if (expectedResults.get(groupId).contains(recNo)) {
+                        recallCounters[groupId]++;
+                    }
+                }
+                if (logger.isInfoEnabled()) {
+                    logger.info("(direct) filtered grouped read allCounters={}, recallCounters={}", allCounters,
+                            recallCounters);
+                }
+            }
+
+            assertThat(Ints.asList(allCounters))
+                    .allSatisfy(allCounter ->
+                            assertThat(allCounter).isEqualTo(k));
+            assertThat(Ints.asList(recallCounters))
+                    .allSatisfy(recallCounter ->
+                            assertThat((double)recallCounter / k).isGreaterThanOrEqualTo(0.7));
+        }
+    }
+
+    @Test
+    void upperLayerCachesFollowIndexVersion() {
+        final VectorIndexUpperLayerCaches upperLayerCaches = new VectorIndexUpperLayerCaches(10, 100);
+        final Subspace graphSubspace = new Subspace(Tuple.from("graph"));
+        final UpperLayerCache cache = upperLayerCaches.getCache(graphSubspace, 1);
+        assertThat(cache).isNotNull();
+        assertThat(upperLayerCaches.getCache(graphSubspace, 1)).isSameAs(cache);
+        assertThat(upperLayerCaches.getCache(new Subspace(Tuple.from("other")), 1)).isNotSameAs(cache);
+
+        // a newer version of the index starts over
+        final UpperLayerCache newCache = upperLayerCaches.getCache(graphSubspace, 2);
+        assertThat(newCache).isNotNull().isNotSameAs(cache);
+        // a transaction that still sees the older version neither uses nor replaces the newer cache
+        assertThat(upperLayerCaches.getCache(graphSubspace, 1)).isNull();
+        assertThat(upperLayerCaches.getCache(graphSubspace, 2)).isSameAs(newCache);
+    }
+
+    @ParameterizedTest
+    @MethodSource("randomSeedsWithReturnVectors")
+    void directIndexReadGroupedWithUpperLayerCacheTest(final long seed, final boolean returnVectors) throws Exception {
+        final int size = 1000;
+        final int k = 10;
+        final Random random = new Random(seed);
+        final HalfRealVector queryVector = randomHalfVector(random, 128);
+
+        saveRandomRecords(true, this::addGroupedVectorIndex, random, size);
+
+        final VectorIndexUpperLayerCaches upperLayerCaches = new VectorIndexUpperLayerCaches(10, 1000);
+        fdb.setVectorIndexUpperLayerCaches(upperLayerCaches);
+        try {
+            // the first search fills the caches of both groups' graphs, the second one reads from them
+            final List<IndexEntry> uncachedEntries = directIndexRead(queryVector, k, returnVectors);
+            assertThat(upperLayerCaches.size()).isEqualTo(2);
+            final List<IndexEntry> cachedEntries = directIndexRead(queryVector, k, returnVectors);
+            assertThat(cachedEntries).hasSize(2 * k);
+            assertThat(cachedEntries).extracting(IndexEntry::getPrimaryKey)
+                    .containsExactlyElementsOf(uncachedEntries.stream().map(IndexEntry::getPrimaryKey)
+                            .collect(ImmutableList.toImmutableList()));
+        } finally {
+            fdb.setVectorIndexUpperLayerCaches(null);
+        }
+    }
+
+    @Nonnull
+    private List<IndexEntry> directIndexRead(@Nonnull final HalfRealVector queryVector, final int k,
+                                             final boolean returnVectors) throws Exception {
+        try (FDBRecordContext context = openContext()) {
+            openRecordStore(context, this::addGroupedVectorIndex);
+            final Index index =
+                    Objects.requireNonNull(recordStore.getMetaDataProvider())
+                            .getRecordMetaData().getIndex("GroupedVectorIndex");
+            final IndexMaintainer indexMaintainer = recordStore.getIndexMaintainer(index);
+            final VectorIndexScanComparisons vectorIndexScanComparisons =
+                    createVectorIndexScanComparisons(queryVector, k,
+                            VectorIndexScanOptions.builder()
+                                    .putOption(VectorIndexScanOptions.HNSW_RETURN_VECTORS, returnVectors)
+                                    .build());
+            final ScanProperties scanProperties = ExecuteProperties.newBuilder()
+                    .setIsolationLevel(IsolationLevel.SERIALIZABLE)
+                    .setState(ExecuteState.NO_LIMITS)
+                    .setReturnedRowLimit(Integer.MAX_VALUE).build().asScanProperties(false);
+            final List<IndexEntry> indexEntries = new ArrayList<>();
+            try (final RecordCursor<IndexEntry> cursor =
+                         indexMaintainer.scan(vectorIndexScanComparisons.bind(recordStore, index,
+                                 EvaluationContext.empty()), null, scanProperties)) {
+                final RecordCursorIterator<IndexEntry> cursorIterator = cursor.asIterator();
+                while (cursorIterator.hasNext()) {
+                    indexEntries.add(Objects.requireNonNull(cursorIterator.next()));
+                }
+            }
+            return indexEntries;
+        }
+    }
 }
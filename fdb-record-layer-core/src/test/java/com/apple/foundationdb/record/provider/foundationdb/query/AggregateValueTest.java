@@ -22,6 +22,7 @@ package com.apple.foundationdb.record.provider.foundationdb.query;
 
 import com.apple.foundationdb.record.PlanSerializationContext;
 import com.apple.foundationdb.record.RecordCoreArgumentException;
+import com.apple.foundationdb.record.RecordCursorProto;
 import com.apple.foundationdb.record.query.plan.cascades.CorrelationIdentifier;
 import com.apple.foundationdb.record.query.plan.cascades.expressions.GroupByExpression;
 import com.apple.foundationdb.record.query.plan.cascades.typing.TypeRepository;
@@ -170,6 +171,28 @@ class AggregateValueTest {
         accumulateAndAssert(new NumericAggregationValue.Max(PhysicalOperator.MAX_D, ofScalar(1D)), doublesOnlyNull, (Object)null);
     }
 
+    @Test
+    void testMinMaxNegative() {
+        final Float[] negativeFloats = { -3.0F, -1.5F, -6.0F };
+        final Double[] negativeDoubles = { -3.0D, -1.5D, -6.0D };
+        accumulateAndAssert(new NumericAggregationValue.Min(PhysicalOperator.MIN_F, ofScalar(1F)), negativeFloats, -6.0F);
+        accumulateAndAssert(new NumericAggregationValue.Min(PhysicalOperator.MIN_D, ofScalar(1D)), negativeDoubles, -6.0D);
+        accumulateAndAssert(new NumericAggregationValue.Max(PhysicalOperator.MAX_F, ofScalar(1F)), negativeFloats, -1.5F);
+        accumulateAndAssert(new NumericAggregationValue.Max(PhysicalOperator.MAX_D, ofScalar(1D)), negativeDoubles, -1.5D);
+    }
+
+    @Test
+    void testMinMaxResumed() {
+        final Float[] negativeFloats = { -3.0F, -1.5F, null, -6.0F, -2.0F };
+        final Double[] negativeDoubles = { -3.0D, -1.5D, null, -6.0D, -2.0D };
+        for (int split = 0; split <= negativeFloats.length; split++) {
+            accumulateResumeAndAssert(new NumericAggregationValue.Min(PhysicalOperator.MIN_F, ofScalar(1F)), negativeFloats, split, -6.0F);
+            accumulateResumeAndAssert(new NumericAggregationValue.Min(PhysicalOperator.MIN_D, ofScalar(1D)), negativeDoubles, split, -6.0D);
+            accumulateResumeAndAssert(new NumericAggregationValue.Max(PhysicalOperator.MAX_F, ofScalar(1F)), negativeFloats, split, -1.5F);
+            accumulateResumeAndAssert(new NumericAggregationValue.Max(PhysicalOperator.MAX_D, ofScalar(1D)), negativeDoubles, split, -1.5D);
+        }
+    }
+
     @Test
     void testAvg() {
         accumulateAndAssert(new NumericAggregationValue.Avg(PhysicalOperator.AVG_I, ofScalar(1)), pairsForAvg(ints), 3.5D);
@@ -243,6 +266,35 @@ class AggregateValueTest {
         });
     }
 
+    @Test
+    void testTupleMaxSumResumed() {
+        // the maximum has not accumulated anything before the first split, so its state is empty then
+        final var tuples = new Object[] {
+                Arrays.asList(null, 1),
+                Arrays.asList(null, 2),
+                Arrays.asList(-4.0D, 3),
+                Arrays.asList(-2.5D, 4)
+        };
+
+        final var recordConstructorValue =
+                RecordConstructorValue.ofUnnamed(ImmutableList.of(
+                        new NumericAggregationValue.Max(PhysicalOperator.MAX_D, ofScalar(1D)),
+                        new NumericAggregationValue.Sum(PhysicalOperator.SUM_I, ofScalar(1))
+                ));
+
+        for (int split = 0; split <= tuples.length; split++) {
+            accumulateResumeAndAssert(recordConstructorValue, tuples, split, actual -> {
+                Assertions.assertTrue(actual instanceof Message);
+                final var actualMessage = (Message)actual;
+                final var descriptorForType = actualMessage.getDescriptorForType();
+                final var max = (double)actualMessage.getField(descriptorForType.findFieldByName("_0"));
+                final var sum = (int)actualMessage.getField(descriptorForType.findFieldByName("_1"));
+                Assertions.assertEquals(-2.5D, max);
+                Assertions.assertEquals(10, sum);
+            });
+        }
+    }
+
     @Test
     void testUnmatchedAggregateValueTest() {
         final var value = new GroupByExpression.UnmatchedAggregateValue(CorrelationIdentifier.of("a"));
@@ -292,4 +344,25 @@ class AggregateValueTest {
         final var finish = accumulator.finish();
         consumer.accept(finish);
     }
+
+    private void accumulateResumeAndAssert(final AggregateValue aggregateValue, final Object[] items, final int split, @Nullable final Object expected) {
+        accumulateResumeAndAssert(aggregateValue, items, split, actual -> Assertions.assertEquals(expected, actual));
+    }
+
+    /**
+     * Accumulate the items before {@code split}, then accumulate the rest with a new accumulator that resumes from the
+     * states of the first one, as a continuation would.
+     */
+    private void accumulateResumeAndAssert(final AggregateValue aggregateValue, final Object[] items, final int split, @Nonnull final Consumer<Object> consumer) {
+        final var typeRepository =
+                TypeRepository.newBuilder()
+                        .addAllTypes(aggregateValue.getDynamicTypes())
+                        .build();
+        final var firstAccumulator = aggregateValue.createAccumulatorWithInitialState(typeRepository, null);
+        Arrays.asList(items).subList(0, split).forEach(firstAccumulator::accumulate);
+        final List<RecordCursorProto.AccumulatorState> states = firstAccumulator.getAccumulatorStates();
+        final var resumedAccumulator = aggregateValue.createAccumulatorWithInitialState(typeRepository, states.isEmpty() ? null : states);
+        Arrays.asList(items).subList(split, items.length).forEach(resumedAccumulator::accumulate);
+        consumer.accept(resumedAccumulator.finish());
+    }
 }
@@ -31,6 +31,7 @@ import com.apple.foundationdb.record.provider.foundationdb.FDBQueriedRecord;
 import com.apple.foundationdb.record.provider.foundationdb.FDBRecordContext;
 import com.apple.foundationdb.record.provider.foundationdb.IndexScanComparisons;
 import com.apple.foundationdb.record.provider.foundationdb.IndexScanParameters;
+import com.apple.foundationdb.record.provider.foundationdb.statistics.IndexStatistics;
 import com.apple.foundationdb.record.query.RecordQuery;
 import com.apple.foundationdb.record.query.expressions.Comparisons;
 import com.apple.foundationdb.record.query.expressions.Query;
@@ -55,7 +56,9 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 
 import java.util.Arrays;
+import java.util.List;
 import java.util.Objects;
+import java.util.Set;
 
 import static com.apple.foundationdb.record.ExecuteProperties.newBuilder;
 import static com.apple.foundationdb.record.TestHelpers.RealAnythingMatcher.anything;
@@ -987,6 +990,44 @@ public class FDBAndQueryToIntersectionTest extends FDBRecordStoreQueryTestBase {
         assertEquals(originalPlan2, modifiedPlan2);
     }
 
+    /**
+     * Verify that the Cascades planner uses index statistics to choose the more selective of two indexes rather than
+     * intersecting them, and that which index it chooses follows the statistics.
+     */
+    @ParameterizedTest
+    @BooleanSource
+    public void testIndexStatisticsChooseMoreSelectiveIndex(boolean strValueMoreSelective) throws Exception {
+        setUseCascadesPlanner(true);
+        RecordMetaDataHook hook = NO_HOOK;
+        complexQuerySetup(hook);
+        try (FDBRecordContext context = openContext()) {
+            openSimpleRecordStore(context, hook);
+            saveIndexStatistics("MySimpleRecord$str_value_indexed", strValueMoreSelective ? 100 : 2);
+            saveIndexStatistics("MySimpleRecord$num_value_3_indexed", strValueMoreSelective ? 2 : 100);
+            commit(context);
+        }
+        RecordQuery query = RecordQuery.newBuilder()
+                .setRecordType("MySimpleRecord")
+                .setFilter(Query.and(
+                        Query.field("str_value_indexed").equalsValue("even"),
+                        Query.field("num_value_3_indexed").equalsValue(3)))
+                .build();
+
+        try (FDBRecordContext context = openContext()) {
+            // The statistics are loaded before the planner is created.
+            openSimpleRecordStore(context, hook);
+            RecordQueryPlan plan = planQuery(query);
+            assertEquals(Set.of(strValueMoreSelective ? "MySimpleRecord$str_value_indexed" : "MySimpleRecord$num_value_3_indexed"),
+                    plan.getUsedIndexes());
+        }
+    }
+
+    private void saveIndexStatistics(String indexName, long distinctValues) {
+        final Index index = recordStore.getRecordMetaData().getIndex(indexName);
+        recordStore.saveIndexStatistics(index, new IndexStatistics(100, List.of(distinctValues, 100L), null, 100,
+                index.getLastModifiedVersion(), System.currentTimeMillis()));
+    }
+
     private RecordMetaDataHook sortingShapesHook() {
         return metaData -> {
             final RecordTypeBuilder type = metaData.getRecordType("MyShapeRecord");
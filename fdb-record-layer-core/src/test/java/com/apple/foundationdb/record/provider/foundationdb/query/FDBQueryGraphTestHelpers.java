@@ -172,12 +172,17 @@ public class FDBQueryGraphTestHelpers extends FDBRecordStoreQueryTestBase {
     }
 
     public static RecordCursor<QueryResult> executeCascades(FDBRecordStore store, RecordQueryPlan plan, Bindings bindings) {
+        return executeCascades(store, plan, bindings, null, ExecuteProperties.SERIAL_EXECUTE);
+    }
+
+    public static RecordCursor<QueryResult> executeCascades(FDBRecordStore store, RecordQueryPlan plan, Bindings bindings,
+                                                            @Nullable byte[] continuation, ExecuteProperties executeProperties) {
         Set<Type> usedTypes = usedTypes().evaluate(plan);
         TypeRepository typeRepository = TypeRepository.newBuilder()
                 .addAllTypes(usedTypes)
                 .build();
         EvaluationContext evaluationContext = EvaluationContext.forBindingsAndTypeRepository(bindings, typeRepository);
-        return plan.executePlan(store, evaluationContext, null, ExecuteProperties.SERIAL_EXECUTE);
+        return plan.executePlan(store, evaluationContext, continuation, executeProperties);
     }
 
     public static <T> T getField(QueryResult result, Class<T> type, String... path) {
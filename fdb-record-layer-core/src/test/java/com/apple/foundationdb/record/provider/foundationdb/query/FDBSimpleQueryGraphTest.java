@@ -20,7 +20,9 @@
 
 package com.apple.foundationdb.record.provider.foundationdb.query;
 
+import com.apple.foundationdb.record.Bindings;
 import com.apple.foundationdb.record.EvaluationContext;
+import com.apple.foundationdb.record.ExecuteProperties;
 import com.apple.foundationdb.record.PlanHashable;
 import com.apple.foundationdb.record.RecordCoreException;
 import com.apple.foundationdb.record.RecordCursor;
@@ -58,6 +60,7 @@ import com.apple.foundationdb.record.query.plan.cascades.values.FieldValue;
 import com.apple.foundationdb.record.query.plan.cascades.values.QuantifiedObjectValue;
 import com.apple.foundationdb.record.query.plan.plans.QueryResult;
 import com.apple.foundationdb.record.query.plan.plans.RecordQueryFlatMapPlan;
+import com.apple.foundationdb.record.query.plan.plans.RecordQueryHashJoinPlan;
 import com.apple.foundationdb.record.query.plan.plans.RecordQueryPlan;
 import com.apple.test.BooleanSource;
 import com.apple.test.Tags;
@@ -77,6 +80,7 @@ import org.slf4j.LoggerFactory;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Objects;
@@ -91,6 +95,7 @@ import static com.apple.foundationdb.record.provider.foundationdb.query.FDBQuery
 import static com.apple.foundationdb.record.provider.foundationdb.query.FDBQueryGraphTestHelpers.forEachWithNullOnEmpty;
 import static com.apple.foundationdb.record.provider.foundationdb.query.FDBQueryGraphTestHelpers.fullScan;
 import static com.apple.foundationdb.record.provider.foundationdb.query.FDBQueryGraphTestHelpers.fullTypeScan;
+import static com.apple.foundationdb.record.provider.foundationdb.query.FDBQueryGraphTestHelpers.getField;
 import static com.apple.foundationdb.record.provider.foundationdb.query.FDBQueryGraphTestHelpers.logicalFilterExpressionWithPredicates;
 import static com.apple.foundationdb.record.provider.foundationdb.query.FDBQueryGraphTestHelpers.projectColumn;
 import static com.apple.foundationdb.record.provider.foundationdb.query.FDBQueryGraphTestHelpers.resultColumn;
@@ -128,6 +133,7 @@ import static com.apple.foundationdb.record.query.plan.cascades.matching.structu
 import static com.apple.foundationdb.record.query.plan.cascades.matching.structure.ValueMatchers.anyValue;
 import static com.apple.foundationdb.record.query.plan.cascades.matching.structure.ValueMatchers.fieldValueWithFieldNames;
 import static com.apple.foundationdb.record.query.plan.cascades.matching.structure.ValueMatchers.recordConstructorValue;
+import static com.apple.foundationdb.record.query.plan.cascades.properties.CardinalitiesProperty.cardinalities;
 import static com.apple.foundationdb.record.query.plan.cascades.properties.DerivationsProperty.derivations;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.junit.jupiter.api.Assertions.assertEquals;
@@ -778,6 +784,79 @@ public class FDBSimpleQueryGraphTest extends FDBRecordStoreQueryTestBase {
                 });
     }
 
+    @DualPlannerTest(planner = DualPlannerTest.Planner.CASCADES)
+    void testHashJoin() {
+        CascadesPlanner cascadesPlanner = setUp();
+        cascadesPlanner.setConfiguration(cascadesPlanner.getConfiguration().asBuilder()
+                .setPlanHashJoins(true)
+                .build());
+
+        try (FDBRecordContext context = openContext()) {
+            openNestedRecordStore(context);
+            recordStore.saveRecord(TestRecords4Proto.RestaurantReviewer.newBuilder()
+                    .setId(3L)
+                    .setName("Gavroche")
+                    .setEmail("Chez Thénardier")
+                    .build());
+            commit(context);
+        }
+
+        // only the index on the reviewer's name may be used, so the restaurant cannot be looked up by its name
+        final var plan = planGraph(
+                () -> {
+                    //
+                    // Equivalent to the query:
+                    //     SELECT RestaurantReviewer.name AS reviewerName, RestaurantRecord.rest_no AS restNo
+                    //       FROM RestaurantReviewer, RestaurantRecord
+                    //       WHERE RestaurantRecord.rest_no = 1000 AND RestaurantReviewer.email = RestaurantRecord.name
+                    //
+                    final var reviewerQun = fullTypeScan(cascadesPlanner.getRecordMetaData(), "RestaurantReviewer");
+                    final var restaurantQun = fullTypeScan(cascadesPlanner.getRecordMetaData(), "RestaurantRecord");
+
+                    final var graphExpansionBuilder = GraphExpansion.builder();
+                    graphExpansionBuilder.addQuantifier(reviewerQun);
+                    graphExpansionBuilder.addQuantifier(restaurantQun);
+                    graphExpansionBuilder.addPredicate(fieldPredicate(restaurantQun, "rest_no",
+                            new Comparisons.SimpleComparison(Comparisons.Type.EQUALS, 1000L)));
+                    graphExpansionBuilder.addPredicate(fieldPredicate(reviewerQun, "email",
+                            new Comparisons.ValueComparison(Comparisons.Type.EQUALS, fieldValue(restaurantQun, "name"))));
+                    graphExpansionBuilder.addResultColumn(column(reviewerQun, "name", "reviewerName"));
+                    graphExpansionBuilder.addResultColumn(column(restaurantQun, "rest_no", "restNo"));
+
+                    final var qun = forEach(graphExpansionBuilder.build().buildSelect());
+                    return Reference.initialOf(LogicalSortExpression.unsorted(qun));
+                }, "RestaurantReviewer$name");
+
+        final var hashJoinPlan = Assertions.assertInstanceOf(RecordQueryHashJoinPlan.class, plan);
+        // the restaurant, restricted to a single primary key, is the only side that is known to be small enough to be built
+        final var buildMaxCardinality = cardinalities().evaluate(hashJoinPlan.getBuildQuantifier().getRangesOverPlan()).getMaxCardinality();
+        Assertions.assertFalse(buildMaxCardinality.isUnknown());
+        assertEquals(1L, buildMaxCardinality.getCardinality());
+
+        // the build side alone already uses up the scan limit; it is read completely on every resume without being
+        // subject to that limit, while the probe side makes progress one record at a time
+        final List<String> reviewerNames = new ArrayList<>();
+        byte[] continuation = null;
+        int executions = 0;
+        do {
+            try (FDBRecordContext context = openContext()) {
+                openNestedRecordStore(context);
+                try (RecordCursor<QueryResult> cursor = executeCascades(recordStore, plan, Bindings.EMPTY_BINDINGS, continuation,
+                        ExecuteProperties.newBuilder().setScannedRecordsLimit(1).build())) {
+                    final var result = cursor.forEachResult(queryResult -> {
+                        reviewerNames.add(getField(queryResult.get(), String.class, "reviewerName"));
+                        assertEquals(1000L, getField(queryResult.get(), Long.class, "restNo"));
+                    }).join();
+                    continuation = result.getContinuation().toBytes();
+                }
+            }
+            executions++;
+            Assertions.assertTrue(executions < 20, "hash join did not make progress");
+        } while (continuation != null);
+
+        assertEquals(List.of("Gavroche"), reviewerNames);
+    }
+
     @DualPlannerTest(planner = DualPlannerTest.Planner.CASCADES)
     void testMediumJoin() {
         CascadesPlanner cascadesPlanner = setUp();
@@ -29,6 +29,7 @@ import com.apple.foundationdb.record.RecordCursorIterator;
 import com.apple.foundationdb.record.RecordCursorResult;
 import com.apple.foundationdb.record.RecordMetaData;
 import com.apple.foundationdb.record.RecordMetaDataBuilder;
+import com.apple.foundationdb.record.RecordPlannerConfigurationProto;
 import com.apple.foundationdb.record.TestHelpers;
 import com.apple.foundationdb.record.TestRecords1Proto;
 import com.apple.foundationdb.record.TestRecordsWithHeaderProto;
@@ -48,7 +49,9 @@ import com.apple.foundationdb.record.query.expressions.QueryComponent;
 import com.apple.foundationdb.record.query.plan.PlannableIndexTypes;
 import com.apple.foundationdb.record.query.plan.RecordQueryPlanner;
 import com.apple.foundationdb.record.query.plan.plans.RecordQueryPlan;
+import com.apple.foundationdb.record.query.plan.sorting.RecordQueryPlannerSortConfiguration;
 import com.apple.foundationdb.record.query.plan.sorting.RecordQuerySortAdapter;
+import com.apple.foundationdb.record.query.plan.sorting.RecordQuerySortOnValuesPlan;
 import com.apple.foundationdb.record.sorting.SortEvents;
 import com.apple.test.BooleanSource;
 import com.apple.test.Tags;
@@ -64,13 +67,18 @@ import org.junit.jupiter.params.provider.EnumSource;
 import org.junit.jupiter.params.provider.MethodSource;
 
 import javax.annotation.Nonnull;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
 import java.util.Objects;
 import java.util.PrimitiveIterator;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
 import java.util.stream.IntStream;
+import java.util.stream.LongStream;
 import java.util.stream.Stream;
 
 import static com.apple.foundationdb.record.TestHelpers.assertDiscardedAtMost;
@@ -1032,4 +1040,205 @@ class FDBSortQueryIndexSelectionTest extends FDBRecordStoreQueryTestBase {
             }
         }
     }
+
+    /**
+     * Verify that a file sort from the old planner still ends at its row limit, so that it can be paged through with
+     * skip, and that the files it spilled to are not needed afterwards.
+     */
+    @Test
+    void sortWithoutIndexFilePaging() throws Exception {
+        final int numberOfRecordsToSave = 2000;
+        final int pageSize = 50;
+
+        try (FDBRecordContext context = openContext()) {
+            openSimpleRecordStore(context);
+
+            for (int i = 0; i < numberOfRecordsToSave; i++) {
+                TestRecords1Proto.MySimpleRecord.Builder recBuilder = TestRecords1Proto.MySimpleRecord.newBuilder();
+                recBuilder.setRecNo((2244 * i + 1649) % 2357); // Slightly larger prime.
+                recBuilder.setNumValue2(i);
+                recBuilder.setNumValue3Indexed(i % 5);
+                recordStore.saveRecord(recBuilder.build());
+            }
+            commit(context);
+        }
+
+        RecordQuery query = RecordQuery.newBuilder()
+                .setRecordType("MySimpleRecord")
+                .setFilter(Query.field("num_value_3_indexed").greaterThanOrEquals(2))
+                .setSort(field("num_value_2"), true)
+                .build();
+        ((RecordQueryPlanner)planner).setConfiguration(((RecordQueryPlanner)planner).getConfiguration().asBuilder().setAllowNonIndexSort(true).build());
+        RecordQueryPlan plan = planQuery(query);
+
+        final int countBeforeSorting = (numberOfRecordsToSave / 5) * 3;
+        final PrimitiveIterator.OfInt sortedInts = IntStream.iterate(numberOfRecordsToSave - 1, i -> i - 1)
+                .filter(i -> i % 5 >= 2)
+                .skip(RecordQuerySortAdapter.DEFAULT_MAX_RECORD_COUNT_IN_MEMORY)
+                .iterator();
+        // Skip past what fits in memory, so that every page is sorted in files.
+        for (int skip = RecordQuerySortAdapter.DEFAULT_MAX_RECORD_COUNT_IN_MEMORY; skip < countBeforeSorting; skip += pageSize) {
+            final ExecuteProperties executeProperties = ExecuteProperties.newBuilder().setSkip(skip).setReturnedRowLimit(pageSize).build();
+            try (FDBRecordContext context = openContext()) {
+                openSimpleRecordStore(context);
+                timer.reset();
+                int count = 0;
+                try (RecordCursor<FDBQueriedRecord<Message>> cursor = recordStore.executeQuery(plan, null, executeProperties)) {
+                    RecordCursorResult<FDBQueriedRecord<Message>> next;
+                    while ((next = cursor.getNext()).hasNext()) {
+                        TestRecords1Proto.MySimpleRecord.Builder myrec = TestRecords1Proto.MySimpleRecord.newBuilder();
+                        myrec.mergeFrom(Objects.requireNonNull(next.get()).getRecord());
+                        assertTrue(sortedInts.hasNext());
+                        assertEquals(sortedInts.nextInt(), myrec.getNumValue2());
+                        count++;
+                    }
+                    assertEquals(RecordCursor.NoNextReason.SOURCE_EXHAUSTED, next.getNoNextReason());
+                    assertTrue(next.getContinuation().isEnd());
+                }
+                assertEquals(Math.min(pageSize, countBeforeSorting - skip), count);
+                assertThat(timer.getCount(SortEvents.Events.FILE_SORT_OPEN_FILE), greaterThan(0));
+            }
+        }
+        assertFalse(sortedInts.hasNext());
+    }
+
+    /**
+     * Verify that the Cascades planner can sort without an index if enabled, spilling to files and resuming from
+     * continuations that hold the last sort key returned.
+     */
+    @DualPlannerTest(planner = DualPlannerTest.Planner.CASCADES)
+    void sortWithoutIndexCascades() throws Exception {
+        final int numberOfRecordsToSave = 200;
+        final int maxRecordCountInMemory = 20;
+
+        try (FDBRecordContext context = openContext()) {
+            openSimpleRecordStore(context);
+
+            for (int i = 0; i < numberOfRecordsToSave; i++) {
+                TestRecords1Proto.MySimpleRecord.Builder recBuilder = TestRecords1Proto.MySimpleRecord.newBuilder();
+                recBuilder.setRecNo((244 * i + 149) % 257); // Slightly larger prime.
+                recBuilder.setNumValue2(i);
+                recBuilder.setNumValue3Indexed(i % 5);
+                recordStore.saveRecord(recBuilder.build());
+            }
+            commit(context);
+        }
+
+        RecordQuery query = RecordQuery.newBuilder()
+                .setRecordType("MySimpleRecord")
+                .setFilter(Query.field("num_value_3_indexed").greaterThanOrEquals(2))
+                .setSort(field("num_value_2"), true)
+                .build();
+
+        assertThrows(RecordCoreException.class, () -> planQuery(query));
+
+        planner.setConfiguration(planner.getConfiguration().asBuilder()
+                .setSortConfiguration(RecordQueryPlannerSortConfiguration.fromProto(
+                        RecordPlannerConfigurationProto.PlannerConfiguration.SortConfiguration.newBuilder()
+                                .setShouldAllowNonIndexSort(true)
+                                .setMaxRecordCountInMemory(maxRecordCountInMemory)
+                                .build()))
+                .build());
+
+        RecordQueryPlan plan = planQuery(query);
+        assertTrue(plan instanceof RecordQuerySortOnValuesPlan ||
+                        plan.getChildren().stream().anyMatch(child -> child instanceof RecordQuerySortOnValuesPlan),
+                () -> "expected a sort in " + plan);
+
+        final PrimitiveIterator.OfInt sortedInts = IntStream.iterate(numberOfRecordsToSave - 1, i -> i - 1)
+                .filter(i -> i % 5 >= 2)
+                .iterator();
+        // The scan limit does not stop the sort from reading all of its input. More rows are returned than fit in
+        // memory, so each page spills to files.
+        final ExecuteProperties executeProperties = ExecuteProperties.newBuilder()
+                .setScannedRecordsLimit(50)
+                .setReturnedRowLimit(maxRecordCountInMemory + 7)
+                .build();
+        byte[] continuation = null;
+        int pages = 0;
+        do {
+            try (FDBRecordContext context = openContext()) {
+                openSimpleRecordStore(context);
+                timer.reset();
+                try (RecordCursor<FDBQueriedRecord<Message>> cursor = recordStore.executeQuery(plan, continuation, executeProperties)) {
+                    RecordCursorResult<FDBQueriedRecord<Message>> next;
+                    while ((next = cursor.getNext()).hasNext()) {
+                        TestRecords1Proto.MySimpleRecord.Builder myrec = TestRecords1Proto.MySimpleRecord.newBuilder();
+                        myrec.mergeFrom(Objects.requireNonNull(next.get()).getRecord());
+                        assertTrue(sortedInts.hasNext());
+                        assertEquals(sortedInts.nextInt(), myrec.getNumValue2());
+                    }
+                    continuation = next.getContinuation().toBytes();
+                }
+            }
+            pages++;
+        } while (continuation != null);
+        assertFalse(sortedInts.hasNext());
+        assertThat(pages, greaterThan(2));
+    }
+
+    /**
+     * Verify that resuming a Cascades sort after results that sort the same neither repeats nor skips any of them.
+     */
+    @DualPlannerTest(planner = DualPlannerTest.Planner.CASCADES)
+    void sortWithoutIndexCascadesTies() throws Exception {
+        final int numberOfRecordsToSave = 200;
+        final int maxRecordCountInMemory = 20;
+
+        try (FDBRecordContext context = openContext()) {
+            openSimpleRecordStore(context);
+
+            for (int i = 0; i < numberOfRecordsToSave; i++) {
+                TestRecords1Proto.MySimpleRecord.Builder recBuilder = TestRecords1Proto.MySimpleRecord.newBuilder();
+                recBuilder.setRecNo(i);
+                recBuilder.setNumValue2(i % 3);
+                recordStore.saveRecord(recBuilder.build());
+            }
+            commit(context);
+        }
+
+        RecordQuery query = RecordQuery.newBuilder()
+                .setRecordType("MySimpleRecord")
+                .setSort(field("num_value_2"))
+                .build();
+        planner.setConfiguration(planner.getConfiguration().asBuilder()
+                .setSortConfiguration(RecordQueryPlannerSortConfiguration.fromProto(
+                        RecordPlannerConfigurationProto.PlannerConfiguration.SortConfiguration.newBuilder()
+                                .setShouldAllowNonIndexSort(true)
+                                .setMaxRecordCountInMemory(maxRecordCountInMemory)
+                                .build()))
+                .build());
+        RecordQueryPlan plan = planQuery(query);
+
+        // Pages both smaller than memory, sorted in memory, and larger than it, spilled to files.
+        for (int rowLimit : List.of(7, maxRecordCountInMemory + 7)) {
+            final ExecuteProperties executeProperties = ExecuteProperties.newBuilder()
+                    .setReturnedRowLimit(rowLimit)
+                    .build();
+            final List<Long> recNos = new ArrayList<>();
+            int lastNumValue2 = Integer.MIN_VALUE;
+            byte[] continuation = null;
+            do {
+                try (FDBRecordContext context = openContext()) {
+                    openSimpleRecordStore(context);
+                    try (RecordCursor<FDBQueriedRecord<Message>> cursor = recordStore.executeQuery(plan, continuation, executeProperties)) {
+                        RecordCursorResult<FDBQueriedRecord<Message>> next;
+                        while ((next = cursor.getNext()).hasNext()) {
+                            TestRecords1Proto.MySimpleRecord.Builder myrec = TestRecords1Proto.MySimpleRecord.newBuilder();
+                            myrec.mergeFrom(Objects.requireNonNull(next.get()).getRecord());
+                            assertThat(myrec.getNumValue2(), greaterThanOrEqualTo(lastNumValue2));
+                            lastNumValue2 = myrec.getNumValue2();
+                            recNos.add(myrec.getRecNo());
+                        }
+                        continuation = next.getContinuation().toBytes();
+                    }
+                }
+            } while (continuation != null);
+            // Results that sort the same come in the order they were read, which is by primary key.
+            final List<Long> expected = LongStream.range(0, numberOfRecordsToSave).boxed()
+                    .sorted(Comparator.comparingLong(recNo -> recNo % 3))
+                    .collect(Collectors.toList());
+            assertEquals(expected, recNos);
+        }
+    }
 }
@@ -22,7 +22,9 @@ package com.apple.foundationdb.record.provider.foundationdb.query;
 
 import com.apple.foundationdb.record.Bindings;
 import com.apple.foundationdb.record.EvaluationContext;
+import com.apple.foundationdb.record.ExecuteProperties;
 import com.apple.foundationdb.record.RecordCursor;
+import com.apple.foundationdb.record.RecordCursorResult;
 import com.apple.foundationdb.record.TestRecords1Proto;
 import com.apple.foundationdb.record.metadata.Index;
 import com.apple.foundationdb.record.metadata.IndexOptions;
@@ -49,6 +51,7 @@ import com.apple.foundationdb.record.query.plan.cascades.matching.structure.Prim
 import com.apple.foundationdb.record.query.plan.cascades.matching.structure.ValueMatchers;
 import com.apple.foundationdb.record.query.plan.cascades.predicates.ValuePredicate;
 import com.apple.foundationdb.record.query.plan.cascades.typing.Type;
+import com.apple.foundationdb.record.query.plan.cascades.typing.TypeRepository;
 import com.apple.foundationdb.record.query.plan.cascades.values.ArithmeticValue;
 import com.apple.foundationdb.record.query.plan.cascades.values.FieldValue;
 import com.apple.foundationdb.record.query.plan.cascades.values.LiteralValue;
@@ -85,7 +88,9 @@ import static com.apple.foundationdb.record.query.plan.cascades.matching.structu
 import static com.apple.foundationdb.record.query.plan.cascades.matching.structure.RecordQueryPlanMatchers.aggregateIndexPlan;
 import static com.apple.foundationdb.record.query.plan.cascades.matching.structure.RecordQueryPlanMatchers.aggregateIndexPlanOf;
 import static com.apple.foundationdb.record.query.plan.cascades.matching.structure.RecordQueryPlanMatchers.aggregations;
+import static com.apple.foundationdb.record.query.plan.cascades.matching.structure.RecordQueryPlanMatchers.anyPlan;
 import static com.apple.foundationdb.record.query.plan.cascades.matching.structure.RecordQueryPlanMatchers.groupings;
+import static com.apple.foundationdb.record.query.plan.cascades.matching.structure.RecordQueryPlanMatchers.hashAggregationPlan;
 import static com.apple.foundationdb.record.query.plan.cascades.matching.structure.RecordQueryPlanMatchers.indexName;
 import static com.apple.foundationdb.record.query.plan.cascades.matching.structure.RecordQueryPlanMatchers.indexPlan;
 import static com.apple.foundationdb.record.query.plan.cascades.matching.structure.RecordQueryPlanMatchers.mapPlan;
@@ -97,6 +102,7 @@ import static com.apple.foundationdb.record.query.plan.cascades.matching.structu
 import static com.apple.foundationdb.record.query.plan.cascades.matching.structure.ValueMatchers.fieldValueWithLastFieldName;
 import static com.apple.foundationdb.record.query.plan.cascades.matching.structure.ValueMatchers.recordConstructorValue;
 import static com.apple.foundationdb.record.query.plan.cascades.matching.structure.ValueMatchers.sumAggregationValue;
+import static com.apple.foundationdb.record.query.plan.cascades.properties.UsedTypesProperty.usedTypes;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
 /**
@@ -136,6 +142,96 @@ public class GroupByTest extends FDBRecordStoreQueryTestBase {
                 EvaluationContext.empty()), "Cascades planner could not plan query");
     }
 
+    @DualPlannerTest(planner = DualPlannerTest.Planner.CASCADES)
+    public void testHashGroupByWithoutCompatiblySortedIndex() {
+        final RecordMetaDataHook hook = setupHookAndAddData(false, false);
+        planner.setConfiguration(planner.getConfiguration().asBuilder()
+                .setPlanHashAggregations(true)
+                // fewer than the number of groups, so that the others overflow
+                .setHashAggregationMaxGroupCount(4)
+                .build());
+        final var cascadesPlanner = (CascadesPlanner)planner;
+        final var plan = cascadesPlanner.planGraph(
+                () -> constructGroupByPlan(false, false, GroupingKind.REGULAR_GROUPING),
+                Optional.empty(),
+                IndexQueryabilityFilter.TRUE,
+                EvaluationContext.empty()).getPlan();
+
+        assertMatchesExactly(plan, mapPlan(hashAggregationPlan(anyPlan())));
+
+        final Map<Pair<Integer, String>, Integer> expectedResult = new HashMap<>();
+        expectedResult.put(Pair.of(1, "1"), 10);
+        expectedResult.put(Pair.of(7, "1"), 10);
+        expectedResult.put(Pair.of(1, "2"), 20);
+        expectedResult.put(Pair.of(1, "3"), 30);
+        expectedResult.put(Pair.of(2, "4"), 5);
+        expectedResult.put(Pair.of(5, "4"), 5);
+        expectedResult.put(Pair.of(2, "5"), 5);
+        expectedResult.put(Pair.of(2, "6"), 5);
+        expectedResult.put(Pair.of(3, "7"), -10);
+        expectedResult.put(Pair.of(6, "7"), -10);
+        expectedResult.put(Pair.of(3, "8"), -20);
+        expectedResult.put(Pair.of(3, "9"), -30);
+        expectedResult.put(Pair.of(4, "10"), 100);
+        expectedResult.put(Pair.of(4, "11"), 2000);
+
+        // all at once, and one group at a time to resume from continuations in both phases
+        assertEquals(expectedResult, executeGroupByPlan(hook, plan, ExecuteProperties.SERIAL_EXECUTE));
+        assertEquals(expectedResult, executeGroupByPlan(hook, plan, ExecuteProperties.newBuilder().setReturnedRowLimit(1).build()));
+    }
+
+    @DualPlannerTest(planner = DualPlannerTest.Planner.CASCADES)
+    public void testHashGroupByResumedFromReturnedGroupCount() {
+        final RecordMetaDataHook hook = setupHookAndAddData(false, false);
+        planner.setConfiguration(planner.getConfiguration().asBuilder()
+                .setPlanHashAggregations(true)
+                .setHashAggregationMaxGroupCount(4)
+                .setHashAggregationMaxContinuationGroupCount(2)
+                .build());
+        final var cascadesPlanner = (CascadesPlanner)planner;
+        final var plan = cascadesPlanner.planGraph(
+                () -> constructGroupByPlan(false, false, GroupingKind.REGULAR_GROUPING),
+                Optional.empty(),
+                IndexQueryabilityFilter.TRUE,
+                EvaluationContext.empty()).getPlan();
+
+        final Map<Pair<Integer, String>, Integer> expectedResult =
+                executeGroupByPlan(hook, plan, ExecuteProperties.SERIAL_EXECUTE);
+        // the scan limit does not stop the input from being read, as groups cannot be resumed part way through it
+        assertEquals(expectedResult, executeGroupByPlan(hook, plan, ExecuteProperties.newBuilder().setScannedRecordsLimit(3).build()));
+        // one group at a time, resuming by aggregating the input again until few enough groups remain to be included
+        assertEquals(expectedResult, executeGroupByPlan(hook, plan, ExecuteProperties.newBuilder().setReturnedRowLimit(1).build()));
+    }
+
+    @Nonnull
+    private Map<Pair<Integer, String>, Integer> executeGroupByPlan(@Nonnull RecordMetaDataHook hook,
+                                                                   @Nonnull RecordQueryPlan plan,
+                                                                   @Nonnull ExecuteProperties executeProperties) {
+        final Map<Pair<Integer, String>, Integer> result = new HashMap<>();
+        final TypeRepository typeRepository = TypeRepository.newBuilder().addAllTypes(usedTypes().evaluate(plan)).build();
+        final EvaluationContext evaluationContext = EvaluationContext.forBindingsAndTypeRepository(Bindings.EMPTY_BINDINGS, typeRepository);
+        byte[] continuation = null;
+        do {
+            try (FDBRecordContext context = openContext()) {
+                openSimpleRecordStore(context, hook);
+                try (RecordCursor<QueryResult> cursor = plan.executePlan(recordStore, evaluationContext, continuation, executeProperties)) {
+                    RecordCursorResult<QueryResult> cursorResult;
+                    while ((cursorResult = cursor.getNext()).hasNext()) {
+                        final Message queriedMessage = Objects.requireNonNull(cursorResult.get()).getMessage();
+                        final Descriptors.Descriptor recDescriptor = queriedMessage.getDescriptorForType();
+                        final Pair<Integer, String> group = Pair.of(
+                                (Integer)queriedMessage.getField(recDescriptor.findFieldByName("num_value_2")),
+                                (String)queriedMessage.getField(recDescriptor.findFieldByName("str_value_indexed")));
+                        Assertions.assertNull(result.put(group, (Integer)queriedMessage.getField(recDescriptor.getFields().get(2))),
+                                () -> "duplicate group " + group);
+                    }
+                    continuation = cursorResult.getContinuation().toBytes();
+                }
+            }
+        } while (continuation != null);
+        return result;
+    }
+
     @DualPlannerTest(planner = DualPlannerTest.Planner.CASCADES)
     public void testAggregateIndexPlanning() {
         setupHookAndAddData(false, true);
@@ -81,7 +81,7 @@ public class ScanRecordKeysTest extends FDBRecordStoreTestBase {
      */
     @Test
     void monitorFormatVersion() {
-        assertEquals(FormatVersion.FULL_STORE_LOCK, FormatVersion.getMaximumSupportedVersion(),
+        assertEquals(FormatVersion.COMPACTED_BITMAP_VALUE, FormatVersion.getMaximumSupportedVersion(),
                 "New format version found. Please review the key scanner to ensure they still catch corruptions");
     }
 
@@ -0,0 +1,164 @@
+/*
+ * IndexStatisticsTest.java
+ *
+ * This source file is part of the FoundationDB open source project
+ *
+ * Copyright 2015-2026 Apple Inc. and the FoundationDB project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.apple.foundationdb.record.provider.foundationdb.statistics;
+
+import com.apple.foundationdb.record.RecordCoreArgumentException;
+import com.apple.foundationdb.record.query.expressions.Comparisons;
+import com.apple.foundationdb.record.query.plan.ScanComparisons;
+import com.apple.foundationdb.tuple.Tuple;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for {@link IndexStatistics} and the sketches it is built from.
+ */
+class IndexStatisticsTest {
+
+    @Test
+    void hyperLogLogEstimate() {
+        for (long count : new long[] {0, 10, 100, 10_000, 100_000}) {
+            final HyperLogLogSketch sketch = new HyperLogLogSketch();
+            for (long i = 0; i < count; i++) {
+                sketch.add(Tuple.from(i).pack());
+                sketch.add(Tuple.from(i).pack()); // duplicates are not counted
+            }
+            assertWithin(count, sketch.estimate(), 0.15);
+        }
+    }
+
+    @Test
+    void hyperLogLogMerge() {
+        final HyperLogLogSketch first = new HyperLogLogSketch();
+        final HyperLogLogSketch second = new HyperLogLogSketch();
+        for (long i = 0; i < 6000; i++) {
+            first.add(Tuple.from(i).pack());
+            second.add(Tuple.from(i + 4000).pack());
+        }
+        first.merge(second);
+        assertWithin(10_000, first.estimate(), 0.1);
+
+        final HyperLogLogSketch copy = HyperLogLogSketch.fromBytes(first.toBytes());
+        assertArrayEquals(first.toBytes(), copy.toBytes());
+        assertEquals(first.estimate(), copy.estimate());
+        assertThrows(RecordCoreArgumentException.class, () -> HyperLogLogSketch.fromBytes(new byte[3]));
+    }
+
+    @Test
+    void histogramFractions() {
+        assertNull(EquiDepthHistogram.fromSortedSample(List.of(Tuple.from(1L)), 10));
+
+        final EquiDepthHistogram histogram = EquiDepthHistogram.fromSortedSample(sample(0, 100), 10);
+        assertNotNull(histogram);
+        assertEquals(10, histogram.getBucketCount());
+        assertEquals(1.0, histogram.fractionBetween(null, null));
+        assertEquals(0.5, histogram.fractionBetween(null, Tuple.from(50L)), 0.02);
+        assertEquals(0.25, histogram.fractionBetween(Tuple.from(25L), Tuple.from(50L)), 0.02);
+        assertEquals(0.0, histogram.fractionBetween(Tuple.from(60L), Tuple.from(40L)));
+        assertEquals(0.0, histogram.fractionBetween(Tuple.from(200L), null));
+        assertEquals(0.0, histogram.fractionEqualTo(Tuple.from(-1L)));
+        assertEquals(-1.0, histogram.fractionEqualTo(Tuple.from(42L)));
+
+        // Half the entries have the value 7
+        final List<Tuple> skewed = new ArrayList<>(sample(0, 50));
+        for (int i = 0; i < 50; i++) {
+            skewed.add(Tuple.from(7L));
+        }
+        skewed.sort(Tuple::compareTo);
+        final EquiDepthHistogram skewedHistogram = EquiDepthHistogram.fromSortedSample(skewed, 10);
+        assertNotNull(skewedHistogram);
+        assertEquals(0.5, skewedHistogram.fractionEqualTo(Tuple.from(7L)), 0.11);
+    }
+
+    @Test
+    void estimateEntries() {
+        final IndexStatistics statistics = new IndexStatistics(1000, List.of(10L, 500L),
+                EquiDepthHistogram.fromSortedSample(sample(0, 100), 10), 100, 0, 0L);
+
+        assertEquals(1000.0, statistics.estimateEntries(ScanComparisons.EMPTY));
+        assertEquals(100.0, statistics.estimateEntries(scan(List.of(parameter(Comparisons.Type.EQUALS)))));
+        assertEquals(100.0, statistics.estimateEntries(scan(List.of(literal(Comparisons.Type.EQUALS, 42L)))));
+        assertEquals(1.0, statistics.estimateEntries(scan(List.of(literal(Comparisons.Type.EQUALS, 1000L)))));
+        assertEquals(2.0, statistics.estimateEntries(scan(List.of(parameter(Comparisons.Type.EQUALS), parameter(Comparisons.Type.EQUALS)))));
+
+        assertEquals(500.0, statistics.estimateEntries(scan(List.of(), literal(Comparisons.Type.GREATER_THAN_OR_EQUALS, 50L))), 20.0);
+        assertEquals(250.0, statistics.estimateEntries(scan(List.of(),
+                literal(Comparisons.Type.GREATER_THAN, 25L), literal(Comparisons.Type.LESS_THAN, 50L))), 20.0);
+        assertEquals(1000.0 / 3.0, statistics.estimateEntries(scan(List.of(), parameter(Comparisons.Type.LESS_THAN))), 1.0);
+        assertEquals(1000.0, statistics.estimateEntries(scan(List.of(), new Comparisons.NullComparison(Comparisons.Type.NOT_NULL))));
+        // The histogram only covers the first column
+        assertEquals(1000.0 / 10.0 / 3.0, statistics.estimateEntries(scan(List.of(parameter(Comparisons.Type.EQUALS)),
+                literal(Comparisons.Type.GREATER_THAN, 50L))), 1.0);
+
+        final IndexStatistics empty = new IndexStatistics(0, List.of(), null, 0, 0, 0L);
+        assertEquals(0.0, empty.estimateEntries(scan(List.of(parameter(Comparisons.Type.EQUALS)))));
+    }
+
+    @Test
+    void protoRoundTrip() {
+        final IndexStatistics statistics = new IndexStatistics(1000, List.of(10L, 500L),
+                EquiDepthHistogram.fromSortedSample(sample(0, 100), 10), 100, 3, 1234L);
+        final IndexStatistics copy = IndexStatistics.fromProto(statistics.toProto());
+        assertEquals(statistics.getEntryCount(), copy.getEntryCount());
+        assertEquals(statistics.getDistinctPrefixCounts(), copy.getDistinctPrefixCounts());
+        assertNotNull(copy.getHistogram());
+        assertEquals(statistics.getHistogram().getBoundaries(), copy.getHistogram().getBoundaries());
+        assertEquals(statistics.getSampleSize(), copy.getSampleSize());
+        assertEquals(statistics.getIndexLastModifiedVersion(), copy.getIndexLastModifiedVersion());
+        assertEquals(statistics.getCollectedTimeMillis(), copy.getCollectedTimeMillis());
+    }
+
+    private static void assertWithin(long expected, long actual, double relativeError) {
+        assertTrue(Math.abs(expected - actual) <= expected * relativeError,
+                () -> "expected " + expected + " but estimated " + actual);
+    }
+
+    private static List<Tuple> sample(long start, long end) {
+        return LongStream.range(start, end).mapToObj(i -> Tuple.from(i)).collect(Collectors.toList());
+    }
+
+    private static Comparisons.Comparison literal(Comparisons.Type type, Object comparand) {
+        return new Comparisons.SimpleComparison(type, comparand);
+    }
+
+    private static Comparisons.Comparison parameter(Comparisons.Type type) {
+        return new Comparisons.ParameterComparison(type, "p");
+    }
+
+    private static ScanComparisons scan(List<Comparisons.Comparison> equalities, Comparisons.Comparison... inequalities) {
+        final ScanComparisons.Builder builder = new ScanComparisons.Builder();
+        equalities.forEach(builder::addEqualityComparison);
+        for (Comparisons.Comparison inequality : inequalities) {
+            builder.addInequalityComparison(inequality);
+        }
+        return builder;
+    }
+}
@@ -58,6 +58,7 @@ import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Tag;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
@@ -247,6 +248,47 @@ public class SyntheticRecordPlannerJoinIndexTest extends AbstractSyntheticRecord
         }
     }
 
+    @Test
+    void saveRecordsBatchJoinIndex() {
+        metaDataBuilder.addIndex("MySimpleRecord", "other_rec_no");
+        final JoinedRecordTypeBuilder joined = metaDataBuilder.addJoinedRecordType("Simple_Other");
+        joined.addConstituent("simple", "MySimpleRecord");
+        joined.addConstituent("other", "MyOtherRecord");
+        joined.addJoin("simple", "other_rec_no", "other", "rec_no");
+        final Index joinedIndex = new Index("simple.num_value_2_other.num_value_3", concat(field("simple").nest("num_value_2"), field("other").nest("num_value_3")));
+        metaDataBuilder.addIndex(joined, joinedIndex);
+
+        try (FDBRecordContext context = openContext()) {
+            final FDBRecordStore recordStore = recordStoreBuilder.setContext(context).create();
+            final List<Message> records = new ArrayList<>();
+            for (int i = 0; i < 3; i++) {
+                records.add(TestRecordsJoinIndexProto.MySimpleRecord.newBuilder().setRecNo(i).setOtherRecNo(1000 + i).setNumValue2(i).build());
+                records.add(TestRecordsJoinIndexProto.MyOtherRecord.newBuilder().setRecNo(1000 + i).setNumValue3(i).build());
+            }
+            recordStore.saveRecords(records);
+            context.commit();
+        }
+
+        try (FDBRecordContext context = openContext()) {
+            final FDBRecordStore recordStore = recordStoreBuilder.setContext(context).open();
+            // Change both sides of each join in the same batch.
+            final List<Message> records = new ArrayList<>();
+            for (int i = 0; i < 3; i++) {
+                records.add(TestRecordsJoinIndexProto.MySimpleRecord.newBuilder().setRecNo(i).setOtherRecNo(1000 + i).setNumValue2(i + 10).build());
+                records.add(TestRecordsJoinIndexProto.MyOtherRecord.newBuilder().setRecNo(1000 + i).setNumValue3(i + 20).build());
+            }
+            recordStore.saveRecords(records);
+
+            final List<Tuple> expected = new ArrayList<>();
+            for (int i = 0; i < 3; i++) {
+                expected.add(Tuple.from(i + 10, i + 20, -1, Tuple.from(i), Tuple.from(1000 + i)));
+            }
+            final List<Tuple> results = recordStore.scanIndex(joinedIndex, IndexScanType.BY_VALUE, TupleRange.ALL, null, ScanProperties.FORWARD_SCAN).map(IndexEntry::getKey).asList().join();
+            assertEquals(expected, results);
+            context.commit();
+        }
+    }
+
     @Test
     void aggregateJoinIndex() {
         final KeyExpression pkey = concat(recordType(), field("uuid"));
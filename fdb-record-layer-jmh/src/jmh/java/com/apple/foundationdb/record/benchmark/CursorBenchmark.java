@@ -0,0 +1,127 @@
+/*
+ * CursorBenchmark.java
+ *
+ * This source file is part of the FoundationDB open source project
+ *
+ * Copyright 2015-2026 Apple Inc. and the FoundationDB project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.apple.foundationdb.record.benchmark;
+
+import com.apple.foundationdb.record.RecordCursor;
+import com.apple.foundationdb.record.provider.foundationdb.cursors.IntersectionCursor;
+import com.apple.foundationdb.record.provider.foundationdb.cursors.UnionCursor;
+import com.apple.foundationdb.tuple.Tuple;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+/**
+ * Cursor combinator benchmarks, over in-memory sources and so without a cluster.
+ */
+@State(Scope.Benchmark)
+public class CursorBenchmark {
+    @Param({"1000", "100000"})
+    public int size;
+
+    @Param({"10"})
+    public int pipelineSize;
+
+    // Run everything on the calling thread, so that what is measured is the cursors and not thread hand-offs.
+    private final Executor executor = Runnable::run;
+
+    private List<Tuple> evens;
+    private List<Tuple> odds;
+    private List<Tuple> threes;
+
+    @Setup
+    public void setup() {
+        evens = LongStream.range(0, size).map(i -> i * 2).mapToObj(Tuple::from).collect(Collectors.toList());
+        odds = LongStream.range(0, size).map(i -> i * 2 + 1).mapToObj(Tuple::from).collect(Collectors.toList());
+        threes = LongStream.range(0, size).map(i -> i * 3).mapToObj(Tuple::from).collect(Collectors.toList());
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void mapPipelined(Blackhole blackhole) {
+        RecordCursor.fromList(executor, evens)
+                .mapPipelined(tuple -> CompletableFuture.completedFuture(tuple.getLong(0)), pipelineSize)
+                .forEach(blackhole::consume)
+                .join();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void flatMapPipelined(Blackhole blackhole) {
+        final List<Tuple> outer = evens.subList(0, size / 100);
+        RecordCursor.flatMapPipelined(
+                        continuation -> RecordCursor.fromList(executor, outer, continuation),
+                        (tuple, continuation) -> RecordCursor.fromList(executor, odds.subList(0, 100), continuation),
+                        null, pipelineSize)
+                .forEach(blackhole::consume)
+                .join();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void union(Blackhole blackhole) {
+        UnionCursor.create(Tuple::getItems, false,
+                        continuation -> RecordCursor.fromList(executor, evens, continuation),
+                        continuation -> RecordCursor.fromList(executor, odds, continuation),
+                        null, null)
+                .forEach(blackhole::consume)
+                .join();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void intersection(Blackhole blackhole) {
+        IntersectionCursor.create(Tuple::getItems, false,
+                        continuation -> RecordCursor.fromList(executor, evens, continuation),
+                        continuation -> RecordCursor.fromList(executor, threes, continuation),
+                        null, null)
+                .forEach(blackhole::consume)
+                .join();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+                .include(CursorBenchmark.class.getSimpleName())
+                .build();
+
+        new Runner(opt).run();
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * KeyExpressionBenchmark.java
+ *
+ * This source file is part of the FoundationDB open source project
+ *
+ * Copyright 2015-2026 Apple Inc. and the FoundationDB project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.apple.foundationdb.record.benchmark;
+
+import com.apple.foundationdb.record.BenchmarkRecords1Proto;
+import com.apple.foundationdb.record.EvaluationContext;
+import com.apple.foundationdb.record.RecordMetaData;
+import com.apple.foundationdb.record.metadata.Key;
+import com.apple.foundationdb.record.metadata.expressions.KeyExpression;
+import com.apple.foundationdb.record.provider.foundationdb.FDBStoredRecord;
+import com.apple.foundationdb.record.query.expressions.Comparisons;
+import com.apple.foundationdb.tuple.Tuple;
+import com.google.protobuf.Message;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Key expression and comparison evaluation benchmarks.
+ */
+@State(Scope.Benchmark)
+public class KeyExpressionBenchmark {
+    private FDBStoredRecord<Message> storedRecord;
+    private KeyExpression field;
+    private KeyExpression concat;
+    private Comparisons.Comparison lessThan;
+    private Comparisons.Comparison startsWith;
+    private Comparisons.Comparison in;
+
+    @Setup
+    public void setup() {
+        final RecordMetaData metaData = RecordMetaData.build(BenchmarkRecords1Proto.getDescriptor());
+        final Message rec = BenchmarkRecords1Proto.MySimpleRecord.newBuilder()
+                .setRecNo(1066L)
+                .setStrValueIndexed("even")
+                .setNumValueUnique(42)
+                .setNumValue2(7)
+                .setNumValue3Indexed(-3)
+                .build();
+        storedRecord = FDBStoredRecord.newBuilder(rec)
+                .setPrimaryKey(Tuple.from(1066L))
+                .setRecordType(metaData.getRecordType("MySimpleRecord"))
+                .build();
+        field = Key.Expressions.field("num_value_2");
+        concat = Key.Expressions.concatenateFields("str_value_indexed", "num_value_2", "num_value_3_indexed");
+        lessThan = new Comparisons.SimpleComparison(Comparisons.Type.LESS_THAN, 100);
+        startsWith = new Comparisons.SimpleComparison(Comparisons.Type.STARTS_WITH, "ev");
+        final List<Integer> values = IntStream.range(0, 20).boxed().collect(Collectors.toList());
+        in = new Comparisons.ListComparison(Comparisons.Type.IN, values);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public List<Key.Evaluated> evaluateField() {
+        return field.evaluate(storedRecord);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public Tuple evaluateConcatToTuple() {
+        return concat.evaluateSingleton(storedRecord).toTuple();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public Boolean compareLessThan() {
+        return lessThan.eval(null, EvaluationContext.EMPTY, 7);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public Boolean compareStartsWith() {
+        return startsWith.eval(null, EvaluationContext.EMPTY, "even");
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public Boolean compareIn() {
+        return in.eval(null, EvaluationContext.EMPTY, 17);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+                .include(KeyExpressionBenchmark.class.getSimpleName())
+                .build();
+
+        new Runner(opt).run();
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * MetricBenchmark.java
+ *
+ * This source file is part of the FoundationDB open source project
+ *
+ * Copyright 2015-2026 Apple Inc. and the FoundationDB project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.apple.foundationdb.record.benchmark;
+
+import com.apple.foundationdb.linear.DoubleRealVector;
+import com.apple.foundationdb.linear.Metric;
+import com.apple.foundationdb.linear.RealVector;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Vector distance benchmarks, as used by vector indexes.
+ */
+@State(Scope.Benchmark)
+public class MetricBenchmark {
+    @Param({"EUCLIDEAN_METRIC", "EUCLIDEAN_SQUARE_METRIC", "COSINE_METRIC", "DOT_PRODUCT_METRIC"})
+    public Metric metric;
+
+    @Param({"128", "768"})
+    public int numDimensions;
+
+    private RealVector vector1;
+    private RealVector vector2;
+
+    @Setup
+    public void setup() {
+        final Random random = new Random(1066);
+        vector1 = randomVector(random, numDimensions);
+        vector2 = randomVector(random, numDimensions);
+    }
+
+    private static RealVector randomVector(Random random, int numDimensions) {
+        final double[] data = new double[numDimensions];
+        for (int i = 0; i < numDimensions; i++) {
+            data[i] = random.nextDouble() * 2.0d - 1.0d;
+        }
+        return new DoubleRealVector(data);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public double distance() {
+        return metric.distance(vector1, vector2);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+                .include(MetricBenchmark.class.getSimpleName())
+                .build();
+
+        new Runner(opt).run();
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * RecordSerializerBenchmark.java
+ *
+ * This source file is part of the FoundationDB open source project
+ *
+ * Copyright 2015-2026 Apple Inc. and the FoundationDB project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.apple.foundationdb.record.benchmark;
+
+import com.apple.foundationdb.record.BenchmarkRecords1Proto;
+import com.apple.foundationdb.record.RecordMetaData;
+import com.apple.foundationdb.record.metadata.RecordType;
+import com.apple.foundationdb.record.provider.common.DynamicMessageRecordSerializer;
+import com.apple.foundationdb.record.provider.common.RecordSerializer;
+import com.apple.foundationdb.record.provider.common.TransformedRecordSerializer;
+import com.apple.foundationdb.tuple.Tuple;
+import com.google.protobuf.Message;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Record serializer benchmarks.
+ */
+@State(Scope.Benchmark)
+public class RecordSerializerBenchmark {
+    @Param({"dynamic", "transformed", "compressed"})
+    public String serializerType;
+
+    @Param({"10", "1000"})
+    public int stringLength;
+
+    private RecordMetaData metaData;
+    private RecordType recordType;
+    private RecordSerializer<Message> serializer;
+    private Message rec;
+    private Tuple primaryKey;
+    private byte[] serialized;
+
+    @Setup
+    public void setup() {
+        metaData = RecordMetaData.build(BenchmarkRecords1Proto.getDescriptor());
+        recordType = metaData.getRecordType("MySimpleRecord");
+        switch (serializerType) {
+            case "dynamic":
+                serializer = DynamicMessageRecordSerializer.instance();
+                break;
+            case "transformed":
+                serializer = TransformedRecordSerializer.newDefaultBuilder().build();
+                break;
+            case "compressed":
+                serializer = TransformedRecordSerializer.newDefaultBuilder().setCompressWhenSerializing(true).build();
+                break;
+            default:
+                throw new IllegalArgumentException("unknown serializer type " + serializerType);
+        }
+        rec = BenchmarkRecords1Proto.MySimpleRecord.newBuilder()
+                .setRecNo(1066L)
+                .setStrValueIndexed("x".repeat(stringLength))
+                .setNumValueUnique(42)
+                .setNumValue2(7)
+                .setNumValue3Indexed(-3)
+                .build();
+        primaryKey = Tuple.from(1066L);
+        serialized = serializer.serialize(metaData, recordType, rec, null);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public byte[] serialize() {
+        return serializer.serialize(metaData, recordType, rec, null);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public Message deserialize() {
+        return serializer.deserialize(metaData, primaryKey, serialized, null);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+                .include(RecordSerializerBenchmark.class.getSimpleName())
+                .build();
+
+        new Runner(opt).run();
+    }
+}
@@ -0,0 +1,255 @@
+/*
+ * SorterBenchmark.java
+ *
+ * This source file is part of the FoundationDB open source project
+ *
+ * Copyright 2015-2026 Apple Inc. and the FoundationDB project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.apple.foundationdb.record.benchmark;
+
+import com.apple.foundationdb.record.RecordCursor;
+import com.apple.foundationdb.record.sorting.FileSortAdapter;
+import com.apple.foundationdb.record.sorting.FileSortCursor;
+import com.apple.foundationdb.record.sorting.MemorySortCursor;
+import com.apple.foundationdb.record.sorting.MemorySorter;
+import com.apple.foundationdb.tuple.Tuple;
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.CodedOutputStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.File;
+import java.io.IOException;
+import java.security.Key;
+import java.security.SecureRandom;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Benchmarks of sorting in memory and using files on local disk.
+ */
+@State(Scope.Benchmark)
+public class SorterBenchmark {
+    @Param({"10000"})
+    public int size;
+
+    @Param({"1000"})
+    public int maxRecordCountInMemory;
+
+    private final Executor executor = Runnable::run;
+
+    private List<Tuple> values;
+
+    @Setup
+    public void setup() {
+        final Random random = new Random(1066);
+        values = IntStream.range(0, size)
+                .mapToObj(i -> Tuple.from(random.nextLong(), "value " + i))
+                .collect(Collectors.toList());
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void memorySort(Blackhole blackhole) {
+        // Keep everything in memory, so that the whole input is sorted at once.
+        final TupleSortAdapter adapter = new TupleSortAdapter(size, MemorySorter.RecordCountInMemoryLimitMode.STOP);
+        try (RecordCursor<Tuple> cursor = MemorySortCursor.createSort(adapter, continuation -> RecordCursor.fromList(executor, values, continuation), null, null)) {
+            cursor.forEach(blackhole::consume).join();
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void memorySortTopN(Blackhole blackhole) {
+        // Keep only the smallest values, as for a sort with a limit.
+        final TupleSortAdapter adapter = new TupleSortAdapter(maxRecordCountInMemory, MemorySorter.RecordCountInMemoryLimitMode.DISCARD);
+        try (RecordCursor<Tuple> cursor = MemorySortCursor.createSort(adapter, continuation -> RecordCursor.fromList(executor, values, continuation), null, null)) {
+            cursor.forEach(blackhole::consume).join();
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void fileSort(Blackhole blackhole) {
+        // Spill to files every maxRecordCountInMemory values and then merge them.
+        final TupleSortAdapter adapter = new TupleSortAdapter(maxRecordCountInMemory, MemorySorter.RecordCountInMemoryLimitMode.STOP);
+        // Closing the cursor deletes the files.
+        try (RecordCursor<Tuple> cursor = FileSortCursor.create(adapter, continuation -> RecordCursor.fromList(executor, values, continuation), null, null, 0, Integer.MAX_VALUE)) {
+            cursor.forEach(blackhole::consume).join();
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+                .include(SorterBenchmark.class.getSimpleName())
+                .build();
+
+        new Runner(opt).run();
+    }
+
+    /**
+     * Sort adapter that sorts tuples by themselves.
+     */
+    private static class TupleSortAdapter implements FileSortAdapter<Tuple, Tuple> {
+        private final int maxRecordCountInMemory;
+        @Nonnull
+        private final MemorySorter.RecordCountInMemoryLimitMode limitMode;
+
+        TupleSortAdapter(int maxRecordCountInMemory, @Nonnull MemorySorter.RecordCountInMemoryLimitMode limitMode) {
+            this.maxRecordCountInMemory = maxRecordCountInMemory;
+            this.limitMode = limitMode;
+        }
+
+        @Override
+        public int compare(Tuple o1, Tuple o2) {
+            return o1.compareTo(o2);
+        }
+
+        @Nonnull
+        @Override
+        public Tuple generateKey(Tuple value) {
+            return value;
+        }
+
+        @Nonnull
+        @Override
+        public byte[] serializeKey(Tuple key) {
+            return key.pack();
+        }
+
+        @Override
+        public boolean isSerializedOrderReversed() {
+            return false;
+        }
+
+        @Nonnull
+        @Override
+        public Tuple deserializeKey(@Nonnull byte[] key) {
+            return Tuple.fromBytes(key);
+        }
+
+        @Nonnull
+        @Override
+        public byte[] serializeValue(Tuple value) {
+            return value.pack();
+        }
+
+        @Nonnull
+        @Override
+        public Tuple deserializeValue(@Nonnull byte[] value) {
+            return Tuple.fromBytes(value);
+        }
+
+        @Override
+        public int getMaxRecordCountInMemory() {
+            return maxRecordCountInMemory;
+        }
+
+        @Nonnull
+        @Override
+        public MemorySorter.RecordCountInMemoryLimitMode getRecordCountInMemoryLimitMode() {
+            return limitMode;
+        }
+
+        @Nonnull
+        @Override
+        public MemorySortComparator<Tuple> getComparator(@Nullable Tuple minimumKey) {
+            return new OrderComparator<>(this, minimumKey);
+        }
+
+        @Nonnull
+        @Override
+        public File generateFilename() throws IOException {
+            final File file = File.createTempFile("fdb-sort-benchmark", ".bin");
+            file.deleteOnExit();
+            return file;
+        }
+
+        @Override
+        public int getMetaDataVersion() {
+            return 0;
+        }
+
+        @Override
+        public void writeValue(@Nonnull Tuple value, @Nonnull CodedOutputStream stream) throws IOException {
+            stream.writeByteArrayNoTag(value.pack());
+        }
+
+        @Nonnull
+        @Override
+        public Tuple readValue(@Nonnull CodedInputStream stream) throws IOException {
+            return Tuple.fromBytes(stream.readByteArray());
+        }
+
+        @Override
+        public int getMinFileRecordCount() {
+            return 1;
+        }
+
+        @Override
+        public int getMaxFileCount() {
+            return 10;
+        }
+
+        @Override
+        public int getRecordCountPerSection() {
+            return 100;
+        }
+
+        @Override
+        public boolean isCompressed() {
+            return false;
+        }
+
+        @Nullable
+        @Override
+        public String getEncryptionCipherName() {
+            return null;
+        }
+
+        @Nullable
+        @Override
+        public Key getEncryptionKey() {
+            return null;
+        }
+
+        @Nullable
+        @Override
+        public SecureRandom getSecureRandom() {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * TupleBenchmark.java
+ *
+ * This source file is part of the FoundationDB open source project
+ *
+ * Copyright 2015-2026 Apple Inc. and the FoundationDB project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.apple.foundationdb.record.benchmark;
+
+import com.apple.foundationdb.tuple.Tuple;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tuple packing and unpacking benchmarks.
+ */
+@State(Scope.Benchmark)
+public class TupleBenchmark {
+    private Tuple integers;
+    private Tuple mixed;
+    private byte[] packedIntegers;
+    private byte[] packedMixed;
+
+    @Setup
+    public void setup() {
+        integers = Tuple.from(1L, 1_000L, 1_000_000L, -42L, Long.MAX_VALUE);
+        mixed = Tuple.from("MySimpleRecord", 1066L, "a somewhat longer string value", 3.14159, true,
+                new byte[] {0x00, 0x01, (byte)0xff}, UUID.fromString("6ba7b810-9dad-11d1-80b4-00c04fd430c8"),
+                Tuple.from("nested", 7L));
+        packedIntegers = integers.pack();
+        packedMixed = mixed.pack();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public byte[] packIntegers() {
+        return integers.pack();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public byte[] packMixed() {
+        return mixed.pack();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public Tuple unpackIntegers() {
+        return Tuple.fromBytes(packedIntegers);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public Tuple unpackMixed() {
+        return Tuple.fromBytes(packedMixed);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public int compareMixed() {
+        return mixed.compareTo(Tuple.fromBytes(packedMixed));
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+                .include(TupleBenchmark.class.getSimpleName())
+                .build();
+
+        new Runner(opt).run();
+    }
+}
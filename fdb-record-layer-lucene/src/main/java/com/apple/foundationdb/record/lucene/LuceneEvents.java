@@ -46,6 +46,8 @@ public class LuceneEvents {
         LUCENE_READ_STORED_FIELDS("lucene stored fields read"),
         /** Time to read a lucene block from FBB loader. */
         LUCENE_FDB_READ_BLOCK("lucene read from fdb"),
+        /** Time to read a range of lucene blocks ahead of a sequential reader. */
+        LUCENE_FDB_READ_AHEAD("lucene read ahead from fdb"),
         /** Time to list all files from Lucene's FDBDirectory. */
         LUCENE_LIST_ALL("lucene list all"),
         /** Time to load the file cache for Lucene's FDBDirectory. */
@@ -220,6 +222,8 @@ public class LuceneEvents {
         LUCENE_GET_INCREMENT_CALLS("lucene increments", false),
         /** The number of block reads that occur against the FDBDirectory.*/
         LUCENE_BLOCK_READS("lucene block reads", false),
+        /** The number of blocks read ahead of a sequential reader of the FDBDirectory. */
+        LUCENE_BLOCK_READ_AHEAD("lucene blocks read ahead", false),
         /** The number of block writes that occur against the FDBDirectory.*/
         LUCENE_BLOCK_WRITES("lucene block writes", false),
         /** Matched documents returned from lucene index reader scans. **/
@@ -232,6 +236,12 @@ public class LuceneEvents {
         LUCENE_SHARED_CACHE_HITS("lucene shared cache hits", false),
         /** Block to read came not in shared cache. **/
         LUCENE_SHARED_CACHE_MISSES("lucene shared cache misses", false),
+        /** Block to read came from the off-heap block cache. **/
+        LUCENE_OFF_HEAP_CACHE_HITS("lucene off-heap cache hits", false),
+        /** Block to read was not in the off-heap block cache. **/
+        LUCENE_OFF_HEAP_CACHE_MISSES("lucene off-heap cache misses", false),
+        /** Blocks evicted from the off-heap block cache to make room for new ones. **/
+        LUCENE_OFF_HEAP_CACHE_EVICTIONS("lucene off-heap cache evictions", false),
         /** Plan contains highlight operator. **/
         PLAN_HIGHLIGHT_TERMS("lucene highlight plans", false),
         /** Number of file delete operations on the FDBDirectory. */
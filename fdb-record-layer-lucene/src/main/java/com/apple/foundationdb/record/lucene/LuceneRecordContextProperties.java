@@ -130,6 +130,12 @@ public final class LuceneRecordContextProperties {
      * Lucene block cache maximum size. At most these many blocks will be stored in cache.
      */
     public static final RecordLayerPropertyKey<Integer> LUCENE_BLOCK_CACHE_MAXIMUM_SIZE = RecordLayerPropertyKey.integerPropertyKey("com.apple.foundationdb.record.lucene.block.cache.size", FDBDirectory.DEFAULT_BLOCK_CACHE_MAXIMUM_SIZE);
+    /**
+     * Maximum number of blocks a sequential reader of a Lucene file fetches ahead in a single range read. The read-ahead
+     * window starts small and grows up to this size as long as the reader keeps reading sequentially. {@code 0}
+     * disables reading ahead.
+     */
+    public static final RecordLayerPropertyKey<Integer> LUCENE_BLOCK_READ_AHEAD_MAXIMUM_BLOCKS = RecordLayerPropertyKey.integerPropertyKey("com.apple.foundationdb.record.lucene.block.readAhead.maximumBlocks", FDBDirectory.DEFAULT_READ_AHEAD_MAXIMUM_BLOCKS);
     /**
      * Lucene async to sync behavior: Whether to use the legacy async to sync calls or the non-exception-mapping behavior.
      */
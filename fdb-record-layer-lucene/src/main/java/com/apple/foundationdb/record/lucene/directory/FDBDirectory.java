@@ -81,6 +81,7 @@ import java.nio.file.NoSuchFileException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -120,6 +121,7 @@ public class FDBDirectory extends Directory {
     private static final Logger LOGGER = LoggerFactory.getLogger(FDBDirectory.class);
     public static final int DEFAULT_BLOCK_SIZE = 1_024;
     public static final int DEFAULT_BLOCK_CACHE_MAXIMUM_SIZE = 1024;
+    public static final int DEFAULT_READ_AHEAD_MAXIMUM_BLOCKS = 32;
     public static final int DEFAULT_CONCURRENCY_LEVEL = 16;
     public static final int DEFAULT_INITIAL_CAPACITY = 128;
     private static final int SEQUENCE_SUBSPACE = 0;
@@ -154,6 +156,7 @@ public class FDBDirectory extends Directory {
     private final int maxPendingWritesToReplay;
     private final int maxPendingQueueSize;
     private final int blockCacheMaximumSize;
+    private final int readAheadMaximumBlocks;
     private Lock lastLock = null;
     private final int blockSize;
 
@@ -256,6 +259,7 @@ public class FDBDirectory extends Directory {
         this.deferDeleteToCompoundFile = deferDeleteToCompoundFile;
         this.maxPendingWritesToReplay = agilityContext.getPropertyValue(LuceneRecordContextProperties.LUCENE_MAX_PENDING_WRITES_REPLAYED_FOR_QUERY);
         this.maxPendingQueueSize = agilityContext.getPropertyValue(LuceneRecordContextProperties.LUCENE_MAX_PENDING_QUEUE_SIZE);
+        this.readAheadMaximumBlocks = Objects.requireNonNullElse(agilityContext.getPropertyValue(LuceneRecordContextProperties.LUCENE_BLOCK_READ_AHEAD_MAXIMUM_BLOCKS), DEFAULT_READ_AHEAD_MAXIMUM_BLOCKS);
     }
 
     private void cacheRemovalCallback() {
@@ -540,14 +544,14 @@ public class FDBDirectory extends Directory {
                 if (sharedCache == null) {
                     return readData(id, block);
                 }
-                final byte[] fromShared = sharedCache.getBlockIfPresent(id, block);
+                final byte[] fromShared = sharedCache.getBlockIfPresent(id, block, agilityContext::increment);
                 if (fromShared != null) {
                     agilityContext.increment(LuceneEvents.Counts.LUCENE_SHARED_CACHE_HITS);
                     return CompletableFuture.completedFuture(fromShared);
                 } else {
                     agilityContext.increment(LuceneEvents.Counts.LUCENE_SHARED_CACHE_MISSES);
                     return readData(id, block).thenApply(data -> {
-                        sharedCache.putBlockIfAbsent(id, block, data);
+                        putSharedBlock(id, block, data);
                         return data;
                     });
                 }
@@ -565,6 +569,94 @@ public class FDBDirectory extends Directory {
                         .thenApply(this::decode));
     }
 
+    /**
+     * Reads a run of consecutive blocks of a file with a single range read and puts them into the block cache, so that
+     * subsequent calls to {@link #readBlock} for these blocks do not have to go to the database one block at a time.
+     * Blocks that are already in the block cache (or in the shared cache) are not read again. This does not wait for
+     * the range read to complete.
+     * @param requestingInput the {@link FDBIndexInput} requesting the blocks; used for logging
+     * @param fileName Description should be non-null, opaque string describing this resource; used for logging
+     * @param referenceFuture the reference where the data supposedly lives
+     * @param beginBlock the first block to read
+     * @param numBlocks the number of blocks to read
+     */
+    @API(API.Status.INTERNAL)
+    public void readAhead(@Nonnull IndexInput requestingInput,
+                          @Nonnull String fileName,
+                          @Nonnull CompletableFuture<FDBLuceneFileReference> referenceFuture,
+                          int beginBlock,
+                          int numBlocks) {
+        if (numBlocks <= 0 || !referenceFuture.isDone() || referenceFuture.isCompletedExceptionally()) {
+            // only read ahead for readers that have already resolved their file
+            return;
+        }
+        final FDBLuceneFileReference reference = referenceFuture.join();
+        if (reference == null) {
+            return;
+        }
+        if (LOGGER.isTraceEnabled()) {
+            LOGGER.trace(getLogMessage("readAhead",
+                    LuceneLogMessageKeys.FILE_NAME, fileName,
+                    LuceneLogMessageKeys.FILE_REFERENCE, requestingInput,
+                    LuceneLogMessageKeys.BLOCK_NUMBER, beginBlock,
+                    LuceneLogMessageKeys.LENGTH, numBlocks));
+        }
+        final long id = reference.getId();
+        // narrow the window down to the blocks that are neither in the block cache nor in the shared cache
+        int firstMissing = beginBlock;
+        int endMissing = beginBlock + numBlocks;
+        while (firstMissing < endMissing && isBlockCached(id, firstMissing)) {
+            firstMissing++;
+        }
+        while (endMissing > firstMissing && isBlockCached(id, endMissing - 1)) {
+            endMissing--;
+        }
+        if (firstMissing == endMissing) {
+            return;
+        }
+
+        final CompletableFuture<Map<Integer, byte[]>> blocksFuture = agilityContext.instrument(LuceneEvents.Events.LUCENE_FDB_READ_AHEAD,
+                agilityContext.getRange(dataSubspace.pack(Tuple.from(id, firstMissing)), dataSubspace.pack(Tuple.from(id, endMissing)))
+                        .thenApply(keyValues -> {
+                            final Map<Integer, byte[]> blocks = new HashMap<>();
+                            for (KeyValue keyValue : keyValues) {
+                                final int block = Math.toIntExact(dataSubspace.unpack(keyValue.getKey()).getLong(1));
+                                final byte[] data = decode(keyValue.getValue());
+                                if (sharedCache != null) {
+                                    putSharedBlock(id, block, data);
+                                }
+                                blocks.put(block, data);
+                            }
+                            agilityContext.increment(LuceneEvents.Counts.LUCENE_BLOCK_READ_AHEAD, blocks.size());
+                            return blocks;
+                        }));
+        for (int block = firstMissing; block < endMissing; block++) {
+            final int currentBlock = block;
+            blockCache.asMap().putIfAbsent(ComparablePair.of(id, block),
+                    blocksFuture.thenApply(blocks -> blocks.get(currentBlock)));
+        }
+    }
+
+    private void putSharedBlock(long id, int block, @Nonnull byte[] data) {
+        final int evicted = Objects.requireNonNull(sharedCache).putBlockIfAbsent(id, block, data);
+        if (evicted > 0) {
+            agilityContext.increment(LuceneEvents.Counts.LUCENE_OFF_HEAP_CACHE_EVICTIONS, evicted);
+        }
+    }
+
+    private boolean isBlockCached(long id, int block) {
+        return blockCache.getIfPresent(ComparablePair.of(id, block)) != null ||
+                (sharedCache != null && sharedCache.getBlockIfPresent(id, block) != null);
+    }
+
+    /**
+     * Get the maximum number of blocks a sequential reader fetches ahead in a single range read.
+     * @return the maximum read-ahead window in blocks, {@code 0} if reading ahead is disabled
+     */
+    public int getReadAheadMaximumBlocks() {
+        return readAheadMaximumBlocks;
+    }
+
     @Nonnull
     public byte[] readStoredFields(String segmentName, int docId) {
         final byte[] key = storedFieldsSubspace.pack(Tuple.from(segmentName, docId));
@@ -699,7 +791,9 @@ public class FDBDirectory extends Directory {
         }
         if (sharedCachePending) {
             return loadFileSequenceCounter().thenCompose(vignore -> {
-                sharedCache = sharedCacheManager.getCache(sharedCacheKey, fileSequenceCounter.get());
+                // decoded blocks of encrypted directories must not end up on local disk
+                sharedCache = sharedCacheManager.getCache(sharedCacheKey, fileSequenceCounter.get(),
+                        !serializer.isEncryptionEnabled(), agilityContext.getCallerContext().getDatabase().getClusterFile());
                 if (sharedCache == null) {
                     sharedCachePending = false;
                     return getFileReferenceCacheAsync();
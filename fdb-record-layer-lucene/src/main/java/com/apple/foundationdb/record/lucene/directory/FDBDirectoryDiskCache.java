@@ -0,0 +1,316 @@
+/*
+ * FDBDirectoryDiskCache.java
+ *
+ * This source file is part of the FoundationDB open source project
+ *
+ * Copyright 2015-2026 Apple Inc. and the FoundationDB project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.apple.foundationdb.record.lucene.directory;
+
+import com.apple.foundationdb.annotation.API;
+import com.apple.foundationdb.record.logging.KeyValueLogMessage;
+import com.apple.foundationdb.record.logging.LogMessageKeys;
+import com.apple.foundationdb.record.lucene.LuceneLogMessageKeys;
+import com.apple.foundationdb.subspace.Subspace;
+import com.apple.foundationdb.tuple.Tuple;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.hash.Hashing;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * A cache on local disk for the blocks of the immutable files of {@link FDBDirectory}s that survives the restart of
+ * the JVM.
+ * <p>
+ * The cache is the second tier of a {@link FDBDirectorySharedCache}: blocks that miss the in-memory cache are looked up
+ * here before they are read from the database, and blocks read from the database are written here as well. Each
+ * Lucene file is stored in its own local file, which is keyed by the database (its cluster file), the directory
+ * (including the subspace of the {@link FDBDirectorySharedCacheManager} and the directory sequence number) and the file
+ * id. Blocks are kept in fixed-size slots, each prefixed by the length and a checksum of the block, so that a block that
+ * was only partially written (e.g. because the process died) is treated as absent. Blocks are read and written with
+ * positional reads and writes of their slot.
+ * <p>
+ * Whole files are evicted in least recently used order once the total number of bytes exceeds the configured maximum.
+ * Disk I/O is done without holding the lock that guards this accounting, so a block written while its file is being
+ * evicted may be lost; the space is accounted for all the same and is reclaimed when the file is next evicted.
+ * Files that were written by a previous process are picked up when the cache is created, ordered by their last
+ * modification time.
+ * <p>
+ * Blocks are stored as they are returned by the directory, i.e. decoded. Directories whose data is encrypted therefore
+ * never use this cache (see {@link FDBDirectorySharedCacheManager#getCache(Tuple, long, boolean, String)}).
+ */
+@API(API.Status.EXPERIMENTAL)
+@ThreadSafe
+public class FDBDirectoryDiskCache {
+    private static final Logger LOGGER = LoggerFactory.getLogger(FDBDirectoryDiskCache.class);
+    private static final String FILE_SUFFIX = ".blocks";
+    private static final int HEADER_SIZE = 2 * Integer.BYTES;
+
+    @Nonnull
+    private final Path directory;
+    private final long maximumBytes;
+    private final int blockSize;
+    private final int slotSize;
+
+    @Nonnull
+    private final Object lock = new Object();
+    /*
+     * Bytes used by each cached file, in access order; guarded by lock as is totalBytes
+     */
+    @Nonnull
+    private final LinkedHashMap<String, Long> fileBytes;
+    private long totalBytes;
+
+    /**
+     * Creates a new disk cache in the given local directory, reusing the files a previous instance left there.
+     * @param directory the local directory holding the cached files; it is created if it does not exist
+     * @param maximumBytes the maximum number of bytes to be used by the cached files
+     * @param blockSize the maximum size of a block, usually {@link FDBDirectory#DEFAULT_BLOCK_SIZE}
+     * @throws IOException if the directory cannot be created or listed
+     */
+    public FDBDirectoryDiskCache(@Nonnull Path directory, long maximumBytes, int blockSize) throws IOException {
+        this.directory = directory;
+        this.maximumBytes = maximumBytes;
+        this.blockSize = blockSize;
+        this.slotSize = HEADER_SIZE + blockSize;
+        this.fileBytes = new LinkedHashMap<>(16, 0.75f, true);
+        Files.createDirectories(directory);
+        final List<Path> existingFiles;
+        try (Stream<Path> files = Files.list(directory)) {
+            existingFiles = files.filter(file -> file.getFileName().toString().endsWith(FILE_SUFFIX))
+                    .sorted(Comparator.comparing(FDBDirectoryDiskCache::lastModifiedTime))
+                    .collect(Collectors.toList());
+        }
+        final List<String> evicted;
+        synchronized (lock) {
+            for (Path file : existingFiles) {
+                final String fileName = file.getFileName().toString();
+                final long size = Files.size(file);
+                fileBytes.put(fileName.substring(0, fileName.length() - FILE_SUFFIX.length()), size);
+                totalBytes += size;
+            }
+            evicted = evictIfNecessary();
+        }
+        deleteFiles(evicted);
+    }
+
+    @Nonnull
+    public Path getDirectory() {
+        return directory;
+    }
+
+    public long getMaximumBytes() {
+        return maximumBytes;
+    }
+
+    public int getBlockSize() {
+        return blockSize;
+    }
+
+    /**
+     * Get the number of bytes currently used by the cached files.
+     * @return the number of bytes used
+     */
+    public long getTotalBytes() {
+        synchronized (lock) {
+            return totalBytes;
+        }
+    }
+
+    /**
+     * Get the key under which the blocks of a file of a directory are stored.
+     * @param clusterFile the cluster file of the database holding the directory or {@code null} for the default one
+     * @param subspace the subspace of the {@link FDBDirectorySharedCacheManager} or {@code null}
+     * @param directoryKey the key of the directory relative to that subspace
+     * @param sequenceNumber the sequence number of the directory
+     * @param id file id
+     * @return a key that can be used as a local file name, of the same length however long the directory key
+     */
+    @Nonnull
+    public static String fileKey(@Nullable String clusterFile, @Nullable Subspace subspace, @Nonnull Tuple directoryKey,
+                                 long sequenceNumber, long id) {
+        final Tuple key = directoryKey.add(sequenceNumber).add(id);
+        // the whole key is hashed, since file names are limited to 255 bytes
+        final byte[] packedKey = subspace == null ? key.pack() : subspace.pack(key);
+        return Hashing.sha256().hashBytes(Tuple.from(clusterFile == null ? "" : clusterFile, packedKey).pack()).toString();
+    }
+
+    /**
+     * Get a block of a file if it is present on disk.
+     * @param fileKey the key of the file as returned by {@link #fileKey}
+     * @param blockNumber block number in the file
+     * @return the cached block or {@code null} if not cached
+     */
+    @Nullable
+    public byte[] getBlockIfPresent(@Nonnull String fileKey, int blockNumber) {
+        synchronized (lock) {
+            if (fileBytes.get(fileKey) == null) {
+                return null;
+            }
+        }
+        final long offset = (long)blockNumber * slotSize;
+        try (FileChannel channel = FileChannel.open(filePath(fileKey), StandardOpenOption.READ)) {
+            final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            if (!readFully(channel, header, offset)) {
+                return null;
+            }
+            header.flip();
+            final int length = header.getInt();
+            final int checksum = header.getInt();
+            if (length <= 0 || length > blockSize) {
+                return null;
+            }
+            final byte[] block = new byte[length];
+            if (!readFully(channel, ByteBuffer.wrap(block), offset + HEADER_SIZE) || checksum(block) != checksum) {
+                return null;
+            }
+            return block;
+        } catch (NoSuchFileException e) {
+            // evicted concurrently
+            return null;
+        } catch (IOException e) {
+            logFailure("unable to read block from disk cache", fileKey, blockNumber, e);
+            return null;
+        }
+    }
+
+    /**
+     * Add a block of a file to the cache.
+     * @param fileKey the key of the file as returned by {@link #fileKey}
+     * @param blockNumber block number in the file
+     * @param block the block to be cached
+     */
+    public void putBlockIfAbsent(@Nonnull String fileKey, int blockNumber, @Nonnull byte[] block) {
+        if (block.length == 0 || block.length > blockSize) {
+            return;
+        }
+        final long offset = (long)blockNumber * slotSize;
+        final ByteBuffer slot = ByteBuffer.allocate(HEADER_SIZE + block.length);
+        slot.putInt(block.length).putInt(checksum(block)).put(block).flip();
+        try (FileChannel channel = FileChannel.open(filePath(fileKey), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            final ByteBuffer existingLength = ByteBuffer.allocate(Integer.BYTES);
+            if (readFully(channel, existingLength, offset) && existingLength.flip().getInt() > 0) {
+                return;
+            }
+            while (slot.hasRemaining()) {
+                channel.write(slot, offset + slot.position());
+            }
+        } catch (IOException e) {
+            logFailure("unable to write block to disk cache", fileKey, blockNumber, e);
+            return;
+        }
+        final List<String> evicted;
+        synchronized (lock) {
+            fileBytes.merge(fileKey, (long)slotSize, Long::sum);
+            totalBytes += slotSize;
+            evicted = evictIfNecessary();
+        }
+        deleteFiles(evicted);
+    }
+
+    @VisibleForTesting
+    boolean containsFile(@Nonnull String fileKey) {
+        synchronized (lock) {
+            return fileBytes.containsKey(fileKey);
+        }
+    }
+
+    // must be called while holding lock; returns the keys of the files to be deleted once it is released
+    @Nonnull
+    private List<String> evictIfNecessary() {
+        final List<String> evicted = new ArrayList<>();
+        final Iterator<Map.Entry<String, Long>> iterator = fileBytes.entrySet().iterator();
+        while (totalBytes > maximumBytes && iterator.hasNext()) {
+            final Map.Entry<String, Long> eldest = iterator.next();
+            evicted.add(eldest.getKey());
+            totalBytes -= eldest.getValue();
+            iterator.remove();
+        }
+        return evicted;
+    }
+
+    private void deleteFiles(@Nonnull List<String> fileKeys) {
+        for (String fileKey : fileKeys) {
+            try {
+                Files.deleteIfExists(filePath(fileKey));
+            } catch (IOException e) {
+                logFailure("unable to evict file from disk cache", fileKey, null, e);
+            }
+        }
+    }
+
+    // returns false if the file ends before the buffer is full
+    private static boolean readFully(@Nonnull FileChannel channel, @Nonnull ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Nonnull
+    private Path filePath(@Nonnull String fileKey) {
+        return directory.resolve(fileKey + FILE_SUFFIX);
+    }
+
+    private static int checksum(@Nonnull byte[] block) {
+        final CRC32 crc32 = new CRC32();
+        crc32.update(block);
+        return (int)crc32.getValue();
+    }
+
+    @Nonnull
+    private static FileTime lastModifiedTime(@Nonnull Path file) {
+        try {
+            return Files.getLastModifiedTime(file);
+        } catch (IOException e) {
+            return FileTime.fromMillis(0L);
+        }
+    }
+
+    private void logFailure(@Nonnull String staticMessage, @Nonnull String fileKey, @Nullable Integer blockNumber,
+                            @Nonnull IOException e) {
+        if (LOGGER.isWarnEnabled()) {
+            LOGGER.warn(KeyValueLogMessage.of(staticMessage,
+                    LogMessageKeys.DIRECTORY, directory,
+                    LuceneLogMessageKeys.FILE_NAME, fileKey,
+                    LuceneLogMessageKeys.BLOCK_NUMBER, blockNumber), e);
+        }
+    }
+}
@@ -0,0 +1,297 @@
+/*
+ * FDBDirectoryOffHeapBlockCache.java
+ *
+ * This source file is part of the FoundationDB open source project
+ *
+ * Copyright 2015-2026 Apple Inc. and the FoundationDB project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.apple.foundationdb.record.lucene.directory;
+
+import com.apple.foundationdb.annotation.API;
+import com.google.common.base.Preconditions;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A process-wide cache of {@link FDBDirectory} blocks that keeps the blocks outside the Java heap and is bounded by a
+ * number of bytes rather than a number of entries.
+ * <p>
+ * The storage consists of fixed-size slots, each of which can hold one block of up to {@link #getBlockSize()} bytes.
+ * Slots are carved out of direct {@link ByteBuffer} slabs, which are allocated lazily as the cache fills up, up to the
+ * configured maximum number of bytes. Once all slots are in use, a slot is reclaimed using the clock (second chance)
+ * algorithm: a clock hand sweeps over the slots, clearing the reference bit of recently read slots and evicting the
+ * first slot whose bit is already clear.
+ * <p>
+ * Readers never block. Each slot carries a stamp that is odd while the slot is being rewritten; a reader copies the
+ * block out of the slot and only returns it if the stamp has not changed in the meantime, which makes a concurrent
+ * eviction look like a miss.
+ * <p>
+ * A single instance is meant to be shared by all {@link FDBDirectorySharedCacheManager}s of a process (see
+ * {@link FDBDirectorySharedCacheManager.Builder#setOffHeapBlockCache}). Each {@link FDBDirectorySharedCache} gets its
+ * own {@linkplain #newOwner() owner}, so blocks of different directories, or of different sequence numbers of the same
+ * directory, never mix. Blocks of owners that are no longer in use are simply not read anymore and are eventually
+ * evicted.
+ */
+@API(API.Status.EXPERIMENTAL)
+@ThreadSafe
+public class FDBDirectoryOffHeapBlockCache {
+    /**
+     * Result of {@link #put} if the block was already cached.
+     */
+    public static final int ALREADY_PRESENT = -1;
+
+    private static final int SLOTS_PER_SLAB = 1024;
+
+    private final long maximumBytes;
+    private final int blockSize;
+    private final int numSlots;
+
+    @Nonnull
+    private final AtomicReferenceArray<ByteBuffer> slabs;
+    @Nonnull
+    private final Map<BlockKey, Integer> index;
+    @Nonnull
+    private final AtomicReferenceArray<BlockKey> slotKeys;
+    @Nonnull
+    private final AtomicIntegerArray slotLengths;
+    @Nonnull
+    private final AtomicLongArray slotStamps;
+    @Nonnull
+    private final AtomicIntegerArray referenceBits;
+    @Nonnull
+    private final AtomicInteger clockHand;
+
+    @Nonnull
+    private final AtomicLong nextOwner;
+    @Nonnull
+    private final AtomicLong hits;
+    @Nonnull
+    private final AtomicLong misses;
+    @Nonnull
+    private final AtomicLong evictions;
+
+    /**
+     * Creates a new cache.
+     * @param maximumBytes the maximum number of bytes used to store blocks
+     * @param blockSize the maximum size of a block, usually {@link FDBDirectory#DEFAULT_BLOCK_SIZE}
+     */
+    public FDBDirectoryOffHeapBlockCache(long maximumBytes, int blockSize) {
+        Preconditions.checkArgument(blockSize > 0, "block size must be positive");
+        Preconditions.checkArgument(maximumBytes >= blockSize, "maximum bytes must fit at least one block");
+        this.maximumBytes = maximumBytes;
+        this.blockSize = blockSize;
+        this.numSlots = Math.toIntExact(Math.min(maximumBytes / blockSize, Integer.MAX_VALUE));
+        this.slabs = new AtomicReferenceArray<>((numSlots + SLOTS_PER_SLAB - 1) / SLOTS_PER_SLAB);
+        this.index = new ConcurrentHashMap<>();
+        this.slotKeys = new AtomicReferenceArray<>(numSlots);
+        this.slotLengths = new AtomicIntegerArray(numSlots);
+        this.slotStamps = new AtomicLongArray(numSlots);
+        this.referenceBits = new AtomicIntegerArray(numSlots);
+        this.clockHand = new AtomicInteger();
+        this.nextOwner = new AtomicLong();
+        this.hits = new AtomicLong();
+        this.misses = new AtomicLong();
+        this.evictions = new AtomicLong();
+    }
+
+    public long getMaximumBytes() {
+        return maximumBytes;
+    }
+
+    public int getBlockSize() {
+        return blockSize;
+    }
+
+    /**
+     * Get the number of bytes currently allocated off-heap for slabs.
+     * @return the number of bytes allocated
+     */
+    public long getAllocatedBytes() {
+        long allocated = 0L;
+        for (int i = 0; i < slabs.length(); i++) {
+            final ByteBuffer slab = slabs.get(i);
+            if (slab != null) {
+                allocated += slab.capacity();
+            }
+        }
+        return allocated;
+    }
+
+    /**
+     * Get the number of blocks currently cached.
+     * @return the number of cached blocks
+     */
+    public int getBlockCount() {
+        return index.size();
+    }
+
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    public long getEvictionCount() {
+        return evictions.get();
+    }
+
+    /**
+     * Get a new owner, that is a namespace for the blocks of one directory at one sequence number.
+     * @return a new owner that has not been handed out before by this cache
+     */
+    public long newOwner() {
+        return nextOwner.incrementAndGet();
+    }
+
+    /**
+     * Get a block if it is present in the cache.
+     * @param owner the owner of the block as returned by {@link #newOwner()}
+     * @param id file id
+     * @param blockNumber block number in the file
+     * @return a copy of the cached block or {@code null} if not cached
+     */
+    @Nullable
+    public byte[] get(long owner, long id, int blockNumber) {
+        final BlockKey key = new BlockKey(owner, id, blockNumber);
+        final Integer slot = index.get(key);
+        if (slot != null) {
+            final long stamp = slotStamps.get(slot);
+            if ((stamp & 1L) == 0L && key.equals(slotKeys.get(slot))) {
+                final int length = slotLengths.get(slot);
+                final byte[] block = new byte[length];
+                slab(slot).get(slotOffset(slot), block, 0, length);
+                // make sure the copy is complete before validating that the slot has not been rewritten meanwhile
+                VarHandle.acquireFence();
+                if (slotStamps.get(slot) == stamp) {
+                    referenceBits.set(slot, 1);
+                    hits.incrementAndGet();
+                    return block;
+                }
+            }
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * Add a block to the cache if it is not present yet. Blocks larger than the block size are not cached.
+     * @param owner the owner of the block as returned by {@link #newOwner()}
+     * @param id file id
+     * @param blockNumber block number in the file
+     * @param block the block to be cached
+     * @return {@link #ALREADY_PRESENT} if the block was already cached, otherwise the number of blocks evicted to
+     * make room for this one
+     */
+    public int put(long owner, long id, int blockNumber, @Nonnull byte[] block) {
+        final BlockKey key = new BlockKey(owner, id, blockNumber);
+        if (index.containsKey(key)) {
+            return ALREADY_PRESENT;
+        }
+        if (block.length > blockSize) {
+            return 0;
+        }
+        // give up after the hand has gone around twice, which only happens under heavy contention
+        for (int attempt = 0; attempt < 2 * numSlots; attempt++) {
+            final int slot = Math.floorMod(clockHand.getAndIncrement(), numSlots);
+            if (referenceBits.getAndSet(slot, 0) != 0) {
+                // second chance
+                continue;
+            }
+            final long stamp = slotStamps.get(slot);
+            if ((stamp & 1L) != 0L || !slotStamps.compareAndSet(slot, stamp, stamp + 1L)) {
+                // being rewritten by someone else
+                continue;
+            }
+            int evicted = 0;
+            final BlockKey previousKey = slotKeys.getAndSet(slot, null);
+            if (previousKey != null) {
+                index.remove(previousKey, slot);
+                evicted = 1;
+                evictions.incrementAndGet();
+            }
+            slab(slot).put(slotOffset(slot), block, 0, block.length);
+            slotLengths.set(slot, block.length);
+            slotKeys.set(slot, key);
+            slotStamps.set(slot, stamp + 2L);
+            // if another thread cached the same block meanwhile, this slot is simply reclaimed later
+            index.putIfAbsent(key, slot);
+            return evicted;
+        }
+        return 0;
+    }
+
+    private int slotOffset(int slot) {
+        return (slot % SLOTS_PER_SLAB) * blockSize;
+    }
+
+    @Nonnull
+    private ByteBuffer slab(int slot) {
+        final int slabIndex = slot / SLOTS_PER_SLAB;
+        ByteBuffer slab = slabs.get(slabIndex);
+        if (slab == null) {
+            final int slotsInSlab = Math.min(SLOTS_PER_SLAB, numSlots - slabIndex * SLOTS_PER_SLAB);
+            slabs.compareAndSet(slabIndex, null, ByteBuffer.allocateDirect(slotsInSlab * blockSize));
+            slab = slabs.get(slabIndex);
+        }
+        return slab;
+    }
+
+    /**
+     * The key of a cached block.
+     */
+    private static final class BlockKey {
+        private final long owner;
+        private final long id;
+        private final int blockNumber;
+
+        BlockKey(long owner, long id, int blockNumber) {
+            this.owner = owner;
+            this.id = id;
+            this.blockNumber = blockNumber;
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof BlockKey)) {
+                return false;
+            }
+            final BlockKey blockKey = (BlockKey)o;
+            return owner == blockKey.owner && id == blockKey.id && blockNumber == blockKey.blockNumber;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(owner, id, blockNumber);
+        }
+    }
+}
@@ -21,7 +21,10 @@
 package com.apple.foundationdb.record.lucene.directory;
 
 import com.apple.foundationdb.annotation.API;
+import com.apple.foundationdb.record.lucene.LuceneEvents;
+import com.apple.foundationdb.record.provider.common.StoreTimer;
 import com.apple.foundationdb.record.util.pair.Pair;
+import com.apple.foundationdb.subspace.Subspace;
 import com.apple.foundationdb.tuple.Tuple;
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
@@ -30,9 +33,11 @@ import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import javax.annotation.concurrent.ThreadSafe;
 import java.util.Map;
+import java.util.Objects;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
 
 /**
  * A shared cache for a single {@link FDBDirectory}.
@@ -49,20 +54,59 @@ public class FDBDirectorySharedCache {
 
     @Nonnull
     private final AtomicReference<ConcurrentMap<Long, AtomicInteger>> fieldInfosReferenceCount = new AtomicReference<>();
-    @Nonnull
+    @Nullable
     private final Cache<Pair<Long, Integer>, byte[]> blocks;
+    @Nullable
+    private final FDBDirectoryOffHeapBlockCache offHeapBlockCache;
+    private final long offHeapOwner;
+    @Nullable
+    private final FDBDirectoryDiskCache diskCache;
+    @Nullable
+    private final Subspace diskCacheSubspace;
+    @Nullable
+    private final String diskCacheClusterFile;
 
     public FDBDirectorySharedCache(@Nonnull Tuple key, long sequenceNumber,
                                    int maximumSize, int concurrencyLevel, int initialCapacity) {
+        this(key, sequenceNumber, maximumSize, concurrencyLevel, initialCapacity, null, null, null, null);
+    }
+
+    /**
+     * Create a new shared cache whose blocks are kept in a process-wide off-heap cache and/or a cache on local disk.
+     * @param key the directory key, including the index prefix and any grouping keys
+     * @param sequenceNumber the sequence number of the directory
+     * @param maximumSize the maximum number of blocks kept on the heap; not used if there is an off-heap cache
+     * @param concurrencyLevel the concurrency level of the heap cache
+     * @param initialCapacity the initial capacity of the heap cache
+     * @param offHeapBlockCache the off-heap cache to keep blocks in instead of the heap or {@code null} for none
+     * @param diskCache the cache on local disk to use as a second tier or {@code null} for none
+     * @param diskCacheSubspace the subspace that, together with {@code key}, identifies the directory on disk
+     * @param diskCacheClusterFile the cluster file of the database holding the directory or {@code null} for the
+     * default one, which keeps the directories of different databases apart on disk
+     */
+    public FDBDirectorySharedCache(@Nonnull Tuple key, long sequenceNumber,
+                                   int maximumSize, int concurrencyLevel, int initialCapacity,
+                                   @Nullable FDBDirectoryOffHeapBlockCache offHeapBlockCache,
+                                   @Nullable FDBDirectoryDiskCache diskCache, @Nullable Subspace diskCacheSubspace,
+                                   @Nullable String diskCacheClusterFile) {
         this.key = key;
         this.sequenceNumber = sequenceNumber;
+        this.offHeapBlockCache = offHeapBlockCache;
+        this.offHeapOwner = offHeapBlockCache == null ? 0L : offHeapBlockCache.newOwner();
+        this.diskCache = diskCache;
+        this.diskCacheSubspace = diskCacheSubspace;
+        this.diskCacheClusterFile = diskCacheClusterFile;
         this.fileReferences = new AtomicReference<>();
-        this.blocks = CacheBuilder.newBuilder()
-                .concurrencyLevel(concurrencyLevel)
-                .initialCapacity(initialCapacity)
-                .maximumSize(maximumSize)
-                .recordStats()
-                .build();
+        if (offHeapBlockCache == null) {
+            this.blocks = CacheBuilder.newBuilder()
+                    .concurrencyLevel(concurrencyLevel)
+                    .initialCapacity(initialCapacity)
+                    .maximumSize(maximumSize)
+                    .recordStats()
+                    .build();
+        } else {
+            this.blocks = null;
+        }
     }
 
     /**
@@ -109,7 +153,31 @@ public class FDBDirectorySharedCache {
      */
     @Nullable
     public byte[] getBlockIfPresent(long id, int blockNumber) {
-        return blocks.getIfPresent(Pair.of(id, blockNumber));
+        return getBlockIfPresent(id, blockNumber, count -> { });
+    }
+
+    /**
+     * Get a block from a file if it is present in the cache, reporting whether it was found in the off-heap cache.
+     * @param id file id
+     * @param blockNumber block number in the file
+     * @param increment called with {@link LuceneEvents.Counts#LUCENE_OFF_HEAP_CACHE_HITS} or
+     * {@link LuceneEvents.Counts#LUCENE_OFF_HEAP_CACHE_MISSES} if blocks are kept off-heap
+     * @return the cached block or {@code null} if not cached
+     */
+    @Nullable
+    public byte[] getBlockIfPresent(long id, int blockNumber, @Nonnull Consumer<StoreTimer.Count> increment) {
+        final byte[] block = getFromMemory(id, blockNumber);
+        if (offHeapBlockCache != null) {
+            increment.accept(block != null ? LuceneEvents.Counts.LUCENE_OFF_HEAP_CACHE_HITS : LuceneEvents.Counts.LUCENE_OFF_HEAP_CACHE_MISSES);
+        }
+        if (block != null || diskCache == null) {
+            return block;
+        }
+        final byte[] fromDisk = diskCache.getBlockIfPresent(diskCacheFileKey(id), blockNumber);
+        if (fromDisk != null) {
+            putInMemory(id, blockNumber, fromDisk);
+        }
+        return fromDisk;
     }
 
     /**
@@ -117,9 +185,56 @@ public class FDBDirectorySharedCache {
      * @param id file id
      * @param blockNumber block number in the file
      * @param block the block to be cached
+     * @return the number of blocks that were evicted from the off-heap cache to make room for this block
      */
-    public void putBlockIfAbsent(long id, int blockNumber, @Nonnull byte[] block) {
-        blocks.asMap().putIfAbsent(Pair.of(id, blockNumber), block);
+    public int putBlockIfAbsent(long id, int blockNumber, @Nonnull byte[] block) {
+        final int evicted = putInMemory(id, blockNumber, block);
+        if (evicted == FDBDirectoryOffHeapBlockCache.ALREADY_PRESENT) {
+            return 0;
+        }
+        if (diskCache != null) {
+            diskCache.putBlockIfAbsent(diskCacheFileKey(id), blockNumber, block);
+        }
+        return evicted;
+    }
+
+    @Nullable
+    private byte[] getFromMemory(long id, int blockNumber) {
+        if (offHeapBlockCache != null) {
+            return offHeapBlockCache.get(offHeapOwner, id, blockNumber);
+        }
+        return Objects.requireNonNull(blocks).getIfPresent(Pair.of(id, blockNumber));
+    }
+
+    private int putInMemory(long id, int blockNumber, @Nonnull byte[] block) {
+        if (offHeapBlockCache != null) {
+            return offHeapBlockCache.put(offHeapOwner, id, blockNumber, block);
+        }
+        return Objects.requireNonNull(blocks).asMap().putIfAbsent(Pair.of(id, blockNumber), block) == null
+               ? 0 : FDBDirectoryOffHeapBlockCache.ALREADY_PRESENT;
+    }
+
+    /**
+     * Get the process-wide off-heap cache holding the blocks of this cache.
+     * @return the off-heap cache or {@code null} if blocks are kept on the heap
+     */
+    @Nullable
+    public FDBDirectoryOffHeapBlockCache getOffHeapBlockCache() {
+        return offHeapBlockCache;
+    }
+
+    /**
+     * Get the cache on local disk backing this cache.
+     * @return the disk cache or {@code null} if blocks are only cached in memory
+     */
+    @Nullable
+    public FDBDirectoryDiskCache getDiskCache() {
+        return diskCache;
+    }
+
+    @Nonnull
+    private String diskCacheFileKey(long id) {
+        return FDBDirectoryDiskCache.fileKey(diskCacheClusterFile, diskCacheSubspace, key, sequenceNumber, id);
     }
 
     public void setFieldInfosReferenceCount(final ConcurrentMap<Long, AtomicInteger> fieldInfosReferenceCount) {
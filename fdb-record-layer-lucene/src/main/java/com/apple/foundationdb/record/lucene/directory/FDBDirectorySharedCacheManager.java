@@ -39,6 +39,10 @@ import java.util.concurrent.ConcurrentHashMap;
  * Additionally, the cache is per directory sequence number. Any transaction that changes the directory must also advance this
  * counter. Only the latest sequence number's cache is retained by this manager, although it is possible that multiple older
  * transactions continue to share one.
+ *
+ * Optionally, blocks can be kept in a process-wide {@link FDBDirectoryOffHeapBlockCache} instead of on the heap, and
+ * they can also be kept in a {@link FDBDirectoryDiskCache} on local disk, which makes them available across restarts of
+ * the process.
  */
 @API(API.Status.EXPERIMENTAL)
 @ThreadSafe
@@ -51,6 +55,10 @@ public class FDBDirectorySharedCacheManager {
     private final int maximumSize;
     private final int concurrencyLevel;
     private final int initialCapacity;
+    @Nullable
+    private final FDBDirectoryOffHeapBlockCache offHeapBlockCache;
+    @Nullable
+    private final FDBDirectoryDiskCache diskCache;
 
     @Nullable
     public Subspace getSubspace() {
@@ -69,6 +77,16 @@ public class FDBDirectorySharedCacheManager {
         return initialCapacity;
     }
 
+    @Nullable
+    public FDBDirectoryOffHeapBlockCache getOffHeapBlockCache() {
+        return offHeapBlockCache;
+    }
+
+    @Nullable
+    public FDBDirectoryDiskCache getDiskCache() {
+        return diskCache;
+    }
+
     /**
      * Get any shared cache manager for the given context.
      *
@@ -92,10 +110,18 @@ public class FDBDirectorySharedCacheManager {
     }
 
     protected FDBDirectorySharedCacheManager(@Nullable Subspace subspace, int maximumSize, int concurrencyLevel, int initialCapacity) {
+        this(subspace, maximumSize, concurrencyLevel, initialCapacity, null, null);
+    }
+
+    protected FDBDirectorySharedCacheManager(@Nullable Subspace subspace, int maximumSize, int concurrencyLevel, int initialCapacity,
+                                             @Nullable FDBDirectoryOffHeapBlockCache offHeapBlockCache,
+                                             @Nullable FDBDirectoryDiskCache diskCache) {
         this.subspace = subspace;
         this.maximumSize = maximumSize;
         this.concurrencyLevel = concurrencyLevel;
         this.initialCapacity = initialCapacity;
+        this.offHeapBlockCache = offHeapBlockCache;
+        this.diskCache = diskCache;
         this.caches = new ConcurrentHashMap<>();
     }
 
@@ -107,10 +133,27 @@ public class FDBDirectorySharedCacheManager {
      */
     @Nullable
     public FDBDirectorySharedCache getCache(@Nonnull Tuple key, long sequenceNumber) {
+        return getCache(key, sequenceNumber, true, null);
+    }
+
+    /**
+     * Get a cache for a directory.
+     * @param key the directory key, including the index prefix and any grouping keys
+     * @param sequenceNumber the sequence number of the directory as read in the current transaction
+     * @param useDiskCache whether the blocks of the directory may be kept on local disk, if there is a disk cache;
+     * this is only taken into account when the cache for this sequence number is created
+     * @param clusterFile the cluster file of the database holding the directory or {@code null} for the default one,
+     * which keeps the blocks of directories of different databases with the same key apart on disk
+     * @return a shared cache of {@code null} if the sequence number is too old
+     */
+    @Nullable
+    public FDBDirectorySharedCache getCache(@Nonnull Tuple key, long sequenceNumber, boolean useDiskCache,
+                                            @Nullable String clusterFile) {
         FDBDirectorySharedCache storedCache = caches.compute(key, (ckey, cache) -> {
             if (cache == null || cache.getSequenceNumber() < sequenceNumber) {
                 cache = new FDBDirectorySharedCache(ckey, sequenceNumber,
-                        maximumSize, concurrencyLevel, initialCapacity);
+                        maximumSize, concurrencyLevel, initialCapacity,
+                        offHeapBlockCache, useDiskCache ? diskCache : null, subspace, clusterFile);
             }
             return cache;
         });
@@ -133,6 +176,8 @@ public class FDBDirectorySharedCacheManager {
         private int maximumSize = 1024;
         private int concurrencyLevel = 16;
         private int initialCapacity = 128;
+        private FDBDirectoryOffHeapBlockCache offHeapBlockCache;
+        private FDBDirectoryDiskCache diskCache;
 
         protected Builder() {
         }
@@ -157,8 +202,31 @@ public class FDBDirectorySharedCacheManager {
             return this;
         }
 
+        /**
+         * Set an off-heap cache to keep blocks in instead of the heap. The off-heap cache is meant to be shared by all
+         * managers of the process, which then share its byte budget; {@link #setMaximumSize} is not used in that case.
+         * @param offHeapBlockCache the off-heap cache or {@code null} to keep blocks on the heap
+         * @return this builder
+         */
+        public Builder setOffHeapBlockCache(final FDBDirectoryOffHeapBlockCache offHeapBlockCache) {
+            this.offHeapBlockCache = offHeapBlockCache;
+            return this;
+        }
+
+        /**
+         * Set a cache on local disk that backs the in-memory caches. The disk cache can be shared by several managers
+         * as long as each of them has a distinct subspace.
+         * @param diskCache the disk cache or {@code null} to only cache blocks in memory
+         * @return this builder
+         */
+        public Builder setDiskCache(final FDBDirectoryDiskCache diskCache) {
+            this.diskCache = diskCache;
+            return this;
+        }
+
         public FDBDirectorySharedCacheManager build() {
-            return new FDBDirectorySharedCacheManager(subspace, maximumSize, concurrencyLevel, initialCapacity);
+            return new FDBDirectorySharedCacheManager(subspace, maximumSize, concurrencyLevel, initialCapacity,
+                    offHeapBlockCache, diskCache);
         }
     }
 }
@@ -47,6 +47,14 @@ import static com.google.common.base.Verify.verify;
 @API(API.Status.EXPERIMENTAL)
 public final class FDBIndexInput extends IndexInput {
     private static final Logger LOGGER = LoggerFactory.getLogger(FDBIndexInput.class);
+    /*
+     * Number of consecutive blocks that have to be read before the input starts reading ahead
+     */
+    private static final int SEQUENTIAL_BLOCKS_BEFORE_READ_AHEAD = 2;
+    /*
+     * Size of the first read-ahead window; each subsequent window doubles up to the directory's maximum
+     */
+    private static final int INITIAL_READ_AHEAD_BLOCKS = 4;
     private final String fileName;
     private final FDBDirectory fdbDirectory;
     private final CompletableFuture<FDBLuceneFileReference> reference;
@@ -58,6 +66,12 @@ public final class FDBIndexInput extends IndexInput {
     private int currentBlock;
     private final long initialOffset;
     private int numberOfSeeks = 0;
+    private int sequentialBlocks = 0;
+    private int readAheadWindow = 0;
+    /*
+     * First block (including any slice offset) that has not been requested by a read-ahead yet
+     */
+    private int readAheadEnd = 0;
     // These actual values are added to remove a hotspot during byte reads.
     private byte[] actualCurrentData;
     private FDBLuceneFileReference actualReference;
@@ -141,6 +155,58 @@ public final class FDBIndexInput extends IndexInput {
         this.actualCurrentData = null;
     }
 
+    /**
+     * Moves on to the block following the current block, reading ahead if the input is being read sequentially.
+     */
+    private void readNextBlock() {
+        currentBlock++;
+        numberOfSeeks++;
+        readAheadIfSequential();
+        readBlock();
+    }
+
+    /**
+     * Issues a single range read for the blocks following the current block once enough consecutive blocks have been
+     * read. The read-ahead window starts at {@link #INITIAL_READ_AHEAD_BLOCKS} and doubles every time the reader has
+     * consumed half of the previous window, up to {@link FDBDirectory#getReadAheadMaximumBlocks()}. A non-sequential
+     * seek resets the window.
+     */
+    private void readAheadIfSequential() {
+        final int maximumBlocks = fdbDirectory.getReadAheadMaximumBlocks();
+        if (maximumBlocks <= 0 || ++sequentialBlocks < SEQUENTIAL_BLOCKS_BEFORE_READ_AHEAD) {
+            return;
+        }
+        if (currentBlock + readAheadWindow / 2 < readAheadEnd) {
+            // still well within the blocks requested by the previous read-ahead
+            return;
+        }
+        readAheadWindow = readAheadWindow == 0
+                          ? Math.min(INITIAL_READ_AHEAD_BLOCKS, maximumBlocks)
+                          : Math.min(readAheadWindow * 2, maximumBlocks);
+        final long length = length();
+        if (length == 0L) {
+            return;
+        }
+        final int endBlock = Math.min(currentBlock + readAheadWindow, getBlock(length - 1) + 1);
+        final int beginBlock = Math.max(currentBlock, readAheadEnd);
+        if (endBlock > beginBlock) {
+            if (LOGGER.isTraceEnabled()) {
+                LOGGER.trace(getLogMessage("read ahead",
+                        LuceneLogMessageKeys.CURRENT_BLOCK, currentBlock,
+                        LuceneLogMessageKeys.BLOCK_NUMBER, beginBlock,
+                        LuceneLogMessageKeys.LENGTH, endBlock - beginBlock));
+            }
+            fdbDirectory.readAhead(this, fileName, reference, beginBlock, endBlock - beginBlock);
+            readAheadEnd = endBlock;
+        }
+    }
+
+    private void resetReadAhead() {
+        sequentialBlocks = 0;
+        readAheadWindow = 0;
+        readAheadEnd = 0;
+    }
+
 
     /**
      *
@@ -176,9 +242,17 @@ public final class FDBIndexInput extends IndexInput {
     @Override
     public void seek(final long offset) throws IOException {
         try {
-            if (currentBlock != getBlock(offset)) {
+            final int block = getBlock(offset);
+            if (currentBlock != block) {
                 this.position = offset;
-                this.currentBlock = getBlock(position);
+                if (block == currentBlock + 1) {
+                    // skipping to the next block still counts as reading sequentially
+                    this.currentBlock = block;
+                    readAheadIfSequential();
+                } else {
+                    this.currentBlock = block;
+                    resetReadAhead();
+                }
                 numberOfSeeks++;
                 if (LOGGER.isTraceEnabled()) {
                     LOGGER.trace(getLogMessage("actual seek",
@@ -276,9 +350,7 @@ public final class FDBIndexInput extends IndexInput {
             throw LuceneExceptions.toIoException(ex, null);
         } finally {
             if (absolutePosition() % fileReference.getBlockSize() == 0) {
-                currentBlock++;
-                numberOfSeeks++;
-                readBlock();
+                readNextBlock();
             }
         }
     }
@@ -308,17 +380,15 @@ public final class FDBIndexInput extends IndexInput {
                 bytesRead += toRead;
                 position += toRead;
                 if (absolutePosition() % blockSize == 0) {
-                    currentBlock++;
-                    numberOfSeeks++;
                     if (LOGGER.isTraceEnabled()) {
                         LOGGER.trace(getLogMessage("hard seek",
-                                LuceneLogMessageKeys.CURRENT_BLOCK, currentBlock,
+                                LuceneLogMessageKeys.CURRENT_BLOCK, currentBlock + 1,
                                 LuceneLogMessageKeys.OFFSET, offset,
                                 LuceneLogMessageKeys.LENGTH, length,
                                 LuceneLogMessageKeys.POSITION, position,
                                 LuceneLogMessageKeys.INITIAL_OFFSET, initialOffset));
                     }
-                    readBlock();
+                    readNextBlock();
                 }
             }
         } catch (RecordCoreException ex) {
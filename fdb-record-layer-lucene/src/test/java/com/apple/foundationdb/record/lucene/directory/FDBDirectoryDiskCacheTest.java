@@ -0,0 +1,201 @@
+/*
+ * FDBDirectoryDiskCacheTest.java
+ *
+ * This source file is part of the FoundationDB open source project
+ *
+ * Copyright 2015-2026 Apple Inc. and the FoundationDB project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.apple.foundationdb.record.lucene.directory;
+
+import com.apple.foundationdb.tuple.Tuple;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for {@link FDBDirectoryDiskCache}.
+ */
+class FDBDirectoryDiskCacheTest {
+    private static final int BLOCK_SIZE = FDBDirectory.DEFAULT_BLOCK_SIZE;
+
+    @TempDir
+    Path tempDir;
+
+    private final Random random = new Random();
+
+    @Test
+    void putAndGet() throws IOException {
+        final FDBDirectoryDiskCache diskCache = new FDBDirectoryDiskCache(tempDir, 1_000_000, BLOCK_SIZE);
+        final String fileKey = FDBDirectoryDiskCache.fileKey(null, null, Tuple.from("index"), 1L, 7L);
+        final byte[] block3 = randomBlock(BLOCK_SIZE);
+        final byte[] block5 = randomBlock(BLOCK_SIZE / 3);
+
+        assertNull(diskCache.getBlockIfPresent(fileKey, 3));
+        diskCache.putBlockIfAbsent(fileKey, 3, block3);
+        diskCache.putBlockIfAbsent(fileKey, 5, block5);
+        assertArrayEquals(block3, diskCache.getBlockIfPresent(fileKey, 3));
+        assertArrayEquals(block5, diskCache.getBlockIfPresent(fileKey, 5));
+        // the hole in between is not a block
+        assertNull(diskCache.getBlockIfPresent(fileKey, 4));
+        assertNull(diskCache.getBlockIfPresent(fileKey, 6));
+
+        // blocks are never overwritten
+        diskCache.putBlockIfAbsent(fileKey, 3, randomBlock(BLOCK_SIZE));
+        assertArrayEquals(block3, diskCache.getBlockIfPresent(fileKey, 3));
+
+        // a different sequence number is a different file
+        assertNull(diskCache.getBlockIfPresent(FDBDirectoryDiskCache.fileKey(null, null, Tuple.from("index"), 2L, 7L), 3));
+        // as is the same directory of a different database
+        assertNull(diskCache.getBlockIfPresent(FDBDirectoryDiskCache.fileKey("/other/fdb.cluster", null, Tuple.from("index"), 1L, 7L), 3));
+    }
+
+    @Test
+    void longDirectoryKey() throws IOException {
+        final FDBDirectoryDiskCache diskCache = new FDBDirectoryDiskCache(tempDir, 1_000_000, BLOCK_SIZE);
+        final String longKey = "k".repeat(1000);
+        final String fileKey = FDBDirectoryDiskCache.fileKey(null, null, Tuple.from("index", longKey), 1L, 7L);
+        assertTrue(fileKey.length() < 100);
+        final byte[] block = randomBlock(BLOCK_SIZE);
+        diskCache.putBlockIfAbsent(fileKey, 0, block);
+        assertArrayEquals(block, diskCache.getBlockIfPresent(fileKey, 0));
+        // keys that only differ after any prefix that might have been kept are still different files
+        assertNull(diskCache.getBlockIfPresent(FDBDirectoryDiskCache.fileKey(null, null, Tuple.from("index", longKey + "x"), 1L, 7L), 0));
+    }
+
+    @Test
+    void survivesRestart() throws IOException {
+        final String fileKey = FDBDirectoryDiskCache.fileKey(null, null, Tuple.from("index", 1L), 10L, 1L);
+        final byte[] block = randomBlock(BLOCK_SIZE);
+        new FDBDirectoryDiskCache(tempDir, 1_000_000, BLOCK_SIZE).putBlockIfAbsent(fileKey, 0, block);
+
+        final FDBDirectoryDiskCache reopened = new FDBDirectoryDiskCache(tempDir, 1_000_000, BLOCK_SIZE);
+        assertTrue(reopened.getTotalBytes() > 0);
+        assertArrayEquals(block, reopened.getBlockIfPresent(fileKey, 0));
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedFiles() throws IOException {
+        // room for a little more than two blocks
+        final FDBDirectoryDiskCache diskCache = new FDBDirectoryDiskCache(tempDir, 2L * BLOCK_SIZE + 100, BLOCK_SIZE);
+        final String fileKey1 = FDBDirectoryDiskCache.fileKey(null, null, Tuple.from("index"), 1L, 1L);
+        final String fileKey2 = FDBDirectoryDiskCache.fileKey(null, null, Tuple.from("index"), 1L, 2L);
+        final String fileKey3 = FDBDirectoryDiskCache.fileKey(null, null, Tuple.from("index"), 1L, 3L);
+        diskCache.putBlockIfAbsent(fileKey1, 0, randomBlock(BLOCK_SIZE));
+        diskCache.putBlockIfAbsent(fileKey2, 0, randomBlock(BLOCK_SIZE));
+        assertNotNull(diskCache.getBlockIfPresent(fileKey1, 0));
+        diskCache.putBlockIfAbsent(fileKey3, 0, randomBlock(BLOCK_SIZE));
+
+        assertTrue(diskCache.containsFile(fileKey1));
+        assertFalse(diskCache.containsFile(fileKey2));
+        assertTrue(diskCache.containsFile(fileKey3));
+        assertNull(diskCache.getBlockIfPresent(fileKey2, 0));
+        assertTrue(diskCache.getTotalBytes() <= diskCache.getMaximumBytes());
+    }
+
+    @Test
+    void corruptBlockIsAbsent() throws IOException {
+        final FDBDirectoryDiskCache diskCache = new FDBDirectoryDiskCache(tempDir, 1_000_000, BLOCK_SIZE);
+        final String fileKey = FDBDirectoryDiskCache.fileKey(null, null, Tuple.from("index"), 1L, 1L);
+        diskCache.putBlockIfAbsent(fileKey, 0, randomBlock(BLOCK_SIZE));
+        try (FileChannel channel = FileChannel.open(tempDir.resolve(fileKey + ".blocks"), StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[] {0x55, 0x55, 0x55, 0x55}), 100);
+        }
+        assertNull(diskCache.getBlockIfPresent(fileKey, 0));
+    }
+
+    @Test
+    void sharedCacheUsesDiskCache() throws IOException {
+        final FDBDirectoryDiskCache diskCache = new FDBDirectoryDiskCache(tempDir, 1_000_000, BLOCK_SIZE);
+        final FDBDirectorySharedCacheManager manager = FDBDirectorySharedCacheManager.newBuilder()
+                .setDiskCache(diskCache)
+                .build();
+        final byte[] block = randomBlock(BLOCK_SIZE);
+        final FDBDirectorySharedCache sharedCache = manager.getCache(Tuple.from("index"), 5L);
+        assertNotNull(sharedCache);
+        sharedCache.putBlockIfAbsent(3L, 0, block);
+
+        // a new manager, e.g. after a restart, finds the block on disk
+        final FDBDirectorySharedCache restartedCache = FDBDirectorySharedCacheManager.newBuilder()
+                .setDiskCache(new FDBDirectoryDiskCache(tempDir, 1_000_000, BLOCK_SIZE))
+                .build()
+                .getCache(Tuple.from("index"), 5L);
+        assertNotNull(restartedCache);
+        assertArrayEquals(block, restartedCache.getBlockIfPresent(3L, 0));
+
+        // directories that must not use the disk cache do not
+        final FDBDirectorySharedCache memoryOnlyCache = manager.getCache(Tuple.from("other"), 5L, false, null);
+        assertNotNull(memoryOnlyCache);
+        assertNull(memoryOnlyCache.getDiskCache());
+        assertEquals(diskCache, sharedCache.getDiskCache());
+    }
+
+    @Test
+    void concurrentPutAndGet() throws Exception {
+        // room for about half the blocks, so that files are evicted while others are being written and read
+        final int blockCount = 64;
+        final FDBDirectoryDiskCache diskCache = new FDBDirectoryDiskCache(tempDir, blockCount / 2L * BLOCK_SIZE, BLOCK_SIZE);
+        final byte[][] blocks = new byte[blockCount][];
+        for (int i = 0; i < blockCount; i++) {
+            blocks[i] = randomBlock(BLOCK_SIZE);
+        }
+        final ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            final List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < blockCount * 4; i++) {
+                final int blockNumber = i % blockCount;
+                final String fileKey = FDBDirectoryDiskCache.fileKey(null, null, Tuple.from("index"), 1L, blockNumber % 8);
+                futures.add(executor.submit(() -> {
+                    diskCache.putBlockIfAbsent(fileKey, blockNumber, blocks[blockNumber]);
+                    final byte[] block = diskCache.getBlockIfPresent(fileKey, blockNumber);
+                    // absent if evicted in the meantime, but never wrong
+                    if (block != null) {
+                        assertArrayEquals(blocks[blockNumber], block);
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertTrue(diskCache.getTotalBytes() <= diskCache.getMaximumBytes());
+    }
+
+    private byte[] randomBlock(int size) {
+        final byte[] block = new byte[size];
+        random.nextBytes(block);
+        return block;
+    }
+}
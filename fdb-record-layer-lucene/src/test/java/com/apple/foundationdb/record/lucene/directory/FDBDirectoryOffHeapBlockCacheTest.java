@@ -0,0 +1,139 @@
+/*
+ * FDBDirectoryOffHeapBlockCacheTest.java
+ *
+ * This source file is part of the FoundationDB open source project
+ *
+ * Copyright 2015-2026 Apple Inc. and the FoundationDB project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.apple.foundationdb.record.lucene.directory;
+
+import com.apple.foundationdb.tuple.Tuple;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for {@link FDBDirectoryOffHeapBlockCache}.
+ */
+class FDBDirectoryOffHeapBlockCacheTest {
+    private static final int BLOCK_SIZE = FDBDirectory.DEFAULT_BLOCK_SIZE;
+
+    private final Random random = new Random();
+
+    @Test
+    void putAndGet() {
+        final FDBDirectoryOffHeapBlockCache cache = new FDBDirectoryOffHeapBlockCache(100L * BLOCK_SIZE, BLOCK_SIZE);
+        final long owner = cache.newOwner();
+        final byte[] block0 = randomBlock(BLOCK_SIZE);
+        final byte[] block1 = randomBlock(BLOCK_SIZE / 3);
+
+        assertNull(cache.get(owner, 1L, 0));
+        assertEquals(0, cache.put(owner, 1L, 0, block0));
+        assertEquals(0, cache.put(owner, 1L, 1, block1));
+        assertEquals(FDBDirectoryOffHeapBlockCache.ALREADY_PRESENT, cache.put(owner, 1L, 0, randomBlock(BLOCK_SIZE)));
+        assertArrayEquals(block0, cache.get(owner, 1L, 0));
+        assertArrayEquals(block1, cache.get(owner, 1L, 1));
+        assertNull(cache.get(owner, 2L, 0));
+
+        assertEquals(2, cache.getBlockCount());
+        assertEquals(2L, cache.getHitCount());
+        assertEquals(2L, cache.getMissCount());
+        assertEquals(0L, cache.getEvictionCount());
+        // only the slab that is in use has been allocated
+        assertTrue(cache.getAllocatedBytes() <= cache.getMaximumBytes());
+    }
+
+    @Test
+    void ownersAreIsolated() {
+        final FDBDirectoryOffHeapBlockCache cache = new FDBDirectoryOffHeapBlockCache(10L * BLOCK_SIZE, BLOCK_SIZE);
+        final long owner1 = cache.newOwner();
+        final long owner2 = cache.newOwner();
+        final byte[] block = randomBlock(BLOCK_SIZE);
+        cache.put(owner1, 1L, 0, block);
+        assertArrayEquals(block, cache.get(owner1, 1L, 0));
+        assertNull(cache.get(owner2, 1L, 0));
+    }
+
+    @Test
+    void evictsWithinByteBudget() {
+        final int capacity = 8;
+        final FDBDirectoryOffHeapBlockCache cache = new FDBDirectoryOffHeapBlockCache((long)capacity * BLOCK_SIZE, BLOCK_SIZE);
+        final long owner = cache.newOwner();
+        final byte[][] blocks = new byte[capacity * 3][];
+        int evicted = 0;
+        for (int i = 0; i < blocks.length; i++) {
+            blocks[i] = randomBlock(BLOCK_SIZE);
+            evicted += cache.put(owner, 1L, i, blocks[i]);
+            // keep block 0 hot, so that the clock keeps giving it a second chance
+            assertArrayEquals(blocks[0], cache.get(owner, 1L, 0));
+        }
+        assertEquals(blocks.length - capacity, evicted);
+        assertEquals(evicted, cache.getEvictionCount());
+        assertEquals(capacity, cache.getBlockCount());
+        assertEquals((long)capacity * BLOCK_SIZE, cache.getAllocatedBytes());
+        assertArrayEquals(blocks[blocks.length - 1], cache.get(owner, 1L, blocks.length - 1));
+        for (int i = 0; i < blocks.length; i++) {
+            final byte[] cached = cache.get(owner, 1L, i);
+            if (cached != null) {
+                assertArrayEquals(blocks[i], cached);
+            }
+        }
+    }
+
+    @Test
+    void oversizedBlocksAreNotCached() {
+        final FDBDirectoryOffHeapBlockCache cache = new FDBDirectoryOffHeapBlockCache(10L * BLOCK_SIZE, BLOCK_SIZE);
+        final long owner = cache.newOwner();
+        assertEquals(0, cache.put(owner, 1L, 0, randomBlock(BLOCK_SIZE + 1)));
+        assertNull(cache.get(owner, 1L, 0));
+    }
+
+    @Test
+    void sharedCacheUsesOffHeapBlockCache() {
+        final FDBDirectoryOffHeapBlockCache offHeapBlockCache = new FDBDirectoryOffHeapBlockCache(10L * BLOCK_SIZE, BLOCK_SIZE);
+        final FDBDirectorySharedCacheManager manager1 = FDBDirectorySharedCacheManager.newBuilder()
+                .setOffHeapBlockCache(offHeapBlockCache)
+                .build();
+        final FDBDirectorySharedCacheManager manager2 = FDBDirectorySharedCacheManager.newBuilder()
+                .setOffHeapBlockCache(offHeapBlockCache)
+                .build();
+        final FDBDirectorySharedCache sharedCache1 = manager1.getCache(Tuple.from("index"), 5L);
+        final FDBDirectorySharedCache sharedCache2 = manager2.getCache(Tuple.from("index"), 5L);
+        assertNotNull(sharedCache1);
+        assertNotNull(sharedCache2);
+        assertSame(offHeapBlockCache, sharedCache1.getOffHeapBlockCache());
+
+        final byte[] block = randomBlock(BLOCK_SIZE);
+        assertEquals(0, sharedCache1.putBlockIfAbsent(3L, 0, block));
+        assertArrayEquals(block, sharedCache1.getBlockIfPresent(3L, 0));
+        // the budget is shared, but the blocks are not
+        assertNull(sharedCache2.getBlockIfPresent(3L, 0));
+        assertEquals(1, offHeapBlockCache.getBlockCount());
+    }
+
+    private byte[] randomBlock(int size) {
+        final byte[] block = new byte[size];
+        random.nextBytes(block);
+        return block;
+    }
+}
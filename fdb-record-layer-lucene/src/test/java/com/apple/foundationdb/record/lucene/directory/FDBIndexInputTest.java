@@ -20,6 +20,7 @@
 
 package com.apple.foundationdb.record.lucene.directory;
 
+import com.apple.foundationdb.record.lucene.LuceneEvents;
 import com.apple.test.Tags;
 import org.junit.jupiter.api.Tag;
 import org.junit.jupiter.api.Test;
@@ -28,6 +29,7 @@ import java.nio.ByteBuffer;
 
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 /**
  * Test to FDBIndexInput functionality.
@@ -79,4 +81,23 @@ public class FDBIndexInputTest extends FDBDirectoryBaseTest {
         input.readBytes(actual, 0, actual.length);
         assertEquals(actual.length, expected.length - offset);
     }
+
+    @Test
+    void testSequentialReadReadsAhead() throws Exception {
+        final int numBlocks = 64;
+        FDBIndexOutput output = new FDBIndexOutput(FILE_NAME, directory);
+        byte[] expected = new byte[numBlocks * FDBDirectory.DEFAULT_BLOCK_SIZE];
+        random.nextBytes(expected);
+        output.writeBytes(expected, expected.length);
+        output.close();
+        FDBIndexInput input = new FDBIndexInput(FILE_NAME, directory);
+        byte[] actual = new byte[expected.length];
+        for (int offset = 0; offset < expected.length; offset += 100) {
+            input.readBytes(actual, offset, Math.min(100, expected.length - offset));
+        }
+        assertArrayEquals(expected, actual);
+        // only the blocks read before the access pattern is recognized as sequential are read one by one
+        assertTrue(timer.getCount(LuceneEvents.Events.LUCENE_FDB_READ_AHEAD) > 0);
+        assertTrue(timer.getCount(LuceneEvents.Events.LUCENE_FDB_READ_BLOCK) < numBlocks / 8);
+    }
 }
@@ -257,6 +257,28 @@ public final class Options {
          * A boolean indicating whether to (attempt to) compress records when saving.
          */
         COMPRESS_WHEN_SERIALIZING,
+
+        /**
+         * A boolean indicating whether result sets sent to a JDBC client encode their rows column by column rather
+         * than cell by cell, which is cheaper to produce and to read for large results.
+         * Scope: Connection
+         */
+        COLUMNAR_RESULT_ENCODING,
+
+        /**
+         * A boolean indicating whether a JDBC client in auto-commit mode has the rows of a query streamed back in
+         * batches as the result set is consumed, rather than receiving the whole result in a single response. The
+         * update count of a streamed query is always -1, as the number of rows is not known up front.
+         * Scope: Connection, Query
+         */
+        STREAM_RESULTS,
+
+        /**
+         * A boolean indicating whether the planner may implement equi-joins as hash joins, which read the smaller
+         * side into memory. Only sides whose number of rows is known to fit are used.
+         * Scope: Connection
+         */
+        PLAN_HASH_JOINS,
     }
 
     public enum IndexFetchMethod {
@@ -300,6 +322,9 @@ public final class Options {
         builder.put(Name.ENCRYPT_WHEN_SERIALIZING, false);
         builder.put(Name.ENCRYPTION_KEY_PASSWORD, "");
         builder.put(Name.COMPRESS_WHEN_SERIALIZING, true);
+        builder.put(Name.COLUMNAR_RESULT_ENCODING, false);
+        builder.put(Name.STREAM_RESULTS, false);
+        builder.put(Name.PLAN_HASH_JOINS, false);
         OPTIONS_DEFAULT_VALUES = builder.build();
     }
 
@@ -560,6 +585,9 @@ public final class Options {
         data.put(Name.ENCRYPTION_KEY_ENTRY_LIST, List.of(new OrderedCollectionContract<>(TypeContract.stringType())));
         data.put(Name.ENCRYPTION_KEY_PASSWORD, List.of(TypeContract.nullableStringType()));
         data.put(Name.COMPRESS_WHEN_SERIALIZING, List.of(TypeContract.booleanType()));
+        data.put(Name.COLUMNAR_RESULT_ENCODING, List.of(TypeContract.booleanType()));
+        data.put(Name.STREAM_RESULTS, List.of(TypeContract.booleanType()));
+        data.put(Name.PLAN_HASH_JOINS, List.of(TypeContract.booleanType()));
 
         return Collections.unmodifiableMap(data);
     }
@@ -65,6 +65,9 @@ public class OptionsTestHelper {
         builder = builder.withOption(Options.Name.ENCRYPTION_KEY_PASSWORD, "mypass");
         builder = builder.withOption(Options.Name.COMPRESS_WHEN_SERIALIZING, false);
         builder = builder.withOption(Options.Name.PLAN_RIGHT_DEEP, true);
+        builder = builder.withOption(Options.Name.COLUMNAR_RESULT_ENCODING, true);
+        builder = builder.withOption(Options.Name.STREAM_RESULTS, true);
+        builder = builder.withOption(Options.Name.PLAN_HASH_JOINS, true);
         Options options = builder.build();
         for (Options.Name name : Options.Name.values()) {
             if (name != Options.Name.CONTINUATION) {    // See above on why CONTINUATION was skipped.
@@ -484,7 +484,10 @@ public final class PlanGenerator {
     }
 
     /**
-     * Create a new instance of the plan generator for a given store.
+     * Create a new instance of the plan generator for a given store. Unlike
+     * {@link com.apple.foundationdb.record.provider.foundationdb.FDBRecordStore#getCascadesPlannerAsync()}, the
+     * planner is not given the store's index statistics, since the plans that it generates are cached and shared
+     * by all stores with the same schema.
      *
      * @param cache An optional instance of the query plan cache
      * @param planContext The context related for planning the query and looking it in the cache
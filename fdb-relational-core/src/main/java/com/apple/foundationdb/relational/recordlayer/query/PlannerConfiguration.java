@@ -36,6 +36,7 @@ import java.util.Optional;
 import java.util.Set;
 
 import static com.apple.foundationdb.relational.api.Options.Name.DISABLE_PLANNER_REWRITING;
+import static com.apple.foundationdb.relational.api.Options.Name.PLAN_HASH_JOINS;
 import static com.apple.foundationdb.relational.api.Options.Name.PLAN_RIGHT_DEEP;
 
 /**
@@ -64,6 +65,8 @@ public final class PlannerConfiguration {
 
     private final boolean planRightDeep;
 
+    private final boolean planHashJoins;
+
     @Nonnull
     private final RecordQueryPlannerConfiguration recordQueryPlannerConfiguration;
 
@@ -73,12 +76,14 @@ public final class PlannerConfiguration {
                                  @Nonnull final IndexFetchMethod indexFetchMethod,
                                  @Nonnull final Set<String> disabledPlannerRewriteRules,
                                  boolean disabledAllPlannerRules,
-                                 boolean planRightDeep) {
+                                 boolean planRightDeep,
+                                 boolean planHashJoins) {
         this.readableIndexes = readableIndexes;
         this.indexFetchMethod = indexFetchMethod;
         this.disabledAllPlannerRules = disabledAllPlannerRules;
         this.disabledPlannerRewriteRules = ImmutableSet.copyOf(disabledPlannerRewriteRules);
         this.planRightDeep = planRightDeep;
+        this.planHashJoins = planHashJoins;
         this.memoizedHash = computeHash();
         this.recordQueryPlannerConfiguration = buildRecordQueryPlannerConfiguration();
     }
@@ -118,7 +123,7 @@ public final class PlannerConfiguration {
         if (this.planRightDeep == newPlanRightDeep) {
             return this;
         }
-        return new PlannerConfiguration(readableIndexes, indexFetchMethod, disabledPlannerRewriteRules, disabledAllPlannerRules, newPlanRightDeep);
+        return new PlannerConfiguration(readableIndexes, indexFetchMethod, disabledPlannerRewriteRules, disabledAllPlannerRules, newPlanRightDeep, planHashJoins);
     }
 
     @Override
@@ -134,11 +139,12 @@ public final class PlannerConfiguration {
                 && this.indexFetchMethod.equals(that.indexFetchMethod)
                 && this.disabledAllPlannerRules == that.disabledAllPlannerRules
                 && this.disabledPlannerRewriteRules.equals(that.disabledPlannerRewriteRules)
-                && this.planRightDeep == that.planRightDeep;
+                && this.planRightDeep == that.planRightDeep
+                && this.planHashJoins == that.planHashJoins;
     }
 
     private int computeHash() {
-        return Objects.hash(readableIndexes, indexFetchMethod, disabledAllPlannerRules, disabledPlannerRewriteRules, planRightDeep);
+        return Objects.hash(readableIndexes, indexFetchMethod, disabledAllPlannerRules, disabledPlannerRewriteRules, planRightDeep, planHashJoins);
     }
 
     @Override
@@ -157,6 +163,7 @@ public final class PlannerConfiguration {
             configurationBuilder.disableRewritingRules();
         }
         configurationBuilder.setJoinRightDeep(planRightDeep);
+        configurationBuilder.setPlanHashJoins(planHashJoins);
         return configurationBuilder.build();
     }
 
@@ -166,7 +173,7 @@ public final class PlannerConfiguration {
         final var disabledPlannerRules = ImmutableSet.copyOf(options.<Collection<String>>getOption(Options.Name.DISABLED_PLANNER_RULES));
         return new PlannerConfiguration(readableIndexesMaybe, OptionsUtils.getIndexFetchMethod(options),
                 disabledPlannerRules, options.getOption(DISABLE_PLANNER_REWRITING),
-                options.getOption(PLAN_RIGHT_DEEP));
+                options.getOption(PLAN_RIGHT_DEEP), options.getOption(PLAN_HASH_JOINS));
     }
 
     @Nonnull
@@ -0,0 +1,262 @@
+/*
+ * ColumnarRowsBuilder.java
+ *
+ * This source file is part of the FoundationDB open source project
+ *
+ * Copyright 2015-2026 Apple Inc. and the FoundationDB project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.apple.foundationdb.relational.jdbc;
+
+import com.apple.foundationdb.annotation.API;
+import com.apple.foundationdb.linear.RealVector;
+import com.apple.foundationdb.relational.api.RelationalStruct;
+import com.apple.foundationdb.relational.api.StructMetaData;
+import com.apple.foundationdb.relational.api.metadata.DataType;
+import com.apple.foundationdb.relational.jdbc.grpc.v1.BooleanValues;
+import com.apple.foundationdb.relational.jdbc.grpc.v1.BytesValues;
+import com.apple.foundationdb.relational.jdbc.grpc.v1.ColumnVector;
+import com.apple.foundationdb.relational.jdbc.grpc.v1.ColumnarRows;
+import com.apple.foundationdb.relational.jdbc.grpc.v1.DictionaryStringValues;
+import com.apple.foundationdb.relational.jdbc.grpc.v1.DoubleValues;
+import com.apple.foundationdb.relational.jdbc.grpc.v1.FloatValues;
+import com.apple.foundationdb.relational.jdbc.grpc.v1.IntValues;
+import com.apple.foundationdb.relational.jdbc.grpc.v1.LongValues;
+import com.apple.foundationdb.relational.jdbc.grpc.v1.UuidValues;
+import com.apple.foundationdb.relational.jdbc.grpc.v1.column.Column;
+import com.apple.foundationdb.relational.jdbc.grpc.v1.column.ListColumn;
+import com.google.protobuf.ByteString;
+
+import javax.annotation.Nonnull;
+import java.sql.SQLException;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Accumulates rows into a {@link ColumnarRows}, the column-major encoding of the rows of a result set. Scalar columns
+ * are kept as typed vectors, with strings dictionary encoded, so that no protobuf message has to be created per cell;
+ * structs and arrays are still encoded cell by cell.
+ * @see RelationalResultSetFacade for the reading side
+ */
+@API(API.Status.EXPERIMENTAL)
+public class ColumnarRowsBuilder {
+    private final int leadingPhantomCount;
+    @Nonnull
+    private final ColumnVectorBuilder[] columns;
+    private int rowCount;
+    private long estimatedBytes;
+
+    /**
+     * Create a builder for rows of the given type.
+     * @param metaData the metadata of the rows, e.g. that of the result set they are read from
+     * @throws SQLException if the metadata cannot be read
+     */
+    public ColumnarRowsBuilder(@Nonnull StructMetaData metaData) throws SQLException {
+        final List<DataType.StructType.Field> fields = metaData.getRelationalDataType().getFields();
+        this.leadingPhantomCount = metaData.getLeadingPhantomColumnCount();
+        this.columns = new ColumnVectorBuilder[Math.max(0, fields.size() - leadingPhantomCount)];
+        for (int i = 0; i < columns.length; i++) {
+            columns[i] = new ColumnVectorBuilder(fields.get(i + leadingPhantomCount));
+        }
+    }
+
+    /**
+     * Add the current row.
+     * @param row the row to add, e.g. a result set positioned on a row
+     * @throws SQLException if the row cannot be read
+     */
+    public void addRow(@Nonnull RelationalStruct row) throws SQLException {
+        for (int i = 0; i < columns.length; i++) {
+            estimatedBytes += columns[i].add(row, i + leadingPhantomCount + 1, rowCount);
+        }
+        rowCount++;
+    }
+
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * Get a rough estimate of the serialized size of the rows added so far.
+     * @return the estimated number of bytes
+     */
+    public long getEstimatedBytes() {
+        return estimatedBytes;
+    }
+
+    @Nonnull
+    public ColumnarRows build() {
+        final ColumnarRows.Builder builder = ColumnarRows.newBuilder().setRowCount(rowCount);
+        for (ColumnVectorBuilder column : columns) {
+            builder.addColumn(column.build());
+        }
+        return builder.build();
+    }
+
+    /**
+     * Builds the vector of one column.
+     */
+    private static final class ColumnVectorBuilder {
+        @Nonnull
+        private final DataType.StructType.Field field;
+        @Nonnull
+        private final BitSet nulls = new BitSet();
+        @Nonnull
+        private final ColumnVector.Builder vector = ColumnVector.newBuilder();
+        @Nonnull
+        private final Map<String, Integer> dictionary = new HashMap<>();
+
+        ColumnVectorBuilder(@Nonnull DataType.StructType.Field field) {
+            this.field = field;
+        }
+
+        /**
+         * Add the value of this column of a row.
+         * @return the estimated number of bytes added
+         */
+        long add(@Nonnull RelationalStruct row, int oneBasedPosition, int rowIndex) throws SQLException {
+            switch (field.getType().getCode()) {
+                case INTEGER: {
+                    final int value = row.getInt(oneBasedPosition);
+                    vector.getIntValuesBuilder().addValue(markNull(row.wasNull(), rowIndex) ? 0 : value);
+                    return Integer.BYTES;
+                }
+                case LONG: {
+                    final long value = row.getLong(oneBasedPosition);
+                    vector.getLongValuesBuilder().addValue(markNull(row.wasNull(), rowIndex) ? 0L : value);
+                    return Long.BYTES;
+                }
+                case FLOAT: {
+                    final float value = row.getFloat(oneBasedPosition);
+                    vector.getFloatValuesBuilder().addValue(markNull(row.wasNull(), rowIndex) ? 0.0f : value);
+                    return Float.BYTES;
+                }
+                case DOUBLE: {
+                    final double value = row.getDouble(oneBasedPosition);
+                    vector.getDoubleValuesBuilder().addValue(markNull(row.wasNull(), rowIndex) ? 0.0 : value);
+                    return Double.BYTES;
+                }
+                case BOOLEAN: {
+                    final boolean value = row.getBoolean(oneBasedPosition);
+                    vector.getBooleanValuesBuilder().addValue(!markNull(row.wasNull(), rowIndex) && value);
+                    return 1;
+                }
+                case STRING:
+                case ENUM: {
+                    final Object value = row.getObject(oneBasedPosition);
+                    final DictionaryStringValues.Builder strings = vector.getStringValuesBuilder();
+                    if (markNull(row.wasNull() || value == null, rowIndex)) {
+                        strings.addIndex(0);
+                        return 1;
+                    }
+                    final String string = (String)value;
+                    final int size = dictionary.size();
+                    final int index = dictionary.computeIfAbsent(string, s -> size);
+                    strings.addIndex(index);
+                    if (index == size) {
+                        strings.addDictionary(string);
+                        return Integer.BYTES + string.length();
+                    }
+                    return Integer.BYTES;
+                }
+                case BYTES:
+                case VERSION:
+                case VECTOR: {
+                    final Object value = row.getObject(oneBasedPosition);
+                    final BytesValues.Builder bytes = vector.getBytesValuesBuilder();
+                    if (markNull(row.wasNull() || value == null, rowIndex)) {
+                        bytes.addValue(ByteString.EMPTY);
+                        return 1;
+                    }
+                    final ByteString byteString = ByteString.copyFrom(value instanceof RealVector ? ((RealVector)value).getRawData() : (byte[])value);
+                    bytes.addValue(byteString);
+                    return byteString.size();
+                }
+                case UUID: {
+                    final UUID value = row.getUUID(oneBasedPosition);
+                    final UuidValues.Builder uuids = vector.getUuidValuesBuilder();
+                    final boolean isNull = markNull(row.wasNull() || value == null, rowIndex);
+                    uuids.addMostSignificantBits(isNull ? 0L : value.getMostSignificantBits());
+                    uuids.addLeastSignificantBits(isNull ? 0L : value.getLeastSignificantBits());
+                    return 2L * Long.BYTES;
+                }
+                default: {
+                    final Object value = row.getObject(oneBasedPosition);
+                    final boolean isNull = markNull(row.wasNull(), rowIndex);
+                    final Column cell = TypeConversion.toColumn(field, value, isNull);
+                    vector.getCellsBuilder().addColumn(cell);
+                    return cell.getSerializedSize();
+                }
+            }
+        }
+
+        private boolean markNull(boolean isNull, int rowIndex) {
+            if (isNull) {
+                nulls.set(rowIndex);
+            }
+            return isNull;
+        }
+
+        @Nonnull
+        ColumnVector build() {
+            if (!nulls.isEmpty()) {
+                vector.setNulls(ByteString.copyFrom(nulls.toByteArray()));
+            }
+            if (vector.getValuesCase() == ColumnVector.ValuesCase.VALUES_NOT_SET) {
+                // no rows: still say what kind of vector this would be
+                initEmpty();
+            }
+            return vector.build();
+        }
+
+        private void initEmpty() {
+            switch (field.getType().getCode()) {
+                case INTEGER:
+                    vector.setIntValues(IntValues.getDefaultInstance());
+                    break;
+                case LONG:
+                    vector.setLongValues(LongValues.getDefaultInstance());
+                    break;
+                case FLOAT:
+                    vector.setFloatValues(FloatValues.getDefaultInstance());
+                    break;
+                case DOUBLE:
+                    vector.setDoubleValues(DoubleValues.getDefaultInstance());
+                    break;
+                case BOOLEAN:
+                    vector.setBooleanValues(BooleanValues.getDefaultInstance());
+                    break;
+                case STRING:
+                case ENUM:
+                    vector.setStringValues(DictionaryStringValues.getDefaultInstance());
+                    break;
+                case BYTES:
+                case VERSION:
+                case VECTOR:
+                    vector.setBytesValues(BytesValues.getDefaultInstance());
+                    break;
+                case UUID:
+                    vector.setUuidValues(UuidValues.getDefaultInstance());
+                    break;
+                default:
+                    vector.setCells(ListColumn.getDefaultInstance());
+                    break;
+            }
+        }
+    }
+}
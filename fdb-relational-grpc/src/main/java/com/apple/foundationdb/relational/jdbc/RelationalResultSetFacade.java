@@ -28,31 +28,57 @@ import com.apple.foundationdb.relational.api.RelationalStruct;
 import com.apple.foundationdb.relational.api.RelationalStructMetaData;
 import com.apple.foundationdb.relational.api.StructResultSetMetaData;
 import com.apple.foundationdb.relational.api.metadata.DataType;
+import com.apple.foundationdb.relational.jdbc.grpc.GrpcSQLExceptionUtil;
+import com.apple.foundationdb.relational.jdbc.grpc.v1.ColumnVector;
 import com.apple.foundationdb.relational.jdbc.grpc.v1.ResultSet;
+import com.apple.foundationdb.relational.jdbc.grpc.v1.ResultSetMetadata;
+import com.apple.foundationdb.relational.jdbc.grpc.v1.RpcContinuation;
 import com.apple.foundationdb.relational.jdbc.grpc.v1.column.Column;
 import com.apple.foundationdb.relational.jdbc.grpc.v1.column.ColumnMetadata;
 import com.apple.foundationdb.relational.util.ExcludeFromJacocoGeneratedReport;
 import com.apple.foundationdb.relational.util.PositionalIndex;
 import com.apple.foundationdb.relational.util.SpotBugsSuppressWarnings;
 import com.google.common.base.Suppliers;
+import io.grpc.StatusRuntimeException;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import java.sql.SQLException;
 import java.sql.SQLWarning;
 import java.sql.Types;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.UUID;
 import java.util.function.Function;
+import java.util.function.Predicate;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 /**
  * Facade over grpc protobuf objects that offers a {@link RelationalResultSet} view.
+ * The rows may arrive in several batches (see {@link #RelationalResultSetFacade(ResultSet, Iterator, Runnable)}), in
+ * which case the next batch is only pulled once the rows of the current one have been consumed.
+ * Rows encoded column by column (see {@link ColumnarRowsBuilder}) are read from the column vectors directly, without
+ * materializing a {@link Column} per cell.
  */
 class RelationalResultSetFacade implements RelationalResultSet {
     private final Supplier<DataType.StructType> type;
+    /**
+     * The metadata of the whole result set, which only the first batch carries.
+     */
+    @Nonnull
+    private final ResultSetMetadata metadata;
 
-    private final ResultSet delegate;
-    private final int rows;
+    private ResultSet delegate;
+    private int rows;
+    @Nonnull
+    private final Iterator<ResultSet> remainingBatches;
+    @Nullable
+    private ResultSet pendingBatch;
+    @Nonnull
+    private RpcContinuation continuation;
+    @Nullable
+    private final Runnable onClose;
     /**
      * The ResultSet index starts before '1'... you have to call 'next' to get to first ResultSet.
      */
@@ -70,18 +96,67 @@ class RelationalResultSetFacade implements RelationalResultSet {
     static final RelationalResultSet EMPTY = new RelationalResultSetFacade(ResultSet.newBuilder().build());
 
     RelationalResultSetFacade(ResultSet delegate) {
-        this.delegate = delegate;
-        this.type = Suppliers.memoize(() -> TypeConversion.getStructDataType(delegate.getMetadata().getColumnMetadata().getColumnMetadataList(), false));
-        this.rows = delegate.getRowCount();
+        this(delegate, Collections.emptyIterator(), null);
+    }
+
+    /**
+     * Facade over a result set whose rows are streamed in batches.
+     * @param firstBatch the first batch, which carries the metadata
+     * @param remainingBatches the batches after the first one; the last batch carries the continuation
+     * @param onClose called when this result set is closed, e.g. to cancel the stream if it has not been consumed
+     */
+    RelationalResultSetFacade(@Nonnull ResultSet firstBatch, @Nonnull Iterator<ResultSet> remainingBatches,
+                              @Nullable Runnable onClose) {
+        this.delegate = firstBatch;
+        this.metadata = firstBatch.getMetadata();
+        this.type = Suppliers.memoize(() -> TypeConversion.getStructDataType(metadata.getColumnMetadata().getColumnMetadataList(), false));
+        this.rows = TypeConversion.getRowCount(firstBatch);
+        this.remainingBatches = remainingBatches;
+        this.continuation = firstBatch.getContinuation();
+        this.onClose = onClose;
     }
 
     @Override
     public boolean next() throws SQLException {
-        return ++rowIndex < rows;
+        if (++rowIndex < rows) {
+            return true;
+        }
+        try {
+            if (!hasPendingBatch()) {
+                return false;
+            }
+        } catch (StatusRuntimeException statusRuntimeException) {
+            final SQLException sqlException = GrpcSQLExceptionUtil.map(statusRuntimeException);
+            if (sqlException != null) {
+                throw sqlException;
+            }
+            throw statusRuntimeException;
+        }
+        delegate = pendingBatch;
+        pendingBatch = null;
+        rows = TypeConversion.getRowCount(delegate);
+        rowIndex = 0;
+        return true;
     }
 
     public boolean hasNext() {
-        return rowIndex < (rows - 1);
+        return rowIndex < (rows - 1) || hasPendingBatch();
+    }
+
+    /**
+     * Pull batches until one with rows arrives or there are no more; this blocks if the batch has not arrived yet.
+     */
+    private boolean hasPendingBatch() {
+        while (pendingBatch == null && remainingBatches.hasNext()) {
+            final ResultSet batch = remainingBatches.next();
+            if (batch.hasContinuation()) {
+                continuation = batch.getContinuation();
+            }
+            if (TypeConversion.getRowCount(batch) > 0) {
+                pendingBatch = batch;
+            }
+        }
+        return pendingBatch != null;
     }
 
     @Override
@@ -92,6 +167,9 @@ class RelationalResultSetFacade implements RelationalResultSet {
     @Override
     public void close() throws SQLException {
         this.closed = true;
+        if (onClose != null) {
+            onClose.run();
+        }
     }
 
     @Override
@@ -104,14 +182,47 @@ class RelationalResultSetFacade implements RelationalResultSet {
         return this.wasNull;
     }
 
+    /**
+     * Get a cell of the current row as a {@link Column}, whichever way the rows of the current batch are encoded.
+     * @param oneBasedIndex the column
+     * @param s converts the cell to the value to return
+     * @param <R> the type of value
+     * @return the converted cell
+     * @see TypeConversion#getColumn
+     */
     private <R> R get(int oneBasedIndex, Function<Column, R> s) {
         int index = PositionalIndex.toProtobuf(oneBasedIndex);
-        Column column = this.delegate.getRow(rowIndex).getColumns().getColumn(index);
+        Column column = TypeConversion.getColumn(this.delegate, rowIndex, index);
         return s.apply(column);
     }
 
+    /**
+     * Get the vector of a column if the current batch is encoded column by column and the vector holds values of the
+     * expected kind. If there is one, also updates {@link #wasNull}; if there is none, the value is read by
+     * {@link #get} instead.
+     * @param oneBasedIndex the column
+     * @param hasValues whether the vector holds values of the expected kind
+     * @return the vector to read the value of the current row from or {@code null} if there is none
+     */
+    @Nullable
+    private ColumnVector getVector(int oneBasedIndex, @Nonnull Predicate<ColumnVector> hasValues) {
+        if (!this.delegate.hasColumnarRows()) {
+            return null;
+        }
+        ColumnVector vector = this.delegate.getColumnarRows().getColumn(PositionalIndex.toProtobuf(oneBasedIndex));
+        if (!hasValues.test(vector)) {
+            return null;
+        }
+        this.wasNull = TypeConversion.isNull(vector, rowIndex);
+        return vector;
+    }
+
     @Override
     public String getString(final int oneBasedColumn) throws SQLException {
+        ColumnVector vector = getVector(oneBasedColumn, ColumnVector::hasStringValues);
+        if (vector != null) {
+            return this.wasNull ? null : vector.getStringValues().getDictionary(vector.getStringValues().getIndex(rowIndex));
+        }
         return get(oneBasedColumn, column -> {
             if (column.hasString()) {
                 // Do I need to update lastColumnReadWasNull for String type?
@@ -126,6 +237,10 @@ class RelationalResultSetFacade implements RelationalResultSet {
 
     @Override
     public boolean getBoolean(int oneBasedColumn) throws SQLException {
+        ColumnVector vector = getVector(oneBasedColumn, ColumnVector::hasBooleanValues);
+        if (vector != null) {
+            return !this.wasNull && vector.getBooleanValues().getValue(rowIndex);
+        }
         return get(oneBasedColumn, column -> {
             if (column.hasBoolean()) {
                 this.wasNull = false;
@@ -138,6 +253,10 @@ class RelationalResultSetFacade implements RelationalResultSet {
 
     @Override
     public int getInt(int oneBasedColumn) throws SQLException {
+        ColumnVector vector = getVector(oneBasedColumn, ColumnVector::hasIntValues);
+        if (vector != null) {
+            return this.wasNull ? NUMERIC_VALUE_WHEN_NULL : vector.getIntValues().getValue(rowIndex);
+        }
         return get(oneBasedColumn, column -> {
             if (column.hasInteger()) {
                 this.wasNull = false;
@@ -150,6 +269,10 @@ class RelationalResultSetFacade implements RelationalResultSet {
 
     @Override
     public long getLong(int oneBasedColumn) throws SQLException {
+        ColumnVector vector = getVector(oneBasedColumn, ColumnVector::hasLongValues);
+        if (vector != null) {
+            return this.wasNull ? NUMERIC_VALUE_WHEN_NULL : vector.getLongValues().getValue(rowIndex);
+        }
         return get(oneBasedColumn, column -> {
             if (column.hasLong()) {
                 this.wasNull = false;
@@ -162,6 +285,10 @@ class RelationalResultSetFacade implements RelationalResultSet {
 
     @Override
     public float getFloat(int oneBasedColumn) throws SQLException {
+        ColumnVector vector = getVector(oneBasedColumn, ColumnVector::hasFloatValues);
+        if (vector != null) {
+            return this.wasNull ? NUMERIC_VALUE_WHEN_NULL : vector.getFloatValues().getValue(rowIndex);
+        }
         return get(oneBasedColumn, column -> {
             if (column.hasFloat()) {
                 this.wasNull = false;
@@ -174,6 +301,10 @@ class RelationalResultSetFacade implements RelationalResultSet {
 
     @Override
     public double getDouble(int oneBasedColumn) throws SQLException {
+        ColumnVector vector = getVector(oneBasedColumn, ColumnVector::hasDoubleValues);
+        if (vector != null) {
+            return this.wasNull ? NUMERIC_VALUE_WHEN_NULL : vector.getDoubleValues().getValue(rowIndex);
+        }
         return get(oneBasedColumn, column -> {
             if (column.hasDouble()) {
                 this.wasNull = false;
@@ -186,6 +317,10 @@ class RelationalResultSetFacade implements RelationalResultSet {
 
     @Override
     public byte[] getBytes(int oneBasedColumn) throws SQLException {
+        ColumnVector vector = getVector(oneBasedColumn, ColumnVector::hasBytesValues);
+        if (vector != null) {
+            return this.wasNull ? null : vector.getBytesValues().getValue(rowIndex).toByteArray();
+        }
         return get(oneBasedColumn, column -> {
             if (column.hasBinary()) {
                 this.wasNull = false;
@@ -215,7 +350,7 @@ class RelationalResultSetFacade implements RelationalResultSet {
         // TOOD: Do getName for now.
         return getString(
                 columnLabelToColumnOneBasedIndex(
-                        this.delegate.getMetadata().getColumnMetadata().getColumnMetadataList(),
+                        this.metadata.getColumnMetadata().getColumnMetadataList(),
                         columnLabel));
     }
 
@@ -274,7 +409,7 @@ class RelationalResultSetFacade implements RelationalResultSet {
 
     @Override
     public RelationalResultSetMetaData getMetaData() throws SQLException {
-        return type.get() != null ? new StructResultSetMetaData(RelationalStructMetaData.of(type.get())) : new RelationalResultSetMetaDataFacade(this.delegate.getMetadata());
+        return type.get() != null ? new StructResultSetMetaData(RelationalStructMetaData.of(type.get())) : new RelationalResultSetMetaDataFacade(this.metadata);
     }
 
     @Override
@@ -284,7 +419,7 @@ class RelationalResultSetFacade implements RelationalResultSet {
         if (hasNext()) {
             throw new SQLException("Continuation can only be returned for the last row");
         }
-        return new RelationalRpcContinuation(delegate.getContinuation());
+        return new RelationalRpcContinuation(continuation);
     }
 
     @Override
@@ -296,7 +431,7 @@ class RelationalResultSetFacade implements RelationalResultSet {
 
     @Override
     public RelationalStruct getStruct(int oneBasedColumn) throws SQLException {
-        RelationalStruct s = TypeConversion.getStruct(this.delegate, this.rowIndex, oneBasedColumn);
+        RelationalStruct s = TypeConversion.getStruct(this.metadata, this.delegate, this.rowIndex, oneBasedColumn);
         wasNull = s == null;
         return s;
     }
@@ -389,8 +524,8 @@ class RelationalResultSetFacade implements RelationalResultSet {
     @Override
     public RelationalArray getArray(int oneBasedColumn) throws SQLException {
         int index = PositionalIndex.toProtobuf(oneBasedColumn);
-        ColumnMetadata columnMetadata = this.delegate.getMetadata().getColumnMetadata().getColumnMetadata(index);
-        Column column = this.delegate.getRow(rowIndex).getColumns().getColumn(index);
+        ColumnMetadata columnMetadata = this.metadata.getColumnMetadata().getColumnMetadata(index);
+        Column column = TypeConversion.getColumn(this.delegate, rowIndex, index);
         RelationalArrayFacade array = column == null || !column.hasArray() ? null :
                 new RelationalArrayFacade(columnMetadata.getArrayMetadata(), column.getArray());
         wasNull = array == null;
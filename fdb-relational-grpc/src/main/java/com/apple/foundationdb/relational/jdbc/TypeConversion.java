@@ -35,6 +35,7 @@ import com.apple.foundationdb.relational.api.StructMetaData;
 import com.apple.foundationdb.relational.api.exceptions.ErrorCode;
 import com.apple.foundationdb.relational.api.exceptions.RelationalException;
 import com.apple.foundationdb.relational.api.metadata.DataType;
+import com.apple.foundationdb.relational.jdbc.grpc.v1.ColumnVector;
 import com.apple.foundationdb.relational.jdbc.grpc.v1.KeySet;
 import com.apple.foundationdb.relational.jdbc.grpc.v1.KeySetValue;
 import com.apple.foundationdb.relational.jdbc.grpc.v1.ResultSet;
@@ -76,26 +77,74 @@ public class TypeConversion {
     /**
      * Return {@link RelationalStruct} instance found at <code>rowIndex</code> and <code>oneBasedColumn</code> offsets.
      * Manipulation of protobufs. Exploits package-private internal attributes of {@link RelationalStructFacade}.
+     * @param resultSetMetadata Metadata of the result set, which a streamed batch of rows does not carry itself.
      * @param resultSet Protobuf ResultSet to fetch {@link RelationalStruct} from.
      * @param rowIndex Current 'row' offset into <code>resultSet</code>
      * @param oneBasedColumn One-based column index where we'll find the {@link RelationalStruct} instance.
      * @return {@link RelationalStruct} instance pulled from <code>resultSet</code>
      * @throws SQLException If failed get of <code>resultSet</code> metadata.
      */
-    static RelationalStruct getStruct(ResultSet resultSet, int rowIndex, int oneBasedColumn) throws SQLException {
+    static RelationalStruct getStruct(ResultSetMetadata resultSetMetadata, ResultSet resultSet, int rowIndex,
+                                      int oneBasedColumn) throws SQLException {
         int index = PositionalIndex.toProtobuf(oneBasedColumn);
         var metadata =
-                resultSet.getMetadata().getColumnMetadata().getColumnMetadata(index).getStructMetadata();
-        Column column = resultSet.getRow(rowIndex).getColumns().getColumn(index);
+                resultSetMetadata.getColumnMetadata().getColumnMetadata(index).getStructMetadata();
+        Column column = getColumn(resultSet, rowIndex, index);
         return column.hasStruct() ? new RelationalStructFacade(metadata, column.getStruct()) : null;
     }
 
     static UUID getUUID(ResultSet resultSet, int rowIndex, int oneBasedColumn) throws SQLException {
         int index = PositionalIndex.toProtobuf(oneBasedColumn);
-        Column column = resultSet.getRow(rowIndex).getColumns().getColumn(index);
+        if (resultSet.hasColumnarRows()) {
+            ColumnVector vector = resultSet.getColumnarRows().getColumn(index);
+            if (vector.hasUuidValues()) {
+                return isNull(vector, rowIndex) ? null :
+                       new UUID(vector.getUuidValues().getMostSignificantBits(rowIndex), vector.getUuidValues().getLeastSignificantBits(rowIndex));
+            }
+        }
+        Column column = getColumn(resultSet, rowIndex, index);
         return column.hasUuid() ? new UUID(column.getUuid().getMostSignificantBits(), column.getUuid().getLeastSignificantBits()) : null;
     }
 
+    /**
+     * Return the cell at <code>rowIndex</code> and <code>index</code> offsets as a {@link Column}, whichever way the
+     * rows of <code>resultSet</code> are encoded. Columnar rows only have cells for columns that are not kept in a
+     * typed vector; for the others an empty column, i.e. a null, is returned.
+     * @param resultSet Protobuf ResultSet to fetch the cell from.
+     * @param rowIndex Current 'row' offset into <code>resultSet</code>
+     * @param index Zero-based column index.
+     * @return the cell
+     */
+    static Column getColumn(ResultSet resultSet, int rowIndex, int index) {
+        if (resultSet.hasColumnarRows()) {
+            ColumnVector vector = resultSet.getColumnarRows().getColumn(index);
+            return vector.hasCells() ? vector.getCells().getColumn(rowIndex) : Column.getDefaultInstance();
+        }
+        return resultSet.getRow(rowIndex).getColumns().getColumn(index);
+    }
+
+    /**
+     * Whether the value of a column vector at <code>rowIndex</code> is null.
+     * @param vector the column vector
+     * @param rowIndex offset of the row
+     * @return whether the null bit of the row is set
+     * @see ColumnarRowsBuilder
+     */
+    static boolean isNull(ColumnVector vector, int rowIndex) {
+        ByteString nulls = vector.getNulls();
+        int byteIndex = rowIndex >>> 3;
+        return byteIndex < nulls.size() && (nulls.byteAt(byteIndex) & (1 << (rowIndex & 7))) != 0;
+    }
+
+    /**
+     * Get the number of rows in a {@link ResultSet}, whichever way they are encoded.
+     * @param resultSet the result set
+     * @return the number of rows in <code>resultSet</code>
+     */
+    public static int getRowCount(ResultSet resultSet) {
+        return resultSet.hasColumnarRows() ? resultSet.getColumnarRows().getRowCount() : resultSet.getRowCount();
+    }
+
     /**
      * Convert list of {@link RelationalStruct} to {@link ResultSet}.
      * @param structs List of {@link RelationalStruct} which are expected to be of type {@link RelationalStructFacade}.
@@ -460,7 +509,7 @@ public class TypeConversion {
         return builder.build();
     }
 
-    private static Column toColumn(@Nonnull DataType.StructType.Field field, @Nonnull Object value, boolean wasNull) throws SQLException {
+    static Column toColumn(@Nonnull DataType.StructType.Field field, @Nonnull Object value, boolean wasNull) throws SQLException {
         Column column;
         switch (field.getType().getCode()) {
             case STRUCT:
@@ -543,13 +592,32 @@ public class TypeConversion {
     }
 
     public static ResultSet toProtobuf(RelationalResultSet relationalResultSet) throws SQLException {
+        return toProtobuf(relationalResultSet, false);
+    }
+
+    /**
+     * Convert all the rows of a result set, optionally encoding them column by column (see {@link ColumnarRowsBuilder}).
+     * @param relationalResultSet the result set to convert
+     * @param columnar whether to encode the rows column by column
+     * @return the converted result set or {@code null} if <code>relationalResultSet</code> is {@code null}
+     * @throws SQLException if the rows cannot be read
+     */
+    public static ResultSet toProtobuf(RelationalResultSet relationalResultSet, boolean columnar) throws SQLException {
         if (relationalResultSet == null) {
             return null;
         }
         var resultSetBuilder = ResultSet.newBuilder();
         resultSetBuilder.setMetadata(toResultSetMetaData(relationalResultSet, relationalResultSet.getMetaData().getColumnCount()));
+        final ColumnarRowsBuilder columnarRows = columnar ? new ColumnarRowsBuilder(relationalResultSet.getMetaData()) : null;
         while (relationalResultSet.next()) {
-            resultSetBuilder.addRow(toStruct(relationalResultSet));
+            if (columnarRows != null) {
+                columnarRows.addRow(relationalResultSet);
+            } else {
+                resultSetBuilder.addRow(toStruct(relationalResultSet));
+            }
+        }
+        if (columnarRows != null) {
+            resultSetBuilder.setColumnarRows(columnarRows.build());
         }
         // Set the continuation after all the rows have been traversed
         Continuation existingContinuation = relationalResultSet.getContinuation();
@@ -559,6 +627,36 @@ public class TypeConversion {
         return resultSetBuilder.build();
     }
 
+    /**
+     * Convert the metadata of a result set without any of its rows; used when the rows are streamed separately.
+     * @param relationalResultSet the result set to describe
+     * @return the metadata of <code>relationalResultSet</code>
+     * @throws SQLException if the metadata cannot be read
+     */
+    public static ResultSetMetadata toResultSetMetadataProtobuf(@Nonnull RelationalResultSet relationalResultSet) throws SQLException {
+        return toResultSetMetaData(relationalResultSet, relationalResultSet.getMetaData().getColumnCount());
+    }
+
+    /**
+     * Convert the row the result set is currently positioned on.
+     * @param relationalResultSet the result set, positioned on a row
+     * @return the current row of <code>relationalResultSet</code>
+     * @throws SQLException if the row cannot be read
+     */
+    public static Struct toRowProtobuf(@Nonnull RelationalResultSet relationalResultSet) throws SQLException {
+        return toStruct(relationalResultSet);
+    }
+
+    /**
+     * Convert the continuation of a result set; only valid once all its rows have been traversed.
+     * @param relationalResultSet the traversed result set
+     * @return the continuation of <code>relationalResultSet</code>
+     * @throws SQLException if the continuation cannot be read
+     */
+    public static RpcContinuation toContinuationProtobuf(@Nonnull RelationalResultSet relationalResultSet) throws SQLException {
+        return toContinuation(relationalResultSet.getContinuation());
+    }
+
     private static RpcContinuation toContinuation(@Nonnull Continuation existingContinuation) {
         RpcContinuation.Builder builder = RpcContinuation.newBuilder()
                 .setVersion(RelationalRpcContinuation.CURRENT_VERSION)
@@ -739,6 +837,15 @@ public class TypeConversion {
                 case PLAN_RIGHT_DEEP:
                     builder.setPlanRightDeep((Boolean)entry.getValue());
                     break;
+                case COLUMNAR_RESULT_ENCODING:
+                    builder.setColumnarResultEncoding((Boolean)entry.getValue());
+                    break;
+                case STREAM_RESULTS:
+                    builder.setStreamResults((Boolean)entry.getValue());
+                    break;
+                case PLAN_HASH_JOINS:
+                    builder.setPlanHashJoins((Boolean)entry.getValue());
+                    break;
                 default:
                     throw new SQLException("Cannot encode option in protobuf");
             }
@@ -859,6 +966,15 @@ public class TypeConversion {
         if (protoOptions.hasPlanRightDeep()) {
             builder.withOption(Options.Name.PLAN_RIGHT_DEEP, protoOptions.getPlanRightDeep());
         }
+        if (protoOptions.hasColumnarResultEncoding()) {
+            builder.withOption(Options.Name.COLUMNAR_RESULT_ENCODING, protoOptions.getColumnarResultEncoding());
+        }
+        if (protoOptions.hasStreamResults()) {
+            builder.withOption(Options.Name.STREAM_RESULTS, protoOptions.getStreamResults());
+        }
+        if (protoOptions.hasPlanHashJoins()) {
+            builder.withOption(Options.Name.PLAN_HASH_JOINS, protoOptions.getPlanHashJoins());
+        }
         return builder.build();
     }
 
@@ -0,0 +1,265 @@
+/*
+ * ColumnarRowsBuilderTest.java
+ *
+ * This source file is part of the FoundationDB open source project
+ *
+ * Copyright 2015-2026 Apple Inc. and the FoundationDB project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.apple.foundationdb.relational.jdbc;
+
+import com.apple.foundationdb.relational.api.Continuation;
+import com.apple.foundationdb.relational.api.RelationalArray;
+import com.apple.foundationdb.relational.api.RelationalResultSet;
+import com.apple.foundationdb.relational.api.RelationalStruct;
+import com.apple.foundationdb.relational.jdbc.grpc.v1.ColumnarRows;
+import com.apple.foundationdb.relational.jdbc.grpc.v1.ResultSet;
+import com.apple.foundationdb.relational.jdbc.grpc.v1.ResultSetMetadata;
+import com.apple.foundationdb.relational.jdbc.grpc.v1.column.Array;
+import com.apple.foundationdb.relational.jdbc.grpc.v1.column.Column;
+import com.apple.foundationdb.relational.jdbc.grpc.v1.column.ColumnMetadata;
+import com.apple.foundationdb.relational.jdbc.grpc.v1.column.ListColumn;
+import com.apple.foundationdb.relational.jdbc.grpc.v1.column.ListColumnMetadata;
+import com.apple.foundationdb.relational.jdbc.grpc.v1.column.Struct;
+import com.apple.foundationdb.relational.jdbc.grpc.v1.column.Type;
+import com.apple.foundationdb.relational.jdbc.grpc.v1.column.Uuid;
+import com.google.protobuf.ByteString;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.List;
+import java.util.Objects;
+import java.util.UUID;
+
+public class ColumnarRowsBuilderTest {
+
+    @Test
+    void testRoundTrip() throws Exception {
+        ResultSet rowProto = ResultSet.newBuilder()
+                .setMetadata(ResultSetMetadata.newBuilder().setColumnMetadata(ListColumnMetadata.newBuilder()
+                        .addColumnMetadata(column("i", Type.INTEGER))
+                        .addColumnMetadata(column("l", Type.LONG))
+                        .addColumnMetadata(column("d", Type.DOUBLE))
+                        .addColumnMetadata(column("b", Type.BOOLEAN))
+                        .addColumnMetadata(column("s", Type.STRING))
+                        .addColumnMetadata(column("bytes", Type.BYTES))
+                        .addColumnMetadata(column("u", Type.UUID))))
+                .addRow(row(Column.newBuilder().setInteger(1).build(), Column.newBuilder().setLong(10L).build(),
+                        Column.newBuilder().setDouble(1.5).build(), Column.newBuilder().setBoolean(true).build(),
+                        Column.newBuilder().setString("a").build(),
+                        Column.newBuilder().setBinary(ByteString.copyFromUtf8("x")).build(),
+                        Column.newBuilder().setUuid(Uuid.newBuilder().setMostSignificantBits(1L).setLeastSignificantBits(2L)).build()))
+                .addRow(row(Column.getDefaultInstance(), Column.getDefaultInstance(), Column.getDefaultInstance(),
+                        Column.getDefaultInstance(), Column.getDefaultInstance(), Column.getDefaultInstance(),
+                        Column.getDefaultInstance()))
+                .addRow(row(Column.newBuilder().setInteger(3).build(), Column.newBuilder().setLong(30L).build(),
+                        Column.newBuilder().setDouble(3.5).build(), Column.newBuilder().setBoolean(false).build(),
+                        Column.newBuilder().setString("a").build(),
+                        Column.newBuilder().setBinary(ByteString.EMPTY).build(),
+                        Column.newBuilder().setUuid(Uuid.newBuilder().setMostSignificantBits(3L).setLeastSignificantBits(4L)).build()))
+                .build();
+
+        ColumnarRows columnarRows;
+        try (RelationalResultSetFacade rowBased = new RelationalResultSetFacade(rowProto)) {
+            ColumnarRowsBuilder builder = new ColumnarRowsBuilder(rowBased.getMetaData());
+            while (rowBased.next()) {
+                builder.addRow(rowBased);
+            }
+            Assertions.assertEquals(3, builder.getRowCount());
+            columnarRows = builder.build();
+        }
+        // the repeated string is only sent once
+        Assertions.assertEquals(List.of("a"), columnarRows.getColumn(4).getStringValues().getDictionaryList());
+
+        ResultSet columnarProto = ResultSet.newBuilder().setMetadata(rowProto.getMetadata()).setColumnarRows(columnarRows).build();
+        Assertions.assertEquals(3, TypeConversion.getRowCount(columnarProto));
+        try (RelationalResultSetFacade rowBased = new RelationalResultSetFacade(rowProto);
+                RelationalResultSetFacade columnar = new RelationalResultSetFacade(columnarProto)) {
+            int rows = 0;
+            while (rowBased.next()) {
+                Assertions.assertTrue(columnar.next());
+                Assertions.assertEquals(rowBased.getInt(1), columnar.getInt(1));
+                Assertions.assertEquals(rowBased.wasNull(), columnar.wasNull());
+                Assertions.assertEquals(rowBased.getLong(2), columnar.getLong(2));
+                Assertions.assertEquals(rowBased.wasNull(), columnar.wasNull());
+                Assertions.assertEquals(rowBased.getDouble(3), columnar.getDouble(3));
+                Assertions.assertEquals(rowBased.wasNull(), columnar.wasNull());
+                Assertions.assertEquals(rowBased.getBoolean(4), columnar.getBoolean(4));
+                Assertions.assertEquals(rowBased.wasNull(), columnar.wasNull());
+                Assertions.assertEquals(rowBased.getString(5), columnar.getString(5));
+                Assertions.assertEquals(rowBased.wasNull(), columnar.wasNull());
+                Assertions.assertArrayEquals(rowBased.getBytes(6), columnar.getBytes(6));
+                Assertions.assertEquals(rowBased.wasNull(), columnar.wasNull());
+                Assertions.assertEquals(rowBased.getUUID(7), columnar.getUUID(7));
+                Assertions.assertEquals(rowBased.wasNull(), columnar.wasNull());
+                rows++;
+            }
+            Assertions.assertFalse(columnar.next());
+            Assertions.assertEquals(3, rows);
+        }
+    }
+
+    @Test
+    void testEveryGetter() throws Exception {
+        ColumnMetadata structMetadata = ColumnMetadata.newBuilder().setName("st").setType(Type.STRUCT).setNullable(true)
+                .setStructMetadata(ListColumnMetadata.newBuilder().addColumnMetadata(column("x", Type.INTEGER)))
+                .build();
+        ColumnMetadata arrayMetadata = ColumnMetadata.newBuilder().setName("a").setType(Type.ARRAY).setNullable(true)
+                .setArrayMetadata(ColumnMetadata.newBuilder().setName("e").setType(Type.STRUCT)
+                        .setStructMetadata(ListColumnMetadata.newBuilder().addColumnMetadata(column("x", Type.INTEGER))))
+                .build();
+        ResultSet rowProto = ResultSet.newBuilder()
+                .setMetadata(ResultSetMetadata.newBuilder().setColumnMetadata(ListColumnMetadata.newBuilder()
+                        .addColumnMetadata(column("i", Type.INTEGER))
+                        .addColumnMetadata(column("l", Type.LONG))
+                        .addColumnMetadata(column("f", Type.FLOAT))
+                        .addColumnMetadata(column("d", Type.DOUBLE))
+                        .addColumnMetadata(column("b", Type.BOOLEAN))
+                        .addColumnMetadata(column("s", Type.STRING))
+                        .addColumnMetadata(column("bytes", Type.BYTES))
+                        .addColumnMetadata(column("u", Type.UUID))
+                        .addColumnMetadata(structMetadata)
+                        .addColumnMetadata(arrayMetadata)))
+                .addRow(row(Column.newBuilder().setInteger(1).build(), Column.newBuilder().setLong(10L).build(),
+                        Column.newBuilder().setFloat(0.5f).build(), Column.newBuilder().setDouble(1.5).build(),
+                        Column.newBuilder().setBoolean(true).build(), Column.newBuilder().setString("a").build(),
+                        Column.newBuilder().setBinary(ByteString.copyFromUtf8("x")).build(),
+                        Column.newBuilder().setUuid(Uuid.newBuilder().setMostSignificantBits(1L).setLeastSignificantBits(2L)).build(),
+                        Column.newBuilder().setStruct(row(Column.newBuilder().setInteger(5).build())).build(),
+                        Column.newBuilder().setArray(Array.newBuilder()
+                                .addElement(Column.newBuilder().setStruct(row(Column.newBuilder().setInteger(6).build())))
+                                .addElement(Column.newBuilder().setStruct(row(Column.newBuilder().setInteger(7).build())))
+                                .setElementType(Types.STRUCT)).build()))
+                .addRow(row(Column.getDefaultInstance(), Column.getDefaultInstance(), Column.getDefaultInstance(),
+                        Column.getDefaultInstance(), Column.getDefaultInstance(), Column.getDefaultInstance(),
+                        Column.getDefaultInstance(), Column.getDefaultInstance(), Column.getDefaultInstance(),
+                        Column.getDefaultInstance()))
+                .build();
+
+        ColumnarRows columnarRows;
+        try (RelationalResultSetFacade rowBased = new RelationalResultSetFacade(rowProto)) {
+            ColumnarRowsBuilder builder = new ColumnarRowsBuilder(rowBased.getMetaData());
+            while (rowBased.next()) {
+                builder.addRow(rowBased);
+            }
+            columnarRows = builder.build();
+        }
+        ResultSet columnarProto = ResultSet.newBuilder().setMetadata(rowProto.getMetadata()).setColumnarRows(columnarRows).build();
+        try (RelationalResultSetFacade rowBased = new RelationalResultSetFacade(rowProto);
+                RelationalResultSetFacade columnar = new RelationalResultSetFacade(columnarProto)) {
+            int rows = 0;
+            while (rowBased.next()) {
+                Assertions.assertTrue(columnar.next());
+                Assertions.assertEquals(rowBased.getInt(1), columnar.getInt(1));
+                Assertions.assertEquals(rowBased.wasNull(), columnar.wasNull());
+                Assertions.assertEquals(rowBased.getLong(2), columnar.getLong(2));
+                Assertions.assertEquals(rowBased.wasNull(), columnar.wasNull());
+                Assertions.assertEquals(rowBased.getFloat(3), columnar.getFloat(3));
+                Assertions.assertEquals(rowBased.wasNull(), columnar.wasNull());
+                Assertions.assertEquals(rowBased.getDouble(4), columnar.getDouble(4));
+                Assertions.assertEquals(rowBased.wasNull(), columnar.wasNull());
+                Assertions.assertEquals(rowBased.getBoolean(5), columnar.getBoolean(5));
+                Assertions.assertEquals(rowBased.wasNull(), columnar.wasNull());
+                Assertions.assertEquals(rowBased.getString(6), columnar.getString(6));
+                Assertions.assertEquals(rowBased.wasNull(), columnar.wasNull());
+                Assertions.assertArrayEquals(rowBased.getBytes(7), columnar.getBytes(7));
+                Assertions.assertEquals(rowBased.wasNull(), columnar.wasNull());
+                Assertions.assertEquals(rowBased.getUUID(8), columnar.getUUID(8));
+                Assertions.assertEquals(rowBased.wasNull(), columnar.wasNull());
+
+                RelationalStruct rowStruct = rowBased.getStruct(9);
+                RelationalStruct columnarStruct = columnar.getStruct(9);
+                Assertions.assertEquals(rowBased.wasNull(), columnar.wasNull());
+                Assertions.assertEquals(rowStruct == null, columnarStruct == null);
+                if (rowStruct != null) {
+                    Assertions.assertEquals(rowStruct.getInt(1), columnarStruct.getInt(1));
+                }
+
+                RelationalArray rowArray = rowBased.getArray(10);
+                RelationalArray columnarArray = columnar.getArray(10);
+                Assertions.assertEquals(rowBased.wasNull(), columnar.wasNull());
+                Assertions.assertEquals(rowArray == null, columnarArray == null);
+                if (rowArray != null) {
+                    Object[] rowElements = (Object[])rowArray.getArray();
+                    Object[] columnarElements = (Object[])columnarArray.getArray();
+                    Assertions.assertEquals(rowElements.length, columnarElements.length);
+                    for (int i = 0; i < rowElements.length; i++) {
+                        Assertions.assertEquals(((RelationalStruct)rowElements[i]).getInt(1),
+                                ((RelationalStruct)columnarElements[i]).getInt(1));
+                    }
+                }
+
+                for (int column = 1; column <= 8; column++) {
+                    Object rowObject = rowBased.getObject(column);
+                    Object columnarObject = columnar.getObject(column);
+                    Assertions.assertTrue(Objects.deepEquals(rowObject, columnarObject), "column " + column);
+                    Assertions.assertEquals(rowBased.wasNull(), columnar.wasNull());
+                }
+                rows++;
+            }
+            Assertions.assertFalse(columnar.next());
+            Assertions.assertEquals(2, rows);
+        }
+    }
+
+    @Test
+    void testStreamedColumnarBatches() throws Exception {
+        Continuation continuation = new MockContinuation(Continuation.Reason.TRANSACTION_LIMIT_REACHED, new byte[]{5}, false, false);
+        RelationalResultSet resultSet = TestUtils.resultSet(continuation,
+                TestUtils.row(1, 2, 3), TestUtils.row(4, 5, 6), TestUtils.row(7, 8, 9));
+        ResultSet first = ResultSet.newBuilder()
+                .setMetadata(TypeConversion.toResultSetMetadataProtobuf(resultSet))
+                .setColumnarRows(columnarBatch(resultSet, 2))
+                .build();
+        ResultSet last = ResultSet.newBuilder()
+                .setColumnarRows(columnarBatch(resultSet, 2))
+                .setContinuation(TypeConversion.toContinuationProtobuf(resultSet))
+                .build();
+        Assertions.assertEquals(1, TypeConversion.getRowCount(last));
+
+        try (RelationalResultSetFacade deserializedResultSet = new RelationalResultSetFacade(first, List.of(last).iterator(), null)) {
+            int expected = 1;
+            while (deserializedResultSet.next()) {
+                for (int i = 1; i <= 3; i++) {
+                    Assertions.assertEquals(expected++, deserializedResultSet.getInt(i));
+                    Assertions.assertFalse(deserializedResultSet.wasNull());
+                }
+                // columns of another type read as null
+                Assertions.assertNull(deserializedResultSet.getString(1));
+                Assertions.assertTrue(deserializedResultSet.wasNull());
+            }
+            Assertions.assertEquals(10, expected);
+            Assertions.assertArrayEquals(continuation.serialize(), deserializedResultSet.getContinuation().serialize());
+        }
+    }
+
+    private static ColumnarRows columnarBatch(RelationalResultSet resultSet, int maxRows) throws SQLException {
+        ColumnarRowsBuilder builder = new ColumnarRowsBuilder(resultSet.getMetaData());
+        while (builder.getRowCount() < maxRows && resultSet.next()) {
+            builder.addRow(resultSet);
+        }
+        return builder.build();
+    }
+
+    private static ColumnMetadata column(String name, Type type) {
+        return ColumnMetadata.newBuilder().setName(name).setType(type).setNullable(true).build();
+    }
+
+    private static Struct row(Column... columns) {
+        return Struct.newBuilder().setColumns(ListColumn.newBuilder().addAllColumn(List.of(columns))).build();
+    }
+}
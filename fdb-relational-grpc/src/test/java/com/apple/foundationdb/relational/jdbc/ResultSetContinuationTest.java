@@ -31,7 +31,10 @@ import org.junit.jupiter.params.provider.MethodSource;
 
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Stream;
 
 public class ResultSetContinuationTest {
@@ -104,6 +107,36 @@ public class ResultSetContinuationTest {
         }
     }
 
+    @Test
+    void testStreamedBatches() throws Exception {
+        Continuation continuation = new MockContinuation(Continuation.Reason.TRANSACTION_LIMIT_REACHED, new byte[]{3}, false, false);
+        RelationalResultSet resultSet = TestUtils.resultSet(
+                continuation,
+                TestUtils.row(1, 2, 3), TestUtils.row(4, 5, 6), TestUtils.row(7, 8, 9));
+        ResultSet rsProto = TypeConversion.toProtobuf(resultSet);
+        // Metadata only comes with the first batch and the continuation with the last one, which is empty
+        ResultSet first = ResultSet.newBuilder().setMetadata(rsProto.getMetadata()).addRow(rsProto.getRow(0)).build();
+        List<ResultSet> remaining = List.of(
+                ResultSet.newBuilder().addRow(rsProto.getRow(1)).addRow(rsProto.getRow(2)).build(),
+                ResultSet.newBuilder().build(),
+                ResultSet.newBuilder().setContinuation(rsProto.getContinuation()).build());
+        AtomicInteger pulled = new AtomicInteger();
+        Iterator<ResultSet> remainingIterator = remaining.stream().peek(batch -> pulled.incrementAndGet()).iterator();
+        AtomicBoolean closed = new AtomicBoolean();
+
+        try (RelationalResultSetFacade deserializedResultSet = new RelationalResultSetFacade(first, remainingIterator, () -> closed.set(true))) {
+            Assertions.assertTrue(deserializedResultSet.next());
+            Assertions.assertEquals(List.of(1, 2, 3), toRow(deserializedResultSet, 3));
+            // The next batch is only pulled when it is needed
+            Assertions.assertEquals(0, pulled.get());
+            Assertions.assertEquals(List.of(List.of(4, 5, 6), List.of(7, 8, 9)), toRows(deserializedResultSet, 3));
+            Assertions.assertEquals(3, deserializedResultSet.getMetaData().getColumnCount());
+            assertContinuation(continuation, deserializedResultSet.getContinuation());
+            Assertions.assertFalse(closed.get());
+        }
+        Assertions.assertTrue(closed.get());
+    }
+
     @Test
     void testResultSetWithNullContinuationFails() throws Exception {
         RelationalResultSet resultSet = TestUtils.resultSet(
@@ -28,6 +28,9 @@ import com.apple.foundationdb.relational.api.RelationalStruct;
 import com.apple.foundationdb.relational.api.SqlTypeNamesSupport;
 import com.apple.foundationdb.relational.jdbc.grpc.GrpcConstants;
 import com.apple.foundationdb.relational.jdbc.grpc.GrpcSQLExceptionUtil;
+import com.apple.foundationdb.relational.jdbc.grpc.v1.BatchEntry;
+import com.apple.foundationdb.relational.jdbc.grpc.v1.BatchStatementRequest;
+import com.apple.foundationdb.relational.jdbc.grpc.v1.BatchStatementResponse;
 import com.apple.foundationdb.relational.jdbc.grpc.v1.CommitRequest;
 import com.apple.foundationdb.relational.jdbc.grpc.v1.DatabaseMetaDataRequest;
 import com.apple.foundationdb.relational.jdbc.grpc.v1.EnableAutoCommitRequest;
@@ -36,6 +39,7 @@ import com.apple.foundationdb.relational.jdbc.grpc.v1.InsertResponse;
 import com.apple.foundationdb.relational.jdbc.grpc.v1.JDBCServiceGrpc;
 import com.apple.foundationdb.relational.jdbc.grpc.v1.Parameter;
 import com.apple.foundationdb.relational.jdbc.grpc.v1.Parameters;
+import com.apple.foundationdb.relational.jdbc.grpc.v1.ResultSet;
 import com.apple.foundationdb.relational.jdbc.grpc.v1.RollbackRequest;
 import com.apple.foundationdb.relational.jdbc.grpc.v1.StatementRequest;
 import com.apple.foundationdb.relational.jdbc.grpc.v1.StatementResponse;
@@ -45,6 +49,7 @@ import com.apple.foundationdb.relational.util.ExcludeFromJacocoGeneratedReport;
 import com.apple.foundationdb.relational.util.SpotBugsSuppressWarnings;
 import com.google.protobuf.InvalidProtocolBufferException;
 import com.google.rpc.Status;
+import io.grpc.Context;
 import io.grpc.ManagedChannel;
 import io.grpc.ManagedChannelBuilder;
 import io.grpc.StatusRuntimeException;
@@ -65,6 +70,7 @@ import java.sql.SQLException;
 import java.sql.SQLWarning;
 import java.sql.Struct;
 import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.TimeUnit;
@@ -226,6 +232,100 @@ class JDBCRelationalConnection implements RelationalConnection {
         }
     }
 
+    /**
+     * Execute <code>sql</code> in auto-commit mode, having the server stream the rows of a query back in batches. Only
+     * the first batch is received here; the rest are received as the returned result set is consumed, with gRPC flow
+     * control holding back the server in the meantime.
+     * @param sql SQL to execute
+     * @param options options to use executing <code>sql</code>
+     * @param parameters parameters for <code>sql</code> or null if this is a Statement execute
+     * @return the response or {@code null} if the server does not support streaming, in which case
+     * {@link #execute(String, Options, Collection)} should be used instead
+     * @throws SQLException if executing the statement failed
+     */
+    @Nullable
+    StreamedStatementResponse executeStreaming(String sql, Options options, Collection<Parameter> parameters) throws SQLException {
+        StatementRequest.Builder builder = StatementRequest.newBuilder()
+                .setSql(sql)
+                .setDatabase(getDatabase())
+                .setSchema(getSchema())
+                .setOptions(TypeConversion.toProtobuf(options));
+        if (parameters != null) {
+            builder.setParameters(Parameters.newBuilder().addAllParameter(parameters).build());
+        }
+        // The call is bound to this context so that closing the result set early can cancel it
+        final Context.CancellableContext context = Context.current().withCancellation();
+        final Context previous = context.attach();
+        final Iterator<StatementResponse> responses;
+        try {
+            responses = getStub().executeStream(builder.build());
+        } finally {
+            context.detach(previous);
+        }
+        try {
+            if (!responses.hasNext()) {
+                throw new JdbcConnectionException("No response received to streaming execute");
+            }
+            final StatementResponse first = responses.next();
+            if (!first.hasResultSet()) {
+                // Not a query; the stream is complete after the row count
+                while (responses.hasNext()) {
+                    responses.next();
+                }
+            }
+            return new StreamedStatementResponse(first, responses, context);
+        } catch (StatusRuntimeException statusRuntimeException) {
+            context.cancel(null);
+            if (statusRuntimeException.getStatus().getCode() == io.grpc.Status.Code.UNIMPLEMENTED) {
+                return null;
+            }
+            final SQLException sqlException = toSQLException(statusRuntimeException);
+            if (sqlException != null) {
+                throw sqlException;
+            } else {
+                throw statusRuntimeException;
+            }
+        }
+    }
+
+    /**
+     * Execute a batch of statements with a single request. In auto-commit mode, the batch runs in a transaction of
+     * its own; otherwise it runs in the current transaction.
+     * @param entries the statements of the batch
+     * @param options options to use executing the batch
+     * @return the update count of each entry
+     * @throws SQLException if any of the statements failed
+     */
+    BatchStatementResponse executeBatch(@Nonnull List<BatchEntry> entries, @Nonnull Options options) throws SQLException {
+        BatchStatementRequest.Builder builder = BatchStatementRequest.newBuilder()
+                .addAllEntry(entries)
+                .setDatabase(getDatabase())
+                .setSchema(getSchema())
+                .setOptions(TypeConversion.toProtobuf(options));
+        try {
+            if (getAutoCommit()) {
+                return getStub().executeBatch(builder.build());
+            } else {
+                TransactionalRequest.Builder transactionRequest = TransactionalRequest.newBuilder()
+                        .setExecuteBatchRequest(builder);
+                // Wait here until a response arrives
+                final TransactionalResponse response = serverConnection.sendRequest(transactionRequest.build());
+                checkForResponseError(response);
+                if (!response.hasExecuteBatchResponse()) {
+                    throw new JdbcConnectionException("Wrong kind of response received, expected ExecuteBatchResponse");
+                }
+                return response.getExecuteBatchResponse();
+            }
+        } catch (StatusRuntimeException statusRuntimeException) {
+            final SQLException sqlException = toSQLException(statusRuntimeException);
+            if (sqlException != null) {
+                throw sqlException;
+            } else {
+                throw statusRuntimeException;
+            }
+        }
+    }
+
     public InsertResponse insert(@Nonnull String tableName, @Nonnull List<RelationalStruct> data) throws SQLException {
         InsertRequest.Builder builder = InsertRequest.newBuilder()
                 .setDataResultSet(TypeConversion.toResultSetProtobuf(data))
@@ -499,6 +599,55 @@ class JDBCRelationalConnection implements RelationalConnection {
         this.transactionIsolationLevel = level;
     }
 
+    /**
+     * The response to {@link #executeStreaming}: the first response, which tells whether the statement was a query,
+     * followed, for a query, by the remaining batches of its result set, which may not have been received yet.
+     */
+    static final class StreamedStatementResponse {
+        @Nonnull
+        private final StatementResponse firstResponse;
+        @Nonnull
+        private final Iterator<StatementResponse> remainingResponses;
+        @Nonnull
+        private final Context.CancellableContext context;
+
+        private StreamedStatementResponse(@Nonnull StatementResponse firstResponse,
+                                          @Nonnull Iterator<StatementResponse> remainingResponses,
+                                          @Nonnull Context.CancellableContext context) {
+            this.firstResponse = firstResponse;
+            this.remainingResponses = remainingResponses;
+            this.context = context;
+        }
+
+        boolean hasResultSet() {
+            return firstResponse.hasResultSet();
+        }
+
+        int getRowCount() {
+            return firstResponse.getRowCount();
+        }
+
+        /**
+         * Get the result set of a query. Closing it cancels the stream if it has not been consumed to the end.
+         * @return a result set that receives the remaining batches as it is consumed
+         */
+        @Nonnull
+        RelationalResultSetFacade getResultSet() {
+            final Iterator<ResultSet> remainingBatches = new Iterator<>() {
+                @Override
+                public boolean hasNext() {
+                    return remainingResponses.hasNext();
+                }
+
+                @Override
+                public ResultSet next() {
+                    return remainingResponses.next().getResultSet();
+                }
+            };
+            return new RelationalResultSetFacade(firstResponse.getResultSet(), remainingBatches, () -> context.cancel(null));
+        }
+    }
+
     /**
      * Convert runtime errors to SQLException in cases that may apply.
      * @param statusRuntimeException the caught RPC exception
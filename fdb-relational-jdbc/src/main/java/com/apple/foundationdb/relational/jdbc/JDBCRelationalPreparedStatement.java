@@ -78,6 +78,21 @@ class JDBCRelationalPreparedStatement implements RelationalPreparedStatement {
         return this.statement.executeUpdate(this.sql, this.parameters.values());
     }
 
+    @Override
+    public void addBatch() throws SQLException {
+        this.statement.addBatch(this.sql, this.parameters.values());
+    }
+
+    @Override
+    public void clearBatch() throws SQLException {
+        this.statement.clearBatch();
+    }
+
+    @Override
+    public int[] executeBatch() throws SQLException {
+        return this.statement.executeBatch();
+    }
+
     @Override
     public void setBoolean(int parameterIndex, boolean b) throws SQLException {
         parameters.put(parameterIndex, ParameterHelper.ofBoolean(b));
@@ -28,10 +28,12 @@ import com.apple.foundationdb.relational.api.RelationalStruct;
 import com.apple.foundationdb.relational.api.exceptions.ErrorCode;
 import com.apple.foundationdb.relational.api.exceptions.RelationalException;
 import com.apple.foundationdb.relational.jdbc.grpc.GrpcSQLExceptionUtil;
+import com.apple.foundationdb.relational.jdbc.grpc.v1.BatchEntry;
 import com.apple.foundationdb.relational.jdbc.grpc.v1.GetRequest;
 import com.apple.foundationdb.relational.jdbc.grpc.v1.GetResponse;
 import com.apple.foundationdb.relational.jdbc.grpc.v1.InsertResponse;
 import com.apple.foundationdb.relational.jdbc.grpc.v1.Parameter;
+import com.apple.foundationdb.relational.jdbc.grpc.v1.Parameters;
 import com.apple.foundationdb.relational.jdbc.grpc.v1.ScanRequest;
 import com.apple.foundationdb.relational.jdbc.grpc.v1.ScanResponse;
 import com.apple.foundationdb.relational.jdbc.grpc.v1.StatementResponse;
@@ -40,10 +42,13 @@ import io.grpc.StatusRuntimeException;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
+import java.sql.BatchUpdateException;
 import java.sql.Connection;
 import java.sql.SQLException;
 import java.sql.SQLWarning;
 import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
@@ -78,8 +83,22 @@ class JDBCRelationalStatement implements RelationalStatement {
      * with #execute(String), such as DDL statements.
      */
     public static final int STATEMENT_NO_RESULT = -2;
+
+    /**
+     * Maximum number of batch entries sent in one request. In auto-commit mode, each request is its own transaction,
+     * so this also bounds the size of the transactions a batch is run in.
+     */
+    static final int MAX_BATCH_ENTRIES_PER_REQUEST = 1_000;
+
     private Options options;
 
+    /**
+     * Statements added with {@link #addBatch(String)} or {@link JDBCRelationalPreparedStatement#addBatch()} that have
+     * not been executed yet.
+     */
+    @Nonnull
+    private final List<BatchEntry> batch = new ArrayList<>();
+
     @SpotBugsSuppressWarnings(value = "CT_CONSTRUCTOR_THROW", justification = "Should consider refactoring but throwing exceptions for now")
     JDBCRelationalStatement(@Nonnull final JDBCRelationalConnection connection) throws SQLException {
         this.connection = connection;
@@ -152,6 +171,22 @@ class JDBCRelationalStatement implements RelationalStatement {
      * @throws SQLException if a database access error occurs or this method is called on a closed Statement
      */
     boolean execute(@Nonnull String sql, Collection<Parameter> parameters) throws SQLException {
+        checkOpen();
+        final boolean streamResults = this.options.getOption(Options.Name.STREAM_RESULTS);
+        if (streamResults && this.connection.getAutoCommit()) {
+            // Stream the rows of a query so that they are only transferred as the result set is consumed
+            final JDBCRelationalConnection.StreamedStatementResponse streamed = this.connection.executeStreaming(sql, this.options, parameters);
+            if (streamed != null) {
+                if (streamed.hasResultSet()) {
+                    this.currentResultSet = streamed.getResultSet();
+                    this.updateCount = STATEMENT_RESULT_SET;
+                    return true;
+                }
+                this.currentResultSet = RelationalResultSetFacade.EMPTY;
+                this.updateCount = streamed.getRowCount();
+                return false;
+            }
+        }
         StatementResponse response = execute(sql, this.options, parameters);
         this.currentResultSet = response.hasResultSet() ?
                 new RelationalResultSetFacade(response.getResultSet()) : RelationalResultSetFacade.EMPTY;
@@ -176,6 +211,77 @@ class JDBCRelationalStatement implements RelationalStatement {
         return this.connection.execute(sql, options, parameters);
     }
 
+    @Override
+    public void addBatch(@Nonnull String sql) throws SQLException {
+        addBatch(sql, null);
+    }
+
+    /**
+     * Package private method for use by this class but also by {@link JDBCRelationalPreparedStatement}.
+     * @param parameters Parameters for <code>sql</code> SORTED by input order or null if this is a Statement batch
+     *                   (and non-null if preparedstatement).
+     * @throws SQLException if this method is called on a closed Statement
+     */
+    void addBatch(@Nonnull String sql, @Nullable Collection<Parameter> parameters) throws SQLException {
+        checkOpen();
+        final BatchEntry.Builder entry = BatchEntry.newBuilder().setSql(sql);
+        if (parameters != null) {
+            entry.setParameters(Parameters.newBuilder().addAllParameter(parameters));
+        }
+        batch.add(entry.build());
+    }
+
+    @Override
+    public void clearBatch() throws SQLException {
+        checkOpen();
+        batch.clear();
+    }
+
+    @Override
+    public int[] executeBatch() throws SQLException {
+        checkOpen();
+        final int[] rowCounts = new int[batch.size()];
+        int executed = 0;
+        try {
+            while (executed < batch.size()) {
+                final List<BatchEntry> entries = batch.subList(executed, Math.min(batch.size(), executed + MAX_BATCH_ENTRIES_PER_REQUEST));
+                final List<Integer> entryRowCounts = this.connection.executeBatch(withoutRepeatedSql(entries), this.options).getRowCountList();
+                if (entryRowCounts.size() != entries.size()) {
+                    throw new JdbcConnectionException("Wrong number of update counts received for batch");
+                }
+                for (int rowCount : entryRowCounts) {
+                    rowCounts[executed++] = rowCount;
+                }
+            }
+        } catch (SQLException e) {
+            throw new BatchUpdateException(e.getMessage(), e.getSQLState(), e.getErrorCode(), Arrays.copyOf(rowCounts, executed), e);
+        } finally {
+            batch.clear();
+        }
+        this.currentResultSet = null;
+        this.updateCount = STATEMENT_NO_RESULT;
+        return rowCounts;
+    }
+
+    /**
+     * Leave out the sql of entries that have the same sql as the entry before them, e.g. all but the first entry of
+     * the batch of a prepared statement.
+     */
+    @Nonnull
+    private static List<BatchEntry> withoutRepeatedSql(@Nonnull List<BatchEntry> entries) {
+        final List<BatchEntry> result = new ArrayList<>(entries.size());
+        String previousSql = null;
+        for (BatchEntry entry : entries) {
+            if (entry.getSql().equals(previousSql)) {
+                result.add(entry.toBuilder().clearSql().build());
+            } else {
+                previousSql = entry.getSql();
+                result.add(entry);
+            }
+        }
+        return result;
+    }
+
     @Override
     public void close() throws SQLException {
         this.closed = true;
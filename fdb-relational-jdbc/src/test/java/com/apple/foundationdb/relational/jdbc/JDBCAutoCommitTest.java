@@ -21,6 +21,7 @@
 package com.apple.foundationdb.relational.jdbc;
 
 import com.apple.foundationdb.relational.api.RelationalConnection;
+import com.apple.foundationdb.relational.api.RelationalPreparedStatement;
 import com.apple.foundationdb.relational.api.RelationalResultSet;
 import com.apple.foundationdb.relational.api.RelationalStatement;
 import com.apple.foundationdb.relational.api.RelationalStruct;
@@ -33,6 +34,7 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import java.io.IOException;
+import java.sql.BatchUpdateException;
 import java.sql.DriverManager;
 import java.sql.SQLException;
 
@@ -394,6 +396,62 @@ public class JDBCAutoCommitTest {
         }
     }
 
+    @Test
+    void executeBatchAutoCommitOn() throws Exception {
+        try (RelationalConnection connection = DriverManager.getConnection(getTestDbUri()).unwrap(RelationalConnection.class)) {
+            try (RelationalPreparedStatement statement = connection.prepareStatement("INSERT INTO test_table VALUES (?, ?)")) {
+                statement.setLong(1, 100);
+                statement.setString(2, "one hundred");
+                statement.addBatch();
+                statement.setLong(1, 200);
+                statement.setString(2, "two hundred");
+                statement.addBatch();
+                Assertions.assertArrayEquals(new int[] {1, 1}, statement.executeBatch());
+                // the batch is cleared once executed
+                Assertions.assertArrayEquals(new int[0], statement.executeBatch());
+            }
+            try (RelationalStatement statement = connection.createStatement()) {
+                statement.addBatch("INSERT INTO test_table VALUES (300, 'three hundred')");
+                statement.addBatch("DELETE FROM test_table WHERE rest_no = 100");
+                Assertions.assertArrayEquals(new int[] {1, 1}, statement.executeBatch());
+                RelationalResultSet resultSet = statement.executeQuery("SELECT * FROM test_table");
+                assertNextResult(resultSet, 200, "two hundred");
+                assertNextResult(resultSet, 300, "three hundred");
+                assertNoNextResult(resultSet);
+            }
+        }
+    }
+
+    @Test
+    void executeBatchInTransaction() throws Exception {
+        try (RelationalConnection connection = DriverManager.getConnection(getTestDbUri()).unwrap(RelationalConnection.class)) {
+            connection.setAutoCommit(false);
+            try (RelationalStatement statement = connection.createStatement()) {
+                statement.addBatch("INSERT INTO test_table VALUES (100, 'one hundred')");
+                statement.addBatch("INSERT INTO test_table VALUES (200, 'two hundred')");
+                Assertions.assertArrayEquals(new int[] {1, 1}, statement.executeBatch());
+                connection.rollback();
+                RelationalResultSet resultSet = statement.executeQuery("SELECT * FROM test_table");
+                assertNoNextResult(resultSet);
+                connection.commit();
+            }
+        }
+    }
+
+    @Test
+    void executeBatchError() throws Exception {
+        try (RelationalConnection connection = DriverManager.getConnection(getTestDbUri()).unwrap(RelationalConnection.class)) {
+            try (RelationalStatement statement = connection.createStatement()) {
+                statement.addBatch("INSERT INTO test_table VALUES (100, 'one hundred')");
+                statement.addBatch("BLAH");
+                Assertions.assertThrows(BatchUpdateException.class, statement::executeBatch);
+                // none of the batch took effect
+                RelationalResultSet resultSet = statement.executeQuery("SELECT * FROM test_table");
+                assertNoNextResult(resultSet);
+            }
+        }
+    }
+
     protected String getSysDbUri() {
         return "jdbc:relational://" + getHostPort() + SYSDBPATH + "?schema=" + RelationalKeyspaceProvider.CATALOG;
     }
@@ -38,9 +38,11 @@ import com.apple.foundationdb.relational.api.RelationalStruct;
 import com.apple.foundationdb.relational.api.SqlTypeNamesSupport;
 import com.apple.foundationdb.relational.api.Transaction;
 import com.apple.foundationdb.relational.api.catalog.StoreCatalog;
+import com.apple.foundationdb.relational.api.exceptions.ErrorCode;
 import com.apple.foundationdb.relational.api.exceptions.RelationalException;
 import com.apple.foundationdb.relational.api.metrics.NoOpMetricRegistry;
 import com.apple.foundationdb.relational.jdbc.TypeConversion;
+import com.apple.foundationdb.relational.jdbc.grpc.v1.BatchEntry;
 import com.apple.foundationdb.relational.jdbc.grpc.v1.Parameter;
 import com.apple.foundationdb.relational.jdbc.grpc.v1.ResultSet;
 import com.apple.foundationdb.relational.recordlayer.DirectFdbConnection;
@@ -62,6 +64,8 @@ import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.Collections;
 import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.UUID;
 import java.util.concurrent.TimeUnit;
@@ -78,6 +82,13 @@ import java.util.concurrent.TimeUnit;
 // Needs to be public so can be used by sub-packages; i.e. the JDBCService
 @API(API.Status.EXPERIMENTAL)
 public class FRL implements AutoCloseable {
+    /**
+     * The longest a query executed by {@link #executeStreaming} reads rows, in milliseconds, unless a shorter
+     * {@link Options.Name#EXECUTION_TIME_LIMIT} is given. This keeps the scan below FoundationDB's five second
+     * transaction limit even when the client is slow to take the rows.
+     */
+    public static final long MAX_STREAMING_TIME_LIMIT_MILLIS = 4_000L;
+
     private final FdbConnection fdbDatabase;
     private final RelationalDriver driver;
     private boolean registeredJDBCEmbedDriver;
@@ -213,6 +224,153 @@ public class FRL implements AutoCloseable {
         }
     }
 
+    /**
+     * A statement executed by {@link #executeStreaming}. For a query, the result set is left open, together with the
+     * statement and connection it is read under, so that its rows can be sent while they are read; closing this
+     * closes them all. The result set ends, with a continuation from which the query can be resumed, once it has
+     * been read for {@link #MAX_STREAMING_TIME_LIMIT_MILLIS}.
+     */
+    public static final class StreamingResponse implements AutoCloseable {
+        @Nullable
+        private final RelationalResultSet resultSet;
+        private final int rowCount;
+        @Nullable
+        private final Statement statement;
+        @Nullable
+        private final RelationalConnection connection;
+
+        private StreamingResponse(@Nullable RelationalResultSet resultSet, int rowCount,
+                                  @Nullable Statement statement, @Nullable RelationalConnection connection) {
+            this.resultSet = resultSet;
+            this.rowCount = rowCount;
+            this.statement = statement;
+            this.connection = connection;
+        }
+
+        public boolean isQuery() {
+            return resultSet != null;
+        }
+
+        public boolean isMutation() {
+            return resultSet == null;
+        }
+
+        @Nonnull
+        public RelationalResultSet getResultSet() {
+            return Objects.requireNonNull(resultSet);
+        }
+
+        public int getRowCount() {
+            return rowCount;
+        }
+
+        @Override
+        public void close() throws SQLException {
+            try {
+                if (resultSet != null) {
+                    resultSet.close();
+                }
+            } finally {
+                try {
+                    if (statement != null) {
+                        statement.close();
+                    }
+                } finally {
+                    if (connection != null) {
+                        connection.close();
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Execute <code>sql</code> like {@link #execute} but without reading the rows of a query up front.
+     * As the rows are read in the transaction that executed the query, the {@link Options.Name#EXECUTION_TIME_LIMIT}
+     * is at most {@link #MAX_STREAMING_TIME_LIMIT_MILLIS}, after which the result set stops early with a continuation.
+     * @param database Database to run the <code>sql</code> against.
+     * @param schema Schema to use on <code>database</code>
+     * @param sql SQL to execute.
+     * @param parameters If non-null, then these are parameters and 'sql' is text of a prepared statement.
+     * @param options Options to connect with.
+     * @return Returns a StreamingResponse with either an open result set, which the caller must close, or a row count
+     * @throws SQLException For all sorts of reasons.
+     */
+    @Nonnull
+    public StreamingResponse executeStreaming(String database, String schema, String sql, List<Parameter> parameters, Options options)
+            throws SQLException {
+        // The result set can only be read while the transaction is active, so the connection is kept open until the
+        // caller closes the response. The time limit makes the scan stop, with a continuation, before the transaction
+        // gets too old, however long the caller takes to consume the rows.
+        final long timeLimit = options.getOption(Options.Name.EXECUTION_TIME_LIMIT);
+        final Options streamingOptions = timeLimit > 0L && timeLimit <= MAX_STREAMING_TIME_LIMIT_MILLIS
+                ? options
+                : options.withOption(Options.Name.EXECUTION_TIME_LIMIT, MAX_STREAMING_TIME_LIMIT_MILLIS);
+        final RelationalConnection connection = connect(database, schema, streamingOptions);
+        Statement statement = null;
+        final int rowCount;
+        try {
+            final RelationalResultSet resultSet;
+            if (parameters == null) {
+                final RelationalStatement relationalStatement = connection.createStatement();
+                statement = relationalStatement;
+                resultSet = relationalStatement.execute(sql) ? relationalStatement.getResultSet() : null;
+            } else {
+                final RelationalPreparedStatement preparedStatement = connection.prepareStatement(sql);
+                statement = preparedStatement;
+                int index = 1; // Parameter position is one-based.
+                for (Parameter parameter : parameters) {
+                    addPreparedStatementParameter(preparedStatement, parameter, index++);
+                }
+                resultSet = preparedStatement.execute() ? preparedStatement.getResultSet() : null;
+            }
+            if (resultSet != null) {
+                return new StreamingResponse(resultSet, -1, statement, connection);
+            }
+            rowCount = statement.getUpdateCount();
+        } catch (SQLException | RuntimeException e) {
+            try {
+                new StreamingResponse(null, -1, statement, connection).close();
+            } catch (SQLException closeException) {
+                e.addSuppressed(closeException);
+            }
+            throw e;
+        }
+        new StreamingResponse(null, -1, statement, connection).close();
+        return new StreamingResponse(null, rowCount, null, null);
+    }
+
+    /**
+     * Execute a batch of statements in a single transaction, which is committed once all of them have run. If any of
+     * them fails, none of them takes effect.
+     * @param database Database to run the batch against.
+     * @param schema Schema to use on <code>database</code>
+     * @param entries the statements of the batch, in order
+     * @param options Options for the connection
+     * @return the update count of each entry
+     * @throws SQLException if any of the statements fails or returns a result set
+     */
+    @Nonnull
+    public int[] executeBatch(String database, String schema, List<BatchEntry> entries, Options options)
+            throws SQLException {
+        try (var connection = connect(database, schema, options)) {
+            connection.setAutoCommit(false);
+            final int[] rowCounts;
+            try {
+                rowCounts = executeBatchInternal(connection, entries);
+            } catch (SQLException | RuntimeException e) {
+                try {
+                    connection.rollback();
+                } catch (SQLException rollbackException) {
+                    e.addSuppressed(rollbackException);
+                }
+                throw e;
+            }
+            connection.commit();
+            return rowCounts;
+        }
+    }
+
     private RelationalConnection connect(String database, String schema, Options options) throws SQLException {
         return driver.connect(URI.create(createEmbeddedJDBCURI(database, schema)), options);
     }
@@ -228,7 +386,7 @@ public class FRL implements AutoCloseable {
                     setStatementOptions(options, statement);
                     if (relationalStatement.execute(sql)) {
                         try (RelationalResultSet rs = relationalStatement.getResultSet()) {
-                            resultSet = TypeConversion.toProtobuf(rs);
+                            resultSet = TypeConversion.toProtobuf(rs, isColumnar(connection, options));
                             return Response.query(resultSet);
                         }
                     } else {
@@ -246,7 +404,7 @@ public class FRL implements AutoCloseable {
             setStatementOptions(options, statement);
             if (statement.execute()) {
                 try (RelationalResultSet rs = statement.getResultSet()) {
-                    resultSet = TypeConversion.toProtobuf(rs);
+                    resultSet = TypeConversion.toProtobuf(rs, isColumnar(connection, options));
                     return Response.query(resultSet);
                 }
             } else {
@@ -255,6 +413,63 @@ public class FRL implements AutoCloseable {
         }
     }
 
+    /**
+     * Run the entries of a batch on <code>connection</code>. Consecutive entries with the same sql, as in the batch of
+     * a prepared statement, share a single prepared statement, whose plan is then served from the plan cache for
+     * all but the first of them.
+     */
+    @Nonnull
+    private static int[] executeBatchInternal(@Nonnull RelationalConnection connection,
+                                              @Nonnull List<BatchEntry> entries) throws SQLException {
+        final int[] rowCounts = new int[entries.size()];
+        String sql = null;
+        RelationalPreparedStatement preparedStatement = null;
+        try (RelationalStatement statement = connection.createStatement()) {
+            for (int i = 0; i < entries.size(); i++) {
+                final BatchEntry entry = entries.get(i);
+                if (entry.hasSql() && !entry.getSql().equals(sql)) {
+                    sql = entry.getSql();
+                    if (preparedStatement != null) {
+                        preparedStatement.close();
+                        preparedStatement = null;
+                    }
+                }
+                if (sql == null) {
+                    throw new SQLException("Batch entry has no sql", ErrorCode.INVALID_PARAMETER.getErrorCode());
+                }
+                final boolean hasResultSet;
+                if (entry.hasParameters()) {
+                    if (preparedStatement == null) {
+                        preparedStatement = connection.prepareStatement(sql);
+                    }
+                    int index = 1; // Parameter position is one-based.
+                    for (Parameter parameter : entry.getParameters().getParameterList()) {
+                        addPreparedStatementParameter(preparedStatement, parameter, index++);
+                    }
+                    hasResultSet = preparedStatement.execute();
+                    rowCounts[i] = preparedStatement.getUpdateCount();
+                } else {
+                    hasResultSet = statement.execute(sql);
+                    rowCounts[i] = statement.getUpdateCount();
+                }
+                if (hasResultSet) {
+                    throw new SQLException(String.format(Locale.ROOT, "query '%s' returns a result set, which is not allowed in a batch", sql),
+                            ErrorCode.EXECUTE_UPDATE_RETURNED_RESULT_SET.getErrorCode());
+                }
+            }
+        } finally {
+            if (preparedStatement != null) {
+                preparedStatement.close();
+            }
+        }
+        return rowCounts;
+    }
+
+    private static boolean isColumnar(@Nonnull RelationalConnection connection, @Nullable Options options) {
+        final Options effectiveOptions = options != null ? options : connection.getOptions();
+        return Boolean.TRUE.equals(effectiveOptions.getOption(Options.Name.COLUMNAR_RESULT_ENCODING));
+    }
+
     private static void setStatementOptions(final @Nullable Options options, final Statement statement) throws SQLException {
         if (options != null) {
             statement.setMaxRows(options.getOption(Options.Name.MAX_ROWS));
@@ -352,6 +567,12 @@ public class FRL implements AutoCloseable {
         return executeInternal(token.getConnection(), sql, parameters, options);
     }
 
+    @Nonnull
+    public int[] transactionalExecuteBatch(TransactionalToken token, List<BatchEntry> entries) throws SQLException {
+        assertValidToken(token);
+        return executeBatchInternal(token.getConnection(), entries);
+    }
+
     public int transactionalInsert(TransactionalToken token, String tableName, List<RelationalStruct> data)
             throws SQLException {
         assertValidToken(token);
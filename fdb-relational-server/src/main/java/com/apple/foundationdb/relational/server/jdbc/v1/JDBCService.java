@@ -24,6 +24,8 @@ import com.apple.foundationdb.annotation.API;
 import com.apple.foundationdb.relational.api.RelationalResultSet;
 import com.apple.foundationdb.relational.jdbc.TypeConversion;
 import com.apple.foundationdb.relational.jdbc.grpc.GrpcSQLExceptionUtil;
+import com.apple.foundationdb.relational.jdbc.grpc.v1.BatchStatementRequest;
+import com.apple.foundationdb.relational.jdbc.grpc.v1.BatchStatementResponse;
 import com.apple.foundationdb.relational.jdbc.grpc.v1.DatabaseMetaDataRequest;
 import com.apple.foundationdb.relational.jdbc.grpc.v1.DatabaseMetaDataResponse;
 import com.apple.foundationdb.relational.jdbc.grpc.v1.GetRequest;
@@ -44,6 +46,7 @@ import com.google.common.annotations.VisibleForTesting;
 import io.grpc.Status;
 import io.grpc.StatusRuntimeException;
 import io.grpc.protobuf.StatusProto;
+import io.grpc.stub.ServerCallStreamObserver;
 import io.grpc.stub.StreamObserver;
 
 import java.sql.SQLException;
@@ -106,6 +109,81 @@ public class JDBCService extends JDBCServiceGrpc.JDBCServiceImplBase {
         }
     }
 
+    /**
+     * Like {@link #execute} but the rows of a query are streamed back in batches as they are read, honoring gRPC flow
+     * control, rather than read in full before responding.
+     * @param request the statement to execute
+     * @param responseObserver the stream to send the row count or result set batches to
+     */
+    @Override
+    public void executeStream(StatementRequest request, StreamObserver<StatementResponse> responseObserver) {
+        if (!checkStatementRequest(request, responseObserver)) {
+            return;
+        }
+        try {
+            FRL.StreamingResponse response = this.frl.executeStreaming(request.getDatabase(), request.getSchema(), request.getSql(),
+                    request.hasParameters() ? request.getParameters().getParameterList() : null, TypeConversion.fromProtobuf(request.getOptions()));
+            if (response.isMutation()) {
+                responseObserver.onNext(StatementResponse.newBuilder().setRowCount(response.getRowCount()).build());
+                responseObserver.onCompleted();
+                return;
+            }
+            new ResultSetStreamer((ServerCallStreamObserver<StatementResponse>)responseObserver, response,
+                    request.getOptions().getColumnarResultEncoding()).start();
+        } catch (SQLException e) {
+            responseObserver.onError(StatusProto.toStatusRuntimeException(GrpcSQLExceptionUtil.create(e)));
+        } catch (RuntimeException e) {
+            throw handleUncaughtException(e);
+        }
+    }
+
+    /**
+     * Run the statements of a JDBC batch in a single transaction; a round trip per statement is what batching is
+     * meant to save.
+     * @param request the statements to run
+     * @param responseObserver receives the update count of each statement
+     */
+    @Override
+    public void executeBatch(BatchStatementRequest request, StreamObserver<BatchStatementResponse> responseObserver) {
+        if (!checkBatchStatementRequest(request, responseObserver)) {
+            return;
+        }
+        try {
+            int[] rowCounts = this.frl.executeBatch(request.getDatabase(), request.getSchema(), request.getEntryList(),
+                    TypeConversion.fromProtobuf(request.getOptions()));
+            responseObserver.onNext(toBatchStatementResponse(rowCounts));
+            responseObserver.onCompleted();
+        } catch (SQLException e) {
+            responseObserver.onError(StatusProto.toStatusRuntimeException(GrpcSQLExceptionUtil.create(e)));
+        } catch (RuntimeException e) {
+            throw handleUncaughtException(e);
+        }
+    }
+
+    static BatchStatementResponse toBatchStatementResponse(int[] rowCounts) {
+        BatchStatementResponse.Builder builder = BatchStatementResponse.newBuilder();
+        for (int rowCount : rowCounts) {
+            builder.addRowCount(rowCount);
+        }
+        return builder.build();
+    }
+
+    private static boolean checkBatchStatementRequest(BatchStatementRequest request, StreamObserver<BatchStatementResponse> responseObserver) {
+        if (!request.hasDatabase() || request.getDatabase().isEmpty()) {
+            responseObserver.onError(createStatusRuntimeException("Empty database name"));
+            return false;
+        }
+        if (!request.hasSchema() || request.getSchema().isEmpty()) {
+            responseObserver.onError(createStatusRuntimeException("Empty schema name"));
+            return false;
+        }
+        if (request.getEntryCount() == 0 || !request.getEntry(0).hasSql() || request.getEntry(0).getSql().isEmpty()) {
+            responseObserver.onError(createStatusRuntimeException("Empty sql statement"));
+            return false;
+        }
+        return true;
+    }
+
     /**
      * This is called when the client connection enters "autoCommit=off" state.
      * Requests coming in after that point will be accepted through the returned TransactionRequestHandler,
@@ -0,0 +1,163 @@
+/*
+ * ResultSetStreamer.java
+ *
+ * This source file is part of the FoundationDB open source project
+ *
+ * Copyright 2015-2026 Apple Inc. and the FoundationDB project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.apple.foundationdb.relational.server.jdbc.v1;
+
+import com.apple.foundationdb.relational.api.RelationalResultSet;
+import com.apple.foundationdb.relational.jdbc.ColumnarRowsBuilder;
+import com.apple.foundationdb.relational.jdbc.TypeConversion;
+import com.apple.foundationdb.relational.jdbc.grpc.GrpcSQLExceptionUtil;
+import com.apple.foundationdb.relational.jdbc.grpc.v1.ResultSet;
+import com.apple.foundationdb.relational.jdbc.grpc.v1.StatementResponse;
+import com.apple.foundationdb.relational.jdbc.grpc.v1.column.Struct;
+import com.apple.foundationdb.relational.server.FRL;
+import io.grpc.protobuf.StatusProto;
+import io.grpc.stub.ServerCallStreamObserver;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+import java.sql.SQLException;
+
+/**
+ * Sends the rows of an open result set to the client of {@link JDBCService#executeStream} in batches.
+ * Rows are only read from the result set while the stream is ready to take more, i.e. while the client keeps up; when
+ * it is not, sending stops and resumes from the stream's on-ready callback. The result set is closed once all its rows
+ * have been sent, or if reading fails or the client cancels the call.
+ * The rows are read in the transaction that executed the query, so reading is limited to
+ * {@link FRL#MAX_STREAMING_TIME_LIMIT_MILLIS}. A result set that reaches the limit, e.g. because the client is slow,
+ * ends early; its last batch carries the continuation from which the client can resume the query.
+ * Only the first batch carries the result set's metadata.
+ * If the client asked for it, the rows of each batch are encoded column by column (see {@link ColumnarRowsBuilder}).
+ */
+class ResultSetStreamer implements Runnable {
+    private static final Logger logger = LoggerFactory.getLogger(ResultSetStreamer.class);
+
+    /**
+     * Maximum number of rows sent in one response.
+     */
+    static final int MAX_ROWS_PER_RESPONSE = 1_000;
+    /**
+     * Serialized size of the rows of a response after which no more rows are added to it.
+     */
+    static final int MAX_BYTES_PER_RESPONSE = 1 << 20;
+
+    @Nonnull
+    private final ServerCallStreamObserver<StatementResponse> responseObserver;
+    @Nonnull
+    private final FRL.StreamingResponse response;
+    private final boolean columnar;
+    private boolean sentMetadata;
+    private boolean done;
+
+    ResultSetStreamer(@Nonnull ServerCallStreamObserver<StatementResponse> responseObserver,
+                      @Nonnull FRL.StreamingResponse response,
+                      boolean columnar) {
+        this.responseObserver = responseObserver;
+        this.response = response;
+        this.columnar = columnar;
+    }
+
+    /**
+     * Start sending. Must be called from the service method so that the callbacks are registered in time.
+     */
+    void start() {
+        responseObserver.setOnCancelHandler(this::cancel);
+        responseObserver.setOnReadyHandler(this);
+        run();
+    }
+
+    /**
+     * Send batches for as long as the stream is ready.
+     */
+    @Override
+    public synchronized void run() {
+        if (done) {
+            return;
+        }
+        try {
+            final RelationalResultSet resultSet = response.getResultSet();
+            while (responseObserver.isReady()) {
+                final ResultSet.Builder batch = ResultSet.newBuilder();
+                if (!sentMetadata) {
+                    batch.setMetadata(TypeConversion.toResultSetMetadataProtobuf(resultSet));
+                }
+                final ColumnarRowsBuilder columnarRows = columnar ? new ColumnarRowsBuilder(resultSet.getMetaData()) : null;
+                boolean exhausted = false;
+                int rowCount = 0;
+                long bytes = 0L;
+                while (rowCount < MAX_ROWS_PER_RESPONSE && bytes < MAX_BYTES_PER_RESPONSE) {
+                    if (!resultSet.next()) {
+                        exhausted = true;
+                        break;
+                    }
+                    if (columnarRows != null) {
+                        columnarRows.addRow(resultSet);
+                        bytes = columnarRows.getEstimatedBytes();
+                    } else {
+                        final Struct row = TypeConversion.toRowProtobuf(resultSet);
+                        bytes += row.getSerializedSize();
+                        batch.addRow(row);
+                    }
+                    rowCount++;
+                }
+                if (columnarRows != null) {
+                    batch.setColumnarRows(columnarRows.build());
+                }
+                if (exhausted) {
+                    // Set the continuation after all the rows have been traversed
+                    batch.setContinuation(TypeConversion.toContinuationProtobuf(resultSet));
+                }
+                responseObserver.onNext(StatementResponse.newBuilder()
+                        .setRowCount(rowCount)
+                        .setResultSet(batch)
+                        .build());
+                sentMetadata = true;
+                if (exhausted) {
+                    finish();
+                    responseObserver.onCompleted();
+                    return;
+                }
+            }
+        } catch (SQLException e) {
+            finish();
+            responseObserver.onError(StatusProto.toStatusRuntimeException(GrpcSQLExceptionUtil.create(e)));
+        } catch (RuntimeException e) {
+            finish();
+            responseObserver.onError(JDBCService.handleUncaughtException(e));
+        }
+    }
+
+    private synchronized void cancel() {
+        finish();
+    }
+
+    private void finish() {
+        if (done) {
+            return;
+        }
+        done = true;
+        try {
+            response.close();
+        } catch (SQLException e) {
+            logger.warn("Failed to close streamed result set", e);
+        }
+    }
+}
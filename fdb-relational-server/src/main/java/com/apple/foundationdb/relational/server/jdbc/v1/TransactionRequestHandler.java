@@ -25,6 +25,7 @@ import com.apple.foundationdb.record.logging.LogMessageKeys;
 import com.apple.foundationdb.relational.api.Options;
 import com.apple.foundationdb.relational.jdbc.TypeConversion;
 import com.apple.foundationdb.relational.jdbc.grpc.GrpcSQLExceptionUtil;
+import com.apple.foundationdb.relational.jdbc.grpc.v1.BatchStatementRequest;
 import com.apple.foundationdb.relational.jdbc.grpc.v1.CommitResponse;
 import com.apple.foundationdb.relational.jdbc.grpc.v1.EnableAutoCommitResponse;
 import com.apple.foundationdb.relational.jdbc.grpc.v1.InsertRequest;
@@ -91,6 +92,19 @@ public class TransactionRequestHandler implements StreamObserver<TransactionalRe
                 }
 
                 responseBuilder.setExecuteResponse(statementResponseBuilder);
+            } else if (transactionRequest.hasExecuteBatchRequest()) {
+                final BatchStatementRequest request = transactionRequest.getExecuteBatchRequest();
+                final Options options = TypeConversion.fromProtobuf(request.getOptions());
+                if (logger.isInfoEnabled()) {
+                    logger.info(KeyValueLogMessage.build("Handling execute batch request")
+                            .addKeyAndValue(LogMessageKeys.RECORD_COUNT, request.getEntryCount())
+                            .toString());
+                }
+                if (transactionalToken == null || transactionalToken.expired()) {
+                    transactionalToken = frl.createTransactionalToken(request.getDatabase(), request.getSchema(), options);
+                }
+                final int[] rowCounts = frl.transactionalExecuteBatch(transactionalToken, request.getEntryList());
+                responseBuilder.setExecuteBatchResponse(JDBCService.toBatchStatementResponse(rowCounts));
             } else if (transactionRequest.hasInsertRequest()) {
                 final InsertRequest request = transactionRequest.getInsertRequest();
                 final Options options = TypeConversion.fromProtobuf(request.getOptions());